@@ -1,17 +1,52 @@
 package de.metas.acct.posting.server;
 
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.Properties;
+
+import javax.annotation.Nullable;
+import javax.annotation.PreDestroy;
+
+import org.adempiere.ad.dao.IQueryBL;
+import org.adempiere.ad.trx.api.ITrx;
+import org.adempiere.exceptions.AdempiereException;
+import org.adempiere.model.InterfaceWrapperHelper;
+import org.adempiere.service.ClientId;
+import org.adempiere.service.ISysConfigBL;
+import org.adempiere.util.lang.ExtendedMemorizingSupplier;
+import org.adempiere.util.lang.IAutoCloseable;
+import org.adempiere.util.lang.impl.TableRecordReference;
+import org.compiere.model.I_C_AcctSchema;
+import org.compiere.model.I_M_Product_Category_Acct;
+import org.compiere.util.DB;
+import org.compiere.util.Env;
 import org.slf4j.Logger;
+import org.slf4j.MDC.MDCCloseable;
 import org.springframework.context.annotation.Profile;
 import org.springframework.stereotype.Component;
 
+import com.google.common.collect.ImmutableSet;
+
 import de.metas.Profiles;
+import de.metas.acct.api.AcctSchema;
+import de.metas.acct.api.AcctSchemaId;
 import de.metas.acct.api.IPostingRequestBuilder.PostImmediate;
+import de.metas.acct.api.IAcctSchemaDAO;
 import de.metas.acct.api.IPostingService;
 import de.metas.acct.doc.AcctDocRegistry;
 import de.metas.acct.posting.DocumentPostRequest;
 import de.metas.acct.posting.DocumentPostRequestHandler;
+import de.metas.cache.CCache;
+import de.metas.costing.CostingLevel;
+import de.metas.event.Event;
+import de.metas.event.log.EventLogEntryCollector;
+import de.metas.event.log.EventLogUserService;
 import de.metas.logging.LogManager;
+import de.metas.logging.TableRecordMDC;
+import de.metas.organization.OrgId;
 import de.metas.util.Services;
+import lombok.NonNull;
 
 /*
  * #%L
@@ -41,12 +76,202 @@ public class AccountingService implements DocumentPostRequestHandler
 {
 	private static final Logger logger = LogManager.getLogger(AccountingService.class);
 
-	public AccountingService(final AcctDocRegistry acctDocFactory)
+	private static final String SYSCONFIG_WorkerPoolSize = "de.metas.acct.posting.workerPoolSize";
+	private static final String SYSCONFIG_MaxPostsPerTurn = "de.metas.acct.posting.maxPostsPerPartitionTurn";
+	private static final Duration SHUTDOWN_TIMEOUT = Duration.ofSeconds(30);
+
+	private final EventLogUserService eventLogUserService;
+	private final ExtendedMemorizingSupplier<Optional<PartitionedDocumentPoster>> partitionedPosterSupplier = ExtendedMemorizingSupplier.of(this::createPartitionedPosterIfEnabled);
+
+	/** Tells per client if documents of different orgs can be posted in parallel, see {@link #isPartitionByOrg(ClientId)} */
+	private final CCache<ClientId, Boolean> partitionByOrgByClientId = CCache.<ClientId, Boolean> builder()
+			.tableName(I_C_AcctSchema.Table_Name)
+			.additionalTableNameToResetFor(I_M_Product_Category_Acct.Table_Name)
+			.build();
+
+	public AccountingService(
+			final AcctDocRegistry acctDocFactory,
+			@NonNull final EventLogUserService eventLogUserService)
 	{
+		this.eventLogUserService = eventLogUserService;
+	}
+
+	/**
+	 * Waits a while for the already submitted documents to be posted and stops the workers.
+	 */
+	@PreDestroy
+	public void shutdown() throws InterruptedException
+	{
+		final Optional<PartitionedDocumentPoster> partitionedPoster = partitionedPosterSupplier.peek();
+		if (partitionedPoster == null || !partitionedPoster.isPresent())
+		{
+			return;
+		}
+
+		if (!partitionedPoster.get().shutdownAndAwait(SHUTDOWN_TIMEOUT))
+		{
+			logger.warn("Not all submitted documents were posted within {}. Stats: {}", SHUTDOWN_TIMEOUT, partitionedPoster.get().getStats());
+		}
 	}
 
 	@Override
 	public void handleRequest(final DocumentPostRequest request)
+	{
+		final PartitionedDocumentPoster partitionedPoster = partitionedPosterSupplier.get().orElse(null);
+		if (partitionedPoster != null)
+		{
+			logger.debug("Submitting: {}", request);
+
+			// we are called by the event bus, which already set up the event log collector
+			final Event event = EventLogEntryCollector.getThreadLocal().getEvent();
+			partitionedPoster.submit(request)
+					.whenComplete((result, ex) -> {
+						if (ex != null)
+						{
+							logPostingError(request, event, ex);
+						}
+					});
+		}
+		else
+		{
+			postNow(request);
+		}
+	}
+
+	/**
+	 * @return posting statistics or empty if the documents are posted one by one, directly on the thread which received the request
+	 */
+	public Optional<DocumentPostingStats> getStats()
+	{
+		return partitionedPosterSupplier.get().map(PartitionedDocumentPoster::getStats);
+	}
+
+	private Optional<PartitionedDocumentPoster> createPartitionedPosterIfEnabled()
+	{
+		final ISysConfigBL sysConfigBL = Services.get(ISysConfigBL.class);
+		final int workerPoolSize = sysConfigBL.getIntValue(SYSCONFIG_WorkerPoolSize, 1);
+		if (workerPoolSize <= 1)
+		{
+			return Optional.empty();
+		}
+
+		logger.info("Posting documents in parallel, using {} workers", workerPoolSize);
+		return Optional.of(PartitionedDocumentPoster.builder()
+				.workerPoolSize(workerPoolSize)
+				.maxPostsPerTurn(sysConfigBL.getIntValue(SYSCONFIG_MaxPostsPerTurn, 50))
+				.partitionKeyFunction(this::extractPartitionKey)
+				.postingAction(this::postNowInContext)
+				.build());
+	}
+
+	/**
+	 * Documents of different orgs can be posted in parallel only if their costs are kept per org, i.e. if they don't update the same costs.
+	 * Otherwise we partition by client only.
+	 */
+	private DocumentPostingPartitionKey extractPartitionKey(@NonNull final DocumentPostRequest request)
+	{
+		final ClientId clientId = request.getClientId();
+		if (!isPartitionByOrg(clientId))
+		{
+			return DocumentPostingPartitionKey.of(clientId, OrgId.ANY);
+		}
+
+		final TableRecordReference documentRef = request.getRecord();
+		final String tableName = documentRef.getTableName();
+		final String sql = "SELECT AD_Org_ID FROM " + tableName + " WHERE " + InterfaceWrapperHelper.getKeyColumnName(tableName) + "=?";
+
+		OrgId orgId;
+		try
+		{
+			orgId = OrgId.ofRepoIdOrAny(DB.getSQLValueEx(ITrx.TRXNAME_None, sql, documentRef.getRecord_ID()));
+		}
+		catch (final Exception ex)
+		{
+			// the posting itself will fail and report the problem
+			logger.warn("Failed fetching AD_Org_ID of {}. Considering ANY.", documentRef, ex);
+			orgId = OrgId.ANY;
+		}
+
+		return DocumentPostingPartitionKey.of(clientId, orgId);
+	}
+
+	private boolean isPartitionByOrg(@NonNull final ClientId clientId)
+	{
+		return partitionByOrgByClientId.getOrLoad(clientId, AccountingService::isCostingLevelOrganization);
+	}
+
+	/**
+	 * @return true if all accounting schemas of given client are keeping the costs per org, and no product category is overriding that
+	 */
+	private static boolean isCostingLevelOrganization(@NonNull final ClientId clientId)
+	{
+		final List<AcctSchema> acctSchemas = Services.get(IAcctSchemaDAO.class).getAllByClient(clientId);
+		if (acctSchemas.isEmpty())
+		{
+			return false;
+		}
+		if (!acctSchemas.stream().allMatch(acctSchema -> acctSchema.getCosting().getCostingLevel() == CostingLevel.Organization))
+		{
+			return false;
+		}
+
+		final ImmutableSet<AcctSchemaId> acctSchemaIds = acctSchemas.stream()
+				.map(AcctSchema::getId)
+				.collect(ImmutableSet.toImmutableSet());
+
+		final boolean productCategoryCostingLevelOverride = Services.get(IQueryBL.class)
+				.createQueryBuilderOutOfTrx(I_M_Product_Category_Acct.class)
+				.addOnlyActiveRecordsFilter()
+				.addInArrayFilter(I_M_Product_Category_Acct.COLUMNNAME_C_AcctSchema_ID, acctSchemaIds)
+				.addNotNull(I_M_Product_Category_Acct.COLUMNNAME_CostingLevel)
+				.addNotEqualsFilter(I_M_Product_Category_Acct.COLUMNNAME_CostingLevel, CostingLevel.Organization.getCode())
+				.create()
+				.anyMatch();
+		return !productCategoryCostingLevelOverride;
+	}
+
+	/**
+	 * Writes the failure to the log of the event which requested the posting, like it would have happened if we had posted the document right away.
+	 */
+	private void logPostingError(
+			@NonNull final DocumentPostRequest request,
+			@Nullable final Event event,
+			@NonNull final Throwable ex)
+	{
+		if (event == null || !event.isWasLogged())
+		{
+			logger.warn("Failed posting {}", request, ex);
+			return;
+		}
+
+		try (final EventLogEntryCollector collector = EventLogEntryCollector.createThreadLocalForEvent(event))
+		{
+			eventLogUserService.newErrorLogEntry(getClass(), AdempiereException.wrapIfNeeded(ex))
+					.createAndStore();
+		}
+		catch (final Exception logEx)
+		{
+			logger.warn("Failed posting {} and failed writing the failure to the event log", request, ex);
+			logger.warn("Failure while writing to the event log", logEx);
+		}
+	}
+
+	/**
+	 * Posts the request on a worker thread, so we need to set up the context which the event bus listener would set up for us.
+	 */
+	private void postNowInContext(@NonNull final DocumentPostRequest request)
+	{
+		final Properties ctx = Env.newTemporaryCtx();
+		Env.setClientId(ctx, request.getClientId());
+
+		try (final IAutoCloseable ctxRestorer = Env.switchContext(ctx);
+				final MDCCloseable requestRecordMDC = TableRecordMDC.putTableRecordReference(request.getRecord()))
+		{
+			postNow(request);
+		}
+	}
+
+	private void postNow(@NonNull final DocumentPostRequest request)
 	{
 		logger.debug("Posting: {}", request);
 
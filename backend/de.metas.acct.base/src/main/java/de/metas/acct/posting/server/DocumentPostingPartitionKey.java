@@ -0,0 +1,45 @@
+package de.metas.acct.posting.server;
+
+import org.adempiere.service.ClientId;
+
+import de.metas.organization.OrgId;
+import lombok.NonNull;
+import lombok.Value;
+
+/*
+ * #%L
+ * de.metas.acct.base
+ * %%
+ * Copyright (C) 2020 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+/**
+ * Documents with the same key are posted one after the other, in the order they were requested.
+ * Documents with different keys don't share accounting schemas, periods or costs, so they can be posted in parallel.
+ * <p>
+ * NOTE: the accounting schemas are assigned per client and organization, so those two are identifying the accounting schema too.
+ */
+@Value(staticConstructor = "of")
+class DocumentPostingPartitionKey
+{
+	@NonNull
+	ClientId clientId;
+
+	@NonNull
+	OrgId orgId;
+}
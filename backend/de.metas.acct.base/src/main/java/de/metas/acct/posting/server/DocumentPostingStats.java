@@ -0,0 +1,43 @@
+package de.metas.acct.posting.server;
+
+import lombok.Builder;
+import lombok.Value;
+
+/*
+ * #%L
+ * de.metas.acct.base
+ * %%
+ * Copyright (C) 2020 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+@Value
+@Builder
+public class DocumentPostingStats
+{
+	int workerPoolSize;
+
+	long postedCount;
+	long failedCount;
+
+	/** requests which were submitted but not yet posted */
+	long queuedCount;
+	int activePartitionsCount;
+
+	/** documents (posted or failed) per second, measured over the last completed measurement interval */
+	double documentsPerSecond;
+}
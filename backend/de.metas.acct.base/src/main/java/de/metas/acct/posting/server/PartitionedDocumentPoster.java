@@ -0,0 +1,280 @@
+package de.metas.acct.posting.server;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+
+import org.adempiere.util.concurrent.CustomizableThreadFactory;
+import org.slf4j.Logger;
+
+import de.metas.acct.posting.DocumentPostRequest;
+import de.metas.logging.LogManager;
+import de.metas.util.Check;
+import lombok.Builder;
+import lombok.NonNull;
+import lombok.ToString;
+
+/*
+ * #%L
+ * de.metas.acct.base
+ * %%
+ * Copyright (C) 2020 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+/**
+ * Posts documents on a pool of worker threads.
+ * <p>
+ * The requests are partitioned by {@link DocumentPostingPartitionKey}. The requests of one partition are posted sequentially, in the order they were submitted,
+ * while different partitions are posted in parallel. After {@link #maxPostsPerTurn} documents, a partition goes to the end of the line,
+ * so that one big partition (e.g. after a repost) is not blocking a worker forever.
+ * <p>
+ * A failed posting does not stop its partition. The failure is reported to the caller via the future returned by {@link #submit(DocumentPostRequest)}.
+ */
+final class PartitionedDocumentPoster
+{
+	private static final Logger logger = LogManager.getLogger(PartitionedDocumentPoster.class);
+
+	private final Function<DocumentPostRequest, DocumentPostingPartitionKey> partitionKeyFunction;
+	private final Consumer<DocumentPostRequest> postingAction;
+	private final int workerPoolSize;
+	private final int maxPostsPerTurn;
+	private final ExecutorService executor;
+
+	/** active partitions, i.e. partitions which have queued requests or are being posted right now */
+	private final HashMap<DocumentPostingPartitionKey, Partition> partitions = new HashMap<>();
+	private long queuedCount = 0;
+
+	private final AtomicLong postedCount = new AtomicLong();
+	private final AtomicLong failedCount = new AtomicLong();
+	private final ThroughputMeter throughputMeter;
+
+	@Builder
+	private PartitionedDocumentPoster(
+			@NonNull final Function<DocumentPostRequest, DocumentPostingPartitionKey> partitionKeyFunction,
+			@NonNull final Consumer<DocumentPostRequest> postingAction,
+			final int workerPoolSize,
+			final int maxPostsPerTurn,
+			final Duration throughputMeasurementInterval,
+			final LongSupplier nanoClock)
+	{
+		Check.assumeGreaterThanZero(workerPoolSize, "workerPoolSize");
+
+		this.partitionKeyFunction = partitionKeyFunction;
+		this.postingAction = postingAction;
+		this.workerPoolSize = workerPoolSize;
+		this.maxPostsPerTurn = maxPostsPerTurn > 0 ? maxPostsPerTurn : 50;
+		this.executor = Executors.newFixedThreadPool(
+				workerPoolSize,
+				CustomizableThreadFactory.builder()
+						.setThreadNamePrefix(PartitionedDocumentPoster.class.getSimpleName())
+						.setDaemon(true)
+						.build());
+		this.throughputMeter = new ThroughputMeter(
+				throughputMeasurementInterval != null ? throughputMeasurementInterval : Duration.ofMinutes(1),
+				nanoClock != null ? nanoClock : System::nanoTime);
+	}
+
+	/**
+	 * @return future which is completed when the document was posted, or completed exceptionally if the posting failed
+	 */
+	public CompletableFuture<Void> submit(@NonNull final DocumentPostRequest request)
+	{
+		final DocumentPostingPartitionKey partitionKey = partitionKeyFunction.apply(request);
+		final QueuedRequest queuedRequest = new QueuedRequest(request);
+
+		synchronized (partitions)
+		{
+			final Partition partition = partitions.computeIfAbsent(partitionKey, Partition::new);
+			partition.queue.add(queuedRequest);
+			queuedCount++;
+
+			if (!partition.scheduled)
+			{
+				partition.scheduled = true;
+				executor.execute(() -> postQueuedRequests(partition));
+			}
+		}
+
+		return queuedRequest.future;
+	}
+
+	private void postQueuedRequests(@NonNull final Partition partition)
+	{
+		for (int i = 0; i < maxPostsPerTurn; i++)
+		{
+			final QueuedRequest request;
+			synchronized (partitions)
+			{
+				request = partition.queue.poll();
+				if (request == null)
+				{
+					partition.scheduled = false;
+					partitions.remove(partition.key);
+					return;
+				}
+				queuedCount--;
+			}
+
+			post(request);
+		}
+
+		// give the other partitions a chance; we are still flagged as scheduled, so nobody else will pick up this partition meanwhile
+		executor.execute(() -> postQueuedRequests(partition));
+	}
+
+	private void post(@NonNull final QueuedRequest queuedRequest)
+	{
+		try
+		{
+			postingAction.accept(queuedRequest.request);
+			postedCount.incrementAndGet();
+			queuedRequest.future.complete(null);
+		}
+		catch (final Exception ex)
+		{
+			failedCount.incrementAndGet();
+			logger.debug("Failed posting {}", queuedRequest.request, ex);
+			queuedRequest.future.completeExceptionally(ex);
+		}
+		finally
+		{
+			throughputMeter.documentDone();
+		}
+	}
+
+	public DocumentPostingStats getStats()
+	{
+		final long queuedCount;
+		final int activePartitionsCount;
+		synchronized (partitions)
+		{
+			queuedCount = this.queuedCount;
+			activePartitionsCount = partitions.size();
+		}
+
+		return DocumentPostingStats.builder()
+				.workerPoolSize(workerPoolSize)
+				.postedCount(postedCount.get())
+				.failedCount(failedCount.get())
+				.queuedCount(queuedCount)
+				.activePartitionsCount(activePartitionsCount)
+				.documentsPerSecond(throughputMeter.getDocumentsPerSecond())
+				.build();
+	}
+
+	/**
+	 * Waits for the already submitted documents to be posted and then stops the workers.
+	 *
+	 * @return true if all queued documents were posted within given timeout
+	 */
+	public boolean shutdownAndAwait(@NonNull final Duration timeout) throws InterruptedException
+	{
+		final long deadline = System.nanoTime() + timeout.toNanos();
+		// NOTE: a partition is removed only after its last request was posted
+		while (getActivePartitionsCount() > 0)
+		{
+			if (System.nanoTime() >= deadline)
+			{
+				return false;
+			}
+			Thread.sleep(10);
+		}
+
+		executor.shutdown();
+		return executor.awaitTermination(Math.max(deadline - System.nanoTime(), 0), TimeUnit.NANOSECONDS);
+	}
+
+	private int getActivePartitionsCount()
+	{
+		synchronized (partitions)
+		{
+			return partitions.size();
+		}
+	}
+
+	@ToString(of = "key")
+	private static final class Partition
+	{
+		private final DocumentPostingPartitionKey key;
+		private final ArrayDeque<QueuedRequest> queue = new ArrayDeque<>();
+		private boolean scheduled = false;
+
+		private Partition(@NonNull final DocumentPostingPartitionKey key)
+		{
+			this.key = key;
+		}
+	}
+
+	@ToString(of = "request")
+	private static final class QueuedRequest
+	{
+		private final DocumentPostRequest request;
+		private final CompletableFuture<Void> future = new CompletableFuture<>();
+
+		private QueuedRequest(@NonNull final DocumentPostRequest request)
+		{
+			this.request = request;
+		}
+	}
+
+	private static final class ThroughputMeter
+	{
+		private final long intervalNanos;
+		private final LongSupplier nanoClock;
+
+		private long intervalStartNanos;
+		private long countInInterval = 0;
+		private double documentsPerSecond = 0;
+
+		private ThroughputMeter(@NonNull final Duration interval, @NonNull final LongSupplier nanoClock)
+		{
+			this.intervalNanos = interval.toNanos();
+			this.nanoClock = nanoClock;
+			this.intervalStartNanos = nanoClock.getAsLong();
+		}
+
+		public synchronized void documentDone()
+		{
+			countInInterval++;
+
+			final long now = nanoClock.getAsLong();
+			final long elapsedNanos = now - intervalStartNanos;
+			if (elapsedNanos >= intervalNanos)
+			{
+				documentsPerSecond = countInInterval * (double)TimeUnit.SECONDS.toNanos(1) / elapsedNanos;
+				logger.info("Posted {} documents in {}ms ({} documents/sec)", countInInterval, TimeUnit.NANOSECONDS.toMillis(elapsedNanos), String.format("%.2f", documentsPerSecond));
+
+				intervalStartNanos = now;
+				countInInterval = 0;
+			}
+		}
+
+		public synchronized double getDocumentsPerSecond()
+		{
+			return documentsPerSecond;
+		}
+	}
+}
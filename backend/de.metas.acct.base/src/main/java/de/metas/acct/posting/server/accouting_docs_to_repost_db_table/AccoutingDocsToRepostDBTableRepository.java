@@ -2,6 +2,7 @@ package de.metas.acct.posting.server.accouting_docs_to_repost_db_table;
 
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 
@@ -10,6 +11,8 @@ import org.adempiere.service.ClientId;
 import org.adempiere.util.lang.impl.TableRecordReference;
 import org.compiere.util.DB;
 
+import com.google.common.collect.ImmutableSet;
+
 import de.metas.user.UserId;
 import de.metas.util.Check;
 import de.metas.util.StringUtils;
@@ -64,11 +67,22 @@ final class AccoutingDocsToRepostDBTableRepository
 				.build();
 	}
 
-	public void delete(@NonNull final AccountingDocToRepost docToRepost)
+	public void deleteAll(@NonNull final List<AccountingDocToRepost> docsToRepost)
 	{
+		if (docsToRepost.isEmpty())
+		{
+			return;
+		}
+
+		final List<Object> sqlParams = new ArrayList<>();
+		final String sqlWhere = DB.buildSqlList(
+				"SeqNo",
+				docsToRepost.stream().map(AccountingDocToRepost::getSeqNo).collect(ImmutableSet.toImmutableSet()),
+				sqlParams);
+
 		DB.executeUpdateEx(
-				"DELETE FROM " + Table_Name + " WHERE SeqNo=?",
-				new Object[] { docToRepost.getSeqNo() },
+				"DELETE FROM " + Table_Name + " WHERE " + sqlWhere,
+				sqlParams.toArray(),
 				ITrx.TRXNAME_None);
 	}
 }
@@ -43,7 +43,8 @@ public final class AccoutingDocsToRepostDBTableWatcher implements Runnable
 	private final IPostingService postingService;
 	private final AccoutingDocsToRepostDBTableRepository accoutingDocsToRepostDBTableRepository;
 
-	private static final int RETRIEVE_CHUNK_SIZE = 100;
+	private static final String SYSCONFIG_RetrieveChunkSize = "de.metas.acct.accounting_docs_to_repost.retrieveChunkSize";
+	private static final int DEFAULT_RetrieveChunkSize = 100;
 	private static final String SYSCONFIG_PollIntervalInSeconds = "de.metas.acct.accounting_docs_to_repost.pollIntervalInSeconds";
 	private static final Duration DEFAULT_PollInterval = Duration.ofSeconds(10);
 
@@ -87,10 +88,12 @@ public final class AccoutingDocsToRepostDBTableWatcher implements Runnable
 
 	private void enqueueAllForReposting()
 	{
+		final int retrieveChunkSize = getRetrieveChunkSize();
+
 		boolean tryAgain = false;
 		do
 		{
-			final List<AccountingDocToRepost> docsToRepost = accoutingDocsToRepostDBTableRepository.retrieve(RETRIEVE_CHUNK_SIZE);
+			final List<AccountingDocToRepost> docsToRepost = accoutingDocsToRepostDBTableRepository.retrieve(retrieveChunkSize);
 			if (docsToRepost.isEmpty())
 			{
 				return;
@@ -99,11 +102,18 @@ public final class AccoutingDocsToRepostDBTableWatcher implements Runnable
 			logger.info("Enqueueing for reposting {} documents: {}", docsToRepost.size(), docsToRepost);
 			final Stopwatch stopwatch = Stopwatch.createStarted();
 
-			for (final AccountingDocToRepost docToRepost : docsToRepost)
+			try
 			{
-				enqueueForReposting(docToRepost);
+				for (final AccountingDocToRepost docToRepost : docsToRepost)
+				{
+					enqueueForReposting(docToRepost);
+				}
 			}
-			tryAgain = docsToRepost.size() >= 100;
+			finally
+			{
+				accoutingDocsToRepostDBTableRepository.deleteAll(docsToRepost);
+			}
+			tryAgain = docsToRepost.size() >= retrieveChunkSize;
 
 			stopwatch.stop();
 			logger.info("Done enqueueing {} documents in {} (tryAgain={})", docsToRepost.size(), stopwatch, tryAgain);
@@ -128,10 +138,12 @@ public final class AccoutingDocsToRepostDBTableWatcher implements Runnable
 		{
 			logger.warn("Failed enqueueing {}", docToRepost, ex);
 		}
-		finally
-		{
-			accoutingDocsToRepostDBTableRepository.delete(docToRepost);
-		}
+	}
+
+	private int getRetrieveChunkSize()
+	{
+		final int retrieveChunkSize = sysConfigBL.getIntValue(SYSCONFIG_RetrieveChunkSize, -1);
+		return retrieveChunkSize > 0 ? retrieveChunkSize : DEFAULT_RetrieveChunkSize;
 	}
 
 	private Duration getPollInterval()
@@ -0,0 +1,73 @@
+DROP FUNCTION IF EXISTS "de_metas_acct".accounting_docs_to_repost_enqueue_dateacct_range(p_DateAcctFrom date, p_DateAcctTo date, p_AD_Client_ID numeric, p_ReorderDocs char(1));
+
+/*
+ * Unposts all processed documents with DateAcct between the given dates (inclusive) and enqueues them for reposting.
+ * Compared to calling fact_acct_unpost for each document, this works set based, one table at a time.
+ * The accounting service then posts the enqueued documents, in parallel if de.metas.acct.posting.workerPoolSize > 1.
+ *
+ * Documents which are currently processing are skipped.
+ */
+CREATE OR REPLACE FUNCTION "de_metas_acct".accounting_docs_to_repost_enqueue_dateacct_range(p_DateAcctFrom date,
+                                                                                          p_DateAcctTo   date,
+                                                                                          p_AD_Client_ID numeric = 1000000,
+                                                                                          p_ReorderDocs  char(1) = 'Y')
+    RETURNS text
+AS
+$BODY$
+DECLARE
+    v_table        record;
+    v_whereClause  text;
+    rowcount       integer;
+    v_countTotal   integer := 0;
+    v_result       text    := '';
+BEGIN
+    IF (p_DateAcctFrom IS NULL OR p_DateAcctTo IS NULL OR p_DateAcctFrom > p_DateAcctTo) THEN
+        RAISE EXCEPTION 'Invalid DateAcct range: % - %', p_DateAcctFrom, p_DateAcctTo;
+    END IF;
+
+    FOR v_table IN
+        SELECT t.AD_Table_ID, t.TableName
+        FROM AD_Table t
+        WHERE t.IsView = 'N'
+          AND t.IsActive = 'Y'
+          AND EXISTS(SELECT 1 FROM AD_Column c WHERE c.AD_Table_ID = t.AD_Table_ID AND c.ColumnName = 'Posted' AND c.ColumnSQL IS NULL)
+          AND EXISTS(SELECT 1 FROM AD_Column c WHERE c.AD_Table_ID = t.AD_Table_ID AND c.ColumnName = 'DateAcct' AND c.ColumnSQL IS NULL)
+          AND EXISTS(SELECT 1 FROM AD_Column c WHERE c.AD_Table_ID = t.AD_Table_ID AND c.ColumnName = 'Processing' AND c.ColumnSQL IS NULL)
+          AND EXISTS(SELECT 1 FROM AD_Column c WHERE c.AD_Table_ID = t.AD_Table_ID AND c.ColumnName = 'Processed' AND c.ColumnSQL IS NULL)
+        ORDER BY t.TableName
+        LOOP
+            v_whereClause := ' WHERE AD_Client_ID=' || p_AD_Client_ID
+                                 || ' AND DateAcct BETWEEN ' || quote_literal(p_DateAcctFrom) || ' AND ' || quote_literal(p_DateAcctTo)
+                                 || ' AND Processed=''Y'''
+                                 || ' AND COALESCE(Processing, ''N'')=''N''';
+
+            EXECUTE 'DELETE FROM Fact_Acct fa WHERE fa.AD_Table_ID=' || v_table.AD_Table_ID
+                        || ' AND fa.Record_ID IN (SELECT ' || v_table.TableName || '_ID FROM ' || v_table.TableName || v_whereClause || ')';
+
+            EXECUTE 'UPDATE ' || v_table.TableName || ' SET Posted=''N''' || v_whereClause;
+
+            EXECUTE 'INSERT INTO "de_metas_acct".accounting_docs_to_repost (tablename, record_id, ad_client_id, force)'
+                        || ' SELECT ' || quote_literal(v_table.TableName) || ', ' || v_table.TableName || '_ID, AD_Client_ID, ''Y'''
+                        || ' FROM ' || v_table.TableName || v_whereClause
+                        || ' ORDER BY DateAcct, ' || v_table.TableName || '_ID';
+            GET DIAGNOSTICS rowcount = ROW_COUNT;
+
+            IF (rowcount > 0) THEN
+                v_result := v_result || v_table.TableName || ': ' || rowcount || '; ';
+                v_countTotal := v_countTotal + rowcount;
+                RAISE NOTICE '%: % document(s) unposted and enqueued', v_table.TableName, rowcount;
+            END IF;
+        END LOOP;
+
+    v_result := v_countTotal || ' document(s) unposted and enqueued; ' || v_result;
+
+    IF (p_ReorderDocs = 'Y') THEN
+        PERFORM "de_metas_acct".accounting_docs_to_repost_reorder();
+        v_result := v_result || 'reordered enqueued docs';
+    END IF;
+
+    RETURN v_result;
+END;
+$BODY$
+    LANGUAGE plpgsql VOLATILE
+                     COST 100;
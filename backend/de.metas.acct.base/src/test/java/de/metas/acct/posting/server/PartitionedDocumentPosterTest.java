@@ -0,0 +1,181 @@
+package de.metas.acct.posting.server;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import org.adempiere.service.ClientId;
+import org.adempiere.util.lang.impl.TableRecordReference;
+import org.junit.jupiter.api.Test;
+
+import de.metas.acct.posting.DocumentPostRequest;
+import de.metas.organization.OrgId;
+
+/*
+ * #%L
+ * de.metas.acct.base
+ * %%
+ * Copyright (C) 2020 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+public class PartitionedDocumentPosterTest
+{
+	private static final ClientId CLIENT_ID = ClientId.ofRepoId(1000000);
+
+	/** For this test, we consider the org to be record ID / 1000 */
+	private static DocumentPostingPartitionKey extractPartitionKey(final DocumentPostRequest request)
+	{
+		return DocumentPostingPartitionKey.of(request.getClientId(), OrgId.ofRepoId(request.getRecord().getRecord_ID() / 1000));
+	}
+
+	private static DocumentPostRequest request(final int recordId)
+	{
+		return DocumentPostRequest.builder()
+				.record(TableRecordReference.of("C_Invoice", recordId))
+				.clientId(CLIENT_ID)
+				.build();
+	}
+
+	@Test
+	public void sameOrg_postedInSubmitOrder() throws Exception
+	{
+		final List<Integer> postedRecordIds = Collections.synchronizedList(new ArrayList<>());
+		final PartitionedDocumentPoster poster = PartitionedDocumentPoster.builder()
+				.workerPoolSize(4)
+				.maxPostsPerTurn(3)
+				.partitionKeyFunction(PartitionedDocumentPosterTest::extractPartitionKey)
+				.postingAction(request -> postedRecordIds.add(request.getRecord().getRecord_ID()))
+				.build();
+
+		for (int i = 1; i <= 100; i++)
+		{
+			poster.submit(request(1000 + i));
+			poster.submit(request(2000 + i));
+		}
+
+		assertThat(poster.shutdownAndAwait(Duration.ofSeconds(10))).isTrue();
+
+		assertThat(postedRecordIds).hasSize(200);
+		assertThat(postedRecordIds.stream().filter(id -> id < 2000).collect(Collectors.toList())).isSorted();
+		assertThat(postedRecordIds.stream().filter(id -> id >= 2000).collect(Collectors.toList())).isSorted();
+
+		final DocumentPostingStats stats = poster.getStats();
+		assertThat(stats.getPostedCount()).isEqualTo(200);
+		assertThat(stats.getFailedCount()).isZero();
+		assertThat(stats.getQueuedCount()).isZero();
+		assertThat(stats.getActivePartitionsCount()).isZero();
+	}
+
+	@Test
+	public void differentOrgs_postedInParallel() throws Exception
+	{
+		// each posting waits until the other org's posting is running, so this can only finish if they run in parallel
+		final CountDownLatch bothRunning = new CountDownLatch(2);
+		final PartitionedDocumentPoster poster = PartitionedDocumentPoster.builder()
+				.workerPoolSize(2)
+				.partitionKeyFunction(PartitionedDocumentPosterTest::extractPartitionKey)
+				.postingAction(request -> {
+					bothRunning.countDown();
+					try
+					{
+						bothRunning.await(10, TimeUnit.SECONDS);
+					}
+					catch (final InterruptedException ex)
+					{
+						Thread.currentThread().interrupt();
+					}
+				})
+				.build();
+
+		poster.submit(request(1001));
+		poster.submit(request(2001));
+
+		assertThat(bothRunning.await(10, TimeUnit.SECONDS)).isTrue();
+		assertThat(poster.shutdownAndAwait(Duration.ofSeconds(10))).isTrue();
+	}
+
+	@Test
+	public void sameOrg_neverPostedConcurrently() throws Exception
+	{
+		final ConcurrentHashMap<OrgId, AtomicInteger> runningByOrg = new ConcurrentHashMap<>();
+		final AtomicInteger maxRunningPerOrg = new AtomicInteger();
+
+		final PartitionedDocumentPoster poster = PartitionedDocumentPoster.builder()
+				.workerPoolSize(8)
+				.maxPostsPerTurn(1)
+				.partitionKeyFunction(PartitionedDocumentPosterTest::extractPartitionKey)
+				.postingAction(request -> {
+					final AtomicInteger running = runningByOrg.computeIfAbsent(extractPartitionKey(request).getOrgId(), orgId -> new AtomicInteger());
+					maxRunningPerOrg.accumulateAndGet(running.incrementAndGet(), Math::max);
+					Thread.yield();
+					running.decrementAndGet();
+				})
+				.build();
+
+		for (int i = 1; i <= 50; i++)
+		{
+			for (int org = 1; org <= 5; org++)
+			{
+				poster.submit(request(org * 1000 + i));
+			}
+		}
+
+		assertThat(poster.shutdownAndAwait(Duration.ofSeconds(10))).isTrue();
+		assertThat(maxRunningPerOrg.get()).isEqualTo(1);
+		assertThat(poster.getStats().getPostedCount()).isEqualTo(250);
+	}
+
+	@Test
+	public void failedPosting_isCountedAndDoesNotStopThePartition() throws Exception
+	{
+		final List<Integer> postedRecordIds = Collections.synchronizedList(new ArrayList<>());
+		final PartitionedDocumentPoster poster = PartitionedDocumentPoster.builder()
+				.workerPoolSize(2)
+				.partitionKeyFunction(PartitionedDocumentPosterTest::extractPartitionKey)
+				.postingAction(request -> {
+					final int recordId = request.getRecord().getRecord_ID();
+					if (recordId == 1002)
+					{
+						throw new RuntimeException("posting failed");
+					}
+					postedRecordIds.add(recordId);
+				})
+				.build();
+
+		final CompletableFuture<Void> future1 = poster.submit(request(1001));
+		final CompletableFuture<Void> future2 = poster.submit(request(1002));
+		poster.submit(request(1003));
+
+		assertThat(poster.shutdownAndAwait(Duration.ofSeconds(10))).isTrue();
+		assertThat(postedRecordIds).containsExactly(1001, 1003);
+		assertThat(future1.isDone()).isTrue();
+		assertThat(future1.isCompletedExceptionally()).isFalse();
+		assertThat(future2.isCompletedExceptionally()).isTrue();
+		assertThat(poster.getStats().getPostedCount()).isEqualTo(2);
+		assertThat(poster.getStats().getFailedCount()).isEqualTo(1);
+	}
+}
@@ -49,6 +49,8 @@ import org.adempiere.model.InterfaceWrapperHelper;
 import org.adempiere.util.text.TokenizedStringBuilder;
 import org.compiere.Adempiere;
 import org.compiere.model.IQuery;
+import org.compiere.model.I_AD_Role_Record_Access_Config;
+import org.compiere.model.I_AD_UserGroup_User_Assign;
 import org.compiere.model.PO;
 import org.compiere.model.POInfo;
 import org.compiere.model.POResultSet;
@@ -61,6 +63,8 @@ import com.google.common.base.Joiner;
 import com.google.common.base.MoreObjects;
 import com.google.common.collect.ImmutableList;
 
+import de.metas.cache.CCache;
+import de.metas.cache.CCache.CacheMapType;
 import de.metas.dao.selection.pagination.PaginationService;
 import de.metas.dao.selection.pagination.QueryResultPage;
 import de.metas.logging.LogManager;
@@ -69,12 +73,15 @@ import de.metas.money.Money;
 import de.metas.process.IADPInstanceDAO;
 import de.metas.process.PInstanceId;
 import de.metas.security.IUserRolePermissions;
+import de.metas.security.IUserRolePermissionsDAO;
+import de.metas.security.UserRolePermissionsKey;
 import de.metas.security.permissions.Access;
 import de.metas.util.Check;
 import de.metas.util.Services;
 import de.metas.util.collections.IteratorUtils;
 import de.metas.common.util.CoalesceUtil;
 import lombok.NonNull;
+import lombok.Value;
 
 /**
  * @author Low Heng Sin
@@ -101,6 +108,24 @@ public class TypedSqlQuery<T> extends AbstractTypedQuery<T>
 {
 	private static final Logger log = LogManager.getLogger(TypedSqlQuery.class);
 
+	/**
+	 * Caches the SQL with the security where clause added, see {@link #addAccessSQL(String)}.
+	 * <p>
+	 * The user group assignments and record access configs are contributing to the access SQL, so we also reset on them.
+	 * Changes of the role itself are covered because the key contains the {@link IUserRolePermissionsDAO#getCacheVersion()}.
+	 * <p>
+	 * The entries are weighed by the length of the SQL and of the SQL with access, because that's where the memory goes.
+	 */
+	private static final CCache<SqlWithAccessKey, String> sqlWithAccessCache = CCache.<SqlWithAccessKey, String> builder()
+			.cacheName("TypedSqlQuery.sqlWithAccess")
+			.tableName(I_AD_UserGroup_User_Assign.Table_Name)
+			.additionalTableNameToResetFor(I_AD_Role_Record_Access_Config.Table_Name)
+			.cacheMapType(CacheMapType.TinyLFU)
+			.maximumWeightInBytes(16L * 1024 * 1024)
+			.weigher((key, sqlWithAccess) -> 2 * (key.getSql().length() + sqlWithAccess.length()))
+			.expireMinutes(CCache.EXPIREMINUTES_Never)
+			.build();
+
 	private final Properties ctx;
 	private final String tableName;
 	private String sqlFrom = null;
@@ -1250,8 +1275,7 @@ public class TypedSqlQuery<T> extends AbstractTypedQuery<T>
 		String sql = sqlBuffer.toString();
 		if (requiredAccess != null)
 		{
-			final IUserRolePermissions role = Env.getUserRolePermissions(this.ctx);
-			sql = role.addAccessSQL(sql, getTableName(), IUserRolePermissions.SQL_FULLYQUALIFIED, requiredAccess);
+			sql = addAccessSQL(sql);
 		}
 
 		// metas: begin
@@ -1280,6 +1304,24 @@ public class TypedSqlQuery<T> extends AbstractTypedQuery<T>
 		return sql;
 	}
 
+	/**
+	 * Adds the security where clause to given SQL.
+	 * <p>
+	 * The SQL which we get here contains only {@code ?} placeholders instead of the actual parameter values,
+	 * so it's describing the structural shape of the query. Parsing it and building the access SQL is expensive
+	 * and the outcome is the same for each execution with the same role permissions, so we cache it.
+	 */
+	private String addAccessSQL(@NonNull final String sql)
+	{
+		final UserRolePermissionsKey permissionsKey = UserRolePermissionsKey.fromContext(this.ctx);
+		final long permissionsVersion = Services.get(IUserRolePermissionsDAO.class).getCacheVersion();
+		final String tableName = getTableName();
+		final Access access = requiredAccess;
+
+		final SqlWithAccessKey key = new SqlWithAccessKey(permissionsKey.toPermissionsKeyString(), permissionsVersion, sql, tableName, access);
+		return sqlWithAccessCache.getOrLoad(key, () -> Env.getUserRolePermissions(permissionsKey).addAccessSQL(sql, tableName, IUserRolePermissions.SQL_FULLYQUALIFIED, access));
+	}
+
 	private final ResultSet createResultSet(final PreparedStatement pstmt) throws SQLException
 	{
 		final List<Object> parametersEffective = getParametersEffective();
@@ -1947,4 +1989,20 @@ public class TypedSqlQuery<T> extends AbstractTypedQuery<T>
 		final int countInsert = DB.executeUpdateEx(sql, sqlParams.toArray(), getTrxName());
 		return QueryInsertExecutorResult.of(countInsert, insertSelectionId);
 	}
+
+	@Value
+	private static class SqlWithAccessKey
+	{
+		/** see {@link UserRolePermissionsKey#toPermissionsKeyString()} */
+		@NonNull
+		String permissionsKey;
+		/** see {@link IUserRolePermissionsDAO#getCacheVersion()} */
+		long permissionsVersion;
+		@NonNull
+		String sql;
+		@NonNull
+		String tableName;
+		@NonNull
+		Access access;
+	}
 }
@@ -75,6 +75,20 @@ public class DB_PostgreSQL implements AdempiereDatabase
 	private static final String CONFIG_UnreturnedConnectionTimeoutMillis = "db.postgresql.unreturnedConnectionTimeoutMillis";
 	private static final Duration CONFIG_UnreturnedConnectionTimeoutMillis_DefaultValue = Duration.ofHours(2);
 
+	/**
+	 * How many executions of the same SQL on one connection until the driver switches to a named server-side prepared statement.
+	 * Our SQLs are using {@code ?} placeholders, so repeated DAO lookups end up on the same server-side statement.
+	 */
+	private static final String CONFIG_PrepareThreshold = "db.postgresql.prepareThreshold";
+	private static final int CONFIG_PrepareThreshold_DefaultValue = 5;
+
+	/** How many prepared SQLs the driver keeps per connection; we have more distinct DAO queries than the driver's default of 256. */
+	private static final String CONFIG_PreparedStatementCacheQueries = "db.postgresql.preparedStatementCacheQueries";
+	private static final int CONFIG_PreparedStatementCacheQueries_DefaultValue = 1024;
+
+	private static final String CONFIG_PreparedStatementCacheSizeMiB = "db.postgresql.preparedStatementCacheSizeMiB";
+	private static final int CONFIG_PreparedStatementCacheSizeMiB_DefaultValue = 10;
+
 	/**
 	 * Statement Converter for external use (i.e. returned by {@link #getConvert()}.
 	 */
@@ -262,7 +276,10 @@ public class DB_PostgreSQL implements AdempiereDatabase
 		final StringBuilder sb = new StringBuilder("jdbc:postgresql://")
 				.append(dbHost).append(":").append(dbPort)
 				.append("/").append(dbName)
-				.append("?encoding=UNICODE");
+				.append("?encoding=UNICODE")
+				.append("&prepareThreshold=").append(SystemUtils.getSystemProperty(CONFIG_PrepareThreshold, CONFIG_PrepareThreshold_DefaultValue))
+				.append("&preparedStatementCacheQueries=").append(SystemUtils.getSystemProperty(CONFIG_PreparedStatementCacheQueries, CONFIG_PreparedStatementCacheQueries_DefaultValue))
+				.append("&preparedStatementCacheSizeMiB=").append(SystemUtils.getSystemProperty(CONFIG_PreparedStatementCacheSizeMiB, CONFIG_PreparedStatementCacheSizeMiB_DefaultValue));
 		return sb.toString();
 	}	// getConnectionURL
 
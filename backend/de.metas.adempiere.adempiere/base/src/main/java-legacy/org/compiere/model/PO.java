@@ -251,10 +251,7 @@ public abstract class PO
 		}
 		m_KeyColumns = p_info.getKeyColumnNamesAsArray();
 		//
-		final int size = p_info.getColumnCount();
-		m_oldValues = new Object[size];
-		m_newValues = new Object[size];
-		m_valueLoaded = new boolean[size]; // metas
+		m_values = new POValues(p_info.getValuesLayout());
 
 		if (rs != null)
 		{
@@ -299,12 +296,8 @@ public abstract class PO
 	/** Model Info */
 	private volatile POInfo p_info = null;
 
-	/** Original Values */
-	private Object[] m_oldValues = null;
-	/** New Values */
-	private Object[] m_newValues = null;
-	/** Flag to mark that a value was loaded */
-	private boolean[] m_valueLoaded = null;
+	/** Original and New Values, including the flags which values were loaded */
+	private POValues m_values = null;
 	/** Counts how many times this object was loaded/reloaded */
 	private int m_loadCount = 0;
 
@@ -635,22 +628,23 @@ public abstract class PO
 			log.warn("Index invalid - {}", index, new Exception()); // metas: tsa: added exeption to trace it
 			return null;
 		}
-		if (m_newValues[index] != null)
+		final Object newValue = m_values.getNewValue(index);
+		if (newValue != null)
 		{
-			if (m_newValues[index].equals(Null.NULL))
+			if (newValue.equals(Null.NULL))
 			{
 				return null;
 			}
-			return m_newValues[index];
+			return newValue;
 		}
 
 		loadIfStalled(index); // metas: 01537
-		if (!m_valueLoaded[index])
+		if (!m_values.isLoaded(index))
 		{
 			loadColumn(index);
 		}
 
-		return m_oldValues[index];
+		return m_values.getOldValue(index);
 	}   // get_Value
 
 	/**
@@ -787,7 +781,7 @@ public abstract class PO
 			return null;
 		}
 		loadIfStalled(index); // metas: 01537
-		return m_oldValues[index];
+		return m_values.getOldValue(index);
 	}   // get_ValueOld
 
 	/**
@@ -876,18 +870,14 @@ public abstract class PO
 		}
 		// metas: end
 
-		if (m_newValues[index] == null)
+		final Object newValue = m_values.getNewValue(index);
+		if (newValue == null)
 		{
 			return false;
 		}
 
 		// metas: normalize null values before comparing them (04219)
-		Object newValue = m_newValues[index];
-		if (newValue == null)
-		{
-			newValue = Null.NULL;
-		}
-		Object oldValue = m_oldValues[index];
+		Object oldValue = m_values.getOldValue(index);
 		if (oldValue == null)
 		{
 			oldValue = Null.NULL;
@@ -933,20 +923,20 @@ public abstract class PO
 		//
 		// Check if object is stalled
 		// In case is stalled then there is no change so we return null
-		// because it's the same as having m_newValues[index] == null
+		// because it's the same as having no new value
 		if (m_stale)  // metas: 01537
 		{
 			return null;
 		}
 
-		final Object nValue = m_newValues[index];
+		final Object nValue = m_values.getNewValue(index);
 		// No new Value or NULL
 		if (nValue == null || nValue == Null.NULL)
 		{
 			return null;
 		}
 		//
-		final Object oValue = m_oldValues[index];
+		final Object oValue = m_values.getOldValue(index);
 		if (oValue == null || oValue == Null.NULL)
 		{
 			return nValue;
@@ -1069,9 +1059,9 @@ public abstract class PO
 				// Value was not changed
 
 				// Don't return here, but allow actually setting the value
-				// because it could be that someone changed the "m_newValues" by using set_ValueNoCheck()
+				// because it could be that someone changed the new values by using set_ValueNoCheck()
 				// ...but we can do a quick look-ahead and see if that's the case
-				if (Objects.equals(m_newValues[index], valueToUse))
+				if (Objects.equals(m_values.getNewValue(index), valueToUse))
 				{
 					return true;
 				}
@@ -1109,7 +1099,7 @@ public abstract class PO
 		//
 		// Load record if stale (01537)
 		// NOTE: we are calling it with columnIndex=-1 because we want to make sure everything is loaded and m_stale is set to false
-		// Else when load(ResultSet) is called, m_newValues gets reset
+		// Else when load(ResultSet) is called, the new values are reset
 		loadIfStalled(-1);
 
 		if (valueToUse == null)
@@ -1125,7 +1115,7 @@ public abstract class PO
 					throw new IllegalArgumentException(ColumnName + " is mandatory.");
 				}
 			}
-			m_newValues[index] = Null.NULL;          // correct
+			m_values.setNewValue(index, Null.NULL);          // correct
 			log.trace("{} = null", ColumnName);
 		}
 		else
@@ -1134,18 +1124,18 @@ public abstract class PO
 			if (valueToUse.getClass().equals(p_info.getColumnClass(index))
 					|| p_info.getColumnClass(index) == Object.class)
 			{
-				m_newValues[index] = valueToUse;     // correct
+				m_values.setNewValue(index, valueToUse);     // correct
 			}
 			// Integer can be set as BigDecimal
 			else if (valueToUse.getClass() == BigDecimal.class
 					&& p_info.getColumnClass(index) == Integer.class)
 			{
-				m_newValues[index] = ((BigDecimal)valueToUse).intValue();
+				m_values.setNewValue(index, ((BigDecimal)valueToUse).intValue());
 			}
 			// Set Boolean
 			else if (p_info.getColumnClass(index) == Boolean.class)
 			{
-				m_newValues[index] = StringUtils.toBoolean(valueToUse);
+				m_values.setNewValue(index, StringUtils.toBoolean(valueToUse));
 			}
 			// added by vpj-cd
 			// To solve BUG [ 1618423 ] Set Project Type button in Project window throws warning
@@ -1154,14 +1144,14 @@ public abstract class PO
 			else if (valueToUse.getClass() == Integer.class
 					&& p_info.getColumnClass(index) == String.class)
 			{
-				m_newValues[index] = valueToUse;
+				m_values.setNewValue(index, valueToUse);
 			}
 			else if (valueToUse.getClass() == String.class
 					&& p_info.getColumnClass(index) == Integer.class)
 			{
 				try
 				{
-					m_newValues[index] = Integer.parseInt((String)valueToUse);
+					m_values.setNewValue(index, Integer.parseInt((String)valueToUse));
 				}
 				catch (final NumberFormatException e)
 				{
@@ -1194,7 +1184,7 @@ public abstract class PO
 				{
 					log.warn(ColumnName + " - Value too long - truncated to length=" + length
 							+ ": " + (p_info.isEncrypted(index) ? "(encrypted)" : stringValue));
-					m_newValues[index] = stringValue.substring(0, length);
+					m_values.setNewValue(index, stringValue.substring(0, length));
 				}
 			}
 			// Validate reference list [1762461]
@@ -1216,10 +1206,10 @@ public abstract class PO
 			}
 			if (log.isTraceEnabled())
 			{
-				log.trace("{} = {}  (OldValue={})", ColumnName, m_newValues[index], m_oldValues[index]);
+				log.trace("{} = {}  (OldValue={})", ColumnName, m_values.getNewValue(index), m_values.getOldValue(index));
 			}
 		}
-		set_Keys(ColumnName, m_newValues[index]);
+		set_Keys(ColumnName, m_values.getNewValue(index));
 		return true;
 	}   // setValue
 
@@ -1251,11 +1241,11 @@ public abstract class PO
 		//
 		// Load record if stale (01537)
 		// NOTE: we are calling it with columnIndex=-1 because we want to make sure everything is loaded and m_stale is set to false
-		// Else when load(ResultSet) is called, m_newValues gets reset
+		// Else when load(ResultSet) is called, the new values are reset
 		loadIfStalled(-1);
 		if (valueToUse == null || valueToUse == Null.NULL)
 		{
-			m_newValues[index] = Null.NULL;		// write direct
+			m_values.setNewValue(index, Null.NULL);		// write direct
 		}
 		else
 		{
@@ -1263,18 +1253,18 @@ public abstract class PO
 			if (valueToUse.getClass().equals(p_info.getColumnClass(index))
 					|| p_info.getColumnClass(index) == Object.class)
 			{
-				m_newValues[index] = valueToUse;     // correct
+				m_values.setNewValue(index, valueToUse);     // correct
 			}
 			// Integer can be set as BigDecimal
 			else if (valueToUse.getClass() == BigDecimal.class
 					&& p_info.getColumnClass(index) == Integer.class)
 			{
-				m_newValues[index] = ((BigDecimal)valueToUse).intValue();
+				m_values.setNewValue(index, ((BigDecimal)valueToUse).intValue());
 			}
 			// Set Boolean
 			else if (p_info.getColumnClass(index) == Boolean.class)
 			{
-				m_newValues[index] = StringUtils.toBoolean(valueToUse);
+				m_values.setNewValue(index, StringUtils.toBoolean(valueToUse));
 			}
 			else if (p_info.getColumnClass(index) == Integer.class
 					&& valueToUse.getClass() == String.class)
@@ -1282,14 +1272,14 @@ public abstract class PO
 				try
 				{
 					final int intValue = Integer.parseInt((String)valueToUse);
-					m_newValues[index] = Integer.valueOf(intValue);
+					m_values.setNewValue(index, Integer.valueOf(intValue));
 				}
 				catch (final Exception e)
 				{
 					log.warn(get_ColumnName(index)
 							+ " - Class invalid(3): " + valueToUse.getClass().toString()
 							+ ", Should be " + p_info.getColumnClass(index).toString() + ": " + valueToUse, new Exception("stacktrace"));
-					m_newValues[index] = null;
+					m_values.setNewValue(index, null);
 				}
 			}
 			else
@@ -1297,7 +1287,7 @@ public abstract class PO
 				log.warn(get_ColumnName(index)
 						+ " - Class invalid(4): " + valueToUse.getClass().toString()
 						+ ", Should be " + p_info.getColumnClass(index).toString() + ": " + valueToUse, new Exception("stacktrace"));
-				m_newValues[index] = valueToUse;     // correct
+				m_values.setNewValue(index, valueToUse);     // correct
 			}
 
 			//
@@ -1315,17 +1305,17 @@ public abstract class PO
 				if (stringValue.length() > length && length > 0)
 				{
 					log.warn(get_ColumnName(index) + " - Value too long - truncated to length=" + length);
-					m_newValues[index] = stringValue.substring(0, length);
+					m_values.setNewValue(index, stringValue.substring(0, length));
 				}
 			}
 		}
 
 		if (log.isTraceEnabled())
 		{
-			log.trace(get_ColumnName(index) + " = " + m_newValues[index] + " (" + (m_newValues[index] == null ? "-" : m_newValues[index].getClass().getName()) + ")");
+			log.trace(get_ColumnName(index) + " = " + m_values.getNewValue(index) + " (" + (m_values.getNewValue(index) == null ? "-" : m_values.getNewValue(index).getClass().getName()) + ")");
 		}
 
-		set_Keys(get_ColumnName(index), m_newValues[index]);
+		set_Keys(get_ColumnName(index), m_values.getNewValue(index));
 		return true;
 	}   // set_ValueNoCheck
 
@@ -1599,7 +1589,7 @@ public abstract class PO
 		// Different Classes
 		if (from.getClass() != to.getClass())
 		{
-			for (int fromColumnIndex = 0; fromColumnIndex < from.m_oldValues.length; fromColumnIndex++)
+			for (int fromColumnIndex = 0; fromColumnIndex < from.m_values.size(); fromColumnIndex++)
 			{
 				final String fromColumnName = from.p_info.getColumnName(fromColumnIndex); // metas: us215
 				if (from.p_info.isVirtualColumn(fromColumnIndex)
@@ -1610,7 +1600,7 @@ public abstract class PO
 				// metas: begin: us215
 				else if (honorIsCalculated && from.p_info.isCalculated(fromColumnIndex))
 				{
-					for (int toColumnIndex = 0; toColumnIndex < to.m_oldValues.length; toColumnIndex++)
+					for (int toColumnIndex = 0; toColumnIndex < to.m_values.size(); toColumnIndex++)
 					{
 						final String toColumnName = to.p_info.getColumnName(toColumnIndex);
 						if (toColumnName.equals(fromColumnName))
@@ -1618,7 +1608,7 @@ public abstract class PO
 							if (to.getDynAttribute(PO.DYNATTR_CopyRecordSupport) != null)
 							{
 								final CopyRecordSupport cps = (CopyRecordSupport)to.getDynAttribute(PO.DYNATTR_CopyRecordSupport);
-								to.m_newValues[toColumnIndex] = cps.getValueToCopy(to, from, fromColumnName);
+								to.m_values.setNewValue(toColumnIndex, cps.getValueToCopy(to, from, fromColumnName));
 							}
 							break;
 						}
@@ -1642,12 +1632,12 @@ public abstract class PO
 				}
 				else
 				{
-					for (int toColumnIndex = 0; toColumnIndex < to.m_oldValues.length; toColumnIndex++)
+					for (int toColumnIndex = 0; toColumnIndex < to.m_values.size(); toColumnIndex++)
 					{
 						final String toColumnName = to.p_info.getColumnName(toColumnIndex);
 						if (toColumnName.equals(fromColumnName))
 						{
-							to.m_newValues[toColumnIndex] = from.m_oldValues[fromColumnIndex];
+							to.m_values.setNewValue(toColumnIndex, from.m_values.getOldValue(fromColumnIndex));
 							break;
 						}
 					}
@@ -1658,7 +1648,7 @@ public abstract class PO
 		// Same class
 		else
 		{
-			for (int i = 0; i < from.m_oldValues.length; i++)
+			for (int i = 0; i < from.m_values.size(); i++)
 			{
 				final String colName = from.p_info.getColumnName(i); // metas
 				if (from.p_info.isVirtualColumn(i)
@@ -1671,7 +1661,7 @@ public abstract class PO
 					final CopyRecordSupport cps = (CopyRecordSupport)to.getDynAttribute(DYNATTR_CopyRecordSupport);
 					if (cps != null)
 					{
-						to.m_newValues[i] = cps.getValueToCopy(to, from, colName);
+						to.m_values.setNewValue(i, cps.getValueToCopy(to, from, colName));
 					}
 					else
 					{
@@ -1697,11 +1687,11 @@ public abstract class PO
 				}
 				else
 				{
-					to.m_newValues[i] = from.m_oldValues[i];
+					to.m_values.setNewValue(i, from.m_values.getOldValue(i));
 					// metas: tsa: begin: when dealing with new POs copy their new values because old values are all null
 					if (from.is_new())
 					{
-						to.m_newValues[i] = from.m_newValues[i];
+						to.m_values.setNewValue(i, from.m_values.getNewValue(i));
 					}
 					// metas: tsa: Copy cached objects
 					// NOTE: is is important because sometimes we have set a new object which is present in PO cache but it's ID is still zero.
@@ -1834,7 +1824,7 @@ public abstract class PO
 
 			m_createNew = false;
 			// reset new values
-			m_newValues = new Object[columnsCount];
+			m_values.resetNewValues();
 
 			//
 			// Set Staled flag to false because we just loaded the object
@@ -1911,47 +1901,47 @@ public abstract class PO
 		{
 			if (clazz == Integer.class)
 			{
-				m_oldValues[index] = decrypt(index, rs.getInt(columnName));
+				m_values.setOldValue(index, decrypt(index, rs.getInt(columnName)));
 			}
 			else if (clazz == BigDecimal.class)
 			{
-				m_oldValues[index] = decrypt(index, rs.getBigDecimal(columnName));
+				m_values.setOldValue(index, decrypt(index, rs.getBigDecimal(columnName)));
 			}
 			else if (clazz == Boolean.class)
 			{
-				m_oldValues[index] = StringUtils.toBoolean(decrypt(index, rs.getString(columnName)));
+				m_values.setOldValue(index, StringUtils.toBoolean(decrypt(index, rs.getString(columnName))));
 			}
 			else if (clazz == Timestamp.class)
 			{
-				m_oldValues[index] = decrypt(index, rs.getTimestamp(columnName));
+				m_values.setOldValue(index, decrypt(index, rs.getTimestamp(columnName)));
 			}
 			else if (DisplayType.isLOB(dt))
 			{
-				m_oldValues[index] = get_LOB(rs.getObject(columnName));
+				m_values.setOldValue(index, get_LOB(rs.getObject(columnName)));
 			}
 			else if (clazz == String.class)
 			{
-				m_oldValues[index] = decrypt(index, rs.getString(columnName));
+				m_values.setOldValue(index, decrypt(index, rs.getString(columnName)));
 			}
 			else
 			{
-				m_oldValues[index] = loadSpecial(rs, index);
+				m_values.setOldValue(index, loadSpecial(rs, index));
 			}
 
 			//
 			// If the column's value was NULL, set null to our old values array.
 			// NOTE: business logic like org.adempiere.ad.dao.impl.GuaranteedPOBufferedIterator.isValidModel(ET) is rellying on this.
-			if (rs.wasNull() && m_oldValues[index] != null)
+			if (rs.wasNull() && m_values.getOldValue(index) != null)
 			{
-				m_oldValues[index] = null;
+				m_values.setOldValue(index, null);
 			}
 
-			m_newValues[index] = null; // reset new value
-			m_valueLoaded[index] = true; // mark the column as loaded
+			m_values.setNewValue(index, null); // reset new value
+			m_values.setLoaded(index, true); // mark the column as loaded
 			//
 			if (log.isTraceEnabled())
 			{
-				log.trace(String.valueOf(index) + ": " + p_info.getColumnName(index) + "(" + p_info.getColumnClass(index) + ") = " + m_oldValues[index]);
+				log.trace(String.valueOf(index) + ": " + p_info.getColumnName(index) + "(" + p_info.getColumnClass(index) + ") = " + m_values.getOldValue(index));
 			}
 		}
 		catch (final SQLException e)
@@ -2034,35 +2024,35 @@ public abstract class PO
 			{
 				if (clazz == Integer.class)
 				{
-					m_oldValues[index] = Integer.parseInt(value);
+					m_values.setOldValue(index, Integer.parseInt(value));
 				}
 				else if (clazz == BigDecimal.class)
 				{
-					m_oldValues[index] = new BigDecimal(value);
+					m_values.setOldValue(index, new BigDecimal(value));
 				}
 				else if (clazz == Boolean.class)
 				{
-					m_oldValues[index] = StringUtils.toBoolean(value);
+					m_values.setOldValue(index, StringUtils.toBoolean(value));
 				}
 				else if (clazz == Timestamp.class)
 				{
-					m_oldValues[index] = Timestamp.valueOf(value);
+					m_values.setOldValue(index, Timestamp.valueOf(value));
 				}
 				else if (DisplayType.isLOB(dt))
 				{
-					m_oldValues[index] = null;	// get_LOB (rs.getObject(columnName));
+					m_values.setOldValue(index, null);	// get_LOB (rs.getObject(columnName));
 				}
 				else if (clazz == String.class)
 				{
-					m_oldValues[index] = value;
+					m_values.setOldValue(index, value);
 				}
 				else {
-					m_oldValues[index] = null;	// loadSpecial(rs, index);
+					m_values.setOldValue(index, null);	// loadSpecial(rs, index);
 				}
 				//
 				if (log.isTraceEnabled())
 				{
-					log.trace(String.valueOf(index) + ": " + p_info.getColumnName(index) + "(" + p_info.getColumnClass(index) + ") = " + m_oldValues[index]);
+					log.trace(String.valueOf(index) + ": " + p_info.getColumnName(index) + "(" + p_info.getColumnClass(index) + ") = " + m_values.getOldValue(index));
 				}
 			}
 			catch (final Exception e)
@@ -2306,39 +2296,39 @@ public abstract class PO
 			// Set Standard Values
 			if (colName.equals("CreatedBy") || colName.equals("UpdatedBy"))
 			{
-				m_newValues[i] = loggedUserId.getRepoId();
+				m_values.setNewValue(i, loggedUserId.getRepoId());
 			}
 			else if (colName.equals("Created") || colName.equals("Updated"))
 			{
-				m_newValues[i] = now;
+				m_values.setNewValue(i, now);
 			}
 			else if (colName.equals(p_info.getTableName() + "_ID"))
 			{
-				m_newValues[i] = I_ZERO;
+				m_values.setNewValue(i, I_ZERO);
 			}
 			else if (colName.equals("IsActive"))
 			{
-				m_newValues[i] = Boolean.TRUE;
+				m_values.setNewValue(i, Boolean.TRUE);
 			}
 			else if (colName.equals("AD_Client_ID"))
 			{
-				m_newValues[i] = adClientId;
+				m_values.setNewValue(i, adClientId);
 			}
 			else if (colName.equals("AD_Org_ID"))
 			{
-				m_newValues[i] = adOrgId;
+				m_values.setNewValue(i, adOrgId);
 			}
 			else if (colName.equals("Processed"))
 			{
-				m_newValues[i] = Boolean.FALSE;
+				m_values.setNewValue(i, Boolean.FALSE);
 			}
 			else if (colName.equals("Processing"))
 			{
-				m_newValues[i] = Boolean.FALSE;
+				m_values.setNewValue(i, Boolean.FALSE);
 			}
 			else if (colName.equals("Posted"))
 			{
-				m_newValues[i] = Boolean.FALSE;
+				m_values.setNewValue(i, Boolean.FALSE);
 			}
 		}
 	}   // setDefaults
@@ -2751,12 +2741,12 @@ public abstract class PO
 				// valueOld = copyRecordSupport == null ? copyRecordSupportOldValue : copyRecordSupport.getFromPO_ID();
 
 				valueOld = null;
-				valueNew = m_newValues[i];
+				valueNew = m_values.getNewValue(i);
 			}
 			else if (X_AD_ChangeLog.EVENTCHANGELOG_Update.equals(changeLogType))
 			{
-				valueOld = m_oldValues[i];
-				valueNew = m_newValues[i];
+				valueOld = m_values.getOldValue(i);
+				valueNew = m_values.getNewValue(i);
 				if (valueNew == null)
 				{
 					valueNew = valueOld;
@@ -3091,21 +3081,7 @@ public abstract class PO
 
 			//
 			// Copy New to Old values
-			for (int i = 0; i < columnsCount; i++)
-			{
-				if (m_newValues[i] != null)
-				{
-					if (m_newValues[i] == Null.NULL)
-					{
-						m_oldValues[i] = null;
-					}
-					else
-					{
-						m_oldValues[i] = m_newValues[i];
-					}
-				}
-			}
-			m_newValues = new Object[columnsCount];
+			m_values.commitNewValues();
 		}
 
 		//
@@ -3117,11 +3093,11 @@ public abstract class PO
 				// Skip virtual columns, those need to be loaded for sure
 				if (p_info.isVirtualColumn(i))
 				{
-					m_valueLoaded[i] = false;
+					m_values.setLoaded(i, false);
 					continue;
 				}
 
-				m_valueLoaded[i] = true;
+				m_values.setLoaded(i, true);
 			}
 		}
 
@@ -3212,13 +3188,17 @@ public abstract class PO
 	 */
 	public final boolean is_Changed()
 	{
-		final int size = get_ColumnCount();
-		for (int i = 0; i < size; i++)
+		// Check the columns only if there are new values or columns explicitly marked as changed
+		if (m_values.hasNewValues() || (markedChangedColumns != null && !markedChangedColumns.isEmpty()))
 		{
-			// Test if the column has changed - teo_sarca [ 1704828 ]
-			if (is_ValueChanged(i))
+			final int size = get_ColumnCount();
+			for (int i = 0; i < size; i++)
 			{
-				return true;
+				// Test if the column has changed - teo_sarca [ 1704828 ]
+				if (is_ValueChanged(i))
+				{
+					return true;
+				}
 			}
 		}
 		if (m_custom != null && m_custom.size() > 0)
@@ -3270,7 +3250,7 @@ public abstract class PO
 		final int size = get_ColumnCount();
 		for (int i = 0; i < size; i++)
 		{
-			Object value = m_newValues[i];
+			Object value = m_values.getNewValue(i);
 			if (value == null
 					|| p_info.isVirtualColumn(i))
 			{
@@ -3347,7 +3327,7 @@ public abstract class PO
 				}
 				else
 				{
-					log.warn("DocumentNo updated: " + m_oldValues[i] + " -> " + value);
+					log.warn("DocumentNo updated: " + m_values.getOldValue(i) + " -> " + value);
 				}
 			}
 
@@ -4223,10 +4203,7 @@ public abstract class PO
 		// Reset all fields
 		if (success)
 		{
-			final int size = p_info.getColumnCount();
-			m_oldValues = new Object[size];
-			m_newValues = new Object[size];
-			m_valueLoaded = new boolean[size]; // metas
+			m_values = new POValues(p_info.getValuesLayout());
 			m_stale = false; // metas: 01537
 			m_idOld = 0;
 		}
@@ -4613,8 +4590,8 @@ public abstract class PO
 			return;
 		}
 		sb.append(": ").append(get_ColumnName(index))
-				.append(" = ").append(m_oldValues[index])
-				.append(" (").append(m_newValues[index]).append(")");
+				.append(" = ").append(m_values.getOldValue(index))
+				.append(" (").append(m_values.getNewValue(index)).append(")");
 		log.trace(sb.toString());
 	}   // dump
 
@@ -5443,8 +5420,7 @@ public abstract class PO
 		poCopy.m_wasJustCreated = this.m_wasJustCreated;
 		poCopy.m_idOld = this.m_idOld;
 		poCopy.m_IDs = this.m_IDs == null ? null : Arrays.copyOf(this.m_IDs, this.m_IDs.length);
-		poCopy.m_oldValues = this.m_oldValues == null ? null : Arrays.copyOf(this.m_oldValues, this.m_oldValues.length);
-		poCopy.m_newValues = this.m_newValues == null ? null : Arrays.copyOf(this.m_newValues, this.m_newValues.length);
+		poCopy.m_values = this.m_values == null ? null : this.m_values.copy();
 		poCopy.m_KeyColumns = this.m_KeyColumns == null ? null : Arrays.copyOf(this.m_KeyColumns, this.m_KeyColumns.length);
 		// m_currentChangeType : int
 		poCopy.m_custom = this.m_custom == null ? null : new HashMap<>(this.m_custom);
@@ -5457,7 +5433,6 @@ public abstract class PO
 		poCopy.m_poCacheLocals = null; // don't copy the cache locals for now
 		poCopy.m_stale = this.m_stale;
 		poCopy.m_translations = m_translations;
-		poCopy.m_valueLoaded = this.m_valueLoaded == null ? null : Arrays.copyOf(this.m_valueLoaded, this.m_valueLoaded.length);
 		poCopy.markedChangedColumns = this.markedChangedColumns == null ? null : new HashSet<>(this.markedChangedColumns);
 
 		//
@@ -220,6 +220,8 @@ public final class POInfo implements Serializable, ColumnDisplayTypeProvider
 
 	private POTrlInfo trlInfo;
 
+	private transient POValues.Layout _valuesLayout; // lazy
+
 	private POInfo(final String tableName, final String trxName)
 	{
 		m_TableName = tableName;
@@ -872,6 +874,19 @@ public final class POInfo implements Serializable, ColumnDisplayTypeProvider
 		return getColumnClass(columnIndex);
 	}
 
+	/**
+	 * @return how the column values are stored in {@link PO}s of this table
+	 */
+	POValues.Layout getValuesLayout()
+	{
+		POValues.Layout valuesLayout = this._valuesLayout;
+		if (valuesLayout == null)
+		{
+			valuesLayout = this._valuesLayout = new POValues.Layout(getColumnCount(), this::getColumnClass);
+		}
+		return valuesLayout;
+	}
+
 	/**
 	 * Get Column Display Type
 	 *
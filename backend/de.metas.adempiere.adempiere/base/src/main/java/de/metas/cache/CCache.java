@@ -47,6 +47,7 @@ import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
 import com.google.common.cache.CacheLoader.InvalidCacheLoadException;
 import com.google.common.cache.CacheStats;
+import com.google.common.cache.RemovalCause;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.util.concurrent.ExecutionError;
@@ -103,6 +104,24 @@ public class CCache<K, V> implements CacheInterface
 				.build();
 	}
 
+	/**
+	 * Creates a new frequency-aware cache, which is bounded by the estimated memory footprint of its entries.
+	 *
+	 * @param cacheName cache name; shall respect the current naming conventions, see {@link #extractTableNameForCacheName(String)}
+	 * @param maximumWeightInBytes memory budget of the cache's label (i.e. shared with other caches of the same table), see {@link CacheEntryWeigher}
+	 * @param expireAfterMinutes if positive, the entries will expire after given number of minutes
+	 * @see CacheMapType#TinyLFU
+	 */
+	public static final <K, V> CCache<K, V> newTinyLFUCache(final String cacheName, final long maximumWeightInBytes, final int expireAfterMinutes)
+	{
+		return CCache.<K, V> builder()
+				.cacheName(cacheName)
+				.maximumWeightInBytes(maximumWeightInBytes)
+				.expireMinutes(expireAfterMinutes)
+				.cacheMapType(CacheMapType.TinyLFU)
+				.build();
+	}
+
 	public enum CacheMapType
 	{
 		/**
@@ -115,6 +134,17 @@ public class CCache<K, V> implements CacheInterface
 		 * This means that we can have a have a cache with a defined (limited) size without any expiration time.
 		 */
 		LRU,
+
+		/**
+		 * Data is cached in a size bounded map which uses a frequency-aware admission policy (TinyLFU).
+		 * <p>
+		 * When the cache is full, a new entry is added only if it was accessed more often (recently) than the least frequently used of a few sampled cached entries,
+		 * which is then evicted. That way one-off scans are not able to push frequently used entries (e.g. master data) out of the cache.
+		 * <p>
+		 * The cache is bounded by the builder's {@code maximumWeightInBytes} if set (memory budget, see {@link CacheEntryWeigher}), else by {@code initialCapacity} entries.
+		 * The memory budget is shared by all TinyLFU caches with the same label (table name), i.e. eviction victims are sampled from all of them.
+		 */
+		TinyLFU,
 	}
 
 	/**
@@ -159,6 +189,39 @@ public class CCache<K, V> implements CacheInterface
 
 	private CacheAdditionListener<K, V> additionListener;
 
+	private final CacheMapType cacheMapType;
+	private final CacheEntryWeigher<K, V> weigher;
+	/** Memory budget in bytes; only used for {@link CacheMapType#TinyLFU}. Zero means that the cache is bounded by {@link #maximumSize}. */
+	private final long maximumWeightInBytes;
+	/** Maximum number of entries; only used for {@link CacheMapType#TinyLFU} caches without a memory budget. */
+	private final long maximumSize;
+	/**
+	 * Only used for {@link CacheMapType#TinyLFU}: the memory budget which is shared with the other caches of our label,
+	 * or, if there is no {@link #maximumWeightInBytes}, our own budget of {@link #maximumSize} entries (each entry weighing 1).
+	 */
+	@Nullable
+	private final CacheWeightBudget weightBudget;
+	/** Accessed keys frequency; only used for {@link CacheMapType#TinyLFU}. */
+	@Nullable
+	private final FrequencySketch frequencySketch;
+	/** Cached keys, used to randomly sample eviction candidates; only used for {@link CacheMapType#TinyLFU}. */
+	@Nullable
+	private final CacheKeySampler<K> keySampler;
+	/** Estimated size of all cached entries; only maintained for {@link CacheMapType#TinyLFU}. */
+	private final AtomicLong weightedSize = new AtomicLong(0);
+
+	/** Returned by {@link #getEstimatedBytes()} for caches which are not tracking the weight of their entries */
+	public static final long ESTIMATED_BYTES_Unknown = -1;
+
+	/** How many cached entries are sampled when looking for an eviction candidate */
+	private static final int TINYLFU_VICTIMS_SAMPLE_SIZE = 8;
+	private static final int TINYLFU_DEFAULT_MAXIMUM_SIZE = 1000;
+	/** How often we sample again if the sampled keys were already gone, before we give up adding an entry */
+	private static final int TINYLFU_MAX_EMPTY_SAMPLES = 100;
+
+	/** Whether guava shall record hit/miss statistics; off by default because it costs on hot paths */
+	private final boolean recordStats;
+
 	/**
 	 * Metasfresh Cache - expires after 2 hours
 	 *
@@ -187,7 +250,10 @@ public class CCache<K, V> implements CacheInterface
 				CacheMapType.HashMap,
 				(CachingKeysMapper<K>)null,
 				(CacheRemovalListener<K, V>)null,
-				(CacheAdditionListener<K, V>)null);
+				(CacheAdditionListener<K, V>)null,
+				(Long)null, // maximumWeightInBytes
+				(CacheEntryWeigher<K, V>)null,
+				(Boolean)null); // recordStats
 	}
 
 	@Builder
@@ -200,7 +266,10 @@ public class CCache<K, V> implements CacheInterface
 			final CacheMapType cacheMapType,
 			@Nullable final CachingKeysMapper<K> invalidationKeysMapper,
 			@Nullable final CacheRemovalListener<K, V> removalListener,
-			@Nullable final CacheAdditionListener<K, V> additionListener)
+			@Nullable final CacheAdditionListener<K, V> additionListener,
+			@Nullable final Long maximumWeightInBytes,
+			@Nullable final CacheEntryWeigher<K, V> weigher,
+			@Nullable final Boolean recordStats)
 	{
 		this.cacheId = NEXT_CACHE_ID.getAndIncrement();
 
@@ -246,11 +315,37 @@ public class CCache<K, V> implements CacheInterface
 		this.labels = buildCacheLabels(tableNameEffective, additionalTableNamesToResetFor);
 
 		this.expireMinutes = expireMinutes != null ? expireMinutes : EXPIREMINUTES_Never;
+		this.cacheMapType = cacheMapType != null ? cacheMapType : CacheMapType.HashMap;
+		this.weigher = weigher != null ? weigher : CacheEntryWeigher.estimating();
+		this.recordStats = recordStats != null && recordStats;
+		if (this.cacheMapType == CacheMapType.TinyLFU)
+		{
+			this.maximumWeightInBytes = maximumWeightInBytes != null && maximumWeightInBytes > 0 ? maximumWeightInBytes : 0;
+			this.maximumSize = initialCapacity != null && initialCapacity > 0 ? initialCapacity : TINYLFU_DEFAULT_MAXIMUM_SIZE;
+			this.weightBudget = this.maximumWeightInBytes > 0
+					? CacheMgt.get().getWeightBudget(labels.iterator().next(), this.maximumWeightInBytes)
+					: new CacheWeightBudget(this.cacheName, this.maximumSize);
+			this.frequencySketch = new FrequencySketch((int)Math.min(this.maximumSize, Integer.MAX_VALUE));
+			this.keySampler = new CacheKeySampler<>();
+		}
+		else
+		{
+			this.maximumWeightInBytes = 0;
+			this.maximumSize = 0;
+			this.weightBudget = null;
+			this.frequencySketch = null;
+			this.keySampler = null;
+		}
+
 		this.cache = buildGuavaCache(
-				cacheMapType != null ? cacheMapType : CacheMapType.HashMap,
+				this.cacheMapType,
 				initialCapacity != null ? initialCapacity : 0,
 				this.expireMinutes,
 				removalListener);
+		if (weightBudget != null)
+		{
+			weightBudget.addCache(this);
+		}
 
 		if (DEBUG)
 		{
@@ -314,13 +409,17 @@ public class CCache<K, V> implements CacheInterface
 		return builder.build();
 	}
 
-	private static final <K, V> Cache<K, V> buildGuavaCache(
+	private Cache<K, V> buildGuavaCache(
 			@NonNull final CacheMapType cacheMapType,
 			final int initialCapacity,
 			final int expireMinutes,
 			@Nullable final CacheRemovalListener<K, V> removalListener)
 	{
 		CacheBuilder<Object, Object> cacheBuilder = CacheBuilder.newBuilder();
+		if (recordStats)
+		{
+			cacheBuilder = cacheBuilder.recordStats();
+		}
 		if (cacheMapType == CacheMapType.HashMap)
 		{
 			cacheBuilder = cacheBuilder
@@ -331,6 +430,25 @@ public class CCache<K, V> implements CacheInterface
 			cacheBuilder = cacheBuilder
 					.maximumSize(initialCapacity); // FIXME: this is confusing
 		}
+		else if (cacheMapType == CacheMapType.TinyLFU)
+		{
+			// NOTE: we are enforcing the bounds ourselves, see putIfAdmitted().
+			// The guava bounds are just a safety net, with some headroom because guava is enforcing them per segment and would evict the least recently used entries.
+			// Entries which are evicted by guava are released from our budget by the removal listener.
+			if (maximumWeightInBytes > 0)
+			{
+				@SuppressWarnings("unchecked")
+				final CacheEntryWeigher<Object, Object> weigherToUse = (CacheEntryWeigher<Object, Object>)weigher;
+				cacheBuilder = cacheBuilder
+						.maximumWeight(maximumWeightInBytes + maximumWeightInBytes / 2)
+						.weigher(weigherToUse::weigh);
+			}
+			else
+			{
+				cacheBuilder = cacheBuilder
+						.maximumSize(maximumSize + maximumSize / 2);
+			}
+		}
 		else
 		{
 			throw new AdempiereException("Unknown CacheMapType: " + cacheMapType);
@@ -341,7 +459,8 @@ public class CCache<K, V> implements CacheInterface
 			cacheBuilder = cacheBuilder.expireAfterWrite(expireMinutes, TimeUnit.MINUTES);
 		}
 
-		if (removalListener != null)
+		final boolean trackWeight = cacheMapType == CacheMapType.TinyLFU;
+		if (removalListener != null || trackWeight)
 		{
 			cacheBuilder.removalListener(notif -> {
 				@SuppressWarnings("unchecked")
@@ -350,7 +469,20 @@ public class CCache<K, V> implements CacheInterface
 				@SuppressWarnings("unchecked")
 				final V value = (V)notif.getValue();
 
-				removalListener.itemRemoved(key, value);
+				if (trackWeight && key != null && value != null)
+				{
+					weightedSize.addAndGet(-weigher.weigh(key, value));
+					weightBudget.release(weighForBudget(key, value));
+				}
+				if (trackWeight && key != null && notif.getCause() != RemovalCause.REPLACED)
+				{
+					keySampler.remove(key);
+				}
+
+				if (removalListener != null)
+				{
+					removalListener.itemRemoved(key, value);
+				}
 			});
 		}
 		return cacheBuilder.build();
@@ -547,6 +679,7 @@ public class CCache<K, V> implements CacheInterface
 	{
 		try (final IAutoCloseable cacheIdMDC = CacheMDC.putCache(this))
 		{
+			recordAccess(key);
 			final V result = cache.getIfPresent(key);
 			logger.debug("get - key={}; result={}", key, result);
 			return result;
@@ -601,6 +734,11 @@ public class CCache<K, V> implements CacheInterface
 				return cache.getIfPresent(key);
 			}
 
+			if (frequencySketch != null)
+			{
+				return getOrLoadIfAdmitted(key, valueInitializer);
+			}
+
 			try
 			{
 				return cache.get(key, valueInitializer);
@@ -627,6 +765,205 @@ public class CCache<K, V> implements CacheInterface
 		}
 	}
 
+	/**
+	 * Loads the value without holding any guava lock, and then adds it to cache only if the {@link CacheMapType#TinyLFU} admission policy allows it.
+	 */
+	private V getOrLoadIfAdmitted(final K key, @NonNull final Callable<V> valueInitializer)
+	{
+		recordAccess(key);
+		final V cachedValue = cache.getIfPresent(key);
+		if (cachedValue != null)
+		{
+			return cachedValue;
+		}
+
+		final V value;
+		try
+		{
+			value = valueInitializer.call();
+		}
+		catch (final RuntimeException e)
+		{
+			throw e;
+		}
+		catch (final Exception e)
+		{
+			throw AdempiereException.wrapIfNeeded(e);
+		}
+
+		if (value == null)
+		{
+			// same as guava: the value is not cached
+			return null;
+		}
+
+		putIfAdmitted(key, value);
+		return value;
+	}
+
+	private void recordAccess(final K key)
+	{
+		if (frequencySketch != null && key != null)
+		{
+			frequencySketch.increment(key);
+		}
+	}
+
+	/**
+	 * Adds given entry, evicting the least frequently used of some randomly sampled entries (of all caches sharing our {@link #weightBudget}) until the new one fits into the budget.
+	 * If the sampled entries were accessed more frequently than the new one, the new entry is rejected.
+	 * <p>
+	 * The entry's weight is reserved in the budget before the entry is added, so concurrent puts can't overshoot the budget.
+	 *
+	 * @return true if the entry was added
+	 */
+	private boolean putIfAdmitted(@NonNull final K key, @NonNull final V value)
+	{
+		if (frequencySketch == null)
+		{
+			cache.put(key, value);
+			return true;
+		}
+
+		final int weight = weigher.weigh(key, value);
+		final int budgetWeight = weighForBudget(key, value);
+		if (budgetWeight > weightBudget.getMaximumWeight())
+		{
+			logger.debug("putIfAdmitted - Entry for key={} is bigger ({}) than the whole budget {}; -> not added", key, budgetWeight, weightBudget);
+			return false;
+		}
+
+		// if the key is already cached, we just replace the value, without the admission check
+		final boolean alreadyCached = cache.asMap().containsKey(key);
+		if (!alreadyCached)
+		{
+			keySampler.remove(key); // not cached, so make sure it's not sampled
+		}
+
+		final int candidateFrequency = frequencySketch.frequency(key);
+		int emptySamples = 0;
+		while (!weightBudget.tryReserve(budgetWeight))
+		{
+			final EvictionCandidate victim = sampleVictim(key);
+			if (victim == null)
+			{
+				if (alreadyCached && cache.asMap().containsKey(key))
+				{
+					cache.invalidate(key); // nothing else to evict; make room by dropping the old value
+					continue;
+				}
+				if (++emptySamples < TINYLFU_MAX_EMPTY_SAMPLES && weightBudget.getWeightedSize() > 0)
+				{
+					continue; // only sampled keys which were already gone; try again
+				}
+
+				logger.trace("putIfAdmitted - Not admitting key={} because there is nothing left to evict", key);
+				return false;
+			}
+
+			if (!alreadyCached && candidateFrequency <= victim.getFrequency())
+			{
+				logger.trace("putIfAdmitted - Not admitting key={} because it's not used more frequently than {}", key, victim);
+				return false;
+			}
+
+			victim.evict();
+		}
+
+		cache.put(key, value);
+		weightedSize.addAndGet(weight);
+		keySampler.add(key);
+		return true;
+	}
+
+	/**
+	 * @return the weight of the given entry in our {@link #weightBudget}, i.e. its estimated bytes, or {@code 1} if the budget is counting entries
+	 */
+	private int weighForBudget(@NonNull final K key, @NonNull final V value)
+	{
+		return maximumWeightInBytes > 0 ? weigher.weigh(key, value) : 1;
+	}
+
+	/**
+	 * @return the least frequently used key from a small random sample of the keys of each cache sharing our {@link #weightBudget}, or null if they are empty
+	 */
+	@Nullable
+	private EvictionCandidate sampleVictim(@NonNull final K candidateKey)
+	{
+		EvictionCandidate victim = null;
+		for (final CCache<?, ?> budgetCache : weightBudget.getCaches())
+		{
+			final EvictionCandidate cacheVictim = budgetCache.sampleOwnVictim(budgetCache == this ? candidateKey : null);
+			if (cacheVictim != null && (victim == null || cacheVictim.getFrequency() < victim.getFrequency()))
+			{
+				victim = cacheVictim;
+			}
+		}
+		return victim;
+	}
+
+	@Nullable
+	private EvictionCandidate sampleOwnVictim(@Nullable final Object keyToExclude)
+	{
+		EvictionCandidate victim = null;
+		for (final K key : keySampler.sample(TINYLFU_VICTIMS_SAMPLE_SIZE, keyToExclude))
+		{
+			if (!cache.asMap().containsKey(key))
+			{
+				// already removed (e.g. expired) but not yet cleaned up
+				keySampler.remove(key);
+				continue;
+			}
+
+			final int frequency = frequencySketch.frequency(key);
+			if (victim == null || frequency < victim.getFrequency())
+			{
+				victim = new EvictionCandidate(this, key, frequency);
+			}
+		}
+		return victim;
+	}
+
+	private void evict(@NonNull final Object key)
+	{
+		cache.invalidate(key);
+		keySampler.remove(key); // in case the victim was already gone, so no removal notification was fired
+	}
+
+	private static final class EvictionCandidate
+	{
+		private final CCache<?, ?> cache;
+		private final Object key;
+		private final int frequency;
+
+		private EvictionCandidate(@NonNull final CCache<?, ?> cache, @NonNull final Object key, final int frequency)
+		{
+			this.cache = cache;
+			this.key = key;
+			this.frequency = frequency;
+		}
+
+		@Override
+		public String toString()
+		{
+			return MoreObjects.toStringHelper(this)
+					.add("cacheName", cache.getCacheName())
+					.add("key", key)
+					.add("frequency", frequency)
+					.toString();
+		}
+
+		public int getFrequency()
+		{
+			return frequency;
+		}
+
+		public void evict()
+		{
+			cache.evict(key);
+		}
+	}
+
 	/**
 	 * Same as {@link #get(Object, Callable)}. Introduced here to be able to use it with lambdas, without having ambiguous method calls.
 	 *
@@ -678,6 +1015,7 @@ public class CCache<K, V> implements CacheInterface
 			final Set<K> keysToLoad = new HashSet<>();
 			for (final K key : ImmutableSet.copyOf(keys))
 			{
+				recordAccess(key);
 				final V value = cache.getIfPresent(key);
 				if (value == null)
 				{
@@ -708,8 +1046,10 @@ public class CCache<K, V> implements CacheInterface
 					final K key = entry.getKey();
 					final V value = entry.getValue();
 
-					cache.put(key, value);
-					fireAdditionListener(key, value);
+					if (putIfAdmitted(key, value))
+					{
+						fireAdditionListener(key, value);
+					}
 				}
 				values.addAll(valuesLoaded.values()); // add loaded values to the list we will return
 			}
@@ -748,9 +1088,8 @@ public class CCache<K, V> implements CacheInterface
 			{
 				cache.invalidate(key);
 			}
-			else
+			else if (putIfAdmitted(key, value))
 			{
-				cache.put(key, value);
 				fireAdditionListener(key, value);
 			}
 		}
@@ -774,11 +1113,22 @@ public class CCache<K, V> implements CacheInterface
 	{
 		try (final IAutoCloseable cacheIdMDC = CacheMDC.putCache(this))
 		{
-			cache.putAll(map);
-
-			for (final Entry<? extends K, ? extends V> entry : map.entrySet())
+			if (frequencySketch == null)
 			{
-				fireAdditionListener(entry.getKey(), entry.getValue());
+				cache.putAll(map);
+				map.forEach(this::fireAdditionListener);
+			}
+			else
+			{
+				for (final Entry<? extends K, ? extends V> entry : map.entrySet())
+				{
+					final K key = entry.getKey();
+					final V value = entry.getValue();
+					if (putIfAdmitted(key, value))
+					{
+						fireAdditionListener(key, value);
+					}
+				}
 			}
 		}
 	}
@@ -830,12 +1180,25 @@ public class CCache<K, V> implements CacheInterface
 		}
 	}
 
+	/**
+	 * @return estimated memory footprint of all cached entries, in bytes, or {@link #ESTIMATED_BYTES_Unknown} if this cache doesn't track the weight of its entries (i.e. it's not {@link CacheMapType#TinyLFU}).
+	 *         NOTE: we don't compute it on demand, because walking all entries of all caches is too expensive for a statistics call.
+	 */
+	public long getEstimatedBytes()
+	{
+		if (cacheMapType == CacheMapType.TinyLFU)
+		{
+			return Math.max(weightedSize.get(), 0);
+		}
+		return ESTIMATED_BYTES_Unknown;
+	}
+
 	/**
 	 * @return cache statistics
 	 */
 	public CCacheStats stats()
 	{
-		return new CCacheStats(cacheId, cacheName, cache.size(), cache.stats());
+		return new CCacheStats(cacheId, cacheName, cache.size(), getEstimatedBytes(), recordStats, cache.stats());
 	}
 
 	@SuppressWarnings("serial")
@@ -846,13 +1209,17 @@ public class CCache<K, V> implements CacheInterface
 		private final long cacheId;
 		private final String name;
 		private final long size;
+		private final long estimatedBytes;
+		private final boolean statsRecorded;
 		private final CacheStats guavaStats;
 
-		private CCacheStats(final long cacheId, final String name, final long size, final CacheStats guavaStats)
+		private CCacheStats(final long cacheId, final String name, final long size, final long estimatedBytes, final boolean statsRecorded, final CacheStats guavaStats)
 		{
 			this.cacheId = cacheId;
 			this.name = name;
 			this.size = size;
+			this.estimatedBytes = estimatedBytes;
+			this.statsRecorded = statsRecorded;
 			this.guavaStats = guavaStats;
 		}
 
@@ -862,6 +1229,8 @@ public class CCache<K, V> implements CacheInterface
 			return MoreObjects.toStringHelper(this)
 					.add("name", name)
 					.add("size", size)
+					.add("estimatedBytes", estimatedBytes)
+					.add("statsRecorded", statsRecorded)
 					.add("guavaStats", guavaStats)
 					.add("cacheId", cacheId)
 					.toString();
@@ -870,7 +1239,7 @@ public class CCache<K, V> implements CacheInterface
 		@Override
 		public int hashCode()
 		{
-			return Objects.hash(cacheId, name, size, guavaStats);
+			return Objects.hash(cacheId, name, size, estimatedBytes, statsRecorded, guavaStats);
 		}
 
 		@Override
@@ -882,6 +1251,8 @@ public class CCache<K, V> implements CacheInterface
 				return cacheId == other.cacheId
 						&& name.equals(other.name)
 						&& size == other.size
+						&& estimatedBytes == other.estimatedBytes
+						&& statsRecorded == other.statsRecorded
 						&& guavaStats.equals(other.guavaStats);
 			}
 			return false;
@@ -902,6 +1273,27 @@ public class CCache<K, V> implements CacheInterface
 			return size;
 		}
 
+		public long getEstimatedBytes()
+		{
+			return estimatedBytes;
+		}
+
+		/**
+		 * @return {@code true} if the cache was built with {@code recordStats}, i.e. if {@link #getHitRate()} is meaningful
+		 */
+		public boolean isStatsRecorded()
+		{
+			return statsRecorded;
+		}
+
+		/**
+		 * @return ratio of cache lookups which were served from cache; {@code 1.0} if the cache was never queried or does not record stats (see {@link #isStatsRecorded()})
+		 */
+		public double getHitRate()
+		{
+			return guavaStats.hitRate();
+		}
+
 		public CacheStats getGuavaStats()
 		{
 			return guavaStats;
@@ -0,0 +1,306 @@
+package de.metas.cache;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+
+import javax.annotation.Nullable;
+
+import org.compiere.model.POInfo;
+import org.slf4j.Logger;
+
+import lombok.NonNull;
+
+/*
+ * #%L
+ * de.metas.adempiere.adempiere.base
+ * %%
+ * Copyright (C) 2020 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+/**
+ * Cheap heap size estimation for cached keys and values.
+ * <p>
+ * Strings, numbers, arrays, collections and maps are estimated directly.
+ * Any other object is estimated from its class' field layout (computed once per class), plus the estimated sizes of the objects it references.
+ * <p>
+ * NOTE: we deliberately don't walk the whole object graph:
+ * <ul>
+ * <li>we stop after {@link #MAX_DEPTH} levels and {@link #MAX_OBJECTS} objects per estimation
+ * <li>collections and maps are extrapolated from their first element
+ * <li>objects which are typically shared by many cached entries (e.g. the context {@link Properties} or {@link POInfo}) are not followed
+ * </ul>
+ * The numbers are meant to compare caches with each other and to enforce a rough memory budget, not to be exact.
+ */
+final class CacheEntrySizeEstimator
+{
+	private static final int OBJECT_HEADER = 16;
+	private static final int ARRAY_HEADER = 16;
+	private static final int REFERENCE = 8;
+	private static final int MAX_DEPTH = 4;
+	private static final int MAX_OBJECTS = 256;
+
+	private static final ClassValue<ClassLayout> CLASS_LAYOUTS = new ClassValue<ClassLayout>()
+	{
+		@Override
+		protected ClassLayout computeValue(final Class<?> type)
+		{
+			return ClassLayout.of(type);
+		}
+	};
+
+	private CacheEntrySizeEstimator()
+	{
+	}
+
+	public static int estimateBytes(@Nullable final Object obj)
+	{
+		final long bytes = new Estimation().estimateBytes(obj, 0);
+		return (int)Math.min(Integer.MAX_VALUE, bytes);
+	}
+
+	private static final class Estimation
+	{
+		/** The objects which were already counted, so that we count objects which are referenced more than once (or cycles) only once */
+		private final Set<Object> counted = Collections.newSetFromMap(new IdentityHashMap<>());
+
+		private long estimateBytes(@Nullable final Object obj, final int depth)
+		{
+			if (obj == null || isShared(obj))
+			{
+				return 0;
+			}
+			else if (obj instanceof String)
+			{
+				return OBJECT_HEADER + 24 + 2 * ((String)obj).length();
+			}
+			else if (obj instanceof BigDecimal)
+			{
+				return OBJECT_HEADER + 32;
+			}
+			else if (obj instanceof Number || obj instanceof Boolean || obj instanceof Character || obj instanceof Enum)
+			{
+				return OBJECT_HEADER + 8;
+			}
+
+			if (depth > MAX_DEPTH || counted.size() >= MAX_OBJECTS || !counted.add(obj))
+			{
+				return 0; // only the reference to it is counted
+			}
+
+			if (obj.getClass().isArray())
+			{
+				return estimateArrayBytes(obj, depth);
+			}
+			else if (obj instanceof Collection)
+			{
+				final Collection<?> collection = (Collection<?>)obj;
+				if (collection.isEmpty())
+				{
+					return OBJECT_HEADER + 32;
+				}
+
+				// extrapolate from the first element, assuming the elements are of the same kind
+				final long elementSize = estimateBytes(collection.iterator().next(), depth + 1);
+				return OBJECT_HEADER + 32 + (long)collection.size() * (REFERENCE + elementSize);
+			}
+			else if (obj instanceof Map)
+			{
+				final Map<?, ?> map = (Map<?, ?>)obj;
+				if (map.isEmpty())
+				{
+					return OBJECT_HEADER + 48;
+				}
+
+				final Map.Entry<?, ?> firstEntry = map.entrySet().iterator().next();
+				final long entrySize = 4 * REFERENCE
+						+ estimateBytes(firstEntry.getKey(), depth + 1)
+						+ estimateBytes(firstEntry.getValue(), depth + 1);
+				return OBJECT_HEADER + 48 + (long)map.size() * entrySize;
+			}
+			else
+			{
+				final ClassLayout layout = CLASS_LAYOUTS.get(obj.getClass());
+
+				long bytes = layout.getShallowBytes();
+				for (final Field field : layout.getReferenceFields())
+				{
+					bytes += estimateBytes(getFieldValue(field, obj), depth + 1);
+				}
+				return bytes;
+			}
+		}
+
+		private long estimateArrayBytes(@NonNull final Object array, final int depth)
+		{
+			final int length = Array.getLength(array);
+			final Class<?> componentType = array.getClass().getComponentType();
+			if (componentType.isPrimitive())
+			{
+				return align(ARRAY_HEADER + (long)length * primitiveSize(componentType));
+			}
+
+			long bytes = align(ARRAY_HEADER + (long)length * REFERENCE);
+			for (int i = 0; i < length; i++)
+			{
+				bytes += estimateBytes(Array.get(array, i), depth + 1);
+			}
+			return bytes;
+		}
+	}
+
+	/**
+	 * @return true for objects which are usually shared by many cached entries and therefore shall not be accounted to any of them
+	 */
+	private static boolean isShared(@NonNull final Object obj)
+	{
+		return obj instanceof Properties // the context
+				|| obj instanceof POInfo
+				|| obj instanceof Class
+				|| obj instanceof ClassLoader
+				|| obj instanceof Thread
+				|| obj instanceof Logger;
+	}
+
+	@Nullable
+	private static Object getFieldValue(@NonNull final Field field, @NonNull final Object obj)
+	{
+		try
+		{
+			return field.get(obj);
+		}
+		catch (final IllegalAccessException e)
+		{
+			return null;
+		}
+	}
+
+	private static int primitiveSize(@NonNull final Class<?> type)
+	{
+		if (type == long.class || type == double.class)
+		{
+			return 8;
+		}
+		else if (type == int.class || type == float.class)
+		{
+			return 4;
+		}
+		else if (type == short.class || type == char.class)
+		{
+			return 2;
+		}
+		else
+		{
+			return 1; // byte, boolean
+		}
+	}
+
+	private static long align(final long bytes)
+	{
+		return (bytes + 7) & ~7L;
+	}
+
+	/**
+	 * The instance fields of a class (incl. its super classes).
+	 */
+	private static final class ClassLayout
+	{
+		public static ClassLayout of(@NonNull final Class<?> type)
+		{
+			long shallowBytes = OBJECT_HEADER;
+			final List<Field> referenceFields = new ArrayList<>();
+			final boolean followReferences = !isJdkClass(type); // we don't want to break into the JDK's internals
+			for (Class<?> clazz = type; clazz != null && clazz != Object.class; clazz = clazz.getSuperclass())
+			{
+				for (final Field field : clazz.getDeclaredFields())
+				{
+					if (Modifier.isStatic(field.getModifiers()))
+					{
+						continue;
+					}
+
+					final Class<?> fieldType = field.getType();
+					if (fieldType.isPrimitive())
+					{
+						shallowBytes += primitiveSize(fieldType);
+						continue;
+					}
+
+					shallowBytes += REFERENCE;
+					if (followReferences && trySetAccessible(field))
+					{
+						referenceFields.add(field);
+					}
+				}
+			}
+
+			return new ClassLayout(align(shallowBytes), referenceFields.toArray(new Field[0]));
+		}
+
+		private static boolean isJdkClass(@NonNull final Class<?> type)
+		{
+			final String className = type.getName();
+			return className.startsWith("java.")
+					|| className.startsWith("javax.")
+					|| className.startsWith("sun.")
+					|| className.startsWith("jdk.");
+		}
+
+		private static boolean trySetAccessible(@NonNull final Field field)
+		{
+			try
+			{
+				field.setAccessible(true);
+				return true;
+			}
+			catch (final RuntimeException e)
+			{
+				// e.g. SecurityException; we count only the reference
+				return false;
+			}
+		}
+
+		private final long shallowBytes;
+		private final Field[] referenceFields;
+
+		private ClassLayout(final long shallowBytes, @NonNull final Field[] referenceFields)
+		{
+			this.shallowBytes = shallowBytes;
+			this.referenceFields = referenceFields;
+		}
+
+		public long getShallowBytes()
+		{
+			return shallowBytes;
+		}
+
+		public Field[] getReferenceFields()
+		{
+			return referenceFields;
+		}
+	}
+}
@@ -0,0 +1,41 @@
+package de.metas.cache;
+
+/*
+ * #%L
+ * de.metas.adempiere.adempiere.base
+ * %%
+ * Copyright (C) 2020 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+/**
+ * Calculates the (estimated) memory footprint of a cache entry, in bytes.
+ * Used by {@link CCache} to enforce the memory budget of {@link CCache.CacheMapType#TinyLFU} caches and to report the estimated size of all caches.
+ */
+@FunctionalInterface
+public interface CacheEntryWeigher<K, V>
+{
+	static <K, V> CacheEntryWeigher<K, V> estimating()
+	{
+		return (key, value) -> CacheEntrySizeEstimator.estimateBytes(key) + CacheEntrySizeEstimator.estimateBytes(value);
+	}
+
+	/**
+	 * @return estimated entry size in bytes; shall be positive
+	 */
+	int weigh(K key, V value);
+}
@@ -0,0 +1,184 @@
+package de.metas.cache;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.IntSupplier;
+
+import javax.annotation.Nullable;
+
+import org.adempiere.util.lang.impl.TableRecordReference;
+
+import com.google.common.collect.ImmutableSet;
+
+import de.metas.cache.model.CacheInvalidateMultiRequest;
+import de.metas.cache.model.CacheInvalidateRequest;
+import lombok.NonNull;
+
+/*
+ * #%L
+ * de.metas.adempiere.adempiere.base
+ * %%
+ * Copyright (C) 2020 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+/**
+ * Collects {@link CacheInvalidateMultiRequest}s and merges them into one compact request.
+ * <ul>
+ * <li>duplicate requests are removed
+ * <li>record requests are dropped if all records of their table shall be invalidated anyways
+ * <li>if more than {@link #collapseToTableThresholdSupplier} records of the same table shall be invalidated, they are replaced by one "all records of table" request
+ * <li>if one of the requests is "reset all", the whole merged request is "reset all"
+ * </ul>
+ */
+final class CacheInvalidateRequestsCoalescer
+{
+	private final IntSupplier collapseToTableThresholdSupplier;
+	/** threshold of the current coalescing window; it's taken from the supplier when the first request is added after a flush */
+	private int collapseToTableThreshold = 0;
+
+	private boolean resetAll = false;
+	private final Set<String> allRecordsTableNames = new LinkedHashSet<>();
+	private final Map<String, Set<CacheInvalidateRequest>> recordRequestsByTableName = new LinkedHashMap<>();
+
+	public CacheInvalidateRequestsCoalescer(final int collapseToTableThreshold)
+	{
+		this(() -> collapseToTableThreshold);
+	}
+
+	/**
+	 * @param collapseToTableThresholdSupplier asked once per coalescing window, so that changes of the threshold are taking effect without a restart
+	 */
+	public CacheInvalidateRequestsCoalescer(@NonNull final IntSupplier collapseToTableThresholdSupplier)
+	{
+		this.collapseToTableThresholdSupplier = collapseToTableThresholdSupplier;
+	}
+
+	private int getCollapseToTableThreshold()
+	{
+		if (collapseToTableThreshold <= 0)
+		{
+			final int threshold = collapseToTableThresholdSupplier.getAsInt();
+			collapseToTableThreshold = threshold > 0 ? threshold : Integer.MAX_VALUE;
+		}
+		return collapseToTableThreshold;
+	}
+
+	public synchronized void add(@NonNull final CacheInvalidateMultiRequest multiRequest)
+	{
+		if (resetAll)
+		{
+			return;
+		}
+
+		for (final CacheInvalidateRequest request : multiRequest.getRequests())
+		{
+			if (request.isAll())
+			{
+				resetAll = true;
+				allRecordsTableNames.clear();
+				recordRequestsByTableName.clear();
+				return;
+			}
+
+			addRequest(request);
+		}
+	}
+
+	private void addRequest(@NonNull final CacheInvalidateRequest request)
+	{
+		final String tableName = request.getTableNameEffective();
+		if (request.isAllRecords())
+		{
+			allRecordsTableNames.add(tableName);
+			final Set<CacheInvalidateRequest> tableRequests = recordRequestsByTableName.remove(tableName);
+			if (tableRequests != null)
+			{
+				tableRequests.forEach(this::addRootRecordOfChildRequest);
+			}
+		}
+		else if (allRecordsTableNames.contains(tableName))
+		{
+			addRootRecordOfChildRequest(request);
+		}
+		else
+		{
+			final Set<CacheInvalidateRequest> tableRequests = recordRequestsByTableName.computeIfAbsent(tableName, k -> new LinkedHashSet<>());
+			tableRequests.add(request);
+			if (tableRequests.size() > getCollapseToTableThreshold())
+			{
+				addRequest(CacheInvalidateRequest.allRecordsForTable(tableName));
+			}
+		}
+	}
+
+	/**
+	 * When the request's (child) record is covered by an "all records" request, the request's root record still needs to be invalidated.
+	 */
+	private void addRootRecordOfChildRequest(@NonNull final CacheInvalidateRequest request)
+	{
+		if (request.getChildRecordOrNull() == null)
+		{
+			return;
+		}
+
+		final TableRecordReference rootRecord = request.getRootRecordOrNull();
+		if (rootRecord != null)
+		{
+			addRequest(CacheInvalidateRequest.rootRecord(rootRecord.getTableName(), rootRecord.getRecord_ID()));
+		}
+	}
+
+	public synchronized boolean isEmpty()
+	{
+		return !resetAll && allRecordsTableNames.isEmpty() && recordRequestsByTableName.isEmpty();
+	}
+
+	/**
+	 * @return the merged request of all requests added so far, or {@code null} if nothing was added; this coalescer is cleared afterwards.
+	 */
+	@Nullable
+	public synchronized CacheInvalidateMultiRequest flush()
+	{
+		try
+		{
+			if (resetAll)
+			{
+				return CacheInvalidateMultiRequest.all();
+			}
+
+			final List<CacheInvalidateRequest> requests = new ArrayList<>();
+			allRecordsTableNames.forEach(tableName -> requests.add(CacheInvalidateRequest.allRecordsForTable(tableName)));
+			recordRequestsByTableName.values().forEach(requests::addAll);
+
+			return !requests.isEmpty()
+					? CacheInvalidateMultiRequest.of(ImmutableSet.copyOf(requests))
+					: null;
+		}
+		finally
+		{
+			resetAll = false;
+			collapseToTableThreshold = 0;
+			allRecordsTableNames.clear();
+			recordRequestsByTableName.clear();
+		}
+	}
+}
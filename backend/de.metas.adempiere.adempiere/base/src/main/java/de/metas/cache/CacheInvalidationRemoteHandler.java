@@ -1,9 +1,14 @@
 package de.metas.cache;
 
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.Function;
 
 import org.adempiere.ad.dao.cache.CacheInvalidateMultiRequestSerializer;
+import org.adempiere.service.ISysConfigBL;
+import org.adempiere.util.concurrent.CustomizableThreadFactory;
 import org.slf4j.Logger;
 import org.slf4j.MDC.MDCCloseable;
 
@@ -62,6 +67,21 @@ final class CacheInvalidationRemoteHandler implements IEventListener
 
 	private final CacheInvalidateMultiRequestSerializer jsonSerializer = new CacheInvalidateMultiRequestSerializer();
 
+	/** How long we collect requests before broadcasting them as one merged request. Zero or negative means that each request is broadcasted right away. */
+	private static final String SYSCONFIG_CoalesceWindowMillis = "de.metas.cache.CacheInvalidationRemoteHandler.CoalesceWindowMillis";
+	private static final int DEFAULT_CoalesceWindowMillis = 50;
+
+	/** If more records of one table are to be broadcasted within one window, we broadcast a "reset all records of this table" instead. */
+	private static final String SYSCONFIG_CollapseToTableThreshold = "de.metas.cache.CacheInvalidationRemoteHandler.CollapseToTableThreshold";
+	private static final int DEFAULT_CollapseToTableThreshold = 100;
+
+	private CacheInvalidateRequestsCoalescer _coalescer;
+	private final AtomicBoolean coalescedRequestsFlushScheduled = new AtomicBoolean(false);
+	private final ScheduledExecutorService coalescedRequestsFlushExecutor = Executors.newSingleThreadScheduledExecutor(CustomizableThreadFactory.builder()
+			.setThreadNamePrefix(CacheInvalidationRemoteHandler.class.getName() + "-FlushExecutor")
+			.setDaemon(true)
+			.build());
+
 	private CacheInvalidationRemoteHandler()
 	{
 	}
@@ -143,7 +163,44 @@ final class CacheInvalidationRemoteHandler implements IEventListener
 			return;
 		}
 
-		// Broadcast the event.
+		final int coalesceWindowMillis = getCoalesceWindowMillis();
+		if (coalesceWindowMillis <= 0)
+		{
+			broadcast(request);
+			return;
+		}
+
+		// Collect the request and broadcast it together with the other requests which we get within the window
+		getCoalescer().add(request);
+		if (!coalescedRequestsFlushScheduled.getAndSet(true))
+		{
+			coalescedRequestsFlushExecutor.schedule(this::flushCoalescedRequests, coalesceWindowMillis, TimeUnit.MILLISECONDS);
+		}
+	}
+
+	private void flushCoalescedRequests()
+	{
+		// NOTE: reset the flag first, so that requests which are added while we flush will schedule a new flush
+		coalescedRequestsFlushScheduled.set(false);
+
+		final CacheInvalidateMultiRequest mergedRequest = getCoalescer().flush();
+		if (mergedRequest == null)
+		{
+			return;
+		}
+
+		try
+		{
+			broadcast(mergedRequest);
+		}
+		catch (final Exception ex)
+		{
+			logger.warn("Failed broadcasting {}. Ignored.", mergedRequest, ex);
+		}
+	}
+
+	private void broadcast(@NonNull final CacheInvalidateMultiRequest request)
+	{
 		final Event event = createEventFromRequest(request);
 		try (final MDCCloseable mdc = EventMDC.putEvent(event))
 		{
@@ -154,6 +211,25 @@ final class CacheInvalidationRemoteHandler implements IEventListener
 		}
 	}
 
+	private synchronized CacheInvalidateRequestsCoalescer getCoalescer()
+	{
+		if (_coalescer == null)
+		{
+			_coalescer = new CacheInvalidateRequestsCoalescer(this::getCollapseToTableThreshold);
+		}
+		return _coalescer;
+	}
+
+	private int getCollapseToTableThreshold()
+	{
+		return Services.get(ISysConfigBL.class).getIntValue(SYSCONFIG_CollapseToTableThreshold, DEFAULT_CollapseToTableThreshold);
+	}
+
+	private int getCoalesceWindowMillis()
+	{
+		return Services.get(ISysConfigBL.class).getIntValue(SYSCONFIG_CoalesceWindowMillis, DEFAULT_CoalesceWindowMillis);
+	}
+
 	private boolean isAllowBroadcast(final CacheInvalidateMultiRequest multiRequest)
 	{
 		return multiRequest.getRequests().stream().anyMatch(this::isAllowBroadcast);
@@ -188,7 +264,8 @@ final class CacheInvalidationRemoteHandler implements IEventListener
 		}
 
 		//
-		// Reset cache for TableName/Record_ID
+		// Reset cache for TableName/Record_ID.
+		// NOTE: the request was usually merged by the sender (see CacheInvalidateRequestsCoalescer), so we are applying it in one go
 		logger.debug("onEvent - resetting local cache for request {} because we got remote event={}", request, event);
 		CacheMgt.get().reset(request, CacheMgt.ResetMode.LOCAL); // don't broadcast it anymore because else we would introduce recursion
 	}
@@ -0,0 +1,121 @@
+package de.metas.cache;
+
+/*
+ * #%L
+ * de.metas.adempiere.adempiere.base
+ * %%
+ * Copyright (C) 2020 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+import javax.annotation.Nullable;
+
+import lombok.NonNull;
+
+/**
+ * Keeps track of the keys of a {@link CCache.CacheMapType#TinyLFU} cache, so that eviction candidates can be sampled at random in O(1).
+ * <p>
+ * The guava cache does not support random access to its keys, and always taking the first keys of its iterator
+ * would evict the same few entries over and over while cold entries in other segments would never be considered.
+ */
+final class CacheKeySampler<K>
+{
+	private final ArrayList<K> keys = new ArrayList<>();
+	private final Map<K, Integer> indexByKey = new HashMap<>();
+
+	public synchronized void add(@NonNull final K key)
+	{
+		if (indexByKey.containsKey(key))
+		{
+			return;
+		}
+
+		indexByKey.put(key, keys.size());
+		keys.add(key);
+	}
+
+	public synchronized void remove(@NonNull final Object key)
+	{
+		final Integer index = indexByKey.remove(key);
+		if (index == null)
+		{
+			return;
+		}
+
+		// swap with the last key, so that removing is O(1)
+		final int lastIndex = keys.size() - 1;
+		final K lastKey = keys.remove(lastIndex);
+		if (index != lastIndex)
+		{
+			keys.set(index, lastKey);
+			indexByKey.put(lastKey, index);
+		}
+	}
+
+	public synchronized void clear()
+	{
+		keys.clear();
+		indexByKey.clear();
+	}
+
+	public synchronized int size()
+	{
+		return keys.size();
+	}
+
+	/**
+	 * @return up to {@code sampleSize} randomly chosen keys, never including {@code keyToExclude}
+	 */
+	public synchronized List<K> sample(final int sampleSize, @Nullable final Object keyToExclude)
+	{
+		final int size = keys.size();
+		if (size == 0)
+		{
+			return new ArrayList<>();
+		}
+
+		final List<K> sample = new ArrayList<>(Math.min(sampleSize, size));
+		if (size <= sampleSize)
+		{
+			for (final K key : keys)
+			{
+				if (!key.equals(keyToExclude))
+				{
+					sample.add(key);
+				}
+			}
+			return sample;
+		}
+
+		final ThreadLocalRandom random = ThreadLocalRandom.current();
+		for (int i = 0; i < sampleSize; i++)
+		{
+			final K key = keys.get(random.nextInt(size));
+			if (!key.equals(keyToExclude))
+			{
+				sample.add(key);
+			}
+		}
+		return sample;
+	}
+}
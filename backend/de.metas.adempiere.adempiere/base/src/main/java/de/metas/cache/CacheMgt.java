@@ -17,6 +17,10 @@
 package de.metas.cache;
 
 import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
@@ -48,6 +52,7 @@ import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.MapMaker;
 import com.google.common.collect.Maps;
 
+import de.metas.cache.CCache.CCacheStats;
 import de.metas.cache.model.CacheInvalidateMultiRequest;
 import de.metas.cache.model.CacheInvalidateRequest;
 import de.metas.logging.LogManager;
@@ -78,6 +83,7 @@ public final class CacheMgt
 	public static final String JMX_BASE_NAME = "de.metas.cache";
 
 	private final ConcurrentHashMap<CacheLabel, CachesGroup> cachesByLabel = new ConcurrentHashMap<>();
+	private final ConcurrentHashMap<CacheLabel, CacheWeightBudget> weightBudgetsByLabel = new ConcurrentHashMap<>();
 
 	private final CopyOnWriteArrayList<ICacheResetListener> globalCacheResetListeners = new CopyOnWriteArrayList<>();
 	private final ConcurrentMap<String, CopyOnWriteArrayList<ICacheResetListener>> cacheResetListenersByTableName = new ConcurrentHashMap<>();
@@ -119,6 +125,17 @@ public final class CacheMgt
 		return cachesByLabel.get(label);
 	}
 
+	/**
+	 * @return the memory budget which is shared by all {@link CCache.CacheMapType#TinyLFU} caches with the given label.
+	 *         If the caches are declaring different budgets, the biggest one is used.
+	 */
+	/* package */ CacheWeightBudget getWeightBudget(@NonNull final CacheLabel label, final long maximumWeightInBytes)
+	{
+		final CacheWeightBudget weightBudget = weightBudgetsByLabel.computeIfAbsent(label, k -> new CacheWeightBudget(k.getName(), maximumWeightInBytes));
+		weightBudget.raiseMaximumWeightTo(maximumWeightInBytes);
+		return weightBudget;
+	}
+
 	public void register(@NonNull final CacheInterface instance)
 	{
 		try (final IAutoCloseable ignored = CacheMDC.putCache(instance))
@@ -391,48 +408,60 @@ public final class CacheMgt
 			return reset();
 		}
 
-		int total = 0;
+		//
+		// Collect what to invalidate first, so that each caches group is invalidated at most once per table
+		// and single records are skipped if their table's caches are invalidated anyways.
+		final Set<String> allRecordsTableNames = new LinkedHashSet<>();
+		final Set<TableRecordReference> records = new LinkedHashSet<>();
 		for (final CacheInvalidateRequest request : multiRequest.getRequests())
 		{
-			final long totalPerRequest = invalidateForRequest(request);
-			total += totalPerRequest;
-		}
-
-		return total;
-	}
-
-	private long invalidateForRequest(@NonNull final CacheInvalidateRequest request)
-	{
-		if (request.isAllRecords())
-		{
-			final CacheLabel label = CacheLabel.ofTableName(request.getTableNameEffective());
-			try (final MDCCloseable ignored = CacheMDC.putCacheLabel(label))
+			if (request.isAllRecords())
 			{
-				final CachesGroup cachesGroup = getCachesGroupIfPresent(label);
-				if (cachesGroup == null)
+				allRecordsTableNames.add(request.getTableNameEffective());
+			}
+			else
+			{
+				final TableRecordReference childRecordRef = request.getChildRecordOrNull();
+				if (childRecordRef != null)
 				{
-					return 0;
+					records.add(childRecordRef);
+				}
+				final TableRecordReference rootRecordRef = request.getRootRecordOrNull();
+				if (rootRecordRef != null)
+				{
+					records.add(rootRecordRef);
 				}
-
-				return cachesGroup.invalidateAllNoFail();
 			}
 		}
-		else
-		{
-			long resetCount = 0;
 
-			final TableRecordReference childRecordRef = request.getChildRecordOrNull();
-			if (childRecordRef != null)
+		long total = 0;
+		for (final String tableName : allRecordsTableNames)
+		{
+			total += invalidateAllForTable(tableName);
+		}
+		for (final TableRecordReference recordRef : records)
+		{
+			if (!allRecordsTableNames.contains(recordRef.getTableName()))
 			{
-				resetCount += invalidateForRecord(childRecordRef);
+				total += invalidateForRecord(recordRef);
 			}
-			final TableRecordReference rootRecordRef = request.getRootRecordOrNull();
-			if (rootRecordRef != null)
+		}
+
+		return total;
+	}
+
+	private long invalidateAllForTable(@NonNull final String tableName)
+	{
+		final CacheLabel label = CacheLabel.ofTableName(tableName);
+		try (final MDCCloseable ignored = CacheMDC.putCacheLabel(label))
+		{
+			final CachesGroup cachesGroup = getCachesGroupIfPresent(label);
+			if (cachesGroup == null)
 			{
-				resetCount += invalidateForRecord(rootRecordRef);
+				return 0;
 			}
 
-			return resetCount;
+			return cachesGroup.invalidateAllNoFail();
 		}
 	}
 
@@ -462,6 +491,40 @@ public final class CacheMgt
 				.sum();
 	}
 
+	/**
+	 * @return statistics of all registered {@link CCache}s, sorted by estimated memory footprint (biggest first)
+	 */
+	public List<CCacheStats> getCacheStats()
+	{
+		return streamDistinctCaches()
+				.filter(cache -> cache instanceof CCache)
+				.map(cache -> ((CCache<?, ?>)cache).stats())
+				.sorted(Comparator.comparing(CCacheStats::getEstimatedBytes).reversed())
+				.collect(ImmutableList.toImmutableList());
+	}
+
+	/**
+	 * @return estimated memory footprint of all registered {@link CCache}s which are tracking the weight of their entries, in bytes
+	 */
+	public long computeTotalEstimatedBytes()
+	{
+		return streamDistinctCaches()
+				.filter(cache -> cache instanceof CCache)
+				.mapToLong(cache -> ((CCache<?, ?>)cache).getEstimatedBytes())
+				.filter(estimatedBytes -> estimatedBytes != CCache.ESTIMATED_BYTES_Unknown)
+				.sum();
+	}
+
+	/** NOTE: a cache can be registered with more than one label */
+	private Stream<CacheInterface> streamDistinctCaches()
+	{
+		final Set<Long> seenCacheIds = new HashSet<>();
+		return cachesByLabel.values()
+				.stream()
+				.flatMap(CachesGroup::streamCaches)
+				.filter(cache -> seenCacheIds.add(cache.getCacheId()));
+	}
+
 	/**
 	 * String Representation
 	 */
@@ -629,7 +692,7 @@ public final class CacheMgt
 			}
 		}
 
-		private Stream<CacheInterface> streamCaches()
+		public Stream<CacheInterface> streamCaches()
 		{
 			return caches.values()
 					.stream()
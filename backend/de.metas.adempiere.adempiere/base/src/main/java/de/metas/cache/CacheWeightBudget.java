@@ -0,0 +1,118 @@
+package de.metas.cache;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.google.common.base.MoreObjects;
+import com.google.common.collect.MapMaker;
+
+import lombok.NonNull;
+
+/*
+ * #%L
+ * de.metas.adempiere.adempiere.base
+ * %%
+ * Copyright (C) 2020 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+/**
+ * Memory budget which is shared by all {@link CCache.CacheMapType#TinyLFU} caches with the same {@link CacheLabel}, see {@link CacheMgt#getWeightBudget(CacheLabel, long)}.
+ * <p>
+ * Space is reserved with a compare-and-set <b>before</b> an entry is added, so concurrent puts can't overshoot the budget.
+ */
+final class CacheWeightBudget
+{
+	private final String name;
+	private final AtomicLong maximumWeight;
+	private final AtomicLong weightedSize = new AtomicLong(0);
+
+	/** The caches which are sharing this budget and from which eviction victims are sampled */
+	private final Set<CCache<?, ?>> caches = Collections.newSetFromMap(new MapMaker().weakKeys().makeMap());
+
+	CacheWeightBudget(@NonNull final String name, final long maximumWeight)
+	{
+		this.name = name;
+		this.maximumWeight = new AtomicLong(maximumWeight);
+	}
+
+	@Override
+	public String toString()
+	{
+		return MoreObjects.toStringHelper(this)
+				.add("name", name)
+				.add("weightedSize", weightedSize.get())
+				.add("maximumWeight", maximumWeight.get())
+				.add("caches", caches.size())
+				.toString();
+	}
+
+	/**
+	 * If caches with the same label are declaring different budgets, the biggest one is used.
+	 */
+	void raiseMaximumWeightTo(final long maximumWeight)
+	{
+		this.maximumWeight.accumulateAndGet(maximumWeight, Math::max);
+	}
+
+	long getMaximumWeight()
+	{
+		return maximumWeight.get();
+	}
+
+	long getWeightedSize()
+	{
+		return weightedSize.get();
+	}
+
+	void addCache(@NonNull final CCache<?, ?> cache)
+	{
+		caches.add(cache);
+	}
+
+	List<CCache<?, ?>> getCaches()
+	{
+		return new ArrayList<>(caches);
+	}
+
+	/**
+	 * @return {@code true} if the given weight fits into the budget and was reserved
+	 */
+	boolean tryReserve(final long weight)
+	{
+		while (true)
+		{
+			final long current = weightedSize.get();
+			if (current + weight > maximumWeight.get())
+			{
+				return false;
+			}
+			if (weightedSize.compareAndSet(current, current + weight))
+			{
+				return true;
+			}
+		}
+	}
+
+	void release(final long weight)
+	{
+		weightedSize.addAndGet(-weight);
+	}
+}
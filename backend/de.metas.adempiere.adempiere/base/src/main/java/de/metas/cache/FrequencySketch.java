@@ -0,0 +1,111 @@
+package de.metas.cache;
+
+/*
+ * #%L
+ * de.metas.adempiere.adempiere.base
+ * %%
+ * Copyright (C) 2020 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+/**
+ * Count-min sketch which estimates how often a given key was accessed recently.
+ * <p>
+ * Counters are 4 bits wide (i.e. saturate at 15) and are halved periodically, so the frequency of keys which are no longer accessed decays over time.
+ * This is the "TinyLFU" part of the admission policy used by {@link CCache.CacheMapType#TinyLFU}.
+ * <p>
+ * NOTE: this class is not synchronized on purpose. Concurrent increments can get lost, which is acceptable for a frequency estimation.
+ */
+final class FrequencySketch
+{
+	private static final int DEPTH = 4;
+	private static final int MAX_COUNT = 15;
+	private static final int MAX_EXPECTED_ENTRIES = 1 << 20;
+	private static final int[] SEEDS = { 0x97cb3127, 0x8fd2a6d7, 0xe6546b64, 0x5bd1e995 };
+
+	private final byte[][] table;
+	private final int widthMask;
+	private final int sampleSize;
+	private int additions = 0;
+
+	FrequencySketch(final int expectedEntries)
+	{
+		// 4 counters per row and expected entry, to keep the collisions (i.e. overestimations) low
+		final int width = (Integer.highestOneBit(Math.min(Math.max(expectedEntries, 16), MAX_EXPECTED_ENTRIES) - 1) << 1) * 4;
+		this.table = new byte[DEPTH][width];
+		this.widthMask = width - 1;
+		this.sampleSize = 10 * width;
+	}
+
+	public void increment(final Object key)
+	{
+		final int hash = spread(key.hashCode());
+
+		boolean added = false;
+		for (int i = 0; i < DEPTH; i++)
+		{
+			final int index = indexOf(hash, i);
+			if (table[i][index] < MAX_COUNT)
+			{
+				table[i][index]++;
+				added = true;
+			}
+		}
+
+		if (added && ++additions >= sampleSize)
+		{
+			halveAllCounters();
+		}
+	}
+
+	public int frequency(final Object key)
+	{
+		final int hash = spread(key.hashCode());
+
+		int frequency = MAX_COUNT;
+		for (int i = 0; i < DEPTH; i++)
+		{
+			frequency = Math.min(frequency, table[i][indexOf(hash, i)]);
+		}
+		return frequency;
+	}
+
+	private void halveAllCounters()
+	{
+		for (final byte[] row : table)
+		{
+			for (int j = 0; j < row.length; j++)
+			{
+				row[j] = (byte)(row[j] >>> 1);
+			}
+		}
+		additions = additions / 2;
+	}
+
+	private int indexOf(final int hash, final int row)
+	{
+		int h = (hash ^ SEEDS[row]) * 0x9e3779b9;
+		h ^= h >>> 16;
+		return h & widthMask;
+	}
+
+	private static int spread(final int hashCode)
+	{
+		final int h = hashCode * 0x85ebca6b;
+		return h ^ (h >>> 13);
+	}
+}
@@ -101,4 +101,25 @@ public class JMXCacheMgt implements JMXCacheMgtMBean, IJMXNameAware
 		return getCacheMgt().reset(tableName, recordId);
 	}
 
+	@Override
+	public String[] getCacheStats()
+	{
+		return getCacheMgt()
+				.getCacheStats()
+				.stream()
+				.map(stats -> String.format("%s (id=%d): size=%d, hitRate=%s, estimatedBytes=%d",
+						stats.getName(),
+						stats.getCacheId(),
+						stats.getSize(),
+						stats.isStatsRecorded() ? String.format("%.2f%%", stats.getHitRate() * 100) : "not recorded",
+						stats.getEstimatedBytes()))
+				.toArray(size -> new String[size]);
+	}
+
+	@Override
+	public long getTotalEstimatedBytes()
+	{
+		return getCacheMgt().computeTotalEstimatedBytes();
+	}
+
 }
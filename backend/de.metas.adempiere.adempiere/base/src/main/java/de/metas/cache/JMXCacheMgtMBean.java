@@ -25,4 +25,11 @@ public interface JMXCacheMgtMBean
 	long resetForTable(String tableName);
 
 	long resetForRecordId(String tableName, int recordId);
+
+	/**
+	 * @return one line per cache, containing the cache's size, hit rate and estimated memory footprint
+	 */
+	String[] getCacheStats();
+
+	long getTotalEstimatedBytes();
 }
@@ -33,6 +33,8 @@ import java.util.Set;
 import java.util.UUID;
 import java.util.function.Supplier;
 
+import javax.annotation.Nullable;
+
 import org.adempiere.exceptions.AdempiereException;
 import org.adempiere.util.lang.ITableRecordReference;
 import org.compiere.util.DisplayType;
@@ -76,6 +78,7 @@ public final class Event
 
 	private static final String PROPERTY_Record = "record";
 	public static final String PROPERTY_SuggestedWindowId = "suggestedWindowId";
+	private static final String PROPERTY_CoalesceKey = "coalesceKey";
 
 	// put this first, because this is imho the most interesting part of the event's json representation, at least when shown in the event log
 	@JsonProperty("properties")
@@ -218,6 +221,15 @@ public final class Event
 		return getPropertyAsInt(PROPERTY_SuggestedWindowId, 0);
 	}
 
+	/**
+	 * @return key by which queued events can be replaced by newer ones, see {@link EventBusOverflowPolicy#COALESCE_BY_KEY}; {@code null} if the event shall never be coalesced
+	 */
+	@Nullable
+	public String getCoalesceKey()
+	{
+		return getPropertyAsString(PROPERTY_CoalesceKey);
+	}
+
 	/**
 	 *
 	 * @param name
@@ -627,6 +639,12 @@ public final class Event
 			return this;
 		}
 
+		public Builder setCoalesceKey(final String coalesceKey)
+		{
+			putProperty(PROPERTY_CoalesceKey, coalesceKey);
+			return this;
+		}
+
 		public Builder wasLogged()
 		{
 			this.loggingStatus = LoggingStatus.WAS_LOGGED;
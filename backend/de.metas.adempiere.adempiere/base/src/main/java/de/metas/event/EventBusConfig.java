@@ -26,6 +26,8 @@ import java.lang.management.ManagementFactory;
 import java.util.Map;
 import java.util.UUID;
 
+import javax.annotation.Nullable;
+
 import org.adempiere.service.ClientId;
 import org.adempiere.service.ISysConfigBL;
 import org.compiere.Adempiere;
@@ -34,6 +36,7 @@ import org.slf4j.Logger;
 import de.metas.logging.LogManager;
 import de.metas.organization.OrgId;
 import de.metas.util.Check;
+import de.metas.util.NumberUtils;
 import de.metas.util.Services;
 import de.metas.util.StringUtils;
 import lombok.NonNull;
@@ -131,6 +134,67 @@ public final class EventBusConfig
 		return StringUtils.toBoolean(standardValue, false);
 	}
 
+	/**
+	 * @return the ring buffer config, if the given topic's async event bus shall dispatch its events through a bounded ring buffer;
+	 *         {@code null} if events shall be handed over to an unbounded executor queue
+	 */
+	@Nullable
+	public static EventBusRingBufferConfig getRingBufferConfigOrNull(@NonNull final Topic topic)
+	{
+		final String prefix = "de.metas.event.asyncEventBus.ringBuffer";
+		final Map<String, String> valuesForPrefix = Services.get(ISysConfigBL.class).getValuesForPrefix(prefix, ClientId.SYSTEM.getRepoId(), OrgId.ANY.getRepoId());
+
+		final int capacity = NumberUtils.asInt(getValueForTopic(valuesForPrefix, prefix + ".capacity", topic), 0);
+		if (capacity <= 0)
+		{
+			return null;
+		}
+
+		final String overflowPolicyStr = getValueForTopic(valuesForPrefix, prefix + ".overflowPolicy", topic);
+		final EventBusOverflowPolicy overflowPolicy = toOverflowPolicy(overflowPolicyStr, topic);
+
+		return EventBusRingBufferConfig.builder()
+				.capacity(capacity)
+				.overflowPolicy(overflowPolicy)
+				.maxBatchSize(NumberUtils.asInt(getValueForTopic(valuesForPrefix, prefix + ".maxBatchSize", topic), 100))
+				.build();
+	}
+
+	/**
+	 * @return the overflow policy with the given name; {@link EventBusOverflowPolicy#BLOCK} if the name is blank or unknown, so that a misconfiguration does not prevent the event bus from being created
+	 */
+	private static EventBusOverflowPolicy toOverflowPolicy(@Nullable final String overflowPolicyStr, @NonNull final Topic topic)
+	{
+		if (Check.isBlank(overflowPolicyStr))
+		{
+			return EventBusOverflowPolicy.BLOCK;
+		}
+
+		try
+		{
+			return EventBusOverflowPolicy.valueOf(overflowPolicyStr.trim());
+		}
+		catch (final IllegalArgumentException ex)
+		{
+			getLogger(EventBusConfig.class).warn("Invalid overflow policy `{}` configured for {}. Using {}", overflowPolicyStr, topic, EventBusOverflowPolicy.BLOCK);
+			return EventBusOverflowPolicy.BLOCK;
+		}
+	}
+
+	/**
+	 * @return the value of {@code <name>.topic_<topicName>} or, if not set, the value of {@code <name>}
+	 */
+	@Nullable
+	private static String getValueForTopic(final Map<String, String> values, final String name, final Topic topic)
+	{
+		final String valueForTopic = values.get(name + ".topic_" + topic.getName());
+		if (Check.isNotBlank(valueForTopic))
+		{
+			return valueForTopic;
+		}
+		return values.get(name);
+	}
+
 	public static boolean isMonitorIncomingEvents()
 	{
 		return Services.get(ISysConfigBL.class).getBooleanValue("de.metas.event.MonitorIncomingEvents", false);
@@ -0,0 +1,43 @@
+package de.metas.event;
+
+/*
+ * #%L
+ * de.metas.adempiere.adempiere.base
+ * %%
+ * Copyright (C) 2020 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+/**
+ * What to do when an event is posted to an async event bus whose ring buffer is full.
+ *
+ * @see EventBusRingBufferConfig
+ */
+public enum EventBusOverflowPolicy
+{
+	/** The posting thread waits until there is room in the buffer. */
+	BLOCK,
+
+	/** The oldest queued event is discarded to make room for the new one. */
+	DROP_OLDEST,
+
+	/**
+	 * If an event with the same {@link Event#getCoalesceKey()} is still queued, it's replaced by the new one, without taking additional room.
+	 * Events without a coalesce key or which can't be coalesced are handled like {@link #BLOCK}.
+	 */
+	COALESCE_BY_KEY,
+}
@@ -0,0 +1,60 @@
+package de.metas.event;
+
+import lombok.Builder;
+import lombok.NonNull;
+import lombok.Value;
+
+/*
+ * #%L
+ * de.metas.adempiere.adempiere.base
+ * %%
+ * Copyright (C) 2020 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+/**
+ * Configures the bounded ring buffer which is used to dispatch the events of an async event bus.
+ *
+ * @see EventBusConfig#getRingBufferConfigOrNull(Topic)
+ */
+@Value
+@Builder
+public class EventBusRingBufferConfig
+{
+	int capacity;
+
+	@NonNull
+	EventBusOverflowPolicy overflowPolicy;
+
+	/** How many queued events are delivered at once to {@link IBatchEventListener}s */
+	int maxBatchSize;
+
+	private EventBusRingBufferConfig(
+			final int capacity,
+			@NonNull final EventBusOverflowPolicy overflowPolicy,
+			final int maxBatchSize)
+	{
+		if (capacity <= 0)
+		{
+			throw new IllegalArgumentException("capacity shall be greater than zero: " + capacity);
+		}
+
+		this.capacity = capacity;
+		this.overflowPolicy = overflowPolicy;
+		this.maxBatchSize = maxBatchSize > 0 ? maxBatchSize : 1;
+	}
+}
@@ -32,6 +32,16 @@ public class EventBusStats
 	long eventsEnqueued;
 	long eventsDequeued;
 
+	/** Ring buffer capacity; zero if the bus is not using a ring buffer */
+	int queueCapacity;
+	/** How many events are currently waiting in the ring buffer */
+	int queueDepth;
+	long eventsDropped;
+	long eventsCoalesced;
+	/** How long the oldest queued event is waiting, or, if nothing is queued, how long the last delivered events were waiting */
+	long lagMillis;
+	long maxLagMillis;
+
 	public long getEventsToDequeue()
 	{
 		return getEventsEnqueued() - getEventsDequeued();
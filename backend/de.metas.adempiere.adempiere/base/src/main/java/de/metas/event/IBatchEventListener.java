@@ -0,0 +1,48 @@
+package de.metas.event;
+
+import java.util.List;
+
+import com.google.common.collect.ImmutableList;
+
+/*
+ * #%L
+ * de.metas.adempiere.adempiere.base
+ * %%
+ * Copyright (C) 2020 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+/**
+ * Event listener which can process multiple events at once.
+ * <p>
+ * If the event bus dispatches its events through a ring buffer (see {@link EventBusRingBufferConfig}),
+ * the listener gets all events which are queued at the time, up to {@link EventBusRingBufferConfig#getMaxBatchSize()}.
+ * Else it's called with one event at a time.
+ */
+public interface IBatchEventListener extends IEventListener
+{
+	/**
+	 * @param events received events, in the order they were posted; never empty
+	 */
+	void onEvents(IEventBus eventBus, List<Event> events);
+
+	@Override
+	default void onEvent(final IEventBus eventBus, final Event event)
+	{
+		onEvents(eventBus, ImmutableList.of(event));
+	}
+}
@@ -1,6 +1,8 @@
 package de.metas.event.impl;
 
 import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 /*
  * #%L
@@ -25,23 +27,27 @@ import java.util.IdentityHashMap;
  */
 
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
 
 import javax.annotation.Nullable;
 
+import org.adempiere.exceptions.AdempiereException;
 import org.compiere.Adempiere;
 import org.compiere.SpringContextHolder;
 import org.slf4j.Logger;
 import org.slf4j.MDC.MDCCloseable;
 
 import com.google.common.base.MoreObjects;
-import com.google.common.eventbus.AsyncEventBus;
+import com.google.common.collect.ImmutableList;
 import com.google.common.eventbus.Subscribe;
 import com.google.common.eventbus.SubscriberExceptionHandler;
 
 import de.metas.event.Event;
 import de.metas.event.EventBusConfig;
+import de.metas.event.EventBusRingBufferConfig;
 import de.metas.event.EventBusStats;
+import de.metas.event.IBatchEventListener;
 import de.metas.event.IEventBus;
 import de.metas.event.IEventListener;
 import de.metas.event.Type;
@@ -90,33 +96,58 @@ final class EventBus implements IEventBus
 
 	private final ExecutorService executorOrNull;
 
+	/**
+	 * If not null, posted events are queued here and delivered by one dispatcher thread running on {@link #executorOrNull}.
+	 */
+	@Nullable
+	private final EventRingBuffer ringBuffer;
+	private final int maxBatchSize;
+	/** Listeners which get the events in batches. Used only if we have a {@link #ringBuffer}; else batch listeners are registered like any other listener. */
+	private final CopyOnWriteArrayList<IBatchEventListener> batchListeners = new CopyOnWriteArrayList<>();
+	private volatile Thread dispatcherThread;
+
 	private final EventBusStatsCollector stats;
 
 	/**
-	 * @param executor if not null, the system creates an {@link AsyncEventBus}; also, it shuts down this executor on {@link #destroy()}
+	 * @param executor if not null, the system creates an async event bus; also, it shuts down this executor on {@link #destroy()}
+	 * @param ringBufferConfig if not null and if we have an executor, the events are dispatched through a bounded ring buffer
+	 *            instead of the executor's unbounded queue
 	 */
 	public EventBus(
 			@NonNull final String topicName,
-			@Nullable final ExecutorService executor)
+			@Nullable final ExecutorService executor,
+			@Nullable final EventBusRingBufferConfig ringBufferConfig)
 	{
 		Check.assumeNotEmpty(topicName, "name not empty");
 
 		this.executorOrNull = executor;
 		this.topicName = topicName;
+		this.stats = new EventBusStatsCollector();
 
 		if (executor == null)
 		{
 			this.eventBus = new com.google.common.eventbus.EventBus(exceptionHandler);
 			this.async = false;
+			this.ringBuffer = null;
+			this.maxBatchSize = 1;
+		}
+		else if (ringBufferConfig != null)
+		{
+			// the listeners are invoked synchronously, but on our dispatcher thread
+			this.eventBus = new com.google.common.eventbus.EventBus(exceptionHandler);
+			this.async = true;
+			this.ringBuffer = new EventRingBuffer(ringBufferConfig);
+			this.maxBatchSize = ringBufferConfig.getMaxBatchSize();
 
+			executor.execute(this::dispatchQueuedEvents);
 		}
 		else
 		{
 			this.eventBus = new com.google.common.eventbus.AsyncEventBus(executor, exceptionHandler);
 			this.async = true;
+			this.ringBuffer = null;
+			this.maxBatchSize = 1;
 		}
-
-		this.stats = new EventBusStatsCollector();
 	}
 
 	@Override
@@ -127,6 +158,7 @@ final class EventBus implements IEventBus
 				.add("topicName", topicName)
 				.add("type", type)
 				.add("destroyed", destroyed ? Boolean.TRUE : null)
+				.add("ringBuffer", ringBuffer)
 				.toString();
 	}
 
@@ -143,6 +175,11 @@ final class EventBus implements IEventBus
 		this.destroyed = true;
 		this.eventBus = null;
 
+		if (ringBuffer != null)
+		{
+			ringBuffer.close();
+		}
+
 		if (executorOrNull != null)
 		{
 			executorOrNull.shutdown(); // not 100% sure it's needed, but better safe than sorry
@@ -173,6 +210,13 @@ final class EventBus implements IEventBus
 			return;
 		}
 
+		if (ringBuffer != null && listener instanceof IBatchEventListener)
+		{
+			batchListeners.addIfAbsent((IBatchEventListener)listener);
+			logger.debug("registered batch listener; Listener: {}; Bus:\n{}", listener, this);
+			return;
+		}
+
 		final GuavaEventListenerAdapter listenerAdapter = new GuavaEventListenerAdapter(listener);
 
 		subscribedEventListener2GuavaListener.put(listener, listenerAdapter);
@@ -191,6 +235,12 @@ final class EventBus implements IEventBus
 			return;
 		}
 
+		if (listener instanceof IBatchEventListener && batchListeners.remove(listener))
+		{
+			logger.debug("unregistered batch listener; Listener: {}; Bus:\n{}", listener, this);
+			return;
+		}
+
 		final GuavaEventListenerAdapter listenerAdapter = subscribedEventListener2GuavaListener.get(listener);
 		if (listenerAdapter == null)
 		{
@@ -247,12 +297,199 @@ final class EventBus implements IEventBus
 			}
 
 			logger.debug("{} - Posting event: {}", this, eventToPost);
-			eventBus.post(eventToPost);
+			if (ringBuffer != null)
+			{
+				if (!enqueue(eventToPost))
+				{
+					final com.google.common.eventbus.EventBus eventBus = this.eventBus;
+					if (destroyed || eventBus == null)
+					{
+						logger.warn("Bus was destroyed while posting the event. Ignored. \n Bus: {} \n Event: {}", this, event);
+						return;
+					}
+
+					// the dispatcher thread failed, so we deliver on the caller's thread
+					stats.incrementEventsDequeued(1);
+					dispatch(eventBus, ImmutableList.of(eventToPost));
+				}
+			}
+			else
+			{
+				eventBus.post(eventToPost);
+			}
 
 			stats.incrementEventsEnqueued();
 		}
 	}
 
+	/**
+	 * @return false if the ring buffer was closed in meantime
+	 */
+	private boolean enqueue(@NonNull final Event event)
+	{
+		// a listener which posts to its own bus must not wait for the dispatcher thread, i.e. for itself
+		final boolean mayBlock = Thread.currentThread() != dispatcherThread;
+
+		try
+		{
+			return ringBuffer.put(event, mayBlock);
+		}
+		catch (final InterruptedException ex)
+		{
+			Thread.currentThread().interrupt();
+			throw AdempiereException.wrapIfNeeded(ex);
+		}
+	}
+
+	/**
+	 * Runs on the dispatcher thread as long as this bus is not destroyed.
+	 */
+	private void dispatchQueuedEvents()
+	{
+		dispatcherThread = Thread.currentThread();
+
+		// keep our own reference because the field is reset on destroy, but we still deliver what was already queued
+		final com.google.common.eventbus.EventBus eventBus = this.eventBus;
+
+		try
+		{
+			while (true)
+			{
+				final List<Event> batch = ringBuffer.takeBatch(maxBatchSize, 1, TimeUnit.MINUTES);
+				if (batch.isEmpty())
+				{
+					if (ringBuffer.isClosed())
+					{
+						break;
+					}
+					continue;
+				}
+
+				stats.incrementEventsDequeued(batch.size());
+
+				try
+				{
+					dispatch(eventBus, batch);
+				}
+				catch (final Throwable ex)
+				{
+					// e.g. an Error thrown by a listener; the dispatcher thread shall not die because of it
+					logger.error("Failed dispatching {} events. Continuing with the next ones. \n Bus: {}", batch.size(), this, ex);
+				}
+			}
+		}
+		catch (final InterruptedException ex)
+		{
+			Thread.currentThread().interrupt();
+		}
+		catch (final Throwable ex)
+		{
+			logger.error("Dispatcher thread failed \n Bus: {}", this, ex);
+		}
+		finally
+		{
+			// if we stopped for any other reason than the bus being destroyed, nobody would take the queued events anymore
+			// and posters would wait forever (BLOCK policy); so we close the ring buffer and postEvent() delivers on the caller's thread from now on
+			if (!ringBuffer.isClosed())
+			{
+				logger.warn("{} - Dispatcher thread stopped unexpectedly. Events will be delivered on the posting threads from now on.", this);
+				ringBuffer.close();
+				dispatchRemainingEvents(eventBus);
+			}
+
+			logger.debug("{} - Dispatcher thread stopped", this);
+		}
+	}
+
+	/**
+	 * Delivers the events which were queued before the ring buffer was closed.
+	 */
+	private void dispatchRemainingEvents(final com.google.common.eventbus.EventBus eventBus)
+	{
+		// NOTE: if we were interrupted, we still want to take the remaining events
+		final boolean interrupted = Thread.interrupted();
+		try
+		{
+			while (true)
+			{
+				final List<Event> batch = ringBuffer.takeBatch(maxBatchSize, 0, TimeUnit.MILLISECONDS);
+				if (batch.isEmpty())
+				{
+					return;
+				}
+
+				stats.incrementEventsDequeued(batch.size());
+				dispatch(eventBus, batch);
+			}
+		}
+		catch (final Throwable ex)
+		{
+			logger.error("Failed dispatching the remaining queued events \n Bus: {}", this, ex);
+		}
+		finally
+		{
+			if (interrupted)
+			{
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+	private void dispatch(
+			@NonNull final com.google.common.eventbus.EventBus eventBus,
+			@NonNull final List<Event> batch)
+	{
+		for (final Event event : batch)
+		{
+			eventBus.post(event);
+		}
+
+		for (final IBatchEventListener batchListener : batchListeners)
+		{
+			invokeBatchEventListener(batchListener, batch);
+		}
+	}
+
+	private void invokeBatchEventListener(
+			@NonNull final IBatchEventListener batchListener,
+			@NonNull final List<Event> batch)
+	{
+		// events which were logged need their own log entry collector, so those are delivered one by one
+		int chunkStart = 0;
+		for (int i = 0; i < batch.size(); i++)
+		{
+			final Event event = batch.get(i);
+			if (event.isWasLogged())
+			{
+				invokeBatchEventListenerWithoutLogging(batchListener, batch.subList(chunkStart, i));
+				invokeEventListener(batchListener, event);
+				chunkStart = i + 1;
+			}
+		}
+
+		invokeBatchEventListenerWithoutLogging(batchListener, batch.subList(chunkStart, batch.size()));
+	}
+
+	private void invokeBatchEventListenerWithoutLogging(
+			@NonNull final IBatchEventListener batchListener,
+			@NonNull final List<Event> events)
+	{
+		if (events.isEmpty())
+		{
+			return;
+		}
+
+		try
+		{
+			logger.debug("invokeBatchEventListener - eventListener to invoke={}, events count={}", batchListener, events.size());
+			batchListener.onEvents(this, ImmutableList.copyOf(events));
+		}
+		catch (final RuntimeException ex)
+		{
+			logger.error("Could not dispatch {} events to {} \n Bus: {}", events.size(), batchListener, this, ex);
+		}
+	}
+
 	private static class TypedConsumerAsEventListener<T> implements IEventListener
 	{
 		@NonNull
@@ -296,7 +533,10 @@ final class EventBus implements IEventBus
 		@Subscribe
 		public void onEvent(@NonNull final Event event)
 		{
-			stats.incrementEventsDequeued();
+			if (ringBuffer == null)
+			{
+				stats.incrementEventsDequeued(1);
+			}
 
 			try (final MDCCloseable mdc = EventMDC.putEvent(event))
 			{
@@ -347,6 +587,6 @@ final class EventBus implements IEventBus
 	@Override
 	public EventBusStats getStats()
 	{
-		return stats.snapshot();
+		return stats.snapshot(ringBuffer != null ? ringBuffer.getStats() : null);
 	}
 }
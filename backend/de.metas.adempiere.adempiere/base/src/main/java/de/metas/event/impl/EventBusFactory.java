@@ -26,6 +26,7 @@ import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.SetMultimap;
 
 import de.metas.event.EventBusConfig;
+import de.metas.event.EventBusRingBufferConfig;
 import de.metas.event.IEventBus;
 import de.metas.event.IEventBusFactory;
 import de.metas.event.IEventListener;
@@ -138,7 +139,9 @@ public class EventBusFactory implements IEventBusFactory
 	private EventBus createEventBus(@NonNull final Topic topic)
 	{
 		// Create the event bus
-		final EventBus eventBus = new EventBus(topic.getName(), createExecutorOrNull(topic));
+		final ExecutorService executor = createExecutorOrNull(topic);
+		final EventBusRingBufferConfig ringBufferConfig = executor != null ? EventBusConfig.getRingBufferConfigOrNull(topic) : null;
+		final EventBus eventBus = new EventBus(topic.getName(), executor, ringBufferConfig);
 
 		// Bind the EventBus to remote endpoint (only if the system is enabled).
 		// If is not enabled we will use only local event buses,
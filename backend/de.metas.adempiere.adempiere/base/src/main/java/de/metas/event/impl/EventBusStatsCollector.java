@@ -2,6 +2,8 @@ package de.metas.event.impl;
 
 import java.util.concurrent.atomic.AtomicLong;
 
+import javax.annotation.Nullable;
+
 import de.metas.event.EventBusStats;
 
 /*
@@ -36,16 +38,27 @@ final class EventBusStatsCollector
 		eventsEnqueued.incrementAndGet();
 	}
 
-	public void incrementEventsDequeued()
+	public void incrementEventsDequeued(final int count)
 	{
-		eventsDequeued.incrementAndGet();
+		eventsDequeued.addAndGet(count);
 	}
 
-	public EventBusStats snapshot()
+	public EventBusStats snapshot(@Nullable final EventRingBuffer.Stats ringBufferStats)
 	{
-		return EventBusStats.builder()
-				.eventsEnqueued(eventsDequeued.get())
-				.eventsDequeued(eventsDequeued.get())
-				.build();
+		final EventBusStats.EventBusStatsBuilder builder = EventBusStats.builder()
+				.eventsEnqueued(eventsEnqueued.get())
+				.eventsDequeued(eventsDequeued.get());
+
+		if (ringBufferStats != null)
+		{
+			builder.queueCapacity(ringBufferStats.getCapacity())
+					.queueDepth(ringBufferStats.getSize())
+					.eventsDropped(ringBufferStats.getEventsDropped())
+					.eventsCoalesced(ringBufferStats.getEventsCoalesced())
+					.lagMillis(ringBufferStats.getLagMillis())
+					.maxLagMillis(ringBufferStats.getMaxLagMillis());
+		}
+
+		return builder.build();
 	}
 }
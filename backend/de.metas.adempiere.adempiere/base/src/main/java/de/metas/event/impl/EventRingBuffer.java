@@ -0,0 +1,323 @@
+package de.metas.event.impl;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+
+import com.google.common.collect.ImmutableList;
+
+import de.metas.event.Event;
+import de.metas.event.EventBusOverflowPolicy;
+import de.metas.event.EventBusRingBufferConfig;
+import lombok.Builder;
+import lombok.NonNull;
+import lombok.Value;
+
+/*
+ * #%L
+ * de.metas.adempiere.adempiere.base
+ * %%
+ * Copyright (C) 2020 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+/**
+ * Bounded FIFO of events, used by an async {@link EventBus} to hand over the posted events to its dispatcher thread.
+ * <p>
+ * When the buffer is full, the configured {@link EventBusOverflowPolicy} decides whether the poster waits, the oldest event is dropped
+ * or a queued event with the same coalesce key is replaced.
+ */
+final class EventRingBuffer
+{
+	private final EventBusOverflowPolicy overflowPolicy;
+	private final LongSupplier nanoClock;
+
+	private final ReentrantLock lock = new ReentrantLock();
+	private final Condition notEmpty = lock.newCondition();
+	private final Condition notFull = lock.newCondition();
+
+	private final Event[] events;
+	private final long[] enqueuedNanos;
+	/** Sequence number of the first queued event; the slot of sequence number {@code seq} is {@code seq % capacity} */
+	private long headSeq = 0;
+	private int size = 0;
+	private boolean closed = false;
+
+	/** coalesce key to sequence number of the queued event having that key */
+	private final HashMap<String, Long> coalesceKey2seq;
+
+	private long eventsDropped = 0;
+	private long eventsCoalesced = 0;
+	private long lastLagNanos = 0;
+	private long maxLagNanos = 0;
+
+	EventRingBuffer(@NonNull final EventBusRingBufferConfig config)
+	{
+		this(config.getCapacity(), config.getOverflowPolicy(), System::nanoTime);
+	}
+
+	EventRingBuffer(
+			final int capacity,
+			@NonNull final EventBusOverflowPolicy overflowPolicy,
+			@NonNull final LongSupplier nanoClock)
+	{
+		if (capacity <= 0)
+		{
+			throw new IllegalArgumentException("capacity shall be greater than zero: " + capacity);
+		}
+
+		this.overflowPolicy = overflowPolicy;
+		this.nanoClock = nanoClock;
+		this.events = new Event[capacity];
+		this.enqueuedNanos = new long[capacity];
+		this.coalesceKey2seq = overflowPolicy == EventBusOverflowPolicy.COALESCE_BY_KEY ? new HashMap<>() : null;
+	}
+
+	public int getCapacity()
+	{
+		return events.length;
+	}
+
+	/**
+	 * Adds the given event, applying the overflow policy if the buffer is full.
+	 *
+	 * @param mayBlock if false, the caller must not wait for room; the oldest event is dropped instead.
+	 *            That's the case when a listener, running on the dispatcher thread, posts to its own event bus, which would otherwise wait for itself.
+	 * @return false if the event was not added because the buffer was closed
+	 */
+	public boolean put(@NonNull final Event event, final boolean mayBlock) throws InterruptedException
+	{
+		lock.lockInterruptibly();
+		try
+		{
+			if (closed)
+			{
+				return false;
+			}
+
+			if (coalesceKey2seq != null && replaceQueuedEventWithSameKey(event))
+			{
+				return true;
+			}
+
+			while (size == events.length)
+			{
+				if (overflowPolicy == EventBusOverflowPolicy.DROP_OLDEST || !mayBlock)
+				{
+					removeFirst();
+					eventsDropped++;
+				}
+				else
+				{
+					notFull.await();
+					if (closed)
+					{
+						return false;
+					}
+				}
+			}
+
+			final long seq = headSeq + size;
+			final int slot = slot(seq);
+			events[slot] = event;
+			enqueuedNanos[slot] = nanoClock.getAsLong();
+			size++;
+
+			if (coalesceKey2seq != null)
+			{
+				final String coalesceKey = event.getCoalesceKey();
+				if (coalesceKey != null)
+				{
+					coalesceKey2seq.put(coalesceKey, seq);
+				}
+			}
+
+			notEmpty.signal();
+			return true;
+		}
+		finally
+		{
+			lock.unlock();
+		}
+	}
+
+	private boolean replaceQueuedEventWithSameKey(final Event event)
+	{
+		final String coalesceKey = event.getCoalesceKey();
+		if (coalesceKey == null)
+		{
+			return false;
+		}
+
+		final Long seq = coalesceKey2seq.get(coalesceKey);
+		if (seq == null)
+		{
+			return false;
+		}
+
+		// NOTE: we keep the original enqueue timestamp, because the lag is about how long the queued information was waiting to be delivered
+		events[slot(seq)] = event;
+		eventsCoalesced++;
+		return true;
+	}
+
+	/**
+	 * Waits until at least one event is available and then removes up to {@code maxBatchSize} events.
+	 *
+	 * @return removed events, in posting order; empty if the buffer was closed or if the timeout elapsed
+	 */
+	public List<Event> takeBatch(final int maxBatchSize, final long timeout, @NonNull final TimeUnit timeUnit) throws InterruptedException
+	{
+		lock.lockInterruptibly();
+		try
+		{
+			long remainingNanos = timeUnit.toNanos(timeout);
+			while (size == 0)
+			{
+				if (closed || remainingNanos <= 0)
+				{
+					return ImmutableList.of();
+				}
+				remainingNanos = notEmpty.awaitNanos(remainingNanos);
+			}
+
+			final long lagNanos = nanoClock.getAsLong() - enqueuedNanos[slot(headSeq)];
+			lastLagNanos = lagNanos;
+			maxLagNanos = Math.max(maxLagNanos, lagNanos);
+
+			final int batchSize = Math.min(size, Math.max(maxBatchSize, 1));
+			final ArrayList<Event> batch = new ArrayList<>(batchSize);
+			for (int i = 0; i < batchSize; i++)
+			{
+				batch.add(removeFirst());
+			}
+
+			notFull.signalAll();
+			return batch;
+		}
+		finally
+		{
+			lock.unlock();
+		}
+	}
+
+	private Event removeFirst()
+	{
+		final int slot = slot(headSeq);
+		final Event event = events[slot];
+		events[slot] = null;
+
+		if (coalesceKey2seq != null)
+		{
+			final String coalesceKey = event.getCoalesceKey();
+			if (coalesceKey != null)
+			{
+				coalesceKey2seq.remove(coalesceKey, headSeq);
+			}
+		}
+
+		headSeq++;
+		size--;
+		return event;
+	}
+
+	private int slot(final long seq)
+	{
+		return (int)(seq % events.length);
+	}
+
+	/**
+	 * Stops accepting new events and wakes up all waiting threads. Already queued events can still be taken.
+	 */
+	public void close()
+	{
+		lock.lock();
+		try
+		{
+			closed = true;
+			notEmpty.signalAll();
+			notFull.signalAll();
+		}
+		finally
+		{
+			lock.unlock();
+		}
+	}
+
+	public boolean isClosed()
+	{
+		lock.lock();
+		try
+		{
+			return closed;
+		}
+		finally
+		{
+			lock.unlock();
+		}
+	}
+
+	public Stats getStats()
+	{
+		lock.lock();
+		try
+		{
+			return Stats.builder()
+					.capacity(events.length)
+					.size(size)
+					.eventsDropped(eventsDropped)
+					.eventsCoalesced(eventsCoalesced)
+					.lagMillis(TimeUnit.NANOSECONDS.toMillis(size > 0 ? currentLagNanos() : lastLagNanos))
+					.maxLagMillis(TimeUnit.NANOSECONDS.toMillis(Math.max(maxLagNanos, size > 0 ? currentLagNanos() : 0)))
+					.build();
+		}
+		finally
+		{
+			lock.unlock();
+		}
+	}
+
+	/** @return how long the oldest queued event is waiting */
+	private long currentLagNanos()
+	{
+		return nanoClock.getAsLong() - enqueuedNanos[slot(headSeq)];
+	}
+
+	@Value
+	@Builder
+	static class Stats
+	{
+		int capacity;
+		int size;
+		long eventsDropped;
+		long eventsCoalesced;
+
+		/** How long the oldest queued event is waiting, or, if nothing is queued, how long the last delivered batch was waiting */
+		long lagMillis;
+		long maxLagMillis;
+	}
+
+	@Override
+	public String toString()
+	{
+		return "EventRingBuffer[capacity=" + events.length + ", overflowPolicy=" + overflowPolicy + "]";
+	}
+}
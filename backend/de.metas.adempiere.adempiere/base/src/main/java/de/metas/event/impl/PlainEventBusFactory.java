@@ -70,7 +70,7 @@ public class PlainEventBusFactory implements IEventBusFactory
 	private EventBus createEventBus(final Topic topic)
 	{
 		final ExecutorService executor = null;
-		return new EventBus(topic.getName(), executor);
+		return new EventBus(topic.getName(), executor, null/* ringBufferConfig */);
 	}
 
 	@Override
@@ -117,6 +117,12 @@ public class EventBusRestController
 				.eventsEnqueued(stats.getEventsEnqueued())
 				.eventsDequeued(stats.getEventsDequeued())
 				.eventsToDequeue(stats.getEventsToDequeue())
+				.queueCapacity(stats.getQueueCapacity())
+				.queueDepth(stats.getQueueDepth())
+				.eventsDropped(stats.getEventsDropped())
+				.eventsCoalesced(stats.getEventsCoalesced())
+				.lagMillis(stats.getLagMillis())
+				.maxLagMillis(stats.getMaxLagMillis())
 				//
 				.build();
 	}
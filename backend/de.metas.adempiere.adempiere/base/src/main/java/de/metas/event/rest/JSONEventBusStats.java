@@ -46,6 +46,13 @@ public class JSONEventBusStats
 	long eventsDequeued;
 	long eventsToDequeue;
 
+	int queueCapacity;
+	int queueDepth;
+	long eventsDropped;
+	long eventsCoalesced;
+	long lagMillis;
+	long maxLagMillis;
+
 	@JsonPOJOBuilder(withPrefix = "")
 	public static class JSONEventBusStatsBuilder
 	{
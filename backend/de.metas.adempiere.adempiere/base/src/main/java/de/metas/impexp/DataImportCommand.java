@@ -59,6 +59,7 @@ final class DataImportCommand
 	private final ImpDataParserFactory parserFactory = new ImpDataParserFactory();
 
 	private static final String SYSCONFIG_InsertBatchSize = "de.metas.impexp.insertBatchSize";
+	private static final String SYSCONFIG_UsePostgresCopy = "de.metas.impexp.usePostgresCopy";
 
 	private final ClientId clientId;
 	private final OrgId orgId;
@@ -147,6 +148,7 @@ final class DataImportCommand
 				.dataImportRunId(dataImportRunId)
 				.dataImportConfigId(dataImportConfigId)
 				.insertBatchSize(getInsertBatchSize())
+				.usePostgresCopy(isUsePostgresCopy())
 				.build();
 
 		return importTableAppender.appendStream(sourceParser.streamDataLines(data));
@@ -157,6 +159,11 @@ final class DataImportCommand
 		return sysConfigBL.getIntValue(SYSCONFIG_InsertBatchSize, -1);
 	}
 
+	private boolean isUsePostgresCopy()
+	{
+		return sysConfigBL.getBooleanValue(SYSCONFIG_UsePostgresCopy, true);
+	}
+
 	private ImportProcessResult validateImportRecords(@NonNull final PInstanceId selectionId)
 	{
 		final Stopwatch stopwatch = Stopwatch.createStarted();
@@ -1,8 +1,12 @@
 package de.metas.impexp;
 
+import java.io.IOException;
+import java.io.StringReader;
+import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Timestamp;
 import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Collections;
@@ -17,6 +21,9 @@ import org.adempiere.ad.trx.api.ITrxManager;
 import org.adempiere.exceptions.DBException;
 import org.adempiere.service.ClientId;
 import org.compiere.util.DB;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyManager;
+import org.slf4j.Logger;
 
 import com.google.common.base.Stopwatch;
 import com.google.common.collect.ImmutableList;
@@ -28,6 +35,7 @@ import de.metas.impexp.format.ImportTableDescriptor;
 import de.metas.impexp.parser.ImpDataLine;
 import de.metas.impexp.util.SqlAndParamsExtractor;
 import de.metas.impexp.util.SqlAndParamsExtractor.ParametersExtractor;
+import de.metas.logging.LogManager;
 import de.metas.organization.OrgId;
 import de.metas.user.UserId;
 import de.metas.util.Check;
@@ -60,6 +68,10 @@ import lombok.NonNull;
 
 /**
  * Inserts {@link ImpDataLine}s into import tables.
+ * <p>
+ * The lines are consumed in chunks of <code>insertBatchSize</code>, so only one chunk is kept in memory at a time.
+ * If <code>usePostgresCopy</code> is set and the underlying connection is a PostgreSQL one, the chunks are loaded using <code>COPY ... FROM STDIN</code>,
+ * else a batch of INSERT statements is executed for each chunk.
  * 
  * @author metas-dev <dev@metasfresh.com>
  *
@@ -67,6 +79,7 @@ import lombok.NonNull;
 final class ImportTableAppender
 {
 	// services
+	private static final Logger logger = LogManager.getLogger(ImportTableAppender.class);
 	private final ITrxManager trxManager = Services.get(ITrxManager.class);
 
 	private static final int DEFAULT_InsertBatchSize = 10000;
@@ -84,7 +97,9 @@ final class ImportTableAppender
 
 	//
 	// State
+	private boolean usePostgresCopy;
 	private SqlAndParamsExtractor<ImpDataLine> _sqlInsertIntoImportTable; // lazy
+	private SqlAndParamsExtractor<ImpDataLine> _sqlCopyIntoImportTable; // lazy
 	private int countTotalRows = 0;
 	private int countValidRows = 0;
 	private int countRowsWithError = 0;
@@ -97,7 +112,8 @@ final class ImportTableAppender
 			@NonNull final UserId userId,
 			@NonNull final DataImportRunId dataImportRunId,
 			@Nullable final DataImportConfigId dataImportConfigId,
-			final int insertBatchSize)
+			final int insertBatchSize,
+			final boolean usePostgresCopy)
 	{
 		this.importTableDescriptor = importFormat.getImportTableDescriptor();
 		this.columns = importFormat.getColumns();
@@ -108,13 +124,17 @@ final class ImportTableAppender
 		this.dataImportRunId = dataImportRunId;
 		this.dataImportConfigId = dataImportConfigId;
 		this.insertBatchSize = insertBatchSize > 0 ? insertBatchSize : DEFAULT_InsertBatchSize;
+		this.usePostgresCopy = usePostgresCopy;
 	}
 
 	public ImportTableAppendResult appendStream(@NonNull final Stream<ImpDataLine> stream)
 	{
 		final Stopwatch stopwatch = Stopwatch.createStarted();
-		final Stream<List<ImpDataLine>> batchedStream = GuavaCollectors.batchAndStream(stream, insertBatchSize);
-		batchedStream.forEach(this::insertIntoDatabase);
+		try (final Stream<ImpDataLine> closeableStream = stream)
+		{
+			final Stream<List<ImpDataLine>> batchedStream = GuavaCollectors.batchAndStream(closeableStream, insertBatchSize);
+			batchedStream.forEach(this::insertIntoDatabase);
+		}
 		stopwatch.stop();
 
 		return ImportTableAppendResult.builder()
@@ -133,7 +153,95 @@ final class ImportTableAppender
 			return;
 		}
 
-		trxManager.run(ITrx.TRXNAME_ThreadInherited, () -> insertIntoDatabaseInTrx(lines));
+		trxManager.run(ITrx.TRXNAME_ThreadInherited, () -> {
+			if (!usePostgresCopy || !copyIntoDatabaseInTrx(lines))
+			{
+				insertIntoDatabaseInTrx(lines);
+			}
+		});
+	}
+
+	/**
+	 * @return false if COPY is not supported by the underlying connection, in which case nothing was done
+	 */
+	private boolean copyIntoDatabaseInTrx(final List<ImpDataLine> lines)
+	{
+		final SqlAndParamsExtractor<ImpDataLine> sqlAndParamsExtractor = getCopyIntoImportTableSql();
+		final String sql = sqlAndParamsExtractor.getSql();
+
+		// NOTE: COPY cannot evaluate expressions, so we fetch the keys and the timestamp (same now() as an INSERT would use) upfront.
+		final String sqlNextIds = "SELECT " + DB.TO_TABLESEQUENCE_NEXTVAL(importTableDescriptor.getTableName()) + ", now() FROM generate_series(1, ?)";
+
+		PreparedStatement pstmt = null;
+		ResultSet rs = null;
+		try
+		{
+			pstmt = DB.prepareStatement(sqlNextIds, ITrx.TRXNAME_ThreadInherited);
+
+			final CopyManager copyManager = getCopyManagerOrNull(pstmt.getConnection());
+			if (copyManager == null)
+			{
+				logger.warn("COPY is not supported by the database connection. Falling back to INSERT for the remaining lines.");
+				usePostgresCopy = false;
+				return false;
+			}
+
+			pstmt.setInt(1, lines.size());
+			rs = pstmt.executeQuery();
+
+			final StringBuilder data = new StringBuilder();
+			for (final ImpDataLine line : lines)
+			{
+				if (!rs.next())
+				{
+					throw new DBException("No more IDs were fetched for " + line);
+				}
+
+				final List<Object> values = new ArrayList<>();
+				values.add(rs.getInt(1));
+				final Timestamp now = rs.getTimestamp(2);
+				values.add(now); // Created
+				values.add(now); // Updated
+				values.addAll(sqlAndParamsExtractor.extractParameters(line));
+				PostgresCopyTextFormat.appendRow(data, values);
+
+				updateStats(line);
+			}
+
+			copyManager.copyIn(sql, new StringReader(data.toString()));
+			return true;
+		}
+		catch (final SQLException ex)
+		{
+			throw new DBException(ex, sql);
+		}
+		catch (final IOException ex)
+		{
+			throw new DBException("Failed copying data: " + sql, ex);
+		}
+		finally
+		{
+			DB.close(rs, pstmt);
+		}
+	}
+
+	@Nullable
+	private static CopyManager getCopyManagerOrNull(@NonNull final Connection connection)
+	{
+		try
+		{
+			if (!connection.isWrapperFor(PGConnection.class))
+			{
+				return null;
+			}
+
+			return connection.unwrap(PGConnection.class).getCopyAPI();
+		}
+		catch (final SQLException ex)
+		{
+			logger.warn("Failed getting the CopyManager from {}", connection, ex);
+			return null;
+		}
 	}
 
 	private void insertIntoDatabaseInTrx(final List<ImpDataLine> lines)
@@ -153,16 +261,7 @@ final class ImportTableAppender
 				DB.setParameters(pstmt, params);
 				pstmt.addBatch();
 
-				// Update stats:
-				countTotalRows++;
-				if (line.hasErrors())
-				{
-					countRowsWithError++;
-				}
-				else
-				{
-					countValidRows++;
-				}
+				updateStats(line);
 			}
 
 			pstmt.executeBatch();
@@ -177,6 +276,19 @@ final class ImportTableAppender
 		}
 	}
 
+	private void updateStats(final ImpDataLine line)
+	{
+		countTotalRows++;
+		if (line.hasErrors())
+		{
+			countRowsWithError++;
+		}
+		else
+		{
+			countValidRows++;
+		}
+	}
+
 	private SqlAndParamsExtractor<ImpDataLine> getInsertIntoImportTableSql()
 	{
 		SqlAndParamsExtractor<ImpDataLine> sqlInsertIntoImportTable = this._sqlInsertIntoImportTable;
@@ -276,4 +388,103 @@ final class ImportTableAppender
 				.build();
 	}
 
+	private SqlAndParamsExtractor<ImpDataLine> getCopyIntoImportTableSql()
+	{
+		SqlAndParamsExtractor<ImpDataLine> sqlCopyIntoImportTable = this._sqlCopyIntoImportTable;
+		if (sqlCopyIntoImportTable == null)
+		{
+			sqlCopyIntoImportTable = this._sqlCopyIntoImportTable = createCopyIntoImportTableSql();
+		}
+		return sqlCopyIntoImportTable;
+	}
+
+	/**
+	 * Creates the <code>COPY ... FROM STDIN</code> statement, having the same columns and values as {@link #createInsertIntoImportTableSql()}.
+	 * <p>
+	 * IMPORTANT: the first columns (key, Created and Updated) are not provided by the parameters extractors
+	 * but fetched from database for each chunk, see {@link #copyIntoDatabaseInTrx(List)}.
+	 */
+	private SqlAndParamsExtractor<ImpDataLine> createCopyIntoImportTableSql()
+	{
+		final String tableName = importTableDescriptor.getTableName();
+		final String keyColumnName = importTableDescriptor.getKeyColumnName();
+
+		final StringBuilder sqlColumns = new StringBuilder();
+		final List<ParametersExtractor<ImpDataLine>> sqlParamsExtractors = new ArrayList<>();
+
+		sqlColumns.append(keyColumnName);
+		sqlColumns.append(", Created, Updated");
+
+		//
+		// Standard fields
+		{
+			final List<Object> standardValues = ImmutableList.of(
+					clientId.getRepoId(),
+					orgId.getRepoId(),
+					userId.getRepoId(),
+					userId.getRepoId(),
+					true,
+					false,
+					false);
+			sqlColumns.append(", AD_Client_ID, AD_Org_ID, CreatedBy, UpdatedBy, IsActive, Processed, I_IsImported");
+			sqlParamsExtractors.add(dataLine -> standardValues);
+		}
+
+		//
+		// I_LineNo
+		if (importTableDescriptor.getImportLineNoColumnName() != null)
+		{
+			sqlColumns.append(", ").append(importTableDescriptor.getImportLineNoColumnName());
+			sqlParamsExtractors.add(dataLine -> ImmutableList.of(dataLine.getFileLineNo()));
+		}
+
+		//
+		// I_LineContext
+		if (importTableDescriptor.getImportLineNoColumnName() != null)
+		{
+			sqlColumns.append(", ").append(importTableDescriptor.getImportLineContentColumnName());
+			sqlParamsExtractors.add(dataLine -> Collections.singletonList(dataLine.getLineString()));
+		}
+
+		//
+		// C_DataImport_Run_ID
+		{
+			Check.assumeNotNull(dataImportRunId, "dataImportRunId is not null");
+			sqlColumns.append(", ").append(ImportTableDescriptor.COLUMNNAME_C_DataImport_Run_ID);
+			final List<Object> dataImportRunIdValue = ImmutableList.of(dataImportRunId.getRepoId());
+			sqlParamsExtractors.add(dataLine -> dataImportRunIdValue);
+		}
+
+		//
+		// C_DataImport_ID
+		if (importTableDescriptor.getDataImportConfigIdColumnName() != null && dataImportConfigId != null)
+		{
+			sqlColumns.append(", ").append(importTableDescriptor.getDataImportConfigIdColumnName());
+			final List<Object> dataImportConfigIdValue = ImmutableList.of(dataImportConfigId.getRepoId());
+			sqlParamsExtractors.add(dataLine -> dataImportConfigIdValue);
+		}
+
+		//
+		// I_ErrorMsg
+		{
+			final int errorMaxLength = importTableDescriptor.getErrorMsgMaxLength();
+			sqlColumns.append(", ").append(ImportTableDescriptor.COLUMNNAME_I_ErrorMsg);
+			sqlParamsExtractors.add(dataLine -> Collections.singletonList(dataLine.getErrorMessageAsStringOrNull(errorMaxLength)));
+		}
+
+		//
+		// Values
+		{
+			for (final ImpFormatColumn column : columns)
+			{
+				sqlColumns.append(", ").append(column.getColumnName());
+			}
+			sqlParamsExtractors.add(dataLine -> dataLine.getJdbcValues(columns));
+		}
+
+		return SqlAndParamsExtractor.<ImpDataLine> builder()
+				.sql("COPY " + tableName + "(" + sqlColumns + ") FROM STDIN")
+				.parametersExtractors(sqlParamsExtractors)
+				.build();
+	}
 }
@@ -0,0 +1,127 @@
+package de.metas.impexp;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.Date;
+import java.util.List;
+
+import javax.annotation.Nullable;
+
+import lombok.NonNull;
+import lombok.experimental.UtilityClass;
+
+/*
+ * #%L
+ * de.metas.adempiere.adempiere.base
+ * %%
+ * Copyright (C) 2020 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+/**
+ * Encodes rows in PostgreSQL's <code>COPY ... FROM STDIN</code> text format (tab separated columns, <code>\N</code> for null).
+ * <p>
+ * Values are rendered the same way {@link org.compiere.util.DB#setParameter(java.sql.PreparedStatement, int, Object)} would bind them.
+ */
+@UtilityClass
+final class PostgresCopyTextFormat
+{
+	private static final char COLUMN_DELIMITER = '\t';
+	private static final char ROW_DELIMITER = '\n';
+	private static final String NULL = "\\N";
+
+	public void appendRow(@NonNull final StringBuilder out, @NonNull final List<Object> values)
+	{
+		boolean firstValue = true;
+		for (final Object value : values)
+		{
+			if (!firstValue)
+			{
+				out.append(COLUMN_DELIMITER);
+			}
+			appendValue(out, value);
+			firstValue = false;
+		}
+		out.append(ROW_DELIMITER);
+	}
+
+	public void appendValue(@NonNull final StringBuilder out, @Nullable final Object value)
+	{
+		if (value == null)
+		{
+			out.append(NULL);
+		}
+		else if (value instanceof Boolean)
+		{
+			out.append((Boolean)value ? "Y" : "N");
+		}
+		else if (value instanceof BigDecimal)
+		{
+			out.append(((BigDecimal)value).toPlainString());
+		}
+		else if (value instanceof Number)
+		{
+			out.append(value);
+		}
+		else if (value instanceof Date)
+		{
+			out.append(toTimestampString((Date)value));
+		}
+		else
+		{
+			appendEscaped(out, value.toString());
+		}
+	}
+
+	/**
+	 * @return timestamp including the JVM zone offset, like the JDBC driver is sending it for {@link java.sql.PreparedStatement#setTimestamp(int, Timestamp)}
+	 */
+	private static String toTimestampString(@NonNull final Date date)
+	{
+		final Timestamp timestamp = date instanceof Timestamp ? (Timestamp)date : new Timestamp(date.getTime());
+		return timestamp.toLocalDateTime()
+				.atZone(ZoneId.systemDefault())
+				.format(DateTimeFormatter.ISO_OFFSET_DATE_TIME);
+	}
+
+	private static void appendEscaped(@NonNull final StringBuilder out, @NonNull final String value)
+	{
+		for (int i = 0, length = value.length(); i < length; i++)
+		{
+			final char ch = value.charAt(i);
+			switch (ch)
+			{
+				case '\\':
+					out.append("\\\\");
+					break;
+				case '\t':
+					out.append("\\t");
+					break;
+				case '\n':
+					out.append("\\n");
+					break;
+				case '\r':
+					out.append("\\r");
+					break;
+				default:
+					out.append(ch);
+			}
+		}
+	}
+}
@@ -26,6 +26,8 @@
 package de.metas.impexp.parser;
 
 import com.google.common.base.CharMatcher;
+import com.google.common.collect.AbstractIterator;
+import com.google.common.collect.Streams;
 import com.google.common.io.ByteSource;
 import com.google.common.io.Files;
 import com.google.common.io.LineProcessor;
@@ -33,12 +35,16 @@ import de.metas.util.Check;
 import lombok.NonNull;
 import lombok.experimental.UtilityClass;
 
+import javax.annotation.Nullable;
+import java.io.BufferedReader;
 import java.io.File;
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.nio.charset.Charset;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * @author metas-dev <dev@metasfresh.com>
@@ -146,6 +152,69 @@ final class FileImportReader
 		{
 			return loadedDataLines;
 		}
+
+		/**
+		 * Removes and returns the first loaded line, but only if it's complete.
+		 * Only the last loaded line can still get more content appended, so the first one is complete when there are more, or when there is no more input.
+		 */
+		@Nullable
+		private String pollCompletedLine(final boolean endOfInput)
+		{
+			if (loadedDataLines.size() > 1 || (endOfInput && !loadedDataLines.isEmpty()))
+			{
+				return loadedDataLines.remove(0);
+			}
+			return null;
+		}
+	}
+
+	/**
+	 * Lazily reads logical lines using a {@link MultiLineProcessor}, keeping only the lines which can still be appended to in memory.
+	 */
+	private static final class MultiLinesIterator extends AbstractIterator<String>
+	{
+		private final BufferedReader reader;
+		private final MultiLineProcessor processor = new MultiLineProcessor();
+		private boolean endOfInput = false;
+
+		private MultiLinesIterator(@NonNull final BufferedReader reader)
+		{
+			this.reader = reader;
+		}
+
+		@Override
+		protected String computeNext()
+		{
+			try
+			{
+				while (true)
+				{
+					final String completedLine = processor.pollCompletedLine(endOfInput);
+					if (completedLine != null)
+					{
+						return completedLine;
+					}
+					else if (endOfInput)
+					{
+						return endOfData();
+					}
+
+					final String line = reader.readLine();
+					if (line == null)
+					{
+						endOfInput = true;
+					}
+					else
+					{
+						processor.processLine(line);
+					}
+				}
+			}
+			catch (final IOException ex)
+			{
+				throw new UncheckedIOException(ex);
+			}
+		}
 	}
 
 	/**
@@ -168,6 +237,16 @@ final class FileImportReader
 		return ByteSource.wrap(data).asCharSource(charset).readLines(new MultiLineProcessor());
 	}
 
+	/**
+	 * Same as {@link #readMultiLines(File, Charset)} but the lines are read lazily from given reader, so the whole content is never kept in memory.
+	 * <br>
+	 * The caller is responsible for closing the reader.
+	 */
+	public Stream<String> streamMultiLines(@NonNull final BufferedReader reader)
+	{
+		return Streams.stream(new MultiLinesIterator(reader));
+	}
+
 	/**
 	 * Read file that has not any multi-line text
 	 *
@@ -186,6 +265,16 @@ final class FileImportReader
 		return ByteSource.wrap(data).asCharSource(charset).readLines(new SingleLineProcessor());
 	}
 
+	/**
+	 * Same as {@link #readRegularLines(File, Charset)} but the lines are read lazily from given reader.
+	 * <br>
+	 * The caller is responsible for closing the reader.
+	 */
+	public Stream<String> streamRegularLines(@NonNull final BufferedReader reader)
+	{
+		return reader.lines();
+	}
+
 	/**
 	 * Build the preview from the loaded lines
 	 *
@@ -1,13 +1,14 @@
 package de.metas.impexp.parser;
 
+import java.io.BufferedReader;
 import java.io.IOException;
+import java.io.InputStreamReader;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Stream;
 
 import org.adempiere.exceptions.AdempiereException;
-import org.compiere.util.Util;
 import org.springframework.core.io.Resource;
 
 import lombok.Builder;
@@ -53,6 +54,11 @@ public final class ImpDataParser
 		this.lineParser = lineParser;
 	}
 
+	/**
+	 * Lazily streams the data lines of given resource.
+	 * <br>
+	 * The source is read while the stream is consumed, so the caller shall close the returned stream in order to release the underlying resource.
+	 */
 	public Stream<ImpDataLine> streamDataLines(final Resource resource)
 	{
 		final AtomicInteger nextLineNo = new AtomicInteger(1);
@@ -63,17 +69,19 @@ public final class ImpDataParser
 
 	private Stream<String> streamSourceLines(final Resource resource)
 	{
-		final byte[] data = toByteArray(resource);
+		final BufferedReader reader = openReader(resource);
+		final Stream<String> lines = multiline
+				? FileImportReader.streamMultiLines(reader)
+				: FileImportReader.streamRegularLines(reader);
+
+		return lines.onClose(() -> closeReader(reader, resource));
+	}
+
+	private static BufferedReader openReader(final Resource resource)
+	{
 		try
 		{
-			if (multiline)
-			{
-				return FileImportReader.readMultiLines(data, CHARSET).stream();
-			}
-			else
-			{
-				return FileImportReader.readRegularLines(data, CHARSET).stream();
-			}
+			return new BufferedReader(new InputStreamReader(resource.getInputStream(), CHARSET));
 		}
 		catch (final IOException ex)
 		{
@@ -81,15 +89,15 @@ public final class ImpDataParser
 		}
 	}
 
-	private static byte[] toByteArray(final Resource resource)
+	private static void closeReader(final BufferedReader reader, final Resource resource)
 	{
 		try
 		{
-			return Util.readBytes(resource.getInputStream());
+			reader.close();
 		}
 		catch (final IOException ex)
 		{
-			throw new AdempiereException("Failed reading resource: " + resource, ex);
+			throw new AdempiereException("Failed closing resource: " + resource, ex);
 		}
 	}
 
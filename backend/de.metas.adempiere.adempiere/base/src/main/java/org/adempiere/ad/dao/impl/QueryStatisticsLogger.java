@@ -8,6 +8,7 @@ import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.regex.Pattern;
 
 import org.adempiere.ad.dao.IQueryStatisticsCollector;
 import org.adempiere.ad.dao.IQueryStatisticsLogger;
@@ -22,12 +23,14 @@ import org.springframework.jmx.export.annotation.ManagedOperation;
 import org.springframework.jmx.export.annotation.ManagedResource;
 import org.springframework.stereotype.Service;
 
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Stopwatch;
 
 import de.metas.logging.LogManager;
 import de.metas.util.Check;
 import de.metas.util.Services;
 import de.metas.util.time.SystemTime;
+import lombok.NonNull;
 
 @Service
 @ManagedResource(objectName = "org.adempiere.ad.dao.impl.QueryStatisticsLogger:type=Statistics", description = "SQL query statistics and tracing")
@@ -39,10 +42,13 @@ public class QueryStatisticsLogger implements IQueryStatisticsLogger, IQueryStat
 	private static final TimeUnit TIMEUNIT_Display = TimeUnit.MILLISECONDS;
 
 	private boolean enabled = false;
-	private final ConcurrentHashMap<String, QueryStatistics> sql2statistics = new ConcurrentHashMap<>();
+	private final ConcurrentHashMap<String, QueryStatistics> sqlShape2statistics = new ConcurrentHashMap<>();
 	private Date validFrom = null;
 	private String filterBy = null;
 
+	/** Matches quoted string literals and numbers which are not part of an identifier */
+	private static final Pattern SQL_LITERALS = Pattern.compile("'(?:[^']|'')*'|(?<![\\w.$])\\d+(?:\\.\\d+)?(?![\\w.])");
+
 	private boolean traceSqlQueries = false;
 	private static final AtomicInteger traceSqlQueries_Count = new AtomicInteger(0);
 
@@ -108,7 +114,9 @@ public class QueryStatisticsLogger implements IQueryStatisticsLogger, IQueryStat
 			return;
 		}
 
-		final QueryStatistics queryStatistics = sql2statistics.computeIfAbsent(sql, (sqlKey) -> new QueryStatistics(sqlKey));
+		// Aggregate by SQL shape, else the same query with different inlined values would be reported as many different queries
+		final String sqlShape = toSqlShape(sql);
+		final QueryStatistics queryStatistics = sqlShape2statistics.computeIfAbsent(sqlShape, QueryStatistics::new);
 		final CountAndDuration duration = queryStatistics.incrementAndGet(durationValue);
 
 		if (traceSqlQueries)
@@ -117,6 +125,15 @@ public class QueryStatisticsLogger implements IQueryStatisticsLogger, IQueryStat
 		}
 	}
 
+	/**
+	 * @return given SQL with all string and numeric literals replaced by {@code ?}
+	 */
+	@VisibleForTesting
+	static String toSqlShape(@NonNull final String sql)
+	{
+		return SQL_LITERALS.matcher(sql).replaceAll("?");
+	}
+
 	@Override
 	@ManagedOperation(description = "Enables statistics collector")
 	public void enable()
@@ -166,7 +183,7 @@ public class QueryStatisticsLogger implements IQueryStatisticsLogger, IQueryStat
 	@ManagedOperation(description = "Resets currently collected statistics and counters")
 	public void reset()
 	{
-		sql2statistics.clear();
+		sqlShape2statistics.clear();
 		validFrom = SystemTime.asDate();
 	}
 
@@ -366,7 +383,7 @@ public class QueryStatisticsLogger implements IQueryStatisticsLogger, IQueryStat
 
 	private String[] getTopQueriesAsString(final Comparator<QueryStatistics> comparing)
 	{
-		return sql2statistics.values()
+		return sqlShape2statistics.values()
 				.stream()
 				.sorted(comparing.reversed())
 				.map(stat -> stat.toString())
@@ -125,4 +125,9 @@ public interface IArchiveBL extends ISingletonService
 	InputStream getBinaryDataAsStream(I_AD_Archive archive);
 
 	void setBinaryData(I_AD_Archive archive, byte[] data);
+
+	/**
+	 * Like {@link #setBinaryData(I_AD_Archive, byte[])}, but reads the data from the given stream, which is not closed.
+	 */
+	void setBinaryDataFromStream(I_AD_Archive archive, InputStream data);
 }
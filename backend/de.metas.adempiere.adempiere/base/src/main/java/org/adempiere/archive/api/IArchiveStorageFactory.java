@@ -40,6 +40,8 @@ public interface IArchiveStorageFactory extends ISingletonService
 {
 	String STORAGETYPE_Database = "DB";
 	String STORAGETYPE_Filesystem = "FS";
+	/** Content addressed (and deduplicated) storage on filesystem; see {@link org.adempiere.archive.spi.impl.ContentAddressedArchiveStorage} */
+	String STORAGETYPE_ContentAddressed = "CA";
 
 	/**
 	 * AccessMode - from where the archive is accessed (client side, server side)
@@ -365,6 +365,12 @@ public class ArchiveBL implements IArchiveBL
 		Services.get(IArchiveStorageFactory.class).getArchiveStorage(archive).setBinaryData(archive, data);
 	}
 
+	@Override
+	public void setBinaryDataFromStream(final I_AD_Archive archive, final InputStream data)
+	{
+		Services.get(IArchiveStorageFactory.class).getArchiveStorage(archive).setBinaryDataFromStream(archive, data);
+	}
+
 	@Override
 	public InputStream getBinaryDataAsStream(final I_AD_Archive archive)
 	{
@@ -56,4 +56,11 @@ public interface IArchiveStorage
 	InputStream getBinaryDataAsStream(I_AD_Archive archive);
 
 	void setBinaryData(I_AD_Archive archive, byte[] data);
+
+	/**
+	 * Like {@link #setBinaryData(I_AD_Archive, byte[])}, but reads the data from given stream.
+	 * <p>
+	 * The stream is read until its end, but not closed; the caller is responsible for closing it.
+	 */
+	void setBinaryDataFromStream(I_AD_Archive archive, InputStream data);
 }
@@ -24,14 +24,18 @@ package org.adempiere.archive.spi.impl;
 
 
 import java.io.ByteArrayInputStream;
+import java.io.IOException;
 import java.io.InputStream;
 import java.util.Properties;
 
 import org.adempiere.archive.api.IArchiveStorageFactory;
 import org.adempiere.archive.spi.IArchiveStorage;
+import org.adempiere.exceptions.AdempiereException;
 import org.adempiere.model.InterfaceWrapperHelper;
 import org.compiere.model.I_AD_Archive;
 
+import com.google.common.io.ByteStreams;
+
 import de.metas.util.Services;
 
 /**
@@ -66,6 +70,24 @@ public abstract class AbstractArchiveStorage implements IArchiveStorage
 		return new ByteArrayInputStream(inflatedData);
 	}
 
+	/**
+	 * Reads the whole stream into memory and calls {@link #setBinaryData(I_AD_Archive, byte[])}. Storages which can write the data while reading it shall override this method.
+	 */
+	@Override
+	public void setBinaryDataFromStream(final I_AD_Archive archive, final InputStream data)
+	{
+		final byte[] bytes;
+		try
+		{
+			bytes = ByteStreams.toByteArray(data);
+		}
+		catch (final IOException e)
+		{
+			throw new AdempiereException("Error reading data for " + archive, e);
+		}
+		setBinaryData(archive, bytes);
+	}
+
 	protected IArchiveStorageFactory getArchiveStorageFactory()
 	{
 		return Services.get(IArchiveStorageFactory.class);
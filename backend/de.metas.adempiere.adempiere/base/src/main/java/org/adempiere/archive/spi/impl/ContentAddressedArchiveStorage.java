@@ -0,0 +1,402 @@
+package org.adempiere.archive.spi.impl;
+
+/*
+ * #%L
+ * de.metas.adempiere.adempiere.base
+ * %%
+ * Copyright (C) 2020 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import javax.annotation.Nullable;
+
+import org.adempiere.ad.service.IDeveloperModeBL;
+import org.adempiere.exceptions.AdempiereException;
+import org.adempiere.service.IClientDAO;
+import org.compiere.model.I_AD_Archive;
+import org.compiere.model.I_AD_Client;
+import org.compiere.util.Ini;
+import org.compiere.util.Util;
+import org.slf4j.Logger;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.io.BaseEncoding;
+import com.google.common.io.ByteStreams;
+
+import de.metas.logging.LogManager;
+import de.metas.util.Check;
+import de.metas.util.Services;
+import lombok.NonNull;
+
+/**
+ * Stores the archive data on the local filesystem, addressed by the SHA-256 hash of the (uncompressed) data.
+ * <p>
+ * The data is gzip compressed while it's written and decompressed while it's read, so it never has to be held in memory as a whole.
+ * Identical data (e.g. the same report which was archived for multiple records) is stored only once.
+ * The {@link I_AD_Archive#COLUMNNAME_BinaryData} column only contains a reference like <code>content:sha256:&lt;hash&gt;</code>.
+ * <p>
+ * The content files are located in the <code>content</code> subfolder of the tenant's archive path ({@link I_AD_Client#COLUMNNAME_UnixArchivePath}).
+ * <p>
+ * NOTE: because a content file can be referenced by more than one archive, content files are not deleted together with their archives.
+ * Instead, {@link #deleteUnreferencedContentFiles(Set, Instant)} shall be run from time to time; it deletes the content files which are not referenced anymore,
+ * e.g. because their archives were deleted or because the archive's transaction was rolled back after the file was stored.
+ */
+public class ContentAddressedArchiveStorage extends AbstractArchiveStorage
+{
+	private static final Logger logger = LogManager.getLogger(ContentAddressedArchiveStorage.class);
+
+	private static final String CONTENT_FOLDER_NAME = "content";
+	private static final String CONTENT_FILE_EXTENSION = ".gz";
+	private static final String TEMP_FILE_PREFIX = "archive_";
+	private static final String TEMP_FILE_SUFFIX = ".tmp";
+
+	private static final String HASH_ALGORITHM = "SHA-256";
+	private static final String CONTENT_REFERENCE_PREFIX = "content:sha256:";
+	private static final Pattern HASH_PATTERN = Pattern.compile("[0-9a-f]{64}");
+
+	private File contentRoot;
+
+	@Override
+	public void init(final Properties ctx, final int adClientId)
+	{
+		final I_AD_Client client = Services.get(IClientDAO.class).retriveClient(ctx, adClientId);
+		this.contentRoot = new File(FilesystemArchiveStorage.getArchivePath(client) + CONTENT_FOLDER_NAME);
+		logger.info("Content root: {}, Config={}", contentRoot, client);
+	}
+
+	private void checkContext()
+	{
+		Check.assume(!Ini.isSwingClient() || Services.get(IDeveloperModeBL.class).isEnabled(), "Server mode required");
+
+		if (contentRoot == null)
+		{
+			throw new IllegalArgumentException("ContentAddressedArchiveStorage is not configured. No root path defined.");
+		}
+	}
+
+	/**
+	 * @return true if the given {@link I_AD_Archive#getBinaryData()} is a reference to a content file of this storage
+	 */
+	public static boolean isContentReference(@Nullable final byte[] binaryData)
+	{
+		if (binaryData == null || binaryData.length <= CONTENT_REFERENCE_PREFIX.length())
+		{
+			return false;
+		}
+
+		final String prefix = new String(binaryData, 0, CONTENT_REFERENCE_PREFIX.length(), StandardCharsets.UTF_8);
+		return CONTENT_REFERENCE_PREFIX.equals(prefix);
+	}
+
+	/**
+	 * @return the hash of the content file which is referenced by the given {@link I_AD_Archive#getBinaryData()}, or null if it's not a (valid) content reference
+	 */
+	@Nullable
+	public static String extractContentHash(@Nullable final byte[] binaryData)
+	{
+		if (!isContentReference(binaryData))
+		{
+			return null;
+		}
+
+		final String hash = new String(binaryData, StandardCharsets.UTF_8).substring(CONTENT_REFERENCE_PREFIX.length());
+		return HASH_PATTERN.matcher(hash).matches() ? hash : null;
+	}
+
+	@Override
+	public I_AD_Archive newArchive(final Properties ctx, final String trxName)
+	{
+		checkContext();
+
+		final I_AD_Archive archive = super.newArchive(ctx, trxName);
+		archive.setIsFileSystem(true);
+		return archive;
+	}
+
+	@Override
+	public byte[] getBinaryData(final I_AD_Archive archive)
+	{
+		final InputStream in = getBinaryDataAsStream(archive);
+		if (in == null)
+		{
+			return null;
+		}
+		return Util.readBytes(in); // also closes the stream
+	}
+
+	/**
+	 * @return stream which decompresses the archive's content file while reading it, or null
+	 */
+	@Override
+	public InputStream getBinaryDataAsStream(@NonNull final I_AD_Archive archive)
+	{
+		checkContext();
+
+		final byte[] binaryData = archive.getBinaryData();
+		if (binaryData == null || binaryData.length == 0)
+		{
+			return null;
+		}
+		if (!isContentReference(binaryData))
+		{
+			throw new AdempiereException("Archive does not reference a content file: " + archive);
+		}
+
+		final String hash = extractContentHash(binaryData);
+		if (hash == null)
+		{
+			throw new AdempiereException("Invalid content reference: " + archive);
+		}
+
+		final File file = getContentFile(hash);
+		if (!file.exists())
+		{
+			throw new AdempiereException("File not found: " + file.getAbsolutePath());
+		}
+
+		try
+		{
+			return new GZIPInputStream(new BufferedInputStream(new FileInputStream(file)));
+		}
+		catch (final IOException e)
+		{
+			throw new AdempiereException("Error reading " + file.getAbsolutePath() + " for " + archive, e);
+		}
+	}
+
+	@Override
+	public void setBinaryData(@NonNull final I_AD_Archive archive, @NonNull final byte[] data)
+	{
+		setBinaryDataFromStream(archive, new ByteArrayInputStream(data));
+	}
+
+	/**
+	 * Compresses the data into a temporary file while computing its hash. If there is already a content file with the same hash, the temporary file is discarded.
+	 */
+	@Override
+	public void setBinaryDataFromStream(@NonNull final I_AD_Archive archive, @NonNull final InputStream data)
+	{
+		checkContext();
+
+		File tempFile = null;
+		try
+		{
+			if (!contentRoot.exists() && !contentRoot.mkdirs() && !contentRoot.exists())
+			{
+				throw new AdempiereException("Unable to create folder: " + contentRoot.getAbsolutePath());
+			}
+
+			// NOTE: create the temporary file within the content root, so that we can atomically move it to its final place
+			tempFile = File.createTempFile(TEMP_FILE_PREFIX, TEMP_FILE_SUFFIX, contentRoot);
+
+			final MessageDigest digest = MessageDigest.getInstance(HASH_ALGORITHM);
+			final long size;
+			try (final OutputStream out = new GZIPOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile))))
+			{
+				size = ByteStreams.copy(new DigestInputStream(data, digest), out);
+			}
+			if (size <= 0)
+			{
+				throw new AdempiereException("data may not be empty")
+						.appendParametersToMessage()
+						.setParameter("AD_Archive", archive);
+			}
+
+			final String hash = BaseEncoding.base16().lowerCase().encode(digest.digest());
+			final File contentFile = getContentFile(hash);
+			if (touchIfExists(contentFile))
+			{
+				logger.debug("Content file {} already exists; reusing it for {}", contentFile, archive);
+			}
+			else
+			{
+				moveToContentFile(tempFile, contentFile);
+				tempFile = null;
+				logger.debug("Stored {} bytes to {} for {}", size, contentFile, archive);
+			}
+
+			archive.setBinaryData((CONTENT_REFERENCE_PREFIX + hash).getBytes(StandardCharsets.UTF_8));
+			archive.setIsFileSystem(true);
+		}
+		catch (final IOException | NoSuchAlgorithmException e)
+		{
+			throw new AdempiereException("Error saving data to filesystem (archive=" + archive + ")", e);
+		}
+		finally
+		{
+			deleteIfExists(tempFile);
+		}
+	}
+
+	private static void moveToContentFile(@NonNull final File tempFile, @NonNull final File contentFile) throws IOException
+	{
+		final File folder = contentFile.getParentFile();
+		if (!folder.exists() && !folder.mkdirs() && !folder.exists())
+		{
+			throw new AdempiereException("Unable to create folder: " + folder.getAbsolutePath());
+		}
+
+		try
+		{
+			Files.move(tempFile.toPath(), contentFile.toPath(), StandardCopyOption.ATOMIC_MOVE);
+		}
+		catch (final FileAlreadyExistsException e)
+		{
+			// another thread or node stored the same content in the meantime
+			logger.debug("Content file {} was created in the meantime", contentFile);
+			touchIfExists(contentFile);
+			deleteIfExists(tempFile);
+		}
+	}
+
+	/**
+	 * Updates the file's last modified timestamp, so that {@link #deleteUnreferencedContentFiles(Set, Instant)} does not delete it while the archive which (again) references it is not yet committed.
+	 *
+	 * @return false if the file does not exist
+	 */
+	private static boolean touchIfExists(@NonNull final File contentFile)
+	{
+		return contentFile.setLastModified(System.currentTimeMillis());
+	}
+
+	/**
+	 * Sweeps the content root: deletes all content files which are not referenced anymore, as well as leftover temporary files.
+	 * <p>
+	 * Files which were modified at or after the given instant are kept, because they might belong to archives whose transaction is not yet committed.
+	 * Note that a content file is also "modified" when it's reused for another archive.
+	 *
+	 * @param referencedHashes the hashes (see {@link #extractContentHash(byte[])}) of all archives' content files, of all tenants that share this content root
+	 * @return the number of deleted files
+	 */
+	public int deleteUnreferencedContentFiles(@NonNull final Set<String> referencedHashes, @NonNull final Instant notModifiedSince)
+	{
+		checkContext();
+
+		if (!contentRoot.exists())
+		{
+			return 0;
+		}
+
+		final List<Path> files;
+		try (final Stream<Path> paths = Files.walk(contentRoot.toPath()))
+		{
+			files = paths.filter(Files::isRegularFile).collect(ImmutableList.toImmutableList());
+		}
+		catch (final IOException e)
+		{
+			throw new AdempiereException("Error listing the files of " + contentRoot.getAbsolutePath(), e);
+		}
+
+		int countDeleted = 0;
+		for (final Path file : files)
+		{
+			if (!isUnreferencedContentOrTempFile(file, referencedHashes))
+			{
+				continue;
+			}
+
+			try
+			{
+				if (Files.getLastModifiedTime(file).toInstant().isBefore(notModifiedSince) && Files.deleteIfExists(file))
+				{
+					logger.debug("Deleted unreferenced file {}", file);
+					countDeleted++;
+				}
+			}
+			catch (final IOException e)
+			{
+				logger.warn("Failed deleting unreferenced file {}; ignored", file, e);
+			}
+		}
+
+		return countDeleted;
+	}
+
+	private static boolean isUnreferencedContentOrTempFile(@NonNull final Path file, @NonNull final Set<String> referencedHashes)
+	{
+		final String fileName = file.getFileName().toString();
+		if (fileName.startsWith(TEMP_FILE_PREFIX) && fileName.endsWith(TEMP_FILE_SUFFIX))
+		{
+			return true;
+		}
+		if (!fileName.endsWith(CONTENT_FILE_EXTENSION))
+		{
+			return false; // not ours
+		}
+
+		final String hash = fileName.substring(0, fileName.length() - CONTENT_FILE_EXTENSION.length());
+		return HASH_PATTERN.matcher(hash).matches() && !referencedHashes.contains(hash);
+	}
+
+	private static void deleteIfExists(@Nullable final File file)
+	{
+		if (file == null)
+		{
+			return;
+		}
+
+		try
+		{
+			Files.deleteIfExists(file.toPath());
+		}
+		catch (final IOException e)
+		{
+			logger.warn("Failed deleting temporary file {}", file, e);
+		}
+	}
+
+	/**
+	 * @return content file, e.g. <code>content/ab/cd/abcdef...gz</code>; the two subfolder levels keep the number of files per folder reasonably small.
+	 */
+	private File getContentFile(@NonNull final String hash)
+	{
+		final File folder = new File(new File(contentRoot, hash.substring(0, 2)), hash.substring(2, 4));
+		return new File(folder, hash + CONTENT_FILE_EXTENSION);
+	}
+
+	@Override
+	public String toString()
+	{
+		return "ContentAddressedArchiveStorage [ContentRoot=" + contentRoot + "]";
+	}
+}
@@ -25,6 +25,8 @@ package org.adempiere.archive.spi.impl;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.Properties;
 import java.util.zip.Deflater;
 import java.util.zip.ZipEntry;
@@ -35,6 +37,9 @@ import lombok.NonNull;
 import org.adempiere.exceptions.AdempiereException;
 import org.compiere.model.I_AD_Archive;
 import org.slf4j.Logger;
+
+import com.google.common.io.ByteStreams;
+
 import de.metas.logging.LogManager;
 
 /**
@@ -107,6 +112,37 @@ public class DBArchiveStorage extends AbstractArchiveStorage
 		return inflatedData;
 	} // getBinaryData
 
+	/**
+	 * Inflates the data while it's read, i.e. unlike {@link #getBinaryData(I_AD_Archive)} we don't create an array with the whole inflated data.
+	 *
+	 * @return inflating input stream or null
+	 */
+	@Override
+	public InputStream getBinaryDataAsStream(final I_AD_Archive archive)
+	{
+		final byte[] deflatedData = archive.getBinaryData();
+		if (deflatedData == null || deflatedData.length == 0)
+		{
+			return null;
+		}
+
+		final ZipInputStream zip = new ZipInputStream(new ByteArrayInputStream(deflatedData));
+		try
+		{
+			final ZipEntry entry = zip.getNextEntry();
+			if (entry == null)
+			{
+				zip.close();
+				return null;
+			}
+			return zip; // just one entry
+		}
+		catch (final IOException e)
+		{
+			throw new AdempiereException(e);
+		}
+	}
+
 	@Override
 	public void setBinaryData(@NonNull final I_AD_Archive archive, @NonNull final byte[] uncompressedData)
 	{
@@ -116,6 +152,15 @@ public class DBArchiveStorage extends AbstractArchiveStorage
 					.appendParametersToMessage()
 					.setParameter("AD_Archive", archive);
 		}
+		setBinaryDataFromStream(archive, new ByteArrayInputStream(uncompressedData));
+	}
+
+	/**
+	 * Deflates the data while it's read, i.e. only the compressed data is kept in memory.
+	 */
+	@Override
+	public void setBinaryDataFromStream(@NonNull final I_AD_Archive archive, @NonNull final InputStream uncompressedData)
+	{
 		final ByteArrayOutputStream out = new ByteArrayOutputStream();
 		final ZipOutputStream zip = new ZipOutputStream(out);
 		zip.setMethod(ZipOutputStream.DEFLATED);
@@ -129,15 +174,21 @@ public class DBArchiveStorage extends AbstractArchiveStorage
 			entry.setTime(System.currentTimeMillis());
 			entry.setMethod(ZipEntry.DEFLATED);
 			zip.putNextEntry(entry);
-			zip.write(uncompressedData, 0, uncompressedData.length);
+			final long uncompressedSize = ByteStreams.copy(uncompressedData, zip);
 			zip.closeEntry();
+			if (uncompressedSize <= 0)
+			{
+				throw new AdempiereException("uncompressedData may not be empty")
+						.appendParametersToMessage()
+						.setParameter("AD_Archive", archive);
+			}
 			logger.debug(entry.getCompressedSize() + " (" + entry.getSize() + ") "
 					+ (entry.getCompressedSize() * 100 / entry.getSize()) + "%");
 			//
 			// zip.finish();
 			zip.close();
 			compressedData = out.toByteArray();
-			logger.debug("Length=" + uncompressedData.length);
+			logger.debug("Length=" + uncompressedSize);
 			// m_deflated = new Integer(compressedData.length);
 		}
 		catch (Exception e)
@@ -23,12 +23,20 @@ package org.adempiere.archive.spi.impl;
  */
 
 
+import java.io.BufferedInputStream;
 import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.UnsupportedEncodingException;
 import java.util.Properties;
 import org.slf4j.Logger;
+
+import com.google.common.io.ByteStreams;
+
 import de.metas.logging.LogManager;
 import de.metas.util.Check;
 import de.metas.util.Services;
@@ -87,7 +95,7 @@ public class FilesystemArchiveStorage extends AbstractArchiveStorage
 		}
 	}
 
-	private static final String getArchivePath(final I_AD_Client config)
+	/* package */ static String getArchivePath(final I_AD_Client config)
 	{
 		String archivePathRoot;
 		if (File.separatorChar == '\\')
@@ -138,6 +146,43 @@ public class FilesystemArchiveStorage extends AbstractArchiveStorage
 	 */
 	@Override
 	public byte[] getBinaryData(final I_AD_Archive archive)
+	{
+		final File file = getFile(archive);
+		if (file == null)
+		{
+			return null;
+		}
+
+		final byte[] dataEntry = Util.readBytes(file);
+		return dataEntry;
+	}
+
+	/**
+	 * @return stream of the archive's file (without loading the file into memory) or null
+	 */
+	@Override
+	public InputStream getBinaryDataAsStream(final I_AD_Archive archive)
+	{
+		final File file = getFile(archive);
+		if (file == null)
+		{
+			return null;
+		}
+
+		try
+		{
+			return new BufferedInputStream(new FileInputStream(file));
+		}
+		catch (final IOException ioe)
+		{
+			throw new AdempiereException(ioe.getLocalizedMessage(), ioe);
+		}
+	}
+
+	/**
+	 * @return the archive's file or null if the archive has no data
+	 */
+	public File getFile(final I_AD_Archive archive)
 	{
 		checkContext();
 		
@@ -174,17 +219,12 @@ public class FilesystemArchiveStorage extends AbstractArchiveStorage
 			{
 				throw new AdempiereException("File not found: " + file.getAbsolutePath());
 			}
-
-			final byte[] dataEntry = Util.readBytes(file);
-			return dataEntry;
+			return file;
 		}
-		catch (IOException ioe)
+		catch (UnsupportedEncodingException e)
 		{
-			// I/O error
-			// logger.error(ioe.getLocalizedMessage(), ioe);
-			throw new AdempiereException(ioe.getLocalizedMessage(), ioe);
+			throw new AdempiereException(e.getLocalizedMessage(), e);
 		}
-		// return null;
 	}
 
 	/**
@@ -195,13 +235,22 @@ public class FilesystemArchiveStorage extends AbstractArchiveStorage
 	@Override
 	public void setBinaryData(final I_AD_Archive archive, final byte[] inflatedData)
 	{
-		checkContext();
-		
 		if (inflatedData == null || inflatedData.length == 0)
 		{
 			throw new IllegalArgumentException("InflatedData is NULL");
 		}
 
+		setBinaryDataFromStream(archive, new ByteArrayInputStream(inflatedData));
+	}
+
+	/**
+	 * Like {@link #setBinaryData(I_AD_Archive, byte[])}, but copies the given stream directly to the archive's file.
+	 */
+	@Override
+	public void setBinaryDataFromStream(final I_AD_Archive archive, final InputStream inflatedData)
+	{
+		checkContext();
+
 		if (archive.getAD_Archive_ID() <= 0)
 		{
 			// set binary data otherwise save will fail
@@ -229,8 +278,12 @@ public class FilesystemArchiveStorage extends AbstractArchiveStorage
 			final File destFile = new File(destFolder, filenamePart);
 
 			out = new BufferedOutputStream(new FileOutputStream(destFile));
-			out.write(inflatedData);
+			final long size = ByteStreams.copy(inflatedData, out);
 			out.flush();
+			if (size <= 0)
+			{
+				throw new IllegalArgumentException("InflatedData is empty");
+			}
 
 			// 04692: metas-ts removed xml processing because totally don't need it and it's prone to "content-is-not-allowed-in-prolog" errors
 			final String archiveInfo = ARCHIVE_FOLDER_PLACEHOLDER + getArchivePathSnippet(archive) + filenamePart;
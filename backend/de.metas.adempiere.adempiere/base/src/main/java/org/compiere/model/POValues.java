@@ -0,0 +1,339 @@
+package org.compiere.model;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.function.IntFunction;
+
+import javax.annotation.Nullable;
+
+import com.google.common.annotations.VisibleForTesting;
+
+import lombok.NonNull;
+
+/*
+ * #%L
+ * de.metas.adempiere.adempiere.base
+ * %%
+ * Copyright (C) 2020 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+/**
+ * Value storage of a {@link PO}.
+ * <p>
+ * Compared to plain <code>Object[]</code> arrays for old and new values, this storage:
+ * <ul>
+ * <li>keeps the old values of Integer columns (IDs, integer numerics) in <code>int</code> slots, so no boxed {@link Integer}s are retained
+ * <li>keeps the old values of all other columns in an array which is sized by the count of those columns only
+ * <li>allocates the new values array only when the first value is set, and drops it again when the new values are reset; most loaded POs are never changed
+ * <li>tracks changed and loaded columns as bitsets
+ * </ul>
+ * When reading, the int slots are boxed using a small cache which is shared by all POs (see {@link #boxOldInt(int)}), so reading the same IDs over and over does not allocate.
+ * Columns flagged as <code>AD_Column.IsLazyLoading</code> are not loaded together with the record, so they don't use any storage until first accessed.
+ * <p>
+ * NOTE: the semantics of new values are the ones {@link PO} was always using: a <code>null</code> new value means "not changed" while {@link Null#NULL} means "changed to null".
+ */
+final class POValues implements Serializable
+{
+	private static final long serialVersionUID = 3171620848302917385L;
+
+	/**
+	 * Boxed {@link Integer}s which were read recently, shared by all POs. It's direct mapped and has a fixed size, so it does not retain memory per PO.
+	 * Concurrent access is racy but safe: {@link Integer}s are immutable and a lost update only costs one more allocation.
+	 */
+	private static final Integer[] boxedIntsCache = new Integer[4096]; // size must be a power of 2
+
+	private final Layout layout;
+
+	private final int[] oldInts;
+	/** Set for int slots which currently hold a value (i.e. not null and not overridden) */
+	private final BitSet oldIntsSet;
+	/** Non Integer values which were set to Integer columns (should not happen, but legacy code is tolerating it) */
+	@Nullable
+	private Object[] oldIntsOverrides; // lazy
+	private final Object[] oldObjects;
+
+	@Nullable
+	private Object[] newValues; // lazy
+	private final BitSet newValuesSet;
+
+	private final BitSet loaded;
+
+	POValues(@NonNull final Layout layout)
+	{
+		this.layout = layout;
+		this.oldInts = new int[layout.intSlotsCount];
+		this.oldIntsSet = new BitSet(layout.intSlotsCount);
+		this.oldIntsOverrides = null;
+		this.oldObjects = new Object[layout.objectSlotsCount];
+		this.newValues = null;
+		this.newValuesSet = new BitSet(layout.columnsCount);
+		this.loaded = new BitSet(layout.columnsCount);
+	}
+
+	private POValues(@NonNull final POValues from)
+	{
+		this.layout = from.layout;
+		this.oldInts = from.oldInts.clone();
+		this.oldIntsSet = (BitSet)from.oldIntsSet.clone();
+		this.oldIntsOverrides = from.oldIntsOverrides == null ? null : from.oldIntsOverrides.clone();
+		this.oldObjects = from.oldObjects.clone();
+		this.newValues = from.newValues == null ? null : from.newValues.clone();
+		this.newValuesSet = (BitSet)from.newValuesSet.clone();
+		this.loaded = (BitSet)from.loaded.clone();
+	}
+
+	public POValues copy()
+	{
+		return new POValues(this);
+	}
+
+	public int size()
+	{
+		return layout.columnsCount;
+	}
+
+	@Nullable
+	public Object getOldValue(final int index)
+	{
+		final int intSlot = layout.intSlots[index];
+		if (intSlot >= 0)
+		{
+			if (oldIntsSet.get(intSlot))
+			{
+				return boxOldInt(oldInts[intSlot]);
+			}
+			return oldIntsOverrides != null ? oldIntsOverrides[intSlot] : null;
+		}
+		else
+		{
+			return oldObjects[layout.objectSlots[index]];
+		}
+	}
+
+	public void setOldValue(final int index, @Nullable final Object value)
+	{
+		final int intSlot = layout.intSlots[index];
+		if (intSlot >= 0)
+		{
+			if (value instanceof Integer)
+			{
+				oldInts[intSlot] = (Integer)value;
+				oldIntsSet.set(intSlot);
+				if (oldIntsOverrides != null)
+				{
+					oldIntsOverrides[intSlot] = null;
+				}
+			}
+			else
+			{
+				oldInts[intSlot] = 0;
+				oldIntsSet.clear(intSlot);
+				if (value != null || oldIntsOverrides != null)
+				{
+					getOldIntsOverrides()[intSlot] = value;
+				}
+			}
+		}
+		else
+		{
+			oldObjects[layout.objectSlots[index]] = value;
+		}
+	}
+
+	@VisibleForTesting
+	static Integer boxOldInt(final int value)
+	{
+		if (value >= -128 && value <= 127)
+		{
+			return value; // Integer's own cache
+		}
+
+		final int cacheIndex = (value ^ (value >>> 16)) & (boxedIntsCache.length - 1);
+		final Integer cached = boxedIntsCache[cacheIndex];
+		if (cached != null && cached == value)
+		{
+			return cached;
+		}
+
+		final Integer boxed = value;
+		boxedIntsCache[cacheIndex] = boxed;
+		return boxed;
+	}
+
+	private Object[] getOldIntsOverrides()
+	{
+		Object[] oldIntsOverrides = this.oldIntsOverrides;
+		if (oldIntsOverrides == null)
+		{
+			oldIntsOverrides = this.oldIntsOverrides = new Object[layout.intSlotsCount];
+		}
+		return oldIntsOverrides;
+	}
+
+	/**
+	 * @return new value; <code>null</code> if not changed or {@link Null#NULL} if it was changed to null
+	 */
+	@Nullable
+	public Object getNewValue(final int index)
+	{
+		return newValues != null ? newValues[index] : null;
+	}
+
+	/**
+	 * @param value new value; <code>null</code> to un-set the new value or {@link Null#NULL} to change it to null
+	 */
+	public void setNewValue(final int index, @Nullable final Object value)
+	{
+		if (value == null)
+		{
+			if (newValues != null)
+			{
+				newValues[index] = null;
+			}
+			newValuesSet.clear(index);
+		}
+		else
+		{
+			Object[] newValues = this.newValues;
+			if (newValues == null)
+			{
+				newValues = this.newValues = new Object[layout.columnsCount];
+			}
+			newValues[index] = value;
+			newValuesSet.set(index);
+		}
+	}
+
+	@VisibleForTesting
+	boolean isNewValuesAllocated()
+	{
+		return newValues != null;
+	}
+
+	public boolean hasNewValues()
+	{
+		return !newValuesSet.isEmpty();
+	}
+
+	public void resetNewValues()
+	{
+		newValues = null;
+		newValuesSet.clear();
+	}
+
+	/**
+	 * Makes the new values the old ones (i.e. after they were saved) and resets the new values.
+	 */
+	public void commitNewValues()
+	{
+		final Object[] newValues = this.newValues;
+		if (newValues != null)
+		{
+			for (int index = newValuesSet.nextSetBit(0); index >= 0; index = newValuesSet.nextSetBit(index + 1))
+			{
+				final Object newValue = newValues[index];
+				setOldValue(index, newValue == Null.NULL ? null : newValue);
+			}
+		}
+		resetNewValues();
+	}
+
+	public boolean isLoaded(final int index)
+	{
+		return loaded.get(index);
+	}
+
+	public void setLoaded(final int index, final boolean loaded)
+	{
+		this.loaded.set(index, loaded);
+	}
+
+	@Override
+	public String toString()
+	{
+		final StringBuilder sb = new StringBuilder("POValues[");
+		for (int index = 0; index < layout.columnsCount; index++)
+		{
+			if (index > 0)
+			{
+				sb.append(", ");
+			}
+			sb.append(getOldValue(index));
+			final Object newValue = getNewValue(index);
+			if (newValue != null)
+			{
+				sb.append("->").append(newValue);
+			}
+		}
+		return sb.append("]").toString();
+	}
+
+	/**
+	 * Maps the column indexes to value slots. It's immutable and shall be shared by all POs of the same table, see {@link POInfo#getValuesLayout()}.
+	 */
+	static final class Layout implements Serializable
+	{
+		private static final long serialVersionUID = -6427003387209155820L;
+
+		public static Layout ofColumnClasses(@NonNull final List<Class<?>> columnClasses)
+		{
+			return new Layout(columnClasses.size(), columnClasses::get);
+		}
+
+		private final int columnsCount;
+		/** For each column index, the int slot or -1 if the column is not an Integer column */
+		private final int[] intSlots;
+		private final int intSlotsCount;
+		/** For each column index, the object slot or -1 if the column is an Integer column */
+		private final int[] objectSlots;
+		private final int objectSlotsCount;
+
+		Layout(final int columnsCount, @NonNull final IntFunction<Class<?>> columnClassByIndex)
+		{
+			this.columnsCount = columnsCount;
+			this.intSlots = new int[columnsCount];
+			this.objectSlots = new int[columnsCount];
+			Arrays.fill(intSlots, -1);
+			Arrays.fill(objectSlots, -1);
+
+			int intSlotsCount = 0;
+			int objectSlotsCount = 0;
+			for (int index = 0; index < columnsCount; index++)
+			{
+				if (columnClassByIndex.apply(index) == Integer.class)
+				{
+					intSlots[index] = intSlotsCount++;
+				}
+				else
+				{
+					objectSlots[index] = objectSlotsCount++;
+				}
+			}
+			this.intSlotsCount = intSlotsCount;
+			this.objectSlotsCount = objectSlotsCount;
+		}
+
+		@Override
+		public String toString()
+		{
+			return "POValues.Layout[columnsCount=" + columnsCount + ", intSlotsCount=" + intSlotsCount + ", objectSlotsCount=" + objectSlotsCount + "]";
+		}
+	}
+}
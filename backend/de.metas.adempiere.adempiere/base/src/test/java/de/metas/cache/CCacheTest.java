@@ -24,9 +24,15 @@ import static org.assertj.core.api.Assertions.assertThat;
  * #L%
  */
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.function.Supplier;
 
 import org.junit.Assert;
@@ -34,6 +40,8 @@ import org.junit.Test;
 
 import com.google.common.collect.ImmutableMap;
 
+import de.metas.cache.CCache.CacheMapType;
+
 public class CCacheTest
 {
 	public static class MyUncheckedException extends RuntimeException
@@ -244,4 +252,243 @@ public class CCacheTest
 		cache.remove("k1");
 		assertThat(removedItems).containsEntry("k1", "v1");
 	}
+
+	@Test
+	public void test_TinyLFU_oneOffScanDoesNotEvictFrequentlyUsedEntries()
+	{
+		final CCache<String, String> cache = CCache.<String, String> builder()
+				.cacheMapType(CacheMapType.TinyLFU)
+				.initialCapacity(20)
+				.build();
+
+		for (int i = 0; i < 15; i++)
+		{
+			for (int hotKey = 0; hotKey < 20; hotKey++)
+			{
+				cache.getOrLoad("hot" + hotKey, key -> "value-" + key);
+			}
+		}
+		assertThat(cache.size()).isEqualTo(20);
+
+		for (int scanKey = 0; scanKey < 200; scanKey++)
+		{
+			final String value = cache.getOrLoad("scan" + scanKey, key -> "value-" + key);
+			assertThat(value).isEqualTo("value-scan" + scanKey);
+		}
+
+		assertThat(cache.size()).isEqualTo(20);
+		for (int hotKey = 0; hotKey < 20; hotKey++)
+		{
+			assertThat(cache.containsKey("hot" + hotKey)).isTrue();
+		}
+	}
+
+	@Test
+	public void test_TinyLFU_memoryBudget()
+	{
+		final CCache<String, String> cache = CCache.<String, String> builder()
+				.cacheMapType(CacheMapType.TinyLFU)
+				.maximumWeightInBytes(1000L)
+				.weigher((key, value) -> 100)
+				.build();
+
+		for (int i = 0; i < 50; i++)
+		{
+			cache.put("key" + i, "value" + i);
+		}
+		assertThat(cache.size()).isEqualTo(10);
+		assertThat(cache.getEstimatedBytes()).isEqualTo(1000);
+
+		// a key which is frequently requested shall be admitted, even if the cache is full
+		for (int i = 0; i < 3; i++)
+		{
+			assertThat(cache.get("frequentKey")).isNull();
+		}
+		cache.put("frequentKey", "frequentValue");
+
+		assertThat(cache.get("frequentKey")).isEqualTo("frequentValue");
+		assertThat(cache.size()).isEqualTo(10);
+		assertThat(cache.getEstimatedBytes()).isEqualTo(1000);
+
+		cache.reset();
+		assertThat(cache.getEstimatedBytes()).isEqualTo(0);
+	}
+
+	@Test
+	public void test_TinyLFU_memoryBudget_evictsUntilNewEntryFits()
+	{
+		final CCache<String, String> cache = CCache.<String, String> builder()
+				.cacheMapType(CacheMapType.TinyLFU)
+				.maximumWeightInBytes(1000L)
+				.weigher((key, value) -> "bigValue".equals(value) ? 600 : 100)
+				.build();
+
+		for (int i = 0; i < 10; i++)
+		{
+			cache.put("key" + i, "value" + i);
+		}
+		assertThat(cache.getEstimatedBytes()).isEqualTo(1000);
+
+		for (int i = 0; i < 3; i++)
+		{
+			assertThat(cache.get("bigKey")).isNull();
+		}
+		cache.put("bigKey", "bigValue");
+
+		assertThat(cache.get("bigKey")).isEqualTo("bigValue");
+		assertThat(cache.size()).isEqualTo(5);
+		assertThat(cache.getEstimatedBytes()).isEqualTo(1000);
+	}
+
+	@Test
+	public void test_TinyLFU_frequentlyUsedEntriesReplaceColdOnes()
+	{
+		final CCache<String, String> cache = CCache.<String, String> builder()
+				.cacheMapType(CacheMapType.TinyLFU)
+				.initialCapacity(100)
+				.build();
+
+		for (int i = 0; i < 100; i++)
+		{
+			cache.put("cold" + i, "value" + i);
+		}
+
+		for (int i = 0; i < 20; i++)
+		{
+			final String key = "new" + i;
+			cache.get(key);
+			cache.get(key);
+			cache.getOrLoad(key, k -> "value-" + k);
+		}
+
+		assertThat(cache.size()).isEqualTo(100);
+		for (int i = 0; i < 20; i++)
+		{
+			assertThat(cache.containsKey("new" + i)).isTrue();
+		}
+	}
+
+	@Test
+	public void test_TinyLFU_memoryBudgetIsSharedByLabel()
+	{
+		final String tableName = "Test_SharedBudget_" + CCache.NEXT_CACHE_ID.get();
+		final CCache<String, String> cache1 = CCache.<String, String> builder()
+				.cacheName(tableName + "#1")
+				.cacheMapType(CacheMapType.TinyLFU)
+				.maximumWeightInBytes(1000L)
+				.weigher((key, value) -> 100)
+				.build();
+		final CCache<String, String> cache2 = CCache.<String, String> builder()
+				.cacheName(tableName + "#2")
+				.cacheMapType(CacheMapType.TinyLFU)
+				.maximumWeightInBytes(1000L)
+				.weigher((key, value) -> 100)
+				.build();
+
+		for (int i = 0; i < 10; i++)
+		{
+			cache1.put("key" + i, "value" + i);
+		}
+		assertThat(cache1.getEstimatedBytes()).isEqualTo(1000);
+
+		// the budget is full, so a key which was never requested is not admitted to the other cache either
+		cache2.put("coldKey", "coldValue");
+		assertThat(cache2.containsKey("coldKey")).isFalse();
+
+		// a frequently requested key evicts an entry of the other cache
+		for (int i = 0; i < 3; i++)
+		{
+			assertThat(cache2.get("frequentKey")).isNull();
+		}
+		cache2.put("frequentKey", "frequentValue");
+
+		assertThat(cache2.get("frequentKey")).isEqualTo("frequentValue");
+		assertThat(cache1.size()).isEqualTo(9);
+		assertThat(cache1.getEstimatedBytes() + cache2.getEstimatedBytes()).isEqualTo(1000);
+	}
+
+	@Test
+	public void test_TinyLFU_concurrentPutsDontOvershootTheBudget() throws Exception
+	{
+		final CCache<String, String> cache = CCache.<String, String> builder()
+				.cacheMapType(CacheMapType.TinyLFU)
+				.maximumWeightInBytes(1000L)
+				.weigher((key, value) -> 100)
+				.build();
+
+		final int threadsCount = 8;
+		final ExecutorService executor = Executors.newFixedThreadPool(threadsCount);
+		try
+		{
+			final CountDownLatch start = new CountDownLatch(1);
+			final List<Future<?>> futures = new ArrayList<>();
+			for (int thread = 0; thread < threadsCount; thread++)
+			{
+				final int threadNo = thread;
+				futures.add(executor.submit(() -> {
+					start.await();
+					for (int i = 0; i < 500; i++)
+					{
+						final String key = "key" + threadNo + "-" + i;
+						cache.get(key); // make it more frequent than the cached ones, so it evicts them
+						cache.get(key);
+						cache.put(key, "value");
+						assertThat(cache.getEstimatedBytes()).isLessThanOrEqualTo(1000);
+					}
+					return null;
+				}));
+			}
+			start.countDown();
+
+			for (final Future<?> future : futures)
+			{
+				future.get();
+			}
+		}
+		finally
+		{
+			executor.shutdownNow();
+		}
+
+		assertThat(cache.getEstimatedBytes()).isLessThanOrEqualTo(1000);
+		assertThat(cache.getEstimatedBytes()).isEqualTo(cache.size() * 100);
+	}
+
+	@Test
+	public void test_stats_hitRate()
+	{
+		final CCache<String, String> cache = CCache.<String, String> builder()
+				.cacheName("Test")
+				.recordStats(true)
+				.build();
+		cache.put("k1", "v1");
+
+		cache.get("k1");
+		cache.get("k2");
+
+		assertThat(cache.stats().isStatsRecorded()).isTrue();
+		assertThat(cache.stats().getHitRate()).isEqualTo(0.5);
+	}
+
+	@Test
+	public void test_stats_notRecordedByDefault()
+	{
+		final CCache<String, String> cache = new CCache<>("Test", 10);
+		cache.put("k1", "v1");
+
+		cache.get("k1");
+		cache.get("k2");
+
+		assertThat(cache.stats().isStatsRecorded()).isFalse();
+		assertThat(cache.stats().getGuavaStats().requestCount()).isEqualTo(0);
+	}
+
+	@Test
+	public void test_stats_estimatedBytesNotTracked()
+	{
+		final CCache<String, String> cache = new CCache<>("Test", 10);
+		cache.put("k1", "v1");
+
+		assertThat(cache.stats().getEstimatedBytes()).isEqualTo(CCache.ESTIMATED_BYTES_Unknown);
+	}
 }
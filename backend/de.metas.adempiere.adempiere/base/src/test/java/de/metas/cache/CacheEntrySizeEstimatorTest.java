@@ -0,0 +1,117 @@
+package de.metas.cache;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.math.BigDecimal;
+import java.util.Properties;
+
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableList;
+
+/*
+ * #%L
+ * de.metas.adempiere.adempiere.base
+ * %%
+ * Copyright (C) 2020 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+public class CacheEntrySizeEstimatorTest
+{
+	private static class Rate
+	{
+		@SuppressWarnings("unused")
+		private final int uomId;
+		@SuppressWarnings("unused")
+		private final BigDecimal multiplier;
+
+		private Rate(final int uomId, final BigDecimal multiplier)
+		{
+			this.uomId = uomId;
+			this.multiplier = multiplier;
+		}
+	}
+
+	private static class Rates
+	{
+		@SuppressWarnings("unused")
+		private final String name;
+		@SuppressWarnings("unused")
+		private final ImmutableList<Rate> rates;
+		@SuppressWarnings("unused")
+		private final Properties ctx;
+
+		private Rates(final String name, final ImmutableList<Rate> rates, final Properties ctx)
+		{
+			this.name = name;
+			this.rates = rates;
+			this.ctx = ctx;
+		}
+	}
+
+	private static class Node
+	{
+		@SuppressWarnings("unused")
+		private final byte[] payload = new byte[100];
+		private Node next;
+	}
+
+	@Test
+	public void objectIsEstimatedFromItsFields()
+	{
+		// header + int + reference, aligned; plus the BigDecimal
+		assertThat(CacheEntrySizeEstimator.estimateBytes(new Rate(1, BigDecimal.ONE))).isEqualTo(32 + 48);
+	}
+
+	@Test
+	public void referencedObjectsAreIncluded()
+	{
+		final int oneRate = CacheEntrySizeEstimator.estimateBytes(new Rate(1, BigDecimal.ONE));
+
+		final Rates small = new Rates("name", ImmutableList.of(new Rate(1, BigDecimal.ONE)), new Properties());
+		final Rates big = new Rates("name", ImmutableList.of(new Rate(1, BigDecimal.ONE), new Rate(2, BigDecimal.TEN), new Rate(3, BigDecimal.ONE)), new Properties());
+
+		assertThat(CacheEntrySizeEstimator.estimateBytes(big) - CacheEntrySizeEstimator.estimateBytes(small)).isEqualTo(2 * (8 + oneRate));
+	}
+
+	@Test
+	public void sharedContextIsNotIncluded()
+	{
+		final Properties bigCtx = new Properties();
+		for (int i = 0; i < 1000; i++)
+		{
+			bigCtx.setProperty("key" + i, "value" + i);
+		}
+
+		final ImmutableList<Rate> rates = ImmutableList.of(new Rate(1, BigDecimal.ONE));
+		assertThat(CacheEntrySizeEstimator.estimateBytes(new Rates("name", rates, bigCtx)))
+				.isEqualTo(CacheEntrySizeEstimator.estimateBytes(new Rates("name", rates, new Properties())));
+	}
+
+	@Test
+	public void cyclesAreCountedOnce()
+	{
+		final Node node1 = new Node();
+		final Node node2 = new Node();
+		node1.next = node2;
+		node2.next = node1;
+
+		final int nodeBytes = (16 + 2 * 8) + (16 + 100 + 4); // header + 2 references; array header + payload, aligned
+		assertThat(CacheEntrySizeEstimator.estimateBytes(node1)).isEqualTo(2 * nodeBytes);
+	}
+}
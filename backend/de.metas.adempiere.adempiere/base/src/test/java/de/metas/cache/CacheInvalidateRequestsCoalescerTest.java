@@ -0,0 +1,118 @@
+package de.metas.cache;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+import de.metas.cache.model.CacheInvalidateMultiRequest;
+import de.metas.cache.model.CacheInvalidateRequest;
+
+/*
+ * #%L
+ * de.metas.adempiere.adempiere.base
+ * %%
+ * Copyright (C) 2020 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+class CacheInvalidateRequestsCoalescerTest
+{
+	@Test
+	void flush_nothingAdded()
+	{
+		final CacheInvalidateRequestsCoalescer coalescer = new CacheInvalidateRequestsCoalescer(100);
+		assertThat(coalescer.isEmpty()).isTrue();
+		assertThat(coalescer.flush()).isNull();
+	}
+
+	@Test
+	void duplicatesAreMerged()
+	{
+		final CacheInvalidateRequestsCoalescer coalescer = new CacheInvalidateRequestsCoalescer(100);
+		coalescer.add(CacheInvalidateMultiRequest.rootRecord("T1", 1));
+		coalescer.add(CacheInvalidateMultiRequest.rootRecord("T1", 1));
+		coalescer.add(CacheInvalidateMultiRequest.rootRecord("T1", 2));
+
+		final CacheInvalidateMultiRequest result = coalescer.flush();
+		assertThat(result.getRequests()).containsExactlyInAnyOrder(
+				CacheInvalidateRequest.rootRecord("T1", 1),
+				CacheInvalidateRequest.rootRecord("T1", 2));
+
+		assertThat(coalescer.isEmpty()).isTrue();
+	}
+
+	@Test
+	void recordsAreCollapsedToTableAboveThreshold()
+	{
+		final CacheInvalidateRequestsCoalescer coalescer = new CacheInvalidateRequestsCoalescer(3);
+		for (int recordId = 1; recordId <= 4; recordId++)
+		{
+			coalescer.add(CacheInvalidateMultiRequest.rootRecord("T1", recordId));
+		}
+		coalescer.add(CacheInvalidateMultiRequest.rootRecord("T2", 1));
+
+		final CacheInvalidateMultiRequest result = coalescer.flush();
+		assertThat(result.getRequests()).containsExactlyInAnyOrder(
+				CacheInvalidateRequest.allRecordsForTable("T1"),
+				CacheInvalidateRequest.rootRecord("T2", 1));
+	}
+
+	@Test
+	void thresholdChangeIsTakingEffectAfterFlush()
+	{
+		final AtomicInteger threshold = new AtomicInteger(100);
+		final CacheInvalidateRequestsCoalescer coalescer = new CacheInvalidateRequestsCoalescer(threshold::get);
+		coalescer.add(CacheInvalidateMultiRequest.rootRecord("T1", 1));
+		coalescer.add(CacheInvalidateMultiRequest.rootRecord("T1", 2));
+		assertThat(coalescer.flush().getRequests()).hasSize(2);
+
+		threshold.set(1);
+		coalescer.add(CacheInvalidateMultiRequest.rootRecord("T1", 1));
+		coalescer.add(CacheInvalidateMultiRequest.rootRecord("T1", 2));
+		assertThat(coalescer.flush().getRequests()).containsExactly(CacheInvalidateRequest.allRecordsForTable("T1"));
+	}
+
+	@Test
+	void recordsAreDroppedIfTheirTableIsInvalidated_butNotTheirRootRecords()
+	{
+		final CacheInvalidateRequestsCoalescer coalescer = new CacheInvalidateRequestsCoalescer(100);
+		coalescer.add(CacheInvalidateMultiRequest.of(CacheInvalidateRequest.builder()
+				.rootRecord("Root", 10)
+				.childRecord("Child", 20)
+				.build()));
+		coalescer.add(CacheInvalidateMultiRequest.allRecordsForTable("Child"));
+
+		final CacheInvalidateMultiRequest result = coalescer.flush();
+		assertThat(result.getRequests()).containsExactlyInAnyOrder(
+				CacheInvalidateRequest.allRecordsForTable("Child"),
+				CacheInvalidateRequest.rootRecord("Root", 10));
+	}
+
+	@Test
+	void resetAllWins()
+	{
+		final CacheInvalidateRequestsCoalescer coalescer = new CacheInvalidateRequestsCoalescer(100);
+		coalescer.add(CacheInvalidateMultiRequest.rootRecord("T1", 1));
+		coalescer.add(CacheInvalidateMultiRequest.all());
+		coalescer.add(CacheInvalidateMultiRequest.rootRecord("T2", 1));
+
+		final CacheInvalidateMultiRequest result = coalescer.flush();
+		assertThat(result.isResetAll()).isTrue();
+	}
+}
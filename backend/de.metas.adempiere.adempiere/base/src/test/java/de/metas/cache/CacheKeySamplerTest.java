@@ -0,0 +1,76 @@
+package de.metas.cache;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/*
+ * #%L
+ * de.metas.adempiere.adempiere.base
+ * %%
+ * Copyright (C) 2020 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.Test;
+
+public class CacheKeySamplerTest
+{
+	@Test
+	public void sample_coversAllKeys()
+	{
+		final CacheKeySampler<Integer> sampler = new CacheKeySampler<>();
+		for (int i = 0; i < 100; i++)
+		{
+			sampler.add(i);
+		}
+
+		final Set<Integer> sampledKeys = new HashSet<>();
+		for (int i = 0; i < 1000; i++)
+		{
+			sampledKeys.addAll(sampler.sample(8, null));
+		}
+
+		assertThat(sampledKeys).hasSize(100);
+	}
+
+	@Test
+	public void sample_excludesGivenKey()
+	{
+		final CacheKeySampler<Integer> sampler = new CacheKeySampler<>();
+		sampler.add(1);
+		sampler.add(2);
+
+		assertThat(sampler.sample(8, 1)).containsExactly(2);
+	}
+
+	@Test
+	public void remove()
+	{
+		final CacheKeySampler<Integer> sampler = new CacheKeySampler<>();
+		sampler.add(1);
+		sampler.add(2);
+		sampler.add(3);
+
+		sampler.remove(1);
+		sampler.remove(4);
+
+		assertThat(sampler.size()).isEqualTo(2);
+		assertThat(sampler.sample(8, null)).containsExactlyInAnyOrder(2, 3);
+	}
+}
@@ -0,0 +1,119 @@
+package de.metas.event.impl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.adempiere.test.AdempiereTestHelper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import de.metas.event.Event;
+import de.metas.event.EventBusOverflowPolicy;
+import de.metas.event.EventBusRingBufferConfig;
+
+/*
+ * #%L
+ * de.metas.adempiere.adempiere.base
+ * %%
+ * Copyright (C) 2020 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+public class EventRingBufferTest
+
+public class EventBusRingBufferDispatchTest
+{
+	private ExecutorService executor;
+	private EventBus eventBus;
+
+	@BeforeEach
+	public void init()
+	{
+		AdempiereTestHelper.get().init();
+
+		executor = Executors.newSingleThreadExecutor();
+		eventBus = new EventBus("test", executor, EventBusRingBufferConfig.builder()
+				.capacity(10)
+				.overflowPolicy(EventBusOverflowPolicy.BLOCK)
+				.maxBatchSize(1)
+				.build());
+	}
+
+	@AfterEach
+	public void destroy()
+	{
+		eventBus.destroy();
+	}
+
+	private static Event event(final String summary)
+	{
+		return Event.builder().setSummary(summary).build();
+	}
+
+	@Test
+	public void listenerError_doesNotStopTheDispatcher() throws InterruptedException
+	{
+		final List<String> received = new CopyOnWriteArrayList<>();
+		final CountDownLatch lastEventReceived = new CountDownLatch(1);
+		eventBus.subscribe(event -> {
+			if ("error".equals(event.getSummary()))
+			{
+				throw new StackOverflowError("simulated");
+			}
+			received.add(event.getSummary());
+			if ("last".equals(event.getSummary()))
+			{
+				lastEventReceived.countDown();
+			}
+		});
+
+		eventBus.postEvent(event("first"));
+		eventBus.postEvent(event("error"));
+		eventBus.postEvent(event("last"));
+
+		assertThat(lastEventReceived.await(10, TimeUnit.SECONDS)).isTrue();
+		assertThat(received).containsExactly("first", "last");
+	}
+
+	@Test
+	public void dispatcherStopped_eventsAreDeliveredOnThePostingThread() throws InterruptedException
+	{
+		final List<String> received = new CopyOnWriteArrayList<>();
+		final CountDownLatch firstEventReceived = new CountDownLatch(1);
+		eventBus.subscribe(event -> {
+			received.add(event.getSummary());
+			firstEventReceived.countDown();
+		});
+
+		// make sure the dispatcher thread is running
+		eventBus.postEvent(event("beforeDispatcherStopped"));
+		assertThat(firstEventReceived.await(10, TimeUnit.SECONDS)).isTrue();
+
+		executor.shutdownNow(); // interrupts the dispatcher thread
+		assertThat(executor.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+
+		eventBus.postEvent(event("afterDispatcherStopped"));
+		assertThat(received).containsExactly("beforeDispatcherStopped", "afterDispatcherStopped");
+	}
+}
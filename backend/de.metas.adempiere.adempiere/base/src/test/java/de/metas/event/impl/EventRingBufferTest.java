@@ -0,0 +1,215 @@
+package de.metas.event.impl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Test;
+
+import de.metas.event.Event;
+import de.metas.event.EventBusOverflowPolicy;
+
+/*
+ * #%L
+ * de.metas.adempiere.adempiere.base
+ * %%
+ * Copyright (C) 2020 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+public class EventRingBufferTest
+{
+	private final AtomicLong nanoClock = new AtomicLong(0);
+
+	private EventRingBuffer newRingBuffer(final int capacity, final EventBusOverflowPolicy overflowPolicy)
+	{
+		return new EventRingBuffer(capacity, overflowPolicy, nanoClock::get);
+	}
+
+	private static Event event(final String summary)
+	{
+		return Event.builder().setSummary(summary).build();
+	}
+
+	private static Event event(final String summary, final String coalesceKey)
+	{
+		return Event.builder().setSummary(summary).setCoalesceKey(coalesceKey).build();
+	}
+
+	private static List<String> summaries(final List<Event> events)
+	{
+		return events.stream().map(Event::getSummary).collect(Collectors.toList());
+	}
+
+	private static List<Event> takeAll(final EventRingBuffer ringBuffer) throws InterruptedException
+	{
+		return ringBuffer.takeBatch(Integer.MAX_VALUE, 0, TimeUnit.MILLISECONDS);
+	}
+
+	@Test
+	public void fifo_and_batchSize() throws InterruptedException
+	{
+		final EventRingBuffer ringBuffer = newRingBuffer(10, EventBusOverflowPolicy.BLOCK);
+		for (int i = 1; i <= 5; i++)
+		{
+			assertThat(ringBuffer.put(event("e" + i), true)).isTrue();
+		}
+
+		assertThat(summaries(ringBuffer.takeBatch(3, 0, TimeUnit.MILLISECONDS))).containsExactly("e1", "e2", "e3");
+		assertThat(summaries(takeAll(ringBuffer))).containsExactly("e4", "e5");
+		assertThat(takeAll(ringBuffer)).isEmpty();
+	}
+
+	@Test
+	public void wrapsAround() throws InterruptedException
+	{
+		final EventRingBuffer ringBuffer = newRingBuffer(3, EventBusOverflowPolicy.BLOCK);
+		for (int round = 0; round < 5; round++)
+		{
+			ringBuffer.put(event("a" + round), true);
+			ringBuffer.put(event("b" + round), true);
+			assertThat(summaries(takeAll(ringBuffer))).containsExactly("a" + round, "b" + round);
+		}
+	}
+
+	@Test
+	public void dropOldest() throws InterruptedException
+	{
+		final EventRingBuffer ringBuffer = newRingBuffer(3, EventBusOverflowPolicy.DROP_OLDEST);
+		for (int i = 1; i <= 5; i++)
+		{
+			ringBuffer.put(event("e" + i), true);
+		}
+
+		assertThat(ringBuffer.getStats().getEventsDropped()).isEqualTo(2);
+		assertThat(summaries(takeAll(ringBuffer))).containsExactly("e3", "e4", "e5");
+	}
+
+	@Test
+	public void block_butNotAllowedToBlock_dropsOldest() throws InterruptedException
+	{
+		final EventRingBuffer ringBuffer = newRingBuffer(2, EventBusOverflowPolicy.BLOCK);
+		ringBuffer.put(event("e1"), false);
+		ringBuffer.put(event("e2"), false);
+		ringBuffer.put(event("e3"), false);
+
+		assertThat(summaries(takeAll(ringBuffer))).containsExactly("e2", "e3");
+	}
+
+	@Test
+	public void block_waitsUntilThereIsRoom() throws Exception
+	{
+		final EventRingBuffer ringBuffer = newRingBuffer(1, EventBusOverflowPolicy.BLOCK);
+		ringBuffer.put(event("e1"), true);
+
+		final CountDownLatch posted = new CountDownLatch(1);
+		final Thread poster = new Thread(() -> {
+			try
+			{
+				ringBuffer.put(event("e2"), true);
+				posted.countDown();
+			}
+			catch (final InterruptedException ex)
+			{
+				Thread.currentThread().interrupt();
+			}
+		});
+		poster.start();
+
+		assertThat(posted.await(100, TimeUnit.MILLISECONDS)).isFalse();
+		assertThat(summaries(takeAll(ringBuffer))).containsExactly("e1");
+
+		assertThat(posted.await(5, TimeUnit.SECONDS)).isTrue();
+		assertThat(summaries(takeAll(ringBuffer))).containsExactly("e2");
+		poster.join();
+	}
+
+	@Test
+	public void close_releasesBlockedPoster() throws Exception
+	{
+		final EventRingBuffer ringBuffer = newRingBuffer(1, EventBusOverflowPolicy.BLOCK);
+		ringBuffer.put(event("e1"), true);
+
+		final AtomicLong result = new AtomicLong(-1);
+		final Thread poster = new Thread(() -> {
+			try
+			{
+				result.set(ringBuffer.put(event("e2"), true) ? 1 : 0);
+			}
+			catch (final InterruptedException ex)
+			{
+				Thread.currentThread().interrupt();
+			}
+		});
+		poster.start();
+		Thread.sleep(50);
+
+		ringBuffer.close();
+		poster.join(5000);
+
+		assertThat(result.get()).isEqualTo(0);
+		assertThat(ringBuffer.put(event("e3"), true)).isFalse();
+
+		// what was queued before closing can still be taken
+		assertThat(summaries(takeAll(ringBuffer))).containsExactly("e1");
+	}
+
+	@Test
+	public void coalesceByKey() throws InterruptedException
+	{
+		final EventRingBuffer ringBuffer = newRingBuffer(3, EventBusOverflowPolicy.COALESCE_BY_KEY);
+		ringBuffer.put(event("a1", "A"), true);
+		ringBuffer.put(event("b1", "B"), true);
+		ringBuffer.put(event("a2", "A"), true);
+		ringBuffer.put(event("x1"), true);
+		ringBuffer.put(event("b2", "B"), true);
+
+		assertThat(ringBuffer.getStats().getEventsCoalesced()).isEqualTo(2);
+		assertThat(summaries(takeAll(ringBuffer))).containsExactly("a2", "b2", "x1");
+
+		// the key is no longer queued, so it's not coalesced anymore
+		ringBuffer.put(event("a3", "A"), true);
+		assertThat(summaries(takeAll(ringBuffer))).containsExactly("a3");
+	}
+
+	@Test
+	public void stats_queueDepthAndLag() throws InterruptedException
+	{
+		final EventRingBuffer ringBuffer = newRingBuffer(5, EventBusOverflowPolicy.BLOCK);
+		ringBuffer.put(event("e1"), true);
+		nanoClock.addAndGet(TimeUnit.MILLISECONDS.toNanos(30));
+		ringBuffer.put(event("e2"), true);
+		nanoClock.addAndGet(TimeUnit.MILLISECONDS.toNanos(20));
+
+		final EventRingBuffer.Stats statsBefore = ringBuffer.getStats();
+		assertThat(statsBefore.getCapacity()).isEqualTo(5);
+		assertThat(statsBefore.getSize()).isEqualTo(2);
+		assertThat(statsBefore.getLagMillis()).isEqualTo(50);
+
+		takeAll(ringBuffer);
+		nanoClock.addAndGet(TimeUnit.MILLISECONDS.toNanos(1000));
+
+		final EventRingBuffer.Stats statsAfter = ringBuffer.getStats();
+		assertThat(statsAfter.getSize()).isEqualTo(0);
+		assertThat(statsAfter.getLagMillis()).isEqualTo(50);
+		assertThat(statsAfter.getMaxLagMillis()).isEqualTo(50);
+	}
+}
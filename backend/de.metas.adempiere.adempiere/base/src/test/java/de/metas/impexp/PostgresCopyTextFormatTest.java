@@ -0,0 +1,61 @@
+package de.metas.impexp;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+
+/*
+ * #%L
+ * de.metas.adempiere.adempiere.base
+ * %%
+ * Copyright (C) 2020 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+public class PostgresCopyTextFormatTest
+{
+	private static String toRow(final Object... values)
+	{
+		final StringBuilder out = new StringBuilder();
+		PostgresCopyTextFormat.appendRow(out, Arrays.asList(values));
+		return out.toString();
+	}
+
+	@Test
+	public void nullsAndPrimitives()
+	{
+		assertThat(toRow(null, 12, new BigDecimal("1E+3"), true, false))
+				.isEqualTo("\\N\t12\t1000\tY\tN\n");
+	}
+
+	@Test
+	public void specialCharactersAreEscaped()
+	{
+		assertThat(toRow("a\tb", "line1\nline2\r\n", "C:\\temp"))
+				.isEqualTo("a\\tb\tline1\\nline2\\r\\n\tC:\\\\temp\n");
+	}
+
+	@Test
+	public void emptyStringIsNotNull()
+	{
+		assertThat(toRow("", null))
+				.isEqualTo("\t\\N\n");
+	}
+}
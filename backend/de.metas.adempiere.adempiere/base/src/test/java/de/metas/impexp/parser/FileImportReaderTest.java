@@ -27,13 +27,18 @@ import org.assertj.core.api.Assertions;
 import org.junit.Assert;
 import org.junit.jupiter.api.Test;
 
+import java.io.BufferedReader;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStreamReader;
 import java.net.URL;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
 import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
@@ -213,4 +218,47 @@ public class FileImportReaderTest
 		assertTrue(lines.get(1).endsWith("90"));
 		assertTrue(lines.get(2).endsWith("100"));
 	}
+
+	@Test
+	public void streamMultiLines_sameAsReadMultiLines() throws IOException
+	{
+		streamMultiLines_sameAsReadMultiLines("multiplelines.csv");
+		streamMultiLines_sameAsReadMultiLines("OnlyAppendIfInQuotesPreserveFirstLine.csv");
+		streamMultiLines_sameAsReadMultiLines("NumberOfEmptyLinesIsPreserved.csv");
+		streamMultiLines_sameAsReadMultiLines("evenNumberOfQuotes.csv");
+		streamMultiLines_sameAsReadMultiLines("regularlines.csv");
+	}
+
+	private void streamMultiLines_sameAsReadMultiLines(final String filename) throws IOException
+	{
+		final File file = FileUtils.toFile(getClass().getResource(packagePath + "/" + filename));
+		assertNotNull("file null", file);
+
+		final Charset charset = StandardCharsets.UTF_8;
+		final List<String> expectedLines = FileImportReader.readMultiLines(file, charset);
+
+		try (final BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), charset));
+				final Stream<String> stream = FileImportReader.streamMultiLines(reader))
+		{
+			Assertions.assertThat(stream.collect(Collectors.toList()))
+					.containsExactlyElementsOf(expectedLines);
+		}
+	}
+
+	@Test
+	public void streamRegularLines_sameAsReadRegularLines() throws IOException
+	{
+		final File file = FileUtils.toFile(getClass().getResource(packagePath + "/regularlines.csv"));
+		assertNotNull("file null", file);
+
+		final Charset charset = StandardCharsets.UTF_8;
+		final List<String> expectedLines = FileImportReader.readRegularLines(file, charset);
+
+		try (final BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), charset));
+				final Stream<String> stream = FileImportReader.streamRegularLines(reader))
+		{
+			Assertions.assertThat(stream.collect(Collectors.toList()))
+					.containsExactlyElementsOf(expectedLines);
+		}
+	}
 }
@@ -0,0 +1,58 @@
+package org.adempiere.ad.dao.impl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+
+/*
+ * #%L
+ * de.metas.adempiere.adempiere.base
+ * %%
+ * Copyright (C) 2020 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+public class QueryStatisticsLoggerTest
+{
+	@Test
+	public void toSqlShape_replacesLiterals()
+	{
+		assertThat(QueryStatisticsLogger.toSqlShape("SELECT * FROM C_Order WHERE C_Order_ID=1000123 AND DocStatus='CO' AND GrandTotal>12.50"))
+				.isEqualTo("SELECT * FROM C_Order WHERE C_Order_ID=? AND DocStatus=? AND GrandTotal>?");
+	}
+
+	@Test
+	public void toSqlShape_quotedStringWithEscapedQuote()
+	{
+		assertThat(QueryStatisticsLogger.toSqlShape("SELECT 1 FROM C_BPartner WHERE Name='O''Brien' AND IsActive='Y'"))
+				.isEqualTo("SELECT ? FROM C_BPartner WHERE Name=? AND IsActive=?");
+	}
+
+	@Test
+	public void toSqlShape_keepsIdentifiersAndParameters()
+	{
+		final String sql = "SELECT t.M_Product_ID, t.Column1 FROM M_Product t WHERE t.Value2=? AND t.M_Product_ID=$1";
+		assertThat(QueryStatisticsLogger.toSqlShape(sql)).isEqualTo(sql);
+	}
+
+	@Test
+	public void toSqlShape_sameShapeForDifferentValues()
+	{
+		assertThat(QueryStatisticsLogger.toSqlShape("SELECT * FROM AD_User WHERE AD_User_ID=100"))
+				.isEqualTo(QueryStatisticsLogger.toSqlShape("SELECT * FROM AD_User WHERE AD_User_ID=2188224"));
+	}
+}
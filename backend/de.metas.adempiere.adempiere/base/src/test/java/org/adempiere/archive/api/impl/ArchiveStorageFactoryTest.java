@@ -29,9 +29,12 @@ import org.adempiere.ad.trx.api.ITrx;
 import org.adempiere.archive.api.IArchiveStorageFactory;
 import org.adempiere.archive.api.IArchiveStorageFactory.AccessMode;
 import org.adempiere.archive.spi.IArchiveStorage;
+import org.adempiere.archive.spi.impl.ContentAddressedArchiveStorage;
 import org.adempiere.archive.spi.impl.DBArchiveStorage;
 import org.adempiere.archive.spi.impl.FilesystemArchiveStorage;
 import org.adempiere.model.InterfaceWrapperHelper;
+import org.adempiere.service.ClientId;
+import org.adempiere.service.ISysConfigBL;
 import org.adempiere.test.AdempiereTestHelper;
 import org.compiere.model.I_AD_Archive;
 import org.compiere.model.I_AD_Client;
@@ -44,6 +47,9 @@ import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.TemporaryFolder;
 
+import de.metas.organization.OrgId;
+import de.metas.util.Services;
+
 public class ArchiveStorageFactoryTest
 {
 	@BeforeClass
@@ -128,6 +134,25 @@ public class ArchiveStorageFactoryTest
 		Assert.assertTrue("Invalid FilesystemArchiveStorage: " + storage, storage instanceof FilesystemArchiveStorage);
 	}
 
+	@Test
+	public void getArchiveStorage_FromArchive_ContentAddressed()
+	{
+		Ini.setClient(false);
+		client.setStoreArchiveOnFileSystem(true);
+		InterfaceWrapperHelper.save(client);
+		Services.get(ISysConfigBL.class).setValue(ArchiveStorageFactory.SYSCONFIG_StoreArchiveContentAddressed, true, ClientId.ofRepoId(client.getAD_Client_ID()), OrgId.ANY);
+
+		final IArchiveStorage storage = factory.getArchiveStorage(ctx);
+		Assert.assertTrue("Invalid ContentAddressedArchiveStorage: " + storage, storage instanceof ContentAddressedArchiveStorage);
+
+		final I_AD_Archive archive = storage.newArchive(ctx, ITrx.TRXNAME_None);
+		storage.setBinaryData(archive, new byte[] { 65, 66, 67, 68 });
+		InterfaceWrapperHelper.save(archive);
+		Assert.assertEquals("Invalid IsFileSystem for " + archive, true, archive.isFileSystem());
+
+		Assert.assertTrue("Invalid ContentAddressedArchiveStorage for " + archive, factory.getArchiveStorage(archive) instanceof ContentAddressedArchiveStorage);
+	}
+
 	/**
 	 * Test: even if the archive was created using DB storage and current storage is Filesystem, when manipulating that archive we shall use DB storage.
 	 */
@@ -0,0 +1,224 @@
+package org.adempiere.archive.spi.impl;
+
+/*
+ * #%L
+ * de.metas.adempiere.adempiere.base
+ * %%
+ * Copyright (C) 2020 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+import java.util.Random;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.adempiere.ad.trx.api.ITrx;
+import org.adempiere.exceptions.AdempiereException;
+import org.adempiere.model.InterfaceWrapperHelper;
+import org.adempiere.test.AdempiereTestHelper;
+import org.compiere.model.I_AD_Archive;
+import org.compiere.model.I_AD_Client;
+import org.compiere.util.Env;
+import org.compiere.util.Ini;
+import org.compiere.util.Util;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.google.common.collect.ImmutableSet;
+
+public class ContentAddressedArchiveStorageTest
+{
+	@BeforeClass
+	public static void staticInit()
+	{
+		AdempiereTestHelper.get().staticInit();
+	}
+
+	@Rule
+	public TemporaryFolder storageFolder = new TemporaryFolder();
+	private ContentAddressedArchiveStorage storage;
+
+	@Before
+	public void init()
+	{
+		AdempiereTestHelper.get().init();
+		Ini.setClient(false);
+
+		final Properties ctx = Env.getCtx();
+		final I_AD_Client client = InterfaceWrapperHelper.create(ctx, I_AD_Client.class, ITrx.TRXNAME_None);
+		client.setWindowsArchivePath(storageFolder.getRoot().getAbsolutePath());
+		client.setUnixArchivePath(client.getWindowsArchivePath());
+		client.setStoreArchiveOnFileSystem(true);
+		InterfaceWrapperHelper.save(client);
+
+		Env.setContext(ctx, "#AD_Client_ID", client.getAD_Client_ID());
+
+		storage = new ContentAddressedArchiveStorage();
+		storage.init(ctx, client.getAD_Client_ID());
+	}
+
+	@Test
+	public void test_set_getBinaryData()
+	{
+		final byte[] data = createTestDataBytes();
+		final I_AD_Archive archive = createArchive(data);
+
+		Assert.assertEquals("Invalid IsFileSystem flag", true, archive.isFileSystem());
+		Assert.assertTrue("Invalid content reference", ContentAddressedArchiveStorage.isContentReference(archive.getBinaryData()));
+
+		final byte[] dataActual = storage.getBinaryData(archive);
+		Assert.assertArrayEquals("Invalid data", data, dataActual);
+	}
+
+	@Test
+	public void test_setBinaryDataFromStream_getBinaryDataAsStream() throws IOException
+	{
+		final byte[] data = createTestDataBytes();
+
+		final I_AD_Archive archive = storage.newArchive(Env.getCtx(), ITrx.TRXNAME_None);
+		storage.setBinaryDataFromStream(archive, new ByteArrayInputStream(data));
+		InterfaceWrapperHelper.save(archive);
+
+		try (final InputStream in = storage.getBinaryDataAsStream(archive))
+		{
+			Assert.assertArrayEquals("Invalid data", data, Util.readBytes(in));
+		}
+	}
+
+	@Test
+	public void test_sameDataIsStoredOnce() throws IOException
+	{
+		final byte[] data = createTestDataBytes();
+		final I_AD_Archive archive1 = createArchive(data);
+		final I_AD_Archive archive2 = createArchive(data);
+		final I_AD_Archive archive3 = createArchive(createTestDataBytes());
+
+		Assert.assertArrayEquals("Same data shall have the same reference", archive1.getBinaryData(), archive2.getBinaryData());
+		Assert.assertFalse("Different data shall have different references", Arrays.equals(archive1.getBinaryData(), archive3.getBinaryData()));
+
+		final List<File> files = listFiles();
+		Assert.assertEquals("Invalid content files: " + files, 2, files.size());
+
+		Assert.assertArrayEquals("Invalid data", data, storage.getBinaryData(archive2));
+	}
+
+	@Test(expected = AdempiereException.class)
+	public void test_setBinaryData_Empty()
+	{
+		createArchive(new byte[] {});
+	}
+
+	@Test
+	public void test_deleteUnreferencedContentFiles() throws IOException
+	{
+		final I_AD_Archive referencedArchive = createArchive(createTestDataBytes());
+		final I_AD_Archive unreferencedArchive = createArchive(createTestDataBytes()); // e.g. deleted or rolled back
+		final File tempFile = new File(storageFolder.getRoot(), "content/archive_123.tmp"); // leftover of a crashed write
+		Assert.assertTrue(tempFile.createNewFile());
+
+		final int countDeleted = storage.deleteUnreferencedContentFiles(ImmutableSet.of(extractContentHash(referencedArchive)), Instant.now().plusSeconds(60));
+
+		Assert.assertEquals("Invalid deleted count", 2, countDeleted);
+		Assert.assertEquals("Invalid content files", 1, listFiles().size());
+		Assert.assertNotNull("Referenced data shall be kept", storage.getBinaryData(referencedArchive));
+		Assert.assertNull("Unreferenced hash shall be gone", findContentFile(extractContentHash(unreferencedArchive)));
+	}
+
+	@Test
+	public void test_deleteUnreferencedContentFiles_keepsRecentFiles() throws IOException
+	{
+		createArchive(createTestDataBytes());
+
+		final int countDeleted = storage.deleteUnreferencedContentFiles(ImmutableSet.of(), Instant.now().minusSeconds(3600));
+
+		Assert.assertEquals("Invalid deleted count", 0, countDeleted);
+		Assert.assertEquals("Invalid content files", 1, listFiles().size());
+	}
+
+	@Test
+	public void test_deleteUnreferencedContentFiles_keepsReusedFiles() throws IOException
+	{
+		final byte[] data = createTestDataBytes();
+		final I_AD_Archive archive1 = createArchive(data);
+		final File contentFile = findContentFile(extractContentHash(archive1));
+		Assert.assertTrue(contentFile.setLastModified(Instant.now().minusSeconds(7200).toEpochMilli()));
+
+		// e.g. the first archive was deleted and a new archive, which is not yet committed, reuses the same data
+		createArchive(data);
+
+		final int countDeleted = storage.deleteUnreferencedContentFiles(ImmutableSet.of(), Instant.now().minusSeconds(3600));
+
+		Assert.assertEquals("Invalid deleted count", 0, countDeleted);
+		Assert.assertTrue("Reused file shall be kept", contentFile.exists());
+	}
+
+	private static String extractContentHash(final I_AD_Archive archive)
+	{
+		final String hash = ContentAddressedArchiveStorage.extractContentHash(archive.getBinaryData());
+		Assert.assertNotNull("Invalid content reference", hash);
+		return hash;
+	}
+
+	private File findContentFile(final String hash) throws IOException
+	{
+		return listFiles().stream()
+				.filter(file -> file.getName().startsWith(hash))
+				.findFirst()
+				.orElse(null);
+	}
+
+	private I_AD_Archive createArchive(final byte[] data)
+	{
+		final I_AD_Archive archive = storage.newArchive(Env.getCtx(), ITrx.TRXNAME_None);
+		storage.setBinaryData(archive, data);
+		InterfaceWrapperHelper.save(archive);
+		return archive;
+	}
+
+	private List<File> listFiles() throws IOException
+	{
+		try (final Stream<Path> paths = Files.walk(storageFolder.getRoot().toPath()))
+		{
+			return paths.filter(Files::isRegularFile)
+					.map(Path::toFile)
+					.collect(Collectors.toList());
+		}
+	}
+
+	private final Random random = new Random();
+
+	private byte[] createTestDataBytes()
+	{
+		final byte[] data = new byte[4096];
+		random.nextBytes(data);
+		return data;
+	}
+}
@@ -0,0 +1,186 @@
+package org.compiere.model;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+/*
+ * #%L
+ * de.metas.adempiere.adempiere.base
+ * %%
+ * Copyright (C) 2020 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+/**
+ * Asserts on the storage structure which makes {@link POValues} retain less memory than the <code>Object[]</code> based storage {@link PO} was using before.
+ * <p>
+ * The simulated table has the column mix of a typical document line table (about 1/3 IDs and integers).
+ * NOTE: we deliberately don't measure the heap here, because that's not deterministic.
+ */
+public class POValuesMemoryTest
+{
+	private static final int COLUMNS_COUNT = 150;
+
+	private static List<Class<?>> columnClasses;
+	private static POValues.Layout layout;
+
+	@BeforeAll
+	public static void initLayout()
+	{
+		columnClasses = createColumnClasses();
+		layout = POValues.Layout.ofColumnClasses(columnClasses);
+	}
+
+	private static List<Class<?>> createColumnClasses()
+	{
+		final List<Class<?>> columnClasses = new ArrayList<>(COLUMNS_COUNT);
+		for (int i = 0; i < COLUMNS_COUNT; i++)
+		{
+			switch (i % 6)
+			{
+				case 0:
+				case 1:
+					columnClasses.add(Integer.class);
+					break;
+				case 2:
+					columnClasses.add(BigDecimal.class);
+					break;
+				case 3:
+					columnClasses.add(Boolean.class);
+					break;
+				case 4:
+					columnClasses.add(Timestamp.class);
+					break;
+				default:
+					columnClasses.add(String.class);
+			}
+		}
+		return columnClasses;
+	}
+
+	private static Object createValue(final Class<?> columnClass, final int recordNo, final int columnIndex)
+	{
+		if (columnClass == Integer.class)
+		{
+			return 1_000_000 + recordNo * COLUMNS_COUNT + columnIndex; // like IDs, i.e. not in the Integer cache
+		}
+		else if (columnClass == BigDecimal.class)
+		{
+			return BigDecimal.valueOf(recordNo * 100L + columnIndex, 2);
+		}
+		else if (columnClass == Boolean.class)
+		{
+			return recordNo % 2 == 0;
+		}
+		else if (columnClass == Timestamp.class)
+		{
+			return new Timestamp(1_577_836_800_000L + recordNo * 60_000L + columnIndex);
+		}
+		else
+		{
+			return "value-" + recordNo + "-" + columnIndex;
+		}
+	}
+
+	private static POValues newPOValues(final int recordNo, final Object[] loadedValues)
+	{
+		final POValues values = new POValues(layout);
+		for (int i = 0; i < COLUMNS_COUNT; i++)
+		{
+			final Object value = createValue(columnClasses.get(i), recordNo, i);
+			loadedValues[i] = value;
+			values.setOldValue(i, value);
+			values.setLoaded(i, true);
+		}
+		return values;
+	}
+
+	@Test
+	public void integerValuesAreNotRetainedBoxed()
+	{
+		final Object[] loadedValues = new Object[COLUMNS_COUNT];
+		final POValues values = newPOValues(1, loadedValues);
+
+		for (int i = 0; i < COLUMNS_COUNT; i++)
+		{
+			final Object value = values.getOldValue(i);
+			assertThat(value).isEqualTo(loadedValues[i]);
+			if (columnClasses.get(i) == Integer.class)
+			{
+				assertThat(value).isNotSameAs(loadedValues[i]); // kept in an int slot
+			}
+			else
+			{
+				assertThat(value).isSameAs(loadedValues[i]);
+			}
+		}
+	}
+
+	@Test
+	public void newValuesAreAllocatedOnlyWhenChanged()
+	{
+		final POValues values = newPOValues(1, new Object[COLUMNS_COUNT]);
+		for (int i = 0; i < COLUMNS_COUNT; i++)
+		{
+			values.getOldValue(i);
+			values.getNewValue(i);
+		}
+		assertThat(values.isNewValuesAllocated()).isFalse();
+
+		values.setNewValue(2, BigDecimal.TEN);
+		assertThat(values.isNewValuesAllocated()).isTrue();
+
+		values.resetNewValues();
+		assertThat(values.isNewValuesAllocated()).isFalse();
+	}
+
+	/**
+	 * The boxed values are cached in a shared cache and not per PO, so reading the same IDs from many POs does neither allocate nor retain per PO.
+	 */
+	@Test
+	public void readingSameIdFromManyPOsReturnsTheSameBoxedValue()
+	{
+		final int idColumnIndex = 0;
+		final POValues values1 = newPOValues(1, new Object[COLUMNS_COUNT]);
+		final POValues values2 = newPOValues(2, new Object[COLUMNS_COUNT]);
+		values1.setOldValue(idColumnIndex, 1_234_567);
+		values2.setOldValue(idColumnIndex, 1_234_567);
+
+		final Object boxed = values1.getOldValue(idColumnIndex);
+		assertThat(values2.getOldValue(idColumnIndex)).isSameAs(boxed);
+	}
+
+	@Test
+	public void boxedIntsCacheIsBounded()
+	{
+		final Integer first = POValues.boxOldInt(2_000_000);
+		for (int value = 2_000_001; value < 2_100_000; value++)
+		{
+			assertThat(POValues.boxOldInt(value)).isEqualTo(value);
+		}
+
+		// the first value was evicted by the ones which followed, so it's boxed again
+		assertThat(POValues.boxOldInt(2_000_000)).isEqualTo(first).isNotSameAs(first);
+	}
+}
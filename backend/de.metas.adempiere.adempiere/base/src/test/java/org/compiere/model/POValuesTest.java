@@ -0,0 +1,212 @@
+package org.compiere.model;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.util.Arrays;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/*
+ * #%L
+ * de.metas.adempiere.adempiere.base
+ * %%
+ * Copyright (C) 2020 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+public class POValuesTest
+{
+	private static final int IDX_ID = 0;
+	private static final int IDX_Name = 1;
+	private static final int IDX_Qty = 2;
+	private static final int IDX_Ref_ID = 3;
+	private static final int IDX_IsActive = 4;
+
+	private POValues values;
+
+	@BeforeEach
+	public void init()
+	{
+		final POValues.Layout layout = POValues.Layout.ofColumnClasses(Arrays.asList(
+				Integer.class, // ID
+				String.class, // Name
+				BigDecimal.class, // Qty
+				Integer.class, // Ref_ID
+				Boolean.class // IsActive
+		));
+		values = new POValues(layout);
+	}
+
+	@Test
+	public void oldValues()
+	{
+		values.setOldValue(IDX_ID, 1000123);
+		values.setOldValue(IDX_Name, "name");
+		values.setOldValue(IDX_Qty, new BigDecimal("12.5"));
+		values.setOldValue(IDX_IsActive, true);
+
+		assertThat(values.getOldValue(IDX_ID)).isEqualTo(1000123);
+		assertThat(values.getOldValue(IDX_Name)).isEqualTo("name");
+		assertThat(values.getOldValue(IDX_Qty)).isEqualTo(new BigDecimal("12.5"));
+		assertThat(values.getOldValue(IDX_Ref_ID)).isNull();
+		assertThat(values.getOldValue(IDX_IsActive)).isEqualTo(true);
+
+		values.setOldValue(IDX_ID, null);
+		assertThat(values.getOldValue(IDX_ID)).isNull();
+	}
+
+	@Test
+	public void oldValues_nonIntegerValueOnIntegerColumn()
+	{
+		values.setOldValue(IDX_Ref_ID, "not an integer");
+		assertThat(values.getOldValue(IDX_Ref_ID)).isEqualTo("not an integer");
+
+		values.setOldValue(IDX_Ref_ID, 12);
+		assertThat(values.getOldValue(IDX_Ref_ID)).isEqualTo(12);
+
+		values.setOldValue(IDX_Ref_ID, null);
+		assertThat(values.getOldValue(IDX_Ref_ID)).isNull();
+	}
+
+	@Test
+	public void newValues_setAndReset()
+	{
+		assertThat(values.hasNewValues()).isFalse();
+		assertThat(values.getNewValue(IDX_Name)).isNull();
+
+		values.setNewValue(IDX_Name, "new name");
+		values.setNewValue(IDX_Qty, Null.NULL);
+		assertThat(values.hasNewValues()).isTrue();
+		assertThat(values.getNewValue(IDX_Name)).isEqualTo("new name");
+		assertThat(values.getNewValue(IDX_Qty)).isSameAs(Null.NULL);
+
+		values.setNewValue(IDX_Name, null);
+		values.setNewValue(IDX_Qty, null);
+		assertThat(values.hasNewValues()).isFalse();
+		assertThat(values.getNewValue(IDX_Name)).isNull();
+
+		values.setNewValue(IDX_Name, "new name");
+		values.resetNewValues();
+		assertThat(values.hasNewValues()).isFalse();
+		assertThat(values.getNewValue(IDX_Name)).isNull();
+	}
+
+	@Test
+	public void commitNewValues()
+	{
+		values.setOldValue(IDX_ID, 1000123);
+		values.setOldValue(IDX_Name, "old name");
+		values.setOldValue(IDX_Qty, BigDecimal.ONE);
+
+		values.setNewValue(IDX_Name, "new name");
+		values.setNewValue(IDX_Qty, Null.NULL);
+		values.setNewValue(IDX_Ref_ID, 540001);
+		values.commitNewValues();
+
+		assertThat(values.hasNewValues()).isFalse();
+		assertThat(values.getOldValue(IDX_ID)).isEqualTo(1000123);
+		assertThat(values.getOldValue(IDX_Name)).isEqualTo("new name");
+		assertThat(values.getOldValue(IDX_Qty)).isNull();
+		assertThat(values.getOldValue(IDX_Ref_ID)).isEqualTo(540001);
+	}
+
+	@Test
+	public void loadedFlags()
+	{
+		assertThat(values.isLoaded(IDX_Name)).isFalse();
+
+		values.setLoaded(IDX_Name, true);
+		assertThat(values.isLoaded(IDX_Name)).isTrue();
+		assertThat(values.isLoaded(IDX_Qty)).isFalse();
+
+		values.setLoaded(IDX_Name, false);
+		assertThat(values.isLoaded(IDX_Name)).isFalse();
+	}
+
+	@Test
+	public void copyIsIndependent()
+	{
+		final Timestamp created = Timestamp.valueOf("2020-01-01 10:00:00");
+		values.setOldValue(IDX_ID, 1000123);
+		values.setOldValue(IDX_Name, created.toString());
+		values.setNewValue(IDX_Qty, BigDecimal.TEN);
+		values.setLoaded(IDX_ID, true);
+
+		final POValues copy = values.copy();
+		copy.setOldValue(IDX_ID, 1000124);
+		copy.setNewValue(IDX_Qty, null);
+		copy.setLoaded(IDX_ID, false);
+
+		assertThat(values.getOldValue(IDX_ID)).isEqualTo(1000123);
+		assertThat(values.getNewValue(IDX_Qty)).isEqualTo(BigDecimal.TEN);
+		assertThat(values.isLoaded(IDX_ID)).isTrue();
+
+		assertThat(copy.getOldValue(IDX_ID)).isEqualTo(1000124);
+		assertThat(copy.getOldValue(IDX_Name)).isEqualTo(created.toString());
+		assertThat(copy.hasNewValues()).isFalse();
+		assertThat(copy.isLoaded(IDX_ID)).isFalse();
+	}
+
+	@Test
+	public void oldIntValueIsBoxedOnlyOnce()
+	{
+		values.setOldValue(IDX_ID, 1000123);
+
+		final Object boxed = values.getOldValue(IDX_ID);
+		assertThat(values.getOldValue(IDX_ID)).isSameAs(boxed);
+
+		values.setOldValue(IDX_ID, 1000124);
+		assertThat(values.getOldValue(IDX_ID)).isEqualTo(1000124);
+
+		values.setOldValue(IDX_ID, null);
+		assertThat(values.getOldValue(IDX_ID)).isNull();
+	}
+
+	@Test
+	public void serializable() throws IOException, ClassNotFoundException
+	{
+		values.setOldValue(IDX_ID, 1000123);
+		values.setOldValue(IDX_Name, "name");
+		values.setNewValue(IDX_Qty, BigDecimal.TEN);
+		values.setLoaded(IDX_ID, true);
+
+		final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (final ObjectOutputStream out = new ObjectOutputStream(bytes))
+		{
+			out.writeObject(values);
+		}
+		final POValues deserialized;
+		try (final ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray())))
+		{
+			deserialized = (POValues)in.readObject();
+		}
+
+		assertThat(deserialized.getOldValue(IDX_ID)).isEqualTo(1000123);
+		assertThat(deserialized.getOldValue(IDX_Name)).isEqualTo("name");
+		assertThat(deserialized.getNewValue(IDX_Qty)).isEqualTo(BigDecimal.TEN);
+		assertThat(deserialized.isLoaded(IDX_ID)).isTrue();
+		assertThat(deserialized.isLoaded(IDX_Name)).isFalse();
+	}
+}
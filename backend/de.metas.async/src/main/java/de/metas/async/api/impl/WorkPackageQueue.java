@@ -83,7 +83,8 @@ import lombok.NonNull;
 
 public class WorkPackageQueue implements IWorkPackageQueue
 {
-	private final static String SYSCONFIG_POLLINTERVAL = "de.metas.async.PollIntervallMillis";
+	final static String SYSCONFIG_POLLINTERVAL = "de.metas.async.PollIntervallMillis";
+	final static int DEFAULT_POLLINTERVAL = 1000;
 
 	private static final transient Logger logger = LogManager.getLogger(WorkPackageQueue.class);
 
@@ -91,6 +92,7 @@ public class WorkPackageQueue implements IWorkPackageQueue
 	private final transient IWorkpackageProcessorContextFactory contextFactory = Services.get(IWorkpackageProcessorContextFactory.class);
 	private final transient IAsyncBatchBL asyncBatchBL = Services.get(IAsyncBatchBL.class);
 	private final transient IWorkPackageBL workPackageBL = Services.get(IWorkPackageBL.class);
+	private final transient WorkpackagesReadySignal readySignal = WorkpackagesReadySignal.instance;
 
 	private final Properties ctx;
 	private final List<Integer> packageProcessorIds;
@@ -218,6 +220,7 @@ public class WorkPackageQueue implements IWorkPackageQueue
 		final IQuery<I_C_Queue_WorkPackage> query = createQuery(workPackageCtx);
 
 		final long startTS = SystemTime.millis();
+		long readySignalVersion = readySignal.getVersion(packageProcessorIds); // fetch it before polling, so we don't miss a signal which comes in meanwhile
 		I_C_Queue_WorkPackage workPackage = retrieveAndLock(query);
 		if (timeoutMillis == TIMEOUT_OneTimeOnly && workPackage == null)
 		{
@@ -241,12 +244,20 @@ public class WorkPackageQueue implements IWorkPackageQueue
 				}
 			}
 
-			// No workpackages were found. Sleep 1sec and then try again
+			// No workpackages were found. Wait until some workpackage is marked as ready (or sleep 1sec) and then try again
 			try
 			{
-				// note: we always get the new service, because things might have changed since this method started
-				final int pollIntervalMs = Services.get(ISysConfigBL.class).getIntValue(SYSCONFIG_POLLINTERVAL, 1000);
-				Thread.sleep(pollIntervalMs);
+				if (readySignal.isEnabled())
+				{
+					final long waitMillis = computeReadySignalWaitMillis(timeoutMillis, startTS);
+					readySignal.await(packageProcessorIds, readySignalVersion, waitMillis);
+				}
+				else
+				{
+					// note: we always get the new service, because things might have changed since this method started
+					final int pollIntervalMs = Services.get(ISysConfigBL.class).getIntValue(SYSCONFIG_POLLINTERVAL, DEFAULT_POLLINTERVAL);
+					Thread.sleep(pollIntervalMs);
+				}
 			}
 			catch (final InterruptedException e)
 			{
@@ -256,6 +267,7 @@ public class WorkPackageQueue implements IWorkPackageQueue
 
 			// Try fetching the workpackage again
 			logger.debug("Retry retrieving next workpackage");
+			readySignalVersion = readySignal.getVersion(packageProcessorIds);
 			workPackage = retrieveAndLock(query);
 		}
 
@@ -755,6 +767,12 @@ public class WorkPackageQueue implements IWorkPackageQueue
 				dao.save(workPackage);
 				logger.debug("C_Queue_WorkPackage.IsReadyForProcessing is now set to true");
 				success = true;
+
+				// wake up the queue processors which are waiting for this workpackage, as soon as it is visible to them
+				final int packageProcessorId = getPackageProcessorId(workPackage);
+				Services.get(ITrxManager.class)
+						.getTrxListenerManagerOrAutoCommit(InterfaceWrapperHelper.getTrxName(workPackage))
+						.runAfterCommit(() -> readySignal.signal(packageProcessorId));
 			}
 			finally
 			{
@@ -774,6 +792,29 @@ public class WorkPackageQueue implements IWorkPackageQueue
 		}
 	}
 
+	private int getPackageProcessorId(final I_C_Queue_WorkPackage workPackage)
+	{
+		if (enquingPackageProcessorId > 0)
+		{
+			return enquingPackageProcessorId;
+		}
+
+		final I_C_Queue_Block queueBlock = workPackage.getC_Queue_Block();
+		return queueBlock != null ? queueBlock.getC_Queue_PackageProcessor_ID() : -1;
+	}
+
+	private long computeReadySignalWaitMillis(final long timeoutMillis, final long startTS)
+	{
+		final long fallbackPollIntervalMillis = readySignal.getFallbackPollIntervalMillis();
+		if (timeoutMillis == TIMEOUT_Infinite)
+		{
+			return fallbackPollIntervalMillis;
+		}
+
+		final long remainingMillis = timeoutMillis - (SystemTime.millis() - startTS);
+		return Math.max(1, Math.min(fallbackPollIntervalMillis, remainingMillis));
+	}
+
 	private IQuery<I_C_Queue_WorkPackage> createQuery(final Properties workPackageCtx)
 	{
 		//
@@ -0,0 +1,275 @@
+package de.metas.async.api.impl;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+
+import org.adempiere.service.ISysConfigBL;
+import org.adempiere.util.concurrent.CustomizableThreadFactory;
+import org.slf4j.Logger;
+
+import com.google.common.base.Splitter;
+import com.google.common.collect.ImmutableSet;
+
+import de.metas.event.Event;
+import de.metas.event.IEventBus;
+import de.metas.event.IEventBusFactory;
+import de.metas.event.IBatchEventListener;
+import de.metas.event.Topic;
+import de.metas.event.Type;
+import de.metas.logging.LogManager;
+import de.metas.util.Services;
+import lombok.NonNull;
+
+/*
+ * #%L
+ * de.metas.async
+ * %%
+ * Copyright (C) 2020 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+/**
+ * Wakes up the queue processors which are waiting for new workpackages, instead of letting them sleep-poll the {@code C_Queue_WorkPackage} table.
+ * <p>
+ * The signal is raised when a workpackage is marked as ready for processing (see {@link WorkPackageQueue#markReadyForProcessing(de.metas.async.model.I_C_Queue_WorkPackage)}).
+ * It is delivered to the processors of this JVM right away and to the processors of other nodes via the (remote) event bus.
+ * Remote signals raised within {@link #REMOTE_SIGNAL_DELAY_MILLIS} are sent as one event.
+ * <p>
+ * Signals are raised per {@code C_Queue_PackageProcessor_ID}. A waiting queue only polls the database again if one of its own package processors was signaled,
+ * so a burst of workpackages for one processor does not make the queues of all the other processors poll.
+ * <p>
+ * Waiting processors still poll after {@link #SYSCONFIG_FallbackPollIntervalMillis}, because some workpackages become available without any signal
+ * (e.g. skipped workpackages whose skip timeout elapsed, or workpackages which were enqueued by the <code>executeSqlAsync</code> DB function)
+ * and because another node's signal might not reach us (e.g. if the remote event bus is disabled).
+ * Since regular workpackages are signaled, that fallback interval is much longer than the queue's poll interval ({@link WorkPackageQueue#SYSCONFIG_POLLINTERVAL}).
+ */
+final class WorkpackagesReadySignal implements IBatchEventListener
+{
+	public static final WorkpackagesReadySignal instance = new WorkpackagesReadySignal();
+
+	private static final Logger logger = LogManager.getLogger(WorkpackagesReadySignal.class);
+
+	private static final String SYSCONFIG_Enabled = "de.metas.async.WorkpackagesReadySignal.Enabled";
+	private static final String SYSCONFIG_FallbackPollIntervalMillis = "de.metas.async.WorkpackagesReadySignal.FallbackPollIntervalMillis";
+	private static final int DEFAULT_FallbackPollIntervalMillis = 10_000;
+
+	private static final Topic TOPIC = Topic.builder()
+			.name("de.metas.async.WorkpackagesReadyForProcessing")
+			.type(Type.REMOTE)
+			.build();
+	private static final String EVENT_PROPERTY_PackageProcessorIds = "C_Queue_PackageProcessor_IDs";
+
+	private static final long REMOTE_SIGNAL_DELAY_MILLIS = 20;
+
+	private final Object signalLock = new Object();
+	/** incremented on each signal of the respective package processor; waiters compare it with the version they saw before polling, so that no signal gets lost */
+	private final Map<Integer, Long> signalVersionsByPackageProcessorId = new HashMap<>();
+
+	private final AtomicBoolean remoteListenerRegistered = new AtomicBoolean(false);
+	private final Set<Integer> remoteSignalPackageProcessorIds = ConcurrentHashMap.newKeySet();
+	private final AtomicBoolean remoteSignalScheduled = new AtomicBoolean(false);
+	private final ScheduledExecutorService remoteSignalExecutor = Executors.newSingleThreadScheduledExecutor(CustomizableThreadFactory.builder()
+			.setThreadNamePrefix(WorkpackagesReadySignal.class.getName() + "-RemoteSignalExecutor")
+			.setDaemon(true)
+			.build());
+
+	private WorkpackagesReadySignal()
+	{
+	}
+
+	public boolean isEnabled()
+	{
+		return Services.get(ISysConfigBL.class).getBooleanValue(SYSCONFIG_Enabled, true);
+	}
+
+	public int getFallbackPollIntervalMillis()
+	{
+		final ISysConfigBL sysConfigBL = Services.get(ISysConfigBL.class);
+		final int pollIntervalMillis = sysConfigBL.getIntValue(WorkPackageQueue.SYSCONFIG_POLLINTERVAL, WorkPackageQueue.DEFAULT_POLLINTERVAL);
+		return sysConfigBL.getIntValue(SYSCONFIG_FallbackPollIntervalMillis, Math.max(pollIntervalMillis, DEFAULT_FallbackPollIntervalMillis));
+	}
+
+	/**
+	 * @return the current signal version of given package processors; to be fetched <b>before</b> looking for workpackages and then passed to {@link #await(Collection, long, long)}
+	 */
+	public long getVersion(@NonNull final Collection<Integer> packageProcessorIds)
+	{
+		synchronized (signalLock)
+		{
+			return getVersion0(packageProcessorIds);
+		}
+	}
+
+	private long getVersion0(final Collection<Integer> packageProcessorIds)
+	{
+		// each version is only incremented, so the sum changes whenever one of them changes
+		long version = 0;
+		for (final Integer packageProcessorId : packageProcessorIds)
+		{
+			version += signalVersionsByPackageProcessorId.getOrDefault(packageProcessorId, 0L);
+		}
+		return version;
+	}
+
+	/**
+	 * Waits until one of given package processors was signaled after given version was fetched, or until the timeout elapsed.
+	 *
+	 * @return true if we were signaled, false if the timeout elapsed
+	 */
+	public boolean await(
+			@NonNull final Collection<Integer> packageProcessorIds,
+			final long sinceVersion,
+			final long timeoutMillis) throws InterruptedException
+	{
+		registerRemoteListenerIfNeeded();
+
+		final long deadline = System.currentTimeMillis() + timeoutMillis;
+		synchronized (signalLock)
+		{
+			// NOTE: signals for other package processors also wake us up, but we only check our version and wait again, without polling the database
+			while (getVersion0(packageProcessorIds) == sinceVersion)
+			{
+				final long remainingMillis = deadline - System.currentTimeMillis();
+				if (remainingMillis <= 0)
+				{
+					return false;
+				}
+				signalLock.wait(remainingMillis);
+			}
+			return true;
+		}
+	}
+
+	/**
+	 * Wakes up the queue processors of this JVM and of the other nodes which are waiting for workpackages of given package processor.
+	 */
+	public void signal(final int packageProcessorId)
+	{
+		if (packageProcessorId <= 0)
+		{
+			return;
+		}
+
+		signalLocal(ImmutableSet.of(packageProcessorId));
+
+		remoteSignalPackageProcessorIds.add(packageProcessorId);
+		if (!remoteSignalScheduled.getAndSet(true))
+		{
+			remoteSignalExecutor.schedule(this::postRemoteSignal, REMOTE_SIGNAL_DELAY_MILLIS, TimeUnit.MILLISECONDS);
+		}
+	}
+
+	private void signalLocal(final Set<Integer> packageProcessorIds)
+	{
+		synchronized (signalLock)
+		{
+			for (final Integer packageProcessorId : packageProcessorIds)
+			{
+				signalVersionsByPackageProcessorId.merge(packageProcessorId, 1L, Long::sum);
+			}
+			signalLock.notifyAll();
+		}
+	}
+
+	private void postRemoteSignal()
+	{
+		remoteSignalScheduled.set(false);
+
+		final ImmutableSet<Integer> packageProcessorIds = ImmutableSet.copyOf(remoteSignalPackageProcessorIds);
+		remoteSignalPackageProcessorIds.removeAll(packageProcessorIds);
+		if (packageProcessorIds.isEmpty())
+		{
+			return;
+		}
+
+		final String packageProcessorIdsStr = packageProcessorIds.stream()
+				.sorted()
+				.map(String::valueOf)
+				.collect(Collectors.joining(","));
+		try
+		{
+			Services.get(IEventBusFactory.class)
+					.getEventBus(TOPIC)
+					.postEvent(Event.builder()
+							.putProperty(EVENT_PROPERTY_PackageProcessorIds, packageProcessorIdsStr)
+							// a queued signal for the same package processors is not needed twice
+							.setCoalesceKey(EVENT_PROPERTY_PackageProcessorIds + "=" + packageProcessorIdsStr)
+							.build());
+		}
+		catch (final Exception ex)
+		{
+			logger.warn("Failed posting the workpackages ready signal to {}. Ignored.", TOPIC, ex);
+		}
+	}
+
+	private void registerRemoteListenerIfNeeded()
+	{
+		if (remoteListenerRegistered.getAndSet(true))
+		{
+			return;
+		}
+		Services.get(IEventBusFactory.class).registerGlobalEventListener(TOPIC, this);
+	}
+
+	/**
+	 * Signals the package processors of all given remote events at once, so a burst of signals wakes up the waiting queue processors only once.
+	 */
+	@Override
+	public void onEvents(final IEventBus eventBus, final List<Event> events)
+	{
+		final HashSet<Integer> packageProcessorIds = new HashSet<>();
+		for (final Event event : events)
+		{
+			// local events were already signaled when they were posted
+			if (event.isLocalEvent())
+			{
+				continue;
+			}
+
+			logger.debug("Got remote workpackages ready signal; event={}", event);
+
+			final String packageProcessorIdsStr = event.getPropertyAsString(EVENT_PROPERTY_PackageProcessorIds);
+			if (packageProcessorIdsStr == null || packageProcessorIdsStr.isEmpty())
+			{
+				continue;
+			}
+
+			Splitter.on(",")
+					.omitEmptyStrings()
+					.trimResults()
+					.splitToList(packageProcessorIdsStr)
+					.stream()
+					.map(Integer::parseInt)
+					.forEach(packageProcessorIds::add);
+		}
+
+		if (!packageProcessorIds.isEmpty())
+		{
+			signalLocal(packageProcessorIds);
+		}
+	}
+}
@@ -0,0 +1,123 @@
+package de.metas.async.api.impl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.adempiere.test.AdempiereTestHelper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.google.common.collect.ImmutableList;
+
+import de.metas.event.Event;
+
+/*
+ * #%L
+ * de.metas.async
+ * %%
+ * Copyright (C) 2020 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+public class WorkpackagesReadySignalTest
+{
+	private final WorkpackagesReadySignal readySignal = WorkpackagesReadySignal.instance;
+
+	@BeforeEach
+	public void init()
+	{
+		AdempiereTestHelper.get().init();
+	}
+
+	private static final ImmutableList<Integer> PACKAGE_PROCESSOR_IDS = ImmutableList.of(1, 2);
+
+	@Test
+	public void await_timesOutIfNotSignaled() throws Exception
+	{
+		final long version = readySignal.getVersion(PACKAGE_PROCESSOR_IDS);
+
+		assertThat(readySignal.await(PACKAGE_PROCESSOR_IDS, version, 10)).isFalse();
+	}
+
+	@Test
+	public void await_returnsImmediatelyIfSignaledAfterVersionWasFetched() throws Exception
+	{
+		final long version = readySignal.getVersion(PACKAGE_PROCESSOR_IDS);
+		readySignal.signal(2);
+
+		final long startMillis = System.currentTimeMillis();
+		assertThat(readySignal.await(PACKAGE_PROCESSOR_IDS, version, 60_000)).isTrue();
+		assertThat(System.currentTimeMillis() - startMillis).isLessThan(10_000);
+	}
+
+	@Test
+	public void await_ignoresSignalsOfOtherPackageProcessors() throws Exception
+	{
+		final long version = readySignal.getVersion(PACKAGE_PROCESSOR_IDS);
+		readySignal.signal(3);
+
+		assertThat(readySignal.await(PACKAGE_PROCESSOR_IDS, version, 10)).isFalse();
+	}
+
+	@Test
+	public void await_wakesUpOnSignal() throws Exception
+	{
+		final long version = readySignal.getVersion(PACKAGE_PROCESSOR_IDS);
+		final CompletableFuture<Boolean> signaled = CompletableFuture.supplyAsync(() -> {
+			try
+			{
+				return readySignal.await(PACKAGE_PROCESSOR_IDS, version, 60_000);
+			}
+			catch (final InterruptedException e)
+			{
+				return false;
+			}
+		});
+
+		readySignal.signal(1);
+
+		assertThat(signaled.get(10, TimeUnit.SECONDS)).isTrue();
+	}
+
+	@Test
+	public void onEvents_signalsEachPackageProcessorOnceAndIgnoresLocalEvents()
+	{
+		final ImmutableList<Integer> packageProcessorIds = ImmutableList.of(10);
+		final long version = readySignal.getVersion(packageProcessorIds);
+		final long otherVersion = readySignal.getVersion(ImmutableList.of(11));
+		final long localOnlyVersion = readySignal.getVersion(ImmutableList.of(12));
+
+		readySignal.onEvents(null, ImmutableList.of(
+				remoteSignal("10"),
+				remoteSignal("10,11"),
+				Event.builder().putProperty("C_Queue_PackageProcessor_IDs", "12").build()));
+
+		assertThat(readySignal.getVersion(packageProcessorIds)).isEqualTo(version + 1);
+		assertThat(readySignal.getVersion(ImmutableList.of(11))).isEqualTo(otherVersion + 1);
+		assertThat(readySignal.getVersion(ImmutableList.of(12))).isEqualTo(localOnlyVersion);
+	}
+
+	private static Event remoteSignal(final String packageProcessorIds)
+	{
+		return Event.builder()
+				.setSenderId("otherNode")
+				.putProperty("C_Queue_PackageProcessor_IDs", packageProcessorIds)
+				.build();
+	}
+}
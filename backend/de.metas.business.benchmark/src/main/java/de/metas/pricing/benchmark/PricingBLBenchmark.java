@@ -0,0 +1,104 @@
+package de.metas.pricing.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.google.common.collect.ImmutableList;
+
+import de.metas.pricing.IEditablePricingContext;
+import de.metas.pricing.IPricingResult;
+import de.metas.pricing.service.IPricingBL;
+import de.metas.util.Services;
+
+/*
+ * #%L
+ * de.metas.business.benchmark
+ * %%
+ * Copyright (C) 2020 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+/**
+ * Measures {@link IPricingBL#calculatePrice(de.metas.pricing.IPricingContext)} end to end, i.e. including the price list version lookup and the whole rule chain.
+ * Run it with {@code -prof gc} (see {@link PricingBenchmarksMain}) to also get the allocated bytes per call.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PricingBLBenchmark
+{
+	/**
+	 * Must be a power of two; see {@link #nextPricingContext()}.
+	 */
+	private static final int PRICING_CONTEXTS_COUNT = 1024;
+
+	@Param
+	public PricingBenchmarkScenario scenario;
+
+	@Param({ "100" })
+	public int productsCount;
+
+	@Param({ "1", "12" })
+	public int priceListVersionsCount;
+
+	@Param({ "10" })
+	public int discountBreaksCount;
+
+	private IPricingBL pricingBL;
+	private ImmutableList<IEditablePricingContext> pricingContexts;
+	private int nextPricingContextIndex = 0;
+
+	@Setup
+	public void setup()
+	{
+		final PricingBenchmarkFixture fixture = PricingBenchmarkFixture.builder()
+				.productsCount(productsCount)
+				.priceListVersionsCount(priceListVersionsCount)
+				.discountBreaksCount(discountBreaksCount)
+				.build();
+
+		pricingBL = Services.get(IPricingBL.class);
+		pricingContexts = fixture.newPricingContexts(scenario, PRICING_CONTEXTS_COUNT);
+	}
+
+	private IEditablePricingContext nextPricingContext()
+	{
+		final IEditablePricingContext pricingCtx = pricingContexts.get(nextPricingContextIndex);
+		nextPricingContextIndex = (nextPricingContextIndex + 1) & (PRICING_CONTEXTS_COUNT - 1);
+		return pricingCtx;
+	}
+
+	@Benchmark
+	public IPricingResult calculatePrice()
+	{
+		return pricingBL.calculatePrice(nextPricingContext());
+	}
+}
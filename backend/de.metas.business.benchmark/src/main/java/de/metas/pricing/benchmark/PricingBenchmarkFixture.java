@@ -0,0 +1,296 @@
+package de.metas.pricing.benchmark;
+
+import static org.adempiere.model.InterfaceWrapperHelper.newInstance;
+import static org.adempiere.model.InterfaceWrapperHelper.saveRecord;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.Month;
+import java.util.List;
+
+import org.adempiere.ad.wrapper.POJOWrapper;
+import org.adempiere.test.AdempiereTestHelper;
+import org.compiere.SpringContextHolder;
+import org.compiere.model.I_C_BPartner;
+import org.compiere.model.I_C_UOM;
+import org.compiere.model.I_M_AttributeSetInstance;
+import org.compiere.model.I_M_DiscountSchema;
+import org.compiere.model.I_M_DiscountSchemaBreak;
+import org.compiere.model.I_M_PriceList_Version;
+import org.compiere.model.X_M_DiscountSchema;
+import org.compiere.util.TimeUtil;
+
+import com.google.common.collect.ImmutableList;
+
+import ch.qos.logback.classic.Level;
+import de.metas.adempiere.model.I_M_Product;
+import de.metas.adempiere.pricing.spi.impl.rules.ProductScalePrice;
+import de.metas.bpartner.BPartnerId;
+import de.metas.currency.CurrencyRepository;
+import de.metas.lang.SOTrx;
+import de.metas.location.CountryId;
+import de.metas.logging.LogManager;
+import de.metas.money.CurrencyId;
+import de.metas.money.MoneyService;
+import de.metas.payment.paymentterm.PaymentTermService;
+import de.metas.pricing.IEditablePricingContext;
+import de.metas.pricing.PriceListId;
+import de.metas.pricing.PriceListVersionId;
+import de.metas.pricing.PricingSystemId;
+import de.metas.pricing.attributebased.impl.AttributePricing;
+import de.metas.pricing.rules.Discount;
+import de.metas.pricing.rules.IPricingRule;
+import de.metas.pricing.rules.PriceListVersion;
+import de.metas.pricing.rules.campaign_price.CampaignPriceRepository;
+import de.metas.pricing.rules.campaign_price.CampaignPriceService;
+import de.metas.pricing.rules.campaign_price.CampaignPricingRule;
+import de.metas.pricing.service.impl.ASIBuilder;
+import de.metas.pricing.service.impl.PricingTestHelper;
+import de.metas.pricing.service.impl.ProductPriceBuilder;
+import de.metas.product.ProductId;
+import de.metas.util.Check;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NonNull;
+
+/*
+ * #%L
+ * de.metas.business.benchmark
+ * %%
+ * Copyright (C) 2020 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+/**
+ * Creates the in-memory (POJOWrapper) master data which the pricing benchmarks are running against:
+ * <ul>
+ * <li>one pricing system with one sales price list and {@code priceListVersionsCount} price list versions, each of them having a price for each of the {@code productsCount} products
+ * <li>in the most recent price list version, an additional attribute dependent price for each product
+ * <li>a bpartner with a discount schema that has {@code discountBreaksCount} quantity breaks
+ * </ul>
+ * The pricing rules are registered like in {@code C_PricingRule}: the campaign price first, then the price list based rules and the discount at the end.
+ */
+public class PricingBenchmarkFixture extends PricingTestHelper
+{
+	public static final LocalDate PRICE_DATE = LocalDate.of(2020, Month.JUNE, 15);
+
+	/**
+	 * Quantity step between two discount breaks. The requested quantities are chosen such that all breaks are hit.
+	 */
+	private static final int BREAK_QTY_STEP = 10;
+
+	public static final ImmutableList<Class<? extends IPricingRule>> PRICING_RULE_CLASSES = ImmutableList.of(
+			CampaignPricingRule.class,
+			AttributePricing.class,
+			ProductScalePrice.class,
+			PriceListVersion.class,
+			Discount.class);
+
+	private final ImmutableList<ProductId> productIds;
+	private final int discountBreaksCount;
+
+	@Getter
+	private final BPartnerId bpartnerId;
+	@Getter
+	private final PriceListVersionId currentPriceListVersionId;
+	private final I_M_AttributeSetInstance asi;
+
+	@Builder
+	private static PricingBenchmarkFixture create(
+			final int productsCount,
+			final int priceListVersionsCount,
+			final int discountBreaksCount)
+	{
+		Check.assumeGreaterThanZero(productsCount, "productsCount");
+		Check.assumeGreaterThanZero(priceListVersionsCount, "priceListVersionsCount");
+		Check.assumeGreaterThanZero(discountBreaksCount, "discountBreaksCount");
+
+		AdempiereTestHelper.get().init();
+		POJOWrapper.setDefaultStrictValues(false);
+
+		// the pricing engine logs a lot on INFO and DEBUG level; we don't want to measure our logging
+		LogManager.setLevel(Level.WARN);
+
+		SpringContextHolder.registerJUnitBean(new PaymentTermService());
+		SpringContextHolder.registerJUnitBean(new CampaignPriceService(new CampaignPriceRepository(), new MoneyService(new CurrencyRepository())));
+
+		return new PricingBenchmarkFixture(productsCount, priceListVersionsCount, discountBreaksCount);
+	}
+
+	private PricingBenchmarkFixture(
+			final int productsCount,
+			final int priceListVersionsCount,
+			final int discountBreaksCount)
+	{
+		final I_C_UOM uom = newInstance(I_C_UOM.class);
+		saveRecord(uom);
+
+		final ImmutableList.Builder<I_M_Product> products = ImmutableList.builder();
+		for (int i = 1; i <= productsCount; i++)
+		{
+			products.add(createProduct("Product" + i, uom));
+		}
+		final ImmutableList<I_M_Product> productRecords = products.build();
+		this.productIds = productRecords.stream()
+				.map(product -> ProductId.ofRepoId(product.getM_Product_ID()))
+				.collect(ImmutableList.toImmutableList());
+
+		//
+		// Price list versions; the default one is valid from 1970, the others are each one month apart and the last one is valid from PRICE_DATE
+		I_M_PriceList_Version currentPLV = getDefaultPriceListVerion();
+		createProductPrices(currentPLV, productRecords, 0);
+		for (int plvIndex = 1; plvIndex < priceListVersionsCount; plvIndex++)
+		{
+			currentPLV = createPriceListVersion(getDefaultPriceList());
+			currentPLV.setValidFrom(TimeUtil.asTimestamp(PRICE_DATE.minusMonths(priceListVersionsCount - 1 - plvIndex)));
+			saveRecord(currentPLV);
+
+			createProductPrices(currentPLV, productRecords, plvIndex);
+		}
+		this.currentPriceListVersionId = PriceListVersionId.ofRepoId(currentPLV.getM_PriceList_Version_ID());
+
+		//
+		// Attribute dependent prices
+		this.asi = ASIBuilder.newInstance()
+				.setAttribute(attr_Country, attr_Country_CH)
+				.setAttribute(attr_Label, attr_Label_Bio)
+				.build();
+		for (final I_M_Product product : productRecords)
+		{
+			new ProductPriceBuilder(currentPLV, product)
+					.setTaxCategoryId(getTaxCategoryId())
+					.setASI(asi)
+					.setPrice(500)
+					.build();
+		}
+
+		//
+		// Discount schema with quantity breaks
+		this.discountBreaksCount = discountBreaksCount;
+		final I_M_DiscountSchema discountSchema = createDiscountSchemaWithBreaks(discountBreaksCount, productRecords.get(0).getM_Product_Category_ID());
+
+		final I_C_BPartner bpartner = newInstance(I_C_BPartner.class);
+		bpartner.setValue("Customer");
+		bpartner.setName("Customer");
+		bpartner.setM_DiscountSchema_ID(discountSchema.getM_DiscountSchema_ID());
+		bpartner.setIsAllowActionPrice(true); // we have no campaign prices, but we want the campaign pricing rule to look for them
+		saveRecord(bpartner);
+		this.bpartnerId = BPartnerId.ofRepoId(bpartner.getC_BPartner_ID());
+	}
+
+	@Override
+	protected List<String> getPricingRuleClassnamesToRegister()
+	{
+		return PRICING_RULE_CLASSES.stream()
+				.map(Class::getName)
+				.collect(ImmutableList.toImmutableList());
+	}
+
+	private void createProductPrices(
+			@NonNull final I_M_PriceList_Version plv,
+			@NonNull final List<I_M_Product> products,
+			final int plvIndex)
+	{
+		for (int productIndex = 0; productIndex < products.size(); productIndex++)
+		{
+			new ProductPriceBuilder(plv, products.get(productIndex))
+					.setTaxCategoryId(getTaxCategoryId())
+					.setPrice(100 + productIndex + plvIndex)
+					.build();
+		}
+	}
+
+	private static I_M_DiscountSchema createDiscountSchemaWithBreaks(final int breaksCount, final int productCategoryId)
+	{
+		final I_M_DiscountSchema schema = newInstance(I_M_DiscountSchema.class);
+		schema.setName("Benchmark");
+		schema.setDiscountType(X_M_DiscountSchema.DISCOUNTTYPE_Breaks);
+		schema.setBreakValueType(X_M_DiscountSchema.BREAKVALUETYPE_Quantity);
+		saveRecord(schema);
+
+		for (int i = 0; i < breaksCount; i++)
+		{
+			final I_M_DiscountSchemaBreak schemaBreak = newInstance(I_M_DiscountSchemaBreak.class);
+			schemaBreak.setM_DiscountSchema_ID(schema.getM_DiscountSchema_ID());
+			schemaBreak.setSeqNo((i + 1) * 10);
+			schemaBreak.setIsValid(true);
+			schemaBreak.setM_Product_Category_ID(productCategoryId);
+			schemaBreak.setBreakValue(BigDecimal.valueOf(i * BREAK_QTY_STEP));
+			schemaBreak.setBreakDiscount(BigDecimal.valueOf(i % 50));
+			saveRecord(schemaBreak);
+		}
+
+		return schema;
+	}
+
+	/**
+	 * @return {@code count} pricing contexts, spread round robin over all products and (where the scenario has a bpartner) over all discount breaks.
+	 *         The contexts are set up the way the order line pricing does it, i.e. the price list version needs to be resolved by the pricing engine.
+	 */
+	public ImmutableList<IEditablePricingContext> newPricingContexts(@NonNull final PricingBenchmarkScenario scenario, final int count)
+	{
+		final ImmutableList.Builder<IEditablePricingContext> result = ImmutableList.builder();
+		for (int i = 0; i < count; i++)
+		{
+			result.add(newPricingContext(scenario, i));
+		}
+		return result.build();
+	}
+
+	private IEditablePricingContext newPricingContext(@NonNull final PricingBenchmarkScenario scenario, final int index)
+	{
+		final IEditablePricingContext pricingCtx = pricingBL.createPricingContext();
+		pricingCtx.setPricingSystemId(PricingSystemId.ofRepoId(getDefaultPricingSystem().getM_PricingSystem_ID()));
+		pricingCtx.setCountryId(CountryId.ofRepoId(defaultCountry.getC_Country_ID()));
+		pricingCtx.setPriceDate(PRICE_DATE);
+		pricingCtx.setSOTrx(SOTrx.SALES);
+		pricingCtx.setProductId(productIds.get(index % productIds.size()));
+
+		switch (scenario)
+		{
+			case PLAIN_PRICE_LIST:
+				pricingCtx.setQty(BigDecimal.ONE);
+				break;
+			case DISCOUNT_BREAKS:
+				pricingCtx.setBPartnerId(bpartnerId);
+				pricingCtx.setQty(BigDecimal.valueOf((index % discountBreaksCount) * BREAK_QTY_STEP + 1));
+				break;
+			case ATTRIBUTE_DEPENDANT_PRICE:
+				pricingCtx.setBPartnerId(bpartnerId);
+				pricingCtx.setQty(BigDecimal.valueOf((index % discountBreaksCount) * BREAK_QTY_STEP + 1));
+				pricingCtx.setReferencedObject(asiAware(asi));
+				break;
+			default:
+				throw new IllegalArgumentException("Unknown scenario: " + scenario);
+		}
+
+		return pricingCtx;
+	}
+
+	/**
+	 * @return a copy of the given context, with everything set which {@code PricingBL} would set before invoking the rules.
+	 *         Use it when benchmarking single {@link IPricingRule}s.
+	 */
+	public IEditablePricingContext resolvePriceListVersion(@NonNull final IEditablePricingContext pricingCtx)
+	{
+		final IEditablePricingContext resolvedCtx = pricingCtx.copy();
+		resolvedCtx.setPriceListId(PriceListId.ofRepoId(getDefaultPriceList().getM_PriceList_ID()));
+		resolvedCtx.setPriceListVersionId(currentPriceListVersionId);
+		resolvedCtx.setCurrencyId(CurrencyId.ofRepoId(getDefaultPriceList().getC_Currency_ID()));
+		return resolvedCtx;
+	}
+}
@@ -0,0 +1,44 @@
+package de.metas.pricing.benchmark;
+
+/*
+ * #%L
+ * de.metas.business.benchmark
+ * %%
+ * Copyright (C) 2020 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+/**
+ * The kinds of pricing requests we are benchmarking. See {@link PricingBenchmarkFixture#newPricingContexts(PricingBenchmarkScenario, int)}.
+ */
+public enum PricingBenchmarkScenario
+{
+	/**
+	 * No bpartner, no ASI; only the price list version based rules will apply.
+	 */
+	PLAIN_PRICE_LIST,
+
+	/**
+	 * Sales order line like request: bpartner with a discount schema with quantity breaks; the quantities are spread over all the breaks.
+	 */
+	DISCOUNT_BREAKS,
+
+	/**
+	 * Like {@link #DISCOUNT_BREAKS}, but the referenced object has an ASI which matches an attribute dependent product price.
+	 */
+	ATTRIBUTE_DEPENDANT_PRICE,
+}
@@ -0,0 +1,50 @@
+package de.metas.pricing.benchmark;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/*
+ * #%L
+ * de.metas.business.benchmark
+ * %%
+ * Copyright (C) 2020 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+/**
+ * Runs all pricing benchmarks with the GC profiler enabled, so that next to the throughput we also get the allocation rate per operation ({@code gc.alloc.rate.norm}).
+ * <p>
+ * Any JMH command line option can be given, e.g. {@code -p scenario=DISCOUNT_BREAKS} or {@code -rf json -rff pricing.json}.
+ */
+public class PricingBenchmarksMain
+{
+	public static void main(final String[] args) throws RunnerException, CommandLineOptionException
+	{
+		final Options options = new OptionsBuilder()
+				.parent(new CommandLineOptions(args))
+				.include(PricingBenchmarksMain.class.getPackage().getName() + ".*Benchmark")
+				.addProfiler(GCProfiler.class)
+				.build();
+
+		new Runner(options).run();
+	}
+}
@@ -0,0 +1,185 @@
+package de.metas.pricing.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.adempiere.exceptions.AdempiereException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.google.common.collect.ImmutableList;
+
+import de.metas.pricing.IEditablePricingContext;
+import de.metas.pricing.IPricingContext;
+import de.metas.pricing.IPricingResult;
+import de.metas.pricing.rules.Discount;
+import de.metas.pricing.rules.IPricingRule;
+import de.metas.pricing.service.IPricingBL;
+import de.metas.util.Services;
+
+/*
+ * #%L
+ * de.metas.business.benchmark
+ * %%
+ * Copyright (C) 2020 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+/**
+ * Measures the single {@link IPricingRule}s of the chain, each on its own.
+ * <p>
+ * The pricing contexts are prepared like {@code PricingBL} prepares them before invoking the rules, so the price list version lookup is not included here.
+ * Rules that work on an already calculated price (i.e. {@link Discount}) get a result which is pre-filled with the price that the whole chain calculated for the respective context.
+ * <p>
+ * {@link #createInitialResult()} is the baseline that is included in each {@link #applyPricingRule()} call.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PricingRuleBenchmark
+{
+	/**
+	 * Must be a power of two; see {@link #nextIndex()}.
+	 */
+	private static final int PRICING_CONTEXTS_COUNT = 1024;
+
+	/**
+	 * Simple class name of one of {@link PricingBenchmarkFixture#PRICING_RULE_CLASSES}.
+	 */
+	@Param({ "CampaignPricingRule", "AttributePricing", "ProductScalePrice", "PriceListVersion", "Discount" })
+	public String pricingRule;
+
+	@Param
+	public PricingBenchmarkScenario scenario;
+
+	@Param({ "100" })
+	public int productsCount;
+
+	@Param({ "10" })
+	public int discountBreaksCount;
+
+	private IPricingBL pricingBL;
+	private IPricingRule rule;
+	private ImmutableList<IPricingContext> pricingContexts;
+
+	/**
+	 * The prices calculated by the whole chain, per pricing context; {@code null} if the rule shall start with a not calculated result.
+	 */
+	private ImmutableList<IPricingResult> precalculatedResults;
+
+	private int nextIndex = 0;
+
+	@Setup
+	public void setup()
+	{
+		final PricingBenchmarkFixture fixture = PricingBenchmarkFixture.builder()
+				.productsCount(productsCount)
+				.priceListVersionsCount(1)
+				.discountBreaksCount(discountBreaksCount)
+				.build();
+
+		pricingBL = Services.get(IPricingBL.class);
+		rule = newPricingRule(pricingRule);
+
+		final ImmutableList.Builder<IPricingContext> pricingContexts = ImmutableList.builder();
+		for (final IEditablePricingContext pricingCtx : fixture.newPricingContexts(scenario, PRICING_CONTEXTS_COUNT))
+		{
+			pricingContexts.add(fixture.resolvePriceListVersion(pricingCtx));
+		}
+		this.pricingContexts = pricingContexts.build();
+
+		if (rule instanceof Discount)
+		{
+			this.precalculatedResults = this.pricingContexts.stream()
+					.map(pricingBL::calculatePrice)
+					.collect(ImmutableList.toImmutableList());
+		}
+		else
+		{
+			this.precalculatedResults = null;
+		}
+	}
+
+	private static IPricingRule newPricingRule(final String simpleClassName)
+	{
+		final Class<? extends IPricingRule> ruleClass = PricingBenchmarkFixture.PRICING_RULE_CLASSES.stream()
+				.filter(clazz -> clazz.getSimpleName().equals(simpleClassName))
+				.findFirst()
+				.orElseThrow(() -> new AdempiereException("No pricing rule found for " + simpleClassName));
+		try
+		{
+			return ruleClass.newInstance();
+		}
+		catch (final ReflectiveOperationException e)
+		{
+			throw AdempiereException.wrapIfNeeded(e);
+		}
+	}
+
+	private int nextIndex()
+	{
+		final int index = nextIndex;
+		nextIndex = (nextIndex + 1) & (PRICING_CONTEXTS_COUNT - 1);
+		return index;
+	}
+
+	@Benchmark
+	public IPricingResult createInitialResult()
+	{
+		return pricingBL.createInitialResult(pricingContexts.get(nextIndex()));
+	}
+
+	@Benchmark
+	public IPricingResult applyPricingRule()
+	{
+		final int index = nextIndex();
+		final IPricingContext pricingCtx = pricingContexts.get(index);
+
+		final IPricingResult result = pricingBL.createInitialResult(pricingCtx);
+		if (precalculatedResults != null)
+		{
+			copyPrices(precalculatedResults.get(index), result);
+		}
+
+		if (rule.applies(pricingCtx, result))
+		{
+			rule.calculate(pricingCtx, result);
+		}
+
+		return result;
+	}
+
+	private static void copyPrices(final IPricingResult from, final IPricingResult to)
+	{
+		to.setCalculated(from.isCalculated());
+		to.setPriceStd(from.getPriceStd());
+		to.setPriceList(from.getPriceList());
+		to.setPriceLimit(from.getPriceLimit());
+		to.setPriceUomId(from.getPriceUomId());
+	}
+}
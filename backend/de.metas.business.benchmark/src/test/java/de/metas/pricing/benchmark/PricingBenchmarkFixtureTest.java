@@ -0,0 +1,112 @@
+package de.metas.pricing.benchmark;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.math.BigDecimal;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.google.common.collect.ImmutableList;
+
+import de.metas.pricing.IEditablePricingContext;
+import de.metas.pricing.IPricingResult;
+import de.metas.pricing.service.IPricingBL;
+import de.metas.util.Services;
+import de.metas.util.lang.Percent;
+
+/*
+ * #%L
+ * de.metas.business.benchmark
+ * %%
+ * Copyright (C) 2020 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+/**
+ * Makes sure that the benchmarks measure the pricing paths they claim to measure, and not e.g. a "product not on price list" shortcut.
+ */
+public class PricingBenchmarkFixtureTest
+{
+	private PricingBenchmarkFixture fixture;
+	private IPricingBL pricingBL;
+
+	@BeforeEach
+	public void beforeEach()
+	{
+		fixture = PricingBenchmarkFixture.builder()
+				.productsCount(3)
+				.priceListVersionsCount(4)
+				.discountBreaksCount(5)
+				.build();
+		pricingBL = Services.get(IPricingBL.class);
+	}
+
+	@Test
+	public void plainPriceList_usesCurrentPriceListVersion()
+	{
+		final ImmutableList<IEditablePricingContext> pricingContexts = fixture.newPricingContexts(PricingBenchmarkScenario.PLAIN_PRICE_LIST, 3);
+
+		for (int productIndex = 0; productIndex < 3; productIndex++)
+		{
+			final IPricingResult result = pricingBL.calculatePrice(pricingContexts.get(productIndex));
+
+			assertThat(result.isCalculated()).isTrue();
+			assertThat(result.getPriceListVersionId()).isEqualTo(fixture.getCurrentPriceListVersionId());
+			assertThat(result.getPriceStd()).isEqualByComparingTo(BigDecimal.valueOf(100 + productIndex + 3));
+			assertThat(result.getDiscount()).isEqualTo(Percent.ZERO);
+		}
+	}
+
+	@Test
+	public void discountBreaks_allBreaksAreHit()
+	{
+		final ImmutableList<IEditablePricingContext> pricingContexts = fixture.newPricingContexts(PricingBenchmarkScenario.DISCOUNT_BREAKS, 5);
+
+		for (int breakIndex = 0; breakIndex < 5; breakIndex++)
+		{
+			final IPricingResult result = pricingBL.calculatePrice(pricingContexts.get(breakIndex));
+
+			assertThat(result.isCalculated()).isTrue();
+			assertThat(result.isUsesDiscountSchema()).isTrue();
+			assertThat(result.getDiscount()).isEqualTo(Percent.of(breakIndex));
+		}
+	}
+
+	@Test
+	public void attributeDependantPrice()
+	{
+		final IEditablePricingContext pricingCtx = fixture.newPricingContexts(PricingBenchmarkScenario.ATTRIBUTE_DEPENDANT_PRICE, 1).get(0);
+
+		final IPricingResult result = pricingBL.calculatePrice(pricingCtx);
+
+		assertThat(result.isCalculated()).isTrue();
+		assertThat(result.getPriceStd()).isEqualByComparingTo(BigDecimal.valueOf(500));
+	}
+
+	@Test
+	public void resolvePriceListVersion()
+	{
+		final IEditablePricingContext pricingCtx = fixture.newPricingContexts(PricingBenchmarkScenario.PLAIN_PRICE_LIST, 1).get(0);
+
+		final IEditablePricingContext resolvedCtx = fixture.resolvePriceListVersion(pricingCtx);
+
+		assertThat(pricingCtx.getPriceListVersionId()).isNull();
+		assertThat(resolvedCtx.getPriceListVersionId()).isEqualTo(fixture.getCurrentPriceListVersionId());
+		assertThat(resolvedCtx.getCurrencyId()).isNotNull();
+	}
+}
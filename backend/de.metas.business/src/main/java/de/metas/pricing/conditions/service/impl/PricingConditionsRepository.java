@@ -65,6 +65,7 @@ import com.google.common.collect.ListMultimap;
 import ch.qos.logback.classic.Level;
 import de.metas.bpartner.BPartnerId;
 import de.metas.cache.CCache;
+import de.metas.cache.CCache.CacheMapType;
 import de.metas.currency.ICurrencyBL;
 import de.metas.logging.LogManager;
 import de.metas.money.CurrencyId;
@@ -100,7 +101,9 @@ public class PricingConditionsRepository implements IPricingConditionsRepository
 
 	private final CCache<PricingConditionsId, PricingConditions> pricingConditionsById = CCache.<PricingConditionsId, PricingConditions> builder()
 			.tableName(I_M_DiscountSchema.Table_Name)
-			.initialCapacity(10)
+			.cacheMapType(CacheMapType.TinyLFU)
+			.initialCapacity(1000)
+			.maximumWeightInBytes(64L * 1024 * 1024)
 			.additionalTableNameToResetFor(I_M_DiscountSchemaBreak.Table_Name)
 			.build();
 
@@ -65,8 +65,9 @@ public class CampaignPriceRepository
 
 	private final CCache<CampaignPricePageKey, CampaignPricePage> cache = CCache.<CampaignPricePageKey, CampaignPricePage> builder()
 			.cacheName("campaignPricePages")
-			.cacheMapType(CacheMapType.LRU)
-			.initialCapacity(100)
+			.cacheMapType(CacheMapType.TinyLFU)
+			.initialCapacity(1000)
+			.maximumWeightInBytes(16L * 1024 * 1024)
 			.additionalTableNameToResetFor(I_C_Campaign_Price.Table_Name)
 			.build();
 
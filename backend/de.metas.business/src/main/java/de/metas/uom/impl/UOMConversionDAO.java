@@ -14,6 +14,7 @@ import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.ImmutableList;
 
 import de.metas.cache.CCache;
+import de.metas.cache.CCache.CacheMapType;
 import de.metas.logging.LogManager;
 import de.metas.product.IProductBL;
 import de.metas.product.ProductId;
@@ -29,8 +30,14 @@ public class UOMConversionDAO implements IUOMConversionDAO
 {
 	private static final Logger logger = LogManager.getLogger(UOMConversionDAO.class);
 
+	/**
+	 * Frequency-aware, so that e.g. a report which converts the quantities of many rarely used products does not push out the conversions of the frequently used ones.
+	 */
 	private final CCache<ProductId, UOMConversionsMap> productConversionsCache = CCache.<ProductId, UOMConversionsMap> builder()
 			.tableName(I_C_UOM_Conversion.Table_Name)
+			.cacheMapType(CacheMapType.TinyLFU)
+			.initialCapacity(10000)
+			.maximumWeightInBytes(32L * 1024 * 1024)
 			.build();
 
 	@Override
@@ -1,5 +1,6 @@
 package de.metas.dlm;
 
+import java.util.List;
 import java.util.stream.Stream;
 
 import org.adempiere.ad.dao.IQueryBuilder;
@@ -7,6 +8,7 @@ import org.adempiere.ad.trx.api.ITrxManager;
 import org.adempiere.util.lang.IContextAware;
 import org.compiere.model.I_AD_Column;
 
+import de.metas.dlm.Partition.WorkQueue;
 import de.metas.dlm.connection.DLMConnectionCustomizer;
 import de.metas.dlm.model.IDLMAware;
 import de.metas.dlm.model.I_AD_Table;
@@ -126,6 +128,16 @@ public interface IDLMService extends ISingletonService {
 	 */
 	int directUpdateDLMColumn(IContextAware ctxAware, int dlmPartitionId, String columnName, int targetValue);
 
+	/**
+	 * Inserts one <code>DLM_Partition_Workqueue</code> record for each of the given <code>queueRecordsToStore</code>
+	 * and sets their <code>DLM_Partition_Workqueue_ID</code>s.
+	 *
+	 * @param ctxAware
+	 * @param dlmPartitionId the <code>DLM_Partition_ID</code> of the new records
+	 * @param queueRecordsToStore
+	 */
+	void storeWorkqueueRecords(IContextAware ctxAware, int dlmPartitionId, List<WorkQueue> queueRecordsToStore);
+
 	
 
 	Stream<IQueryBuilder<IDLMAware>> retrieveDLMTableNames(IContextAware ctxAware, int dlmPartitionId);
@@ -1,6 +1,19 @@
 package de.metas.dlm.impl;
 
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Properties;
+
+import org.adempiere.exceptions.DBException;
+import org.adempiere.util.lang.IContextAware;
+import org.adempiere.util.lang.ITableRecordReference;
 import org.compiere.util.DB;
+import org.compiere.util.Env;
+
+import de.metas.dlm.Partition.WorkQueue;
+import de.metas.dlm.model.I_DLM_Partition_Workqueue;
+import de.metas.organization.OrgId;
 
 /*
  * #%L
@@ -43,4 +56,69 @@ public class DLMService extends AbstractDLMService
 	{
 		DB.executeFunctionCallEx(trxName, "select dlm.update_partition_size(?)", new Object[] { dlm_Partition_ID });
 	}
+
+	/**
+	 * Inserts the given queue records with one JDBC batch.
+	 */
+	@Override
+	public void storeWorkqueueRecords(
+			final IContextAware ctxAware,
+			final int dlmPartitionId,
+			final List<WorkQueue> queueRecordsToStore)
+	{
+		final String trxName = ctxAware.getTrxName();
+		final Properties ctx = ctxAware.getCtx();
+
+		final String sqlNextIds = "SELECT ARRAY(SELECT " + DB.TO_TABLESEQUENCE_NEXTVAL(I_DLM_Partition_Workqueue.Table_Name) + " FROM generate_series(1, ?))";
+		final Number[] workqueueIds = DB.getSQLValueArrayEx(trxName, sqlNextIds, queueRecordsToStore.size());
+
+		final String sql = "INSERT INTO " + I_DLM_Partition_Workqueue.Table_Name + " ("
+				+ I_DLM_Partition_Workqueue.COLUMNNAME_DLM_Partition_Workqueue_ID + "," // 1
+				+ I_DLM_Partition_Workqueue.COLUMNNAME_AD_Client_ID + "," // 2
+				+ I_DLM_Partition_Workqueue.COLUMNNAME_AD_Org_ID + "," // 3
+				+ I_DLM_Partition_Workqueue.COLUMNNAME_CreatedBy + "," // 4
+				+ I_DLM_Partition_Workqueue.COLUMNNAME_UpdatedBy + "," // 5
+				+ I_DLM_Partition_Workqueue.COLUMNNAME_DLM_Partition_ID + "," // 6
+				+ I_DLM_Partition_Workqueue.COLUMNNAME_AD_Table_ID + "," // 7
+				+ I_DLM_Partition_Workqueue.COLUMNNAME_Record_ID + "," // 8
+				+ I_DLM_Partition_Workqueue.COLUMNNAME_Created + ","
+				+ I_DLM_Partition_Workqueue.COLUMNNAME_Updated + ","
+				+ I_DLM_Partition_Workqueue.COLUMNNAME_IsActive
+				+ ") VALUES (?,?,?,?,?,?,?,?,now(),now(),'Y')";
+
+		PreparedStatement pstmt = null;
+		try
+		{
+			pstmt = DB.prepareStatement(sql, trxName);
+			for (int i = 0; i < queueRecordsToStore.size(); i++)
+			{
+				final ITableRecordReference tableRecordReference = queueRecordsToStore.get(i).getTableRecordReference();
+				DB.setParameters(pstmt, new Object[] {
+						workqueueIds[i].intValue(), // 1 - DLM_Partition_Workqueue_ID
+						Env.getAD_Client_ID(ctx), // 2 - AD_Client_ID
+						OrgId.ANY, // 3 - AD_Org_ID
+						Env.getAD_User_ID(ctx), // 4 - CreatedBy
+						Env.getAD_User_ID(ctx), // 5 - UpdatedBy
+						dlmPartitionId, // 6 - DLM_Partition_ID
+						tableRecordReference.getAD_Table_ID(), // 7 - AD_Table_ID
+						tableRecordReference.getRecord_ID() // 8 - Record_ID
+				});
+				pstmt.addBatch();
+			}
+			pstmt.executeBatch();
+		}
+		catch (final SQLException ex)
+		{
+			throw new DBException(ex, sql);
+		}
+		finally
+		{
+			DB.close(pstmt);
+		}
+
+		for (int i = 0; i < queueRecordsToStore.size(); i++)
+		{
+			queueRecordsToStore.get(i).setDLM_Partition_Workqueue_ID(workqueueIds[i].intValue());
+		}
+	}
 }
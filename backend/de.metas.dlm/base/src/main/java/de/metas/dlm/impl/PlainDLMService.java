@@ -1,5 +1,14 @@
 package de.metas.dlm.impl;
 
+import java.util.List;
+
+import org.adempiere.model.InterfaceWrapperHelper;
+import org.adempiere.util.lang.IContextAware;
+import org.adempiere.util.lang.ITableRecordReference;
+
+import de.metas.dlm.Partition.WorkQueue;
+import de.metas.dlm.model.I_DLM_Partition_Workqueue;
+
 /*
  * #%L
  * metasfresh-dlm
@@ -42,4 +51,27 @@ public class PlainDLMService extends AbstractDLMService
 	{
 		// nothing to do
 	}
+
+	/**
+	 * Saves the given queue records one by one, because the JDBC batch of {@link DLMService} does not work without a database.
+	 */
+	@Override
+	public void storeWorkqueueRecords(
+			final IContextAware ctxAware,
+			final int dlmPartitionId,
+			final List<WorkQueue> queueRecordsToStore)
+	{
+		for (final WorkQueue queueRecordToStore : queueRecordsToStore)
+		{
+			final ITableRecordReference tableRecordReference = queueRecordToStore.getTableRecordReference();
+
+			final I_DLM_Partition_Workqueue newQueueRecord = InterfaceWrapperHelper.newInstance(I_DLM_Partition_Workqueue.class, ctxAware);
+			newQueueRecord.setDLM_Partition_ID(dlmPartitionId);
+			newQueueRecord.setAD_Table_ID(tableRecordReference.getAD_Table_ID());
+			newQueueRecord.setRecord_ID(tableRecordReference.getRecord_ID());
+			InterfaceWrapperHelper.save(newQueueRecord);
+
+			queueRecordToStore.setDLM_Partition_Workqueue_ID(newQueueRecord.getDLM_Partition_Workqueue_ID());
+		}
+	}
 }
@@ -103,6 +103,14 @@ public interface IIterateResult
 	 */
 	ITableRecordReference nextFromQueue();
 
+	/**
+	 * Puts the given records back to the front of the queue, in the given order, so that they are returned by {@link #nextFromQueue()} again.
+	 * The crawler uses this for records it took from the queue, but did not (completely) crawl, e.g. because a handler signaled to stop.
+	 *
+	 * @param records records that were returned by {@link #nextFromQueue()}
+	 */
+	void pushBackToQueue(List<ITableRecordReference> records);
+
 	/**
 	 * Register a handler.
 	 * <p>
@@ -17,7 +17,6 @@ import com.google.common.collect.ImmutableMap;
 
 import de.metas.dlm.Partition;
 import de.metas.dlm.Partition.WorkQueue;
-import de.metas.dlm.model.IDLMAware;
 import de.metas.dlm.partitioner.IIterateResultHandler;
 import de.metas.dlm.partitioner.IIterateResultHandler.AddResult;
 import de.metas.dlm.partitioner.IterateResultHandlerSupport;
@@ -51,8 +50,23 @@ import de.metas.dlm.partitioner.IterateResultHandlerSupport;
  */
 public class CreatePartitionIterateResult implements IStorableIterateResult
 {
+	/**
+	 * Max number of items which are taken from {@link #iterator} at once, so that their {@code DLM_Partition_ID}s can be loaded set-based.
+	 */
+	private static final int ITERATOR_CHUNK_SIZE = 1000;
+
 	private final Iterator<WorkQueue> iterator;
 
+	/**
+	 * Items which were already taken from {@link #iterator}, but not yet returned by {@link #nextFromQueue()}.
+	 */
+	private final LinkedList<WorkQueue> iteratorItems = new LinkedList<>();
+
+	/**
+	 * The {@code DLM_Partition_ID}s of the {@link #iteratorItems}.
+	 */
+	private final Map<ITableRecordReference, Integer> iteratorItem2PartitionId = new HashMap<>();
+
 	private final LinkedList<WorkQueue> queueItemsToProcess;
 
 	private final ArrayList<WorkQueue> queueItemsToDelete;
@@ -192,7 +206,7 @@ public class CreatePartitionIterateResult implements IStorableIterateResult
 	@Override
 	public boolean isQueueEmpty()
 	{
-		final boolean iteratorEmpty = !iterator.hasNext();
+		final boolean iteratorEmpty = iteratorItems.isEmpty() && !iterator.hasNext();
 		return iteratorEmpty && queueItemsToProcess.isEmpty();
 	}
 
@@ -210,13 +224,17 @@ public class CreatePartitionIterateResult implements IStorableIterateResult
 
 	private WorkQueue nextFromQueue0()
 	{
-		if (iterator.hasNext())
+		if (iteratorItems.isEmpty() && iterator.hasNext())
+		{
+			loadNextIteratorItems();
+		}
+
+		if (!iteratorItems.isEmpty())
 		{
 			// once we get the record from the queue, we also add it to our result
-			final WorkQueue next = iterator.next();
+			final WorkQueue next = iteratorItems.removeFirst();
 			final ITableRecordReference tableRecordReference = next.getTableRecordReference();
-			final IDLMAware model = tableRecordReference.getModel(ctxAware, IDLMAware.class);
-			add0(tableRecordReference, model.getDLM_Partition_ID(), true);
+			add0(tableRecordReference, iteratorItem2PartitionId.remove(tableRecordReference), true);
 
 			return next;
 		}
@@ -224,6 +242,63 @@ public class CreatePartitionIterateResult implements IStorableIterateResult
 		return queueItemsToProcess.removeFirst();
 	}
 
+	/**
+	 * Takes the next chunk of items from {@link #iterator} and loads their {@code DLM_Partition_ID}s with one query per table.
+	 */
+	private void loadNextIteratorItems()
+	{
+		final Map<String, List<Integer>> tableName2RecordIds = new HashMap<>();
+		while (iteratorItems.size() < ITERATOR_CHUNK_SIZE && iterator.hasNext())
+		{
+			final WorkQueue next = iterator.next();
+			final ITableRecordReference tableRecordReference = next.getTableRecordReference();
+			iteratorItems.addLast(next);
+			tableName2RecordIds
+					.computeIfAbsent(tableRecordReference.getTableName(), k -> new ArrayList<>())
+					.add(tableRecordReference.getRecord_ID());
+		}
+
+		final Map<String, Map<Integer, Integer>> tableName2RecordId2PartitionId = new HashMap<>();
+		tableName2RecordIds.forEach((tableName, recordIds) -> tableName2RecordId2PartitionId.put(
+				tableName,
+				RecordCrawlerService.retrievePartitionIds(ctxAware, tableName, recordIds)));
+
+		for (final WorkQueue item : iteratorItems)
+		{
+			final ITableRecordReference tableRecordReference = item.getTableRecordReference();
+			final int dlmPartitionId = tableName2RecordId2PartitionId
+					.get(tableRecordReference.getTableName())
+					.getOrDefault(tableRecordReference.getRecord_ID(), 0); // the record might have been deleted meanwhile
+			iteratorItem2PartitionId.put(tableRecordReference, dlmPartitionId);
+		}
+	}
+
+	@Override
+	public void pushBackToQueue(final List<ITableRecordReference> records)
+	{
+		// records which came from a stored queue item are not deleted anymore, so we don't need to store them again
+		final Map<ITableRecordReference, WorkQueue> record2StoredQueueItem = new HashMap<>();
+		queueItemsToDelete.forEach(queueItem -> record2StoredQueueItem.put(queueItem.getTableRecordReference(), queueItem));
+
+		final List<WorkQueue> queueItems = new ArrayList<>(records.size());
+		final Set<WorkQueue> storedQueueItems = new HashSet<>();
+		for (final ITableRecordReference record : records)
+		{
+			final WorkQueue storedQueueItem = record2StoredQueueItem.get(record);
+			if (storedQueueItem != null)
+			{
+				storedQueueItems.add(storedQueueItem);
+				queueItems.add(storedQueueItem);
+			}
+			else
+			{
+				queueItems.add(WorkQueue.of(record));
+			}
+		}
+		queueItemsToDelete.removeAll(storedQueueItems);
+		queueItemsToProcess.addAll(0, queueItems);
+	}
+
 	@Override
 	public List<WorkQueue> getQueueRecordsToStore()
 	{
@@ -267,6 +342,7 @@ public class CreatePartitionIterateResult implements IStorableIterateResult
 	public String toString()
 	{
 		return "IterateResult [queueItemsToProcess.size()=" + queueItemsToProcess.size()
+				+ ", iteratorItems.size()=" + iteratorItems.size()
 				+ ", queueItemsToDelete.size()=" + queueItemsToDelete.size()
 				+ ", size=" + size
 				+ ", tableName2Record.size()=" + tableName2Record.size()
@@ -24,9 +24,14 @@ package de.metas.dlm.partitioner.impl;
 
 import ch.qos.logback.classic.Level;
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Lists;
 import de.metas.adempiere.service.IColumnBL;
 import de.metas.dlm.IDLMService;
 import de.metas.dlm.Partition;
+import de.metas.dlm.Partition.WorkQueue;
 import de.metas.dlm.migrator.IMigratorService;
 import de.metas.dlm.model.IDLMAware;
 import de.metas.dlm.model.I_DLM_Partition;
@@ -40,6 +45,7 @@ import de.metas.dlm.partitioner.config.PartitionerConfigReference;
 import de.metas.logging.LogManager;
 import de.metas.util.Check;
 import de.metas.util.Loggables;
+import de.metas.util.NumberUtils;
 import de.metas.util.Services;
 import org.adempiere.ad.dao.IQueryBL;
 import org.adempiere.ad.dao.IQueryBuilder;
@@ -47,249 +53,366 @@ import org.adempiere.ad.table.api.IADTableDAO;
 import org.adempiere.ad.trx.api.ITrxManager;
 import org.adempiere.model.InterfaceWrapperHelper;
 import org.adempiere.model.PlainContextAware;
+import org.adempiere.service.ISysConfigBL;
 import org.adempiere.util.lang.IContextAware;
 import org.adempiere.util.lang.ITableRecordReference;
-import org.adempiere.util.lang.Mutable;
 import org.adempiere.util.lang.impl.TableRecordReference;
 import org.compiere.util.TrxRunnable;
 import org.slf4j.Logger;
 
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
 import java.util.Comparator;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 
+/**
+ * Crawls the reference graph level by level (breadth-first):
+ * the records which are currently in the queue are taken as one batch, grouped by table, and for each table
+ * <ul>
+ * <li>the records they reference ("forward") are found with one query on the table itself plus one query per referenced table
+ * <li>the records which reference them ("backward") are found with one query per referencing table and column.
+ * </ul>
+ * The records found like that are added to the {@link IIterateResult} and make up the next level.
+ * Only the columns we need are loaded, no models.
+ * <p>
+ * If a handler signals to stop, the records of the current level which were not yet (completely) crawled are put back into the queue,
+ * so that the partition is not flagged as complete and the crawling can be resumed later.
+ */
 public class RecordCrawlerService implements IRecordCrawlerService
 {
 	private final transient Logger logger = LogManager.getLogger(getClass());
 
+	/**
+	 * Max number of records which are taken from the queue and crawled together.
+	 */
+	private static final String SYSCONFIG_CrawlBatchSize = "de.metas.dlm.partitioner.impl.RecordCrawlerService.CrawlBatchSize";
+	private static final int DEFAULT_CrawlBatchSize = 10000;
+
+	/**
+	 * Max number of IDs per {@code IN (...)} query, so that we stay well below the max number of parameters of a prepared statement.
+	 */
+	private static final int QUERY_CHUNK_SIZE = 1000;
+
 	@Override
 	public IIterateResult crawl(
 			final PartitionConfig config,
 			final IContextAware ctxAware,
 			final IIterateResult result)
 	{
-
-		final IColumnBL columnBL = Services.get(IColumnBL.class);
-		final IADTableDAO adTableDAO = Services.get(IADTableDAO.class);
-
 		// store what we are setting out to do here. E.g. if we are called from a DLMException, we want the situation such as
 		// "partition is not complete because testMigrate failed, and there are e.g. 20 orderlines to backtrack from" to be stored here.
 		// otherwise, the partiton we are in truth working on just now would be flagged as "completed" in the DB until further notice
 		storeIterateResult(config, result, ctxAware);
 
+		final int batchSize = Services.get(ISysConfigBL.class).getIntValue(SYSCONFIG_CrawlBatchSize, DEFAULT_CrawlBatchSize);
+		final VisitedRecords visitedRecords = new VisitedRecords();
+
 		mainLoop:
 		while (!result.isQueueEmpty())
 		{
-			final ITableRecordReference currentReference = result.nextFromQueue();
-			final IDLMAware currentRecord = currentReference.getModel(ctxAware, IDLMAware.class);
-			if (currentRecord == null)
-			{
-				continue;
-			}
-
 			if (shallStoreResult(result))
 			{
 				storeIterateResult(config, result, ctxAware);
 			}
 
-			final String currentTableName = currentReference.getTableName();
-			final int currentRecordId = InterfaceWrapperHelper.getId(currentRecord);
+			//
+			// Take the next level from the queue
+			final Map<String, List<Integer>> tableName2RecordIds = new LinkedHashMap<>();
+			int levelSize = 0;
+			while (levelSize < batchSize && !result.isQueueEmpty())
+			{
+				final ITableRecordReference currentReference = result.nextFromQueue();
+				if (!visitedRecords.add(currentReference))
+				{
+					continue;
+				}
+
+				tableName2RecordIds
+						.computeIfAbsent(currentReference.getTableName(), k -> new ArrayList<>())
+						.add(currentReference.getRecord_ID());
+				levelSize++;
+			}
+			logger.debug("Crawling {} records: {}", levelSize, tableName2RecordIds.keySet());
 
-			// there might or migth not be a line for the current reference's table name. That would mean that we can only search "backward"
-			final Optional<PartitionerConfigLine> currentLineOrNull = config.getLine(currentTableName);
+			final List<RecordIdsChunk> chunks = new ArrayList<>();
+			tableName2RecordIds.forEach((tableName, recordIds) -> Lists.partition(recordIds, QUERY_CHUNK_SIZE)
+					.forEach(recordIdsChunk -> chunks.add(new RecordIdsChunk(tableName, recordIdsChunk))));
 
-			if (currentLineOrNull.isPresent())
+			for (int i = 0; i < chunks.size(); i++)
 			{
-				final List<PartitionerConfigReference> forwardRefs = currentLineOrNull.get().getReferences();
+				final String currentTableName = chunks.get(i).getTableName();
+				final List<Integer> currentRecordIds = chunks.get(i).getRecordIds();
 
-				// look FORWARD
-				//
-				// look at all the records that are referenced by 'currentRecord' and add them to 'hull',
-				// but only add them if they were not yet identified as parts of this partition (i.e. not yet added to 'records').
-				for (final PartitionerConfigReference forwardRef : forwardRefs)
+				if (AddResult.STOP.equals(crawlForward(config, ctxAware, currentTableName, currentRecordIds, visitedRecords, result))
+						|| AddResult.STOP.equals(crawlBackward(config, ctxAware, currentTableName, currentRecordIds, visitedRecords, result)))
 				{
-					if (forwardRef.isPartitionBoundary())
-					{
-						continue; // don't follow it
-					}
-
-					// the table name for the foreign record which has 'foreignKey' as its ID
-					final String forwardTableName = forwardRef.getReferencedTableName();
-					final String forwardColumnName = forwardRef.getReferencingColumnName();
-
-					// first check if this is all about a Record_ID/AD_Table_ID reference.
-					// if that is the case, then we need to verify that the AD_Table_ID of 'record' actually points to the table named 'forwardTableName'
-					if (columnBL.isRecordIdColumnName(forwardColumnName))
-					{
-						final String tableColumnName = columnBL.getTableIdColumnName(currentTableName, forwardColumnName)
-								.orElseThrow(Check.supplyEx("Table={} has no table column name for recordColumnName={}", currentTableName, forwardColumnName));
-
-						final Integer tableId = InterfaceWrapperHelper.getValueOrNull(currentRecord, tableColumnName);
-						if (tableId == null || tableId <= 0)
-						{
-							logger.trace("{}[{}] forward: the column={} does not reference any table; skipping", currentTableName, currentRecordId, forwardColumnName, forwardTableName, tableColumnName);
-							continue;
-						}
+					// put the current chunk and the ones we did not get to back into the queue; crawling the current chunk again is harmless
+					final List<ITableRecordReference> notCrawledRecords = chunks.subList(i, chunks.size())
+							.stream()
+							.flatMap(chunk -> chunk.getRecordIds().stream().map(recordId -> TableRecordReference.of(chunk.getTableName(), recordId)))
+							.collect(ImmutableList.toImmutableList());
+					result.pushBackToQueue(notCrawledRecords);
+					logger.debug("Crawling was stopped; put {} records back into the queue", notCrawledRecords.size());
+					break mainLoop;
+				}
+			}
+		}
 
-						final String tableName = adTableDAO.retrieveTableName(tableId);
-						if (!tableName.equals(forwardTableName))
-						{
-							logger.trace("{}[{}] forward: the column={} does not reference a {}-record, but a {}-record; skipping", currentTableName, currentRecordId, forwardColumnName, forwardTableName, tableName);
-							continue;
-						}
-					}
-
-					// get the foreign key ID of
-					// table DLM_PartitionLine_Config.AD_Table_ID,
-					// column DLM_PartitionReference_Config.DLM_Referencing_Column_ID
-					final Integer forwardKey = InterfaceWrapperHelper.getValueOrNull(currentRecord, forwardColumnName);
-					if (forwardKey == null || forwardKey <= 0)
-					{
-						logger.trace("{}[{}] forward: the column={} does not reference anything; skipping", currentTableName, currentRecordId, forwardColumnName);
-						continue;
-					}
-
-					final TableRecordReference forwardReference = TableRecordReference.of(forwardTableName, forwardKey);
-
-					final boolean recordWasAlreadyAddedBefore = result.contains(forwardReference);
-					if (recordWasAlreadyAddedBefore)
-					{
-						logger.trace("{}[{}] forward: ITableRecordReference={} was already added in a previous iteration. Returning", currentTableName, currentRecordId, forwardReference); // avoid circles and also avoid loading the whole PO again
-					}
-					else
-					{
-						// the foreign record was not yet added before. Load it now.
-						final IDLMAware forwardRecord = forwardReference.getModel(ctxAware, IDLMAware.class);
-						if (forwardRecord == null)
-						{
-							// this happens with our "minidump" where we left out the HUs
-							Loggables.withLogger(logger, Level.WARN).addLog(
-									"{}[{}] forward: the record from table={} which we attempted to load via {}.{}={} is NULL",
-									currentTableName, currentRecordId, forwardTableName, currentTableName, forwardColumnName, forwardKey);
-							continue;
-						}
+		logger.info("Found {} records via config.name={}", result.size(), config.getName());
+		storeIterateResult(config, result, ctxAware);
+		return result;
+	}
 
-						logger.debug("{}[{}] forward: loaded from table={} via {}.{}={}: referenced IDLMAware={}",
-								currentTableName, currentRecordId, forwardTableName, currentTableName, forwardColumnName, forwardKey, forwardRecord);
+	/**
+	 * Look FORWARD: add the records that are referenced by the given current records, but only those which were not yet added to the result.
+	 */
+	private AddResult crawlForward(
+			final PartitionConfig config,
+			final IContextAware ctxAware,
+			final String currentTableName,
+			final List<Integer> currentRecordIds,
+			final VisitedRecords visitedRecords,
+			final IIterateResult result)
+	{
+		// there might or migth not be a line for the current table name. That would mean that we can only search "backward"
+		final Optional<PartitionerConfigLine> currentLine = config.getLine(currentTableName);
+		if (!currentLine.isPresent())
+		{
+			return AddResult.ADDED_CONTINUE;
+		}
 
-						final AddResult addResult = result.addReferencedRecord(currentReference, forwardReference, forwardRecord.getDLM_Partition_ID());
-						if (forwardRecord.getDLM_Partition_ID() > 0)
-						{
-							// log why we do not search further using the new found foreign record
-							logger.debug("{}[{}] forward: referenced IDLMAware={} already has DLM_Partition_ID={}",
-									currentTableName, currentRecordId, forwardRecord, forwardRecord.getDLM_Partition_ID());
-						}
-						if (AddResult.STOP.equals(addResult))
-						{
-							Loggables.withLogger(logger, Level.WARN)
-									.addLog("The crawler was signaled to stop when it added ReferencedRecord={} to the result. Stopping now", forwardReference);
-							break mainLoop;
-						}
-					}
+		final List<PartitionerConfigReference> forwardRefs = currentLine.get().getReferences()
+				.stream()
+				.filter(forwardRef -> !forwardRef.isPartitionBoundary()) // don't follow it
+				.collect(ImmutableList.toImmutableList());
+		if (forwardRefs.isEmpty())
+		{
+			return AddResult.ADDED_CONTINUE;
+		}
+
+		final IColumnBL columnBL = Services.get(IColumnBL.class);
+		final IADTableDAO adTableDAO = Services.get(IADTableDAO.class);
+
+		//
+		// Load the referencing columns of all current records with one query
+		final String currentKeyColumnName = columnBL.getSingleKeyColumn(currentTableName);
+		final Set<String> columnNames = new LinkedHashSet<>();
+		columnNames.add(currentKeyColumnName);
+		for (final PartitionerConfigReference forwardRef : forwardRefs)
+		{
+			columnNames.add(forwardRef.getReferencingColumnName());
+			getTableIdColumnName(currentTableName, forwardRef.getReferencingColumnName()).ifPresent(columnNames::add);
+		}
+
+		final List<Map<String, Object>> currentRows = Services.get(IQueryBL.class)
+				.createQueryBuilder(IDLMAware.class, currentTableName, ctxAware)
+				.addInArrayFilter(currentKeyColumnName, currentRecordIds)
+				.orderBy(currentKeyColumnName)
+				.create()
+				.listColumns(columnNames.toArray(new String[0]));
+
+		for (final PartitionerConfigReference forwardRef : forwardRefs)
+		{
+			// the table name for the foreign record which has 'foreignKey' as its ID
+			final String forwardTableName = forwardRef.getReferencedTableName();
+			final String forwardColumnName = forwardRef.getReferencingColumnName();
+
+			// if this is about a Record_ID/AD_Table_ID reference,
+			// then we need to verify that the AD_Table_ID of the current record actually points to the table named 'forwardTableName'
+			final String tableIdColumnName = getTableIdColumnName(currentTableName, forwardColumnName).orElse(null);
+			final int forwardTableId = tableIdColumnName != null ? adTableDAO.retrieveTableId(forwardTableName) : -1;
+
+			// forward record ID => ID of the first current record which references it
+			final Map<Integer, Integer> forwardId2CurrentId = new LinkedHashMap<>();
+			for (final Map<String, Object> currentRow : currentRows)
+			{
+				if (tableIdColumnName != null && NumberUtils.asIntOrZero(currentRow.get(tableIdColumnName)) != forwardTableId)
+				{
+					continue;
 				}
+
+				final int forwardId = NumberUtils.asIntOrZero(currentRow.get(forwardColumnName));
+				if (forwardId <= 0)
+				{
+					continue;
+				}
+
+				final TableRecordReference forwardReference = TableRecordReference.of(forwardTableName, forwardId);
+				if (visitedRecords.contains(forwardReference) || result.contains(forwardReference))
+				{
+					continue; // avoid circles and also avoid loading it again
+				}
+
+				forwardId2CurrentId.putIfAbsent(forwardId, NumberUtils.asIntOrZero(currentRow.get(currentKeyColumnName)));
+			}
+			if (forwardId2CurrentId.isEmpty())
+			{
+				continue;
 			}
 
-			// Look BACKWARD, i.e. get all config-references that point to 'currentTableName'.
-			// Then, for each of them, load the records that reference 'currentRecord' via the respective config-reference.
-			//
-			final List<PartitionerConfigReference> backwardRefs = config.getReferences(currentTableName);
-			for (final PartitionerConfigReference backwardRef : backwardRefs)
+			// the referenced records were not yet added before. Load their DLM_Partition_IDs now.
+			final Map<Integer, Integer> forwardId2PartitionId = retrievePartitionIds(ctxAware, forwardTableName, forwardId2CurrentId.keySet());
+
+			for (final Map.Entry<Integer, Integer> entry : forwardId2CurrentId.entrySet())
 			{
-				if (backwardRef.isPartitionBoundary())
+				final int forwardId = entry.getKey();
+				final int currentRecordId = entry.getValue();
+
+				final Integer forwardPartitionId = forwardId2PartitionId.get(forwardId);
+				if (forwardPartitionId == null)
 				{
+					// this happens with our "minidump" where we left out the HUs
+					Loggables.withLogger(logger, Level.WARN).addLog(
+							"{}[{}] forward: the record from table={} which we attempted to load via {}.{}={} is NULL",
+							currentTableName, currentRecordId, forwardTableName, currentTableName, forwardColumnName, forwardId);
 					continue;
 				}
 
-				final PartitionerConfigLine backwardLine = backwardRef.getParent();
-				final String backwardTableName = backwardLine.getTableName();
-				final String backwardColumnName = backwardRef.getReferencingColumnName();
+				final TableRecordReference forwardReference = TableRecordReference.of(forwardTableName, forwardId);
+				logger.debug("{}[{}] forward: found {} via {}.{}; DLM_Partition_ID={}",
+						currentTableName, currentRecordId, forwardReference, currentTableName, forwardColumnName, forwardPartitionId);
 
-				// load all records which reference foreignRecord
-				// don't excluded records with DLM_Partition_ID>0 becase we might need to merge them into the partition we are currently building
-				final IQueryBuilder<IDLMAware> queryBuilder = Services.get(IQueryBL.class)
-						.createQueryBuilder(IDLMAware.class, backwardTableName, ctxAware)
-						.addEqualsFilter(backwardRef.getReferencingColumnName(), currentRecordId);
-
-				// if we have a case of AD_Table_ID/Record_ID,
-				// then we need to make sure to only load records whose AD_Table_ID references currentRecord
-				if (columnBL.isRecordIdColumnName(backwardColumnName))
+				final AddResult addResult = result.addReferencedRecord(TableRecordReference.of(currentTableName, currentRecordId), forwardReference, forwardPartitionId);
+				if (AddResult.STOP.equals(addResult))
 				{
-					// note that referencedTableColumnName = AD_Table_ID, in most cases
-					final String referencedTableColumnName = columnBL.getTableIdColumnName(backwardTableName, backwardRef.getReferencingColumnName())
-							.orElseThrow(Check.supplyEx("Table={} has no table column name for recordColumnName={}", backwardTableName, backwardColumnName));
+					Loggables.withLogger(logger, Level.WARN)
+							.addLog("The crawler was signaled to stop when it added ReferencedRecord={} to the result. Stopping now", forwardReference);
+					return AddResult.STOP;
+				}
+			}
+		}
+
+		return AddResult.ADDED_CONTINUE;
+	}
+
+	/**
+	 * Look BACKWARD, i.e. get all config-references that point to the current table.
+	 * Then, for each of them, load the records that reference the current records via the respective config-reference.
+	 */
+	private AddResult crawlBackward(
+			final PartitionConfig config,
+			final IContextAware ctxAware,
+			final String currentTableName,
+			final List<Integer> currentRecordIds,
+			final VisitedRecords visitedRecords,
+			final IIterateResult result)
+	{
+		final IColumnBL columnBL = Services.get(IColumnBL.class);
 
-					final int referencedTableID = adTableDAO.retrieveTableId(currentTableName);
+		final List<PartitionerConfigReference> backwardRefs = config.getReferences(currentTableName);
+		for (final PartitionerConfigReference backwardRef : backwardRefs)
+		{
+			if (backwardRef.isPartitionBoundary())
+			{
+				continue;
+			}
 
-					queryBuilder.addEqualsFilter(referencedTableColumnName, referencedTableID);
+			final PartitionerConfigLine backwardLine = backwardRef.getParent();
+			final String backwardTableName = backwardLine.getTableName();
+			final String backwardColumnName = backwardRef.getReferencingColumnName();
+			final String backwardKeyColumnName = columnBL.getSingleKeyColumn(backwardTableName);
+
+			// load all records which reference the current records
+			// don't excluded records with DLM_Partition_ID>0 becase we might need to merge them into the partition we are currently building
+			final IQueryBuilder<IDLMAware> queryBuilder = Services.get(IQueryBL.class)
+					.createQueryBuilder(IDLMAware.class, backwardTableName, ctxAware)
+					.addInArrayFilter(backwardColumnName, currentRecordIds);
+
+			// if we have a case of AD_Table_ID/Record_ID,
+			// then we need to make sure to only load records whose AD_Table_ID references the current table
+			if (columnBL.isRecordIdColumnName(backwardColumnName))
+			{
+				// note that referencedTableColumnName = AD_Table_ID, in most cases
+				final String referencedTableColumnName = columnBL.getTableIdColumnName(backwardTableName, backwardColumnName)
+						.orElseThrow(Check.supplyEx("Table={} has no table column name for recordColumnName={}", backwardTableName, backwardColumnName));
+
+				final int referencedTableID = Services.get(IADTableDAO.class).retrieveTableId(currentTableName);
+
+				queryBuilder.addEqualsFilter(referencedTableColumnName, referencedTableID);
+			}
+
+			final List<Map<String, Object>> backwardRows = queryBuilder
+					.orderBy(backwardKeyColumnName)
+					.create()
+					.listColumns(backwardKeyColumnName, backwardColumnName, IDLMAware.COLUMNNAME_DLM_Partition_ID);
+
+			for (final Map<String, Object> backwardRow : backwardRows)
+			{
+				final TableRecordReference backwardReference = TableRecordReference.of(backwardTableName, NumberUtils.asIntOrZero(backwardRow.get(backwardKeyColumnName)));
+				if (visitedRecords.contains(backwardReference))
+				{
+					continue;
 				}
 
-				// avoid loading the records we already added before.
-				// This doesn't work well. NOT IN is probably not very performant, see
-				// http://stackoverflow.com/questions/7125291/postgresql-not-in-versus-except-performance-difference-edited-2
-				// maybe it would become better when we do something along the lines of
-				// https://www.datadoghq.com/blog/100x-faster-postgres-performance-by-changing-1-line/
-				// at any rate it looks the postgresql jdbc driver "only" supports prepared statements with 65536 parameters,
-				// Solutions:
-				// 1. don't try to exclude anything and live with records beeing returned that we already saw earlier
-				// 2. store the partition more regularly and add some sort of negative left-join to the query
-				// {
-				// final String columnName = columnBL.getSingleKeyColumn(backwardTableName);
-				// final Collection<Integer> alreadyAddedBackwardIds = result.getIds(backwardTableName);
-				//
-				// queryBuilder.addNotInArrayFilter(columnName, alreadyAddedBackwardIds);
-				// }
-
-				// de.metas.dlm.partitioner.PartitionerTools.dumpHistogram(result)
-				final List<IDLMAware> backwardRecords = queryBuilder
-						.create()
-						.list();
+				final int currentRecordId = NumberUtils.asIntOrZero(backwardRow.get(backwardColumnName));
+				final int backwardPartitionId = NumberUtils.asIntOrZero(backwardRow.get(IDLMAware.COLUMNNAME_DLM_Partition_ID));
 
-				for (final IDLMAware backwardRecord : backwardRecords)
+				final AddResult addRecordResult = result.addReferencingRecord(backwardReference, TableRecordReference.of(currentTableName, currentRecordId), backwardPartitionId);
+				switch (addRecordResult)
 				{
-					InterfaceWrapperHelper.setTrxName(backwardRecord, ctxAware.getTrxName()); // we need this for MPinstance, because it explicitly ignores the trx it is loaded with in its constructor.
-
-					final ITableRecordReference backwardTableRecordReference = TableRecordReference.ofOrNull(backwardRecord);
-
-					final AddResult addRecordResult = result.addReferencingRecord(backwardTableRecordReference, currentReference, backwardRecord.getDLM_Partition_ID());
-
-					// should not happen because we excluded alreadyAddedBackwardIds from the loading query
-					// Check.errorUnless(recordWasNotYetAddedBefore, "{}[{}] backward: WAS ALREADY ADDED! - loaded referencing IDLMAware={} from table={} via {}.{}={}",
-					// currentTableName, currentRecordId, backwardRecord, backwardTableName, backwardTableName, backwardColumnName, currentRecordId);
-
-					switch (addRecordResult)
-					{
-						case ADDED_CONTINUE:
-							// log that the foreign record was not yet added before. We added it now
-							logger.debug("{}[{}] backward: loaded from table={} via {}.{}={}: referencing IDLMAware={}",
-									currentTableName, currentRecordId, backwardTableName, backwardTableName, backwardColumnName, currentRecordId, backwardRecord);
-
-							if (backwardRecord.getDLM_Partition_ID() > 0)
-							{
-								// log why we did not search further using the new found foreign record
-								logger.debug("{}[{}] backward: referenced IDLMAware={} already has DLM_Partition_ID={}",
-										currentTableName, currentRecordId, backwardRecord, backwardRecord.getDLM_Partition_ID());
-							}
-							break;
-						case NOT_ADDED_CONTINUE:
-							logger.trace("{}[{}] backward: ReferencingRecord={} was already added in a previous iteration. Returning", currentTableName, currentRecordId, backwardTableRecordReference);
-							break;
-						case STOP:
-							Loggables.addLog("The crawler was signaled to stop when it added ReferencingRecord={} the result. Stopping now", backwardTableRecordReference);
-							break mainLoop;
-						default:
-							Check.errorIf(true, "Unexpected result={}", addRecordResult);
-							break;
-					}
+					case ADDED_CONTINUE:
+						logger.debug("{}[{}] backward: found {} via {}.{}; DLM_Partition_ID={}",
+								currentTableName, currentRecordId, backwardReference, backwardTableName, backwardColumnName, backwardPartitionId);
+						break;
+					case NOT_ADDED_CONTINUE:
+						logger.trace("{}[{}] backward: ReferencingRecord={} was already added in a previous iteration", currentTableName, currentRecordId, backwardReference);
+						break;
+					case STOP:
+						Loggables.addLog("The crawler was signaled to stop when it added ReferencingRecord={} the result. Stopping now", backwardReference);
+						return AddResult.STOP;
+					default:
+						Check.errorIf(true, "Unexpected result={}", addRecordResult);
+						break;
 				}
 			}
 		}
 
-		logger.info("Found {} records via config.name={}", result.size(), config.getName());
-		storeIterateResult(config, result, ctxAware);
-		return result;
+		return AddResult.ADDED_CONTINUE;
+	}
+
+	private static Optional<String> getTableIdColumnName(final String tableName, final String columnName)
+	{
+		final IColumnBL columnBL = Services.get(IColumnBL.class);
+		if (!columnBL.isRecordIdColumnName(columnName))
+		{
+			return Optional.empty();
+		}
+
+		return Optional.of(columnBL.getTableIdColumnName(tableName, columnName)
+				.orElseThrow(Check.supplyEx("Table={} has no table column name for recordColumnName={}", tableName, columnName)));
+	}
+
+	/**
+	 * @return record ID to DLM_Partition_ID (0 if not set) of those records that exist
+	 */
+	/* package */ static Map<Integer, Integer> retrievePartitionIds(
+			final IContextAware ctxAware,
+			final String tableName,
+			final Collection<Integer> recordIds)
+	{
+		final String keyColumnName = Services.get(IColumnBL.class).getSingleKeyColumn(tableName);
+
+		final Map<Integer, Integer> recordId2PartitionId = new HashMap<>(recordIds.size());
+		for (final List<Integer> recordIdsChunk : Iterables.partition(recordIds, QUERY_CHUNK_SIZE))
+		{
+			Services.get(IQueryBL.class)
+					.createQueryBuilder(IDLMAware.class, tableName, ctxAware)
+					.addInArrayFilter(keyColumnName, recordIdsChunk)
+					.create()
+					.listColumns(keyColumnName, IDLMAware.COLUMNNAME_DLM_Partition_ID)
+					.forEach(row -> recordId2PartitionId.put(
+							NumberUtils.asIntOrZero(row.get(keyColumnName)),
+							NumberUtils.asIntOrZero(row.get(IDLMAware.COLUMNNAME_DLM_Partition_ID))));
+		}
+		return recordId2PartitionId;
 	}
 
 	private boolean shallStoreResult(final IIterateResult result)
@@ -429,39 +552,31 @@ public class RecordCrawlerService implements IRecordCrawlerService
 		// store and delete DLM_Partition_Workqueue records according to the records we processed and the records we newly added since the last time this method was called.
 		{
 			// delete DLM_Partition_Workqueue records we already processed
-			final Mutable<Integer> deletedSum = new Mutable<>(0);
-			result.getQueueRecordsToDelete()
-					.forEach(r -> {
-
-						// It's not a must to delete them 1-by-1, but we can't just create one chuck with unknow size!
-						// If we want to delete more than one at a time, we need to create chuncks of a fixed size that is less than 2^32.
-						final int delete = queryBL.createQueryBuilder(I_DLM_Partition_Workqueue.class, ctxAware)
-								.addEqualsFilter(I_DLM_Partition_Workqueue.COLUMN_DLM_Partition_Workqueue_ID, r.getDLM_Partition_Workqueue_ID())
-								.create()
-								.deleteDirectly();
-						deletedSum.setValue(deletedSum.getValue() + delete);
-					});
-			logger.debug("storeIterateResult: Deleted {} DLM_Partition_Workqueue records", deletedSum.getValue());
-
-			// persist DLM_Partition_Workqueue record we still need to process.
-			final Mutable<Integer> storedSum = new Mutable<>(0);
-			result.getQueueRecordsToStore()
-					.forEach(queueRecordsToStore -> {
-
-						final ITableRecordReference tableRecordReference = queueRecordsToStore.getTableRecordReference();
-
-						final I_DLM_Partition_Workqueue newQueueRecord = InterfaceWrapperHelper.newInstance(I_DLM_Partition_Workqueue.class);
-						newQueueRecord.setDLM_Partition_ID(storedPartition.getDLM_Partition_ID());
-						newQueueRecord.setAD_Table_ID(tableRecordReference.getAD_Table_ID());
-						newQueueRecord.setRecord_ID(tableRecordReference.getRecord_ID());
-
-						InterfaceWrapperHelper.save(newQueueRecord);
+			int deletedSum = 0;
+			for (final List<WorkQueue> queueRecordsToDelete : Lists.partition(result.getQueueRecordsToDelete(), QUERY_CHUNK_SIZE))
+			{
+				final ImmutableSet<Integer> workqueueIds = queueRecordsToDelete.stream()
+						.map(WorkQueue::getDLM_Partition_Workqueue_ID)
+						.collect(ImmutableSet.toImmutableSet());
 
-						queueRecordsToStore.setDLM_Partition_Workqueue_ID(newQueueRecord.getDLM_Partition_Workqueue_ID());
+				deletedSum += queryBL.createQueryBuilder(I_DLM_Partition_Workqueue.class, ctxAware)
+						.addInArrayFilter(I_DLM_Partition_Workqueue.COLUMN_DLM_Partition_Workqueue_ID, workqueueIds)
+						.create()
+						.deleteDirectly();
+			}
+			logger.debug("storeIterateResult: Deleted {} DLM_Partition_Workqueue records", deletedSum);
 
-						storedSum.setValue(storedSum.getValue() + 1);
-					});
-			logger.debug("storeIterateResult: Stored {} DLM_Partition_Workqueue records", storedSum.getValue());
+			// persist DLM_Partition_Workqueue record we still need to process.
+			// those which were already stored by a previous invocation are still in the queue, but need not be stored again
+			final List<WorkQueue> queueRecordsToStore = result.getQueueRecordsToStore()
+					.stream()
+					.filter(queueRecord -> queueRecord.getDLM_Partition_Workqueue_ID() <= 0)
+					.collect(ImmutableList.toImmutableList());
+			for (final List<WorkQueue> queueRecordsToStoreChunk : Lists.partition(queueRecordsToStore, QUERY_CHUNK_SIZE))
+			{
+				dlmService.storeWorkqueueRecords(ctxAware, storedPartition.getDLM_Partition_ID(), queueRecordsToStoreChunk);
+			}
+			logger.debug("storeIterateResult: Stored {} DLM_Partition_Workqueue records", queueRecordsToStore.size());
 		}
 
 		result.clearAfterPartitionStored(storedPartition);
@@ -477,4 +592,57 @@ public class RecordCrawlerService implements IRecordCrawlerService
 		return partitionDB.getPartitionSize();
 	}
 
+	/**
+	 * Up to {@link #QUERY_CHUNK_SIZE} IDs of records from the same table, which are crawled together.
+	 */
+	private static final class RecordIdsChunk
+	{
+		private final String tableName;
+		private final List<Integer> recordIds;
+
+		public RecordIdsChunk(final String tableName, final List<Integer> recordIds)
+		{
+			this.tableName = tableName;
+			this.recordIds = recordIds;
+		}
+
+		public String getTableName()
+		{
+			return tableName;
+		}
+
+		public List<Integer> getRecordIds()
+		{
+			return recordIds;
+		}
+	}
+
+	/**
+	 * The records which were already crawled, as one bitmap of record IDs per table. That's much more compact than a set of {@link ITableRecordReference}s.
+	 */
+	private static final class VisitedRecords
+	{
+		private final Map<String, BitSet> tableName2RecordIds = new HashMap<>();
+
+		/**
+		 * @return {@code true} if the given record was not yet visited
+		 */
+		public boolean add(final ITableRecordReference record)
+		{
+			final BitSet recordIds = tableName2RecordIds.computeIfAbsent(record.getTableName(), k -> new BitSet());
+			final int recordId = record.getRecord_ID();
+			if (recordIds.get(recordId))
+			{
+				return false;
+			}
+			recordIds.set(recordId);
+			return true;
+		}
+
+		public boolean contains(final ITableRecordReference record)
+		{
+			final BitSet recordIds = tableName2RecordIds.get(record.getTableName());
+			return recordIds != null && recordIds.get(record.getRecord_ID());
+		}
+	}
 }
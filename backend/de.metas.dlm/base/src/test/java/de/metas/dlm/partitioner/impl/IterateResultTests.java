@@ -119,4 +119,42 @@ public class IterateResultTests
 		assertThat(iterateResult.isQueueEmpty(), is(true));
 		assertThat(iterateResult.size(), is(2));
 	}
+
+	/**
+	 * Verifies that a record from the initial queue which is pushed back is neither deleted nor stored again, and that its partition is loaded.
+	 */
+	@Test
+	public void testPushBackToQueue()
+	{
+		final I_AD_Color color1 = InterfaceWrapperHelper.newInstance(I_AD_Color.class);
+		InterfaceWrapperHelper.save(color1);
+
+		final I_AD_Color color2 = InterfaceWrapperHelper.newInstance(I_AD_Color.class);
+		InterfaceWrapperHelper.save(color2);
+
+		final ITableRecordReference tableRecordReference1 = TableRecordReference.ofOrNull(color1);
+		final ITableRecordReference tableRecordReference2 = TableRecordReference.ofOrNull(color2);
+
+		final WorkQueue storedQueueItem = WorkQueue.of(tableRecordReference1);
+		storedQueueItem.setDLM_Partition_Workqueue_ID(23);
+
+		final Iterator<WorkQueue> initialQueue = ImmutableList.of(storedQueueItem).iterator();
+		final IContextAware ctxAware = PlainContextAware.newWithThreadInheritedTrx();
+
+		final CreatePartitionIterateResult iterateResult = new CreatePartitionIterateResult(initialQueue, ctxAware);
+		iterateResult.addReferencedRecord(null, tableRecordReference2, 0);
+
+		assertThat(iterateResult.nextFromQueue(), is(tableRecordReference1));
+		assertThat(iterateResult.getDlmPartitionId2Record().get(0).contains(tableRecordReference1), is(true));
+		assertThat(iterateResult.getQueueRecordsToDelete().size(), is(1));
+
+		iterateResult.pushBackToQueue(ImmutableList.of(tableRecordReference1));
+		assertThat(iterateResult.getQueueRecordsToDelete().isEmpty(), is(true));
+		assertThat(iterateResult.getQueueRecordsToStore().get(0), is(storedQueueItem));
+
+		assertThat(iterateResult.nextFromQueue(), is(tableRecordReference1));
+		assertThat(iterateResult.nextFromQueue(), is(tableRecordReference2));
+		assertThat(iterateResult.isQueueEmpty(), is(true));
+		assertThat(iterateResult.size(), is(2));
+	}
 }
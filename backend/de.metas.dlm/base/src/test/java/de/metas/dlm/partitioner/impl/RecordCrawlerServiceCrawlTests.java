@@ -0,0 +1,172 @@
+package de.metas.dlm.partitioner.impl;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.util.List;
+
+import org.adempiere.model.InterfaceWrapperHelper;
+import org.adempiere.model.PlainContextAware;
+import org.adempiere.test.AdempiereTestHelper;
+import org.adempiere.util.lang.ITableRecordReference;
+import org.adempiere.util.lang.impl.TableRecordReference;
+import org.compiere.model.I_C_Invoice;
+import org.compiere.model.I_C_Order;
+import org.compiere.model.I_C_Payment;
+import org.compiere.util.Env;
+import org.junit.Before;
+import org.junit.Test;
+
+import de.metas.dlm.IDLMService;
+import de.metas.dlm.impl.PlainDLMService;
+import de.metas.dlm.partitioner.IIterateResultHandler.AddResult;
+import de.metas.dlm.partitioner.config.PartitionConfig;
+import de.metas.dlm.partitioner.graph.FindPathIterateResult;
+import de.metas.util.Services;
+
+/*
+ * #%L
+ * metasfresh-dlm
+ * %%
+ * Copyright (C) 2020 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+public class RecordCrawlerServiceCrawlTests
+{
+	private final RecordCrawlerService recordCrawlerService = new RecordCrawlerService(); // this is the class under test
+	private final PlainContextAware ctxAware = PlainContextAware.newOutOfTrx(Env.getCtx());
+
+	private final PartitionConfig config = PartitionConfig.builder()
+			.line(I_C_Invoice.Table_Name)
+			.ref().setReferencedTableName(I_C_Order.Table_Name).setReferencingColumnName(I_C_Invoice.COLUMNNAME_C_Order_ID).endRef()
+			.line(I_C_Payment.Table_Name)
+			.ref().setReferencedTableName(I_C_Invoice.Table_Name).setReferencingColumnName(I_C_Payment.COLUMNNAME_C_Invoice_ID).endRef()
+			.endLine()
+			.build();
+
+	@Before
+	public void before()
+	{
+		AdempiereTestHelper.get().init();
+		Services.registerService(IDLMService.class, new PlainDLMService()); // stores the workqueue records with POJOs instead of a JDBC batch
+	}
+
+	/**
+	 * Scenario: one order with more invoices than fit into one query, each invoice having a payment.
+	 * The crawler shall find them all, level by level, and each of them only once.
+	 */
+	@Test
+	public void testCrawlManyBackwardReferences()
+	{
+		final int invoicesCount = 2500;
+
+		final I_C_Order order = InterfaceWrapperHelper.newInstance(I_C_Order.class);
+		InterfaceWrapperHelper.save(order);
+
+		I_C_Payment lastPayment = null;
+		for (int i = 0; i < invoicesCount; i++)
+		{
+			final I_C_Invoice invoice = InterfaceWrapperHelper.newInstance(I_C_Invoice.class);
+			invoice.setC_Order_ID(order.getC_Order_ID());
+			InterfaceWrapperHelper.save(invoice);
+
+			lastPayment = InterfaceWrapperHelper.newInstance(I_C_Payment.class);
+			lastPayment.setC_Invoice_ID(invoice.getC_Invoice_ID());
+			InterfaceWrapperHelper.save(lastPayment);
+		}
+
+		// the goal can't be reached, so everything is crawled
+		final FindPathIterateResult result = new FindPathIterateResult(
+				TableRecordReference.of(order),
+				TableRecordReference.of(I_C_Payment.Table_Name, lastPayment.getC_Payment_ID() + 1));
+
+		recordCrawlerService.crawl(config, ctxAware, result);
+
+		assertThat(result.isFoundGoalRecord(), is(false));
+		assertThat(result.size(), is(1 + invoicesCount + invoicesCount));
+	}
+
+	/**
+	 * Scenario: like {@link #testCrawlManyBackwardReferences()}, but a handler signals to stop as soon as the first payment is found.
+	 * The invoices whose payments were not yet looked for shall be back in the queue.
+	 */
+	@Test
+	public void testCrawlStopped()
+	{
+		final int invoicesCount = 2500;
+
+		final I_C_Order order = InterfaceWrapperHelper.newInstance(I_C_Order.class);
+		InterfaceWrapperHelper.save(order);
+
+		for (int i = 0; i < invoicesCount; i++)
+		{
+			final I_C_Invoice invoice = InterfaceWrapperHelper.newInstance(I_C_Invoice.class);
+			invoice.setC_Order_ID(order.getC_Order_ID());
+			InterfaceWrapperHelper.save(invoice);
+
+			final I_C_Payment payment = InterfaceWrapperHelper.newInstance(I_C_Payment.class);
+			payment.setC_Invoice_ID(invoice.getC_Invoice_ID());
+			InterfaceWrapperHelper.save(payment);
+		}
+
+		final FindPathIterateResult result = new FindPathIterateResult(
+				TableRecordReference.of(order),
+				TableRecordReference.of(I_C_Order.Table_Name, order.getC_Order_ID() + 1));
+		result.registerHandler((record, preliminaryResult) -> I_C_Payment.Table_Name.equals(record.getTableName()) ? AddResult.STOP : preliminaryResult);
+
+		recordCrawlerService.crawl(config, ctxAware, result);
+
+		assertThat(result.isHandlerSignaledToStop(), is(true));
+		assertThat(result.isQueueEmpty(), is(false));
+
+		// all invoices are still in the queue, in front of the payment(s) that were found
+		for (int i = 0; i < invoicesCount; i++)
+		{
+			assertThat(result.nextFromQueue().getTableName(), is(I_C_Invoice.Table_Name));
+		}
+		assertThat(result.nextFromQueue().getTableName(), is(I_C_Payment.Table_Name));
+	}
+
+	@Test
+	public void testCrawlFindPath()
+	{
+		final I_C_Order order = InterfaceWrapperHelper.newInstance(I_C_Order.class);
+		InterfaceWrapperHelper.save(order);
+
+		final I_C_Invoice invoice = InterfaceWrapperHelper.newInstance(I_C_Invoice.class);
+		invoice.setC_Order_ID(order.getC_Order_ID());
+		InterfaceWrapperHelper.save(invoice);
+
+		final I_C_Payment payment = InterfaceWrapperHelper.newInstance(I_C_Payment.class);
+		payment.setC_Invoice_ID(invoice.getC_Invoice_ID());
+		InterfaceWrapperHelper.save(payment);
+
+		// start from the payment, so we need to go forward twice
+		final FindPathIterateResult result = new FindPathIterateResult(
+				TableRecordReference.of(payment),
+				TableRecordReference.of(order));
+
+		recordCrawlerService.crawl(config, ctxAware, result);
+
+		assertThat(result.isFoundGoalRecord(), is(true));
+
+		final List<ITableRecordReference> path = result.getPath();
+		assertThat(path.size(), is(3));
+		assertThat(path.get(1), is(TableRecordReference.of(invoice)));
+	}
+}
@@ -18,6 +18,8 @@ import org.compiere.util.Env;
 import org.junit.Before;
 import org.junit.Test;
 
+import de.metas.dlm.IDLMService;
+import de.metas.dlm.impl.PlainDLMService;
 import de.metas.dlm.Partition.WorkQueue;
 import de.metas.dlm.model.IDLMAware;
 import de.metas.dlm.model.I_DLM_Partition;
@@ -61,6 +63,7 @@ public class RecordCrawlerServiceStoreITerateResultTests
 	public void before()
 	{
 		AdempiereTestHelper.get().init();
+		Services.registerService(IDLMService.class, new PlainDLMService()); // stores the workqueue records with POJOs instead of a JDBC batch
 
 		p1 = InterfaceWrapperHelper.newInstance(I_DLM_Partition.class);
 		InterfaceWrapperHelper.save(p1);
@@ -0,0 +1,111 @@
+package de.metas.document.archive.process;
+
+/*
+ * #%L
+ * de.metas.document.archive.base
+ * %%
+ * Copyright (C) 2020 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.adempiere.ad.trx.api.ITrx;
+import org.adempiere.archive.api.IArchiveStorageFactory;
+import org.adempiere.archive.api.IArchiveStorageFactory.AccessMode;
+import org.adempiere.archive.spi.impl.ContentAddressedArchiveStorage;
+import org.adempiere.exceptions.DBException;
+import org.adempiere.service.ISysConfigBL;
+import org.compiere.model.I_AD_Archive;
+import org.compiere.util.DB;
+
+import de.metas.process.JavaProcess;
+import de.metas.util.Services;
+import de.metas.util.time.SystemTime;
+
+/**
+ * Garbage collector of the {@link ContentAddressedArchiveStorage}, meant to be scheduled.
+ * <p>
+ * Mark: collects the content references of all {@link I_AD_Archive}s, of all tenants, because tenants might share the same archive path.<br>
+ * Sweep: deletes the current tenant's content files which were not marked, see {@link ContentAddressedArchiveStorage#deleteUnreferencedContentFiles(Set, Instant)}.
+ * <p>
+ * Files which were stored or reused less than {@link #SYSCONFIG_MinAgeHours} hours ago are kept, because their archives might not be committed yet.
+ */
+public class AD_Archive_DeleteUnreferencedContentFiles extends JavaProcess
+{
+	public static final String SYSCONFIG_MinAgeHours = "de.metas.document.archive.process.AD_Archive_DeleteUnreferencedContentFiles.MinAgeHours";
+	private static final int DEFAULT_MinAgeHours = 24;
+
+	private final ISysConfigBL sysConfigBL = Services.get(ISysConfigBL.class);
+	private final IArchiveStorageFactory archiveStorageFactory = Services.get(IArchiveStorageFactory.class);
+
+	@Override
+	protected String doIt()
+	{
+		final ContentAddressedArchiveStorage storage = (ContentAddressedArchiveStorage)archiveStorageFactory.getArchiveStorage(getCtx(), IArchiveStorageFactory.STORAGETYPE_ContentAddressed, AccessMode.SERVER);
+		final int minAgeHours = sysConfigBL.getIntValue(SYSCONFIG_MinAgeHours, DEFAULT_MinAgeHours, getClientID().getRepoId());
+
+		// NOTE: compute the threshold before marking, so that each file we might delete was already stored when we marked
+		final Instant notModifiedSince = SystemTime.asInstant().minus(Duration.ofHours(minAgeHours));
+
+		final Set<String> referencedHashes = retrieveReferencedContentHashes();
+		log.debug("Found {} referenced content files", referencedHashes.size());
+
+		final int countDeleted = storage.deleteUnreferencedContentFiles(referencedHashes, notModifiedSince);
+		return "@Deleted@ #" + countDeleted;
+	}
+
+	private static Set<String> retrieveReferencedContentHashes()
+	{
+		final String sql = "SELECT " + I_AD_Archive.COLUMNNAME_BinaryData
+				+ " FROM " + I_AD_Archive.Table_Name
+				+ " WHERE " + I_AD_Archive.COLUMNNAME_IsFileSystem + "='Y'";
+
+		final Set<String> referencedHashes = new HashSet<>();
+		PreparedStatement pstmt = null;
+		ResultSet rs = null;
+		try
+		{
+			pstmt = DB.prepareStatement(sql, ITrx.TRXNAME_ThreadInherited);
+			rs = pstmt.executeQuery();
+			while (rs.next())
+			{
+				final String hash = ContentAddressedArchiveStorage.extractContentHash(rs.getBytes(1));
+				if (hash != null)
+				{
+					referencedHashes.add(hash);
+				}
+			}
+		}
+		catch (final SQLException e)
+		{
+			throw new DBException(e, sql);
+		}
+		finally
+		{
+			DB.close(rs, pstmt);
+		}
+
+		return referencedHashes;
+	}
+}
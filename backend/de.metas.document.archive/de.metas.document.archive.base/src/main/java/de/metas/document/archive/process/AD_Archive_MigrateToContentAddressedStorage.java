@@ -0,0 +1,169 @@
+package de.metas.document.archive.process;
+
+/*
+ * #%L
+ * de.metas.document.archive.base
+ * %%
+ * Copyright (C) 2020 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+import static org.adempiere.model.InterfaceWrapperHelper.load;
+import static org.adempiere.model.InterfaceWrapperHelper.saveRecord;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.List;
+
+import org.adempiere.ad.dao.IQueryBL;
+import org.adempiere.ad.dao.impl.CompareQueryFilter.Operator;
+import org.adempiere.ad.trx.api.ITrxManager;
+import org.adempiere.archive.api.IArchiveStorageFactory;
+import org.adempiere.archive.api.IArchiveStorageFactory.AccessMode;
+import org.adempiere.archive.spi.IArchiveStorage;
+import org.adempiere.archive.spi.impl.ContentAddressedArchiveStorage;
+import org.adempiere.archive.spi.impl.FilesystemArchiveStorage;
+import org.adempiere.service.ISysConfigBL;
+import org.compiere.model.I_AD_Archive;
+
+import de.metas.process.JavaProcess;
+import de.metas.process.Param;
+import de.metas.util.Services;
+import lombok.NonNull;
+
+/**
+ * Moves the data of the current tenant's existing archives to the {@link ContentAddressedArchiveStorage}.
+ * <p>
+ * The archives are processed batch by batch (see {@link #SYSCONFIG_BatchSize}), each batch in its own transaction, and the data is streamed from the old storage to the new one.
+ * Archives which fail (e.g. because their file is missing) are logged and skipped, so the process can be started again later.
+ * <p>
+ * If the {@value #PARAM_DeleteOld} parameter is set, the files of the old filesystem storage are deleted, but only after the transaction which moved them was committed.
+ * Otherwise they are left in place.
+ */
+public class AD_Archive_MigrateToContentAddressedStorage extends JavaProcess
+{
+	public static final String SYSCONFIG_BatchSize = "de.metas.document.archive.process.AD_Archive_MigrateToContentAddressedStorage.BatchSize";
+	private static final int DEFAULT_BatchSize = 100;
+
+	private final IQueryBL queryBL = Services.get(IQueryBL.class);
+	private final ITrxManager trxManager = Services.get(ITrxManager.class);
+	private final ISysConfigBL sysConfigBL = Services.get(ISysConfigBL.class);
+	private final IArchiveStorageFactory archiveStorageFactory = Services.get(IArchiveStorageFactory.class);
+
+	private static final String PARAM_DeleteOld = "DeleteOld";
+	@Param(parameterName = PARAM_DeleteOld)
+	private boolean p_DeleteOld;
+
+	private int countMoved = 0;
+	private int countErrors = 0;
+	private int countDeletedFiles = 0;
+
+	@Override
+	protected String doIt()
+	{
+		final IArchiveStorage targetStorage = archiveStorageFactory.getArchiveStorage(getCtx(), IArchiveStorageFactory.STORAGETYPE_ContentAddressed, AccessMode.SERVER);
+		final int batchSize = sysConfigBL.getIntValue(SYSCONFIG_BatchSize, DEFAULT_BatchSize, getClientID().getRepoId());
+
+		int lastArchiveId = 0;
+		while (true)
+		{
+			final List<Integer> archiveIds = retrieveNextArchiveIds(lastArchiveId, batchSize);
+			if (archiveIds.isEmpty())
+			{
+				break;
+			}
+			lastArchiveId = archiveIds.get(archiveIds.size() - 1);
+
+			trxManager.runInNewTrx(() -> archiveIds.forEach(archiveId -> moveToStorage(archiveId, targetStorage)));
+			log.debug("Processed archives up to AD_Archive_ID={}; moved={}, errors={}", lastArchiveId, countMoved, countErrors);
+		}
+
+		return "@Updated@ #" + countMoved + ", @Deleted@ #" + countDeletedFiles + ", @Error@ #" + countErrors;
+	}
+
+	private List<Integer> retrieveNextArchiveIds(final int lastArchiveId, final int batchSize)
+	{
+		return queryBL.createQueryBuilder(I_AD_Archive.class)
+				.addEqualsFilter(I_AD_Archive.COLUMNNAME_AD_Client_ID, getClientID())
+				.addCompareFilter(I_AD_Archive.COLUMNNAME_AD_Archive_ID, Operator.GREATER, lastArchiveId)
+				.orderBy(I_AD_Archive.COLUMNNAME_AD_Archive_ID)
+				.setLimit(batchSize)
+				.create()
+				.listIds();
+	}
+
+	private void moveToStorage(final int archiveId, @NonNull final IArchiveStorage targetStorage)
+	{
+		final I_AD_Archive archive = load(archiveId, I_AD_Archive.class);
+		final IArchiveStorage sourceStorage = archiveStorageFactory.getArchiveStorage(archive);
+		if (sourceStorage instanceof ContentAddressedArchiveStorage)
+		{
+			return; // already moved
+		}
+
+		final File sourceFile;
+		try
+		{
+			// get the old file before its reference is replaced
+			sourceFile = p_DeleteOld && sourceStorage instanceof FilesystemArchiveStorage
+					? ((FilesystemArchiveStorage)sourceStorage).getFile(archive)
+					: null;
+
+			try (final InputStream data = sourceStorage.getBinaryDataAsStream(archive))
+			{
+				if (data == null)
+				{
+					return; // nothing to move
+				}
+				targetStorage.setBinaryDataFromStream(archive, data);
+			}
+		}
+		catch (final Exception e)
+		{
+			countErrors++;
+			addLog("Failed moving AD_Archive_ID={}: {}", archiveId, e.getLocalizedMessage());
+			log.warn("Failed moving {} to {}", archive, targetStorage, e);
+			return;
+		}
+
+		saveRecord(archive);
+		countMoved++;
+
+		if (sourceFile != null)
+		{
+			// if the transaction is rolled back, the archive still references the old file
+			trxManager.runAfterCommit(() -> deleteSourceFile(sourceFile));
+		}
+	}
+
+	private void deleteSourceFile(@NonNull final File sourceFile)
+	{
+		try
+		{
+			if (Files.deleteIfExists(sourceFile.toPath()))
+			{
+				countDeletedFiles++;
+			}
+		}
+		catch (final IOException e)
+		{
+			log.warn("Failed deleting {}; ignored", sourceFile, e);
+		}
+	}
+}
@@ -0,0 +1,24 @@
+-- 2020-10-18T10:12:31.402Z
+-- I forgot to set the DICTIONARY_ID_COMMENTS System Configurator
+INSERT INTO AD_Process (AccessLevel,AD_Client_ID,AD_Org_ID,AD_Process_ID,AllowProcessReRun,Classname,CopyFromProcess,Created,CreatedBy,Description,EntityType,IsActive,IsApplySecuritySettings,IsBetaFunctionality,IsDirectPrint,IsNotifyUserAfterExecution,IsOneInstanceOnly,IsReport,IsServerProcess,IsTranslateExcelHeaders,IsUseBPartnerLanguage,LockWaitTimeout,Name,RefreshAllAfterExecution,ShowHelp,Type,Updated,UpdatedBy,Value) VALUES ('3',0,0,584736,'Y','de.metas.document.archive.process.AD_Archive_MigrateToContentAddressedStorage','N',TO_TIMESTAMP('2020-10-18 12:12:31','YYYY-MM-DD HH24:MI:SS'),100,'Moves the data of all archives of the current tenant to the content addressed storage. The batch size can be set via SysConfig de.metas.document.archive.process.AD_Archive_MigrateToContentAddressedStorage.BatchSize.','de.metas.document.archive','Y','N','N','N','Y','Y','N','Y','Y','Y',0,'Move archives to content addressed storage','N','N','Java',TO_TIMESTAMP('2020-10-18 12:12:31','YYYY-MM-DD HH24:MI:SS'),100,'AD_Archive_MigrateToContentAddressedStorage')
+;
+
+-- 2020-10-18T10:12:31.405Z
+-- I forgot to set the DICTIONARY_ID_COMMENTS System Configurator
+INSERT INTO AD_Process_Trl (AD_Language,AD_Process_ID, Description,Help,Name, IsTranslated,AD_Client_ID,AD_Org_ID,Created,Createdby,Updated,UpdatedBy) SELECT l.AD_Language, t.AD_Process_ID, t.Description,t.Help,t.Name, 'N',t.AD_Client_ID,t.AD_Org_ID,t.Created,t.Createdby,t.Updated,t.UpdatedBy FROM AD_Language l, AD_Process t WHERE l.IsActive='Y'AND (l.IsSystemLanguage='Y' AND l.IsBaseLanguage='N') AND t.AD_Process_ID=584736 AND NOT EXISTS (SELECT 1 FROM AD_Process_Trl tt WHERE tt.AD_Language=l.AD_Language AND tt.AD_Process_ID=t.AD_Process_ID)
+;
+
+-- 2020-10-18T10:13:02.118Z
+-- I forgot to set the DICTIONARY_ID_COMMENTS System Configurator
+UPDATE AD_Process_Trl SET Name='Archive in inhaltsadressierten Speicher verschieben',Updated=TO_TIMESTAMP('2020-10-18 12:13:02','YYYY-MM-DD HH24:MI:SS'),UpdatedBy=100 WHERE AD_Language='de_CH' AND AD_Process_ID=584736
+;
+
+-- 2020-10-18T10:13:05.731Z
+-- I forgot to set the DICTIONARY_ID_COMMENTS System Configurator
+UPDATE AD_Process_Trl SET Name='Archive in inhaltsadressierten Speicher verschieben',Updated=TO_TIMESTAMP('2020-10-18 12:13:05','YYYY-MM-DD HH24:MI:SS'),UpdatedBy=100 WHERE AD_Language='de_DE' AND AD_Process_ID=584736
+;
+
+-- 2020-10-18T10:13:40.266Z
+-- I forgot to set the DICTIONARY_ID_COMMENTS System Configurator
+INSERT INTO AD_Table_Process (AD_Client_ID,AD_Org_ID,AD_Process_ID,AD_Table_ID,AD_Table_Process_ID,Created,CreatedBy,EntityType,IsActive,Updated,UpdatedBy,WEBUI_DocumentAction,WEBUI_IncludedTabTopAction,WEBUI_ViewAction,WEBUI_ViewQuickAction,WEBUI_ViewQuickAction_Default) VALUES (0,0,584736,754,540846,TO_TIMESTAMP('2020-10-18 12:13:40','YYYY-MM-DD HH24:MI:SS'),100,'de.metas.document.archive','Y',TO_TIMESTAMP('2020-10-18 12:13:40','YYYY-MM-DD HH24:MI:SS'),100,'N','N','Y','N','N')
+;
@@ -0,0 +1,39 @@
+-- 2020-10-18T14:02:11.517Z
+-- I forgot to set the DICTIONARY_ID_COMMENTS System Configurator
+INSERT INTO AD_Process_Para (AD_Client_ID,AD_Element_ID,AD_Org_ID,AD_Process_ID,AD_Process_Para_ID,AD_Reference_ID,ColumnName,Created,CreatedBy,DefaultValue,Description,EntityType,FieldLength,IsActive,IsAutocomplete,IsCentrallyMaintained,IsEncrypted,IsMandatory,IsRange,Name,SeqNo,Updated,UpdatedBy) VALUES (0,1669,0,584736,541852,20,'DeleteOld',TO_TIMESTAMP('2020-10-18 16:02:11','YYYY-MM-DD HH24:MI:SS'),100,'N','If set, the old filesystem files are deleted after the archives were moved and committed.','de.metas.document.archive',0,'Y','N','N','N','Y','N','Delete old files',10,TO_TIMESTAMP('2020-10-18 16:02:11','YYYY-MM-DD HH24:MI:SS'),100)
+;
+
+-- 2020-10-18T14:02:11.520Z
+-- I forgot to set the DICTIONARY_ID_COMMENTS System Configurator
+INSERT INTO AD_Process_Para_Trl (AD_Language,AD_Process_Para_ID, Description,Help,Name, IsTranslated,AD_Client_ID,AD_Org_ID,Created,Createdby,Updated,UpdatedBy) SELECT l.AD_Language, t.AD_Process_Para_ID, t.Description,t.Help,t.Name, 'N',t.AD_Client_ID,t.AD_Org_ID,t.Created,t.Createdby,t.Updated,t.UpdatedBy FROM AD_Language l, AD_Process_Para t WHERE l.IsActive='Y'AND (l.IsSystemLanguage='Y' AND l.IsBaseLanguage='N') AND t.AD_Process_Para_ID=541852 AND NOT EXISTS (SELECT 1 FROM AD_Process_Para_Trl tt WHERE tt.AD_Language=l.AD_Language AND tt.AD_Process_Para_ID=t.AD_Process_Para_ID)
+;
+
+-- 2020-10-18T14:02:34.108Z
+-- I forgot to set the DICTIONARY_ID_COMMENTS System Configurator
+UPDATE AD_Process_Para_Trl SET Name='Alte Dateien löschen',Updated=TO_TIMESTAMP('2020-10-18 16:02:34','YYYY-MM-DD HH24:MI:SS'),UpdatedBy=100 WHERE AD_Language='de_CH' AND AD_Process_Para_ID=541852
+;
+
+-- 2020-10-18T14:02:37.244Z
+-- I forgot to set the DICTIONARY_ID_COMMENTS System Configurator
+UPDATE AD_Process_Para_Trl SET Name='Alte Dateien löschen',Updated=TO_TIMESTAMP('2020-10-18 16:02:37','YYYY-MM-DD HH24:MI:SS'),UpdatedBy=100 WHERE AD_Language='de_DE' AND AD_Process_Para_ID=541852
+;
+
+-- 2020-10-18T14:05:52.861Z
+-- I forgot to set the DICTIONARY_ID_COMMENTS System Configurator
+INSERT INTO AD_Process (AccessLevel,AD_Client_ID,AD_Org_ID,AD_Process_ID,AllowProcessReRun,Classname,CopyFromProcess,Created,CreatedBy,Description,EntityType,IsActive,IsApplySecuritySettings,IsBetaFunctionality,IsDirectPrint,IsNotifyUserAfterExecution,IsOneInstanceOnly,IsReport,IsServerProcess,IsTranslateExcelHeaders,IsUseBPartnerLanguage,LockWaitTimeout,Name,RefreshAllAfterExecution,ShowHelp,Type,Updated,UpdatedBy,Value) VALUES ('3',0,0,584737,'Y','de.metas.document.archive.process.AD_Archive_DeleteUnreferencedContentFiles','N',TO_TIMESTAMP('2020-10-18 16:05:52','YYYY-MM-DD HH24:MI:SS'),100,'Deletes the content files of the current tenant''s content addressed archive storage which are not referenced by any archive anymore. Meant to be scheduled. Files which were stored less than de.metas.document.archive.process.AD_Archive_DeleteUnreferencedContentFiles.MinAgeHours (SysConfig, default 24) hours ago are kept.','de.metas.document.archive','Y','N','N','N','Y','Y','N','Y','Y','Y',0,'Delete unreferenced archive content files','N','N','Java',TO_TIMESTAMP('2020-10-18 16:05:52','YYYY-MM-DD HH24:MI:SS'),100,'AD_Archive_DeleteUnreferencedContentFiles')
+;
+
+-- 2020-10-18T14:05:52.864Z
+-- I forgot to set the DICTIONARY_ID_COMMENTS System Configurator
+INSERT INTO AD_Process_Trl (AD_Language,AD_Process_ID, Description,Help,Name, IsTranslated,AD_Client_ID,AD_Org_ID,Created,Createdby,Updated,UpdatedBy) SELECT l.AD_Language, t.AD_Process_ID, t.Description,t.Help,t.Name, 'N',t.AD_Client_ID,t.AD_Org_ID,t.Created,t.Createdby,t.Updated,t.UpdatedBy FROM AD_Language l, AD_Process t WHERE l.IsActive='Y'AND (l.IsSystemLanguage='Y' AND l.IsBaseLanguage='N') AND t.AD_Process_ID=584737 AND NOT EXISTS (SELECT 1 FROM AD_Process_Trl tt WHERE tt.AD_Language=l.AD_Language AND tt.AD_Process_ID=t.AD_Process_ID)
+;
+
+-- 2020-10-18T14:06:20.335Z
+-- I forgot to set the DICTIONARY_ID_COMMENTS System Configurator
+UPDATE AD_Process_Trl SET Name='Nicht referenzierte Archivdateien löschen',Updated=TO_TIMESTAMP('2020-10-18 16:06:20','YYYY-MM-DD HH24:MI:SS'),UpdatedBy=100 WHERE AD_Language='de_CH' AND AD_Process_ID=584737
+;
+
+-- 2020-10-18T14:06:23.902Z
+-- I forgot to set the DICTIONARY_ID_COMMENTS System Configurator
+UPDATE AD_Process_Trl SET Name='Nicht referenzierte Archivdateien löschen',Updated=TO_TIMESTAMP('2020-10-18 16:06:23','YYYY-MM-DD HH24:MI:SS'),UpdatedBy=100 WHERE AD_Language='de_DE' AND AD_Process_ID=584737
+;
@@ -3,6 +3,9 @@ package de.metas.elasticsearch.indexer;
 import java.util.Collection;
 import java.util.List;
 import java.util.Set;
+import java.util.function.IntConsumer;
+
+import javax.annotation.Nullable;
 
 import de.metas.elasticsearch.config.ESModelIndexerId;
 import de.metas.elasticsearch.config.ESModelIndexerProfile;
@@ -60,6 +63,14 @@ public interface IESModelIndexer
 	 */
 	IESIndexerResult addToIndex(ESModelIndexerDataSource dataSource);
 
+	/**
+	 * Add given models to ES index, using size bounded bulk requests.
+	 *
+	 * @param checkpointListener if not null, it's called with the ID of the last model of each bulk request which was successfully sent,
+	 *            in the same order as the models were provided by the data source
+	 */
+	IESIndexerResult addToIndex(ESModelIndexerDataSource dataSource, @Nullable IntConsumer checkpointListener);
+
 	IESIndexerResult removeFromIndexByIds(Collection<String> ids);
 
 	Set<String> getFullTextSearchFieldNames();
@@ -1,5 +1,6 @@
 package de.metas.elasticsearch.indexer;
 
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
 
@@ -7,8 +8,14 @@ import org.adempiere.ad.dao.ICompositeQueryFilter;
 import org.adempiere.ad.dao.IQueryBL;
 import org.adempiere.ad.dao.IQueryBuilder;
 import org.adempiere.ad.dao.IQueryFilter;
+import org.adempiere.ad.dao.impl.CompareQueryFilter.Operator;
 import org.adempiere.ad.dao.impl.TypedSqlQueryFilter;
+import org.adempiere.exceptions.AdempiereException;
+import org.adempiere.model.InterfaceWrapperHelper;
 import org.compiere.model.IQuery;
+import org.compiere.model.POInfo;
+
+import com.google.common.collect.AbstractIterator;
 
 import de.metas.elasticsearch.trigger.IESModelIndexerTrigger;
 import de.metas.util.Check;
@@ -38,17 +45,29 @@ import lombok.ToString;
  * <http://www.gnu.org/licenses/gpl-2.0.html>.
  * #L%
  */
+/**
+ * Loads the models to index from database.
+ * <p>
+ * If no ORDER BY clause is given, the models are loaded page by page, ordered by their key column,
+ * each page starting after the last ID of the previous page (keyset pagination).
+ * That is cheap for the database even for huge tables and also allows to resume an interrupted indexing (see {@link #startAfterModelId}).
+ * Tables without a single key column are loaded with one query, like when an ORDER BY clause is given.
+ */
 @ToString(exclude = "queryBL")
 public class SqlESModelIndexerDataSource implements ESModelIndexerDataSource
 {
 	// services
 	private final transient IQueryBL queryBL = Services.get(IQueryBL.class);
 
+	private static final int DEFAULT_PageSize = 1000;
+
 	private final String modelTableName;
 	private final List<IESModelIndexerTrigger> triggers;
 	private final String sqlWhereClause;
 	private final String sqlOrderByClause;
 	private final int limit;
+	private final int pageSize;
+	private final int startAfterModelId;
 
 	@Builder
 	private SqlESModelIndexerDataSource(
@@ -56,7 +75,9 @@ public class SqlESModelIndexerDataSource implements ESModelIndexerDataSource
 			@NonNull final List<IESModelIndexerTrigger> triggers,
 			final String sqlWhereClause,
 			final String sqlOrderByClause,
-			final int limit)
+			final int limit,
+			final int pageSize,
+			final int startAfterModelId)
 	{
 		Check.assumeNotEmpty(triggers, "triggers is not empty");
 
@@ -65,10 +86,51 @@ public class SqlESModelIndexerDataSource implements ESModelIndexerDataSource
 		this.sqlWhereClause = sqlWhereClause;
 		this.sqlOrderByClause = sqlOrderByClause;
 		this.limit = limit;
+		this.pageSize = pageSize > 0 ? pageSize : DEFAULT_PageSize;
+		this.startAfterModelId = startAfterModelId;
+
+		if (startAfterModelId > 0 && !Check.isEmpty(sqlOrderByClause, true))
+		{
+			throw new AdempiereException("startAfterModelId is not supported when having an ORDER BY clause")
+					.appendParametersToMessage()
+					.setParameter("modelTableName", modelTableName)
+					.setParameter("sqlOrderByClause", sqlOrderByClause);
+		}
 	}
 
 	@Override
 	public Iterator<Object> getModelsToIndex()
+	{
+		final String keyColumnName = getSingleKeyColumnNameOrNull();
+		if (Check.isEmpty(sqlOrderByClause, true) && keyColumnName != null)
+		{
+			return new KeysetPaginationIterator(keyColumnName);
+		}
+
+		final IQueryBuilder<Object> queryBuilder = createQueryBuilder();
+		if (limit > 0)
+		{
+			queryBuilder.setLimit(limit);
+		}
+
+		final IQuery<Object> query = queryBuilder.create();
+		if (!Check.isEmpty(sqlOrderByClause, true))
+		{
+			query.setOrderBy(queryBL.createSqlQueryOrderBy(sqlOrderByClause));
+		}
+
+		//
+		// Execute query
+		return query.iterate(Object.class);
+	}
+
+	private String getSingleKeyColumnNameOrNull()
+	{
+		final POInfo poInfo = POInfo.getPOInfo(modelTableName);
+		return poInfo != null && poInfo.isSingleKeyColumnName() ? poInfo.getKeyColumnName() : null;
+	}
+
+	private IQueryBuilder<Object> createQueryBuilder()
 	{
 		final ICompositeQueryFilter<Object> triggerFilters = queryBL.createCompositeQueryFilter(modelTableName)
 				.setDefaultAccept(true)
@@ -93,20 +155,64 @@ public class SqlESModelIndexerDataSource implements ESModelIndexerDataSource
 			queryBuilder.filter(TypedSqlQueryFilter.of(sqlWhereClause));
 		}
 
-		if (limit > 0)
+		return queryBuilder;
+	}
+
+	private final class KeysetPaginationIterator extends AbstractIterator<Object>
+	{
+		private final String keyColumnName;
+
+		private Iterator<Object> currentPage = Collections.emptyIterator();
+		private boolean lastPage = false;
+		private int lastModelId;
+		private int countLoaded = 0;
+
+		private KeysetPaginationIterator(@NonNull final String keyColumnName)
 		{
-			queryBuilder.setLimit(limit);
+			this.keyColumnName = keyColumnName;
+			lastModelId = startAfterModelId;
 		}
 
-		final IQuery<Object> query = queryBuilder.create();
-
-		if (!Check.isEmpty(sqlOrderByClause, true))
+		@Override
+		protected Object computeNext()
 		{
-			query.setOrderBy(queryBL.createSqlQueryOrderBy(sqlOrderByClause));
+			if (!currentPage.hasNext())
+			{
+				if (lastPage)
+				{
+					return endOfData();
+				}
+
+				currentPage = loadNextPage();
+				if (!currentPage.hasNext())
+				{
+					return endOfData();
+				}
+			}
+
+			final Object model = currentPage.next();
+			lastModelId = InterfaceWrapperHelper.getId(model);
+			return model;
 		}
 
-		//
-		// Execute query
-		return query.iterate(Object.class);
+		private Iterator<Object> loadNextPage()
+		{
+			final int pageLimit = limit > 0 ? Math.min(pageSize, limit - countLoaded) : pageSize;
+			if (pageLimit <= 0)
+			{
+				return Collections.emptyIterator();
+			}
+
+			final List<Object> page = createQueryBuilder()
+					.addCompareFilter(keyColumnName, Operator.GREATER, lastModelId)
+					.orderBy(keyColumnName)
+					.setLimit(pageLimit)
+					.create()
+					.list(Object.class);
+
+			countLoaded += page.size();
+			lastPage = page.size() < pageLimit;
+			return page.iterator();
+		}
 	}
 }
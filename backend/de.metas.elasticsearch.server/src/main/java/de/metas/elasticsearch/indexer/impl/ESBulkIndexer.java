@@ -0,0 +1,209 @@
+package de.metas.elasticsearch.indexer.impl;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.function.IntConsumer;
+
+import javax.annotation.Nullable;
+
+import org.adempiere.exceptions.AdempiereException;
+import org.slf4j.Logger;
+
+import com.google.common.collect.ImmutableList;
+
+import de.metas.elasticsearch.indexer.IESIndexerResult;
+import de.metas.logging.LogManager;
+import de.metas.util.Check;
+import lombok.Builder;
+import lombok.NonNull;
+import lombok.Value;
+
+/*
+ * #%L
+ * de.metas.elasticsearch
+ * %%
+ * Copyright (C) 2020 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+/**
+ * Collects documents into bulk requests which are bounded by number of documents and by size, and sends them asynchronously.
+ * <p>
+ * At most {@code maxConcurrentBulks} bulk requests are in flight; when that limit is reached, {@link #add(ESDocument)} waits for the oldest one to finish.
+ * That way the caller can build the next documents while the previous bulk is indexed, without piling up documents in memory.
+ * <p>
+ * Bulks are completed in the order in which they were sent, so the checkpoint listener is called with strictly increasing model IDs,
+ * given the documents were added ordered by model ID.
+ * The checkpoint is only advanced past bulks which were fully successful: once a bulk had failed documents, the checkpoint listener is not called anymore,
+ * so that a run which is resumed from the last checkpoint will index the failed documents again.
+ * <p>
+ * Not thread safe; to be used from one thread.
+ */
+/* package */final class ESBulkIndexer
+{
+	@FunctionalInterface
+	/* package */ interface ESBulkSender
+	{
+		CompletableFuture<IESIndexerResult> sendBulk(List<ESDocument> documents);
+	}
+
+	@Value
+	@Builder
+	/* package */ static class ESDocument
+	{
+		@NonNull
+		String id;
+
+		@NonNull
+		String json;
+
+		/** ID of the model from which this document was created; used for checkpoints */
+		int modelId;
+	}
+
+	private static final Logger logger = LogManager.getLogger(ESBulkIndexer.class);
+
+	private final ESBulkSender sender;
+	private final int maxDocumentsPerBulk;
+	private final long maxBytesPerBulk;
+	private final int maxConcurrentBulks;
+	private final IntConsumer checkpointListener;
+
+	private final List<ESDocument> currentBulk = new ArrayList<>();
+	private long currentBulkBytes = 0;
+	private final Deque<PendingBulk> pendingBulks = new ArrayDeque<>();
+	private final ESBulkIndexerResult result = new ESBulkIndexerResult();
+	private boolean checkpointStopped = false;
+
+	@Builder
+	private ESBulkIndexer(
+			@NonNull final ESBulkSender sender,
+			final int maxDocumentsPerBulk,
+			final long maxBytesPerBulk,
+			final int maxConcurrentBulks,
+			@Nullable final IntConsumer checkpointListener)
+	{
+		Check.assume(maxDocumentsPerBulk > 0, "maxDocumentsPerBulk > 0");
+		Check.assume(maxBytesPerBulk > 0, "maxBytesPerBulk > 0");
+		Check.assume(maxConcurrentBulks > 0, "maxConcurrentBulks > 0");
+
+		this.sender = sender;
+		this.maxDocumentsPerBulk = maxDocumentsPerBulk;
+		this.maxBytesPerBulk = maxBytesPerBulk;
+		this.maxConcurrentBulks = maxConcurrentBulks;
+		this.checkpointListener = checkpointListener;
+	}
+
+	public void add(@NonNull final ESDocument document)
+	{
+		currentBulk.add(document);
+		currentBulkBytes += document.getJson().length();
+
+		if (currentBulk.size() >= maxDocumentsPerBulk || currentBulkBytes >= maxBytesPerBulk)
+		{
+			sendCurrentBulk();
+		}
+	}
+
+	/**
+	 * Sends the remaining documents and waits until all bulk requests are done.
+	 *
+	 * @return the summed up result of all bulk requests
+	 */
+	public IESIndexerResult finish()
+	{
+		sendCurrentBulk();
+
+		while (!pendingBulks.isEmpty())
+		{
+			awaitOldestBulk();
+		}
+
+		return result.getTotalCount() > 0 ? result : IESIndexerResult.NULL;
+	}
+
+	private void sendCurrentBulk()
+	{
+		if (currentBulk.isEmpty())
+		{
+			return;
+		}
+
+		// backpressure: don't have more than maxConcurrentBulks requests in flight
+		while (pendingBulks.size() >= maxConcurrentBulks)
+		{
+			awaitOldestBulk();
+		}
+
+		final ImmutableList<ESDocument> documents = ImmutableList.copyOf(currentBulk);
+		currentBulk.clear();
+		currentBulkBytes = 0;
+
+		final int lastModelId = documents.get(documents.size() - 1).getModelId();
+		pendingBulks.add(new PendingBulk(sender.sendBulk(documents), documents.size(), lastModelId));
+		logger.debug("Sent bulk of {} documents (lastModelId={})", documents.size(), lastModelId);
+	}
+
+	private void awaitOldestBulk()
+	{
+		final PendingBulk bulk = pendingBulks.removeFirst();
+
+		final IESIndexerResult bulkResult;
+		try
+		{
+			bulkResult = bulk.getFuture().get();
+		}
+		catch (final InterruptedException ex)
+		{
+			Thread.currentThread().interrupt();
+			throw AdempiereException.wrapIfNeeded(ex);
+		}
+		catch (final ExecutionException ex)
+		{
+			throw new AdempiereException("Failed indexing " + bulk.getDocumentsCount() + " documents", ex.getCause())
+					.appendParametersToMessage()
+					.setParameter("lastModelId", bulk.getLastModelId())
+					.setParameter("indexedSoFar", result.getTotalCount());
+		}
+
+		result.add(bulkResult);
+
+		if (bulkResult.hasFailures() && !checkpointStopped)
+		{
+			checkpointStopped = true;
+			logger.warn("{} of {} documents failed in the bulk up to modelId={}. Not advancing the checkpoint anymore.",
+					bulkResult.getFailuresCount(), bulk.getDocumentsCount(), bulk.getLastModelId());
+		}
+
+		if (checkpointListener != null && !checkpointStopped && bulk.getLastModelId() > 0)
+		{
+			checkpointListener.accept(bulk.getLastModelId());
+		}
+	}
+
+	@Value
+	private static class PendingBulk
+	{
+		CompletableFuture<IESIndexerResult> future;
+		int documentsCount;
+		int lastModelId;
+	}
+}
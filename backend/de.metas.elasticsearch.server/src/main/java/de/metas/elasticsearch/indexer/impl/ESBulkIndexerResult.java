@@ -0,0 +1,123 @@
+package de.metas.elasticsearch.indexer.impl;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.elasticsearch.ElasticsearchException;
+
+import com.google.common.base.Joiner;
+import com.google.common.base.MoreObjects;
+
+import de.metas.elasticsearch.indexer.IESIndexerResult;
+import lombok.NonNull;
+
+
+/*
+ * #%L
+ * de.metas.elasticsearch
+ * %%
+ * Copyright (C) 2020 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+/**
+ * Sums up the results of several bulk requests.
+ */
+/* package */final class ESBulkIndexerResult implements IESIndexerResult
+{
+	private static final int MAX_FAILURE_MESSAGES = 10;
+
+	private int bulksCount = 0;
+	private int totalCount = 0;
+	private int failuresCount = 0;
+	private long durationInMillis = 0;
+	private final List<String> failureMessages = new ArrayList<>();
+
+	public void add(@NonNull final IESIndexerResult bulkResult)
+	{
+		bulksCount++;
+		totalCount += bulkResult.getTotalCount();
+		failuresCount += bulkResult.getFailuresCount();
+		durationInMillis += bulkResult.getDurationInMillis();
+
+		if (bulkResult.hasFailures() && failureMessages.size() < MAX_FAILURE_MESSAGES)
+		{
+			failureMessages.add(bulkResult.getFailureMessage());
+		}
+	}
+
+	@Override
+	public String getSummary()
+	{
+		return MoreObjects.toStringHelper(this)
+				.omitNullValues()
+				.add("TotalCount", getTotalCount())
+				.add("FailuresCount", getFailuresCount())
+				.add("BulksCount", bulksCount)
+				.add("ErrorMsg", hasFailures() ? getFailureMessage() : null)
+				.add("Duration", durationInMillis + "ms")
+				.toString();
+	}
+
+	@Override
+	public long getDurationInMillis()
+	{
+		return durationInMillis;
+	}
+
+	@Override
+	public int getTotalCount()
+	{
+		return totalCount;
+	}
+
+	@Override
+	public int getOKCount()
+	{
+		return totalCount - failuresCount;
+	}
+
+	@Override
+	public int getFailuresCount()
+	{
+		return failuresCount;
+	}
+
+	@Override
+	public boolean hasFailures()
+	{
+		return failuresCount > 0;
+	}
+
+	/**
+	 * @return the failure messages of the first few failed bulks
+	 */
+	@Override
+	public String getFailureMessage()
+	{
+		return Joiner.on("\n").join(failureMessages);
+	}
+
+	@Override
+	public void throwExceptionIfAnyFailure()
+	{
+		if (hasFailures())
+		{
+			throw new ElasticsearchException(getFailureMessage());
+		}
+	}
+}
@@ -5,6 +5,8 @@ import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.IntConsumer;
 import java.util.stream.Stream;
 
 import javax.annotation.Nullable;
@@ -13,12 +15,13 @@ import javax.annotation.concurrent.Immutable;
 import org.adempiere.ad.dao.IQueryBL;
 import org.adempiere.exceptions.AdempiereException;
 import org.adempiere.model.InterfaceWrapperHelper;
+import org.adempiere.service.ISysConfigBL;
+import org.elasticsearch.action.ActionListener;
 import org.elasticsearch.action.admin.indices.create.CreateIndexRequestBuilder;
 import org.elasticsearch.action.admin.indices.mapping.put.PutMappingResponse;
 import org.elasticsearch.action.bulk.BulkRequestBuilder;
 import org.elasticsearch.action.bulk.BulkResponse;
 import org.elasticsearch.action.delete.DeleteRequestBuilder;
-import org.elasticsearch.action.index.IndexRequestBuilder;
 import org.elasticsearch.client.Client;
 import org.elasticsearch.client.IndicesAdminClient;
 import org.elasticsearch.common.xcontent.XContentBuilder;
@@ -36,6 +39,7 @@ import de.metas.elasticsearch.denormalizers.IESModelDenormalizer;
 import de.metas.elasticsearch.indexer.ESModelIndexerDataSource;
 import de.metas.elasticsearch.indexer.IESIndexerResult;
 import de.metas.elasticsearch.indexer.IESModelIndexer;
+import de.metas.elasticsearch.indexer.impl.ESBulkIndexer.ESDocument;
 import de.metas.elasticsearch.trigger.IESModelIndexerTrigger;
 import de.metas.elasticsearch.types.ESDataType;
 import de.metas.elasticsearch.types.ESIndexType;
@@ -76,6 +80,11 @@ public final class ESModelIndexer implements IESModelIndexer
 {
 	// services
 	private static final transient Logger logger = LogManager.getLogger(ESModelIndexer.class);
+
+	private static final String SYSCONFIG_BulkMaxDocuments = "de.metas.elasticsearch.indexer.impl.ESModelIndexer.Bulk.MaxDocuments";
+	private static final String SYSCONFIG_BulkMaxBytes = "de.metas.elasticsearch.indexer.impl.ESModelIndexer.Bulk.MaxBytes";
+	private static final String SYSCONFIG_BulkMaxConcurrentRequests = "de.metas.elasticsearch.indexer.impl.ESModelIndexer.Bulk.MaxConcurrentRequests";
+
 	private final IQueryBL queryBL = Services.get(IQueryBL.class);
 	private final Client elasticsearchClient;
 	private final ObjectMapper jsonObjectMapper;
@@ -362,20 +371,7 @@ public final class ESModelIndexer implements IESModelIndexer
 		}
 	}
 
-	private Stream<IndexRequestBuilder> createIndexRequestsAndStream(final Object model)
-	{
-		// NOTE: for debugging purposes we are checking it each time
-		// createUpdateIndex();
-
-		//
-		// model (parent) index requests
-		final Stream<IndexRequestBuilder> result = Stream.of(model)
-				.map(this::createIndexRequestForModel);
-
-		return result;
-	}
-
-	private IndexRequestBuilder createIndexRequestForModel(final Object model)
+	private ESDocument createDocumentForModel(final Object model)
 	{
 		final IESModelDenormalizer modelDenormalizer = getModelDenormalizer();
 
@@ -395,9 +391,11 @@ public final class ESModelIndexer implements IESModelIndexer
 
 			esDocumentJson = jsonObjectMapper.writeValueAsString(esDocument);
 
-			final IndexRequestBuilder indexRequestBuilder = elasticsearchClient.prepareIndex(getIndexName(), getIndexType(), esDocumentId);
-			indexRequestBuilder.setSource(esDocumentJson);
-			return indexRequestBuilder;
+			return ESDocument.builder()
+					.id(esDocumentId)
+					.json(esDocumentJson)
+					.modelId(InterfaceWrapperHelper.getId(model))
+					.build();
 		}
 		catch (final Exception e)
 		{
@@ -431,21 +429,28 @@ public final class ESModelIndexer implements IESModelIndexer
 	@Override
 	public IESIndexerResult addToIndex(@NonNull final ESModelIndexerDataSource dataSource)
 	{
-		final BulkRequestBuilder bulkRequest = elasticsearchClient.prepareBulk();
+		return addToIndex(dataSource, null);
+	}
+
+	@Override
+	public IESIndexerResult addToIndex(@NonNull final ESModelIndexerDataSource dataSource, @Nullable final IntConsumer checkpointListener)
+	{
+		final ISysConfigBL sysConfigBL = Services.get(ISysConfigBL.class);
+		final ESBulkIndexer bulkIndexer = ESBulkIndexer.builder()
+				.sender(this::sendBulk)
+				.maxDocumentsPerBulk(sysConfigBL.getIntValue(SYSCONFIG_BulkMaxDocuments, 500))
+				.maxBytesPerBulk(sysConfigBL.getIntValue(SYSCONFIG_BulkMaxBytes, 5 * 1024 * 1024))
+				.maxConcurrentBulks(sysConfigBL.getIntValue(SYSCONFIG_BulkMaxConcurrentRequests, 1))
+				.checkpointListener(checkpointListener)
+				.build();
 
 		try
 		{
 			IteratorUtils.stream(dataSource.getModelsToIndex())
-					.flatMap(this::createIndexRequestsAndStream)
-					.forEach(bulkRequest::add);
-
-			if (bulkRequest.numberOfActions() <= 0)
-			{
-				return IESIndexerResult.NULL;
-			}
+					.map(this::createDocumentForModel)
+					.forEach(bulkIndexer::add);
 
-			final BulkResponse bulkResponse = bulkRequest.execute().actionGet();
-			final IESIndexerResult esResponse = ESIndexerResult.of(bulkResponse);
+			final IESIndexerResult esResponse = bulkIndexer.finish();
 
 			logger.debug("Added {}", esResponse);
 			return esResponse;
@@ -456,13 +461,39 @@ public final class ESModelIndexer implements IESModelIndexer
 		}
 		catch (final Exception ex)
 		{
-			final int count = bulkRequest.numberOfActions();
-			final String errmsg = "Failed indexing " + count + " models because: " + ex.getLocalizedMessage()
+			final String errmsg = "Failed indexing models because: " + ex.getLocalizedMessage()
 					+ "\n Indexer: " + this;
 			throw new AdempiereException(errmsg, ex);
 		}
 	}
 
+	private CompletableFuture<IESIndexerResult> sendBulk(final List<ESDocument> documents)
+	{
+		final BulkRequestBuilder bulkRequest = elasticsearchClient.prepareBulk();
+		for (final ESDocument document : documents)
+		{
+			bulkRequest.add(elasticsearchClient.prepareIndex(getIndexName(), getIndexType(), document.getId())
+					.setSource(document.getJson()));
+		}
+
+		final CompletableFuture<IESIndexerResult> future = new CompletableFuture<>();
+		bulkRequest.execute(new ActionListener<BulkResponse>()
+		{
+			@Override
+			public void onResponse(final BulkResponse bulkResponse)
+			{
+				future.complete(ESIndexerResult.of(bulkResponse));
+			}
+
+			@Override
+			public void onFailure(final Throwable ex)
+			{
+				future.completeExceptionally(ex);
+			}
+		});
+		return future;
+	}
+
 	@Override
 	public IESIndexerResult removeFromIndexByIds(final Collection<String> ids)
 	{
@@ -3,11 +3,14 @@ package de.metas.elasticsearch.process;
 import java.util.Collection;
 import java.util.List;
 
+import org.adempiere.ad.trx.api.ITrx;
 import org.adempiere.exceptions.AdempiereException;
 import org.compiere.SpringContextHolder;
+import org.compiere.util.DB;
 
 import com.google.common.base.Stopwatch;
 
+import de.metas.elasticsearch.config.ESModelIndexerId;
 import de.metas.elasticsearch.indexer.ESModelIndexerDataSources;
 import de.metas.elasticsearch.indexer.IESIndexerResult;
 import de.metas.elasticsearch.indexer.IESModelIndexer;
@@ -16,6 +19,8 @@ import de.metas.elasticsearch.indexer.SqlESModelIndexerDataSource;
 import de.metas.elasticsearch.trigger.IESModelIndexerTrigger;
 import de.metas.process.JavaProcess;
 import de.metas.process.Param;
+import de.metas.process.RunOutOfTrx;
+import de.metas.util.Check;
 import de.metas.util.Services;
 
 /*
@@ -40,11 +45,23 @@ import de.metas.util.Services;
  * #L%
  */
 
+/**
+ * Indexes all models of the given model indexers.
+ * <p>
+ * If neither a where clause, nor an order by clause or a limit were given, the process runs in backfill mode:
+ * after each fully successful bulk request, the ID of the last indexed model is saved as checkpoint (see {@link #TABLENAME_BackfillCheckpoint}),
+ * so if the process is interrupted, the next run will resume from there instead of starting over.
+ * The checkpoint is reset when the process completes without failures or when the index is deleted.
+ * If some documents failed, the checkpoint stays before the first failed one, so the next run indexes them again.
+ */
 public abstract class AbstractModelIndexerProcess extends JavaProcess
 {
 	// services
 	protected final transient IESModelIndexersRegistry modelIndexingService = Services.get(IESModelIndexersRegistry.class);
 
+	/** Technical table (not in AD) with one checkpoint per model indexer; not using AD_SysConfig because each change of it resets the cache in the whole cluster. */
+	private static final String TABLENAME_BackfillCheckpoint = "ES_Index_Backfill_Checkpoint";
+
 	@Param(parameterName = "WhereClause")
 	private String p_WhereClause = null;
 
@@ -70,6 +87,7 @@ public abstract class AbstractModelIndexerProcess extends JavaProcess
 	}
 
 	@Override
+	@RunOutOfTrx // we are only reading; also the backfill checkpoints are saved while running
 	protected final String doIt()
 	{
 		final Collection<IESModelIndexer> modelIndexers = getModelIndexers();
@@ -92,6 +110,7 @@ public abstract class AbstractModelIndexerProcess extends JavaProcess
 		if (p_DeleteIndex)
 		{
 			modelIndexer.deleteIndex();
+			setBackfillCheckpoint(modelIndexer.getId(), 0);
 			addLog("{} - Index deleted", modelIndexer.getId());
 		}
 
@@ -108,18 +127,71 @@ public abstract class AbstractModelIndexerProcess extends JavaProcess
 			return;
 		}
 
+		final boolean backfill = isBackfill();
+		final int startAfterModelId = backfill ? getBackfillCheckpoint(modelIndexer.getId()) : 0;
+		if (startAfterModelId > 0)
+		{
+			addLog("{} - Resuming after {}_ID={}", modelIndexer.getId(), modelIndexer.getModelTableName(), startAfterModelId);
+		}
+
 		final SqlESModelIndexerDataSource modelsToIndex = ESModelIndexerDataSources.newSqlESModelIndexerDataSource()
 				.modelTableName(modelIndexer.getModelTableName())
 				.triggers(triggers)
 				.sqlWhereClause(p_WhereClause)
 				.sqlOrderByClause(p_OrderByClause)
 				.limit(p_Limit)
+				.startAfterModelId(startAfterModelId)
 				.build();
-		final IESIndexerResult result = modelIndexer.addToIndex(modelsToIndex);
+		final IESIndexerResult result = modelIndexer.addToIndex(
+				modelsToIndex,
+				backfill ? lastModelId -> setBackfillCheckpoint(modelIndexer.getId(), lastModelId) : null);
 
 		countAll += result.getTotalCount();
 		countErrors += result.getFailuresCount();
 
+		if (backfill && !result.hasFailures())
+		{
+			setBackfillCheckpoint(modelIndexer.getId(), 0);
+		}
+		else if (backfill)
+		{
+			addLog("{} - Some documents failed; the next run will resume after {}_ID={}", modelIndexer.getId(), modelIndexer.getModelTableName(), getBackfillCheckpoint(modelIndexer.getId()));
+		}
+
 		addLog("{} - Indexed: {}", modelIndexer.getId(), result.getSummary());
 	}
+
+	private boolean isBackfill()
+	{
+		return Check.isEmpty(p_WhereClause, true)
+				&& Check.isEmpty(p_OrderByClause, true)
+				&& p_Limit <= 0;
+	}
+
+	private int getBackfillCheckpoint(final ESModelIndexerId modelIndexerId)
+	{
+		final int lastModelId = DB.getSQLValueEx(
+				ITrx.TRXNAME_None,
+				"SELECT LastModel_ID FROM " + TABLENAME_BackfillCheckpoint + " WHERE ES_ModelIndexer=?",
+				modelIndexerId.toJson());
+		return Math.max(lastModelId, 0);
+	}
+
+	private void setBackfillCheckpoint(final ESModelIndexerId modelIndexerId, final int lastModelId)
+	{
+		if (lastModelId <= 0)
+		{
+			DB.executeUpdateEx(
+					"DELETE FROM " + TABLENAME_BackfillCheckpoint + " WHERE ES_ModelIndexer=?",
+					new Object[] { modelIndexerId.toJson() },
+					ITrx.TRXNAME_None);
+			return;
+		}
+
+		DB.executeUpdateEx(
+				"INSERT INTO " + TABLENAME_BackfillCheckpoint + " (ES_ModelIndexer, LastModel_ID, Updated) VALUES (?, ?, now())"
+						+ " ON CONFLICT (ES_ModelIndexer) DO UPDATE SET LastModel_ID=EXCLUDED.LastModel_ID, Updated=EXCLUDED.Updated",
+				new Object[] { modelIndexerId.toJson(), lastModelId },
+				ITrx.TRXNAME_None);
+	}
 }
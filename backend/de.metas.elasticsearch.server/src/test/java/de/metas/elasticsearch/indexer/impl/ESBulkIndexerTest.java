@@ -0,0 +1,310 @@
+package de.metas.elasticsearch.indexer.impl;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.adempiere.exceptions.AdempiereException;
+import org.elasticsearch.action.bulk.BulkItemResponse;
+import org.elasticsearch.action.bulk.BulkResponse;
+import org.elasticsearch.action.index.IndexResponse;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import de.metas.elasticsearch.indexer.IESIndexerResult;
+import de.metas.elasticsearch.indexer.impl.ESBulkIndexer.ESBulkSender;
+import de.metas.elasticsearch.indexer.impl.ESBulkIndexer.ESDocument;
+
+/*
+ * #%L
+ * de.metas.elasticsearch.server
+ * %%
+ * Copyright (C) 2020 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+public class ESBulkIndexerTest
+{
+	private InMemoryBulkSender sender;
+	private List<Integer> checkpoints;
+
+	@Before
+	public void init()
+	{
+		sender = new InMemoryBulkSender();
+		checkpoints = new ArrayList<>();
+	}
+
+	@After
+	public void destroy()
+	{
+		sender.shutdown();
+	}
+
+	private static ESDocument document(final int modelId, final int jsonLength)
+	{
+		final StringBuilder json = new StringBuilder("{\"id\":");
+		json.append(modelId);
+		while (json.length() < jsonLength - 1)
+		{
+			json.append(' ');
+		}
+		json.append('}');
+
+		return ESDocument.builder()
+				.id(String.valueOf(modelId))
+				.json(json.toString())
+				.modelId(modelId)
+				.build();
+	}
+
+	@Test
+	public void allDocumentsAreIndexed_BulksBoundedByDocumentsCount()
+	{
+		final ESBulkIndexer bulkIndexer = ESBulkIndexer.builder()
+				.sender(sender)
+				.maxDocumentsPerBulk(10)
+				.maxBytesPerBulk(Long.MAX_VALUE)
+				.maxConcurrentBulks(3)
+				.checkpointListener(checkpoints::add)
+				.build();
+
+		for (int modelId = 1; modelId <= 95; modelId++)
+		{
+			bulkIndexer.add(document(modelId, 20));
+		}
+		final IESIndexerResult result = bulkIndexer.finish();
+
+		Assert.assertEquals(95, result.getTotalCount());
+		Assert.assertEquals(0, result.getFailuresCount());
+		Assert.assertEquals(95, sender.getIndexedDocuments().size());
+		Assert.assertEquals(10, sender.getBulksCount());
+		Assert.assertTrue("maxBulkSize=" + sender.getMaxBulkSize(), sender.getMaxBulkSize() <= 10);
+		Assert.assertTrue("maxInFlight=" + sender.getMaxInFlight(), sender.getMaxInFlight() <= 3);
+
+		Assert.assertEquals(10, checkpoints.size());
+		Assert.assertEquals(Integer.valueOf(10), checkpoints.get(0));
+		Assert.assertEquals(Integer.valueOf(95), checkpoints.get(checkpoints.size() - 1));
+		for (int i = 1; i < checkpoints.size(); i++)
+		{
+			Assert.assertTrue("checkpoints are increasing: " + checkpoints, checkpoints.get(i) > checkpoints.get(i - 1));
+		}
+	}
+
+	@Test
+	public void bulksBoundedByBytes()
+	{
+		final ESBulkIndexer bulkIndexer = ESBulkIndexer.builder()
+				.sender(sender)
+				.maxDocumentsPerBulk(1000)
+				.maxBytesPerBulk(1000)
+				.maxConcurrentBulks(1)
+				.build();
+
+		for (int modelId = 1; modelId <= 50; modelId++)
+		{
+			bulkIndexer.add(document(modelId, 100));
+		}
+		final IESIndexerResult result = bulkIndexer.finish();
+
+		Assert.assertEquals(50, result.getTotalCount());
+		Assert.assertEquals(5, sender.getBulksCount());
+		Assert.assertEquals(10, sender.getMaxBulkSize());
+		Assert.assertEquals(1, sender.getMaxInFlight());
+	}
+
+	@Test
+	public void nothingToIndex()
+	{
+		final ESBulkIndexer bulkIndexer = ESBulkIndexer.builder()
+				.sender(sender)
+				.maxDocumentsPerBulk(10)
+				.maxBytesPerBulk(1000)
+				.maxConcurrentBulks(1)
+				.build();
+
+		Assert.assertSame(IESIndexerResult.NULL, bulkIndexer.finish());
+		Assert.assertEquals(0, sender.getBulksCount());
+	}
+
+	@Test
+	public void failedBulk_checkpointStopsBeforeIt()
+	{
+		sender.failBulkContainingModelId(25);
+
+		final ESBulkIndexer bulkIndexer = ESBulkIndexer.builder()
+				.sender(sender)
+				.maxDocumentsPerBulk(10)
+				.maxBytesPerBulk(Long.MAX_VALUE)
+				.maxConcurrentBulks(1)
+				.checkpointListener(checkpoints::add)
+				.build();
+
+		try
+		{
+			for (int modelId = 1; modelId <= 50; modelId++)
+			{
+				bulkIndexer.add(document(modelId, 20));
+			}
+			bulkIndexer.finish();
+			Assert.fail("Exception was expected");
+		}
+		catch (final AdempiereException ex)
+		{
+			// expected
+		}
+
+		Assert.assertEquals(2, checkpoints.size());
+		Assert.assertEquals(Integer.valueOf(20), checkpoints.get(1));
+	}
+
+	@Test
+	public void bulkWithFailedDocument_checkpointStopsBeforeIt()
+	{
+		sender.failDocumentWithModelId(25);
+
+		final ESBulkIndexer bulkIndexer = ESBulkIndexer.builder()
+				.sender(sender)
+				.maxDocumentsPerBulk(10)
+				.maxBytesPerBulk(Long.MAX_VALUE)
+				.maxConcurrentBulks(2)
+				.checkpointListener(checkpoints::add)
+				.build();
+
+		for (int modelId = 1; modelId <= 50; modelId++)
+		{
+			bulkIndexer.add(document(modelId, 20));
+		}
+		final IESIndexerResult result = bulkIndexer.finish();
+
+		Assert.assertEquals(50, result.getTotalCount());
+		Assert.assertEquals(1, result.getFailuresCount());
+		Assert.assertEquals(49, sender.getIndexedDocuments().size());
+
+		// the bulks after the failed one were indexed, but the checkpoint was not advanced past the failed document
+		Assert.assertEquals(2, checkpoints.size());
+		Assert.assertEquals(Integer.valueOf(20), checkpoints.get(1));
+	}
+
+	/**
+	 * Stand-in for an Elasticsearch server: keeps the indexed documents in memory and answers the bulk requests asynchronously.
+	 */
+	private static class InMemoryBulkSender implements ESBulkSender
+	{
+		private final ExecutorService executor = Executors.newFixedThreadPool(4);
+		private final Map<String, String> indexedDocuments = new ConcurrentHashMap<>();
+		private final AtomicInteger bulksCount = new AtomicInteger();
+		private final AtomicInteger maxBulkSize = new AtomicInteger();
+		private final AtomicInteger inFlight = new AtomicInteger();
+		private final AtomicInteger maxInFlight = new AtomicInteger();
+		private int failingModelId = -1;
+		private int failingDocumentModelId = -1;
+
+		public void failBulkContainingModelId(final int modelId)
+		{
+			failingModelId = modelId;
+		}
+
+		public void failDocumentWithModelId(final int modelId)
+		{
+			failingDocumentModelId = modelId;
+		}
+
+		@Override
+		public CompletableFuture<IESIndexerResult> sendBulk(final List<ESDocument> documents)
+		{
+			bulksCount.incrementAndGet();
+			maxBulkSize.accumulateAndGet(documents.size(), Math::max);
+			maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+
+			return CompletableFuture.supplyAsync(() -> {
+				try
+				{
+					Thread.sleep(5);
+					if (documents.stream().anyMatch(document -> document.getModelId() == failingModelId))
+					{
+						throw new IllegalStateException("simulated failure");
+					}
+
+					final BulkItemResponse[] items = new BulkItemResponse[documents.size()];
+					for (int i = 0; i < documents.size(); i++)
+					{
+						final ESDocument document = documents.get(i);
+						if (document.getModelId() == failingDocumentModelId)
+						{
+							items[i] = new BulkItemResponse(i, "index", new BulkItemResponse.Failure("index", "type", document.getId(), new IllegalStateException("simulated failure")));
+							continue;
+						}
+
+						indexedDocuments.put(document.getId(), document.getJson());
+						items[i] = new BulkItemResponse(i, "index", new IndexResponse("index", "type", document.getId(), 1, true));
+					}
+					return ESIndexerResult.of(new BulkResponse(items, 5));
+				}
+				catch (final InterruptedException ex)
+				{
+					throw new IllegalStateException(ex);
+				}
+				finally
+				{
+					inFlight.decrementAndGet();
+				}
+			}, executor);
+		}
+
+		public Map<String, String> getIndexedDocuments()
+		{
+			return indexedDocuments;
+		}
+
+		public int getBulksCount()
+		{
+			return bulksCount.get();
+		}
+
+		public int getMaxBulkSize()
+		{
+			return maxBulkSize.get();
+		}
+
+		public int getMaxInFlight()
+		{
+			return maxInFlight.get();
+		}
+
+		public void shutdown()
+		{
+			executor.shutdownNow();
+			try
+			{
+				executor.awaitTermination(1, TimeUnit.SECONDS);
+			}
+			catch (final InterruptedException ex)
+			{
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+}
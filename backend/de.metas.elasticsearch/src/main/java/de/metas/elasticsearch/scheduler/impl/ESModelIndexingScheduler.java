@@ -1,8 +1,17 @@
 package de.metas.elasticsearch.scheduler.impl;
 
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Properties;
+import java.util.Set;
 
+import org.adempiere.ad.trx.api.ITrx;
+import org.adempiere.ad.trx.api.ITrxListenerManager.TrxEventTiming;
+import org.adempiere.ad.trx.api.ITrxManager;
+import org.adempiere.ad.trx.api.OnTrxMissingPolicy;
+import org.adempiere.service.ISysConfigBL;
 import org.adempiere.util.lang.ITableRecordReference;
 import org.adempiere.util.lang.impl.TableRecordReference;
 import org.compiere.util.Env;
@@ -14,6 +23,7 @@ import de.metas.elasticsearch.config.ESModelIndexerId;
 import de.metas.elasticsearch.scheduler.IESModelIndexingScheduler;
 import de.metas.util.Services;
 import lombok.NonNull;
+import lombok.Value;
 
 /*
  * #%L
@@ -46,6 +56,14 @@ public class ESModelIndexingScheduler implements IESModelIndexingScheduler
 
 	public static final String PARAMETERNAME_ModelIndexerId = "ModelIndexerId";
 
+	/**
+	 * If enabled, all models which are scheduled within one transaction are collected and enqueued as one workpackage per indexer, right before the transaction is committed.
+	 * So a transaction which is changing many records will produce one bulk request instead of one per record.
+	 */
+	private static final String SYSCONFIG_CollectPerTransaction = "de.metas.elasticsearch.scheduler.impl.ESModelIndexingScheduler.CollectPerTransaction";
+
+	private static final String TRX_PROPERTY_CollectedModels = ESModelIndexingScheduler.class.getName() + ".CollectedModels";
+
 	@Override
 	public final void addToIndex(final ESModelIndexerId modelIndexerId, final String modelTableName, final List<Integer> modelIds)
 	{
@@ -64,6 +82,65 @@ public class ESModelIndexingScheduler implements IESModelIndexingScheduler
 			@NonNull final String workpackageProcessorClassname,
 			@NonNull final ESModelIndexerId modelIndexerId,
 			final List<? extends ITableRecordReference> models)
+	{
+		final ITrx trx = getTrxToCollectModelsOrNull();
+		if (trx != null)
+		{
+			final Map<ScheduleKey, Set<ITableRecordReference>> collectedModels = getCollectedModels(trx);
+			collectedModels.computeIfAbsent(new ScheduleKey(workpackageProcessorClassname, modelIndexerId), k -> new LinkedHashSet<>())
+					.addAll(models);
+		}
+		else
+		{
+			enqueueWorkpackage(workpackageProcessorClassname, modelIndexerId, models, ITrx.TRXNAME_ThreadInherited);
+		}
+	}
+
+	private ITrx getTrxToCollectModelsOrNull()
+	{
+		if (!Services.get(ISysConfigBL.class).getBooleanValue(SYSCONFIG_CollectPerTransaction, false))
+		{
+			return null;
+		}
+
+		final ITrxManager trxManager = Services.get(ITrxManager.class);
+		final ITrx trx = trxManager.getThreadInheritedTrx(OnTrxMissingPolicy.ReturnTrxNone);
+		if (!trxManager.isActive(trx) || !trx.getTrxListenerManager().canRegisterOnTiming(TrxEventTiming.BEFORE_COMMIT))
+		{
+			return null;
+		}
+
+		return trx;
+	}
+
+	private Map<ScheduleKey, Set<ITableRecordReference>> getCollectedModels(@NonNull final ITrx trx)
+	{
+		return trx.getProperty(TRX_PROPERTY_CollectedModels, () -> {
+			trx.getTrxListenerManager()
+					.newEventListener(TrxEventTiming.BEFORE_COMMIT)
+					.registerHandlingMethod(innerTrx -> {
+						final Map<ScheduleKey, Set<ITableRecordReference>> innerCollectedModels = innerTrx.setProperty(TRX_PROPERTY_CollectedModels, null);
+						if (innerCollectedModels == null)
+						{
+							return;
+						}
+
+						innerCollectedModels.forEach((key, keyModels) -> enqueueWorkpackage(
+								key.getWorkpackageProcessorClassname(),
+								key.getModelIndexerId(),
+								keyModels,
+								innerTrx.getTrxName()));
+					});
+
+			return new LinkedHashMap<>();
+		});
+	}
+
+	private void enqueueWorkpackage(
+			@NonNull final String workpackageProcessorClassname,
+			@NonNull final ESModelIndexerId modelIndexerId,
+			final Iterable<? extends ITableRecordReference> models,
+			final String trxName)
 	{
 		final Properties ctx = Env.getCtx();
 
@@ -71,9 +148,16 @@ public class ESModelIndexingScheduler implements IESModelIndexingScheduler
 				.getQueueForEnqueuing(ctx, workpackageProcessorClassname)
 				.newBlock()
 				.newWorkpackage()
-				.bindToThreadInheritedTrx()
+				.bindToTrxName(trxName)
 				.addElements(models)
 				.parameter(PARAMETERNAME_ModelIndexerId, modelIndexerId.toJson())
 				.build();
 	}
+
+	@Value
+	private static class ScheduleKey
+	{
+		String workpackageProcessorClassname;
+		ESModelIndexerId modelIndexerId;
+	}
 }
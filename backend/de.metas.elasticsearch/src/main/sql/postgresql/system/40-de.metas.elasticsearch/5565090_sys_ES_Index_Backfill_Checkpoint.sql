@@ -0,0 +1,26 @@
+-- technical table; it's not part of the application dictionary, because it's only read and written by AbstractModelIndexerProcess.
+-- we don't use AD_SysConfig for this, because each change of an AD_SysConfig record resets its cache in the whole cluster.
+CREATE TABLE public.ES_Index_Backfill_Checkpoint
+(
+	ES_ModelIndexer VARCHAR(255) NOT NULL,
+	LastModel_ID NUMERIC(10) NOT NULL,
+	Updated TIMESTAMP WITH TIME ZONE NOT NULL DEFAULT now(),
+	CONSTRAINT ES_Index_Backfill_Checkpoint_Key PRIMARY KEY (ES_ModelIndexer)
+)
+;
+
+COMMENT ON TABLE public.ES_Index_Backfill_Checkpoint IS 'ID of the last model which was indexed by an interrupted elasticsearch backfill run (per model indexer), so that the next run can resume from there.'
+;
+
+-- move the checkpoints which were stored as AD_SysConfig so far
+INSERT INTO public.ES_Index_Backfill_Checkpoint (ES_ModelIndexer, LastModel_ID)
+SELECT substr(Name, length('de.metas.elasticsearch.process.BackfillCheckpoint.') + 1), Value::numeric
+FROM AD_SysConfig
+WHERE Name LIKE 'de.metas.elasticsearch.process.BackfillCheckpoint.%'
+	AND AD_Client_ID = 0 AND AD_Org_ID = 0
+	AND Value ~ '^[0-9]+$'
+	AND Value::numeric > 0
+;
+
+DELETE FROM AD_SysConfig WHERE Name LIKE 'de.metas.elasticsearch.process.BackfillCheckpoint.%'
+;
@@ -0,0 +1,437 @@
+package de.metas.material.cockpit;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import javax.annotation.Nullable;
+
+import org.adempiere.ad.trx.api.ITrx;
+import org.adempiere.ad.trx.api.ITrxManager;
+import org.adempiere.ad.trx.api.OnTrxMissingPolicy;
+import org.adempiere.exceptions.AdempiereException;
+import org.adempiere.service.ClientId;
+import org.adempiere.service.ISysConfigBL;
+import org.adempiere.util.concurrent.CustomizableThreadFactory;
+import org.adempiere.util.lang.IAutoCloseable;
+import org.compiere.util.Env;
+import org.slf4j.Logger;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableListMultimap;
+import com.google.common.collect.ListMultimap;
+import com.google.common.collect.Multimaps;
+import com.google.common.collect.MultimapBuilder;
+
+import de.metas.error.IErrorManager;
+import de.metas.logging.LogManager;
+import de.metas.organization.ClientAndOrgId;
+import de.metas.organization.OrgId;
+import de.metas.util.Services;
+import lombok.Builder;
+import lombok.NonNull;
+import lombok.Value;
+
+/*
+ * #%L
+ * metasfresh-material-cockpit
+ * %%
+ * Copyright (C) 2020 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+/**
+ * Collects update requests in memory and applies them later, all requests with the same key together.
+ * This way, a row that is updated by many transactions (e.g. the stock record of a fast moving product) is written once per flush instead of once per transaction.
+ * <p>
+ * Requests are only collected after the transaction in which they were added was committed.
+ * They are flushed by a background thread every {@code <prefix>.flushIntervalMillis} milliseconds,
+ * as soon as there are {@code <prefix>.maxSize} pending requests, and when {@link #shutdown()} is called.
+ * The prefix is {@value #SYSCONFIG_Prefix} plus the buffer's name, so each buffer is configured on its own.
+ * <p>
+ * All keys of the same client and org are flushed together, in one transaction. If that fails, the keys are flushed again one by one, each in its own transaction,
+ * so that the requests of one failing key don't hold back the others.
+ * Failed requests are never dropped. They are retried with each flush, before the requests that were added for the same key meanwhile.
+ * After {@code <prefix>.flushAttemptsUntilIssue} failed attempts, an {@code AD_Issue} is created, so that someone can look into it.
+ * If requests are still failing when the buffer is {@link #shutdown()}, an {@code AD_Issue} with all of them is created, because they would be lost otherwise.
+ * <p>
+ * The buffer is disabled by default, i.e. requests are supposed to be applied directly; see {@link #isEnabled()}.
+ */
+public final class CoalescingWriteBehindBuffer<K, R>
+{
+	private static final Logger logger = LogManager.getLogger(CoalescingWriteBehindBuffer.class);
+
+	private static final String SYSCONFIG_Prefix = "de.metas.material.cockpit.writeBehind.";
+
+	/** A value {@code <= 0} means that the buffer is disabled. */
+	private static final String SYSCONFIG_FlushIntervalMillis_Suffix = ".flushIntervalMillis";
+
+	private static final String SYSCONFIG_MaxSize_Suffix = ".maxSize";
+	private static final int DEFAULT_MaxSize = 1000;
+
+	private static final String SYSCONFIG_FlushAttemptsUntilIssue_Suffix = ".flushAttemptsUntilIssue";
+	private static final int DEFAULT_FlushAttemptsUntilIssue = 3;
+
+	private final ISysConfigBL sysConfigBL = Services.get(ISysConfigBL.class);
+	private final ITrxManager trxManager = Services.get(ITrxManager.class);
+
+	private final String name;
+	private final Function<R, K> keyExtractor;
+	private final Consumer<List<List<R>>> flusher;
+	private final String trxPropertyName;
+
+	private final Object pendingLock = new Object();
+	private ListMultimap<BufferKey<K>, R> pending = newMultimap();
+	private final HashMap<BufferKey<K>, Integer> failedFlushAttempts = new HashMap<>();
+
+	/** Makes sure that we don't have two flushes at the same time, because they might apply the requests of one key in the wrong order. */
+	private final Object flushLock = new Object();
+
+	private ScheduledExecutorService scheduler; // lazy
+
+	/**
+	 * @param name used in the sysconfig names and in log messages
+	 * @param flusher invoked with the pending requests of one or more keys of the same client and org, one list per key, each in the order in which the requests were added.
+	 *            Invoked within a transaction of its own and with the client and org in the context.
+	 */
+	@Builder
+	private CoalescingWriteBehindBuffer(
+			@NonNull final String name,
+			@NonNull final Function<R, K> keyExtractor,
+			@NonNull final Consumer<List<List<R>>> flusher)
+	{
+		this.name = name;
+		this.keyExtractor = keyExtractor;
+		this.flusher = flusher;
+		this.trxPropertyName = CoalescingWriteBehindBuffer.class.getName() + "." + name;
+	}
+
+	public boolean isEnabled()
+	{
+		return getFlushIntervalMillis() > 0;
+	}
+
+	private int getFlushIntervalMillis()
+	{
+		return sysConfigBL.getIntValue(SYSCONFIG_Prefix + name + SYSCONFIG_FlushIntervalMillis_Suffix, 0);
+	}
+
+	private int getMaxSize()
+	{
+		return sysConfigBL.getIntValue(SYSCONFIG_Prefix + name + SYSCONFIG_MaxSize_Suffix, DEFAULT_MaxSize);
+	}
+
+	private int getFlushAttemptsUntilIssue()
+	{
+		return sysConfigBL.getIntValue(SYSCONFIG_Prefix + name + SYSCONFIG_FlushAttemptsUntilIssue_Suffix, DEFAULT_FlushAttemptsUntilIssue);
+	}
+
+	public void add(@NonNull final R request)
+	{
+		// the client and org are needed when new records are created during the flush
+		final BufferedRequest<K, R> bufferedRequest = new BufferedRequest<>(
+				new BufferKey<>(Env.getClientId(), Env.getOrgId(), keyExtractor.apply(request)),
+				request);
+
+		final ITrx trx = trxManager.getThreadInheritedTrx(OnTrxMissingPolicy.ReturnTrxNone);
+		if (trxManager.isNull(trx))
+		{
+			addAll(ImmutableList.of(bufferedRequest));
+		}
+		else
+		{
+			// if the trx is rolled back, then the request shall not be applied either
+			trx.<List<BufferedRequest<K, R>>> getPropertyAndProcessAfterCommit(
+					trxPropertyName,
+					ArrayList::new,
+					this::addAll)
+					.add(bufferedRequest);
+		}
+	}
+
+	private void addAll(@NonNull final List<BufferedRequest<K, R>> bufferedRequests)
+	{
+		final int pendingCount;
+		synchronized (pendingLock)
+		{
+			for (final BufferedRequest<K, R> bufferedRequest : bufferedRequests)
+			{
+				pending.put(bufferedRequest.getKey(), bufferedRequest.getRequest());
+			}
+			pendingCount = pending.size();
+		}
+
+		final ScheduledExecutorService scheduler = startSchedulerIfNeeded();
+		if (pendingCount >= getMaxSize())
+		{
+			scheduler.execute(this::flushAndLogErrors);
+		}
+	}
+
+	private synchronized ScheduledExecutorService startSchedulerIfNeeded()
+	{
+		if (scheduler != null)
+		{
+			return scheduler;
+		}
+
+		final int flushIntervalMillis = Math.max(getFlushIntervalMillis(), 1);
+
+		scheduler = Executors.newSingleThreadScheduledExecutor(CustomizableThreadFactory.builder()
+				.setThreadNamePrefix(CoalescingWriteBehindBuffer.class.getSimpleName() + "-" + name)
+				.setDaemon(true)
+				.build());
+		scheduler.scheduleWithFixedDelay(this::flushAndLogErrors, flushIntervalMillis, flushIntervalMillis, TimeUnit.MILLISECONDS);
+
+		logger.info("{}: started flushing every {}ms", name, flushIntervalMillis);
+		return scheduler;
+	}
+
+	private void flushAndLogErrors()
+	{
+		try
+		{
+			flush();
+		}
+		catch (final Exception ex)
+		{
+			// flush() deals with failing requests itself, so this is unexpected; still we don't want the scheduler to stop
+			logger.error("{}: flush failed", name, ex);
+		}
+	}
+
+	/**
+	 * Applies all pending requests now, in the current thread.
+	 * Requests whose flush failed are kept for the next flush; see the class javadoc.
+	 */
+	public void flush()
+	{
+		synchronized (flushLock)
+		{
+			final ImmutableListMultimap<BufferKey<K>, R> requestsToFlush;
+			synchronized (pendingLock)
+			{
+				if (pending.isEmpty())
+				{
+					return;
+				}
+				requestsToFlush = ImmutableListMultimap.copyOf(pending);
+				pending = newMultimap();
+			}
+
+			final long startMillis = System.currentTimeMillis();
+			int failedKeysCount = 0;
+
+			final ImmutableListMultimap<ClientAndOrgId, BufferKey<K>> keysByClientAndOrg = Multimaps.index(requestsToFlush.keySet(), BufferKey::getClientAndOrgId);
+			for (final ClientAndOrgId clientAndOrgId : keysByClientAndOrg.keySet())
+			{
+				failedKeysCount += flush(clientAndOrgId, keysByClientAndOrg.get(clientAndOrgId), requestsToFlush);
+			}
+
+			logger.debug("{}: flushed {} requests for {} keys ({} of them failed) in {}ms",
+					name, requestsToFlush.size(), requestsToFlush.keySet().size(), failedKeysCount, System.currentTimeMillis() - startMillis);
+		}
+	}
+
+	/**
+	 * @return the number of keys whose requests failed
+	 */
+	private int flush(
+			@NonNull final ClientAndOrgId clientAndOrgId,
+			@NonNull final ImmutableList<BufferKey<K>> keys,
+			@NonNull final ImmutableListMultimap<BufferKey<K>, R> requestsToFlush)
+	{
+		try
+		{
+			flushInTrx(clientAndOrgId, keys.stream().map(requestsToFlush::get).collect(ImmutableList.toImmutableList()));
+			keys.forEach(this::onFlushSucceeded);
+			return 0;
+		}
+		catch (final RuntimeException ex)
+		{
+			if (keys.size() == 1)
+			{
+				onFlushFailed(keys.get(0), requestsToFlush.get(keys.get(0)), ex);
+				return 1;
+			}
+			logger.warn("{}: flushing {} keys together failed; flushing them one by one", name, keys.size(), ex);
+		}
+
+		int failedKeysCount = 0;
+		for (final BufferKey<K> key : keys)
+		{
+			final ImmutableList<R> requests = requestsToFlush.get(key);
+			try
+			{
+				flushInTrx(clientAndOrgId, ImmutableList.of(requests));
+				onFlushSucceeded(key);
+			}
+			catch (final RuntimeException ex)
+			{
+				onFlushFailed(key, requests, ex);
+				failedKeysCount++;
+			}
+		}
+		return failedKeysCount;
+	}
+
+	private void flushInTrx(
+			@NonNull final ClientAndOrgId clientAndOrgId,
+			@NonNull final ImmutableList<List<R>> requestsByKey)
+	{
+		// the client and org are needed when new records are created
+		final Properties ctx = Env.copyCtx(Env.getCtx());
+		Env.setClientId(ctx, clientAndOrgId.getClientId());
+		Env.setOrgId(ctx, clientAndOrgId.getOrgId());
+
+		try (final IAutoCloseable ctxRestorer = Env.switchContext(ctx))
+		{
+			trxManager.runInNewTrx(() -> flusher.accept(requestsByKey));
+		}
+	}
+
+	private void onFlushSucceeded(@NonNull final BufferKey<K> key)
+	{
+		synchronized (pendingLock)
+		{
+			failedFlushAttempts.remove(key);
+		}
+	}
+
+	private void onFlushFailed(
+			@NonNull final BufferKey<K> key,
+			@NonNull final ImmutableList<R> requests,
+			@NonNull final RuntimeException ex)
+	{
+		final int flushAttemptsUntilIssue = getFlushAttemptsUntilIssue();
+		final int attempts;
+		synchronized (pendingLock)
+		{
+			attempts = failedFlushAttempts.merge(key, 1, Integer::sum);
+
+			// put the requests back in front of those which were added for the same key in the meantime, so that they are applied in the right order
+			final List<R> newerRequests = pending.removeAll(key);
+			pending.putAll(key, requests);
+			pending.putAll(key, newerRequests);
+		}
+
+		if (attempts == flushAttemptsUntilIssue)
+		{
+			createIssue("Flushing the requests of one key failed repeatedly; they are still retried with each flush", key, requests, ex);
+		}
+		else
+		{
+			logger.warn("{}: flushing the requests for key={} failed (attempt {}); will retry with the next flush", name, key, attempts, ex);
+		}
+	}
+
+	private void createIssue(
+			@NonNull final String message,
+			@NonNull final Object key,
+			@NonNull final List<R> requests,
+			@Nullable final Exception cause)
+	{
+		final AdempiereException issueException = new AdempiereException(name + ": " + message, cause)
+				.appendParametersToMessage()
+				.setParameter("key", key)
+				.setParameter("requests", requests);
+		logger.error(issueException.getLocalizedMessage(), issueException);
+		Services.get(IErrorManager.class).createIssue(issueException);
+	}
+
+	/**
+	 * Stops the background thread and applies all pending requests.
+	 * Requests which still fail are recorded in an {@code AD_Issue}, because they would be lost otherwise.
+	 */
+	public void shutdown()
+	{
+		synchronized (this)
+		{
+			if (scheduler != null)
+			{
+				scheduler.shutdown(); // a flush that is currently running is not interrupted; our flush() below waits for it
+				scheduler = null;
+			}
+		}
+
+		synchronized (flushLock)
+		{
+			for (int attempt = 1; attempt <= getFlushAttemptsUntilIssue(); attempt++)
+			{
+				flush();
+				if (!hasPendingRequests())
+				{
+					return;
+				}
+			}
+
+			final ImmutableListMultimap<BufferKey<K>, R> unflushedRequests;
+			synchronized (pendingLock)
+			{
+				unflushedRequests = ImmutableListMultimap.copyOf(pending);
+				pending = newMultimap();
+				failedFlushAttempts.clear();
+			}
+			createIssue("Shutting down with requests that could not be flushed; they need to be applied manually",
+					unflushedRequests.keySet(), ImmutableList.copyOf(unflushedRequests.values()), null);
+		}
+	}
+
+	private boolean hasPendingRequests()
+	{
+		synchronized (pendingLock)
+		{
+			return !pending.isEmpty();
+		}
+	}
+
+	private static <K, R> ListMultimap<BufferKey<K>, R> newMultimap()
+	{
+		return MultimapBuilder.linkedHashKeys().arrayListValues().build();
+	}
+
+	@Value
+	private static class BufferKey<K>
+	{
+		@NonNull
+		ClientId clientId;
+		@NonNull
+		OrgId orgId;
+		@NonNull
+		K key;
+
+		public ClientAndOrgId getClientAndOrgId()
+		{
+			return ClientAndOrgId.ofClientAndOrg(clientId, orgId);
+		}
+	}
+
+	@Value
+	private static class BufferedRequest<K, R>
+	{
+		@NonNull
+		BufferKey<K> key;
+		@NonNull
+		R request;
+	}
+}
@@ -4,23 +4,40 @@ import static org.adempiere.model.InterfaceWrapperHelper.newInstance;
 import static org.adempiere.model.InterfaceWrapperHelper.save;
 
 import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.Nullable;
+import javax.annotation.PreDestroy;
 
 import org.adempiere.ad.dao.IQueryBL;
 import org.adempiere.mm.attributes.AttributeSetInstanceId;
 import org.adempiere.mm.attributes.api.AttributesKeys;
 import org.adempiere.model.InterfaceWrapperHelper;
+import org.adempiere.service.ClientId;
 import org.adempiere.warehouse.WarehouseId;
-import org.compiere.model.IQuery;
 import org.compiere.util.TimeUtil;
+import org.slf4j.Logger;
 import org.springframework.stereotype.Component;
 
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+
+import de.metas.logging.LogManager;
+import de.metas.material.cockpit.CoalescingWriteBehindBuffer;
 import de.metas.material.cockpit.model.I_MD_Stock;
+import de.metas.material.cockpit.model.I_MD_Stock_From_HUs_V;
 import de.metas.material.event.PostMaterialEventService;
 import de.metas.material.event.commons.AttributesKey;
 import de.metas.material.event.commons.EventDescriptor;
 import de.metas.material.event.commons.ProductDescriptor;
 import de.metas.material.event.stock.StockChangedEvent;
 import de.metas.material.event.stock.StockChangedEvent.StockChangeDetails;
+import de.metas.organization.OrgId;
+import de.metas.product.ProductId;
 import de.metas.util.NumberUtils;
 import de.metas.util.Services;
 import lombok.NonNull;
@@ -50,8 +67,16 @@ import lombok.NonNull;
 @Component
 public class StockDataUpdateRequestHandler
 {
+	private static final Logger logger = LogManager.getLogger(StockDataUpdateRequestHandler.class);
+
 	private final PostMaterialEventService postMaterialEventService;
 
+	private final CoalescingWriteBehindBuffer<StockDataRecordIdentifier, StockDataUpdateRequest> writeBehindBuffer = CoalescingWriteBehindBuffer.<StockDataRecordIdentifier, StockDataUpdateRequest> builder()
+			.name("MD_Stock")
+			.keyExtractor(StockDataUpdateRequest::getIdentifier)
+			.flusher(requestsByRecord -> handleDataUpdateRequests(requestsByRecord, true))
+			.build();
+
 	public StockDataUpdateRequestHandler(
 			@NonNull final PostMaterialEventService postMaterialEventService)
 	{
@@ -60,28 +85,168 @@ public class StockDataUpdateRequestHandler
 
 	public void handleDataUpdateRequest(@NonNull final StockDataUpdateRequest dataUpdateRequest)
 	{
-		final I_MD_Stock dataRecord = retrieveOrCreateDataRecord(dataUpdateRequest.getIdentifier());
+		if (writeBehindBuffer.isEnabled())
+		{
+			writeBehindBuffer.add(dataUpdateRequest);
+		}
+		else
+		{
+			handleDataUpdateRequests(ImmutableList.of(ImmutableList.of(dataUpdateRequest)), false);
+		}
+	}
+
+	/**
+	 * Loads all affected {@code MD_Stock} records with one query and updates each of them once,
+	 * but fires one {@link StockChangedEvent} per request, as if the requests had been applied one after the other.
+	 *
+	 * @param requestsByRecord one list per {@code MD_Stock} record, each with the requests in the order in which they shall be applied
+	 * @param postEventsAfterCommit if {@code true}, the events are posted after the current trx was committed, because the write-behind buffer might roll back and retry the update.
+	 */
+	private void handleDataUpdateRequests(
+			@NonNull final List<List<StockDataUpdateRequest>> requestsByRecord,
+			final boolean postEventsAfterCommit)
+	{
+		final ImmutableSet<StockDataRecordIdentifier> identifiers = requestsByRecord.stream()
+				.map(dataUpdateRequests -> dataUpdateRequests.get(0).getIdentifier())
+				.collect(ImmutableSet.toImmutableSet());
+		final Map<StockDataRecordIdentifier, I_MD_Stock> existingDataRecords = retrieveDataRecords(identifiers);
 
-		final BigDecimal qtyOnHandOld = dataRecord.getQtyOnHand();
+		for (final List<StockDataUpdateRequest> dataUpdateRequests : requestsByRecord)
+		{
+			final StockDataRecordIdentifier identifier = dataUpdateRequests.get(0).getIdentifier();
+			final I_MD_Stock existingDataRecord = existingDataRecords.get(identifier);
+			final I_MD_Stock dataRecord = existingDataRecord != null ? existingDataRecord : createDataRecord(identifier);
+
+			handleDataUpdateRequests(dataRecord, dataUpdateRequests, postEventsAfterCommit);
+		}
+	}
 
-		final BigDecimal qtyOnHandToAdd = dataUpdateRequest.getOnHandQtyChange();
-		final BigDecimal qtyOnHandNew = NumberUtils.stripTrailingDecimalZeros(dataRecord.getQtyOnHand().add(qtyOnHandToAdd));
-		dataRecord.setQtyOnHand(qtyOnHandNew);
+	private void handleDataUpdateRequests(
+			@NonNull final I_MD_Stock dataRecord,
+			@NonNull final List<StockDataUpdateRequest> dataUpdateRequests,
+			final boolean postEventsAfterCommit)
+	{
+		final ArrayList<BigDecimal> qtysOnHand = new ArrayList<>(dataUpdateRequests.size() + 1);
+		qtysOnHand.add(dataRecord.getQtyOnHand());
+		for (final StockDataUpdateRequest dataUpdateRequest : dataUpdateRequests)
+		{
+			final BigDecimal qtyOnHandToAdd = dataUpdateRequest.getOnHandQtyChange();
+			final BigDecimal qtyOnHandOld = qtysOnHand.get(qtysOnHand.size() - 1);
+			qtysOnHand.add(NumberUtils.stripTrailingDecimalZeros(qtyOnHandOld.add(qtyOnHandToAdd)));
+		}
+
+		dataRecord.setQtyOnHand(qtysOnHand.get(qtysOnHand.size() - 1));
 		save(dataRecord);
 
-		fireStockChangedEvent(dataRecord, qtyOnHandOld, dataUpdateRequest.getSourceInfo());
+		for (int i = 0; i < dataUpdateRequests.size(); i++)
+		{
+			final StockChangedEvent event = createStockChangedEvent(dataRecord, qtysOnHand.get(i), qtysOnHand.get(i + 1), dataUpdateRequests.get(i).getSourceInfo());
+			if (event == null)
+			{
+				continue;
+			}
+
+			if (postEventsAfterCommit)
+			{
+				postMaterialEventService.postEventAfterNextCommit(event);
+			}
+			else
+			{
+				postMaterialEventService.postEventNow(event);
+			}
+		}
+	}
+
+	/**
+	 * Applies the requests that were not yet applied because of the write-behind buffer.
+	 */
+	public void flush()
+	{
+		writeBehindBuffer.flush();
+	}
+
+	@PreDestroy
+	public void shutdown()
+	{
+		writeBehindBuffer.shutdown();
 	}
 
-	private I_MD_Stock retrieveOrCreateDataRecord(@NonNull final StockDataRecordIdentifier identifier)
+	/**
+	 * Flushes pending requests and compares the {@code MD_Stock} records with the HU storages.
+	 * Used by {@link de.metas.material.cockpit.stock.process.MD_Stock_Update_From_M_HUs} to correct the differences.
+	 *
+	 * @return the {@code MD_Stock_From_HUs_V} records whose {@code QtyOnHandChange} is not zero, i.e. where {@code MD_Stock} differs from the HU storages
+	 */
+	public List<I_MD_Stock_From_HUs_V> checkConsistencyWithHUStorages()
 	{
-		final IQuery<I_MD_Stock> query = createQueryForIdentifier(identifier);
+		flush();
 
-		final I_MD_Stock existingDataRecord = query.firstOnly(I_MD_Stock.class);
-		if (existingDataRecord != null)
+		final List<I_MD_Stock_From_HUs_V> inconsistentRecords = Services.get(IQueryBL.class)
+				.createQueryBuilder(I_MD_Stock_From_HUs_V.class)
+				.addNotEqualsFilter(I_MD_Stock_From_HUs_V.COLUMNNAME_QtyOnHandChange, BigDecimal.ZERO)
+				.create()
+				.list();
+
+		if (!inconsistentRecords.isEmpty())
+		{
+			logger.warn("Found {} MD_Stock records that differ from the HU storages", inconsistentRecords.size());
+		}
+		return inconsistentRecords;
+	}
+
+	public static StockDataRecordIdentifier toStockDataRecordIdentifier(@NonNull final I_MD_Stock_From_HUs_V huBasedDataRecord)
+	{
+		return StockDataRecordIdentifier.builder()
+				.clientId(ClientId.ofRepoId(huBasedDataRecord.getAD_Client_ID()))
+				.orgId(OrgId.ofRepoId(huBasedDataRecord.getAD_Org_ID()))
+				.warehouseId(WarehouseId.ofRepoId(huBasedDataRecord.getM_Warehouse_ID()))
+				.productId(ProductId.ofRepoId(huBasedDataRecord.getM_Product_ID()))
+				.storageAttributesKey(AttributesKey.ofString(huBasedDataRecord.getAttributesKey()))
+				.build();
+	}
+
+	private static StockDataRecordIdentifier toStockDataRecordIdentifier(@NonNull final I_MD_Stock dataRecord)
+	{
+		return StockDataRecordIdentifier.builder()
+				.clientId(ClientId.ofRepoId(dataRecord.getAD_Client_ID()))
+				.orgId(OrgId.ofRepoId(dataRecord.getAD_Org_ID()))
+				.warehouseId(WarehouseId.ofRepoId(dataRecord.getM_Warehouse_ID()))
+				.productId(ProductId.ofRepoId(dataRecord.getM_Product_ID()))
+				.storageAttributesKey(AttributesKey.ofString(dataRecord.getAttributesKey()))
+				.build();
+	}
+
+	private Map<StockDataRecordIdentifier, I_MD_Stock> retrieveDataRecords(@NonNull final Set<StockDataRecordIdentifier> identifiers)
+	{
+		// narrow the query down by product and warehouse and pick the records we actually need afterwards
+		final ImmutableSet<Integer> clientIds = identifiers.stream().map(identifier -> identifier.getClientId().getRepoId()).collect(ImmutableSet.toImmutableSet());
+		final ImmutableSet<Integer> productIds = identifiers.stream().map(identifier -> identifier.getProductId().getRepoId()).collect(ImmutableSet.toImmutableSet());
+		final ImmutableSet<Integer> warehouseIds = identifiers.stream().map(identifier -> identifier.getWarehouseId().getRepoId()).collect(ImmutableSet.toImmutableSet());
+
+		final List<I_MD_Stock> dataRecords = Services.get(IQueryBL.class)
+				.createQueryBuilder(I_MD_Stock.class)
+				.addOnlyActiveRecordsFilter()
+				.addInArrayFilter(I_MD_Stock.COLUMN_AD_Client_ID, clientIds)
+				.addInArrayFilter(I_MD_Stock.COLUMN_M_Product_ID, productIds)
+				.addInArrayFilter(I_MD_Stock.COLUMN_M_Warehouse_ID, warehouseIds)
+				.orderBy(I_MD_Stock.COLUMN_MD_Stock_ID)
+				.create()
+				.list();
+
+		final HashMap<StockDataRecordIdentifier, I_MD_Stock> result = new HashMap<>(identifiers.size());
+		for (final I_MD_Stock dataRecord : dataRecords)
 		{
-			return existingDataRecord;
+			final StockDataRecordIdentifier identifier = toStockDataRecordIdentifier(dataRecord);
+			if (identifiers.contains(identifier))
+			{
+				result.putIfAbsent(identifier, dataRecord);
+			}
 		}
+		return result;
+	}
 
+	private I_MD_Stock createDataRecord(@NonNull final StockDataRecordIdentifier identifier)
+	{
 		final I_MD_Stock newDataRecord = newInstance(I_MD_Stock.class);
 		InterfaceWrapperHelper.setValue(newDataRecord, I_MD_Stock.COLUMNNAME_AD_Client_ID, identifier.getClientId().getRepoId());
 
@@ -93,31 +258,16 @@ public class StockDataUpdateRequestHandler
 		return newDataRecord;
 	}
 
-	private IQuery<I_MD_Stock> createQueryForIdentifier(@NonNull final StockDataRecordIdentifier identifier)
-	{
-		final AttributesKey attributesKey = identifier.getStorageAttributesKey();
-		attributesKey.assertNotAllOrOther();
-
-		return Services.get(IQueryBL.class)
-				.createQueryBuilder(I_MD_Stock.class)
-				.addOnlyActiveRecordsFilter()
-				.addEqualsFilter(I_MD_Stock.COLUMN_AD_Client_ID, identifier.getClientId())
-				.addEqualsFilter(I_MD_Stock.COLUMN_AD_Org_ID, identifier.getOrgId())
-				.addEqualsFilter(I_MD_Stock.COLUMN_M_Product_ID, identifier.getProductId())
-				.addEqualsFilter(I_MD_Stock.COLUMN_AttributesKey, attributesKey.getAsString())
-				.addEqualsFilter(I_MD_Stock.COLUMN_M_Warehouse_ID, identifier.getWarehouseId())
-				.create();
-	}
-
-	private void fireStockChangedEvent(
+	@Nullable
+	private StockChangedEvent createStockChangedEvent(
 			@NonNull final I_MD_Stock dataRecord,
 			@NonNull final BigDecimal qtyOnHandOld,
+			@NonNull final BigDecimal qtyOnHandNew,
 			@NonNull final StockChangeSourceInfo stockChangeSourceInfo)
 	{
-		final BigDecimal qtyOnHandNew = dataRecord.getQtyOnHand();
 		if (qtyOnHandOld.compareTo(qtyOnHandNew) == 0)
 		{
-			return;
+			return null;
 		}
 
 		final AttributesKey attributesKey = AttributesKey.ofString(dataRecord.getAttributesKey());
@@ -141,7 +291,7 @@ public class StockDataUpdateRequestHandler
 				.stockId(dataRecord.getMD_Stock_ID())
 				.build();
 
-		final StockChangedEvent event = StockChangedEvent
+		return StockChangedEvent
 				.builder()
 				.eventDescriptor(eventDescriptor)
 				.productDescriptor(productDescriptor)
@@ -151,7 +301,5 @@ public class StockDataUpdateRequestHandler
 				.stockChangeDetails(details)
 				.changeDate(TimeUtil.asInstant(dataRecord.getUpdated()))
 				.build();
-
-		postMaterialEventService.postEventNow(event);
 	}
 }
@@ -1,12 +1,7 @@
 package de.metas.material.cockpit.stock.process;
 
-import static java.math.BigDecimal.ZERO;
-
 import java.util.List;
 
-import org.adempiere.ad.dao.IQueryBL;
-import org.adempiere.service.ClientId;
-import org.adempiere.warehouse.WarehouseId;
 import org.compiere.SpringContextHolder;
 
 import de.metas.material.cockpit.model.I_MD_Stock;
@@ -15,9 +10,7 @@ import de.metas.material.cockpit.stock.StockChangeSourceInfo;
 import de.metas.material.cockpit.stock.StockDataRecordIdentifier;
 import de.metas.material.cockpit.stock.StockDataUpdateRequest;
 import de.metas.material.cockpit.stock.StockDataUpdateRequestHandler;
-import de.metas.material.event.commons.AttributesKey;
 import de.metas.material.event.stock.ResetStockPInstanceId;
-import de.metas.organization.OrgId;
 import de.metas.process.JavaProcess;
 import de.metas.process.RunOutOfTrx;
 import de.metas.product.ProductId;
@@ -64,27 +57,18 @@ public class MD_Stock_Update_From_M_HUs extends JavaProcess
 	@RunOutOfTrx
 	protected String doIt()
 	{
-		final List<I_MD_Stock_From_HUs_V> huBasedDataRecords = retrieveHuData();
+		addLog("Performing a select for Records to correct on MD_Stock_From_HUs_V");
+		final List<I_MD_Stock_From_HUs_V> huBasedDataRecords = dataUpdateRequestHandler.checkConsistencyWithHUStorages();
 
 		addLog("Retrieved {} MD_Stock_From_HUs_V records", huBasedDataRecords.size());
 
 		createAndHandleDataUpdateRequests(huBasedDataRecords);
+		dataUpdateRequestHandler.flush();
 		addLog("Created and handled DataUpdateRequests for all MD_Stock_From_HUs_V records");
 
 		return MSG_OK;
 	}
 
-	private List<I_MD_Stock_From_HUs_V> retrieveHuData()
-	{
-		addLog("Performing a select for Records to correct on MD_Stock_From_HUs_V");
-		final List<I_MD_Stock_From_HUs_V> huBasedDataRecords = Services.get(IQueryBL.class)
-				.createQueryBuilder(I_MD_Stock_From_HUs_V.class)
-				.addNotEqualsFilter(I_MD_Stock_From_HUs_V.COLUMNNAME_QtyOnHandChange, ZERO)
-				.create()
-				.list();
-		return huBasedDataRecords;
-	}
-
 	private void createAndHandleDataUpdateRequests(
 			@NonNull final List<I_MD_Stock_From_HUs_V> huBasedDataRecords)
 	{
@@ -105,7 +89,7 @@ public class MD_Stock_Update_From_M_HUs extends JavaProcess
 			@NonNull final I_MD_Stock_From_HUs_V huBasedDataRecord,
 			@NonNull final StockChangeSourceInfo stockDataUpdateRequestSourceInfo)
 	{
-		final StockDataRecordIdentifier recordIdentifier = toStockDataRecordIdentifier(huBasedDataRecord);
+		final StockDataRecordIdentifier recordIdentifier = StockDataUpdateRequestHandler.toStockDataRecordIdentifier(huBasedDataRecord);
 
 		final ProductId productId = ProductId.ofRepoId(huBasedDataRecord.getM_Product_ID());
 		final Quantity qtyInStorageUOM = Quantity.of(huBasedDataRecord.getQtyOnHandChange(), huBasedDataRecord.getC_UOM());
@@ -118,15 +102,4 @@ public class MD_Stock_Update_From_M_HUs extends JavaProcess
 				.build();
 		return dataUpdateRequest;
 	}
-
-	private static StockDataRecordIdentifier toStockDataRecordIdentifier(@NonNull final I_MD_Stock_From_HUs_V huBasedDataRecord)
-	{
-		return StockDataRecordIdentifier.builder()
-				.clientId(ClientId.ofRepoId(huBasedDataRecord.getAD_Client_ID()))
-				.orgId(OrgId.ofRepoId(huBasedDataRecord.getAD_Org_ID()))
-				.warehouseId(WarehouseId.ofRepoId(huBasedDataRecord.getM_Warehouse_ID()))
-				.productId(ProductId.ofRepoId(huBasedDataRecord.getM_Product_ID()))
-				.storageAttributesKey(AttributesKey.ofString(huBasedDataRecord.getAttributesKey()))
-				.build();
-	}
 }
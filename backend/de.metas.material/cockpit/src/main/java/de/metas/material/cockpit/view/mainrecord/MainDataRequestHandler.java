@@ -4,16 +4,31 @@ import static de.metas.util.NumberUtils.stripTrailingDecimalZeros;
 import static org.adempiere.model.InterfaceWrapperHelper.newInstance;
 import static org.adempiere.model.InterfaceWrapperHelper.save;
 
+import java.sql.Timestamp;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.PreDestroy;
+
+import org.adempiere.ad.dao.IQueryBL;
 import org.compiere.model.IQuery;
 import org.compiere.util.TimeUtil;
 import org.springframework.context.annotation.Profile;
 import org.springframework.stereotype.Service;
 
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
 
 import de.metas.Profiles;
+import de.metas.material.cockpit.CoalescingWriteBehindBuffer;
 import de.metas.material.cockpit.model.I_MD_Cockpit;
 import de.metas.material.cockpit.view.MainDataRecordIdentifier;
+import de.metas.material.event.commons.AttributesKey;
+import de.metas.material.event.commons.ProductDescriptor;
+import de.metas.util.Services;
 import lombok.NonNull;
 
 /*
@@ -42,16 +57,92 @@ import lombok.NonNull;
 @Profile(Profiles.PROFILE_App) // the event handler is also just on this profile
 public class MainDataRequestHandler
 {
+	private final CoalescingWriteBehindBuffer<MainDataRecordIdentifier, UpdateMainDataRequest> writeBehindBuffer = CoalescingWriteBehindBuffer.<MainDataRecordIdentifier, UpdateMainDataRequest> builder()
+			.name("MD_Cockpit")
+			.keyExtractor(MainDataRequestHandler::extractRecordKey)
+			.flusher(MainDataRequestHandler::handleDataUpdateRequests)
+			.build();
+
 	public void handleDataUpdateRequest(@NonNull final UpdateMainDataRequest dataUpdateRequest)
+	{
+		if (writeBehindBuffer.isEnabled())
+		{
+			writeBehindBuffer.add(dataUpdateRequest);
+		}
+		else
+		{
+			handleDataUpdateRequests(ImmutableList.of(ImmutableList.of(dataUpdateRequest)));
+		}
+	}
+
+	/**
+	 * Loads all affected {@code MD_Cockpit} records with one query and updates each of them once.
+	 *
+	 * @param requestsByRecord one list per {@code MD_Cockpit} record, each with the requests in the order in which they shall be applied
+	 */
+	private static void handleDataUpdateRequests(@NonNull final List<List<UpdateMainDataRequest>> requestsByRecord)
 	{
 		synchronized (MainDataRequestHandler.class)
 		{
-			final I_MD_Cockpit dataRecord = retrieveOrCreateDataRecord(dataUpdateRequest.getIdentifier());
-			updateDataRecordWithRequestQtys(dataRecord, dataUpdateRequest);
-			save(dataRecord);
+			final ImmutableSet<MainDataRecordIdentifier> recordKeys = requestsByRecord.stream()
+					.map(dataUpdateRequests -> extractRecordKey(dataUpdateRequests.get(0)))
+					.collect(ImmutableSet.toImmutableSet());
+			final Map<MainDataRecordIdentifier, I_MD_Cockpit> existingDataRecords = retrieveDataRecords(recordKeys);
+
+			for (final List<UpdateMainDataRequest> dataUpdateRequests : requestsByRecord)
+			{
+				final MainDataRecordIdentifier recordKey = extractRecordKey(dataUpdateRequests.get(0));
+				final I_MD_Cockpit existingDataRecord = existingDataRecords.get(recordKey);
+				final I_MD_Cockpit dataRecord = existingDataRecord != null ? existingDataRecord : createDataRecord(recordKey);
+
+				for (final UpdateMainDataRequest dataUpdateRequest : dataUpdateRequests)
+				{
+					updateDataRecordWithRequestQtys(dataRecord, dataUpdateRequest);
+				}
+				save(dataRecord);
+			}
 		}
 	}
 
+	/**
+	 * The identifier's product descriptor might be a {@link de.metas.material.event.commons.MaterialDescriptor} with quantity and date,
+	 * so we reduce it to what identifies the {@code MD_Cockpit} record.
+	 */
+	private static MainDataRecordIdentifier extractRecordKey(@NonNull final UpdateMainDataRequest dataUpdateRequest)
+	{
+		final MainDataRecordIdentifier identifier = dataUpdateRequest.getIdentifier();
+		final ProductDescriptor productDescriptor = identifier.getProductDescriptor();
+
+		return MainDataRecordIdentifier.builder()
+				.productDescriptor(ProductDescriptor.forProductAndAttributes(productDescriptor.getProductId(), productDescriptor.getStorageAttributesKey()))
+				.date(identifier.getDate())
+				.plantId(Math.max(identifier.getPlantId(), 0))
+				.build();
+	}
+
+	private static MainDataRecordIdentifier extractRecordKey(@NonNull final I_MD_Cockpit dataRecord)
+	{
+		return MainDataRecordIdentifier.builder()
+				.productDescriptor(ProductDescriptor.forProductAndAttributes(dataRecord.getM_Product_ID(), AttributesKey.ofString(dataRecord.getAttributesKey())))
+				.date(TimeUtil.asInstant(dataRecord.getDateGeneral()))
+				.plantId(Math.max(dataRecord.getPP_Plant_ID(), 0))
+				.build();
+	}
+
+	/**
+	 * Applies the requests that were not yet applied because of the write-behind buffer.
+	 */
+	public void flush()
+	{
+		writeBehindBuffer.flush();
+	}
+
+	@PreDestroy
+	public void shutdown()
+	{
+		writeBehindBuffer.shutdown();
+	}
+
 	@VisibleForTesting
 	static I_MD_Cockpit retrieveOrCreateDataRecord(@NonNull final MainDataRecordIdentifier identifier)
 	{
@@ -63,6 +154,38 @@ public class MainDataRequestHandler
 			return existingDataRecord;
 		}
 
+		return createDataRecord(identifier);
+	}
+
+	private static Map<MainDataRecordIdentifier, I_MD_Cockpit> retrieveDataRecords(@NonNull final Set<MainDataRecordIdentifier> recordKeys)
+	{
+		// narrow the query down by product and date and pick the records we actually need afterwards
+		final ImmutableSet<Integer> productIds = recordKeys.stream().map(recordKey -> recordKey.getProductDescriptor().getProductId()).collect(ImmutableSet.toImmutableSet());
+		final ImmutableSet<Timestamp> dates = recordKeys.stream().map(recordKey -> TimeUtil.asTimestamp(recordKey.getDate())).collect(ImmutableSet.toImmutableSet());
+
+		final List<I_MD_Cockpit> dataRecords = Services.get(IQueryBL.class)
+				.createQueryBuilder(I_MD_Cockpit.class)
+				.addOnlyActiveRecordsFilter()
+				.addInArrayFilter(I_MD_Cockpit.COLUMN_M_Product_ID, productIds)
+				.addInArrayFilter(I_MD_Cockpit.COLUMN_DateGeneral, dates)
+				.orderBy(I_MD_Cockpit.COLUMN_MD_Cockpit_ID)
+				.create()
+				.list();
+
+		final HashMap<MainDataRecordIdentifier, I_MD_Cockpit> result = new HashMap<>(recordKeys.size());
+		for (final I_MD_Cockpit dataRecord : dataRecords)
+		{
+			final MainDataRecordIdentifier recordKey = extractRecordKey(dataRecord);
+			if (recordKeys.contains(recordKey))
+			{
+				result.putIfAbsent(recordKey, dataRecord);
+			}
+		}
+		return result;
+	}
+
+	private static I_MD_Cockpit createDataRecord(@NonNull final MainDataRecordIdentifier identifier)
+	{
 		final I_MD_Cockpit newDataRecord = newInstance(I_MD_Cockpit.class);
 		newDataRecord.setM_Product_ID(identifier.getProductDescriptor().getProductId());
 		newDataRecord.setAttributesKey(identifier.getProductDescriptor().getStorageAttributesKey().getAsString());
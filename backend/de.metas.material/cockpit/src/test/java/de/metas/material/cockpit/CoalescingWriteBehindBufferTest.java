@@ -0,0 +1,207 @@
+package de.metas.material.cockpit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.adempiere.ad.trx.api.ITrxManager;
+import org.adempiere.ad.wrapper.POJOLookupMap;
+import org.adempiere.exceptions.AdempiereException;
+import org.adempiere.service.ClientId;
+import org.adempiere.service.ISysConfigBL;
+import org.adempiere.test.AdempiereTestHelper;
+import org.compiere.model.I_AD_Issue;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.google.common.collect.ImmutableList;
+
+import de.metas.organization.OrgId;
+import de.metas.util.Services;
+
+/*
+ * #%L
+ * metasfresh-material-cockpit
+ * %%
+ * Copyright (C) 2020 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+public class CoalescingWriteBehindBufferTest
+{
+	private List<List<String>> flushedRequests;
+	private Set<String> failingKeys;
+	private CoalescingWriteBehindBuffer<String, String> buffer;
+
+	@BeforeEach
+	public void init()
+	{
+		AdempiereTestHelper.get().init();
+
+		// we flush explicitly in this test
+		Services.get(ISysConfigBL.class).setValue("de.metas.material.cockpit.writeBehind.test.flushIntervalMillis", 3600 * 1000, ClientId.SYSTEM, OrgId.ANY);
+
+		flushedRequests = new ArrayList<>();
+		failingKeys = new HashSet<>();
+		buffer = CoalescingWriteBehindBuffer.<String, String> builder()
+				.name("test")
+				.keyExtractor(request -> request.substring(0, 1))
+				.flusher(this::flush)
+				.build();
+	}
+
+	@AfterEach
+	public void shutdown()
+	{
+		failingKeys.clear();
+		buffer.shutdown();
+	}
+
+	private void flush(final List<List<String>> requestsByKey)
+	{
+		for (final List<String> requests : requestsByKey)
+		{
+			if (failingKeys.contains(requests.get(0).substring(0, 1)))
+			{
+				throw new AdempiereException("test failure");
+			}
+		}
+		requestsByKey.forEach(requests -> flushedRequests.add(ImmutableList.copyOf(requests)));
+	}
+
+	@Test
+	public void flush_requestsAreGroupedByKey()
+	{
+		assertThat(buffer.isEnabled()).isTrue();
+
+		buffer.add("A1");
+		buffer.add("B1");
+		buffer.add("A2");
+		buffer.add("A3");
+		assertThat(flushedRequests).isEmpty();
+
+		buffer.flush();
+
+		assertThat(flushedRequests).containsExactly(
+				ImmutableList.of("A1", "A2", "A3"),
+				ImmutableList.of("B1"));
+
+		buffer.flush();
+		assertThat(flushedRequests).hasSize(2);
+	}
+
+	@Test
+	public void add_requestOfRolledBackTrxIsIgnored()
+	{
+		final ITrxManager trxManager = Services.get(ITrxManager.class);
+
+		trxManager.runInNewTrx(() -> buffer.add("A1"));
+		assertThatThrownBy(() -> trxManager.runInNewTrx(() -> {
+			buffer.add("A2");
+			throw new AdempiereException("rollback");
+		})).hasMessageContaining("rollback");
+
+		buffer.flush();
+
+		assertThat(flushedRequests).containsExactly(ImmutableList.of("A1"));
+	}
+
+	@Test
+	public void flush_failedRequestsAreRetriedInTheirOrder()
+	{
+		buffer.add("A1");
+
+		failingKeys.add("A");
+		buffer.flush();
+		assertThat(flushedRequests).isEmpty();
+
+		failingKeys.clear();
+		buffer.add("A2");
+		buffer.flush();
+
+		assertThat(flushedRequests).containsExactly(ImmutableList.of("A1", "A2"));
+	}
+
+	@Test
+	public void flush_failingKeyDoesNotBlockTheOthers()
+	{
+		buffer.add("A1");
+		buffer.add("B1");
+		buffer.add("C1");
+
+		failingKeys.add("B");
+		buffer.flush();
+
+		assertThat(flushedRequests).containsExactly(
+				ImmutableList.of("A1"),
+				ImmutableList.of("C1"));
+	}
+
+	@Test
+	public void flush_failedRequestsAreNeverDropped()
+	{
+		Services.get(ISysConfigBL.class).setValue("de.metas.material.cockpit.writeBehind.test.flushAttemptsUntilIssue", 2, ClientId.SYSTEM, OrgId.ANY);
+
+		buffer.add("A1");
+		buffer.add("B1");
+
+		failingKeys.add("A");
+		buffer.flush(); // 1st attempt
+		assertThat(countIssues()).isZero();
+
+		buffer.flush(); // 2nd attempt => issue
+		assertThat(countIssues()).isEqualTo(1);
+
+		buffer.flush(); // 3rd attempt => no new issue
+		assertThat(countIssues()).isEqualTo(1);
+
+		failingKeys.clear();
+		buffer.add("A2");
+		buffer.flush();
+
+		assertThat(flushedRequests).containsExactly(
+				ImmutableList.of("B1"),
+				ImmutableList.of("A1", "A2"));
+	}
+
+	@Test
+	public void shutdown_requestsWhichStillFailAreRecordedInAnIssue()
+	{
+		buffer.add("A1");
+
+		failingKeys.add("A");
+		buffer.shutdown();
+
+		assertThat(flushedRequests).isEmpty();
+		assertThat(countIssues()).isGreaterThanOrEqualTo(1);
+
+		// the requests were handed over to the issue; nothing is left to be flushed
+		failingKeys.clear();
+		buffer.flush();
+		assertThat(flushedRequests).isEmpty();
+	}
+
+	private int countIssues()
+	{
+		return POJOLookupMap.get().getRecords(I_AD_Issue.class).size();
+	}
+}
@@ -16,9 +16,13 @@ import java.util.Objects;
 import javax.annotation.Nullable;
 
 import org.adempiere.ad.dao.ICompositeQueryFilter;
+import org.adempiere.ad.dao.ICompositeQueryUpdater;
 import org.adempiere.ad.dao.IQueryBL;
+import org.adempiere.ad.dao.impl.CompareQueryFilter.Operator;
+import org.adempiere.ad.dao.impl.ModelColumnNameValue;
 import org.adempiere.warehouse.WarehouseId;
 import org.compiere.util.TimeUtil;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import com.google.common.annotations.VisibleForTesting;
@@ -28,12 +32,14 @@ import de.metas.bpartner.BPartnerId;
 import de.metas.document.engine.DocStatus;
 import de.metas.material.dispo.commons.candidate.Candidate;
 import de.metas.material.dispo.commons.candidate.CandidateId;
+import de.metas.material.dispo.commons.candidate.CandidateType;
 import de.metas.material.dispo.commons.candidate.IdConstants;
 import de.metas.material.dispo.commons.candidate.TransactionDetail;
 import de.metas.material.dispo.commons.candidate.businesscase.DemandDetail;
 import de.metas.material.dispo.commons.candidate.businesscase.DistributionDetail;
 import de.metas.material.dispo.commons.candidate.businesscase.ProductionDetail;
 import de.metas.material.dispo.commons.candidate.businesscase.PurchaseDetail;
+import de.metas.material.dispo.commons.repository.atp.AvailableToPromiseIndex;
 import de.metas.material.dispo.commons.repository.query.CandidatesQuery;
 import de.metas.material.dispo.commons.repository.repohelpers.PurchaseDetailRepoHelper;
 import de.metas.material.dispo.commons.repository.repohelpers.RepositoryCommons;
@@ -51,6 +57,7 @@ import de.metas.product.ResourceId;
 import de.metas.util.Check;
 import de.metas.util.Loggables;
 import de.metas.util.Services;
+import de.metas.util.time.SystemTime;
 import lombok.Builder;
 import lombok.NonNull;
 import lombok.Value;
@@ -80,6 +87,20 @@ import lombok.Value;
 @Service
 public class CandidateRepositoryWriteService
 {
+	private final AvailableToPromiseIndex availableToPromiseIndex;
+
+	@VisibleForTesting
+	public CandidateRepositoryWriteService()
+	{
+		this(new AvailableToPromiseIndex());
+	}
+
+	@Autowired
+	public CandidateRepositoryWriteService(@NonNull final AvailableToPromiseIndex availableToPromiseIndex)
+	{
+		this.availableToPromiseIndex = availableToPromiseIndex;
+	}
+
 	/**
 	 * Stores the given {@code candidate}.
 	 * If there is already an existing candidate in the store, it is loaded, its fields are updated and the result is saved.<br>
@@ -261,6 +282,7 @@ public class CandidateRepositoryWriteService
 		save(synchedRecord); // save now, because we need to have MD_Candidate_ID > 0
 
 		setFallBackSeqNoAndGroupIdIfNeeded(synchedRecord);
+		availableToPromiseIndex.onCandidateSaved(synchedRecord);
 
 		addOrReplaceProductionDetail(candidate, synchedRecord);
 
@@ -652,6 +674,78 @@ public class CandidateRepositoryWriteService
 				.withSeqNo(candidateRecord.getSeqNo());
 	}
 
+	/**
+	 * Saves the given record, which the caller loaded and changed directly.
+	 */
+	public void saveCandidateRecord(@NonNull final I_MD_Candidate candidateRecord)
+	{
+		save(candidateRecord);
+		availableToPromiseIndex.onCandidateSaved(candidateRecord);
+	}
+
+	/**
+	 * Adds the given {@code qtyDelta} to the {@code Qty} of all {@code STOCK} candidates that match the given {@code stockQuery}.
+	 * Unlike {@link #updateCandidateById(Candidate)}, the records are not loaded and saved one by one, but updated with one SQL {@code UPDATE},
+	 * so the number of database roundtrips does not depend on the number of matching stock candidates.
+	 * The number of written rows still does, because each stock candidate's {@code Qty} is the running stock.
+	 *
+	 * @param groupId if not {@code null}, then the matching candidates' {@code MD_Candidate_GroupId} is also set to this value
+	 * @return the number of updated records
+	 */
+	public int addQtyToStockCandidates(
+			@NonNull final CandidatesQuery stockQuery,
+			@NonNull final BigDecimal qtyDelta,
+			@Nullable final MaterialDispoGroupId groupId)
+	{
+		Check.assume(CandidateType.STOCK.equals(stockQuery.getType()), "The given query needs to be restricted to STOCK candidates; stockQuery={}", stockQuery);
+		if (qtyDelta.signum() == 0 && groupId == null)
+		{
+			return 0;
+		}
+
+		final IQueryBL queryBL = Services.get(IQueryBL.class);
+
+		final ICompositeQueryUpdater<I_MD_Candidate> updater = queryBL.createCompositeQueryUpdater(I_MD_Candidate.class)
+				.addAddValueToColumn(I_MD_Candidate.COLUMNNAME_Qty, qtyDelta)
+				.addSetColumnValue(I_MD_Candidate.COLUMNNAME_Updated, SystemTime.asTimestamp());
+		if (groupId != null)
+		{
+			updater.addSetColumnValue(I_MD_Candidate.COLUMNNAME_MD_Candidate_GroupId, groupId.toInt());
+		}
+
+		final int updatedCount = RepositoryCommons.mkQueryBuilder(stockQuery)
+				.create()
+				.updateDirectly(updater);
+		if (updatedCount <= 0)
+		{
+			return 0;
+		}
+
+		// keep MD_Candidate_Status in sync with the new Qty, like updateCandidateRecordFromCandidate does
+		updateStockCandidatesStatus(stockQuery, Operator.GREATER_OR_EQUAL, X_MD_Candidate.MD_CANDIDATE_STATUS_Processed);
+		updateStockCandidatesStatus(stockQuery, Operator.LESS, X_MD_Candidate.MD_CANDIDATE_STATUS_Planned);
+
+		availableToPromiseIndex.onStockCandidatesUpdatedDirectly(stockQuery.getMaterialDescriptorQuery().getProductId());
+
+		Loggables.addLog("addQtyToStockCandidates - added qtyDelta={} to {} stock candidates; stockQuery={}", qtyDelta, updatedCount, stockQuery);
+		return updatedCount;
+	}
+
+	private void updateStockCandidatesStatus(
+			@NonNull final CandidatesQuery stockQuery,
+			@NonNull final Operator qtyFulfilledToQtyOperator,
+			@NonNull final String status)
+	{
+		final IQueryBL queryBL = Services.get(IQueryBL.class);
+
+		RepositoryCommons.mkQueryBuilder(stockQuery)
+				.addCompareFilter(I_MD_Candidate.COLUMNNAME_QtyFulfilled, qtyFulfilledToQtyOperator, ModelColumnNameValue.forColumnName(I_MD_Candidate.COLUMNNAME_Qty))
+				.addNotEqualsFilter(I_MD_Candidate.COLUMNNAME_MD_Candidate_Status, status)
+				.create()
+				.updateDirectly(queryBL.createCompositeQueryUpdater(I_MD_Candidate.class)
+						.addSetColumnValue(I_MD_Candidate.COLUMNNAME_MD_Candidate_Status, status));
+	}
+
 	public DeleteResult deleteCandidatebyId(@NonNull final CandidateId candidateId)
 	{
 		final I_MD_Candidate candidateRecord = load(candidateId, I_MD_Candidate.class);
@@ -662,6 +756,7 @@ public class CandidateRepositoryWriteService
 				.build(),
 				candidateRecord.getQty());
 
+		availableToPromiseIndex.onCandidateDeleted(candidateRecord);
 		deleteRecord(candidateRecord);
 		return deleteResult;
 	}
@@ -0,0 +1,788 @@
+package de.metas.material.dispo.commons.repository.atp;
+
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.Nullable;
+
+import org.adempiere.ad.dao.IQueryBL;
+import org.adempiere.ad.trx.api.ITrx;
+import org.adempiere.ad.trx.api.ITrxManager;
+import org.adempiere.ad.trx.api.OnTrxMissingPolicy;
+import org.adempiere.exceptions.AdempiereException;
+import org.adempiere.exceptions.DBException;
+import org.adempiere.service.ISysConfigBL;
+import org.adempiere.warehouse.WarehouseId;
+import org.compiere.Adempiere;
+import org.compiere.util.DB;
+import org.compiere.util.TimeUtil;
+import org.slf4j.Logger;
+import org.springframework.stereotype.Service;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+
+import de.metas.bpartner.BPartnerId;
+import de.metas.logging.LogManager;
+import de.metas.material.commons.attributes.AttributesKeyPattern;
+import de.metas.material.dispo.model.I_MD_Candidate;
+import de.metas.material.dispo.model.X_MD_Candidate;
+import de.metas.material.event.commons.AttributesKey;
+import de.metas.util.NumberUtils;
+import de.metas.util.Services;
+import lombok.NonNull;
+import lombok.Value;
+
+/*
+ * #%L
+ * metasfresh-material-dispo-commons
+ * %%
+ * Copyright (C) 2020 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+/**
+ * In-memory index of the {@code STOCK} candidates, which can answer {@link AvailableToPromiseQuery}s without running {@code de_metas_material.retrieve_atp_at_date} for each of them.
+ * <p>
+ * How it works:
+ * <ul>
+ * <li>The stock candidates are loaded per product, the first time the product is queried. At most {@value #DEFAULT_MaxProducts} (see {@link #SYSCONFIG_MaxProducts}) products are kept; the least recently queried ones are evicted.</li>
+ * <li>For each product, warehouse, customer and storage attributes key the index keeps the stock candidates ordered by {@code DateProjected} and {@code SeqNo},
+ * so the ATP at a given date is the latest candidate before or at that date, just like in {@code retrieve_atp_at_date}.</li>
+ * <li>{@link de.metas.material.dispo.commons.repository.CandidateRepositoryWriteService} reports each candidate it saves or deletes, and each product whose stock candidates it updates directly with SQL.
+ * The changes are applied after the transaction was committed; directly updated products are dropped.
+ * Until then, queries from within that transaction are not answered from the index, because they need to see the uncommitted changes.</li>
+ * <li>Candidates might also be changed by another JVM, or by SQL. Therefore every {@value #DEFAULT_ReconcileIntervalSeconds} seconds (see {@link #SYSCONFIG_ReconcileIntervalSeconds}),
+ * the number of stock candidates, the sum of their Qty and their last Updated timestamp are compared with the database. Products which differ are dropped and reloaded when they are queried again.</li>
+ * </ul>
+ * The index is disabled by default; see {@link #SYSCONFIG_Enabled}.
+ */
+@Service
+public class AvailableToPromiseIndex
+{
+	private static final Logger logger = LogManager.getLogger(AvailableToPromiseIndex.class);
+
+	private static final String SYSCONFIG_Enabled = "de.metas.material.dispo.ATP.index.enabled";
+
+	private static final String SYSCONFIG_MaxProducts = "de.metas.material.dispo.ATP.index.maxProducts";
+	private static final int DEFAULT_MaxProducts = 10000;
+
+	private static final String SYSCONFIG_ReconcileIntervalSeconds = "de.metas.material.dispo.ATP.index.reconcileIntervalSeconds";
+	private static final int DEFAULT_ReconcileIntervalSeconds = 60;
+
+	private static final String TRX_PROPERTY_PendingChanges = AvailableToPromiseIndex.class.getName() + ".PendingChanges";
+
+	private final ISysConfigBL sysConfigBL = Services.get(ISysConfigBL.class);
+	private final ITrxManager trxManager = Services.get(ITrxManager.class);
+	private final IQueryBL queryBL = Services.get(IQueryBL.class);
+
+	/** Loaded products, least recently queried first. Guarded by {@code this}. */
+	private final LinkedHashMap<Integer, ProductStock> productStocks = new LinkedHashMap<>(16, 0.75f, true);
+
+	/**
+	 * Products which are currently loaded from the database, outside of the lock. Concurrent queries for the same product wait for the same load.
+	 * A change or drop of the product removes its entry, so the (possibly outdated) loaded stock is not installed.
+	 */
+	private final ConcurrentHashMap<Integer, CompletableFuture<ProductStock>> loadingProductStocks = new ConcurrentHashMap<>();
+
+	private final AtomicLong lastReconcileMillis = new AtomicLong(System.currentTimeMillis());
+
+	public boolean isEnabled()
+	{
+		return sysConfigBL.getBooleanValue(SYSCONFIG_Enabled, false);
+	}
+
+	/**
+	 * @return the same records that {@link AvailableToPromiseSqlHelper} would retrieve, or empty if the given query can't be answered from the index,
+	 *         e.g. because the index is disabled or the current transaction has uncommitted changes for one of the queried products.
+	 */
+	public Optional<List<AddToResultGroupRequest>> retrieveAddToResultGroupRequests(@NonNull final AvailableToPromiseMultiQuery multiQuery)
+	{
+		if (!isEnabled())
+		{
+			clear();
+			return Optional.empty();
+		}
+
+		final PendingChanges pendingChanges = getPendingChangesOfCurrentTrxOrNull();
+		if (pendingChanges != null && multiQuery.getQueries().stream().anyMatch(query -> pendingChanges.isAffectingAnyOf(query.getProductIds())))
+		{
+			return Optional.empty();
+		}
+
+		reconcileIfDue();
+
+		// a set, because the SQL queries are combined with UNION DISTINCT
+		final LinkedHashSet<AddToResultGroupRequest> requests = new LinkedHashSet<>();
+		for (final AvailableToPromiseQuery query : multiQuery.getQueries())
+		{
+			collectRequests(query, requests);
+		}
+
+		return Optional.of(ImmutableList.copyOf(requests));
+	}
+
+	private void collectRequests(
+			@NonNull final AvailableToPromiseQuery query,
+			@NonNull final Collection<AddToResultGroupRequest> requests)
+	{
+		final Instant date = query.getDate().toInstant();
+		for (final int productId : query.getProductIds())
+		{
+			final ProductStock productStock = getOrLoadProductStock(productId);
+			synchronized (this)
+			{
+				productStock.collectRequests(query, date, requests);
+			}
+		}
+	}
+
+	/**
+	 * Called by the candidate repository after the given candidate was saved. It's fine to call this for all candidates, not only for {@code STOCK} ones.
+	 */
+	public void onCandidateSaved(@NonNull final I_MD_Candidate candidateRecord)
+	{
+		collectChange(StockCandidateChange.ofSavedRecord(candidateRecord));
+	}
+
+	/**
+	 * Called by the candidate repository before the given candidate is deleted.
+	 */
+	public void onCandidateDeleted(@NonNull final I_MD_Candidate candidateRecord)
+	{
+		collectChange(StockCandidateChange.ofDeletedRecord(candidateRecord));
+	}
+
+	/**
+	 * Called by the candidate repository after it updated stock candidates of the given product with SQL, without loading the records.
+	 * The product is dropped from the index after the transaction was committed and reloaded when it's queried again.
+	 */
+	public void onStockCandidatesUpdatedDirectly(final int productId)
+	{
+		if (!isEnabled())
+		{
+			return;
+		}
+
+		final ITrx trx = trxManager.getThreadInheritedTrx(OnTrxMissingPolicy.ReturnTrxNone);
+		if (trxManager.isNull(trx))
+		{
+			drop(ImmutableSet.of(productId));
+		}
+		else
+		{
+			trx.getPropertyAndProcessAfterCommit(
+					TRX_PROPERTY_PendingChanges,
+					PendingChanges::new,
+					this::applyPendingChanges)
+					.addDroppedProduct(productId);
+		}
+	}
+
+	private void collectChange(@NonNull final StockCandidateChange change)
+	{
+		if (!isEnabled())
+		{
+			return;
+		}
+
+		final ITrx trx = trxManager.getThreadInheritedTrx(OnTrxMissingPolicy.ReturnTrxNone);
+		if (trxManager.isNull(trx))
+		{
+			applyChanges(ImmutableList.of(change));
+		}
+		else
+		{
+			trx.getPropertyAndProcessAfterCommit(
+					TRX_PROPERTY_PendingChanges,
+					PendingChanges::new,
+					this::applyPendingChanges)
+					.add(change);
+		}
+	}
+
+	@Nullable
+	private PendingChanges getPendingChangesOfCurrentTrxOrNull()
+	{
+		final ITrx trx = trxManager.getThreadInheritedTrx(OnTrxMissingPolicy.ReturnTrxNone);
+		return trxManager.isNull(trx) ? null : trx.getProperty(TRX_PROPERTY_PendingChanges);
+	}
+
+	private synchronized void applyPendingChanges(@NonNull final PendingChanges pendingChanges)
+	{
+		applyChanges(pendingChanges.getChanges());
+		drop(pendingChanges.getDroppedProductIds());
+	}
+
+	private synchronized void applyChanges(@NonNull final Collection<StockCandidateChange> changes)
+	{
+		for (final StockCandidateChange change : changes)
+		{
+			final ProductStock productStock = productStocks.get(change.getProductId());
+			if (productStock == null)
+			{
+				loadingProductStocks.remove(change.getProductId()); // a running load might not see the change
+				continue; // not loaded; will be loaded from the database when queried
+			}
+
+			productStock.remove(change.getCandidateId());
+			if (change.getEntry() != null)
+			{
+				productStock.add(change.getEntry());
+			}
+		}
+	}
+
+	public synchronized void clear()
+	{
+		productStocks.clear();
+		loadingProductStocks.clear();
+	}
+
+	@VisibleForTesting
+	synchronized boolean isLoaded(final int productId)
+	{
+		return productStocks.containsKey(productId);
+	}
+
+	/**
+	 * Loads the product's stock candidates without holding the lock, so that queries for other products are not blocked by the database.
+	 * The lock is only acquired to install the loaded stock.
+	 */
+	private ProductStock getOrLoadProductStock(final int productId)
+	{
+		synchronized (this)
+		{
+			final ProductStock productStock = productStocks.get(productId);
+			if (productStock != null)
+			{
+				return productStock;
+			}
+		}
+
+		final CompletableFuture<ProductStock> future = new CompletableFuture<>();
+		final CompletableFuture<ProductStock> otherThreadFuture = loadingProductStocks.putIfAbsent(productId, future);
+		if (otherThreadFuture != null)
+		{
+			try
+			{
+				return otherThreadFuture.join();
+			}
+			catch (final CompletionException e)
+			{
+				throw AdempiereException.wrapIfNeeded(e.getCause());
+			}
+		}
+
+		try
+		{
+			final ProductStock productStock = loadProductStock(productId);
+			synchronized (this)
+			{
+				if (loadingProductStocks.remove(productId, future))
+				{
+					productStocks.put(productId, productStock);
+					evictIfNeeded();
+				}
+			}
+			future.complete(productStock);
+			return productStock;
+		}
+		catch (final RuntimeException e)
+		{
+			loadingProductStocks.remove(productId, future);
+			future.completeExceptionally(e);
+			throw e;
+		}
+	}
+
+	private ProductStock loadProductStock(final int productId)
+	{
+		final List<Map<String, Object>> rows = queryBL
+				.createQueryBuilderOutOfTrx(I_MD_Candidate.class)
+				.addOnlyActiveRecordsFilter()
+				.addEqualsFilter(I_MD_Candidate.COLUMNNAME_MD_Candidate_Type, X_MD_Candidate.MD_CANDIDATE_TYPE_STOCK)
+				.addEqualsFilter(I_MD_Candidate.COLUMNNAME_M_Product_ID, productId)
+				.create()
+				.listColumns(
+						I_MD_Candidate.COLUMNNAME_MD_Candidate_ID,
+						I_MD_Candidate.COLUMNNAME_M_Warehouse_ID,
+						I_MD_Candidate.COLUMNNAME_C_BPartner_Customer_ID,
+						I_MD_Candidate.COLUMNNAME_StorageAttributesKey,
+						I_MD_Candidate.COLUMNNAME_DateProjected,
+						I_MD_Candidate.COLUMNNAME_SeqNo,
+						I_MD_Candidate.COLUMNNAME_Qty,
+						I_MD_Candidate.COLUMNNAME_Updated);
+
+		final ProductStock productStock = new ProductStock(productId);
+		for (final Map<String, Object> row : rows)
+		{
+			productStock.add(StockEntry.builder()
+					.candidateId(NumberUtils.asInt(row.get(I_MD_Candidate.COLUMNNAME_MD_Candidate_ID), -1))
+					.warehouseId(WarehouseId.ofRepoId(NumberUtils.asInt(row.get(I_MD_Candidate.COLUMNNAME_M_Warehouse_ID), -1)))
+					.customerId(BPartnerId.ofRepoIdOrNull(NumberUtils.asInt(row.get(I_MD_Candidate.COLUMNNAME_C_BPartner_Customer_ID), -1)))
+					.storageAttributesKey(AttributesKey.ofString((String)row.get(I_MD_Candidate.COLUMNNAME_StorageAttributesKey)))
+					.date(TimeUtil.asInstant(row.get(I_MD_Candidate.COLUMNNAME_DateProjected)))
+					.seqNo(NumberUtils.asInt(row.get(I_MD_Candidate.COLUMNNAME_SeqNo), 0))
+					.qty(NumberUtils.asBigDecimal(row.get(I_MD_Candidate.COLUMNNAME_Qty), BigDecimal.ZERO))
+					.updatedMillis(toMillis(row.get(I_MD_Candidate.COLUMNNAME_Updated)))
+					.build());
+		}
+
+		logger.debug("Loaded {} stock candidates for M_Product_ID={}", productStock.size(), productId);
+		return productStock;
+	}
+
+	private void evictIfNeeded()
+	{
+		final int maxProducts = sysConfigBL.getIntValue(SYSCONFIG_MaxProducts, DEFAULT_MaxProducts);
+		final Iterator<Integer> leastRecentlyUsedFirst = productStocks.keySet().iterator();
+		while (productStocks.size() > maxProducts && leastRecentlyUsedFirst.hasNext())
+		{
+			leastRecentlyUsedFirst.next();
+			leastRecentlyUsedFirst.remove();
+		}
+	}
+
+	private void reconcileIfDue()
+	{
+		if (Adempiere.isUnitTestMode())
+		{
+			return; // there is no database to reconcile with
+		}
+
+		final long intervalMillis = sysConfigBL.getIntValue(SYSCONFIG_ReconcileIntervalSeconds, DEFAULT_ReconcileIntervalSeconds) * 1000L;
+		final long lastMillis = lastReconcileMillis.get();
+		final long nowMillis = System.currentTimeMillis();
+		if (nowMillis - lastMillis < intervalMillis || !lastReconcileMillis.compareAndSet(lastMillis, nowMillis))
+		{
+			return; // not due, or another thread is already reconciling
+		}
+
+		reconcile();
+	}
+
+	private void reconcile()
+	{
+		final ImmutableMap<Integer, StockFingerprint> indexFingerprints = getFingerprints();
+		if (indexFingerprints.isEmpty())
+		{
+			return;
+		}
+
+		final Map<Integer, StockFingerprint> dbFingerprints = retrieveFingerprints(indexFingerprints.keySet());
+
+		final List<Integer> productIdsToDrop = new ArrayList<>();
+		for (final Map.Entry<Integer, StockFingerprint> entry : indexFingerprints.entrySet())
+		{
+			final Integer productId = entry.getKey();
+			final StockFingerprint dbFingerprint = dbFingerprints.getOrDefault(productId, StockFingerprint.EMPTY);
+			if (!entry.getValue().isMatching(dbFingerprint))
+			{
+				productIdsToDrop.add(productId);
+			}
+		}
+
+		if (!productIdsToDrop.isEmpty())
+		{
+			logger.debug("Dropping the stock of {} product(s) which differ from the database: {}", productIdsToDrop.size(), productIdsToDrop);
+			drop(productIdsToDrop);
+		}
+	}
+
+	private synchronized ImmutableMap<Integer, StockFingerprint> getFingerprints()
+	{
+		final ImmutableMap.Builder<Integer, StockFingerprint> fingerprints = ImmutableMap.builder();
+		for (final ProductStock productStock : productStocks.values())
+		{
+			fingerprints.put(productStock.getProductId(), productStock.computeFingerprint());
+		}
+		return fingerprints.build();
+	}
+
+	private synchronized void drop(@NonNull final Collection<Integer> productIds)
+	{
+		productIds.forEach(productStocks::remove);
+		productIds.forEach(loadingProductStocks::remove);
+	}
+
+	private static Map<Integer, StockFingerprint> retrieveFingerprints(@NonNull final Set<Integer> productIds)
+	{
+		final List<Object> sqlParams = new ArrayList<>();
+		final String sql = "SELECT " + I_MD_Candidate.COLUMNNAME_M_Product_ID
+				+ ", COUNT(1) AS Count"
+				+ ", COALESCE(SUM(" + I_MD_Candidate.COLUMNNAME_Qty + "), 0) AS Qty"
+				+ ", MAX(" + I_MD_Candidate.COLUMNNAME_Updated + ") AS Updated"
+				+ " FROM " + I_MD_Candidate.Table_Name
+				+ " WHERE IsActive='Y'"
+				+ " AND " + I_MD_Candidate.COLUMNNAME_MD_Candidate_Type + "='" + X_MD_Candidate.MD_CANDIDATE_TYPE_STOCK + "'"
+				+ " AND " + I_MD_Candidate.COLUMNNAME_M_Product_ID + " IN " + DB.buildSqlList(productIds, sqlParams)
+				+ " GROUP BY " + I_MD_Candidate.COLUMNNAME_M_Product_ID;
+
+		PreparedStatement pstmt = null;
+		ResultSet rs = null;
+		try
+		{
+			pstmt = DB.prepareStatement(sql, ITrx.TRXNAME_None);
+			DB.setParameters(pstmt, sqlParams);
+			rs = pstmt.executeQuery();
+
+			final HashMap<Integer, StockFingerprint> fingerprints = new HashMap<>();
+			while (rs.next())
+			{
+				fingerprints.put(
+						rs.getInt(I_MD_Candidate.COLUMNNAME_M_Product_ID),
+						StockFingerprint.of(rs.getInt("Count"), rs.getBigDecimal("Qty"), toMillis(rs.getTimestamp("Updated"))));
+			}
+			return fingerprints;
+		}
+		catch (final SQLException ex)
+		{
+			throw new DBException(ex, sql, sqlParams);
+		}
+		finally
+		{
+			DB.close(rs, pstmt);
+		}
+	}
+
+	private static long toMillis(@Nullable final Object timestamp)
+	{
+		return timestamp instanceof Timestamp ? ((Timestamp)timestamp).getTime() : 0;
+	}
+
+	/** The stock candidates of one product. */
+	private static final class ProductStock
+	{
+		private final int productId;
+		private final HashMap<StockKey, TreeMap<StockTime, StockEntry>> timelines = new HashMap<>();
+		private final HashMap<Integer, StockEntry> entriesByCandidateId = new HashMap<>();
+
+		private ProductStock(final int productId)
+		{
+			this.productId = productId;
+		}
+
+		public int getProductId()
+		{
+			return productId;
+		}
+
+		public int size()
+		{
+			return entriesByCandidateId.size();
+		}
+
+		public void add(@NonNull final StockEntry entry)
+		{
+			remove(entry.getCandidateId());
+
+			entriesByCandidateId.put(entry.getCandidateId(), entry);
+			timelines.computeIfAbsent(entry.getKey(), key -> new TreeMap<>()).put(entry.getTime(), entry);
+		}
+
+		public void remove(final int candidateId)
+		{
+			final StockEntry entry = entriesByCandidateId.remove(candidateId);
+			if (entry == null)
+			{
+				return;
+			}
+
+			final TreeMap<StockTime, StockEntry> timeline = timelines.get(entry.getKey());
+			timeline.remove(entry.getTime());
+			if (timeline.isEmpty())
+			{
+				timelines.remove(entry.getKey());
+			}
+		}
+
+		/**
+		 * Like {@code retrieve_atp_at_date}, for each key, takes the latest entry whose date is not after the given date.
+		 */
+		public void collectRequests(
+				@NonNull final AvailableToPromiseQuery query,
+				@NonNull final Instant date,
+				@NonNull final Collection<AddToResultGroupRequest> requests)
+		{
+			final StockTime latestTimeAtDate = StockTime.latestAt(date);
+			for (final Map.Entry<StockKey, TreeMap<StockTime, StockEntry>> timeline : timelines.entrySet())
+			{
+				if (!timeline.getKey().isMatching(query))
+				{
+					continue;
+				}
+
+				final Map.Entry<StockTime, StockEntry> latestEntryAtDate = timeline.getValue().floorEntry(latestTimeAtDate);
+				if (latestEntryAtDate != null)
+				{
+					requests.add(latestEntryAtDate.getValue().toAddToResultGroupRequest(productId));
+				}
+			}
+		}
+
+		public StockFingerprint computeFingerprint()
+		{
+			BigDecimal qty = BigDecimal.ZERO;
+			long updatedMillis = 0;
+			for (final StockEntry entry : entriesByCandidateId.values())
+			{
+				qty = qty.add(entry.getQty());
+				updatedMillis = Math.max(updatedMillis, entry.getUpdatedMillis());
+			}
+			return StockFingerprint.of(entriesByCandidateId.size(), qty, updatedMillis);
+		}
+	}
+
+	@Value
+	private static class StockKey
+	{
+		@NonNull
+		WarehouseId warehouseId;
+
+		@Nullable
+		BPartnerId customerId;
+
+		@NonNull
+		AttributesKey storageAttributesKey;
+
+		/** Has to be in sync with {@link AvailableToPromiseSqlHelper#createDBQueryForStockQuery(AvailableToPromiseQuery)}. */
+		public boolean isMatching(@NonNull final AvailableToPromiseQuery query)
+		{
+			// Warehouse
+			if (!query.getWarehouseIds().isEmpty() && !query.getWarehouseIds().contains(warehouseId))
+			{
+				return false;
+			}
+
+			// BPartner
+			final BPartnerClassifier bpartner = query.getBpartner();
+			if (bpartner.isNone() && customerId != null)
+			{
+				return false;
+			}
+			if (bpartner.isSpecificBPartner() && customerId != null && !customerId.equals(bpartner.getBpartnerId()))
+			{
+				return false;
+			}
+
+			// Storage Attributes Key
+			final List<AttributesKeyPattern> patterns = query.getStorageAttributesKeyPatterns();
+			if (patterns.isEmpty() || patterns.contains(AttributesKeyPattern.ALL) || patterns.contains(AttributesKeyPattern.OTHER))
+			{
+				return true;
+			}
+			return patterns.stream().anyMatch(pattern -> pattern.matches(storageAttributesKey));
+		}
+	}
+
+	/** Ordering of the stock candidates of one {@link StockKey}, as in {@code retrieve_atp_at_date}. */
+	@Value
+	private static class StockTime implements Comparable<StockTime>
+	{
+		public static StockTime latestAt(@NonNull final Instant date)
+		{
+			return new StockTime(date, Integer.MAX_VALUE, Integer.MAX_VALUE);
+		}
+
+		@NonNull
+		Instant date;
+		int seqNo;
+		int candidateId;
+
+		@Override
+		public int compareTo(@NonNull final StockTime other)
+		{
+			int cmp = date.compareTo(other.date);
+			if (cmp == 0)
+			{
+				cmp = Integer.compare(seqNo, other.seqNo);
+			}
+			if (cmp == 0)
+			{
+				cmp = Integer.compare(candidateId, other.candidateId);
+			}
+			return cmp;
+		}
+	}
+
+	@Value
+	@lombok.Builder
+	private static class StockEntry
+	{
+		int candidateId;
+
+		@NonNull
+		WarehouseId warehouseId;
+
+		@Nullable
+		BPartnerId customerId;
+
+		@NonNull
+		AttributesKey storageAttributesKey;
+
+		@NonNull
+		Instant date;
+
+		int seqNo;
+
+		@NonNull
+		BigDecimal qty;
+
+		long updatedMillis;
+
+		public StockKey getKey()
+		{
+			return new StockKey(warehouseId, customerId, storageAttributesKey);
+		}
+
+		public StockTime getTime()
+		{
+			return new StockTime(date, seqNo, candidateId);
+		}
+
+		public AddToResultGroupRequest toAddToResultGroupRequest(final int productId)
+		{
+			return AddToResultGroupRequest.builder()
+					.productId(productId)
+					.bpartner(BPartnerClassifier.specificOrAny(customerId)) // records that have no bPartner-ID are applicable to any bpartner
+					.warehouseId(warehouseId)
+					.storageAttributesKey(storageAttributesKey)
+					.qty(qty)
+					.date(date)
+					.seqNo(seqNo)
+					.build();
+		}
+	}
+
+	@Value(staticConstructor = "of")
+	private static class StockFingerprint
+	{
+		public static final StockFingerprint EMPTY = of(0, BigDecimal.ZERO, 0);
+
+		int count;
+
+		@NonNull
+		BigDecimal qty;
+
+		long updatedMillis;
+
+		public boolean isMatching(@NonNull final StockFingerprint other)
+		{
+			return count == other.count
+					&& qty.compareTo(other.qty) == 0
+					&& updatedMillis == other.updatedMillis;
+		}
+	}
+
+	@Value
+	private static class StockCandidateChange
+	{
+		public static StockCandidateChange ofSavedRecord(@NonNull final I_MD_Candidate record)
+		{
+			final boolean isActiveStock = record.isActive() && X_MD_Candidate.MD_CANDIDATE_TYPE_STOCK.equals(record.getMD_Candidate_Type());
+			final StockEntry entry = isActiveStock
+					? StockEntry.builder()
+							.candidateId(record.getMD_Candidate_ID())
+							.warehouseId(WarehouseId.ofRepoId(record.getM_Warehouse_ID()))
+							.customerId(BPartnerId.ofRepoIdOrNull(record.getC_BPartner_Customer_ID()))
+							.storageAttributesKey(AttributesKey.ofString(record.getStorageAttributesKey()))
+							.date(TimeUtil.asInstant(record.getDateProjected()))
+							.seqNo(record.getSeqNo())
+							.qty(record.getQty())
+							.updatedMillis(toMillis(record.getUpdated()))
+							.build()
+					: null;
+
+			return new StockCandidateChange(record.getM_Product_ID(), record.getMD_Candidate_ID(), entry);
+		}
+
+		public static StockCandidateChange ofDeletedRecord(@NonNull final I_MD_Candidate record)
+		{
+			return new StockCandidateChange(record.getM_Product_ID(), record.getMD_Candidate_ID(), null);
+		}
+
+		int productId;
+		int candidateId;
+
+		/** {@code null} if the candidate was deleted, or is no (active) stock candidate */
+		@Nullable
+		StockEntry entry;
+	}
+
+	/** The changes of one transaction; they are applied to the index after the transaction was committed. */
+	private static final class PendingChanges
+	{
+		private final LinkedHashMap<Integer, StockCandidateChange> changesByCandidateId = new LinkedHashMap<>();
+		private final LinkedHashSet<Integer> droppedProductIds = new LinkedHashSet<>();
+
+		public synchronized void add(@NonNull final StockCandidateChange change)
+		{
+			// the last change per candidate wins
+			changesByCandidateId.remove(change.getCandidateId());
+			changesByCandidateId.put(change.getCandidateId(), change);
+		}
+
+		public synchronized void addDroppedProduct(final int productId)
+		{
+			droppedProductIds.add(productId);
+		}
+
+		public synchronized List<StockCandidateChange> getChanges()
+		{
+			return ImmutableList.copyOf(changesByCandidateId.values());
+		}
+
+		public synchronized Set<Integer> getDroppedProductIds()
+		{
+			return ImmutableSet.copyOf(droppedProductIds);
+		}
+
+		public synchronized boolean isAffectingAnyOf(@NonNull final Collection<Integer> productIds)
+		{
+			if (droppedProductIds.stream().anyMatch(productIds::contains))
+			{
+				return true;
+			}
+
+			return changesByCandidateId.values()
+					.stream()
+					.anyMatch(change -> productIds.contains(change.getProductId()));
+		}
+	}
+}
@@ -0,0 +1,214 @@
+package de.metas.material.dispo.commons.repository.atp;
+
+import static de.metas.material.event.EventTestHelper.BEFORE_BEFORE_NOW;
+import static de.metas.material.event.EventTestHelper.BEFORE_NOW;
+import static de.metas.material.event.EventTestHelper.NOW;
+import static de.metas.material.event.EventTestHelper.PRODUCT_ID;
+import static de.metas.material.event.EventTestHelper.WAREHOUSE_ID;
+import static org.adempiere.model.InterfaceWrapperHelper.newInstance;
+import static org.adempiere.model.InterfaceWrapperHelper.save;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.List;
+
+import org.adempiere.service.ClientId;
+import org.adempiere.service.ISysConfigBL;
+import org.adempiere.test.AdempiereTestHelper;
+import org.adempiere.test.AdempiereTestWatcher;
+import org.compiere.util.TimeUtil;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import de.metas.bpartner.BPartnerId;
+import de.metas.material.commons.attributes.AttributesKeyPatterns;
+import de.metas.material.dispo.model.I_MD_Candidate;
+import de.metas.material.dispo.model.X_MD_Candidate;
+import de.metas.material.event.commons.AttributesKey;
+import de.metas.organization.OrgId;
+import de.metas.util.Services;
+
+/*
+ * #%L
+ * metasfresh-material-dispo-commons
+ * %%
+ * Copyright (C) 2020 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+/**
+ * Note that there are no {@code I_MD_Candidate_ATP_QueryResult} records in these tests, so everything that {@link AvailableToPromiseRepository} finds comes from the index.
+ */
+@ExtendWith(AdempiereTestWatcher.class)
+public class AvailableToPromiseIndexTest
+{
+	private static final BPartnerId BPARTNER_ID = BPartnerId.ofRepoId(10);
+	private static final AttributesKey STORAGE_ATTRIBUTES_KEY = AttributesKey.ofAttributeValueIds(1, 2);
+
+	private AvailableToPromiseIndex availableToPromiseIndex;
+	private AvailableToPromiseRepository availableToPromiseRepository;
+
+	private int seqNoCounter = 1;
+
+	@BeforeEach
+	public void init()
+	{
+		AdempiereTestHelper.get().init();
+
+		Services.get(ISysConfigBL.class).setValue("de.metas.material.dispo.ATP.index.enabled", true, ClientId.SYSTEM, OrgId.ANY);
+
+		availableToPromiseIndex = new AvailableToPromiseIndex();
+		availableToPromiseRepository = new AvailableToPromiseRepository(availableToPromiseIndex);
+	}
+
+	@Test
+	public void latestStockAtDate()
+	{
+		createStockRecord(null, BEFORE_BEFORE_NOW, "10");
+		createStockRecord(null, BEFORE_NOW, "30");
+
+		assertThat(retrieveQty(BEFORE_BEFORE_NOW, BPartnerClassifier.none())).isEqualByComparingTo("10");
+		assertThat(retrieveQty(BEFORE_NOW.minusSeconds(1), BPartnerClassifier.none())).isEqualByComparingTo("10");
+		assertThat(retrieveQty(NOW, BPartnerClassifier.none())).isEqualByComparingTo("30");
+		assertThat(retrieveQty(BEFORE_BEFORE_NOW.minusSeconds(1), BPartnerClassifier.none())).isZero();
+	}
+
+	@Test
+	public void sameDate_biggestSeqNoWins()
+	{
+		createStockRecord(null, BEFORE_NOW, "10");
+		createStockRecord(null, BEFORE_NOW, "25");
+
+		assertThat(retrieveQty(NOW, BPartnerClassifier.none())).isEqualByComparingTo("25");
+	}
+
+	/**
+	 * Verifies the same filter as {@link AvailableToPromiseSqlHelper}: records without customer are matched by every query, except the ones that want "any" bpartner.
+	 */
+	@Test
+	public void bpartnerFilter()
+	{
+		createStockRecord(null, BEFORE_BEFORE_NOW, "10");
+		createStockRecord(BPARTNER_ID, BEFORE_NOW, "20");
+		createStockRecord(BPartnerId.ofRepoId(20), BEFORE_NOW, "40"); // belongs to an unrelated bPartner
+
+		assertThat(retrieveRequests(BPartnerClassifier.none()))
+				.extracting(AddToResultGroupRequest::getQty)
+				.containsExactly(new BigDecimal("10"));
+
+		assertThat(retrieveRequests(BPartnerClassifier.specific(BPARTNER_ID)))
+				.extracting(AddToResultGroupRequest::getQty)
+				.containsExactlyInAnyOrder(new BigDecimal("10"), new BigDecimal("20"));
+
+		assertThat(retrieveRequests(BPartnerClassifier.any()))
+				.extracting(AddToResultGroupRequest::getQty)
+				.containsExactlyInAnyOrder(new BigDecimal("10"), new BigDecimal("20"), new BigDecimal("40"));
+
+		assertThat(retrieveRequests(BPartnerClassifier.specific(BPARTNER_ID)))
+				.extracting(AddToResultGroupRequest::getBpartner)
+				.containsExactlyInAnyOrder(BPartnerClassifier.any(), BPartnerClassifier.specific(BPARTNER_ID)); // records without customer are for any bpartner
+	}
+
+	@Test
+	public void notStockCandidatesAreIgnored()
+	{
+		createStockRecord(null, BEFORE_NOW, "10");
+
+		final I_MD_Candidate demandRecord = createStockRecord(null, BEFORE_NOW, "100");
+		demandRecord.setMD_Candidate_Type(X_MD_Candidate.MD_CANDIDATE_TYPE_DEMAND);
+		save(demandRecord);
+
+		assertThat(retrieveQty(NOW, BPartnerClassifier.none())).isEqualByComparingTo("10");
+	}
+
+	@Test
+	public void onCandidateSaved_and_onCandidateDeleted()
+	{
+		final I_MD_Candidate stockRecord = createStockRecord(null, BEFORE_NOW, "10");
+		assertThat(retrieveQty(NOW, BPartnerClassifier.none())).isEqualByComparingTo("10");
+		assertThat(availableToPromiseIndex.isLoaded(PRODUCT_ID)).isTrue();
+
+		stockRecord.setQty(new BigDecimal("15"));
+		save(stockRecord);
+		availableToPromiseIndex.onCandidateSaved(stockRecord);
+		assertThat(retrieveQty(NOW, BPartnerClassifier.none())).isEqualByComparingTo("15");
+
+		final I_MD_Candidate newerStockRecord = createStockRecord(null, BEFORE_NOW.plusSeconds(1), "17");
+		availableToPromiseIndex.onCandidateSaved(newerStockRecord);
+		assertThat(retrieveQty(NOW, BPartnerClassifier.none())).isEqualByComparingTo("17");
+
+		availableToPromiseIndex.onCandidateDeleted(newerStockRecord);
+		assertThat(retrieveQty(NOW, BPartnerClassifier.none())).isEqualByComparingTo("15");
+	}
+
+	@Test
+	public void disabled()
+	{
+		createStockRecord(null, BEFORE_NOW, "10");
+		assertThat(retrieveQty(NOW, BPartnerClassifier.none())).isEqualByComparingTo("10");
+
+		Services.get(ISysConfigBL.class).setValue("de.metas.material.dispo.ATP.index.enabled", false, ClientId.SYSTEM, OrgId.ANY);
+
+		assertThat(availableToPromiseIndex.retrieveAddToResultGroupRequests(AvailableToPromiseMultiQuery.of(createQuery(NOW, BPartnerClassifier.none()))).isPresent()).isFalse();
+		assertThat(availableToPromiseIndex.isLoaded(PRODUCT_ID)).isFalse();
+	}
+
+	private BigDecimal retrieveQty(final Instant date, final BPartnerClassifier bpartner)
+	{
+		final AvailableToPromiseMultiQuery multiQuery = AvailableToPromiseMultiQuery.builder()
+				.query(createQuery(date, bpartner))
+				.addToPredefinedBuckets(false)
+				.build();
+		return availableToPromiseRepository.retrieveAvailableStockQtySum(multiQuery);
+	}
+
+	private List<AddToResultGroupRequest> retrieveRequests(final BPartnerClassifier bpartner)
+	{
+		final AvailableToPromiseMultiQuery multiQuery = AvailableToPromiseMultiQuery.of(createQuery(NOW, bpartner));
+		return availableToPromiseIndex.retrieveAddToResultGroupRequests(multiQuery).get();
+	}
+
+	private static AvailableToPromiseQuery createQuery(final Instant date, final BPartnerClassifier bpartner)
+	{
+		return AvailableToPromiseQuery.builder()
+				.productId(PRODUCT_ID)
+				.warehouseId(WAREHOUSE_ID)
+				.storageAttributesKeyPattern(AttributesKeyPatterns.ofAttributeKey(STORAGE_ATTRIBUTES_KEY))
+				.bpartner(bpartner)
+				.date(date.atZone(ZoneId.systemDefault()))
+				.build();
+	}
+
+	private I_MD_Candidate createStockRecord(final BPartnerId customerId, final Instant dateProjected, final String qty)
+	{
+		final I_MD_Candidate candidateRecord = newInstance(I_MD_Candidate.class);
+		candidateRecord.setIsActive(true);
+		candidateRecord.setMD_Candidate_Type(X_MD_Candidate.MD_CANDIDATE_TYPE_STOCK);
+		candidateRecord.setM_Product_ID(PRODUCT_ID);
+		candidateRecord.setM_Warehouse_ID(WAREHOUSE_ID.getRepoId());
+		candidateRecord.setC_BPartner_Customer_ID(BPartnerId.toRepoId(customerId));
+		candidateRecord.setStorageAttributesKey(STORAGE_ATTRIBUTES_KEY.getAsString());
+		candidateRecord.setDateProjected(TimeUtil.asTimestamp(dateProjected));
+		candidateRecord.setSeqNo(seqNoCounter++);
+		candidateRecord.setQty(new BigDecimal(qty));
+		save(candidateRecord);
+		return candidateRecord;
+	}
+}
@@ -0,0 +1,291 @@
+package de.metas.material.dispo.service.candidatechange;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+import javax.annotation.Nullable;
+
+import org.adempiere.ad.dao.impl.CompareQueryFilter;
+import org.adempiere.exceptions.AdempiereException;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Iterables;
+
+import de.metas.material.dispo.commons.candidate.Candidate;
+import de.metas.material.dispo.commons.repository.DateAndSeqNo;
+import de.metas.material.dispo.commons.repository.DateAndSeqNo.Operator;
+import de.metas.material.dispo.commons.repository.atp.BPartnerClassifier;
+import de.metas.material.dispo.commons.repository.query.CandidatesQuery;
+import de.metas.material.dispo.commons.repository.query.MaterialDescriptorQuery;
+import de.metas.material.dispo.commons.repository.query.MaterialDescriptorQuery.CustomerIdOperator;
+import de.metas.material.event.commons.MaterialDescriptor;
+import de.metas.material.event.pporder.MaterialDispoGroupId;
+import lombok.NonNull;
+import lombok.Value;
+
+/*
+ * #%L
+ * metasfresh-material-dispo-service
+ * %%
+ * Copyright (C) 2020 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+/**
+ * The quantity deltas which {@link StockCandidateService} did not yet add to the later stock candidates, because it is deferring them.
+ * <p>
+ * All deltas belong to one transaction, and the changes of each event within that transaction are guarded by a savepoint.
+ * The deltas of the current savepoint are dropped if it is rolled back.
+ * Also, deltas that were applied after the current savepoint are pending again if it is rolled back.
+ */
+final class DeferredStockUpdates
+{
+	@Value
+	static class StockDelta
+	{
+		/** Selects the stock candidates (incl. time range) to which {@link #qtyDelta} shall be added. */
+		@NonNull
+		CandidatesQuery stockQuery;
+
+		@NonNull
+		BigDecimal qtyDelta;
+
+		@Nullable
+		MaterialDispoGroupId groupId;
+
+		/**
+		 * @return the query's criteria without its time range, i.e. the stock candidates' "timeline" this delta belongs to.
+		 */
+		public CandidatesQuery getStockQueryWithoutTimeRange()
+		{
+			final MaterialDescriptorQuery materialDescriptorQuery = stockQuery.getMaterialDescriptorQuery()
+					.toBuilder()
+					.timeRangeStart(null)
+					.timeRangeEnd(null)
+					.build();
+			return stockQuery.withMaterialDescriptorQuery(materialDescriptorQuery);
+		}
+
+		/**
+		 * @return {@code true} if the given stock candidate is selected by {@link #stockQuery}.
+		 *         Needs to do the same as the SQL that {@code RepositoryCommons} creates for the query.
+		 */
+		public boolean isMatching(@NonNull final Candidate stockCandidate)
+		{
+			final MaterialDescriptorQuery query = stockQuery.getMaterialDescriptorQuery();
+			final MaterialDescriptor materialDescriptor = stockCandidate.getMaterialDescriptor();
+
+			if (query.getWarehouseId() != null && !Objects.equals(query.getWarehouseId(), materialDescriptor.getWarehouseId()))
+			{
+				return false;
+			}
+			if (query.getProductId() > 0 && query.getProductId() != materialDescriptor.getProductId())
+			{
+				return false;
+			}
+			if (!isMatchingCustomer(query, stockCandidate))
+			{
+				return false;
+			}
+			if (!query.getStorageAttributesKey().isAll() && !Objects.equals(query.getStorageAttributesKey(), materialDescriptor.getStorageAttributesKey()))
+			{
+				return false; // note that the StockCandidateService's queries always match the exact storage attributes key
+			}
+			return isMatchingTime(stockCandidate);
+		}
+
+		private static boolean isMatchingCustomer(@NonNull final MaterialDescriptorQuery query, @NonNull final Candidate stockCandidate)
+		{
+			final BPartnerClassifier customer = query.getCustomer();
+			if (customer.isSpecificBPartner())
+			{
+				final boolean nullCustomerMatches = CustomerIdOperator.GIVEN_ID_OR_NULL.equals(query.getCustomerIdOperator());
+				return Objects.equals(customer.getBpartnerId(), stockCandidate.getMaterialDescriptor().getCustomerId())
+						|| nullCustomerMatches && stockCandidate.getMaterialDescriptor().getCustomerId() == null;
+			}
+			else if (customer.isNone())
+			{
+				return stockCandidate.getMaterialDescriptor().getCustomerId() == null;
+			}
+			return true;
+		}
+
+		/**
+		 * @return {@code true} if the given stock candidate's date and seqNo are within the query's time range.
+		 */
+		public boolean isMatchingTime(@NonNull final Candidate stockCandidate)
+		{
+			final MaterialDescriptorQuery query = stockQuery.getMaterialDescriptorQuery();
+			final DateAndSeqNo time = DateAndSeqNo.ofCandidate(stockCandidate);
+
+			final DateAndSeqNo timeRangeStart = query.getTimeRangeStart();
+			if (timeRangeStart != null
+					&& !isMatching(time, timeRangeStart, timeRangeStart.getOperator() == Operator.INCLUSIVE ? CompareQueryFilter.Operator.GREATER_OR_EQUAL : CompareQueryFilter.Operator.GREATER))
+			{
+				return false;
+			}
+
+			final DateAndSeqNo timeRangeEnd = query.getTimeRangeEnd();
+			if (timeRangeEnd != null
+					&& !isMatching(time, timeRangeEnd, timeRangeEnd.getOperator() == Operator.INCLUSIVE ? CompareQueryFilter.Operator.LESS_OR_EQUAL : CompareQueryFilter.Operator.LESS))
+			{
+				return false;
+			}
+			return true;
+		}
+
+		/**
+		 * Like {@code RepositoryCommons.addDateAndSeqNoToBuilder}, i.e. {@code date <op> bound.date OR (date = bound.date AND seqNo <op> bound.seqNo)}.
+		 */
+		private static boolean isMatching(
+				@NonNull final DateAndSeqNo time,
+				@NonNull final DateAndSeqNo bound,
+				@NonNull final CompareQueryFilter.Operator operator)
+		{
+			final int dateComparison = time.getDate().compareTo(bound.getDate());
+			if (isMatching(dateComparison, operator))
+			{
+				return true;
+			}
+			return bound.getSeqNo() > 0
+					&& dateComparison == 0
+					&& isMatching(Integer.compare(time.getSeqNo(), bound.getSeqNo()), operator);
+		}
+
+		private static boolean isMatching(final int comparison, @NonNull final CompareQueryFilter.Operator operator)
+		{
+			switch (operator)
+			{
+				case GREATER:
+					return comparison > 0;
+				case GREATER_OR_EQUAL:
+					return comparison >= 0;
+				case LESS:
+					return comparison < 0;
+				case LESS_OR_EQUAL:
+					return comparison <= 0;
+				default:
+					throw new AdempiereException("Unexpected operator " + operator);
+			}
+		}
+	}
+
+	private final List<StockDelta> keptDeltas = new ArrayList<>();
+	private final List<Runnable> keptAfterUpdateActions = new ArrayList<>();
+
+	private final List<StockDelta> currentSavepointDeltas = new ArrayList<>();
+	private final List<Runnable> currentSavepointAfterUpdateActions = new ArrayList<>();
+
+	private final List<StockDelta> appliedDeltas = new ArrayList<>();
+	private final List<Runnable> appliedAfterUpdateActions = new ArrayList<>();
+
+	public void addDelta(@NonNull final StockDelta delta)
+	{
+		currentSavepointDeltas.add(delta);
+	}
+
+	/**
+	 * @param action to be run after the deferred deltas were applied, e.g. because it needs to query the up-to-date stock
+	 */
+	public void addAfterUpdateAction(@NonNull final Runnable action)
+	{
+		currentSavepointAfterUpdateActions.add(action);
+	}
+
+	/**
+	 * @return the sum of the pending deltas which are yet to be added to the given stock candidate
+	 */
+	public BigDecimal getPendingQtyDelta(@NonNull final Candidate stockCandidate)
+	{
+		BigDecimal result = BigDecimal.ZERO;
+		for (final StockDelta delta : Iterables.concat(keptDeltas, currentSavepointDeltas))
+		{
+			if (delta.isMatching(stockCandidate))
+			{
+				result = result.add(delta.getQtyDelta());
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Removes and returns the pending deltas, in the order in which they were added.
+	 * If the current savepoint is rolled back, they are pending again.
+	 */
+	public ImmutableList<StockDelta> takePendingDeltas()
+	{
+		final ImmutableList<StockDelta> result = ImmutableList.<StockDelta> builder()
+				.addAll(keptDeltas)
+				.addAll(currentSavepointDeltas)
+				.build();
+
+		appliedDeltas.addAll(keptDeltas);
+		keptDeltas.clear();
+		currentSavepointDeltas.clear(); // if the current savepoint is rolled back, they are dropped anyways
+
+		return result;
+	}
+
+	/**
+	 * Analog to {@link #takePendingDeltas()}.
+	 */
+	public ImmutableList<Runnable> takePendingAfterUpdateActions()
+	{
+		final ImmutableList<Runnable> result = ImmutableList.<Runnable> builder()
+				.addAll(keptAfterUpdateActions)
+				.addAll(currentSavepointAfterUpdateActions)
+				.build();
+
+		appliedAfterUpdateActions.addAll(keptAfterUpdateActions);
+		keptAfterUpdateActions.clear();
+		currentSavepointAfterUpdateActions.clear();
+
+		return result;
+	}
+
+	public void onSavepointReleased()
+	{
+		appliedDeltas.clear();
+		appliedAfterUpdateActions.clear();
+
+		keptDeltas.addAll(currentSavepointDeltas);
+		currentSavepointDeltas.clear();
+		keptAfterUpdateActions.addAll(currentSavepointAfterUpdateActions);
+		currentSavepointAfterUpdateActions.clear();
+	}
+
+	public void onSavepointRolledBack()
+	{
+		keptDeltas.addAll(0, appliedDeltas);
+		appliedDeltas.clear();
+		keptAfterUpdateActions.addAll(0, appliedAfterUpdateActions);
+		appliedAfterUpdateActions.clear();
+
+		currentSavepointDeltas.clear();
+		currentSavepointAfterUpdateActions.clear();
+	}
+
+	/**
+	 * @return the number of deltas that were not (yet) applied
+	 */
+	public int getNotAppliedDeltasCount()
+	{
+		return keptDeltas.size() + currentSavepointDeltas.size();
+	}
+}
@@ -1,16 +1,24 @@
 package de.metas.material.dispo.service.candidatechange;
 
+import static java.math.BigDecimal.ZERO;
 import static org.adempiere.model.InterfaceWrapperHelper.load;
-import static org.adempiere.model.InterfaceWrapperHelper.save;
 
 import java.math.BigDecimal;
 import java.time.Instant;
 import java.util.List;
 
+import javax.annotation.Nullable;
+
+import org.adempiere.service.ISysConfigBL;
 import org.compiere.util.TimeUtil;
 import org.springframework.context.annotation.Profile;
 import org.springframework.stereotype.Service;
 
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableListMultimap;
+import com.google.common.collect.Multimaps;
+
 import de.metas.Profiles;
 import de.metas.material.dispo.commons.candidate.Candidate;
 import de.metas.material.dispo.commons.candidate.CandidateId;
@@ -26,9 +34,12 @@ import de.metas.material.dispo.commons.repository.query.MaterialDescriptorQuery;
 import de.metas.material.dispo.commons.repository.query.MaterialDescriptorQuery.CustomerIdOperator;
 import de.metas.material.dispo.commons.repository.query.MaterialDescriptorQuery.MaterialDescriptorQueryBuilder;
 import de.metas.material.dispo.model.I_MD_Candidate;
+import de.metas.material.dispo.service.candidatechange.DeferredStockUpdates.StockDelta;
 import de.metas.material.event.commons.MaterialDescriptor;
 import de.metas.material.event.pporder.MaterialDispoGroupId;
 import de.metas.util.Check;
+import de.metas.util.Loggables;
+import de.metas.util.Services;
 import lombok.NonNull;
 
 /*
@@ -57,9 +68,19 @@ import lombok.NonNull;
 @Profile(Profiles.PROFILE_MaterialDispo)
 public class StockCandidateService
 {
+	/**
+	 * If {@code Y}, then {@link #applyDeltaToMatchingLaterStockCandidates(SaveResult)} updates the later stock candidates with one SQL {@code UPDATE} per time range,
+	 * instead of loading and saving them one by one.
+	 */
+	@VisibleForTesting
+	static final String SYSCONFIG_UpdateLaterStockCandidatesDirectly = "de.metas.material.dispo.StockCandidateService.updateLaterStockCandidatesDirectly";
+
 	private final CandidateRepositoryRetrieval candidateRepositoryRetrieval;
 	private final CandidateRepositoryWriteService candidateRepositoryWriteService;
 
+	/** Not null while the current thread defers the updates of later stock candidates; see {@link #startDeferringStockUpdates()}. */
+	private final ThreadLocal<DeferredStockUpdates> deferredStockUpdatesHolder = new ThreadLocal<>();
+
 	public StockCandidateService(
 			@NonNull final CandidateRepositoryRetrieval candidateRepositoryRetrieval,
 			@NonNull final CandidateRepositoryWriteService candidateRepositoryWriteService)
@@ -87,6 +108,7 @@ public class StockCandidateService
 	{
 		final CandidatesQuery previousStockQuery = createStockQueryUntilDate(candidate);
 		final Candidate previousStockOrNull = candidateRepositoryRetrieval.retrieveLatestMatchOrNull(previousStockQuery);
+		final DeferredStockUpdates deferredStockUpdates = deferredStockUpdatesHolder.get();
 
 		final BigDecimal newQty;
 		final BigDecimal previousQty;
@@ -97,7 +119,9 @@ public class StockCandidateService
 		}
 		else
 		{
-			previousQty = previousStockOrNull.getQuantity();
+			previousQty = deferredStockUpdates != null
+					? previousStockOrNull.getQuantity().add(deferredStockUpdates.getPendingQtyDelta(previousStockOrNull))
+					: previousStockOrNull.getQuantity();
 			newQty = previousQty.add(candidate.getQuantity());
 		}
 
@@ -109,7 +133,7 @@ public class StockCandidateService
 				? previousStockOrNull.getGroupId()
 				: null;
 
-		final Candidate stockCandidate = Candidate.builder()
+		Candidate stockCandidate = Candidate.builder()
 				.type(CandidateType.STOCK)
 				.clientAndOrgId(candidate.getClientAndOrgId())
 				.materialDescriptor(materialDescriptor)
@@ -117,6 +141,11 @@ public class StockCandidateService
 				.seqNo(candidate.getSeqNo())
 				.groupId(groupId)
 				.build();
+		if (deferredStockUpdates != null)
+		{
+			// the pending deltas will also be added to the new stock candidate, so it must not contain them yet
+			stockCandidate = stockCandidate.withQuantity(newQty.subtract(deferredStockUpdates.getPendingQtyDelta(stockCandidate)));
+		}
 
 		return SaveResult.builder()
 				.candidate(stockCandidate)
@@ -149,7 +178,7 @@ public class StockCandidateService
 
 		candidateRecord.setQty(candidateToUpdate.getQuantity());
 		candidateRecord.setDateProjected(TimeUtil.asTimestamp(candidateToUpdate.getDate()));
-		save(candidateRecord);
+		candidateRepositoryWriteService.saveCandidateRecord(candidateRecord);
 
 		return SaveResult.builder()
 				.candidate(candidateToUpdate)
@@ -197,15 +226,10 @@ public class StockCandidateService
 			deltaAfterRangeEnd = null;
 		}
 
-		final List<Candidate> candidatesToUpdateWithinRange = candidateRepositoryRetrieval.retrieveOrderedByDateAndSeqNo(query);
-		for (final Candidate candidate : candidatesToUpdateWithinRange)
-		{
-			final BigDecimal newQty = candidate.getQuantity().add(deltaUntilRangeEnd);
+		final MaterialDispoGroupId groupId = stockWithDelta.getCandidate().getGroupId();
+		final boolean updateDirectly = isUpdateLaterStockCandidatesDirectly();
 
-			candidateRepositoryWriteService.updateCandidateById(candidate
-					.withQuantity(newQty)
-					.withGroupId(stockWithDelta.getCandidate().getGroupId()));
-		}
+		addQtyToStockCandidates(query, deltaUntilRangeEnd, groupId, updateDirectly);
 		if (deltaAfterRangeEnd == null || deltaAfterRangeEnd.signum() == 0)
 		{
 			return; // we are done
@@ -217,17 +241,189 @@ public class StockCandidateService
 				.timeRangeEnd(null)
 				.build();
 		final CandidatesQuery queryAfterRange = query.withMaterialDescriptorQuery(materialDescriptToQueryAfterRange);
-		final List<Candidate> candidatesToUpdateAfterRange = candidateRepositoryRetrieval.retrieveOrderedByDateAndSeqNo(queryAfterRange);
-		for (final Candidate candidate : candidatesToUpdateAfterRange)
+		addQtyToStockCandidates(queryAfterRange, deltaAfterRangeEnd, groupId, updateDirectly);
+	}
+
+	private boolean isUpdateLaterStockCandidatesDirectly()
+	{
+		return Services.get(ISysConfigBL.class).getBooleanValue(SYSCONFIG_UpdateLaterStockCandidatesDirectly, false);
+	}
+
+	/**
+	 * Each stock candidate's {@code Qty} is the running stock at its time, so a delta needs to be added to all later stock candidates.
+	 * If {@link #SYSCONFIG_UpdateLaterStockCandidatesDirectly} is set, this is done with one SQL {@code UPDATE}, no matter how many stock candidates there are.
+	 * Otherwise each candidate is loaded and saved on its own.
+	 * <p>
+	 * Note that either way, the database still writes every later stock candidate, i.e. a change costs O(n) row writes, where n is the number of later stock candidates.
+	 * Only the number of statements and roundtrips is constant. Getting to O(log n) would require storing deltas instead of the running stock,
+	 * but {@code retrieve_atp_at_date}, the {@link de.metas.material.dispo.commons.repository.atp.AvailableToPromiseIndex}, the material cockpit and the {@code MD_Candidate} window
+	 * all read the stock candidates' {@code Qty} as running stock.
+	 * Within one batch of material events, the deltas are at least coalesced before they are written; see {@link #startDeferringStockUpdates()}.
+	 */
+	private void addQtyToStockCandidates(
+			@NonNull final CandidatesQuery stockQuery,
+			@NonNull final BigDecimal qtyDelta,
+			@Nullable final MaterialDispoGroupId groupId,
+			final boolean updateDirectly)
+	{
+		final DeferredStockUpdates deferredStockUpdates = deferredStockUpdatesHolder.get();
+		if (deferredStockUpdates != null)
+		{
+			deferredStockUpdates.addDelta(new StockDelta(stockQuery, qtyDelta, groupId));
+			return;
+		}
+
+		if (updateDirectly)
+		{
+			candidateRepositoryWriteService.addQtyToStockCandidates(stockQuery, qtyDelta, groupId);
+			return;
+		}
+
+		final List<Candidate> candidatesToUpdate = candidateRepositoryRetrieval.retrieveOrderedByDateAndSeqNo(stockQuery);
+		for (final Candidate candidate : candidatesToUpdate)
 		{
-			final BigDecimal newQty = candidate.getQuantity().add(deltaAfterRangeEnd);
+			final BigDecimal newQty = candidate.getQuantity().add(qtyDelta);
 
 			candidateRepositoryWriteService.updateCandidateById(candidate
 					.withQuantity(newQty)
-					.withGroupId(stockWithDelta.getCandidate().getGroupId()));
+					.withGroupId(groupId));
+		}
+	}
+
+	/**
+	 * From now on and until {@link #stopDeferringStockUpdates()}, the current thread does not add quantity deltas to later stock candidates right away, but collects them.
+	 * They are added once per stock candidate by {@link #applyDeferredStockUpdates()}, instead of once per change.
+	 * <p>
+	 * Meanwhile, {@link #createStockCandidate(Candidate)} takes the collected deltas into account.
+	 * <p>
+	 * The caller needs to run everything in one transaction and guard each unit of work (e.g. the handling of one event) with a savepoint.
+	 * It needs to invoke {@link #onDeferringSavepointReleased()} resp. {@link #onDeferringSavepointRolledBack()} after each savepoint, so that the deltas of rolled back work are dropped.
+	 * And it needs to invoke {@link #applyDeferredStockUpdates()} before that transaction is committed.
+	 */
+	public void startDeferringStockUpdates()
+	{
+		Check.errorIf(deferredStockUpdatesHolder.get() != null, "The current thread is already deferring stock updates");
+		deferredStockUpdatesHolder.set(new DeferredStockUpdates());
+	}
+
+	public void onDeferringSavepointReleased()
+	{
+		final DeferredStockUpdates deferredStockUpdates = deferredStockUpdatesHolder.get();
+		if (deferredStockUpdates != null)
+		{
+			deferredStockUpdates.onSavepointReleased();
+		}
+	}
+
+	public void onDeferringSavepointRolledBack()
+	{
+		final DeferredStockUpdates deferredStockUpdates = deferredStockUpdatesHolder.get();
+		if (deferredStockUpdates != null)
+		{
+			deferredStockUpdates.onSavepointRolledBack();
 		}
 	}
 
+	/**
+	 * Runs the given action right away or, if the current thread is deferring stock updates, after they were applied.
+	 * Use this for actions that need the up-to-date stock.
+	 */
+	public void runAfterStockUpdates(@NonNull final Runnable action)
+	{
+		final DeferredStockUpdates deferredStockUpdates = deferredStockUpdatesHolder.get();
+		if (deferredStockUpdates != null)
+		{
+			deferredStockUpdates.addAfterUpdateAction(action);
+		}
+		else
+		{
+			action.run();
+		}
+	}
+
+	/**
+	 * Adds the deltas that were collected since {@link #startDeferringStockUpdates()} to the stock candidates, within the current transaction.
+	 * Each affected stock candidate is loaded and saved once, no matter how many deltas there were.
+	 * Does nothing if the current thread is not deferring stock updates.
+	 */
+	public void applyDeferredStockUpdates()
+	{
+		final DeferredStockUpdates deferredStockUpdates = deferredStockUpdatesHolder.get();
+		if (deferredStockUpdates == null)
+		{
+			return;
+		}
+
+		final ImmutableListMultimap<CandidatesQuery, StockDelta> deltasByTimeline = Multimaps.index(
+				deferredStockUpdates.takePendingDeltas(),
+				StockDelta::getStockQueryWithoutTimeRange);
+		for (final CandidatesQuery timelineQuery : deltasByTimeline.keySet())
+		{
+			applyDeltasToTimeline(timelineQuery, deltasByTimeline.get(timelineQuery));
+		}
+
+		deferredStockUpdates.takePendingAfterUpdateActions().forEach(Runnable::run);
+	}
+
+	private void applyDeltasToTimeline(
+			@NonNull final CandidatesQuery timelineQuery,
+			@NonNull final ImmutableList<StockDelta> deltas)
+	{
+		// load the stock candidates from the earliest delta's range start onwards; which delta goes to which candidate is decided in memory
+		DateAndSeqNo earliestRangeStart = null;
+		for (final StockDelta delta : deltas)
+		{
+			final DateAndSeqNo rangeStart = delta.getStockQuery().getMaterialDescriptorQuery().getTimeRangeStart();
+			if (rangeStart == null)
+			{
+				earliestRangeStart = null;
+				break;
+			}
+			earliestRangeStart = rangeStart.withOperator(Operator.INCLUSIVE).min(earliestRangeStart);
+		}
+
+		final CandidatesQuery stockQuery = timelineQuery.withMaterialDescriptorQuery(timelineQuery.getMaterialDescriptorQuery()
+				.toBuilder()
+				.timeRangeStart(earliestRangeStart)
+				.build());
+
+		int updatedCount = 0;
+		for (final Candidate stockCandidate : candidateRepositoryRetrieval.retrieveOrderedByDateAndSeqNo(stockQuery))
+		{
+			BigDecimal qtyDelta = ZERO;
+			MaterialDispoGroupId groupId = null;
+			boolean matched = false;
+			for (final StockDelta delta : deltas)
+			{
+				if (delta.isMatchingTime(stockCandidate))
+				{
+					qtyDelta = qtyDelta.add(delta.getQtyDelta());
+					groupId = delta.getGroupId(); // like the last of the one-by-one updates
+					matched = true;
+				}
+			}
+			if (!matched)
+			{
+				continue;
+			}
+
+			candidateRepositoryWriteService.updateCandidateById(stockCandidate
+					.withQuantity(stockCandidate.getQuantity().add(qtyDelta))
+					.withGroupId(groupId));
+			updatedCount++;
+		}
+
+		Loggables.addLog("applyDeferredStockUpdates - applied {} deltas with {} stock candidate updates; stockQuery={}", deltas.size(), updatedCount, stockQuery);
+	}
+
+	/**
+	 * Ends what {@link #startDeferringStockUpdates()} started. Deltas which were not applied are dropped, because the transaction is expected to have been rolled back in that case.
+	 */
+	public void stopDeferringStockUpdates()
+	{
+		deferredStockUpdatesHolder.remove();
+	}
+
 	private CandidatesQuery createStockQueryUntilDate(
 			@NonNull final Candidate candidate)
 	{
@@ -123,7 +123,7 @@ public class DemandCandiateHandler implements CandidateHandler
 
 		if (savedCandidate.getType() == CandidateType.DEMAND)
 		{
-			fireSupplyRequiredEventIfQtyBelowZero(candidateToReturn);
+			stockCandidateService.runAfterStockUpdates(() -> fireSupplyRequiredEventIfQtyBelowZero(candidateToReturn));
 		}
 		return candidateToReturn;
 	}
@@ -133,6 +133,9 @@ public class DemandCandiateHandler implements CandidateHandler
 	{
 		assertCorrectCandidateType(candidate);
 
+		// the deleted stock candidate's qty is used below, so it needs to be up to date
+		stockCandidateService.applyDeferredStockUpdates();
+
 		candidateRepositoryWriteService.deleteCandidatebyId(candidate.getId());
 
 		final Optional<Candidate> childStockCandidate = candidateRepository.retrieveSingleChild(candidate.getId());
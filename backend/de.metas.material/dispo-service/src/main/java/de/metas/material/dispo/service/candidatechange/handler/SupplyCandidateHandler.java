@@ -121,6 +121,9 @@ public class SupplyCandidateHandler implements CandidateHandler
 	{
 		assertCorrectCandidateType(candidate);
 
+		// the deleted stock candidate's qty is used below, so it needs to be up to date
+		stockCandidateService.applyDeferredStockUpdates();
+
 		candidateRepositoryWriteService.deleteCandidatebyId(candidate.getId());
 
 		final DeleteResult stockDeleteResult = candidateRepositoryWriteService.deleteCandidatebyId(candidate.getParentId());
@@ -0,0 +1,78 @@
+package de.metas.material.dispo.service.event;
+
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Service;
+
+import de.metas.Profiles;
+import de.metas.material.dispo.service.candidatechange.StockCandidateService;
+import de.metas.material.event.MaterialEventBatchListener;
+import lombok.NonNull;
+
+/*
+ * #%L
+ * metasfresh-material-dispo-service
+ * %%
+ * Copyright (C) 2020 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+/**
+ * While a batch of material events about one product and warehouse is handled, the later stock candidates are not updated per event.
+ * Instead, {@link StockCandidateService} collects the changes of the events which were not rolled back and applies them once at the end of the batch,
+ * within the batch's transaction. So the changes are committed together with the events that caused them, or not at all.
+ */
+@Service
+@Profile(Profiles.PROFILE_MaterialDispo)
+public class StockCandidateBatchListener implements MaterialEventBatchListener
+{
+	private final StockCandidateService stockCandidateService;
+
+	public StockCandidateBatchListener(@NonNull final StockCandidateService stockCandidateService)
+	{
+		this.stockCandidateService = stockCandidateService;
+	}
+
+	@Override
+	public void onBatchStart()
+	{
+		stockCandidateService.startDeferringStockUpdates();
+	}
+
+	@Override
+	public void onEventHandled()
+	{
+		stockCandidateService.onDeferringSavepointReleased();
+	}
+
+	@Override
+	public void onEventRolledBack()
+	{
+		stockCandidateService.onDeferringSavepointRolledBack();
+	}
+
+	@Override
+	public void beforeBatchCommit()
+	{
+		stockCandidateService.applyDeferredStockUpdates();
+	}
+
+	@Override
+	public void onBatchEnd()
+	{
+		stockCandidateService.stopDeferringStockUpdates();
+	}
+}
@@ -18,8 +18,11 @@ import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import java.math.BigDecimal;
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
 import java.util.List;
 
+import org.adempiere.service.ClientId;
+import org.adempiere.service.ISysConfigBL;
 import org.adempiere.test.AdempiereTestHelper;
 import org.adempiere.test.AdempiereTestWatcher;
 import org.compiere.util.TimeUtil;
@@ -38,6 +41,8 @@ import de.metas.material.dispo.commons.repository.CandidateRepositoryWriteServic
 import de.metas.material.dispo.commons.repository.DateAndSeqNo;
 import de.metas.material.dispo.model.I_MD_Candidate;
 import de.metas.material.event.commons.MaterialDescriptor;
+import de.metas.organization.OrgId;
+import de.metas.util.Services;
 import lombok.NonNull;
 
 /*
@@ -77,12 +82,16 @@ public class StockCandidateServiceTests
 
 	private int parentIdSequence;
 
+	/** If {@code true}, then {@link #applyDeltaToMatchingLaterStockCandidates(SaveResult)} defers the stock updates, like it's done for a batch of events. */
+	private boolean deferStockUpdates;
+
 	@BeforeEach
 	public void init()
 	{
 		AdempiereTestHelper.get().init();
 
 		parentIdSequence = 1;
+		deferStockUpdates = false;
 
 		final CandidateRepositoryRetrieval candidateRepository = new CandidateRepositoryRetrieval();
 
@@ -358,8 +367,7 @@ public class StockCandidateServiceTests
 				.build();
 
 		// invoke the method under test
-		stockCandidateService
-				.applyDeltaToMatchingLaterStockCandidates(appliedSaveResult);
+		applyDeltaToMatchingLaterStockCandidates(appliedSaveResult);
 
 		// expecting (t1 => 10), (t2 => 7), (t3 => 4), (t4 => 6), (t6 => 11)
 		final List<I_MD_Candidate> records = DispoTestUtils.sortByDateProjected(DispoTestUtils.filter(CandidateType.STOCK));
@@ -407,8 +415,7 @@ public class StockCandidateServiceTests
 				.build();
 
 		// invoke the method under test
-		stockCandidateService
-				.applyDeltaToMatchingLaterStockCandidates(appliedSaveResult);
+		applyDeltaToMatchingLaterStockCandidates(appliedSaveResult);
 
 		// expecting (t1 => 10), (t3 => 7), (t4 => 9), (t5 => 6), (t6 => 11)
 		final List<I_MD_Candidate> records = DispoTestUtils.sortByDateProjected(DispoTestUtils.filter(CandidateType.STOCK));
@@ -420,6 +427,263 @@ public class StockCandidateServiceTests
 		assertDateAndQty(records.get(4), t6, "11");
 	}
 
+	@Test
+	public void addOrUpdateStock_move_backwards_updateDirectly()
+	{
+		enableUpdateLaterStockCandidatesDirectly();
+		addOrUpdateStock_move_backwards();
+	}
+
+	@Test
+	public void addOrUpdateStock_move_forwards_updateDirectly()
+	{
+		enableUpdateLaterStockCandidatesDirectly();
+		addOrUpdateStock_move_forwards();
+	}
+
+	@Test
+	public void addOrUpdateStock_with_non_chronological_updates_updateDirectly()
+	{
+		enableUpdateLaterStockCandidatesDirectly();
+		addOrUpdateStock_with_non_chronological_updates();
+	}
+
+	@Test
+	public void addOrUpdateStock_move_backwards_deferred()
+	{
+		deferStockUpdates = true;
+		addOrUpdateStock_move_backwards();
+	}
+
+	@Test
+	public void addOrUpdateStock_move_forwards_deferred()
+	{
+		deferStockUpdates = true;
+		addOrUpdateStock_move_forwards();
+	}
+
+	/**
+	 * Inserts and moves stock candidates while deferring the stock updates, and verifies that the outcome is the same as without deferring.
+	 */
+	@Test
+	public void addOrUpdateStock_deferred_insertAndMove_sameAsOneByOne()
+	{
+		final List<String> expected = insertAndMoveStockCandidates(false);
+		final List<String> actual = insertAndMoveStockCandidates(true);
+
+		assertThat(actual).isEqualTo(expected);
+	}
+
+	private List<String> insertAndMoveStockCandidates(final boolean deferred)
+	{
+		init(); // start with an empty database
+
+		invokeStockCandidateService(t1, "10");
+		final SaveResult t2SaveResult = invokeStockCandidateService(t2, "-3");
+		invokeStockCandidateService(t3, "-3");
+		invokeStockCandidateService(t4, "2");
+		final SaveResult t5SaveResult = invokeStockCandidateService(t5, "-3");
+		invokeStockCandidateService(t6, "5");
+
+		if (deferred)
+		{
+			stockCandidateService.startDeferringStockUpdates();
+		}
+
+		invokeStockCandidateService(t3.plus(5, ChronoUnit.MINUTES), "1");
+		onSavepointReleasedIfDeferring(deferred);
+
+		moveStockCandidate(t5SaveResult, t2.plus(5, ChronoUnit.MINUTES)); // backwards
+		onSavepointReleasedIfDeferring(deferred);
+
+		moveStockCandidate(t2SaveResult, t4.plus(5, ChronoUnit.MINUTES)); // forwards
+		onSavepointReleasedIfDeferring(deferred);
+
+		invokeStockCandidateService(t1.plus(5, ChronoUnit.MINUTES), "-1");
+		onSavepointReleasedIfDeferring(deferred);
+
+		if (deferred)
+		{
+			stockCandidateService.applyDeferredStockUpdates();
+			stockCandidateService.stopDeferringStockUpdates();
+		}
+
+		final List<String> result = new ArrayList<>();
+		for (final I_MD_Candidate record : DispoTestUtils.sortByDateProjected(DispoTestUtils.filter(CandidateType.STOCK)))
+		{
+			result.add(TimeUtil.asInstant(record.getDateProjected()) + "=" + record.getQty().stripTrailingZeros().toPlainString());
+		}
+		return result;
+	}
+
+	private void onSavepointReleasedIfDeferring(final boolean deferred)
+	{
+		if (deferred)
+		{
+			stockCandidateService.onDeferringSavepointReleased();
+		}
+	}
+
+	/**
+	 * Moves the given stock candidate to the given date, the same way {@link de.metas.material.dispo.service.candidatechange.handler.SupplyCandidateHandler} does it when a supply candidate's date changed.
+	 *
+	 * @param stockSaveResult the result of {@link #invokeStockCandidateService(Instant, String)}, i.e. its candidate's qty is the delta that it added to the stock
+	 */
+	private void moveStockCandidate(@NonNull final SaveResult stockSaveResult, @NonNull final Instant newDate)
+	{
+		final Candidate stockCandidateWithDelta = stockSaveResult.getCandidate();
+		final Candidate movedCandidateWithDelta = stockCandidateWithDelta.withDate(newDate);
+
+		final SaveResult stockCandidate = stockCandidateService
+				.createStockCandidate(movedCandidateWithDelta)
+				.withCandidateId(stockCandidateWithDelta.getId());
+
+		final SaveResult savedStockCandidate = candidateRepositoryWriteService.addOrUpdateOverwriteStoredSeqNo(stockCandidate.getCandidate());
+
+		stockCandidateService.applyDeltaToMatchingLaterStockCandidates(SaveResult.builder()
+				.candidate(movedCandidateWithDelta)
+				.previousQty(stockCandidateWithDelta.getQuantity())
+				.previousTime(savedStockCandidate.getPreviousTime())
+				.build());
+	}
+
+	@Test
+	public void addOrUpdateStock_with_non_chronological_updates_deferred()
+	{
+		stockCandidateService.startDeferringStockUpdates();
+
+		invokeStockCandidateService(t1, "10");
+		stockCandidateService.onDeferringSavepointReleased();
+		invokeStockCandidateService(t4, "2");
+		stockCandidateService.onDeferringSavepointReleased();
+		invokeStockCandidateService(t3, "-3");
+		stockCandidateService.onDeferringSavepointReleased();
+		invokeStockCandidateService(t2, "-4");
+		stockCandidateService.onDeferringSavepointReleased();
+
+		stockCandidateService.applyDeferredStockUpdates();
+		stockCandidateService.stopDeferringStockUpdates();
+
+		// same as with the one-by-one updates: (t1 => 10), (t2 => 6), (t3 => 3), (t4 => 5)
+		final List<I_MD_Candidate> records = DispoTestUtils.sortByDateProjected(DispoTestUtils.retrieveAllRecords());
+		assertThat(records).hasSize(4);
+		assertDateAndQty(records.get(0), t1, "10");
+		assertDateAndQty(records.get(1), t2, "6");
+		assertDateAndQty(records.get(2), t3, "3");
+		assertDateAndQty(records.get(3), t4, "5");
+	}
+
+	@Test
+	public void addOrUpdateStock_deferred_applyInBetween()
+	{
+		stockCandidateService.startDeferringStockUpdates();
+
+		invokeStockCandidateService(t1, "10");
+		invokeStockCandidateService(t4, "2");
+		stockCandidateService.onDeferringSavepointReleased();
+
+		stockCandidateService.applyDeferredStockUpdates();
+		invokeStockCandidateService(t3, "-3");
+		stockCandidateService.onDeferringSavepointReleased();
+
+		invokeStockCandidateService(t2, "-4");
+		stockCandidateService.onDeferringSavepointReleased();
+
+		stockCandidateService.applyDeferredStockUpdates();
+		stockCandidateService.stopDeferringStockUpdates();
+
+		final List<I_MD_Candidate> records = DispoTestUtils.sortByDateProjected(DispoTestUtils.retrieveAllRecords());
+		assertThat(records).hasSize(4);
+		assertDateAndQty(records.get(0), t1, "10");
+		assertDateAndQty(records.get(1), t2, "6");
+		assertDateAndQty(records.get(2), t3, "3");
+		assertDateAndQty(records.get(3), t4, "5");
+	}
+
+	@Test
+	public void addOrUpdateStock_deferred_rolledBackDeltasAreDropped()
+	{
+		invokeStockCandidateService(t1, "10"); // (t1 => 10)
+		invokeStockCandidateService(t4, "2");  // (t1 => 10), (t4 => 12)
+
+		stockCandidateService.startDeferringStockUpdates();
+
+		invokeStockCandidateService(t3, "-3");
+		stockCandidateService.onDeferringSavepointReleased();
+
+		invokeStockCandidateService(t2, "-4");
+		stockCandidateService.onDeferringSavepointRolledBack(); // in reality, the t2 record would now be gone as well
+
+		stockCandidateService.applyDeferredStockUpdates();
+		stockCandidateService.stopDeferringStockUpdates();
+
+		// only the kept t3 change was applied to t4
+		final List<I_MD_Candidate> records = DispoTestUtils.sortByDateProjected(DispoTestUtils.retrieveAllRecords());
+		assertThat(records).hasSize(4);
+		assertDateAndQty(records.get(2), t3, "7");
+		assertDateAndQty(records.get(3), t4, "9");
+	}
+
+	@Test
+	public void runAfterStockUpdates_deferred()
+	{
+		final List<String> actions = new ArrayList<>();
+
+		stockCandidateService.startDeferringStockUpdates();
+
+		stockCandidateService.runAfterStockUpdates(() -> actions.add("kept"));
+		stockCandidateService.onDeferringSavepointReleased();
+		stockCandidateService.runAfterStockUpdates(() -> actions.add("rolledBack"));
+		stockCandidateService.onDeferringSavepointRolledBack();
+		assertThat(actions).isEmpty();
+
+		stockCandidateService.applyDeferredStockUpdates();
+		stockCandidateService.stopDeferringStockUpdates();
+
+		assertThat(actions).containsExactly("kept");
+
+		// not deferring anymore
+		stockCandidateService.runAfterStockUpdates(() -> actions.add("immediately"));
+		assertThat(actions).containsExactly("kept", "immediately");
+	}
+
+	private void applyDeltaToMatchingLaterStockCandidates(@NonNull final SaveResult saveResult)
+	{
+		if (!deferStockUpdates)
+		{
+			stockCandidateService.applyDeltaToMatchingLaterStockCandidates(saveResult);
+			return;
+		}
+
+		final List<BigDecimal> qtysBefore = retrieveStockQtys();
+
+		stockCandidateService.startDeferringStockUpdates();
+		stockCandidateService.applyDeltaToMatchingLaterStockCandidates(saveResult);
+		stockCandidateService.onDeferringSavepointReleased();
+
+		assertThat(retrieveStockQtys())
+				.as("the later stock candidates are not updated before the deferred updates are applied")
+				.isEqualTo(qtysBefore);
+
+		stockCandidateService.applyDeferredStockUpdates();
+		stockCandidateService.stopDeferringStockUpdates();
+	}
+
+	private static List<BigDecimal> retrieveStockQtys()
+	{
+		final List<BigDecimal> result = new ArrayList<>();
+		for (final I_MD_Candidate record : DispoTestUtils.sortByDateProjected(DispoTestUtils.filter(CandidateType.STOCK)))
+		{
+			result.add(record.getQty());
+		}
+		return result;
+	}
+
+	private void enableUpdateLaterStockCandidatesDirectly()
+	{
+		Services.get(ISysConfigBL.class).setValue(StockCandidateService.SYSCONFIG_UpdateLaterStockCandidatesDirectly, true, ClientId.SYSTEM, OrgId.ANY);
+	}
+
 	private void assertDateAndQty(
 			@NonNull final I_MD_Candidate candidateRecord,
 			@NonNull final Instant t,
@@ -0,0 +1,56 @@
+package de.metas.material.event;
+
+import org.adempiere.util.lang.IAutoCloseable;
+
+import de.metas.event.Event;
+import de.metas.event.log.EventLogEntryCollector;
+import lombok.NonNull;
+import lombok.Value;
+
+/*
+ * #%L
+ * metasfresh-material-event
+ * %%
+ * Copyright (C) 2020 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+/**
+ * A material event that is handled as part of a batch, together with the event bus {@link Event} it was received with.
+ */
+@Value(staticConstructor = "of")
+public class BatchedMaterialEvent
+{
+	@NonNull
+	MaterialEvent materialEvent;
+
+	@NonNull
+	Event event;
+
+	/**
+	 * Makes sure that what the event handlers log is stored in the event log of this particular event.
+	 * Needed because the event bus only does this while it invokes the listener, and batched events are handled later.
+	 */
+	public IAutoCloseable switchEventLogCollector()
+	{
+		if (!event.isWasLogged())
+		{
+			return () -> {};
+		}
+		return EventLogEntryCollector.createThreadLocalForEvent(event);
+	}
+}
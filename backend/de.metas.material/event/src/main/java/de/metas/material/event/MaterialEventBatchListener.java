@@ -0,0 +1,53 @@
+package de.metas.material.event;
+
+/*
+ * #%L
+ * metasfresh-material-event
+ * %%
+ * Copyright (C) 2020 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+/**
+ * Gets notified while {@link de.metas.material.event.eventbus.MetasfreshEventListener} handles a batch of events that are all about the same client, org, product and warehouse.
+ * <p>
+ * All events of a batch are handled in one transaction, each within its own savepoint, so that one failing event does not roll back the others.
+ * Implementations can use the notifications to do work once per batch that would otherwise be done once per event.
+ * If that work fails, the whole batch is rolled back and its events are handled again one by one, without batch notifications.
+ */
+public interface MaterialEventBatchListener
+{
+	/** Called within the batch's transaction, before the first event is handled. */
+	void onBatchStart();
+
+	/** Called after one event of the current batch was handled and its savepoint was released. */
+	void onEventHandled();
+
+	/** Called after the changes of one event of the current batch were rolled back to its savepoint. */
+	void onEventRolledBack();
+
+	/**
+	 * Called within the batch's transaction, after the last event was handled and before the transaction is committed.
+	 * Throwing an exception rolls back the whole batch.
+	 */
+	void beforeBatchCommit();
+
+	/**
+	 * Called after the batch's transaction was committed or rolled back.
+	 */
+	void onBatchEnd();
+}
@@ -0,0 +1,292 @@
+package de.metas.material.event.eventbus;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import javax.annotation.Nullable;
+
+import org.adempiere.service.ClientId;
+import org.adempiere.service.ISysConfigBL;
+import org.adempiere.util.concurrent.CustomizableThreadFactory;
+import org.adempiere.warehouse.WarehouseId;
+import org.slf4j.Logger;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.ImmutableList;
+
+import de.metas.logging.LogManager;
+import de.metas.material.event.BatchedMaterialEvent;
+import de.metas.material.event.MaterialEvent;
+import de.metas.material.event.commons.EventDescriptor;
+import de.metas.material.event.commons.MaterialDescriptor;
+import de.metas.material.event.receiptschedule.AbstractReceiptScheduleEvent;
+import de.metas.material.event.shipmentschedule.AbstractShipmentScheduleEvent;
+import de.metas.material.event.transactions.AbstractTransactionEvent;
+import de.metas.organization.OrgId;
+import de.metas.util.Services;
+import lombok.NonNull;
+import lombok.Value;
+
+/*
+ * #%L
+ * metasfresh-material-event
+ * %%
+ * Copyright (C) 2020 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+/**
+ * Collects the material events that arrive within a short time window and hands them over in batches.
+ * <p>
+ * Events that are about one material descriptor (shipment schedule, receipt schedule and transaction events) are grouped by client, org, product and warehouse.
+ * The events of one group are handed over in the order in which they arrived, also if they are split into several batches.
+ * Events of different groups can be handed over in a different order than they arrived.
+ * All other events (e.g. PP- or DD-order events, which can be about many products) are handed over one by one. They also act as a barrier,
+ * i.e. the batches that were collected before such an event are handed over before it.
+ * <p>
+ * Batching is disabled by default; see {@link #SYSCONFIG_WindowMillis}.
+ */
+public final class MaterialEventBatcher
+{
+	private static final Logger logger = LogManager.getLogger(MaterialEventBatcher.class);
+
+	/** How long to wait for more events after the first one arrived. A value {@code <= 0} means that events are not batched. */
+	private static final String SYSCONFIG_WindowMillis = "de.metas.material.event.batch.windowMillis";
+
+	private static final String SYSCONFIG_MaxBatchSize = "de.metas.material.event.batch.maxSize";
+	private static final int DEFAULT_MaxBatchSize = 100;
+
+	/** Limits how many events are kept in memory while waiting for the window to end. */
+	private static final int MAX_EVENTS_PER_WINDOW = 10000;
+
+	private final ISysConfigBL sysConfigBL = Services.get(ISysConfigBL.class);
+
+	private final Consumer<List<BatchedMaterialEvent>> batchHandler;
+	private final LinkedBlockingQueue<BatchedMaterialEvent> queue = new LinkedBlockingQueue<>();
+
+	/** Events that were enqueued but not yet handled, incl. those which were already taken from the {@link #queue}. */
+	private final AtomicInteger pendingEventsCount = new AtomicInteger(0);
+
+	private ExecutorService worker; // lazy
+
+	MaterialEventBatcher(@NonNull final Consumer<List<BatchedMaterialEvent>> batchHandler)
+	{
+		this.batchHandler = batchHandler;
+	}
+
+	public boolean isEnabled()
+	{
+		return getWindowMillis() > 0;
+	}
+
+	private int getWindowMillis()
+	{
+		return sysConfigBL.getIntValue(SYSCONFIG_WindowMillis, 0);
+	}
+
+	/**
+	 * @return {@code true} if there are enqueued events which were not handled yet.
+	 *         Events need to be enqueued until then, even if batching is disabled meanwhile, or they would be handled out of order and concurrently with the queued ones.
+	 */
+	public boolean hasPendingEvents()
+	{
+		return pendingEventsCount.get() > 0;
+	}
+
+	public void enqueue(@NonNull final BatchedMaterialEvent event)
+	{
+		startWorkerIfNeeded();
+		pendingEventsCount.incrementAndGet();
+		queue.add(event);
+	}
+
+	private synchronized void startWorkerIfNeeded()
+	{
+		if (worker != null)
+		{
+			return;
+		}
+
+		worker = Executors.newSingleThreadExecutor(CustomizableThreadFactory.builder()
+				.setThreadNamePrefix(MaterialEventBatcher.class.getSimpleName())
+				.setDaemon(true)
+				.build());
+		worker.execute(this::processQueue);
+	}
+
+	private void processQueue()
+	{
+		while (!Thread.currentThread().isInterrupted())
+		{
+			try
+			{
+				final List<BatchedMaterialEvent> events = takeEventsOfNextWindow();
+				final int maxBatchSize = sysConfigBL.getIntValue(SYSCONFIG_MaxBatchSize, DEFAULT_MaxBatchSize);
+
+				for (final List<BatchedMaterialEvent> batch : toBatches(events, maxBatchSize))
+				{
+					handleBatch(batch);
+				}
+			}
+			catch (final InterruptedException ex)
+			{
+				Thread.currentThread().interrupt();
+			}
+			catch (final RuntimeException ex)
+			{
+				logger.error("Got exception while processing the queued events; continuing with the next ones", ex);
+			}
+		}
+	}
+
+	private List<BatchedMaterialEvent> takeEventsOfNextWindow() throws InterruptedException
+	{
+		final List<BatchedMaterialEvent> events = new ArrayList<>();
+		events.add(queue.take());
+
+		final long windowEndMillis = System.currentTimeMillis() + getWindowMillis();
+		while (events.size() < MAX_EVENTS_PER_WINDOW)
+		{
+			final long remainingMillis = windowEndMillis - System.currentTimeMillis();
+			final BatchedMaterialEvent event = remainingMillis > 0
+					? queue.poll(remainingMillis, TimeUnit.MILLISECONDS)
+					: queue.poll(); // e.g. batching was disabled meanwhile; still take what is already queued
+			if (event == null)
+			{
+				break;
+			}
+			events.add(event);
+		}
+
+		return events;
+	}
+
+	private void handleBatch(@NonNull final List<BatchedMaterialEvent> batch)
+	{
+		try
+		{
+			batchHandler.accept(batch);
+		}
+		catch (final Exception ex)
+		{
+			logger.error("Failed handling batch of {} events: {}", batch.size(), batch, ex);
+		}
+		finally
+		{
+			pendingEventsCount.addAndGet(-batch.size());
+		}
+	}
+
+	@VisibleForTesting
+	static ImmutableList<ImmutableList<BatchedMaterialEvent>> toBatches(
+			@NonNull final List<BatchedMaterialEvent> events,
+			final int maxBatchSize)
+	{
+		final ImmutableList.Builder<ImmutableList<BatchedMaterialEvent>> batches = ImmutableList.builder();
+		final LinkedHashMap<BatchKey, List<BatchedMaterialEvent>> openBatches = new LinkedHashMap<>();
+
+		for (final BatchedMaterialEvent event : events)
+		{
+			final BatchKey key = BatchKey.ofEventOrNull(event.getMaterialEvent());
+			if (key == null)
+			{
+				closeBatches(openBatches, batches);
+				batches.add(ImmutableList.of(event));
+				continue;
+			}
+
+			final List<BatchedMaterialEvent> batch = openBatches.computeIfAbsent(key, k -> new ArrayList<>());
+			batch.add(event);
+			if (batch.size() >= maxBatchSize)
+			{
+				batches.add(ImmutableList.copyOf(batch));
+				openBatches.remove(key);
+			}
+		}
+
+		closeBatches(openBatches, batches);
+		return batches.build();
+	}
+
+	private static void closeBatches(
+			@NonNull final LinkedHashMap<BatchKey, List<BatchedMaterialEvent>> openBatches,
+			@NonNull final ImmutableList.Builder<ImmutableList<BatchedMaterialEvent>> batches)
+	{
+		openBatches.values().forEach(batch -> batches.add(ImmutableList.copyOf(batch)));
+		openBatches.clear();
+	}
+
+	@Value
+	private static class BatchKey
+	{
+		@Nullable
+		public static BatchKey ofEventOrNull(@NonNull final MaterialEvent event)
+		{
+			final MaterialDescriptor materialDescriptor = extractMaterialDescriptorOrNull(event);
+			if (materialDescriptor == null)
+			{
+				return null;
+			}
+
+			final EventDescriptor eventDescriptor = event.getEventDescriptor();
+			return new BatchKey(
+					eventDescriptor.getClientId(),
+					eventDescriptor.getOrgId(),
+					materialDescriptor.getProductId(),
+					materialDescriptor.getWarehouseId());
+		}
+
+		@Nullable
+		private static MaterialDescriptor extractMaterialDescriptorOrNull(@NonNull final MaterialEvent event)
+		{
+			if (event instanceof AbstractShipmentScheduleEvent)
+			{
+				return ((AbstractShipmentScheduleEvent)event).getMaterialDescriptor();
+			}
+			else if (event instanceof AbstractReceiptScheduleEvent)
+			{
+				return ((AbstractReceiptScheduleEvent)event).getMaterialDescriptor();
+			}
+			else if (event instanceof AbstractTransactionEvent)
+			{
+				return ((AbstractTransactionEvent)event).getMaterialDescriptor();
+			}
+			else
+			{
+				return null;
+			}
+		}
+
+		@NonNull
+		ClientId clientId;
+
+		@NonNull
+		OrgId orgId;
+
+		int productId;
+
+		@Nullable
+		WarehouseId warehouseId;
+	}
+}
@@ -1,5 +1,8 @@
 package de.metas.material.event.eventbus;
 
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
 import java.util.Properties;
 
 import org.adempiere.ad.trx.api.ITrxManager;
@@ -12,11 +15,16 @@ import org.slf4j.MDC.MDCCloseable;
 import org.springframework.context.annotation.DependsOn;
 import org.springframework.stereotype.Service;
 
+import com.google.common.collect.ImmutableList;
+
 import de.metas.event.Event;
 import de.metas.event.IEventBus;
 import de.metas.event.IEventListener;
+import de.metas.event.log.EventLogUserService;
 import de.metas.logging.LogManager;
+import de.metas.material.event.BatchedMaterialEvent;
 import de.metas.material.event.MaterialEvent;
+import de.metas.material.event.MaterialEventBatchListener;
 import de.metas.material.event.MaterialEventHandlerRegistry;
 import de.metas.util.Services;
 import lombok.NonNull;
@@ -55,6 +63,12 @@ public class MetasfreshEventListener
 
 	private final MaterialEventConverter materialEventConverter;
 
+	private final EventLogUserService eventLogUserService;
+
+	private final ImmutableList<MaterialEventBatchListener> batchListeners;
+
+	private final MaterialEventBatcher batcher = new MaterialEventBatcher(this::onBatch);
+
 	private final IEventListener internalListener = new IEventListener()
 	{
 		@Override
@@ -65,26 +79,20 @@ public class MetasfreshEventListener
 			{
 				logger.info("Received MaterialEvent={}", lightWeightEvent);
 
-				// make sure that every record we create has the correct AD_Client_ID and AD_Org_ID
-				final Properties temporaryCtx = Env.copyCtx(Env.getCtx());
-
-				Env.setClientId(temporaryCtx, lightWeightEvent.getEventDescriptor().getClientId());
-				Env.setOrgId(temporaryCtx, lightWeightEvent.getEventDescriptor().getOrgId());
+				// if batching was disabled meanwhile, still enqueue until the already queued events are handled, so that the events' order is preserved
+				if (batcher.isEnabled() || batcher.hasPendingEvents())
+				{
+					batcher.enqueue(BatchedMaterialEvent.of(lightWeightEvent, event));
+					return;
+				}
 
-				try (final IAutoCloseable ctx = Env.switchContext(temporaryCtx))
+				try (final IAutoCloseable ctx = switchContext(lightWeightEvent))
 				{
 					invokeListenerInTrx(lightWeightEvent);
 				}
 			}
 		}
 
-		private void invokeListenerInTrx(@NonNull final MaterialEvent materialEvent)
-		{
-			Services.get(ITrxManager.class).runInNewTrx(() -> {
-				materialEventHandlerRegistry.onEvent(materialEvent);
-			});
-		}
-
 		@Override
 		public String toString()
 		{
@@ -95,12 +103,128 @@ public class MetasfreshEventListener
 	public MetasfreshEventListener(
 			@NonNull final MaterialEventHandlerRegistry materialEventHandlerRegistry,
 			@NonNull final MetasfreshEventBusService metasfreshEventBusService,
-			@NonNull final MaterialEventConverter materialEventConverter)
+			@NonNull final MaterialEventConverter materialEventConverter,
+			@NonNull final EventLogUserService eventLogUserService,
+			@NonNull final Optional<Collection<MaterialEventBatchListener>> batchListeners)
 	{
 		this.materialEventConverter = materialEventConverter;
+		this.eventLogUserService = eventLogUserService;
 		this.materialEventHandlerRegistry = materialEventHandlerRegistry;
 		this.metasfreshEventBusService = metasfreshEventBusService;
+		this.batchListeners = ImmutableList.copyOf(batchListeners.orElse(ImmutableList.of()));
 
 		this.metasfreshEventBusService.subscribe(internalListener);
 	}
+
+	/**
+	 * Make sure that every record we create has the correct AD_Client_ID and AD_Org_ID
+	 */
+	private static IAutoCloseable switchContext(@NonNull final MaterialEvent materialEvent)
+	{
+		final Properties temporaryCtx = Env.copyCtx(Env.getCtx());
+
+		Env.setClientId(temporaryCtx, materialEvent.getEventDescriptor().getClientId());
+		Env.setOrgId(temporaryCtx, materialEvent.getEventDescriptor().getOrgId());
+
+		return Env.switchContext(temporaryCtx);
+	}
+
+	private void invokeListenerInTrx(@NonNull final MaterialEvent materialEvent)
+	{
+		Services.get(ITrxManager.class).runInNewTrx(() -> {
+			materialEventHandlerRegistry.onEvent(materialEvent);
+		});
+	}
+
+	/**
+	 * Handles the events of the given batch one by one, all in one transaction, but each within its own savepoint, so that a failing event does not roll back the others.
+	 * The {@link MaterialEventBatchListener}s are notified about the batch, e.g. to update the stock once per batch instead of once per event, within the batch's transaction.
+	 * <p>
+	 * If the batch's transaction fails nonetheless, the events are handled again, each in its own transaction and without notifying the batch listeners.
+	 */
+	private void onBatch(@NonNull final List<BatchedMaterialEvent> batch)
+	{
+		// all events of one batch have the same client and org
+		try (final IAutoCloseable ctx = switchContext(batch.get(0).getMaterialEvent()))
+		{
+			try
+			{
+				Services.get(ITrxManager.class).runInNewTrx(() -> onBatchInTrx(batch));
+			}
+			catch (final RuntimeException ex)
+			{
+				logger.warn("Failed handling {} events in one transaction; handling them one by one", batch.size(), ex);
+				batch.forEach(this::onEventOfFailedBatch);
+			}
+		}
+	}
+
+	private void onBatchInTrx(@NonNull final List<BatchedMaterialEvent> batch)
+	{
+		try
+		{
+			batchListeners.forEach(MaterialEventBatchListener::onBatchStart);
+			for (final BatchedMaterialEvent event : batch)
+			{
+				onBatchedEvent(event);
+			}
+			batchListeners.forEach(MaterialEventBatchListener::beforeBatchCommit);
+		}
+		finally
+		{
+			batchListeners.forEach(MaterialEventBatchListener::onBatchEnd);
+		}
+	}
+
+	private void onBatchedEvent(@NonNull final BatchedMaterialEvent event)
+	{
+		try (final IAutoCloseable eventLogCollector = event.switchEventLogCollector();
+				final MDCCloseable eventMDC = MDC.putCloseable("MaterialEventClass", event.getMaterialEvent().getClass().getName()))
+		{
+			try
+			{
+				// rolls back to a savepoint if it fails
+				Services.get(ITrxManager.class).runInThreadInheritedTrx(() -> materialEventHandlerRegistry.onEvent(event.getMaterialEvent()));
+			}
+			catch (final RuntimeException ex)
+			{
+				batchListeners.forEach(MaterialEventBatchListener::onEventRolledBack);
+				logEventFailed(event, ex);
+				return;
+			}
+			batchListeners.forEach(MaterialEventBatchListener::onEventHandled);
+		}
+	}
+
+	private void onEventOfFailedBatch(@NonNull final BatchedMaterialEvent event)
+	{
+		try (final IAutoCloseable eventLogCollector = event.switchEventLogCollector();
+				final MDCCloseable eventMDC = MDC.putCloseable("MaterialEventClass", event.getMaterialEvent().getClass().getName()))
+		{
+			try
+			{
+				invokeListenerInTrx(event.getMaterialEvent());
+			}
+			catch (final RuntimeException ex)
+			{
+				logEventFailed(event, ex);
+			}
+		}
+	}
+
+	/**
+	 * Records the failure in the event's log, like the event bus does for events which are not batched.
+	 */
+	private void logEventFailed(@NonNull final BatchedMaterialEvent event, @NonNull final RuntimeException ex)
+	{
+		if (!event.getEvent().isWasLogged() || Adempiere.isUnitTestMode())
+		{
+			logger.error("Failed handling MaterialEvent={}", event.getMaterialEvent(), ex);
+			return;
+		}
+
+		eventLogUserService
+				.newErrorLogEntry(MetasfreshEventListener.class, ex)
+				.createAndStore();
+	}
 }
@@ -0,0 +1,133 @@
+package de.metas.material.event.eventbus;
+
+import static de.metas.material.event.EventTestHelper.CLIENT_AND_ORG_ID;
+import static de.metas.material.event.EventTestHelper.createMaterialDescriptorWithProductId;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+
+import com.google.common.collect.ImmutableList;
+
+import de.metas.event.Event;
+import de.metas.material.event.BatchedMaterialEvent;
+import de.metas.material.event.commons.EventDescriptor;
+import de.metas.material.event.pporder.PPOrderDeletedEvent;
+import de.metas.material.event.transactions.TransactionCreatedEvent;
+
+/*
+ * #%L
+ * metasfresh-material-event
+ * %%
+ * Copyright (C) 2020 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+public class MaterialEventBatcherTest
+{
+	@Test
+	public void sameProduct_oneBatch()
+	{
+		final BatchedMaterialEvent event1 = transactionEvent(1, 10);
+		final BatchedMaterialEvent event2 = transactionEvent(2, 10);
+		final BatchedMaterialEvent event3 = transactionEvent(3, 10);
+
+		final ImmutableList<ImmutableList<BatchedMaterialEvent>> batches = MaterialEventBatcher.toBatches(ImmutableList.of(event1, event2, event3), 100);
+
+		assertThat(batches).containsExactly(ImmutableList.of(event1, event2, event3));
+	}
+
+	@Test
+	public void differentProducts_keepOrderWithinBatch()
+	{
+		final BatchedMaterialEvent event1 = transactionEvent(1, 10);
+		final BatchedMaterialEvent event2 = transactionEvent(2, 20);
+		final BatchedMaterialEvent event3 = transactionEvent(3, 10);
+		final BatchedMaterialEvent event4 = transactionEvent(4, 20);
+
+		final ImmutableList<ImmutableList<BatchedMaterialEvent>> batches = MaterialEventBatcher.toBatches(ImmutableList.of(event1, event2, event3, event4), 100);
+
+		assertThat(batches).containsExactly(
+				ImmutableList.of(event1, event3),
+				ImmutableList.of(event2, event4));
+	}
+
+	@Test
+	public void eventWithoutMaterialDescriptor_isBarrier()
+	{
+		final BatchedMaterialEvent event1 = transactionEvent(1, 10);
+		final BatchedMaterialEvent ppOrderEvent = ppOrderDeletedEvent();
+		final BatchedMaterialEvent event2 = transactionEvent(2, 10);
+
+		final ImmutableList<ImmutableList<BatchedMaterialEvent>> batches = MaterialEventBatcher.toBatches(ImmutableList.of(event1, ppOrderEvent, event2), 100);
+
+		assertThat(batches).containsExactly(
+				ImmutableList.of(event1),
+				ImmutableList.of(ppOrderEvent),
+				ImmutableList.of(event2));
+	}
+
+	@Test
+	public void maxBatchSize()
+	{
+		final BatchedMaterialEvent event1 = transactionEvent(1, 10);
+		final BatchedMaterialEvent event2 = transactionEvent(2, 10);
+		final BatchedMaterialEvent event3 = transactionEvent(3, 10);
+
+		final ImmutableList<ImmutableList<BatchedMaterialEvent>> batches = MaterialEventBatcher.toBatches(ImmutableList.of(event1, event2, event3), 2);
+
+		assertThat(batches).containsExactly(
+				ImmutableList.of(event1, event2),
+				ImmutableList.of(event3));
+	}
+
+	@Test
+	public void maxBatchSize_differentProducts_keepOrderPerProduct()
+	{
+		final BatchedMaterialEvent event1 = transactionEvent(1, 10);
+		final BatchedMaterialEvent event2 = transactionEvent(2, 20);
+		final BatchedMaterialEvent event3 = transactionEvent(3, 10);
+		final BatchedMaterialEvent event4 = transactionEvent(4, 10);
+		final BatchedMaterialEvent event5 = transactionEvent(5, 20);
+		final BatchedMaterialEvent event6 = transactionEvent(6, 10);
+
+		final ImmutableList<ImmutableList<BatchedMaterialEvent>> batches = MaterialEventBatcher.toBatches(ImmutableList.of(event1, event2, event3, event4, event5, event6), 2);
+
+		assertThat(batches).containsExactly(
+				ImmutableList.of(event1, event3),
+				ImmutableList.of(event2, event5),
+				ImmutableList.of(event4, event6));
+	}
+
+	private static BatchedMaterialEvent transactionEvent(final int transactionId, final int productId)
+	{
+		final TransactionCreatedEvent materialEvent = TransactionCreatedEvent.builder()
+				.eventDescriptor(EventDescriptor.ofClientAndOrg(CLIENT_AND_ORG_ID))
+				.materialDescriptor(createMaterialDescriptorWithProductId(productId))
+				.transactionId(transactionId)
+				.build();
+		return BatchedMaterialEvent.of(materialEvent, Event.builder().build());
+	}
+
+	private static BatchedMaterialEvent ppOrderDeletedEvent()
+	{
+		final PPOrderDeletedEvent materialEvent = PPOrderDeletedEvent.builder()
+				.eventDescriptor(EventDescriptor.ofClientAndOrg(CLIENT_AND_ORG_ID))
+				.ppOrderId(30)
+				.build();
+		return BatchedMaterialEvent.of(materialEvent, Event.builder().build());
+	}
+}
@@ -0,0 +1,227 @@
+package de.metas.migration.executor.impl;
+
+/*
+ * #%L
+ * de.metas.migration.base
+ * %%
+ * Copyright (C) 2020 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLWarning;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.Joiner;
+import com.google.common.base.Stopwatch;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+
+import de.metas.migration.IDatabase;
+import de.metas.migration.IScript;
+import de.metas.migration.exception.ScriptExecutionException;
+import de.metas.migration.executor.IScriptExecutor;
+import de.metas.migration.executor.impl.SqlScriptParser.SqlStatement;
+import de.metas.migration.impl.AnonymousScript;
+import de.metas.migration.impl.SQLDatabase;
+import de.metas.migration.impl.SQLHelper;
+import lombok.NonNull;
+
+/**
+ * Executes SQL scripts over the JDBC connection of the target {@link IDatabase}, instead of starting one <code>psql</code> process per script like {@link PostgresqlNativeExecutor} does.
+ * <p>
+ * Each script is split into statements by {@link SqlScriptParser} and executed in its own transaction, i.e. like <code>psql --single-transaction --set ON_ERROR_STOP=1</code>.
+ * The connection is not closed after the script, so that the following scripts can reuse it.
+ */
+public class PostgresqlJdbcExecutor implements IScriptExecutor
+{
+	private static final transient Logger logger = LoggerFactory.getLogger(PostgresqlJdbcExecutor.class);
+
+	private static final String AFTER_MIGRATION_FUNC_PATTERN = "after_migration%";
+
+	private static final int LOG_TAIL_SIZE = 100;
+
+	private final IDatabase database;
+	private final SQLHelper sqlHelper;
+
+	public PostgresqlJdbcExecutor(@NonNull final IDatabase database)
+	{
+		this.database = database;
+		this.sqlHelper = new SQLHelper(SQLDatabase.cast(database));
+	}
+
+	@Override
+	public String toString()
+	{
+		return getClass().getSimpleName() + " [database=" + database + "]";
+	}
+
+	@Override
+	public void execute(final IScript script)
+	{
+		executeAndReturnLog(script, LOG_TAIL_SIZE);
+	}
+
+	/**
+	 * @return the server messages (e.g. <code>RAISE NOTICE</code>), i.e. what psql would have printed
+	 */
+	private ImmutableList<String> executeAndReturnLog(final IScript script, final int logTailSize)
+	{
+		final ImmutableList<SqlStatement> statements = SqlScriptParser.parse(readScript(script));
+		final List<String> log = new ArrayList<>();
+
+		final Connection conn = database.getConnection();
+		SqlStatement currentStatement = null;
+		try
+		{
+			conn.setAutoCommit(false);
+
+			for (final SqlStatement statement : statements)
+			{
+				currentStatement = statement;
+				executeStatement(conn, statement, log, logTailSize);
+			}
+			currentStatement = null;
+
+			conn.commit();
+			return ImmutableList.copyOf(log);
+		}
+		catch (final SQLException e)
+		{
+			rollback(conn, e);
+
+			final ScriptExecutionException ex = new ScriptExecutionException("Script execution failed", e)
+					.setDatabase(database)
+					.setScript(script)
+					.setExecutor(this)
+					.setLog(ImmutableList.copyOf(log));
+			if (currentStatement != null)
+			{
+				ex.addParameter("LineNo", currentStatement.getLineNo());
+				ex.addParameter("Statement", currentStatement.getSql());
+			}
+			throw ex;
+		}
+		finally
+		{
+			restoreAutoCommit(conn);
+		}
+	}
+
+	private static void executeStatement(
+			final Connection conn,
+			final SqlStatement statement,
+			final List<String> log,
+			final int logTailSize) throws SQLException
+	{
+		try (final Statement stmt = conn.createStatement())
+		{
+			stmt.execute(statement.getSql());
+
+			for (SQLWarning warning = stmt.getWarnings(); warning != null; warning = warning.getNextWarning())
+			{
+				if (logTailSize > 0 && log.size() >= logTailSize)
+				{
+					log.remove(0);
+				}
+				log.add(warning.getMessage());
+			}
+		}
+	}
+
+	private String readScript(final IScript script)
+	{
+		try
+		{
+			return new String(Files.readAllBytes(script.getLocalFile().toPath()), StandardCharsets.UTF_8);
+		}
+		catch (final IOException e)
+		{
+			throw new ScriptExecutionException("Error while reading the script file", e)
+					.setDatabase(database)
+					.setScript(script)
+					.setExecutor(this);
+		}
+	}
+
+	private static void rollback(final Connection conn, final SQLException error)
+	{
+		try
+		{
+			conn.rollback();
+		}
+		catch (final SQLException e)
+		{
+			error.addSuppressed(e);
+		}
+	}
+
+	private static void restoreAutoCommit(final Connection conn)
+	{
+		try
+		{
+			conn.setAutoCommit(true);
+		}
+		catch (final SQLException e)
+		{
+			logger.warn("Failed restoring the auto-commit mode of {}", conn, e);
+		}
+	}
+
+	@Override
+	public void executeAfterScripts()
+	{
+		final Set<String> functionNames = sqlHelper.getDBFunctionsMatchingPattern(AFTER_MIGRATION_FUNC_PATTERN)
+				.stream()
+				.sorted()
+				.collect(ImmutableSet.toImmutableSet());
+
+		if (functionNames.isEmpty())
+		{
+			logger.warn("Skip executing after migration scripts because no function matching pattern '{}' was found in {}", AFTER_MIGRATION_FUNC_PATTERN, database);
+			return;
+		}
+
+		final AnonymousScript script = AnonymousScript.builder()
+				.fileName("after_migration.sql")
+				.scriptContent(functionNames.stream()
+						.map(functionName -> "select " + functionName + "();\n")
+						.collect(Collectors.joining()))
+				.build();
+
+		final Stopwatch stopwatch = Stopwatch.createStarted();
+		final int logTailSize = -1; // full log
+		final ImmutableList<String> log = executeAndReturnLog(script, logTailSize);
+		stopwatch.stop();
+
+		logger.info("Executed {} in {}ms and got following result:\n{}",
+				functionNames,
+				stopwatch,
+				Joiner.on("\n").join(log));
+	}
+}
@@ -0,0 +1,310 @@
+package de.metas.migration.executor.impl;
+
+/*
+ * #%L
+ * de.metas.migration.base
+ * %%
+ * Copyright (C) 2020 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+import com.google.common.collect.ImmutableList;
+
+import lombok.NonNull;
+import lombok.Value;
+
+/**
+ * Splits a postgresql script into its single statements, the way <code>psql</code> would do it.
+ * <p>
+ * A <code>;</code> terminates a statement unless it is part of a string literal (incl. <code>E'..'</code> strings), a quoted identifier,
+ * a dollar quoted string (e.g. function bodies), a comment or a parenthesized expression.
+ * <p>
+ * NOTE: psql meta-commands (e.g. <code>\i</code>) are not supported.
+ */
+final class SqlScriptParser
+{
+	public static ImmutableList<SqlStatement> parse(@NonNull final String script)
+	{
+		return new SqlScriptParser(script).parse();
+	}
+
+	@Value
+	public static class SqlStatement
+	{
+		/** the statement, without the terminating <code>;</code> */
+		@NonNull
+		String sql;
+
+		/** 1-based line number where the statement starts in the script */
+		int lineNo;
+	}
+
+	private final String script;
+	private final int length;
+
+	private int pos = 0;
+	private int lineNo = 1;
+
+	private SqlScriptParser(final String script)
+	{
+		this.script = script;
+		this.length = script.length();
+	}
+
+	private ImmutableList<SqlStatement> parse()
+	{
+		final ImmutableList.Builder<SqlStatement> statements = ImmutableList.builder();
+
+		int statementStartPos = 0;
+		int statementStartLineNo = -1; // line of the first character which is not a whitespace or part of a comment
+		int parenthesisDepth = 0;
+
+		while (pos < length)
+		{
+			final char ch = script.charAt(pos);
+			if (ch == '-' && peek(1) == '-')
+			{
+				skipLineComment();
+				continue;
+			}
+			else if (ch == '/' && peek(1) == '*')
+			{
+				skipBlockComment();
+				continue;
+			}
+
+			if (statementStartLineNo <= 0 && !Character.isWhitespace(ch) && ch != ';')
+			{
+				statementStartPos = pos; // skip leading whitespaces and comments
+				statementStartLineNo = lineNo;
+			}
+
+			if (ch == '\'')
+			{
+				skipStringLiteral(isEscapeStringPrefix());
+			}
+			else if (ch == '"')
+			{
+				skipQuotedIdentifier();
+			}
+			else if (ch == '$' && !isIdentifierChar(peek(-1)))
+			{
+				skipDollarQuotedString();
+			}
+			else if (ch == '(')
+			{
+				parenthesisDepth++;
+				pos++;
+			}
+			else if (ch == ')')
+			{
+				parenthesisDepth = Math.max(parenthesisDepth - 1, 0);
+				pos++;
+			}
+			else if (ch == ';' && parenthesisDepth == 0)
+			{
+				addStatementIfNotEmpty(statements, statementStartPos, pos, statementStartLineNo);
+				pos++;
+				statementStartLineNo = -1;
+			}
+			else
+			{
+				if (ch == '\n')
+				{
+					lineNo++;
+				}
+				pos++;
+			}
+		}
+
+		addStatementIfNotEmpty(statements, statementStartPos, length, statementStartLineNo);
+
+		return statements.build();
+	}
+
+	private void addStatementIfNotEmpty(
+			final ImmutableList.Builder<SqlStatement> statements,
+			final int startPos,
+			final int endPos,
+			final int startLineNo)
+	{
+		if (startLineNo <= 0)
+		{
+			return; // only whitespaces and comments
+		}
+
+		final String sql = script.substring(startPos, endPos).trim();
+		statements.add(new SqlStatement(sql, startLineNo));
+	}
+
+	private char peek(final int offset)
+	{
+		final int peekPos = pos + offset;
+		return peekPos >= 0 && peekPos < length ? script.charAt(peekPos) : 0;
+	}
+
+	private static boolean isIdentifierChar(final char ch)
+	{
+		return Character.isLetterOrDigit(ch) || ch == '_' || ch == '$';
+	}
+
+	/** @return true if the string literal at the current position is an <code>E'...'</code> string, where backslash escapes are allowed */
+	private boolean isEscapeStringPrefix()
+	{
+		final char prev = peek(-1);
+		return (prev == 'E' || prev == 'e') && !isIdentifierChar(peek(-2));
+	}
+
+	private void skipLineComment()
+	{
+		while (pos < length && script.charAt(pos) != '\n')
+		{
+			pos++;
+		}
+	}
+
+	/** Skips a <code>/* ... *&#47;</code> comment. Like postgresql, we support nested block comments. */
+	private void skipBlockComment()
+	{
+		int depth = 0;
+		while (pos < length)
+		{
+			final char ch = script.charAt(pos);
+			if (ch == '/' && peek(1) == '*')
+			{
+				depth++;
+				pos += 2;
+			}
+			else if (ch == '*' && peek(1) == '/')
+			{
+				depth--;
+				pos += 2;
+				if (depth == 0)
+				{
+					return;
+				}
+			}
+			else
+			{
+				if (ch == '\n')
+				{
+					lineNo++;
+				}
+				pos++;
+			}
+		}
+	}
+
+	private void skipStringLiteral(final boolean backslashEscapes)
+	{
+		pos++; // opening quote
+		while (pos < length)
+		{
+			final char ch = script.charAt(pos);
+			if (backslashEscapes && ch == '\\')
+			{
+				if (peek(1) == '\n')
+				{
+					lineNo++;
+				}
+				pos += 2;
+			}
+			else if (ch == '\'')
+			{
+				pos++;
+				if (pos < length && script.charAt(pos) == '\'')
+				{
+					pos++; // escaped quote
+				}
+				else
+				{
+					return;
+				}
+			}
+			else
+			{
+				if (ch == '\n')
+				{
+					lineNo++;
+				}
+				pos++;
+			}
+		}
+	}
+
+	private void skipQuotedIdentifier()
+	{
+		pos++; // opening quote
+		while (pos < length)
+		{
+			final char ch = script.charAt(pos);
+			pos++;
+			if (ch == '\n')
+			{
+				lineNo++;
+			}
+			else if (ch == '"')
+			{
+				if (pos < length && script.charAt(pos) == '"')
+				{
+					pos++; // escaped quote
+				}
+				else
+				{
+					return;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Skips a <code>$tag$ ... $tag$</code> string. If the <code>$</code> at the current position does not start a dollar quote (e.g. <code>$1</code>), only the <code>$</code> is skipped.
+	 */
+	private void skipDollarQuotedString()
+	{
+		int tagEnd = pos + 1;
+		while (tagEnd < length && script.charAt(tagEnd) != '$')
+		{
+			final char ch = script.charAt(tagEnd);
+			final boolean validTagChar = Character.isLetter(ch) || ch == '_' || (tagEnd > pos + 1 && Character.isDigit(ch));
+			if (!validTagChar)
+			{
+				pos++;
+				return;
+			}
+			tagEnd++;
+		}
+		if (tagEnd >= length)
+		{
+			pos++;
+			return;
+		}
+
+		final String tag = script.substring(pos, tagEnd + 1);
+		final int closingTagPos = script.indexOf(tag, tagEnd + 1);
+		final int endPos = closingTagPos < 0 ? length : closingTagPos + tag.length();
+
+		for (int i = pos; i < endPos; i++)
+		{
+			if (script.charAt(i) == '\n')
+			{
+				lineNo++;
+			}
+		}
+		pos = endPos;
+	}
+}
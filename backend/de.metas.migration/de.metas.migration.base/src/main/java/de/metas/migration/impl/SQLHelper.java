@@ -101,7 +101,7 @@ public class SQLHelper
 		}
 		finally
 		{
-			close(rs, pstmt, conn);
+			close(rs, pstmt);
 		}
 	}
 
@@ -127,7 +127,7 @@ public class SQLHelper
 		}
 		finally
 		{
-			close(null, pstmt, conn);
+			close(null, pstmt);
 		}
 	}
 
@@ -161,7 +161,7 @@ public class SQLHelper
 		}
 		finally
 		{
-			close(rs, pstmt, conn);
+			close(rs, pstmt);
 		}
 	}
 
@@ -305,6 +305,16 @@ public class SQLHelper
 		close(conn);
 	}
 
+	/**
+	 * Closes the given result set and statement, but not the connection.
+	 * The connection is owned by the {@link SQLDatabase} which keeps it open, so that we don't need to reconnect for each script.
+	 */
+	public void close(final ResultSet rs, final PreparedStatement pstmt)
+	{
+		close(rs);
+		close(pstmt);
+	}
+
 	public Set<String> getDBFunctionsMatchingPattern(final String functionNamePattern)
 	{
 		ResultSet rs = null;
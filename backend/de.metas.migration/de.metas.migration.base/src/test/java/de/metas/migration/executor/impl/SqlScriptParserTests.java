@@ -0,0 +1,116 @@
+package de.metas.migration.executor.impl;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.Test;
+
+import de.metas.migration.executor.impl.SqlScriptParser.SqlStatement;
+
+/*
+ * #%L
+ * de.metas.migration.base
+ * %%
+ * Copyright (C) 2020 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+public class SqlScriptParserTests
+{
+	private static List<String> parse(final String script)
+	{
+		return SqlScriptParser.parse(script)
+				.stream()
+				.map(SqlStatement::getSql)
+				.collect(Collectors.toList());
+	}
+
+	@Test
+	public void simpleStatements()
+	{
+		assertThat(parse("select 1;\nselect 2;\n  select 3  "), contains("select 1", "select 2", "select 3"));
+	}
+
+	@Test
+	public void emptyStatementsAndCommentsOnly()
+	{
+		assertThat(parse(""), is(empty()));
+		assertThat(parse(";;\n-- just a comment;\n/* another one; */\n"), is(empty()));
+	}
+
+	@Test
+	public void semicolonInComments()
+	{
+		assertThat(parse("-- comment; with semicolon\nselect 1; /* block; /* nested; */ comment */ select 2 -- trailing;\n, 3;"),
+				contains("select 1", "select 2 -- trailing;\n, 3"));
+	}
+
+	@Test
+	public void semicolonInStringLiterals()
+	{
+		assertThat(parse("update t set a='x;y', b='it''s;'; select 2;"), contains("update t set a='x;y', b='it''s;'", "select 2"));
+		assertThat(parse("select E'it\\'s;'; select 'back\\'; select 3;"), contains("select E'it\\'s;'", "select 'back\\'", "select 3"));
+	}
+
+	@Test
+	public void semicolonInQuotedIdentifiers()
+	{
+		assertThat(parse("select 1 as \"a;\"\"b\"; select 2;"), contains("select 1 as \"a;\"\"b\"", "select 2"));
+	}
+
+	@Test
+	public void dollarQuotedFunctionBody()
+	{
+		final String function = "CREATE OR REPLACE FUNCTION f(p numeric) RETURNS numeric AS $BODY$\n"
+				+ "BEGIN\n"
+				+ "  RAISE NOTICE 'x; $1';\n"
+				+ "  RETURN $1 + $$;$$::numeric;\n"
+				+ "END;\n"
+				+ "$BODY$ LANGUAGE plpgsql";
+
+		assertThat(parse(function + ";\nselect f(1);"), contains(function, "select f(1)"));
+	}
+
+	@Test
+	public void positionalParameterIsNotADollarQuote()
+	{
+		assertThat(parse("prepare p as select $1; select 2;"), contains("prepare p as select $1", "select 2"));
+	}
+
+	@Test
+	public void semicolonInParenthesis()
+	{
+		assertThat(parse("create rule r as on insert to t do also (insert into a values(1); insert into b values(2)); select 2;"),
+				contains("create rule r as on insert to t do also (insert into a values(1); insert into b values(2))", "select 2"));
+	}
+
+	@Test
+	public void lineNumbers()
+	{
+		final List<Integer> lineNos = SqlScriptParser.parse("-- header\n\nselect 1;\nselect\n'a\nb';\n/* c\n*/ select 3;")
+				.stream()
+				.map(SqlStatement::getLineNo)
+				.collect(Collectors.toList());
+
+		assertThat(lineNos, contains(3, 4, 8));
+	}
+}
@@ -65,6 +65,7 @@ class CommandlineParams
 	public static final String OPTION_DoNotFailIfRolloutIsGreaterThanDB = "i";
 
 	public static final String OPTION_LONG_AddSqlDir = "add-sql-dir";
+	public static final String OPTION_LONG_JdbcExecutor = "jdbc-executor";
 
 	private final Options options;
 
@@ -169,6 +170,14 @@ class CommandlineParams
 			options.addOption(option);
 		}
 
+		{
+			final Option option = new Option(/* opt */null, "Execute the scripts over one JDBC connection, instead of starting a psql process for each script.");
+			option.setLongOpt(OPTION_LONG_JdbcExecutor);
+			option.setArgs(0);
+			option.setRequired(false);
+			options.addOption(option);
+		}
+
 		return options;
 	}
 
@@ -238,6 +247,12 @@ class CommandlineParams
 			configBuilder.storeVersion(false);
 		}
 
+		if (cmd.hasOption(OPTION_LONG_JdbcExecutor))
+		{
+			logger.info("Will execute the scripts using JDBC instead of psql");
+			configBuilder.useJdbcScriptExecutor(true);
+		}
+
 		configBuilder.additionalSqlDirs(extractAdditionalSqlDirs(cmd));
 
 		final Config config = configBuilder.canRun(true).build();
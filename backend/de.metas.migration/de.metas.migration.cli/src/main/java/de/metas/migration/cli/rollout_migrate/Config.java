@@ -62,6 +62,12 @@ class Config
 	@Default
 	boolean justMarkScriptAsExecuted = false;
 
+	/**
+	 * If true, the scripts are executed over one JDBC connection instead of starting a <code>psql</code> process for each script.
+	 */
+	@Default
+	boolean useJdbcScriptExecutor = false;
+
 	/**
 	 * By default we will check the versions.
 	 */
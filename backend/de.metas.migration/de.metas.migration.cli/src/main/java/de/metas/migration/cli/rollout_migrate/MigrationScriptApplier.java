@@ -6,8 +6,10 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import de.metas.migration.IDatabase;
+import de.metas.migration.ScriptType;
 import de.metas.migration.applier.IScriptsApplierListener;
 import de.metas.migration.executor.IScriptExecutorFactory;
+import de.metas.migration.executor.impl.PostgresqlJdbcExecutor;
 import de.metas.migration.impl.AbstractScriptsApplierTemplate;
 import de.metas.migration.scanner.IScriptFactory;
 import de.metas.migration.scanner.IScriptScanner;
@@ -76,6 +78,10 @@ class MigrationScriptApplier
 			protected void configureScriptExecutorFactory(final IScriptExecutorFactory scriptExecutorFactory)
 			{
 				scriptExecutorFactory.setDryRunMode(config.isJustMarkScriptAsExecuted());
+				if (config.isUseJdbcScriptExecutor())
+				{
+					scriptExecutorFactory.registerScriptExecutorClass("postgresql", ScriptType.SQL, PostgresqlJdbcExecutor.class);
+				}
 			}
 
 			@Override
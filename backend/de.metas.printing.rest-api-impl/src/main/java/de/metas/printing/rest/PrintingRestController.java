@@ -3,10 +3,13 @@ package de.metas.printing.rest;
 import static org.adempiere.model.InterfaceWrapperHelper.newInstance;
 import static org.adempiere.model.InterfaceWrapperHelper.save;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Properties;
 
+import javax.servlet.http.HttpServletResponse;
+
 import org.adempiere.ad.dao.IQueryBL;
 import org.adempiere.ad.session.ISessionBL;
 import org.adempiere.ad.session.MFSession;
@@ -15,6 +18,7 @@ import org.adempiere.model.InterfaceWrapperHelper;
 import org.adempiere.service.ClientId;
 import org.compiere.util.Env;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
@@ -32,7 +36,6 @@ import de.metas.printing.esb.api.PrintPackageInfo;
 import de.metas.printing.esb.api.PrinterHWList;
 import de.metas.printing.model.I_AD_PrinterHW;
 import de.metas.printing.model.I_AD_PrinterHW_MediaTray;
-import de.metas.printing.model.I_C_PrintPackageData;
 import de.metas.printing.model.I_C_Print_Job_Instructions;
 import de.metas.printing.model.I_C_Print_Package;
 import de.metas.printing.model.I_C_Print_PackageInfo;
@@ -191,11 +194,13 @@ public class PrintingRestController
 
 	/**
 	 * Returns a binary stream of data to be printed.
+	 * The data is streamed from the database to the response, so it's never loaded into memory as a whole.
 	 */
 	@PostMapping("/getPrintPackageData/{sessionId}/{transactionId}")
-	public ResponseEntity<?> getPrintPackageData(
+	public void getPrintPackageData(
 			@PathVariable("sessionId") int sessionId,
-			@PathVariable("transactionId") String transactionId)
+			@PathVariable("transactionId") String transactionId,
+			@NonNull final HttpServletResponse response) throws IOException
 	{
 		updateSessionAndRetrieveHostKey(sessionId);
 
@@ -206,14 +211,8 @@ public class PrintingRestController
 				.create()
 				.firstOnly(I_C_Print_Package.class);
 
-		final I_C_PrintPackageData data = Services.get(IQueryBL.class)
-				.createQueryBuilder(I_C_PrintPackageData.class)
-				.addOnlyActiveRecordsFilter()
-				.addEqualsFilter(I_C_PrintPackageData.COLUMN_C_Print_Package_ID, printPackage.getC_Print_Package_ID())
-				.create()
-				.firstOnly(I_C_PrintPackageData.class);
-
-		return ResponseEntity.ok(data.getPrintData());
+		response.setContentType(MediaType.APPLICATION_OCTET_STREAM_VALUE);
+		Services.get(IPrintingDAO.class).writePrintData(printPackage, response.getOutputStream());
 	}
 
 	/**
@@ -22,6 +22,8 @@ package de.metas.printing.api;
  * #L%
  */
 
+import java.io.File;
+import java.io.OutputStream;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Properties;
@@ -221,6 +223,17 @@ public interface IPrintingDAO extends ISingletonService
 	 */
 	I_C_PrintPackageData retrievePrintPackageData(I_C_Print_Package printPackage);
 
+	/**
+	 * Writes the print data of the given package to the given stream, without loading the whole {@link I_C_PrintPackageData} record.
+	 */
+	void writePrintData(I_C_Print_Package printPackage, OutputStream out);
+
+	/**
+	 * Sets the {@code PrintData} of the given, already saved record from the given file.
+	 * Only that column is written, and the data is streamed from the file, so it's never loaded into memory as a whole.
+	 */
+	void updatePrintData(I_C_PrintPackageData printPackageData, File printDataFile);
+
 	/**
 	 * retrieves a printer which has the output type PDF
 	 * <ul> virtual printer because is not a real hardware printer
@@ -452,6 +452,12 @@ public abstract class AbstractPrintingDAO implements IPrintingDAO
 
 	@Override
 	public final I_C_PrintPackageData retrievePrintPackageData(@NonNull final I_C_Print_Package printPackage)
+	{
+		return createPrintPackageDataQuery(printPackage)
+				.first(); // note: right now IDK why it's first an not firstOnly
+	}
+
+	protected final IQuery<I_C_PrintPackageData> createPrintPackageDataQuery(@NonNull final I_C_Print_Package printPackage)
 	{
 		return Services.get(IQueryBL.class).createQueryBuilder(I_C_PrintPackageData.class, printPackage)
 				.addOnlyActiveRecordsFilter()
@@ -460,8 +466,7 @@ public abstract class AbstractPrintingDAO implements IPrintingDAO
 				.addColumn(I_C_PrintPackageData.COLUMNNAME_Created)
 				.addColumn(I_C_PrintPackageData.COLUMNNAME_C_PrintPackageData_ID)
 				.endOrderBy()
-				.create()
-				.first(); // note: right now IDK why it's first an not firstOnly
+				.create();
 	}
 
 	@Nullable
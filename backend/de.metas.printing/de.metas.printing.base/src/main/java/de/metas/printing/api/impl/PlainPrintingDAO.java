@@ -23,6 +23,10 @@ package de.metas.printing.api.impl;
  */
 // NOPMD by ts on 20.03.13 07:58
 
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.Iterator;
@@ -65,6 +69,7 @@ import de.metas.printing.model.I_C_Printing_Queue;
 import de.metas.printing.model.X_C_Print_Job_Instructions;
 import de.metas.util.Check;
 import de.metas.util.Services;
+import lombok.NonNull;
 
 public class PlainPrintingDAO extends AbstractPrintingDAO
 {
@@ -165,6 +170,42 @@ public class PlainPrintingDAO extends AbstractPrintingDAO
 		return lookupMap.getFirstOnly(I_C_PrintPackageData.class, pojo -> pojo.getC_Print_Package_ID() == printPackage.getC_Print_Package_ID());
 	}
 
+	@Override
+	public void writePrintData(@NonNull final I_C_Print_Package printPackage, @NonNull final OutputStream out)
+	{
+		final I_C_PrintPackageData printPackageData = retrievePrintPackageData(printPackage);
+		if (printPackageData == null)
+		{
+			throw new AdempiereException("No print data found for " + printPackage);
+		}
+
+		try
+		{
+			out.write(printPackageData.getPrintData());
+		}
+		catch (final IOException e)
+		{
+			throw new AdempiereException("Failed writing the print data", e);
+		}
+	}
+
+	/**
+	 * There is no database to stream into, so the file is read and set like any other column value.
+	 */
+	@Override
+	public void updatePrintData(@NonNull final I_C_PrintPackageData printPackageData, @NonNull final File printDataFile)
+	{
+		try
+		{
+			printPackageData.setPrintData(Files.readAllBytes(printDataFile.toPath()));
+		}
+		catch (final IOException e)
+		{
+			throw new AdempiereException("Failed reading the print data from " + printDataFile, e);
+		}
+		InterfaceWrapperHelper.save(printPackageData);
+	}
+
 	public List<I_C_Print_PackageInfo> retrievePrintPackageInfo(final I_C_Print_Package printPackage)
 	{
 		return lookupMap.getRecords(I_C_Print_PackageInfo.class, pojo -> pojo.getC_Print_Package_ID() == printPackage.getC_Print_Package_ID());
@@ -34,8 +34,12 @@ import org.slf4j.Logger;
 
 import javax.annotation.Nullable;
 import javax.print.attribute.standard.MediaSize;
-import java.io.ByteArrayOutputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
 import java.io.OutputStream;
+import java.nio.file.Files;
 import java.util.ArrayList;
 import java.util.IdentityHashMap;
 import java.util.LinkedHashMap;
@@ -176,15 +180,35 @@ public class PrintJobLinesAggregator implements IPrintJobLinesAggregator
 	@Override
 	public I_C_Print_Package createPrintPackage()
 	{
-		final ByteArrayOutputStream pdfBuf = new ByteArrayOutputStream();
-		final int pages = createPDFData(pdfBuf);
+		// write the PDF to a temporary file, so that we don't need to hold a growing buffer (and its copies) in memory
+		final File pdfFile = createTempFile();
+		try
+		{
+			return createPrintPackage(pdfFile);
+		}
+		finally
+		{
+			deleteTempFile(pdfFile);
+		}
+	}
+
+	private I_C_Print_Package createPrintPackage(@NonNull final File pdfFile)
+	{
+		final int pages;
+		try (final OutputStream out = new BufferedOutputStream(new FileOutputStream(pdfFile)))
+		{
+			pages = createPDFData(out);
+		}
+		catch (final IOException e)
+		{
+			throw new AdempiereException("Failed writing the PDF data to " + pdfFile, e);
+		}
 		if (pages <= 0)
 		{
 			throw new AdempiereException("No PDF pages found. No package created."); // TRL
 		}
 
-		final byte[] data = pdfBuf.toByteArray();
-		if (data.length == 0)
+		if (pdfFile.length() <= 0)
 		{
 			throw new AdempiereException("No PDF data found. No package created."); // TRL
 		}
@@ -213,11 +237,7 @@ public class PrintJobLinesAggregator implements IPrintJobLinesAggregator
 				updatePrintJobLines(printPackageInfo, printPackage);
 			}
 		}
-		final I_C_PrintPackageData printPackageData = InterfaceWrapperHelper.create(ctx, I_C_PrintPackageData.class, trxName);
-		printPackageData.setC_Print_Package(printPackage);
-		printPackageData.setAD_Org_ID(printPackage.getAD_Org_ID());
-		printPackageData.setPrintData(data);
-		InterfaceWrapperHelper.save(printPackageData);
+		createPrintPackageData(printPackage, pdfFile);
 
 		// Mark processed print jobs
 		updatePrintJob();
@@ -228,6 +248,43 @@ public class PrintJobLinesAggregator implements IPrintJobLinesAggregator
 		return printPackage;
 	}
 
+	private static File createTempFile()
+	{
+		try
+		{
+			return File.createTempFile("PrintPackage_", ".pdf");
+		}
+		catch (final IOException e)
+		{
+			throw new AdempiereException("Failed creating a temporary file for the print package", e);
+		}
+	}
+
+	/**
+	 * Saves the {@link I_C_PrintPackageData} record like any other and then streams its {@code PrintData} from the given file, so that we don't need to have the whole PDF in memory.
+	 */
+	private void createPrintPackageData(@NonNull final I_C_Print_Package printPackage, @NonNull final File pdfFile)
+	{
+		final I_C_PrintPackageData printPackageData = InterfaceWrapperHelper.create(ctx, I_C_PrintPackageData.class, trxName);
+		printPackageData.setC_Print_Package(printPackage);
+		printPackageData.setAD_Org_ID(printPackage.getAD_Org_ID());
+		InterfaceWrapperHelper.save(printPackageData);
+
+		dao.updatePrintData(printPackageData, pdfFile);
+	}
+
+	private static void deleteTempFile(@NonNull final File pdfFile)
+	{
+		try
+		{
+			Files.deleteIfExists(pdfFile.toPath());
+		}
+		catch (final IOException e)
+		{
+			logger.warn("Failed deleting temporary file {}; ignored", pdfFile, e);
+		}
+	}
+
 	private void updatePrintJobLines(final I_C_Print_PackageInfo printPackageInfo, final I_C_Print_Package printPackage)
 	{
 		final List<PrintItemPart> archiveParts = mapArchiveParts.get(printPackageInfo);
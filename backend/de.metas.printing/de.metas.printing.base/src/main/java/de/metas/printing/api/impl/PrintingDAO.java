@@ -22,6 +22,10 @@ package de.metas.printing.api.impl;
  * #L%
  */
 
+import com.google.common.collect.ImmutableList;
+import com.google.common.io.ByteStreams;
+import de.metas.cache.CacheMgt;
+import de.metas.cache.model.CacheInvalidateMultiRequest;
 import de.metas.lock.api.ILockManager;
 import de.metas.printing.api.IPrintClientsBL;
 import de.metas.printing.api.IPrintingQueueQuery;
@@ -32,25 +36,40 @@ import de.metas.printing.model.I_AD_PrinterHW_MediaSize;
 import de.metas.printing.model.I_AD_PrinterHW_MediaTray;
 import de.metas.printing.model.I_AD_PrinterTray_Matching;
 import de.metas.printing.model.I_AD_Printer_Matching;
+import de.metas.printing.model.I_C_PrintPackageData;
 import de.metas.printing.model.I_C_Print_Job;
 import de.metas.printing.model.I_C_Print_Job_Instructions;
 import de.metas.printing.model.I_C_Print_Job_Line;
+import de.metas.printing.model.I_C_Print_Package;
 import de.metas.printing.model.I_C_Printing_Queue;
 import de.metas.printing.model.X_C_Print_Job_Instructions;
 import de.metas.security.permissions.Access;
 import de.metas.util.Check;
 import de.metas.util.Services;
+import lombok.NonNull;
 import org.adempiere.ad.dao.ISqlQueryFilter;
 import org.adempiere.ad.dao.impl.TypedSqlQuery;
 import org.adempiere.ad.trx.api.ITrx;
+import org.adempiere.exceptions.AdempiereException;
+import org.adempiere.exceptions.DBException;
 import org.adempiere.model.InterfaceWrapperHelper;
 import org.compiere.model.IQuery;
 import org.compiere.model.IQuery.Aggregate;
 import org.compiere.model.I_AD_Archive;
 import org.compiere.model.POInfo;
 import org.compiere.model.Query;
+import org.compiere.util.DB;
 import org.compiere.util.Env;
 
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
@@ -390,4 +409,102 @@ public class PrintingDAO extends AbstractPrintingDAO
 								+ ", " + I_AD_Printer.COLUMNNAME_PrinterName)
 				.list(I_AD_Printer.class);
 	}
+
+	/**
+	 * Streams the data from the {@code PrintData} column, i.e. unlike {@link #retrievePrintPackageData(I_C_Print_Package)} it doesn't load the record.
+	 */
+	@Override
+	public void writePrintData(@NonNull final I_C_Print_Package printPackage, @NonNull final OutputStream out)
+	{
+		final int printPackageDataId = createPrintPackageDataQuery(printPackage).firstId();
+		if (printPackageDataId <= 0)
+		{
+			throw new AdempiereException("No print data found")
+					.appendParametersToMessage()
+					.setParameter("C_Print_Package", printPackage);
+		}
+
+		final String sql = "SELECT " + I_C_PrintPackageData.COLUMNNAME_PrintData
+				+ " FROM " + I_C_PrintPackageData.Table_Name
+				+ " WHERE " + I_C_PrintPackageData.COLUMNNAME_C_PrintPackageData_ID + "=?";
+		final List<Object> sqlParams = ImmutableList.of(printPackageDataId);
+
+		PreparedStatement pstmt = null;
+		ResultSet rs = null;
+		try
+		{
+			pstmt = DB.prepareStatement(sql, ITrx.TRXNAME_ThreadInherited);
+			DB.setParameters(pstmt, sqlParams);
+			rs = pstmt.executeQuery();
+			if (rs.next())
+			{
+				try (final InputStream in = rs.getBinaryStream(1))
+				{
+					if (in != null)
+					{
+						ByteStreams.copy(in, out);
+					}
+				}
+			}
+		}
+		catch (final SQLException e)
+		{
+			throw new DBException(e, sql, sqlParams);
+		}
+		catch (final IOException e)
+		{
+			throw new AdempiereException("Failed writing the print data", e)
+					.appendParametersToMessage()
+					.setParameter("C_Print_Package", printPackage);
+		}
+		finally
+		{
+			DB.close(rs, pstmt);
+		}
+	}
+
+	/**
+	 * Updates only the {@code PrintData} column with a streamed parameter, so the JDBC driver reads the file while sending it.
+	 */
+	@Override
+	public void updatePrintData(@NonNull final I_C_PrintPackageData printPackageData, @NonNull final File printDataFile)
+	{
+		final String trxName = InterfaceWrapperHelper.getTrxName(printPackageData);
+		final String sql = "UPDATE " + I_C_PrintPackageData.Table_Name
+				+ " SET " + I_C_PrintPackageData.COLUMNNAME_PrintData + "=?"
+				+ " WHERE " + I_C_PrintPackageData.COLUMNNAME_C_PrintPackageData_ID + "=?";
+
+		PreparedStatement pstmt = null;
+		try (final InputStream in = new BufferedInputStream(new FileInputStream(printDataFile)))
+		{
+			pstmt = DB.prepareStatement(sql, trxName);
+			pstmt.setBinaryStream(1, in, printDataFile.length());
+			pstmt.setInt(2, printPackageData.getC_PrintPackageData_ID());
+
+			final int updatedCount = pstmt.executeUpdate();
+			if (updatedCount != 1)
+			{
+				throw new AdempiereException("Expected exactly one updated record but got " + updatedCount)
+						.appendParametersToMessage()
+						.setParameter("C_PrintPackageData", printPackageData);
+			}
+		}
+		catch (final SQLException e)
+		{
+			throw new DBException(e, sql);
+		}
+		catch (final IOException e)
+		{
+			throw new AdempiereException("Failed reading the print data from " + printDataFile, e);
+		}
+		finally
+		{
+			DB.close(pstmt);
+		}
+
+		// we bypassed the model when setting the data, so we need to take care of the cache reset ourselves
+		CacheMgt.get().resetLocalNowAndBroadcastOnTrxCommit(
+				trxName,
+				CacheInvalidateMultiRequest.rootRecord(I_C_PrintPackageData.Table_Name, printPackageData.getC_PrintPackageData_ID()));
+	}
 }
@@ -24,6 +24,7 @@ package de.metas.printing.printingdata;
 
 import com.google.common.collect.ImmutableList;
 import com.lowagie.text.pdf.PdfReader;
+import com.lowagie.text.pdf.RandomAccessFileOrArray;
 import de.metas.logging.LogManager;
 import de.metas.organization.OrgId;
 import de.metas.printing.OutputType;
@@ -38,13 +39,22 @@ import org.adempiere.exceptions.AdempiereException;
 import org.slf4j.Logger;
 
 import javax.annotation.Nullable;
+import java.io.ByteArrayInputStream;
+import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Objects;
+import java.util.function.Supplier;
 
-@ToString(exclude = { "data" })
+/**
+ * The PDF is not kept in memory, but read from {@link #openDataStream()} when it's actually needed (see {@link PrintingDataToPDFWriter}).
+ */
+@ToString(exclude = { "dataStreamSupplier" })
 public class PrintingData
 {
 	// Services
@@ -60,8 +70,8 @@ public class PrintingData
 	private final String documentFileName;
 
 	// Archive's Data
-	@Getter
-	private transient final byte[] data;
+	@Nullable
+	private transient final Supplier<InputStream> dataStreamSupplier;
 
 	@Getter
 	private final OrgId orgId;
@@ -74,11 +84,19 @@ public class PrintingData
 			@NonNull final PrintingQueueItemId printingQueueItemId,
 			@NonNull final OrgId orgId,
 			@Nullable final byte[] data,
+			@Nullable final Supplier<InputStream> dataStreamSupplier,
+			@Nullable final Integer numberOfPages,
 			@NonNull final String documentFileName,
 			@Nullable final Boolean adjustSegmentPageRanges)
 	{
+		if (data != null && dataStreamSupplier != null)
+		{
+			throw new AdempiereException("Only one of data or dataStreamSupplier may be set");
+		}
+
 		this.printingQueueItemId = printingQueueItemId;
-		this.data = data;
+		this.dataStreamSupplier = data != null ? () -> new ByteArrayInputStream(data) : dataStreamSupplier;
+		this.numberOfPages = numberOfPages;
 		this.orgId = orgId;
 		this.documentFileName = documentFileName;
 		if (CoalesceUtil.coalesce(adjustSegmentPageRanges, true))
@@ -257,7 +275,25 @@ public class PrintingData
 
 	public boolean hasData()
 	{
-		return data != null;
+		return dataStreamSupplier != null;
+	}
+
+	/**
+	 * @return a new stream of the PDF data; the caller is responsible for closing it.
+	 */
+	public InputStream openDataStream()
+	{
+		if (dataStreamSupplier == null)
+		{
+			throw new AdempiereException("PrintingData has no data: " + this);
+		}
+
+		final InputStream in = dataStreamSupplier.get();
+		if (in == null)
+		{
+			throw new AdempiereException("PrintingData has no data: " + this);
+		}
+		return in;
 	}
 
 	public int getNumberOfPages()
@@ -272,29 +308,58 @@ public class PrintingData
 			return 0;
 		}
 
-		PdfReader reader = null;
-		try
+		try (final InputStream in = openDataStream())
 		{
-			reader = new PdfReader(getData());
-			numberOfPages = reader.getNumberOfPages();
+			numberOfPages = computeNumberOfPages(in);
 			return numberOfPages;
 		}
 		catch (final IOException e)
 		{
 			throw new AdempiereException("Cannot get number of pages for C_Printing_Queue_ID=" + printingQueueItemId.getRepoId(), e);
 		}
-		finally
+	}
+
+	/**
+	 * @return the number of pages of the given PDF, or zero if the stream is empty.
+	 */
+	static int computeNumberOfPages(@NonNull final InputStream in) throws IOException
+	{
+		// spool the PDF to a file, because reading it from a stream would buffer all of it in memory
+		final File file = File.createTempFile("PrintingData_", ".pdf");
+		try
 		{
-			if (reader != null)
+			Files.copy(in, file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+			if (file.length() <= 0)
 			{
-				try
-				{
-					reader.close();
-				}
-				catch (final Exception e)
-				{
-				}
+				return 0;
 			}
+
+			// NOTE: the (RandomAccessFileOrArray, ownerPassword) constructor reads the PDF partially, i.e. it does not parse the pages' content
+			final PdfReader reader = new PdfReader(new RandomAccessFileOrArray(file.getAbsolutePath(), false, true), null);
+			try
+			{
+				return reader.getNumberOfPages();
+			}
+			finally
+			{
+				reader.close();
+			}
+		}
+		finally
+		{
+			deleteTempFile(file);
+		}
+	}
+
+	private static void deleteTempFile(@NonNull final File file)
+	{
+		try
+		{
+			Files.deleteIfExists(file.toPath());
+		}
+		catch (final IOException e)
+		{
+			logger.warn("Failed deleting temporary file {}; ignored", file, e);
 		}
 	}
 
@@ -306,7 +371,8 @@ public class PrintingData
 
 		return PrintingData.builder()
 				.adjustSegmentPageRanges(false)
-				.data(this.data)
+				.dataStreamSupplier(this.dataStreamSupplier)
+				.numberOfPages(this.numberOfPages)
 				.documentFileName(this.documentFileName)
 				.orgId(this.orgId)
 				.printingQueueItemId(this.printingQueueItemId)
@@ -24,6 +24,7 @@ package de.metas.printing.printingdata;
 
 import com.google.common.collect.ImmutableList;
 import de.metas.adempiere.service.IPrinterRoutingDAO;
+import de.metas.cache.CCache;
 import de.metas.adempiere.service.PrinterRoutingsQuery;
 import de.metas.document.archive.api.ArchiveFileNameService;
 import de.metas.document.archive.api.IDocOutboundDAO;
@@ -53,6 +54,7 @@ import de.metas.util.Services;
 import lombok.NonNull;
 import org.adempiere.archive.ArchiveId;
 import org.adempiere.archive.api.IArchiveBL;
+import org.adempiere.exceptions.AdempiereException;
 import org.adempiere.model.InterfaceWrapperHelper;
 import org.compiere.model.I_AD_Archive;
 import org.compiere.util.Env;
@@ -60,8 +62,11 @@ import org.slf4j.Logger;
 import org.springframework.stereotype.Service;
 
 import javax.annotation.Nullable;
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.List;
 
+import static org.adempiere.model.InterfaceWrapperHelper.load;
 import static org.adempiere.model.InterfaceWrapperHelper.loadOutOfTrx;
 
 @Service
@@ -80,6 +85,15 @@ public class PrintingDataFactory
 	private final HardwarePrinterRepository hardwarePrinterRepository;
 	private final ArchiveFileNameService archiveFileNameService;
 
+	/**
+	 * Archives are not changed after they were created, so we don't need to parse the same PDF again when it's printed for multiple recipients or reprinted.
+	 */
+	private final CCache<ArchiveId, Integer> archiveId2numberOfPages = CCache.<ArchiveId, Integer>builder()
+			.cacheName("AD_Archive_NumberOfPages")
+			.tableName(I_AD_Archive.Table_Name)
+			.initialCapacity(1000)
+			.build();
+
 	public PrintingDataFactory(
 			@NonNull final HardwarePrinterRepository hardwarePrinterRepository,
 			@NonNull final ArchiveFileNameService archiveFileNameService)
@@ -126,8 +140,8 @@ public class PrintingDataFactory
 				.builder()
 				.printingQueueItemId(PrintingQueueItemId.ofRepoId(queueItem.getC_Printing_Queue_ID()))
 				.orgId(OrgId.ofRepoId(queueItem.getAD_Org_ID()))
-				.documentFileName(pdfFileName)
-				.data(loadArchiveData(archiveRecord));
+				.documentFileName(pdfFileName);
+		setArchiveData(printingData, archiveRecord);
 
 		final PrinterRoutingsQuery query = printingQueueBL.createPrinterRoutingsQueryForItem(queueItem);
 		final List<I_AD_PrinterRouting> printerRoutings = InterfaceWrapperHelper.createList(printerRoutingDAO.fetchPrinterRoutings(query), I_AD_PrinterRouting.class);
@@ -179,21 +193,42 @@ public class PrintingDataFactory
 
 		if (atLeastOneSegmentCreated)
 		{
-			printingData.data(loadArchiveData(archiveRecord)); // if no segment was created we don't need to bother loading the data
+			setArchiveData(printingData, archiveRecord); // if no segment was created we don't need to bother loading the data
 		}
 		return printingData.build();
 	}
 
-	private byte[] loadArchiveData(@NonNull final I_AD_Archive archiveRecord)
+	/**
+	 * Sets the archive's number of pages and a supplier that streams the archive's data when the PDF is actually written.
+	 * We don't keep the data in memory, because a print package might contain thousands of archives.
+	 */
+	private void setArchiveData(
+			@NonNull final PrintingData.PrintingDataBuilder printingData,
+			@NonNull final I_AD_Archive archiveRecord)
 	{
-
-		byte[] data = archiveBL.getBinaryData(archiveRecord);
-		if (data == null || data.length == 0)
+		final ArchiveId archiveId = ArchiveId.ofRepoId(archiveRecord.getAD_Archive_ID());
+		final int numberOfPages = archiveId2numberOfPages.getOrLoad(archiveId, () -> computeNumberOfPages(archiveRecord));
+		if (numberOfPages <= 0)
 		{
 			logger.info("AD_Archive {} does not contain any data. Skip", archiveRecord);
-			data = null;
+			return;
+		}
+
+		printingData
+				.numberOfPages(numberOfPages)
+				.dataStreamSupplier(() -> archiveBL.getBinaryDataAsStream(load(archiveId, I_AD_Archive.class)));
+	}
+
+	private int computeNumberOfPages(@NonNull final I_AD_Archive archiveRecord)
+	{
+		try (final InputStream in = archiveBL.getBinaryDataAsStream(archiveRecord))
+		{
+			return in != null ? PrintingData.computeNumberOfPages(in) : 0;
+		}
+		catch (final IOException e)
+		{
+			throw new AdempiereException("Cannot get number of pages of " + archiveRecord, e);
 		}
-		return data;
 	}
 
 	private PrintingSegment createPrintingSegment(
@@ -27,6 +27,7 @@ import com.lowagie.text.DocumentException;
 import com.lowagie.text.pdf.BadPdfFormatException;
 import com.lowagie.text.pdf.PdfCopy;
 import com.lowagie.text.pdf.PdfReader;
+import com.lowagie.text.pdf.RandomAccessFileOrArray;
 import de.metas.logging.LogManager;
 import de.metas.printing.exception.PrintingQueueAggregationException;
 import lombok.NonNull;
@@ -34,9 +35,24 @@ import org.adempiere.exceptions.AdempiereException;
 import org.adempiere.util.lang.IAutoCloseable;
 import org.slf4j.Logger;
 
+import javax.annotation.Nullable;
+import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.OutputStream;
-
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * Appends page ranges of {@link PrintingData}s to one PDF which is written to the given output stream.
+ * <p>
+ * To keep the memory footprint independent of the number and size of the PDFs, each {@link PrintingData}'s PDF is copied to a temporary file
+ * and read from there "partially", i.e. page by page. Only the reader of the current {@link PrintingData} is kept open,
+ * so consecutive segments of the same PDF don't need to parse it again.
+ * The temporary files are deleted on {@link #close()}.
+ */
 public class PrintingDataToPDFWriter implements IAutoCloseable
 {
 	private final static transient Logger logger = LogManager.getLogger(PrintingDataToPDFWriter.class);
@@ -44,6 +60,13 @@ public class PrintingDataToPDFWriter implements IAutoCloseable
 	private final PdfCopy pdfCopy;
 	private final Document document;
 
+	private final Map<PrintingData, File> spooledFiles = new IdentityHashMap<>();
+
+	@Nullable
+	private PrintingData currentData;
+	@Nullable
+	private PdfReader currentReader;
+
 	public PrintingDataToPDFWriter(@NonNull final OutputStream out)
 	{
 		document = new Document();
@@ -79,7 +102,7 @@ public class PrintingDataToPDFWriter implements IAutoCloseable
 		}
 		logger.debug("Adding data={}; segment={}", data, segment);
 
-		final PdfReader reader = new PdfReader(data.getData());
+		final PdfReader reader = getReader(data);
 
 		final int archivePageNums = reader.getNumberOfPages();
 
@@ -119,16 +142,91 @@ public class PrintingDataToPDFWriter implements IAutoCloseable
 			pagesAdded++;
 		}
 
-		pdfCopy.freeReader(reader);
-		reader.close();
-
 		logger.debug("Added {} pages", pagesAdded);
 		return pagesAdded;
 	}
 
+	private PdfReader getReader(@NonNull final PrintingData data) throws IOException
+	{
+		if (currentData == data && currentReader != null)
+		{
+			return currentReader;
+		}
+
+		freeCurrentReader();
+
+		final File file = spoolToFile(data);
+		// NOTE: the (RandomAccessFileOrArray, ownerPassword) constructor reads the PDF partially, i.e. the pages are loaded from file when needed
+		currentReader = new PdfReader(new RandomAccessFileOrArray(file.getAbsolutePath(), false, true), null);
+		currentData = data;
+		return currentReader;
+	}
+
+	private File spoolToFile(@NonNull final PrintingData data) throws IOException
+	{
+		final File existingFile = spooledFiles.get(data);
+		if (existingFile != null)
+		{
+			return existingFile;
+		}
+
+		final File file = File.createTempFile("PrintingData_", ".pdf");
+		spooledFiles.put(data, file);
+		try (final InputStream in = data.openDataStream())
+		{
+			Files.copy(in, file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		}
+		return file;
+	}
+
+	/**
+	 * Writes the pages we imported from the current reader and releases it.
+	 */
+	private void freeCurrentReader() throws IOException
+	{
+		if (currentReader == null)
+		{
+			return;
+		}
+
+		pdfCopy.freeReader(currentReader);
+		currentReader.close();
+
+		currentReader = null;
+		currentData = null;
+	}
+
 	@Override
 	public void close()
 	{
-		document.close();
+		try
+		{
+			freeCurrentReader();
+			document.close();
+		}
+		catch (final IOException e)
+		{
+			throw new AdempiereException(e);
+		}
+		finally
+		{
+			deleteSpooledFiles();
+		}
+	}
+
+	private void deleteSpooledFiles()
+	{
+		for (final File file : spooledFiles.values())
+		{
+			try
+			{
+				Files.deleteIfExists(file.toPath());
+			}
+			catch (final IOException e)
+			{
+				logger.warn("Failed deleting temporary file {}; ignored", file, e);
+			}
+		}
+		spooledFiles.clear();
 	}
 }
@@ -0,0 +1,125 @@
+/*
+ * #%L
+ * de.metas.printing.base
+ * %%
+ * Copyright (C) 2020 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+package de.metas.printing.printingdata;
+
+import de.metas.organization.OrgId;
+import de.metas.printing.HardwarePrinter;
+import de.metas.printing.HardwarePrinterId;
+import de.metas.printing.OutputType;
+import de.metas.printing.PrinterRoutingId;
+import de.metas.printing.PrintingQueueItemId;
+import de.metas.printing.api.impl.Helper;
+import de.metas.printing.api.util.PdfCollator;
+import de.metas.printing.model.I_AD_PrinterRouting;
+import lombok.NonNull;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInfo;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PrintingDataToPDFWriterTest
+{
+	private Helper helper;
+	private HardwarePrinter printer;
+
+	@BeforeEach
+	void beforeEach(@NonNull final TestInfo testInfo)
+	{
+		helper = new Helper(testInfo);
+		helper.setup();
+
+		printer = HardwarePrinter.builder()
+				.id(HardwarePrinterId.ofRepoId(30))
+				.name("printer")
+				.outputType(OutputType.Store)
+				.build();
+	}
+
+	/**
+	 * Adds interleaved segments of two documents and verifies that each document's data is streamed only once.
+	 */
+	@Test
+	void addArchivePartToPDF_interleavedSegments()
+	{
+		// given
+		final byte[] pdf1 = helper.getPdf("01");
+		final AtomicInteger pdf1StreamsOpened = new AtomicInteger(0);
+		final PrintingData printingData1 = createPrintingData(pdf1, pdf1StreamsOpened);
+
+		final byte[] pdf2 = helper.getPdf("02");
+		final AtomicInteger pdf2StreamsOpened = new AtomicInteger(0);
+		final PrintingData printingData2 = createPrintingData(pdf2, pdf2StreamsOpened);
+
+		// when
+		final ByteArrayOutputStream out = new ByteArrayOutputStream();
+		int pagesAdded = 0;
+		try (final PrintingDataToPDFWriter writer = new PrintingDataToPDFWriter(out))
+		{
+			pagesAdded += writer.addArchivePartToPDF(printingData1, createSegment(1, 2));
+			pagesAdded += writer.addArchivePartToPDF(printingData1, createSegment(3, 5));
+			pagesAdded += writer.addArchivePartToPDF(printingData2, createSegment(1, 3));
+			pagesAdded += writer.addArchivePartToPDF(printingData1, createSegment(1, 2));
+		}
+
+		// then
+		assertThat(pagesAdded).isEqualTo(10);
+		assertThat(pdf1StreamsOpened.get()).isEqualTo(1);
+		assertThat(pdf2StreamsOpened.get()).isEqualTo(1);
+
+		final byte[] expected = new PdfCollator()
+				.addPages(pdf1, 1, 5)
+				.addPages(pdf2, 1, 3)
+				.addPages(pdf1, 1, 2)
+				.toByteArray();
+		helper.assertEqualsPDF(expected, out.toByteArray());
+	}
+
+	private PrintingData createPrintingData(final byte[] pdf, final AtomicInteger streamsOpened)
+	{
+		return PrintingData.builder()
+				.documentFileName("test.pdf")
+				.orgId(OrgId.ofRepoId(10))
+				.printingQueueItemId(PrintingQueueItemId.ofRepoId(20))
+				.dataStreamSupplier(() -> {
+					streamsOpened.incrementAndGet();
+					return new ByteArrayInputStream(pdf);
+				})
+				.build();
+	}
+
+	private PrintingSegment createSegment(final int pageFrom, final int pageTo)
+	{
+		return PrintingSegment.builder()
+				.printerRoutingId(PrinterRoutingId.ofRepoId(401))
+				.routingType(I_AD_PrinterRouting.ROUTINGTYPE_PageRange)
+				.initialPageFrom(pageFrom)
+				.initialPageTo(pageTo)
+				.printer(printer)
+				.build();
+	}
+}
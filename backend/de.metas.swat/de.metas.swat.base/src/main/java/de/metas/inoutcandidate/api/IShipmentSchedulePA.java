@@ -74,6 +74,19 @@ public interface IShipmentSchedulePA extends ISingletonService
 	 */
 	List<OlAndSched> retrieveInvalid(PInstanceId pinstanceId);
 
+	/**
+	 * Like {@link #retrieveInvalid(PInstanceId)}, marks the <code>M_SipmentSchedule_Recompute</code> records with the given <code>pinstanceId</code>,
+	 * but loads only the few columns that are needed to partition the invalid schedules.
+	 * <p>
+	 * The actual schedules can then be loaded chunk by chunk using {@link #retrieveOlAndSchedsByIds(Collection)}.
+	 */
+	ImmutableList<ShipmentSchedulePartitionInfo> retrieveInvalidPartitionInfos(PInstanceId pinstanceId);
+
+	/**
+	 * @return the given schedules (if active) together with their order lines, in the same order as {@link #retrieveInvalid(PInstanceId)} would return them.
+	 */
+	List<OlAndSched> retrieveOlAndSchedsByIds(Collection<ShipmentScheduleId> shipmentScheduleIds);
+
 	void setIsDiplayedForProduct(ProductId productId, boolean displayed);
 
 	/**
@@ -0,0 +1,63 @@
+package de.metas.inoutcandidate.api;
+
+import javax.annotation.Nullable;
+
+import org.adempiere.warehouse.WarehouseId;
+
+import de.metas.bpartner.BPartnerId;
+import de.metas.inoutcandidate.ShipmentScheduleId;
+import de.metas.order.OrderId;
+import de.metas.product.ProductId;
+import lombok.Builder;
+import lombok.NonNull;
+import lombok.Value;
+
+/*
+ * #%L
+ * de.metas.swat.base
+ * %%
+ * Copyright (C) 2020 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+/**
+ * The few columns of an invalid shipment schedule which are needed to decide which schedules have to be recomputed together.
+ *
+ * @see IShipmentSchedulePA#retrieveInvalidPartitionInfos(de.metas.process.PInstanceId)
+ */
+@Value
+@Builder
+public class ShipmentSchedulePartitionInfo
+{
+	@NonNull
+	ShipmentScheduleId shipmentScheduleId;
+
+	@NonNull
+	ProductId productId;
+
+	/** effective warehouse, i.e. {@code M_Warehouse_Override_ID} if set */
+	@NonNull
+	WarehouseId warehouseId;
+
+	/** effective partner, i.e. {@code C_BPartner_Override_ID} if set */
+	@NonNull
+	BPartnerId bpartnerId;
+
+	/** the sales order the schedule was created for; {@code null} if the schedule was created for something else, e.g. a subscription */
+	@Nullable
+	OrderId orderId;
+}
@@ -11,6 +11,7 @@ import de.metas.inoutcandidate.ShipmentScheduleId;
 import de.metas.inoutcandidate.api.IShipmentScheduleAllocDAO;
 import de.metas.inoutcandidate.api.IShipmentSchedulePA;
 import de.metas.inoutcandidate.api.OlAndSched;
+import de.metas.inoutcandidate.api.ShipmentSchedulePartitionInfo;
 import de.metas.inoutcandidate.exportaudit.APIExportStatus;
 import de.metas.inoutcandidate.invalidation.IShipmentScheduleInvalidateRepository;
 import de.metas.inoutcandidate.model.I_M_ShipmentSchedule;
@@ -24,6 +25,7 @@ import de.metas.order.OrderLineId;
 import de.metas.process.PInstanceId;
 import de.metas.product.ProductId;
 import de.metas.util.Check;
+import de.metas.util.NumberUtils;
 import de.metas.util.Services;
 import lombok.NonNull;
 import org.adempiere.ad.dao.ICompositeQueryFilter;
@@ -36,6 +38,7 @@ import org.adempiere.exceptions.AdempiereException;
 import org.adempiere.model.InterfaceWrapperHelper;
 import org.adempiere.model.PlainContextAware;
 import org.adempiere.util.lang.impl.TableRecordReference;
+import org.adempiere.warehouse.WarehouseId;
 import org.compiere.model.IQuery;
 import org.compiere.model.MOrderLine;
 import org.slf4j.Logger;
@@ -229,6 +232,78 @@ public class ShipmentSchedulePA implements IShipmentSchedulePA
 		return createOlAndScheds(shipmentSchedules);
 	}
 
+	@Override
+	public ImmutableList<ShipmentSchedulePartitionInfo> retrieveInvalidPartitionInfos(@NonNull final PInstanceId pinstanceId)
+	{
+		final IShipmentScheduleInvalidateRepository invalidSchedulesRepo = Services.get(IShipmentScheduleInvalidateRepository.class);
+
+		// task 08727: Tag the recompute records out-of-trx; see retrieveInvalid()
+		invalidSchedulesRepo.markAllToRecomputeOutOfTrx(pinstanceId);
+
+		final List<Map<String, Object>> rows = queryBL
+				.createQueryBuilder(I_M_ShipmentSchedule.class)
+				.addOnlyActiveRecordsFilter()
+				.filter(invalidSchedulesRepo.createInvalidShipmentSchedulesQueryFilter(pinstanceId))
+				.create()
+				.setOrderBy(queryBL.createSqlQueryOrderBy(ORDER_CLAUSE))
+				.listColumns(
+						I_M_ShipmentSchedule.COLUMNNAME_M_ShipmentSchedule_ID,
+						I_M_ShipmentSchedule.COLUMNNAME_M_Product_ID,
+						I_M_ShipmentSchedule.COLUMNNAME_M_Warehouse_ID,
+						I_M_ShipmentSchedule.COLUMNNAME_M_Warehouse_Override_ID,
+						I_M_ShipmentSchedule.COLUMNNAME_C_BPartner_ID,
+						I_M_ShipmentSchedule.COLUMNNAME_C_BPartner_Override_ID,
+						I_M_ShipmentSchedule.COLUMNNAME_C_Order_ID);
+
+		return rows.stream()
+				.map(ShipmentSchedulePA::toPartitionInfo)
+				.collect(ImmutableList.toImmutableList());
+	}
+
+	private static ShipmentSchedulePartitionInfo toPartitionInfo(final Map<String, Object> row)
+	{
+		final int warehouseOverrideRepoId = NumberUtils.asInt(row.get(I_M_ShipmentSchedule.COLUMNNAME_M_Warehouse_Override_ID), -1);
+		final int warehouseRepoId = warehouseOverrideRepoId > 0
+				? warehouseOverrideRepoId
+				: NumberUtils.asInt(row.get(I_M_ShipmentSchedule.COLUMNNAME_M_Warehouse_ID), -1);
+
+		final int bpartnerOverrideRepoId = NumberUtils.asInt(row.get(I_M_ShipmentSchedule.COLUMNNAME_C_BPartner_Override_ID), -1);
+		final int bpartnerRepoId = bpartnerOverrideRepoId > 0
+				? bpartnerOverrideRepoId
+				: NumberUtils.asInt(row.get(I_M_ShipmentSchedule.COLUMNNAME_C_BPartner_ID), -1);
+
+		return ShipmentSchedulePartitionInfo.builder()
+				.shipmentScheduleId(ShipmentScheduleId.ofRepoId(NumberUtils.asInt(row.get(I_M_ShipmentSchedule.COLUMNNAME_M_ShipmentSchedule_ID), -1)))
+				.productId(ProductId.ofRepoId(NumberUtils.asInt(row.get(I_M_ShipmentSchedule.COLUMNNAME_M_Product_ID), -1)))
+				.warehouseId(WarehouseId.ofRepoId(warehouseRepoId))
+				.bpartnerId(BPartnerId.ofRepoId(bpartnerRepoId))
+				.orderId(OrderId.ofRepoIdOrNull(NumberUtils.asInt(row.get(I_M_ShipmentSchedule.COLUMNNAME_C_Order_ID), -1)))
+				.build();
+	}
+
+	@Override
+	public List<OlAndSched> retrieveOlAndSchedsByIds(@NonNull final Collection<ShipmentScheduleId> shipmentScheduleIds)
+	{
+		if (shipmentScheduleIds.isEmpty())
+		{
+			return ImmutableList.of();
+		}
+
+		final List<I_M_ShipmentSchedule> shipmentSchedules = queryBL
+				.createQueryBuilder(I_M_ShipmentSchedule.class)
+				.addOnlyActiveRecordsFilter()
+				.addInArrayFilter(I_M_ShipmentSchedule.COLUMNNAME_M_ShipmentSchedule_ID, shipmentScheduleIds)
+				.create()
+				.setOrderBy(queryBL.createSqlQueryOrderBy(ORDER_CLAUSE))
+				.list();
+		if (shipmentSchedules.isEmpty())
+		{
+			return ImmutableList.of();
+		}
+
+		return createOlAndScheds(shipmentSchedules);
+	}
+
 	private static final OrderAndLineId extractOrderAndLineId(final I_M_ShipmentSchedule shipmentSchedule)
 	{
 		return OrderAndLineId.ofRepoIdsOrNull(shipmentSchedule.getC_Order_ID(), shipmentSchedule.getC_OrderLine_ID());
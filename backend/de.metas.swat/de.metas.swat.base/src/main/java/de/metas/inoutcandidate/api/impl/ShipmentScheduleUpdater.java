@@ -32,9 +32,15 @@ import java.util.List;
 import java.util.Optional;
 import java.util.Properties;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Stream;
 
 import de.metas.inoutcandidate.exportaudit.APIExportStatus;
+import org.adempiere.ad.trx.api.ITrxManager;
 import org.adempiere.exceptions.AdempiereException;
 import org.adempiere.inout.util.DeliveryGroupCandidate;
 import org.adempiere.inout.util.DeliveryGroupCandidateGroupId;
@@ -47,6 +53,8 @@ import org.adempiere.inout.util.ShipmentScheduleQtyOnHandStorageFactory;
 import org.adempiere.inout.util.ShipmentSchedulesDuringUpdate;
 import org.adempiere.model.InterfaceWrapperHelper;
 import org.adempiere.service.ISysConfigBL;
+import org.adempiere.util.concurrent.CustomizableThreadFactory;
+import org.adempiere.util.lang.IAutoCloseable;
 import org.adempiere.util.lang.IContextAware;
 import org.adempiere.util.lang.ImmutablePair;
 import org.adempiere.warehouse.LocatorId;
@@ -61,6 +69,7 @@ import org.slf4j.MDC.MDCCloseable;
 import org.springframework.stereotype.Service;
 
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Stopwatch;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
 
@@ -79,7 +88,9 @@ import de.metas.inoutcandidate.api.IShipmentSchedulePA;
 import de.metas.inoutcandidate.api.IShipmentScheduleUpdater;
 import de.metas.inoutcandidate.api.OlAndSched;
 import de.metas.inoutcandidate.ShipmentScheduleId;
+import de.metas.inoutcandidate.api.ShipmentSchedulePartitionInfo;
 import de.metas.inoutcandidate.api.ShipmentScheduleUpdateInvalidRequest;
+import de.metas.inoutcandidate.api.impl.ShipmentSchedulesPartitioner.ShipmentSchedulesChunk;
 import de.metas.inoutcandidate.api.ShipmentSchedulesMDC;
 import de.metas.inoutcandidate.invalidation.IShipmentScheduleInvalidateRepository;
 import de.metas.inoutcandidate.invalidation.segments.IShipmentScheduleSegment;
@@ -110,7 +121,9 @@ import de.metas.util.Check;
 import de.metas.util.ILoggable;
 import de.metas.util.Loggables;
 import de.metas.util.Services;
+import lombok.Builder;
 import lombok.NonNull;
+import lombok.Value;
 
 @Service
 public class ShipmentScheduleUpdater implements IShipmentScheduleUpdater
@@ -134,6 +147,20 @@ public class ShipmentScheduleUpdater implements IShipmentScheduleUpdater
 
 	private static final Logger logger = LogManager.getLogger(ShipmentScheduleUpdater.class);
 
+	/**
+	 * Max. number of shipment schedules that are loaded and updated together. Schedules which might influence each other (same stock, same order etc) are always updated together,
+	 * so a chunk can also be bigger. Zero or less means that all invalid schedules are updated in one chunk.
+	 */
+	private static final String SYSCONFIG_ChunkSize = "de.metas.inoutcandidate.ShipmentScheduleUpdater.chunkSize";
+	private static final int DEFAULT_ChunkSize = 500;
+
+	/**
+	 * If greater than one, the chunks are updated by that many worker threads, each chunk in its own transaction.
+	 * In that case, the missing shipment schedules are created and committed in a transaction of their own, so that the worker threads can see them.
+	 * Otherwise they are updated one after the other in the caller's thread and transaction.
+	 */
+	private static final String SYSCONFIG_Parallelism = "de.metas.inoutcandidate.ShipmentScheduleUpdater.parallelism";
+
 	private final IShipmentScheduleHandlerBL shipmentScheduleHandlerBL = Services.get(IShipmentScheduleHandlerBL.class);
 	private final IShipmentScheduleInvalidateRepository invalidSchedulesRepo = Services.get(IShipmentScheduleInvalidateRepository.class);
 	private final IShipmentSchedulePA shipmentSchedulePA = Services.get(IShipmentSchedulePA.class);
@@ -151,6 +178,8 @@ public class ShipmentScheduleUpdater implements IShipmentScheduleUpdater
 	private final IUOMConversionBL uomConversionBL = Services.get(IUOMConversionBL.class);
 	private final IProductBL productsService = Services.get(IProductBL.class);
 	private final IBPartnerProductDAO bpartnerProductDAO = Services.get(IBPartnerProductDAO.class);
+	private final ISysConfigBL sysConfigBL = Services.get(ISysConfigBL.class);
+	private final ITrxManager trxManager = Services.get(ITrxManager.class);
 
 	private final CompositeCandidateProcessor candidateProcessors = new CompositeCandidateProcessor();
 
@@ -202,27 +231,39 @@ public class ShipmentScheduleUpdater implements IShipmentScheduleUpdater
 
 		try
 		{
+			final int parallelism = sysConfigBL.getIntValue(SYSCONFIG_Parallelism, 1);
+
 			// Create and invalidate missing shipment schedules, if asked
 			if (request.isCreateMissingShipmentSchedules())
 			{
-				final Set<ShipmentScheduleId> shipmentSchedulesNewIds = shipmentScheduleHandlerBL.createMissingCandidates(request.getCtx());
-				invalidSchedulesRepo.invalidateShipmentSchedules(shipmentSchedulesNewIds);
+				final Set<ShipmentScheduleId> shipmentSchedulesNewIds = parallelism > 1
+						? trxManager.callInNewTrx(() -> createMissingCandidates(request.getCtx())) // commit them, else the worker threads won't see them
+						: createMissingCandidates(request.getCtx());
 
 				loggable.addLog("ShipmentScheduleUpdater - created {} missing candidates", shipmentSchedulesNewIds.size());
 			}
 
-			final List<OlAndSched> olsAndScheds = shipmentSchedulePA.retrieveInvalid(selectionId);
-			loggable.addLog("Found {} invalid shipment schedules and tagged them with {}", olsAndScheds.size(), selectionId);
+			final ImmutableList<ShipmentSchedulePartitionInfo> invalidSchedules = shipmentSchedulePA.retrieveInvalidPartitionInfos(selectionId);
+			loggable.addLog("Found {} invalid shipment schedules and tagged them with {}", invalidSchedules.size(), selectionId);
 
-			invalidatePickingBOMProducts(olsAndScheds, selectionId);
+			final ImmutableList<ShipmentSchedulesChunk> chunks = newPartitioner().partition(invalidSchedules);
+			final List<ChunkUpdateResult> results = parallelism > 1 && chunks.size() > 1
+					? updateChunksInParallel(request.getCtx(), selectionId, chunks, parallelism)
+					: updateChunks(request.getCtx(), selectionId, chunks);
 
-			updateSchedules(request.getCtx(), olsAndScheds);
+			int countUpdated = 0;
+			for (final ChunkUpdateResult result : results)
+			{
+				loggable.addLog("ShipmentScheduleUpdater - chunk {}/{}: updated {} shipment schedules of {} partition(s) in {}ms",
+						result.getChunkNo(), chunks.size(), result.getSchedulesCount(), result.getPartitionsCount(), result.getDurationMillis());
+				countUpdated += result.getSchedulesCount();
+			}
 
 			// cleanup the marker/pointer tables
 			invalidSchedulesRepo.deleteRecomputeMarkersOutOfTrx(selectionId);
 
 			logger.debug("Done");
-			return olsAndScheds.size();
+			return countUpdated;
 		}
 		finally
 		{
@@ -239,6 +280,147 @@ public class ShipmentScheduleUpdater implements IShipmentScheduleUpdater
 		}
 	}
 
+	private Set<ShipmentScheduleId> createMissingCandidates(@NonNull final Properties ctx)
+	{
+		final Set<ShipmentScheduleId> shipmentSchedulesNewIds = shipmentScheduleHandlerBL.createMissingCandidates(ctx);
+		invalidSchedulesRepo.invalidateShipmentSchedules(shipmentSchedulesNewIds);
+		return shipmentSchedulesNewIds;
+	}
+
+	private ShipmentSchedulesPartitioner newPartitioner()
+	{
+		final int chunkSize = sysConfigBL.getIntValue(SYSCONFIG_ChunkSize, DEFAULT_ChunkSize);
+
+		return ShipmentSchedulesPartitioner.builder()
+				.pickingBOMsReversedIndex(pickingBOMService.getPickingBOMsReversedIndex())
+				.warehousesOfSamePickingGroupProvider(warehousesRepo::getWarehouseIdsOfSamePickingGroup)
+				.allowConsolidateShipment(this::isAllowConsolidateShipment)
+				.chunkSize(chunkSize > 0 ? chunkSize : Integer.MAX_VALUE)
+				.build();
+	}
+
+	/**
+	 * Updates the chunks one after the other, in the current thread and transaction.
+	 */
+	private List<ChunkUpdateResult> updateChunks(
+			@NonNull final Properties ctx,
+			@NonNull final PInstanceId selectionId,
+			@NonNull final List<ShipmentSchedulesChunk> chunks)
+	{
+		return chunks.stream()
+				.map(chunk -> updateChunk(ctx, selectionId, chunk))
+				.collect(ImmutableList.toImmutableList());
+	}
+
+	/**
+	 * Updates the chunks on a pool of worker threads, each chunk in its own transaction.
+	 * <p>
+	 * Waits until all chunks are done, also if one of them failed, so that no chunk is still running when the recompute markers are released.
+	 */
+	private List<ChunkUpdateResult> updateChunksInParallel(
+			@NonNull final Properties ctx,
+			@NonNull final PInstanceId selectionId,
+			@NonNull final List<ShipmentSchedulesChunk> chunks,
+			final int parallelism)
+	{
+		final ExecutorService executor = Executors.newFixedThreadPool(
+				Math.min(parallelism, chunks.size()),
+				CustomizableThreadFactory.builder()
+						.setThreadNamePrefix(ShipmentScheduleUpdater.class.getSimpleName())
+						.setDaemon(true)
+						.build());
+		try
+		{
+			final List<Future<ChunkUpdateResult>> futures = new ArrayList<>(chunks.size());
+			for (final ShipmentSchedulesChunk chunk : chunks)
+			{
+				futures.add(executor.submit(() -> updateChunkInNewTrx(ctx, selectionId, chunk)));
+			}
+
+			final List<ChunkUpdateResult> results = new ArrayList<>(chunks.size());
+			AdempiereException firstException = null;
+			for (final Future<ChunkUpdateResult> future : futures)
+			{
+				try
+				{
+					results.add(future.get());
+				}
+				catch (final ExecutionException ex)
+				{
+					logger.warn("Failed updating a chunk of shipment schedules", ex.getCause());
+					if (firstException == null)
+					{
+						firstException = AdempiereException.wrapIfNeeded(ex.getCause());
+					}
+				}
+				catch (final InterruptedException ex)
+				{
+					Thread.currentThread().interrupt();
+					throw AdempiereException.wrapIfNeeded(ex);
+				}
+			}
+
+			if (firstException != null)
+			{
+				throw firstException;
+			}
+			return results;
+		}
+		finally
+		{
+			executor.shutdownNow();
+		}
+	}
+
+	private ChunkUpdateResult updateChunkInNewTrx(
+			@NonNull final Properties ctx,
+			@NonNull final PInstanceId selectionId,
+			@NonNull final ShipmentSchedulesChunk chunk)
+	{
+		final Properties workerCtx = Env.copyCtx(ctx);
+		try (final IAutoCloseable ctxRestorer = Env.switchContext(workerCtx))
+		{
+			// the model interceptors are checking isRunning() in the thread they are invoked in
+			this.running.set(true);
+			return trxManager.callInNewTrx(() -> updateChunk(workerCtx, selectionId, chunk));
+		}
+		finally
+		{
+			this.running.set(false);
+		}
+	}
+
+	private ChunkUpdateResult updateChunk(
+			@NonNull final Properties ctx,
+			@NonNull final PInstanceId selectionId,
+			@NonNull final ShipmentSchedulesChunk chunk)
+	{
+		final Stopwatch stopwatch = Stopwatch.createStarted();
+
+		final List<OlAndSched> olsAndScheds = shipmentSchedulePA.retrieveOlAndSchedsByIds(chunk.getShipmentScheduleIds());
+
+		invalidatePickingBOMProducts(olsAndScheds, selectionId);
+
+		updateSchedules(ctx, olsAndScheds);
+
+		return ChunkUpdateResult.builder()
+				.chunkNo(chunk.getChunkNo())
+				.partitionsCount(chunk.getPartitionsCount())
+				.schedulesCount(olsAndScheds.size())
+				.durationMillis(stopwatch.stop().elapsed(TimeUnit.MILLISECONDS))
+				.build();
+	}
+
+	@Value
+	@Builder
+	private static class ChunkUpdateResult
+	{
+		int chunkNo;
+		int partitionsCount;
+		int schedulesCount;
+		long durationMillis;
+	}
+
 	@Override
 	public boolean isRunning()
 	{
@@ -0,0 +1,311 @@
+package de.metas.inoutcandidate.api.impl;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+import org.adempiere.warehouse.WarehouseId;
+import org.slf4j.Logger;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.ImmutableSetMultimap;
+
+import de.metas.bpartner.BPartnerId;
+import de.metas.inoutcandidate.ShipmentScheduleId;
+import de.metas.inoutcandidate.api.ShipmentSchedulePartitionInfo;
+import de.metas.inoutcandidate.picking_bom.PickingBOMsReversedIndex;
+import de.metas.logging.LogManager;
+import de.metas.order.OrderId;
+import de.metas.product.ProductId;
+import de.metas.util.Check;
+import lombok.Builder;
+import lombok.NonNull;
+import lombok.Value;
+
+/*
+ * #%L
+ * de.metas.swat.base
+ * %%
+ * Copyright (C) 2020 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+/**
+ * Splits the invalid shipment schedules into chunks which can be recomputed independently of each other.
+ * <p>
+ * Two schedules end up in the same partition if
+ * <ul>
+ * <li>they compete for the same stock, i.e. same product (or picking BOM product and its components) in warehouses of the same picking group</li>
+ * <li>they belong to the same order, because of the delivery rule "complete order"</li>
+ * <li>they have the same partner, if that partner allows to consolidate shipments. Also schedules which were not created for an order are grouped by partner.</li>
+ * </ul>
+ * Partitions are never split. They are packed into chunks of about {@link #chunkSize} schedules, in the order in which the schedules were given.
+ */
+final class ShipmentSchedulesPartitioner
+{
+	private static final Logger logger = LogManager.getLogger(ShipmentSchedulesPartitioner.class);
+
+	private final ImmutableSetMultimap<ProductId, ProductId> bomProductIdsByComponentId;
+	private final ImmutableSetMultimap<ProductId, ProductId> componentIdsByBOMProductId;
+	private final Function<WarehouseId, Set<WarehouseId>> warehousesOfSamePickingGroupProvider;
+	private final Predicate<BPartnerId> allowConsolidateShipment;
+	private final int chunkSize;
+
+	private final HashMap<WarehouseId, Set<WarehouseId>> warehousesOfSamePickingGroupCache = new HashMap<>();
+	private final HashMap<BPartnerId, Boolean> allowConsolidateShipmentCache = new HashMap<>();
+
+	@Builder
+	private ShipmentSchedulesPartitioner(
+			@NonNull final PickingBOMsReversedIndex pickingBOMsReversedIndex,
+			@NonNull final Function<WarehouseId, Set<WarehouseId>> warehousesOfSamePickingGroupProvider,
+			@NonNull final Predicate<BPartnerId> allowConsolidateShipment,
+			final int chunkSize)
+	{
+		Check.assumeGreaterThanZero(chunkSize, "chunkSize");
+
+		final ImmutableSetMultimap.Builder<ProductId, ProductId> bomProductIdsByComponentId = ImmutableSetMultimap.builder();
+		for (final ProductId componentId : pickingBOMsReversedIndex.getComponentIds())
+		{
+			bomProductIdsByComponentId.putAll(componentId, pickingBOMsReversedIndex.getBOMProductIdsByComponentId(componentId));
+		}
+		this.bomProductIdsByComponentId = bomProductIdsByComponentId.build();
+		this.componentIdsByBOMProductId = this.bomProductIdsByComponentId.inverse();
+
+		this.warehousesOfSamePickingGroupProvider = warehousesOfSamePickingGroupProvider;
+		this.allowConsolidateShipment = allowConsolidateShipment;
+		this.chunkSize = chunkSize;
+	}
+
+	public ImmutableList<ShipmentSchedulesChunk> partition(@NonNull final List<ShipmentSchedulePartitionInfo> infos)
+	{
+		if (infos.isEmpty())
+		{
+			return ImmutableList.of();
+		}
+
+		//
+		// Union the schedules which share any key
+		final UnionFind unionFind = new UnionFind(infos.size());
+		final HashMap<Object, Integer> firstIndexByKey = new HashMap<>();
+		for (int index = 0; index < infos.size(); index++)
+		{
+			for (final Object key : extractPartitionKeys(infos.get(index)))
+			{
+				final Integer firstIndex = firstIndexByKey.putIfAbsent(key, index);
+				if (firstIndex != null)
+				{
+					unionFind.union(firstIndex, index);
+				}
+			}
+		}
+
+		//
+		// Collect the partitions; a partition's position is given by its first schedule
+		final LinkedHashMap<Integer, List<ShipmentScheduleId>> partitionsByRoot = new LinkedHashMap<>();
+		for (int index = 0; index < infos.size(); index++)
+		{
+			partitionsByRoot
+					.computeIfAbsent(unionFind.find(index), root -> new ArrayList<>())
+					.add(infos.get(index).getShipmentScheduleId());
+		}
+
+		//
+		// Pack the partitions into chunks
+		final ImmutableList.Builder<ShipmentSchedulesChunk> chunks = ImmutableList.builder();
+		final ChunkBuilder currentChunk = new ChunkBuilder();
+		for (final List<ShipmentScheduleId> partition : partitionsByRoot.values())
+		{
+			if (partition.size() > chunkSize)
+			{
+				logger.info("Partition of {} shipment schedules exceeds the chunk size of {}. Recomputing it as one chunk.", partition.size(), chunkSize);
+			}
+
+			if (!currentChunk.isEmpty() && currentChunk.size() + partition.size() > chunkSize)
+			{
+				chunks.add(currentChunk.buildAndReset());
+			}
+			currentChunk.addPartition(partition);
+		}
+		if (!currentChunk.isEmpty())
+		{
+			chunks.add(currentChunk.buildAndReset());
+		}
+
+		return chunks.build();
+	}
+
+	private List<Object> extractPartitionKeys(final ShipmentSchedulePartitionInfo info)
+	{
+		final List<Object> keys = new ArrayList<>();
+
+		//
+		// Stock
+		final ImmutableSet<ProductId> productIds = ImmutableSet.<ProductId> builder()
+				.add(info.getProductId())
+				.addAll(bomProductIdsByComponentId.get(info.getProductId()))
+				.addAll(componentIdsByBOMProductId.get(info.getProductId()))
+				.build();
+		final Set<WarehouseId> warehouseIds = getWarehousesOfSamePickingGroup(info.getWarehouseId());
+		for (final ProductId productId : productIds)
+		{
+			for (final WarehouseId warehouseId : warehouseIds)
+			{
+				keys.add(StockKey.of(productId, warehouseId));
+			}
+		}
+
+		//
+		// Delivery groups
+		final BPartnerId bpartnerId = info.getBpartnerId();
+		if (info.getOrderId() != null)
+		{
+			keys.add(info.getOrderId());
+		}
+		if (info.getOrderId() == null || isAllowConsolidateShipment(bpartnerId))
+		{
+			keys.add(bpartnerId);
+		}
+
+		return keys;
+	}
+
+	private Set<WarehouseId> getWarehousesOfSamePickingGroup(final WarehouseId warehouseId)
+	{
+		return warehousesOfSamePickingGroupCache.computeIfAbsent(warehouseId, this::retrieveWarehousesOfSamePickingGroup);
+	}
+
+	private Set<WarehouseId> retrieveWarehousesOfSamePickingGroup(final WarehouseId warehouseId)
+	{
+		return ImmutableSet.<WarehouseId> builder()
+				.add(warehouseId)
+				.addAll(warehousesOfSamePickingGroupProvider.apply(warehouseId))
+				.build();
+	}
+
+	private boolean isAllowConsolidateShipment(final BPartnerId bpartnerId)
+	{
+		return allowConsolidateShipmentCache.computeIfAbsent(bpartnerId, allowConsolidateShipment::test);
+	}
+
+	@Value(staticConstructor = "of")
+	private static class StockKey
+	{
+		@NonNull
+		ProductId productId;
+		@NonNull
+		WarehouseId warehouseId;
+	}
+
+	private static final class UnionFind
+	{
+		private final int[] parents;
+
+		private UnionFind(final int size)
+		{
+			parents = new int[size];
+			for (int i = 0; i < size; i++)
+			{
+				parents[i] = i;
+			}
+		}
+
+		private int find(final int index)
+		{
+			int root = index;
+			while (parents[root] != root)
+			{
+				root = parents[root];
+			}
+
+			// path compression
+			int current = index;
+			while (parents[current] != root)
+			{
+				final int next = parents[current];
+				parents[current] = root;
+				current = next;
+			}
+
+			return root;
+		}
+
+		private void union(final int index1, final int index2)
+		{
+			final int root1 = find(index1);
+			final int root2 = find(index2);
+			if (root1 != root2)
+			{
+				// keep the smaller index as root
+				parents[Math.max(root1, root2)] = Math.min(root1, root2);
+			}
+		}
+	}
+
+	private static final class ChunkBuilder
+	{
+		private int nextChunkNo = 1;
+		private final ArrayList<ShipmentScheduleId> shipmentScheduleIds = new ArrayList<>();
+		private int partitionsCount = 0;
+
+		private boolean isEmpty()
+		{
+			return shipmentScheduleIds.isEmpty();
+		}
+
+		private int size()
+		{
+			return shipmentScheduleIds.size();
+		}
+
+		private void addPartition(final List<ShipmentScheduleId> partition)
+		{
+			shipmentScheduleIds.addAll(partition);
+			partitionsCount++;
+		}
+
+		private ShipmentSchedulesChunk buildAndReset()
+		{
+			final ShipmentSchedulesChunk chunk = ShipmentSchedulesChunk.builder()
+					.chunkNo(nextChunkNo)
+					.partitionsCount(partitionsCount)
+					.shipmentScheduleIds(ImmutableList.copyOf(shipmentScheduleIds))
+					.build();
+
+			nextChunkNo++;
+			shipmentScheduleIds.clear();
+			partitionsCount = 0;
+
+			return chunk;
+		}
+	}
+
+	@Value
+	@Builder
+	static class ShipmentSchedulesChunk
+	{
+		int chunkNo;
+		int partitionsCount;
+
+		@NonNull
+		ImmutableList<ShipmentScheduleId> shipmentScheduleIds;
+	}
+}
@@ -61,6 +61,11 @@ public final class PickingBOMsReversedIndex
 		return bomProductIdsByComponentId.get(componentId);
 	}
 
+	public ImmutableSet<ProductId> getComponentIds()
+	{
+		return bomProductIdsByComponentId.keySet();
+	}
+
 	public ImmutableSet<ProductId> getBOMProductIdsByComponentIds(@NonNull final Collection<ProductId> componentIds)
 	{
 		if (!componentIds.isEmpty())
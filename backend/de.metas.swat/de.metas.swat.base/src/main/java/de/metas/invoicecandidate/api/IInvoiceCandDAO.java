@@ -22,6 +22,7 @@ package de.metas.invoicecandidate.api;
  * #L%
  */
 
+import com.google.common.collect.ImmutableListMultimap;
 import de.metas.adempiere.model.I_C_Invoice;
 import de.metas.aggregation.model.I_C_Aggregation;
 import de.metas.bpartner.BPartnerId;
@@ -94,6 +95,12 @@ public interface IInvoiceCandDAO extends ISingletonService
 	 */
 	Iterator<I_C_Invoice_Candidate> fetchInvalidInvoiceCandidates(Properties ctx, InvoiceCandRecomputeTag recomputeTag, String trxName);
 
+	/**
+	 * Like {@link #fetchInvalidInvoiceCandidates(Properties, InvoiceCandRecomputeTag, String)}, but only loads the candidates' IDs, grouped by their {@code Bill_BPartner_ID}.
+	 * For each partner, the IDs are in the same order as the candidates returned by {@code fetchInvalidInvoiceCandidates}.
+	 */
+	ImmutableListMultimap<BPartnerId, InvoiceCandidateId> retrieveInvalidInvoiceCandidateIdsByBillPartner(Properties ctx, InvoiceCandRecomputeTag recomputeTag, String trxName);
+
 	/**
 	 * @return new unique recompute tag
 	 */
@@ -262,6 +269,14 @@ public interface IInvoiceCandDAO extends ISingletonService
 	 */
 	List<I_C_InvoiceCandidate_InOutLine> retrieveICIOLAssociationsExclRE(InvoiceCandidateId invoiceCandidateId);
 
+	/**
+	 * Like {@link #retrieveICIOLAssociationsExclRE(InvoiceCandidateId)}, but for many invoice candidates at once,
+	 * using a fixed number of queries instead of some queries per invoice candidate.
+	 *
+	 * @return the associations of each given invoice candidate, ordered by {@code M_InOutLine_ID}, and the inout lines which were loaded to check them
+	 */
+	InvoiceCandidatesInOutLines retrieveICIOLAssociationsExclRE(Set<InvoiceCandidateId> invoiceCandidateIds);
+
 	/**
 	 *
 	 * @param inOutLine
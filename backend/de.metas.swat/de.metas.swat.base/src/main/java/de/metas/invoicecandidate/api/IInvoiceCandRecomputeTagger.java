@@ -26,6 +26,10 @@ import java.util.Collection;
 import java.util.Iterator;
 import java.util.Properties;
 
+import com.google.common.collect.ImmutableListMultimap;
+
+import de.metas.bpartner.BPartnerId;
+import de.metas.invoicecandidate.InvoiceCandidateId;
 import de.metas.invoicecandidate.model.I_C_Invoice_Candidate;
 import de.metas.lock.api.ILock;
 
@@ -80,6 +84,13 @@ public interface IInvoiceCandRecomputeTagger
 	 */
 	Iterator<I_C_Invoice_Candidate> retrieveInvoiceCandidates();
 
+	/**
+	 * Retrieves the IDs of the tagged invoice candidates, grouped by their bill partner.
+	 *
+	 * This method assumes {@link #tag()} was called before.
+	 */
+	ImmutableListMultimap<BPartnerId, InvoiceCandidateId> retrieveInvoiceCandidateIdsByBillPartner();
+
 	/** @param recomputeTag recompute tag to be used */
 	IInvoiceCandRecomputeTagger setRecomputeTag(final InvoiceCandRecomputeTag recomputeTag);
 
@@ -0,0 +1,52 @@
+package de.metas.invoicecandidate.api;
+
+import org.compiere.model.I_M_InOutLine;
+
+import com.google.common.collect.ImmutableListMultimap;
+import com.google.common.collect.ImmutableMap;
+
+import de.metas.invoicecandidate.InvoiceCandidateId;
+import de.metas.invoicecandidate.model.I_C_InvoiceCandidate_InOutLine;
+import lombok.NonNull;
+import lombok.Value;
+
+/*
+ * #%L
+ * de.metas.swat.base
+ * %%
+ * Copyright (C) 2020 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+/**
+ * The IC-IOL associations of some invoice candidates, together with the inout lines they are referencing.
+ *
+ * @see IInvoiceCandDAO#retrieveICIOLAssociationsExclRE(java.util.Set)
+ */
+@Value
+public class InvoiceCandidatesInOutLines
+{
+	public static final InvoiceCandidatesInOutLines EMPTY = new InvoiceCandidatesInOutLines(ImmutableListMultimap.of(), ImmutableMap.of());
+
+	/** the associations of each invoice candidate, ordered by {@code M_InOutLine_ID} */
+	@NonNull
+	ImmutableListMultimap<InvoiceCandidateId, I_C_InvoiceCandidate_InOutLine> iciolsByInvoiceCandidateId;
+
+	/** the inout lines of {@link #iciolsByInvoiceCandidateId}, by {@code M_InOutLine_ID} */
+	@NonNull
+	ImmutableMap<Integer, I_M_InOutLine> inoutLinesById;
+}
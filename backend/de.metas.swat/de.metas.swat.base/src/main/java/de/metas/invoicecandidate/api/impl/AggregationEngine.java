@@ -28,9 +28,14 @@ import java.time.LocalDate;
  */
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
 import java.util.Properties;
 import java.util.Set;
 
@@ -50,6 +55,10 @@ import org.compiere.util.TimeUtil;
 import org.slf4j.Logger;
 
 import com.google.common.base.MoreObjects;
+import com.google.common.collect.ArrayListMultimap;
+import com.google.common.collect.ImmutableListMultimap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.ListMultimap;
 
 import ch.qos.logback.classic.Level;
 import de.metas.aggregation.api.AggregationId;
@@ -79,6 +88,7 @@ import de.metas.invoicecandidate.api.IInvoiceLineAggregationRequest;
 import de.metas.invoicecandidate.api.IInvoiceLineAttribute;
 import de.metas.invoicecandidate.api.IInvoiceLineRW;
 import de.metas.invoicecandidate.api.InvoiceCandidate_Constants;
+import de.metas.invoicecandidate.api.InvoiceCandidatesInOutLines;
 import de.metas.invoicecandidate.model.I_C_InvoiceCandidate_InOutLine;
 import de.metas.invoicecandidate.model.I_C_Invoice_Candidate;
 import de.metas.invoicecandidate.spi.IAggregator;
@@ -142,6 +152,14 @@ public final class AggregationEngine
 	 */
 	private final Map<AggregationKey, InvoiceHeaderAndLineAggregators> key2headerAndAggregators = new LinkedHashMap<>();
 
+	//
+	// Lookups which were done in advance (see prefetch()) or which were already done for a previous invoice candidate
+	private final Set<InvoiceCandidateId> prefetchedInvoiceCandidateIds = new HashSet<>();
+	private final ListMultimap<InvoiceCandidateId, I_C_InvoiceCandidate_InOutLine> prefetchedIciols = ArrayListMultimap.create();
+	private final Map<Integer, I_M_InOutLine> prefetchedInOutLines = new HashMap<>();
+	private final Map<PriceListVersionId, Integer> priceListIdsByVersionId = new HashMap<>();
+	private final Map<BPartnerId, Optional<BPartnerLocationId>> defaultBillLocationIdsByBPartnerId = new HashMap<>();
+
 	@Builder
 	private AggregationEngine(
 			final IBPartnerBL bpartnerBL,
@@ -173,13 +191,59 @@ public final class AggregationEngine
 				.toString();
 	}
 
+	/**
+	 * Loads the IC-IOL associations and inout lines of the given invoice candidates with a few set-based queries,
+	 * so that {@link #addInvoiceCandidate(I_C_Invoice_Candidate)} does not need to load them one invoice candidate at a time.
+	 * <p>
+	 * Calling this method is optional.
+	 */
+	public AggregationEngine prefetch(@NonNull final Collection<I_C_Invoice_Candidate> invoiceCandidates)
+	{
+		final ImmutableSet<InvoiceCandidateId> invoiceCandidateIds = invoiceCandidates.stream()
+				.map(ic -> InvoiceCandidateId.ofRepoIdOrNull(ic.getC_Invoice_Candidate_ID()))
+				.filter(Objects::nonNull)
+				.filter(invoiceCandidateId -> !prefetchedInvoiceCandidateIds.contains(invoiceCandidateId))
+				.collect(ImmutableSet.toImmutableSet());
+		if (invoiceCandidateIds.isEmpty())
+		{
+			return this;
+		}
+
+		// the DAO already loaded the inout lines in order to check their inouts' status, so we take them from there
+		final InvoiceCandidatesInOutLines invoiceCandidatesInOutLines = invoiceCandDAO.retrieveICIOLAssociationsExclRE(invoiceCandidateIds);
+		final ImmutableListMultimap<InvoiceCandidateId, I_C_InvoiceCandidate_InOutLine> iciols = invoiceCandidatesInOutLines.getIciolsByInvoiceCandidateId();
+		invoiceCandidatesInOutLines.getInoutLinesById().forEach(prefetchedInOutLines::putIfAbsent);
+
+		prefetchedIciols.putAll(iciols);
+		prefetchedInvoiceCandidateIds.addAll(invoiceCandidateIds);
+
+		logger.debug("Prefetched {} IC-IOL associations and {} inout lines for {} invoice candidates",
+				iciols.size(), invoiceCandidatesInOutLines.getInoutLinesById().size(), invoiceCandidateIds.size());
+		return this;
+	}
+
+	private List<I_C_InvoiceCandidate_InOutLine> retrieveICIOLAssociations(@NonNull final InvoiceCandidateId invoiceCandidateId)
+	{
+		if (prefetchedInvoiceCandidateIds.contains(invoiceCandidateId))
+		{
+			return prefetchedIciols.get(invoiceCandidateId);
+		}
+		return invoiceCandDAO.retrieveICIOLAssociationsExclRE(invoiceCandidateId);
+	}
+
+	private I_M_InOutLine getInOutLine(@NonNull final I_C_InvoiceCandidate_InOutLine iciol)
+	{
+		final I_M_InOutLine inoutLine = prefetchedInOutLines.get(iciol.getM_InOutLine_ID());
+		return inoutLine != null ? inoutLine : iciol.getM_InOutLine();
+	}
+
 	public AggregationEngine addInvoiceCandidate(@NonNull final I_C_Invoice_Candidate ic)
 	{
 		Check.assume(!ic.isToClear(), "{} has IsToClear='N'", ic);
 		Check.assume(!ic.isProcessed(), "{} not processed", ic);
 
 		final InvoiceCandidateId invoiceCandidateId = InvoiceCandidateId.ofRepoId(ic.getC_Invoice_Candidate_ID());
-		final List<I_C_InvoiceCandidate_InOutLine> iciols = invoiceCandDAO.retrieveICIOLAssociationsExclRE(invoiceCandidateId);
+		final List<I_C_InvoiceCandidate_InOutLine> iciols = retrieveICIOLAssociations(invoiceCandidateId);
 
 		//
 		// Case: No IC-IOL association found;
@@ -217,7 +281,7 @@ public final class AggregationEngine
 		I_C_InvoiceCandidate_InOutLine lastNondisputeIcIol = null;
 		for (final I_C_InvoiceCandidate_InOutLine iciol : iciols)
 		{
-			if (InterfaceWrapperHelper.create(iciol.getM_InOutLine(), de.metas.invoicecandidate.model.I_M_InOutLine.class).isInDispute())
+			if (InterfaceWrapperHelper.create(getInOutLine(iciol), de.metas.invoicecandidate.model.I_M_InOutLine.class).isInDispute())
 			{
 				continue;
 			}
@@ -279,7 +343,7 @@ public final class AggregationEngine
 			@Nullable final I_C_InvoiceCandidate_InOutLine iciol,
 			final boolean isLastIcIol)
 	{
-		final I_M_InOutLine icInOutLine = iciol == null ? null : iciol.getM_InOutLine();
+		final I_M_InOutLine icInOutLine = iciol == null ? null : getInOutLine(iciol);
 		final InOutId inoutId = icInOutLine != null ? InOutId.ofRepoIdOrNull(icInOutLine.getM_InOut_ID()) : null;
 
 		//
@@ -353,7 +417,7 @@ public final class AggregationEngine
 
 		if (iciol != null)
 		{
-			final I_M_InOutLine inOutLine = iciol.getM_InOutLine();
+			final I_M_InOutLine inOutLine = getInOutLine(iciol);
 
 			//
 			// Extract relevant product attribute instances from inout line
@@ -417,7 +481,9 @@ public final class AggregationEngine
 		final int M_PriceList_ID;
 		if (icRecord.getM_PriceList_Version_ID() > 0)
 		{
-			M_PriceList_ID = priceListDAO.getPriceListByPriceListVersionId(PriceListVersionId.ofRepoId(icRecord.getM_PriceList_Version_ID())).getM_PriceList_ID();
+			M_PriceList_ID = priceListIdsByVersionId.computeIfAbsent(
+					PriceListVersionId.ofRepoId(icRecord.getM_PriceList_Version_ID()),
+					priceListVersionId -> priceListDAO.getPriceListByPriceListVersionId(priceListVersionId).getM_PriceList_ID());
 		}
 		else
 		{
@@ -535,10 +601,12 @@ public final class AggregationEngine
 
 		if (useDefaultBillLocationAndContactIfNotOverride)
 		{
-			final BPartnerLocationId defaulBillLocationId = bpartnerDAO.retrieveCurrentBillLocationOrNull(bpartnerId);
-			if (defaulBillLocationId != null)
+			final Optional<BPartnerLocationId> defaulBillLocationId = defaultBillLocationIdsByBPartnerId.computeIfAbsent(
+					bpartnerId,
+					id -> Optional.ofNullable(bpartnerDAO.retrieveCurrentBillLocationOrNull(id)));
+			if (defaulBillLocationId.isPresent())
 			{
-				return defaulBillLocationId;
+				return defaulBillLocationId.get();
 			}
 		}
 
@@ -806,11 +806,15 @@ public class InvoiceCandBLCreateInvoices implements IInvoiceGenerator
 
 		final List<I_C_Invoice_Candidate> icToUnlock = new ArrayList<>();
 
+		//
+		// Load the records which the aggregation engine needs for all our invoice candidates at once, instead of one by one
+		final ImmutableList<I_C_Invoice_Candidate> invoiceCandidatesList = ImmutableList.copyOf(invoiceCandidates);
+		aggregationEngine.prefetch(invoiceCandidatesList);
+
 		//
 		// Iterate invoice candidates and add them to aggregation engine
-		while (invoiceCandidates.hasNext())
+		for (final I_C_Invoice_Candidate ic : invoiceCandidatesList)
 		{
-			final I_C_Invoice_Candidate ic = invoiceCandidates.next();
 			try (final MDCCloseable icRecordMDC = TableRecordMDC.putTableRecordReference(ic))
 			{
 				icToUnlock.add(ic);
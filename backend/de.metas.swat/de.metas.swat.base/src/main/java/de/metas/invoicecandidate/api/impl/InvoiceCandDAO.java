@@ -2,6 +2,8 @@ package de.metas.invoicecandidate.api.impl;
 
 import ch.qos.logback.classic.Level;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableListMultimap;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import de.metas.aggregation.model.I_C_Aggregation;
 import de.metas.bpartner.BPartnerId;
@@ -23,6 +25,7 @@ import de.metas.invoicecandidate.api.InvoiceCandRecomputeTag;
 import de.metas.invoicecandidate.api.InvoiceCandidateMultiQuery;
 import de.metas.invoicecandidate.api.InvoiceCandidateQuery;
 import de.metas.invoicecandidate.api.InvoiceCandidate_Constants;
+import de.metas.invoicecandidate.api.InvoiceCandidatesInOutLines;
 import de.metas.invoicecandidate.model.I_C_InvoiceCandidate_InOutLine;
 import de.metas.invoicecandidate.model.I_C_Invoice_Candidate;
 import de.metas.invoicecandidate.model.I_C_Invoice_Candidate_Agg;
@@ -43,6 +46,7 @@ import de.metas.process.PInstanceId;
 import de.metas.security.IUserRolePermissions;
 import de.metas.util.Check;
 import de.metas.util.Loggables;
+import de.metas.util.NumberUtils;
 import de.metas.util.Services;
 import de.metas.common.util.CoalesceUtil;
 import de.metas.util.lang.ExternalHeaderIdWithExternalLineIds;
@@ -406,6 +410,61 @@ public class InvoiceCandDAO implements IInvoiceCandDAO
 				.collect(ImmutableList.toImmutableList());
 	}
 
+	@Override
+	public InvoiceCandidatesInOutLines retrieveICIOLAssociationsExclRE(@NonNull final Set<InvoiceCandidateId> invoiceCandidateIds)
+	{
+		if (invoiceCandidateIds.isEmpty())
+		{
+			return InvoiceCandidatesInOutLines.EMPTY;
+		}
+
+		final List<I_C_InvoiceCandidate_InOutLine> iciols = queryBL.createQueryBuilder(I_C_InvoiceCandidate_InOutLine.class)
+				.addInArrayFilter(I_C_InvoiceCandidate_InOutLine.COLUMN_C_Invoice_Candidate_ID, invoiceCandidateIds)
+				.addOnlyActiveRecordsFilter()
+				.orderBy(I_C_InvoiceCandidate_InOutLine.COLUMN_M_InOutLine_ID)
+				.create()
+				.list(I_C_InvoiceCandidate_InOutLine.class);
+		if (iciols.isEmpty())
+		{
+			return InvoiceCandidatesInOutLines.EMPTY;
+		}
+
+		// load the inout lines and their inouts with one query each, instead of loading them association by association
+		final ImmutableSet<Integer> inoutLineIds = iciols.stream()
+				.map(I_C_InvoiceCandidate_InOutLine::getM_InOutLine_ID)
+				.collect(ImmutableSet.toImmutableSet());
+		final List<I_M_InOutLine> inoutLines = InterfaceWrapperHelper.loadByIds(inoutLineIds, I_M_InOutLine.class);
+
+		final ImmutableSet<Integer> inoutIds = inoutLines.stream()
+				.map(I_M_InOutLine::getM_InOut_ID)
+				.collect(ImmutableSet.toImmutableSet());
+		final ImmutableSet<Integer> completedOrClosedInOutIds = InterfaceWrapperHelper.loadByIds(inoutIds, I_M_InOut.class)
+				.stream()
+				.filter(inOut -> inOut.isActive() && DocStatus.ofCode(inOut.getDocStatus()).isCompletedOrClosed())
+				.map(I_M_InOut::getM_InOut_ID)
+				.collect(ImmutableSet.toImmutableSet());
+
+		final ImmutableSet<Integer> validInOutLineIds = inoutLines.stream()
+				.filter(inoutLine -> completedOrClosedInOutIds.contains(inoutLine.getM_InOut_ID()))
+				.map(I_M_InOutLine::getM_InOutLine_ID)
+				.collect(ImmutableSet.toImmutableSet());
+
+		final ImmutableListMultimap.Builder<InvoiceCandidateId, I_C_InvoiceCandidate_InOutLine> iciolsByInvoiceCandidateId = ImmutableListMultimap.builder();
+		for (final I_C_InvoiceCandidate_InOutLine iciol : iciols)
+		{
+			if (validInOutLineIds.contains(iciol.getM_InOutLine_ID()))
+			{
+				iciolsByInvoiceCandidateId.put(InvoiceCandidateId.ofRepoId(iciol.getC_Invoice_Candidate_ID()), iciol);
+			}
+		}
+
+		return new InvoiceCandidatesInOutLines(
+				iciolsByInvoiceCandidateId.build(),
+				inoutLines.stream()
+						.filter(inoutLine -> validInOutLineIds.contains(inoutLine.getM_InOutLine_ID()))
+						.collect(ImmutableMap.toImmutableMap(I_M_InOutLine::getM_InOutLine_ID, inoutLine -> inoutLine)));
+	}
+
 	private boolean isInOutCompletedOrClosed(@NonNull final I_C_InvoiceCandidate_InOutLine iciol)
 	{
 		final I_M_InOut inOut = iciol.getM_InOutLine().getM_InOut();
@@ -895,6 +954,39 @@ public class InvoiceCandDAO implements IInvoiceCandDAO
 			final Properties ctx,
 			@NonNull final InvoiceCandRecomputeTag recomputeTag,
 			final String trxName)
+	{
+		return createInvalidInvoiceCandidatesQuery(ctx, recomputeTag, trxName)
+				// NOTE (task 03968): performance tweak that is necessary when updating around 70.000 candidates at once:
+				// don't use a 'guaranteed' iterator; *we don't need it* and selecting/ordering joining between
+				// C_Invoice_Candidate and T_Query_Selection is a performance-killer (at least on our 32bit instance)
+				.setOption(IQuery.OPTION_GuaranteedIteratorRequired, false)
+				.setOption(IQuery.OPTION_IteratorBufferSize, 500)
+				.iterate(I_C_Invoice_Candidate.class);
+	}
+
+	@Override
+	public ImmutableListMultimap<BPartnerId, InvoiceCandidateId> retrieveInvalidInvoiceCandidateIdsByBillPartner(
+			final Properties ctx,
+			@NonNull final InvoiceCandRecomputeTag recomputeTag,
+			final String trxName)
+	{
+		final List<Map<String, Object>> rows = createInvalidInvoiceCandidatesQuery(ctx, recomputeTag, trxName)
+				.listColumns(I_C_Invoice_Candidate.COLUMNNAME_C_Invoice_Candidate_ID, I_C_Invoice_Candidate.COLUMNNAME_Bill_BPartner_ID);
+
+		final ImmutableListMultimap.Builder<BPartnerId, InvoiceCandidateId> result = ImmutableListMultimap.builder();
+		for (final Map<String, Object> row : rows)
+		{
+			final BPartnerId billBPartnerId = BPartnerId.ofRepoId(NumberUtils.asInt(row.get(I_C_Invoice_Candidate.COLUMNNAME_Bill_BPartner_ID), -1));
+			final InvoiceCandidateId invoiceCandidateId = InvoiceCandidateId.ofRepoId(NumberUtils.asInt(row.get(I_C_Invoice_Candidate.COLUMNNAME_C_Invoice_Candidate_ID), -1));
+			result.put(billBPartnerId, invoiceCandidateId);
+		}
+		return result.build();
+	}
+
+	private IQuery<I_C_Invoice_Candidate> createInvalidInvoiceCandidatesQuery(
+			final Properties ctx,
+			@NonNull final InvoiceCandRecomputeTag recomputeTag,
+			final String trxName)
 	{
 		return queryBL
 				.createQueryBuilder(I_C_Invoice_Candidate_Recompute.class, ctx, trxName)
@@ -911,15 +1003,7 @@ public class InvoiceCandDAO implements IInvoiceCandDAO
 				.addColumn(I_C_Invoice_Candidate.COLUMN_IsManual)
 				.addColumn(I_C_Invoice_Candidate.COLUMN_C_Invoice_Candidate_ID)
 				.endOrderBy()
-				//
-				// Execute query:
-				// NOTE (task 03968): performance tweak that is necessary when updating around 70.000 candidates at once:
-				// don't use a 'guaranteed' iterator; *we don't need it* and selecting/ordering joining between
-				// C_Invoice_Candidate and T_Query_Selection is a performance-killer (at least on our 32bit instance)
-				.create()
-				.setOption(IQuery.OPTION_GuaranteedIteratorRequired, false)
-				.setOption(IQuery.OPTION_IteratorBufferSize, 500)
-				.iterate(I_C_Invoice_Candidate.class);
+				.create();
 	}
 
 	@Override
@@ -23,12 +23,21 @@
 package de.metas.invoicecandidate.api.impl;
 
 import ch.qos.logback.classic.Level;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Stopwatch;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableListMultimap;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Iterators;
+import com.google.common.collect.Maps;
+import de.metas.bpartner.BPartnerId;
 import de.metas.inout.IInOutDAO;
 import de.metas.invoicecandidate.api.IInvoiceCandBL;
 import de.metas.invoicecandidate.api.IInvoiceCandDAO;
 import de.metas.invoicecandidate.api.IInvoiceCandInvalidUpdater;
 import de.metas.invoicecandidate.api.IInvoiceCandRecomputeTagger;
 import de.metas.invoicecandidate.api.IInvoiceCandidateHandlerBL;
+import de.metas.invoicecandidate.InvoiceCandidateId;
 import de.metas.invoicecandidate.api.InvoiceCandRecomputeTag;
 import de.metas.invoicecandidate.internalbusinesslogic.InvoiceCandidate;
 import de.metas.invoicecandidate.internalbusinesslogic.InvoiceCandidateRecordService;
@@ -45,6 +54,7 @@ import de.metas.util.Services;
 import lombok.NonNull;
 import org.adempiere.ad.trx.api.ITrx;
 import org.adempiere.ad.trx.api.ITrxManager;
+import org.adempiere.ad.trx.api.OnTrxMissingPolicy;
 import org.adempiere.ad.trx.processor.api.FailTrxItemExceptionHandler;
 import org.adempiere.ad.trx.processor.api.ITrxItemExecutorBuilder.OnItemErrorPolicy;
 import org.adempiere.ad.trx.processor.api.ITrxItemProcessorExecutorService;
@@ -52,9 +62,11 @@ import org.adempiere.ad.trx.processor.spi.TrxItemChunkProcessorAdapter;
 import org.adempiere.exceptions.AdempiereException;
 import org.adempiere.model.InterfaceWrapperHelper;
 import org.adempiere.service.ISysConfigBL;
+import org.adempiere.util.concurrent.CustomizableThreadFactory;
 import org.adempiere.util.lang.IAutoCloseable;
 import org.adempiere.util.lang.IContextAware;
 import org.compiere.SpringContextHolder;
+import org.compiere.util.Env;
 import org.slf4j.Logger;
 import org.slf4j.MDC.MDCCloseable;
 
@@ -63,7 +75,15 @@ import java.math.BigDecimal;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Objects;
 import java.util.Properties;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 
 import static java.math.BigDecimal.ONE;
 import static org.adempiere.model.InterfaceWrapperHelper.newInstance;
@@ -84,6 +104,12 @@ import static org.adempiere.model.InterfaceWrapperHelper.newInstance;
 	private static final String SYSCONFIG_ItemsPerBatch = "de.metas.invoicecandidate.api.impl.InvoiceCandInvalidUpdater.ItemsPerBatch";
 	private static final int DEFAULT_ItemsPerBatch = 100;
 
+	/**
+	 * If greater than one and if we are not called within a transaction, then the candidates are partitioned by their bill partner
+	 * and the partitions are updated by that many worker threads. Otherwise, all candidates are updated one after the other in the caller's thread.
+	 */
+	private static final String SYSCONFIG_Parallelism = "de.metas.invoicecandidate.api.impl.InvoiceCandInvalidUpdater.parallelism";
+
 	//
 	// Parameters
 	private Properties _ctx;
@@ -150,6 +176,15 @@ import static org.adempiere.model.InterfaceWrapperHelper.newInstance;
 		final boolean processInBatches = !icTagger.isOnlyC_Invoice_Candidate_IDs();
 		final int itemsPerBatch = processInBatches ? getItemsPerBatch() : Integer.MAX_VALUE;
 
+		//
+		// If allowed, update the candidates of different bill partners concurrently
+		final int parallelism = processInBatches ? getParallelism() : 1;
+		if (parallelism > 1 && isUpdaterManagingTrx())
+		{
+			updateTaggedInParallel(itemsPerBatch, parallelism);
+			return;
+		}
+
 		//
 		// Fetch the invoice candidates to update
 		final Iterator<I_C_Invoice_Candidate> candidatesToUpdate = icTagger.retrieveInvoiceCandidates();
@@ -162,87 +197,261 @@ import static org.adempiere.model.InterfaceWrapperHelper.newInstance;
 
 		//
 		// Update invoice candidates in chunks
-		final ICUpdateResult result = new ICUpdateResult();
-		try (final IAutoCloseable updateInProgressCloseable = invoiceCandBL.setUpdateProcessInProgress())
+		try (final ICUpdateResult result = new ICUpdateResult(ICUpdateResult.COUNT_Unknown);
+				final IAutoCloseable updateInProgressCloseable = invoiceCandBL.setUpdateProcessInProgress())
+		{
+			// if called from process or wp-processor then getTrxName() is null because *we* want to manage the trx => commit after each chunk
+			processCandidates(getCtx(), getTrxName(), candidatesToUpdate, itemsPerBatch, result);
+
+			//
+			// Log the result
+			Loggables.addLog("Update invalid result: {}", result.getSummary());
+		}
+	}
+
+	/**
+	 * @return {@code true} if we were not called within a transaction, i.e. if we commit after each chunk anyways.
+	 *         Only then it's safe to split the work among other threads, because they can't see the caller's uncommitted changes.
+	 */
+	private boolean isUpdaterManagingTrx()
+	{
+		return trxManager.isNull(trxManager.get(getTrxName(), OnTrxMissingPolicy.ReturnTrxNone));
+	}
+
+	/**
+	 * Splits the tagged invoice candidates into work packages that never share a bill partner
+	 * and updates those packages on a pool of worker threads, each chunk in its own transaction.
+	 * <p>
+	 * Waits until all packages are done, also if one of them failed, so that no package is still running when the tagged candidates are released.
+	 */
+	private void updateTaggedInParallel(final int itemsPerBatch, final int parallelism)
+	{
+		final ImmutableListMultimap<BPartnerId, InvoiceCandidateId> idsByBillPartnerId = icTagger.retrieveInvoiceCandidateIdsByBillPartner();
+		if (idsByBillPartnerId.isEmpty())
+		{
+			Loggables.withLogger(logger, Level.DEBUG).addLog("icTagger has no invoice candidates to update; nothing to do; icTagger={}", icTagger);
+			return;
+		}
+
+		final ImmutableList<ImmutableList<InvoiceCandidateId>> workPackages = toWorkPackages(idsByBillPartnerId, itemsPerBatch);
+
+		final Properties ctx = getCtx();
+		try (final ICUpdateResult result = new ICUpdateResult(idsByBillPartnerId.size()))
 		{
-			trxItemProcessorExecutorService.<I_C_Invoice_Candidate, ICUpdateResult> createExecutor()
-					.setContext(getCtx(), getTrxName()) // if called from process or wp-processor then getTrxName() is null because *we* want to manage the trx => commit after each chunk
-					.setItemsPerBatch(itemsPerBatch)
+			updateInParallel(workPackages, parallelism, workPackage -> updateWorkPackage(ctx, workPackage, itemsPerBatch, result));
 
-					// Don't use trx savepoints because they are expensive and we are not going to rollback anyways (OnItemErrorPolicy.ContinueChunkAndCommit)
-					// Note that if our trx is null, then this doesn't matter anyways.
-					.setUseTrxSavepoints(false)
+			Loggables.addLog("Update invalid result: {}; bill partners={}, work packages={}, parallelism={}",
+					result.getSummary(), idsByBillPartnerId.keySet().size(), workPackages.size(), parallelism);
+		}
+	}
 
-					.setExceptionHandler(new ICTrxItemExceptionHandler(result))
+	/**
+	 * Runs the given updater for each work package on a pool of {@code parallelism} worker threads.
+	 * <p>
+	 * Waits until all packages are done, also if one of them failed, and then throws the first failure.
+	 */
+	@VisibleForTesting
+	static void updateInParallel(
+			@NonNull final ImmutableList<ImmutableList<InvoiceCandidateId>> workPackages,
+			final int parallelism,
+			@NonNull final Consumer<ImmutableList<InvoiceCandidateId>> workPackageUpdater)
+	{
+		if (workPackages.isEmpty())
+		{
+			return;
+		}
 
-					// issue #302: ICTrxItemExceptionHandler will deal with problems, so we just continue if they happen.
-					.setOnItemErrorPolicy(OnItemErrorPolicy.ContinueChunkAndCommit)
+		final ExecutorService executor = Executors.newFixedThreadPool(
+				Math.min(parallelism, workPackages.size()),
+				CustomizableThreadFactory.builder()
+						.setThreadNamePrefix(InvoiceCandInvalidUpdater.class.getSimpleName())
+						.setDaemon(true)
+						.build());
+		try
+		{
+			final List<Future<?>> futures = new ArrayList<>(workPackages.size());
+			for (final ImmutableList<InvoiceCandidateId> workPackage : workPackages)
+			{
+				futures.add(executor.submit(() -> workPackageUpdater.accept(workPackage)));
+			}
 
-					.setProcessor(new TrxItemChunkProcessorAdapter<I_C_Invoice_Candidate, ICUpdateResult>()
+			AdempiereException firstException = null;
+			for (final Future<?> future : futures)
+			{
+				try
+				{
+					future.get();
+				}
+				catch (final ExecutionException ex)
+				{
+					logger.warn("Failed updating a package of invoice candidates", ex.getCause());
+					if (firstException == null)
 					{
-						/** the invoice candidates which were updated in current batch/chunk */
-						final List<Integer> chunkInvoiceCandidateIds = new ArrayList<>();
+						firstException = AdempiereException.wrapIfNeeded(ex.getCause());
+					}
+				}
+				catch (final InterruptedException ex)
+				{
+					Thread.currentThread().interrupt();
+					throw AdempiereException.wrapIfNeeded(ex);
+				}
+			}
 
-						@Override
-						public void process(final I_C_Invoice_Candidate icRecord)
-						{
-							try (final MDCCloseable icMDC = TableRecordMDC.putTableRecordReference(icRecord))
-							{
-								chunkInvoiceCandidateIds.add(icRecord.getC_Invoice_Candidate_ID());
-
-								updateInvalid(icRecord);
-								if (!icRecord.isError())
-								{
-									logger.debug("Updated invoice canddiate");
-									result.addInvoiceCandidate(icRecord);
-								}
-								else
-								{
-									Loggables.withLogger(logger, Level.DEBUG)
-											.addLog("Error updating invoice candidate; ic.errorMessage={}; icRecord={}", icRecord.getErrorMsg(), icRecord);
-									result.incrementErrorsCount();
-								}
-							}
-						}
+			if (firstException != null)
+			{
+				throw firstException;
+			}
+		}
+		finally
+		{
+			executor.shutdownNow();
+		}
+	}
 
-						@Override
-						public ICUpdateResult getResult()
-						{
-							return result;
-						}
+	/**
+	 * Packs the candidates of whole bill partners into packages of about {@code itemsPerPackage} candidates.
+	 * A bill partner with more candidates than that gets a package on its own.
+	 * Within a package, the candidates are ordered like {@link IInvoiceCandRecomputeTagger#retrieveInvoiceCandidates()} orders them.
+	 */
+	@VisibleForTesting
+	static ImmutableList<ImmutableList<InvoiceCandidateId>> toWorkPackages(
+			@NonNull final ImmutableListMultimap<BPartnerId, InvoiceCandidateId> idsByBillPartnerId,
+			final int itemsPerPackage)
+	{
+		final ImmutableList.Builder<ImmutableList<InvoiceCandidateId>> workPackages = ImmutableList.builder();
 
-						/**
-						 * Always return <code>true</code> and let the caller decide when to close the chunk (based on ItemsPerBatch setting).
-						 * We do this because in fact, each IC is independent from each other.
-						 * On the other hand, we don't want the overhead of dealing with each IC independently (trx-commit etc).
-						 */
-						@Override
-						public boolean isSameChunk(final I_C_Invoice_Candidate item)
-						{
-							return true;
-						}
+		final ArrayList<InvoiceCandidateId> currentPackage = new ArrayList<>();
+		for (final BPartnerId billBPartnerId : idsByBillPartnerId.keySet())
+		{
+			final ImmutableList<InvoiceCandidateId> billPartnerIds = idsByBillPartnerId.get(billBPartnerId);
+			if (!currentPackage.isEmpty() && currentPackage.size() + billPartnerIds.size() > itemsPerPackage)
+			{
+				workPackages.add(ImmutableList.copyOf(currentPackage));
+				currentPackage.clear();
+			}
+			currentPackage.addAll(billPartnerIds);
+		}
+		if (!currentPackage.isEmpty())
+		{
+			workPackages.add(ImmutableList.copyOf(currentPackage));
+		}
 
-						@Override
-						public void newChunk(final I_C_Invoice_Candidate item)
-						{
-							chunkInvoiceCandidateIds.clear(); // better safe than sorry
-						}
+		return workPackages.build();
+	}
+
+	private void updateWorkPackage(
+			@NonNull final Properties ctx,
+			@NonNull final ImmutableList<InvoiceCandidateId> invoiceCandidateIds,
+			final int itemsPerBatch,
+			@NonNull final ICUpdateResult result)
+	{
+		final Properties workerCtx = Env.copyCtx(ctx);
+		try (final IAutoCloseable ctxRestorer = Env.switchContext(workerCtx);
+				final IAutoCloseable updateInProgressCloseable = invoiceCandBL.setUpdateProcessInProgress())
+		{
+			// load the candidates lazily, one chunk per query
+			final Iterator<I_C_Invoice_Candidate> candidatesToUpdate = Iterators.concat(
+					Iterators.transform(
+							Iterators.partition(invoiceCandidateIds.iterator(), Math.max(itemsPerBatch, 1)),
+							this::retrieveInvoiceCandidatesInGivenOrder));
+
+			// there is no thread-inherited trx in our worker thread, so the executor commits after each chunk
+			processCandidates(workerCtx, ITrx.TRXNAME_ThreadInherited, candidatesToUpdate, itemsPerBatch, result);
+		}
+	}
+
+	private Iterator<I_C_Invoice_Candidate> retrieveInvoiceCandidatesInGivenOrder(@NonNull final List<InvoiceCandidateId> invoiceCandidateIds)
+	{
+		final ImmutableMap<InvoiceCandidateId, I_C_Invoice_Candidate> recordsById = Maps.uniqueIndex(
+				invoiceCandDAO.getByIds(invoiceCandidateIds),
+				icRecord -> InvoiceCandidateId.ofRepoId(icRecord.getC_Invoice_Candidate_ID()));
+
+		return invoiceCandidateIds.stream()
+				.map(recordsById::get)
+				.filter(Objects::nonNull)
+				.iterator();
+	}
+
+	private void processCandidates(
+			@NonNull final Properties ctx,
+			@Nullable final String trxName,
+			@NonNull final Iterator<I_C_Invoice_Candidate> candidatesToUpdate,
+			final int itemsPerBatch,
+			@NonNull final ICUpdateResult result)
+	{
+		trxItemProcessorExecutorService.<I_C_Invoice_Candidate, ICUpdateResult> createExecutor()
+				.setContext(ctx, trxName)
+				.setItemsPerBatch(itemsPerBatch)
+
+				// Don't use trx savepoints because they are expensive and we are not going to rollback anyways (OnItemErrorPolicy.ContinueChunkAndCommit)
+				// Note that if our trx is null, then this doesn't matter anyways.
+				.setUseTrxSavepoints(false)
+
+				.setExceptionHandler(new ICTrxItemExceptionHandler(result))
+
+				// issue #302: ICTrxItemExceptionHandler will deal with problems, so we just continue if they happen.
+				.setOnItemErrorPolicy(OnItemErrorPolicy.ContinueChunkAndCommit)
 
-						/** Delete the items which we just updated from <code>C_Invoice_Candidate_Recompute</code>. */
-						@Override
-						public void completeChunk()
+				.setProcessor(new TrxItemChunkProcessorAdapter<I_C_Invoice_Candidate, ICUpdateResult>()
+				{
+					/** the invoice candidates which were updated in current batch/chunk */
+					final List<Integer> chunkInvoiceCandidateIds = new ArrayList<>();
+
+					@Override
+					public void process(final I_C_Invoice_Candidate icRecord)
+					{
+						try (final MDCCloseable icMDC = TableRecordMDC.putTableRecordReference(icRecord))
 						{
-							icTagger.deleteTaggedAndInvalidateCache(chunkInvoiceCandidateIds);
-							chunkInvoiceCandidateIds.clear();
+							chunkInvoiceCandidateIds.add(icRecord.getC_Invoice_Candidate_ID());
+
+							updateInvalid(icRecord);
+							if (!icRecord.isError())
+							{
+								logger.debug("Updated invoice canddiate");
+								result.addInvoiceCandidate(icRecord);
+							}
+							else
+							{
+								Loggables.withLogger(logger, Level.DEBUG)
+										.addLog("Error updating invoice candidate; ic.errorMessage={}; icRecord={}", icRecord.getErrorMsg(), icRecord);
+								result.incrementErrorsCount();
+							}
 						}
-					})
-					//
-					.process(candidatesToUpdate);
-		}
+					}
 
-		//
-		// Log the result
-		Loggables.addLog("Update invalid result: {}", result.getSummary());
+					@Override
+					public ICUpdateResult getResult()
+					{
+						return result;
+					}
+
+					/**
+					 * Always return <code>true</code> and let the caller decide when to close the chunk (based on ItemsPerBatch setting).
+					 * We do this because in fact, each IC is independent from each other.
+					 * On the other hand, we don't want the overhead of dealing with each IC independently (trx-commit etc).
+					 */
+					@Override
+					public boolean isSameChunk(final I_C_Invoice_Candidate item)
+					{
+						return true;
+					}
+
+					@Override
+					public void newChunk(final I_C_Invoice_Candidate item)
+					{
+						chunkInvoiceCandidateIds.clear(); // better safe than sorry
+					}
+
+					/** Delete the items which we just updated from <code>C_Invoice_Candidate_Recompute</code>. */
+					@Override
+					public void completeChunk()
+					{
+						icTagger.deleteTaggedAndInvalidateCache(chunkInvoiceCandidateIds);
+						chunkInvoiceCandidateIds.clear();
+					}
+				})
+				//
+				.process(candidatesToUpdate);
 	}
 
 	private void updateInvalid(@NonNull final I_C_Invoice_Candidate icRecord)
@@ -479,24 +688,48 @@ import static org.adempiere.model.InterfaceWrapperHelper.newInstance;
 		return sysConfigBL.getIntValue(SYSCONFIG_ItemsPerBatch, DEFAULT_ItemsPerBatch);
 	}
 
+	private int getParallelism()
+	{
+		return sysConfigBL.getIntValue(SYSCONFIG_Parallelism, 1);
+	}
+
 	/**
-	 * IC update result.
+	 * IC update result. Might be shared by multiple worker threads.
+	 * <p>
+	 * The progress is also published to {@link InvoiceCandInvalidUpdaterStats}, until the result is closed.
 	 *
 	 * @author metas-dev <dev@metasfresh.com>
 	 */
-	private static final class ICUpdateResult
+	private static final class ICUpdateResult implements IAutoCloseable
 	{
-		private int countOk = 0;
-		private int countErrors = 0;
+		public static final int COUNT_Unknown = InvoiceCandInvalidUpdaterStats.COUNT_Unknown;
+
+		private final Stopwatch stopwatch = Stopwatch.createStarted();
+		private final AtomicInteger countOk = new AtomicInteger(0);
+		private final AtomicInteger countErrors = new AtomicInteger(0);
+		private final InvoiceCandInvalidUpdaterStats.RunningUpdate runningUpdate;
+
+		public ICUpdateResult(final int countToUpdate)
+		{
+			runningUpdate = InvoiceCandInvalidUpdaterStats.get().startUpdate(countToUpdate);
+		}
 
 		public void addInvoiceCandidate(final I_C_Invoice_Candidate ic)
 		{
-			countOk++;
+			countOk.incrementAndGet();
+			runningUpdate.onCandidateUpdated(false);
 		}
 
 		public void incrementErrorsCount()
 		{
-			countErrors++;
+			countErrors.incrementAndGet();
+			runningUpdate.onCandidateUpdated(true);
+		}
+
+		@Override
+		public void close()
+		{
+			runningUpdate.finish();
 		}
 
 		@Override
@@ -507,7 +740,12 @@ import static org.adempiere.model.InterfaceWrapperHelper.newInstance;
 
 		public String getSummary()
 		{
-			return "Updated " + countOk + " invoice candidates, " + countErrors + " errors";
+			final long durationMillis = stopwatch.elapsed(TimeUnit.MILLISECONDS);
+			final int countTotal = countOk.get() + countErrors.get();
+			final long countPerSecond = durationMillis > 0 ? countTotal * 1000L / durationMillis : countTotal;
+
+			return "Updated " + countOk.get() + " invoice candidates, " + countErrors.get() + " errors"
+					+ " in " + durationMillis + "ms (" + countPerSecond + " invoice candidates/s)";
 		}
 	}
 
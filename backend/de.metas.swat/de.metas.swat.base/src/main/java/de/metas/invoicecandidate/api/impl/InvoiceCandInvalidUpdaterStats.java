@@ -0,0 +1,179 @@
+/*
+ * #%L
+ * de.metas.swat.base
+ * %%
+ * Copyright (C) 2020 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+package de.metas.invoicecandidate.api.impl;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.adempiere.util.jmx.IJMXNameAware;
+import org.adempiere.util.jmx.JMXRegistry;
+import org.adempiere.util.jmx.JMXRegistry.OnJMXAlreadyExistsPolicy;
+
+import com.google.common.annotations.VisibleForTesting;
+
+import de.metas.util.time.SystemTime;
+
+/**
+ * Throughput and lag of {@link InvoiceCandInvalidUpdater}, published via JMX.
+ * <p>
+ * The lag is measured as the pending invoice candidates of the running updates, and as the runtime of the oldest running update.
+ */
+public final class InvoiceCandInvalidUpdaterStats implements InvoiceCandInvalidUpdaterStatsMBean, IJMXNameAware
+{
+	private static final InvoiceCandInvalidUpdaterStats instance = new InvoiceCandInvalidUpdaterStats();
+
+	public static final int COUNT_Unknown = -1;
+
+	public static InvoiceCandInvalidUpdaterStats get()
+	{
+		instance.registerJMXIfNeeded();
+		return instance;
+	}
+
+	private final AtomicBoolean jmxRegistered = new AtomicBoolean(false);
+
+	private final Set<RunningUpdate> runningUpdates = ConcurrentHashMap.newKeySet();
+	private final AtomicLong countUpdated = new AtomicLong(0);
+	private final AtomicLong countErrors = new AtomicLong(0);
+	private volatile long lastUpdateThroughputPerSecond = 0;
+
+	@VisibleForTesting
+	InvoiceCandInvalidUpdaterStats()
+	{
+	}
+
+	private void registerJMXIfNeeded()
+	{
+		if (jmxRegistered.getAndSet(true))
+		{
+			return;
+		}
+		JMXRegistry.get().registerJMX(this, OnJMXAlreadyExistsPolicy.Replace);
+	}
+
+	@Override
+	public String getJMXName()
+	{
+		return "de.metas.invoicecandidate:type=InvoiceCandInvalidUpdater";
+	}
+
+	/**
+	 * @param countToUpdate how many invoice candidates are going to be updated, or {@link #COUNT_Unknown}
+	 */
+	public RunningUpdate startUpdate(final int countToUpdate)
+	{
+		final RunningUpdate runningUpdate = new RunningUpdate(countToUpdate);
+		runningUpdates.add(runningUpdate);
+		return runningUpdate;
+	}
+
+	@Override
+	public long getUpdatedCount()
+	{
+		return countUpdated.get();
+	}
+
+	@Override
+	public long getErrorsCount()
+	{
+		return countErrors.get();
+	}
+
+	@Override
+	public long getPendingCount()
+	{
+		long pendingCount = COUNT_Unknown;
+		for (final RunningUpdate runningUpdate : runningUpdates)
+		{
+			final int runningUpdatePendingCount = runningUpdate.getPendingCount();
+			if (runningUpdatePendingCount != COUNT_Unknown)
+			{
+				pendingCount = Math.max(pendingCount, 0) + runningUpdatePendingCount;
+			}
+		}
+		return pendingCount;
+	}
+
+	@Override
+	public long getLagMillis()
+	{
+		final long now = SystemTime.millis();
+		return runningUpdates.stream()
+				.mapToLong(runningUpdate -> now - runningUpdate.startMillis)
+				.max()
+				.orElse(0);
+	}
+
+	@Override
+	public long getLastUpdateThroughputPerSecond()
+	{
+		return lastUpdateThroughputPerSecond;
+	}
+
+	public final class RunningUpdate
+	{
+		private final int countToUpdate;
+		private final long startMillis = SystemTime.millis();
+		private final AtomicInteger countProcessed = new AtomicInteger(0);
+
+		private RunningUpdate(final int countToUpdate)
+		{
+			this.countToUpdate = countToUpdate;
+		}
+
+		public void onCandidateUpdated(final boolean error)
+		{
+			countProcessed.incrementAndGet();
+			if (error)
+			{
+				countErrors.incrementAndGet();
+			}
+			else
+			{
+				countUpdated.incrementAndGet();
+			}
+		}
+
+		private int getPendingCount()
+		{
+			return countToUpdate != COUNT_Unknown
+					? Math.max(countToUpdate - countProcessed.get(), 0)
+					: COUNT_Unknown;
+		}
+
+		public void finish()
+		{
+			if (!runningUpdates.remove(this))
+			{
+				return; // already finished
+			}
+
+			final long durationMillis = SystemTime.millis() - startMillis;
+			final int countProcessed = this.countProcessed.get();
+			lastUpdateThroughputPerSecond = durationMillis > 0 ? countProcessed * 1000L / durationMillis : countProcessed;
+		}
+	}
+}
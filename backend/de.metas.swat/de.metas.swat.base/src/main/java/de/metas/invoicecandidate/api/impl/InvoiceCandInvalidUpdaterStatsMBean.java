@@ -0,0 +1,44 @@
+/*
+ * #%L
+ * de.metas.swat.base
+ * %%
+ * Copyright (C) 2020 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+package de.metas.invoicecandidate.api.impl;
+
+/**
+ * JMX view of {@link InvoiceCandInvalidUpdaterStats}.
+ */
+public interface InvoiceCandInvalidUpdaterStatsMBean
+{
+	/** @return how many invoice candidates were updated without error since startup */
+	long getUpdatedCount();
+
+	/** @return how many invoice candidates were flagged with an error since startup */
+	long getErrorsCount();
+
+	/** @return how many invoice candidates of the currently running (parallel) updates are not yet updated; -1 if none of them knows its size */
+	long getPendingCount();
+
+	/** @return for how many milliseconds the oldest currently running update is already running, i.e. how far we are behind; 0 if nothing is running */
+	long getLagMillis();
+
+	/** @return invoice candidates per second of the last finished update */
+	long getLastUpdateThroughputPerSecond();
+}
@@ -28,8 +28,11 @@ import java.util.Iterator;
 import java.util.Properties;
 import java.util.Set;
 
+import com.google.common.collect.ImmutableListMultimap;
 import com.google.common.collect.ImmutableSet;
 
+import de.metas.bpartner.BPartnerId;
+import de.metas.invoicecandidate.InvoiceCandidateId;
 import de.metas.invoicecandidate.api.IInvoiceCandRecomputeTagger;
 import de.metas.invoicecandidate.api.InvoiceCandRecomputeTag;
 import de.metas.invoicecandidate.model.I_C_Invoice_Candidate;
@@ -114,6 +117,12 @@ import lombok.ToString;
 		return invoiceCandidates;
 	}
 
+	@Override
+	public ImmutableListMultimap<BPartnerId, InvoiceCandidateId> retrieveInvoiceCandidateIdsByBillPartner()
+	{
+		return invoiceCandDAO.retrieveInvalidInvoiceCandidateIdsByBillPartner(getCtx(), getRecomputeTag(), getTrxName());
+	}
+
 	@Override
 	public IInvoiceCandRecomputeTagger setContext(final Properties ctx, final String trxName)
 	{
@@ -0,0 +1,176 @@
+package de.metas.inoutcandidate.api.impl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+import java.util.Set;
+import java.util.function.Predicate;
+
+import org.adempiere.warehouse.WarehouseId;
+import org.junit.jupiter.api.Test;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.ImmutableSetMultimap;
+
+import de.metas.bpartner.BPartnerId;
+import de.metas.inoutcandidate.ShipmentScheduleId;
+import de.metas.inoutcandidate.api.ShipmentSchedulePartitionInfo;
+import de.metas.inoutcandidate.api.impl.ShipmentSchedulesPartitioner.ShipmentSchedulesChunk;
+import de.metas.inoutcandidate.picking_bom.PickingBOMsReversedIndex;
+import de.metas.order.OrderId;
+import de.metas.product.ProductId;
+
+/*
+ * #%L
+ * de.metas.swat.base
+ * %%
+ * Copyright (C) 2020 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+public class ShipmentSchedulesPartitionerTest
+{
+	private static final WarehouseId warehouse1 = WarehouseId.ofRepoId(1);
+	private static final WarehouseId warehouse2 = WarehouseId.ofRepoId(2);
+	private static final WarehouseId warehouse3 = WarehouseId.ofRepoId(3);
+
+	private static final ProductId product1 = ProductId.ofRepoId(11);
+	private static final ProductId product2 = ProductId.ofRepoId(12);
+	private static final ProductId product3 = ProductId.ofRepoId(13);
+
+	private static final BPartnerId bpartner1 = BPartnerId.ofRepoId(21);
+	private static final BPartnerId bpartner2 = BPartnerId.ofRepoId(22);
+
+	private int nextOrderId = 100;
+
+	private static ShipmentSchedulesPartitioner newPartitioner(final int chunkSize)
+	{
+		return newPartitioner(chunkSize, PickingBOMsReversedIndex.EMPTY, bpartnerId -> false);
+	}
+
+	private static ShipmentSchedulesPartitioner newPartitioner(
+			final int chunkSize,
+			final PickingBOMsReversedIndex pickingBOMsReversedIndex,
+			final Predicate<BPartnerId> allowConsolidateShipment)
+	{
+		return ShipmentSchedulesPartitioner.builder()
+				.pickingBOMsReversedIndex(pickingBOMsReversedIndex)
+				// warehouse 1 and 2 are in the same picking group
+				.warehousesOfSamePickingGroupProvider(warehouseId -> warehouseId.equals(warehouse3) ? ImmutableSet.of() : ImmutableSet.of(warehouse1, warehouse2))
+				.allowConsolidateShipment(allowConsolidateShipment)
+				.chunkSize(chunkSize)
+				.build();
+	}
+
+	private ShipmentSchedulePartitionInfo schedule(final int id, final ProductId productId, final WarehouseId warehouseId)
+	{
+		return schedule(id, productId, warehouseId, OrderId.ofRepoId(nextOrderId++), bpartner1);
+	}
+
+	private static ShipmentSchedulePartitionInfo schedule(final int id, final ProductId productId, final WarehouseId warehouseId, final OrderId orderId, final BPartnerId bpartnerId)
+	{
+		return ShipmentSchedulePartitionInfo.builder()
+				.shipmentScheduleId(ShipmentScheduleId.ofRepoId(id))
+				.productId(productId)
+				.warehouseId(warehouseId)
+				.bpartnerId(bpartnerId)
+				.orderId(orderId)
+				.build();
+	}
+
+	private static List<Set<Integer>> toIds(final List<ShipmentSchedulesChunk> chunks)
+	{
+		return chunks.stream()
+				.map(chunk -> chunk.getShipmentScheduleIds().stream().map(ShipmentScheduleId::getRepoId).collect(ImmutableSet.toImmutableSet()))
+				.collect(ImmutableList.toImmutableList());
+	}
+
+	@Test
+	public void empty()
+	{
+		assertThat(newPartitioner(10).partition(ImmutableList.of())).isEmpty();
+	}
+
+	@Test
+	public void independentSchedules_areSplitByChunkSize()
+	{
+		final List<ShipmentSchedulesChunk> chunks = newPartitioner(2).partition(ImmutableList.of(
+				schedule(1, product1, warehouse1),
+				schedule(2, product2, warehouse1),
+				schedule(3, product3, warehouse1),
+				schedule(4, product1, warehouse3)));
+
+		assertThat(toIds(chunks)).containsExactly(ImmutableSet.of(1, 2), ImmutableSet.of(3, 4));
+		assertThat(chunks).extracting(ShipmentSchedulesChunk::getChunkNo).containsExactly(1, 2);
+		assertThat(chunks).extracting(ShipmentSchedulesChunk::getPartitionsCount).containsExactly(2, 2);
+	}
+
+	@Test
+	public void sameProductAndPickingGroup_isNeverSplit()
+	{
+		final List<ShipmentSchedulesChunk> chunks = newPartitioner(2).partition(ImmutableList.of(
+				schedule(1, product1, warehouse1),
+				schedule(2, product2, warehouse1),
+				schedule(3, product1, warehouse2),
+				schedule(4, product1, warehouse1)));
+
+		assertThat(toIds(chunks)).containsExactly(ImmutableSet.of(1, 3, 4), ImmutableSet.of(2));
+		assertThat(chunks.get(0).getPartitionsCount()).isEqualTo(1);
+	}
+
+	@Test
+	public void sameOrder_isNeverSplit()
+	{
+		final OrderId order = OrderId.ofRepoId(1);
+		final List<ShipmentSchedulesChunk> chunks = newPartitioner(1).partition(ImmutableList.of(
+				schedule(1, product1, warehouse1, order, bpartner1),
+				schedule(2, product2, warehouse3, null, bpartner2),
+				schedule(3, product3, warehouse3, order, bpartner1)));
+
+		assertThat(toIds(chunks)).containsExactly(ImmutableSet.of(1, 3), ImmutableSet.of(2));
+	}
+
+	@Test
+	public void samePartner_isSplitOnlyIfNotConsolidating()
+	{
+		final ImmutableList<ShipmentSchedulePartitionInfo> schedules = ImmutableList.of(
+				schedule(1, product1, warehouse1, OrderId.ofRepoId(1), bpartner1),
+				schedule(2, product2, warehouse3, OrderId.ofRepoId(2), bpartner1));
+
+		assertThat(toIds(newPartitioner(1, PickingBOMsReversedIndex.EMPTY, bpartnerId -> false).partition(schedules)))
+				.containsExactly(ImmutableSet.of(1), ImmutableSet.of(2));
+
+		assertThat(toIds(newPartitioner(1, PickingBOMsReversedIndex.EMPTY, bpartnerId -> true).partition(schedules)))
+				.containsExactly(ImmutableSet.of(1, 2));
+	}
+
+	@Test
+	public void pickingBOMsAndComponents_areNeverSplit()
+	{
+		// product1 and product2 are both picking BOMs which contain product3
+		final PickingBOMsReversedIndex pickingBOMsReversedIndex = PickingBOMsReversedIndex.ofBOMProductIdsByComponentId(
+				ImmutableSetMultimap.of(product3, product1, product3, product2));
+
+		final List<ShipmentSchedulesChunk> chunks = newPartitioner(1, pickingBOMsReversedIndex, bpartnerId -> false).partition(ImmutableList.of(
+				schedule(1, product1, warehouse1),
+				schedule(2, product2, warehouse2),
+				schedule(3, product2, warehouse3)));
+
+		assertThat(toIds(chunks)).containsExactly(ImmutableSet.of(1, 2), ImmutableSet.of(3));
+	}
+}
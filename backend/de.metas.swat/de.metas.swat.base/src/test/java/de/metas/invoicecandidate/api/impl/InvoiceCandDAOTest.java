@@ -14,14 +14,21 @@ import javax.annotation.Nullable;
 import org.adempiere.ad.dao.IQueryBL;
 import org.adempiere.test.AdempiereTestHelper;
 import org.compiere.model.I_C_PaymentTerm;
+import org.compiere.model.I_M_InOut;
+import org.compiere.model.I_M_InOutLine;
 import org.junit.Before;
 import org.junit.Test;
 
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableListMultimap;
+import com.google.common.collect.ImmutableSet;
 
+import de.metas.document.engine.DocStatus;
 import de.metas.invoicecandidate.InvoiceCandidateId;
 import de.metas.invoicecandidate.api.InvoiceCandidateMultiQuery;
 import de.metas.invoicecandidate.api.InvoiceCandidateQuery;
+import de.metas.invoicecandidate.api.InvoiceCandidatesInOutLines;
+import de.metas.invoicecandidate.model.I_C_InvoiceCandidate_InOutLine;
 import de.metas.invoicecandidate.model.I_C_Invoice_Candidate;
 import de.metas.payment.paymentterm.PaymentTermId;
 import de.metas.process.PInstanceId;
@@ -300,6 +307,70 @@ public class InvoiceCandDAOTest
 						tuple(candidateId2_3.getRepoId(), EXTERNAL_HEADER_ID2.getValue(), EXTERNAL_LINE_ID3.getValue()));
 	}
 
+	@Test
+	public void retrieveICIOLAssociationsExclRE_multipleInvoiceCandidates()
+	{
+		final InvoiceCandidateId candidateId1 = createInvoiceCandidate(null, null);
+		final InvoiceCandidateId candidateId2 = createInvoiceCandidate(null, null);
+		final InvoiceCandidateId candidateIdWithoutIciols = createInvoiceCandidate(null, null);
+
+		final I_M_InOutLine completedInOutLine1 = createInOutLine(DocStatus.Completed);
+		final I_M_InOutLine completedInOutLine2 = createInOutLine(DocStatus.Completed);
+		final I_M_InOutLine reversedInOutLine = createInOutLine(DocStatus.Reversed);
+
+		final I_C_InvoiceCandidate_InOutLine iciol1_2 = createICIOL(candidateId1, completedInOutLine2);
+		final I_C_InvoiceCandidate_InOutLine iciol1_1 = createICIOL(candidateId1, completedInOutLine1);
+		createICIOL(candidateId1, reversedInOutLine);
+		final I_C_InvoiceCandidate_InOutLine iciol2_1 = createICIOL(candidateId2, completedInOutLine1);
+
+		// invoke the method under test
+		final InvoiceCandidatesInOutLines invoiceCandidatesInOutLines = invoiceCandDAO.retrieveICIOLAssociationsExclRE(
+				ImmutableSet.of(candidateId1, candidateId2, candidateIdWithoutIciols));
+		final ImmutableListMultimap<InvoiceCandidateId, I_C_InvoiceCandidate_InOutLine> result = invoiceCandidatesInOutLines.getIciolsByInvoiceCandidateId();
+
+		assertThat(result.keySet()).containsExactlyInAnyOrder(candidateId1, candidateId2);
+		assertThat(result.get(candidateId1))
+				.extracting("C_InvoiceCandidate_InOutLine_ID")
+				.containsExactly(iciol1_1.getC_InvoiceCandidate_InOutLine_ID(), iciol1_2.getC_InvoiceCandidate_InOutLine_ID());
+		assertThat(result.get(candidateId2))
+				.extracting("C_InvoiceCandidate_InOutLine_ID")
+				.containsExactly(iciol2_1.getC_InvoiceCandidate_InOutLine_ID());
+
+		// the inout lines are returned along with the associations, but only those of completed or closed inouts
+		assertThat(invoiceCandidatesInOutLines.getInoutLinesById().keySet())
+				.containsExactlyInAnyOrder(completedInOutLine1.getM_InOutLine_ID(), completedInOutLine2.getM_InOutLine_ID());
+
+		// the set based method shall be consistent with the one that works with a single invoice candidate
+		assertThat(result.get(candidateId1))
+				.extracting("C_InvoiceCandidate_InOutLine_ID")
+				.containsExactlyElementsOf(invoiceCandDAO.retrieveICIOLAssociationsExclRE(candidateId1).stream()
+						.map(I_C_InvoiceCandidate_InOutLine::getC_InvoiceCandidate_InOutLine_ID)
+						.collect(ImmutableList.toImmutableList()));
+	}
+
+	private I_M_InOutLine createInOutLine(@NonNull final DocStatus docStatus)
+	{
+		final I_M_InOut inout = newInstance(I_M_InOut.class);
+		inout.setDocStatus(docStatus.getCode());
+		saveRecord(inout);
+
+		final I_M_InOutLine inoutLine = newInstance(I_M_InOutLine.class);
+		inoutLine.setM_InOut_ID(inout.getM_InOut_ID());
+		saveRecord(inoutLine);
+		return inoutLine;
+	}
+
+	private I_C_InvoiceCandidate_InOutLine createICIOL(
+			@NonNull final InvoiceCandidateId invoiceCandidateId,
+			@NonNull final I_M_InOutLine inoutLine)
+	{
+		final I_C_InvoiceCandidate_InOutLine iciol = newInstance(I_C_InvoiceCandidate_InOutLine.class);
+		iciol.setC_Invoice_Candidate_ID(invoiceCandidateId.getRepoId());
+		iciol.setM_InOutLine_ID(inoutLine.getM_InOutLine_ID());
+		saveRecord(iciol);
+		return iciol;
+	}
+
 	private InvoiceCandidateId createInvoiceCandidate(
 			@Nullable final ExternalId externalHeaderId,
 			@Nullable final ExternalId externalLineId)
@@ -0,0 +1,181 @@
+package de.metas.invoicecandidate.api.impl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.adempiere.exceptions.AdempiereException;
+import org.junit.jupiter.api.Test;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableListMultimap;
+
+import de.metas.bpartner.BPartnerId;
+import de.metas.invoicecandidate.InvoiceCandidateId;
+
+/*
+ * #%L
+ * de.metas.swat.base
+ * %%
+ * Copyright (C) 2020 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+public class InvoiceCandInvalidUpdaterTest
+{
+	@Test
+	public void toWorkPackages_packsWholeBillPartners()
+	{
+		final ImmutableListMultimap<BPartnerId, InvoiceCandidateId> idsByBillPartnerId = ImmutableListMultimap.<BPartnerId, InvoiceCandidateId> builder()
+				.putAll(BPartnerId.ofRepoId(1), icId(10), icId(11))
+				.putAll(BPartnerId.ofRepoId(2), icId(20))
+				.putAll(BPartnerId.ofRepoId(3), icId(30), icId(31))
+				.build();
+
+		final ImmutableList<ImmutableList<InvoiceCandidateId>> workPackages = InvoiceCandInvalidUpdater.toWorkPackages(idsByBillPartnerId, 3);
+
+		assertThat(workPackages).containsExactly(
+				ImmutableList.of(icId(10), icId(11), icId(20)),
+				ImmutableList.of(icId(30), icId(31)));
+	}
+
+	@Test
+	public void toWorkPackages_bigBillPartnerIsNotSplit()
+	{
+		final ImmutableListMultimap<BPartnerId, InvoiceCandidateId> idsByBillPartnerId = ImmutableListMultimap.<BPartnerId, InvoiceCandidateId> builder()
+				.putAll(BPartnerId.ofRepoId(1), icId(10))
+				.putAll(BPartnerId.ofRepoId(2), icId(20), icId(21), icId(22), icId(23))
+				.putAll(BPartnerId.ofRepoId(3), icId(30))
+				.build();
+
+		final ImmutableList<ImmutableList<InvoiceCandidateId>> workPackages = InvoiceCandInvalidUpdater.toWorkPackages(idsByBillPartnerId, 2);
+
+		assertThat(workPackages).containsExactly(
+				ImmutableList.of(icId(10)),
+				ImmutableList.of(icId(20), icId(21), icId(22), icId(23)),
+				ImmutableList.of(icId(30)));
+	}
+
+	@Test
+	public void updateInParallel_eachPackageIsUpdatedOnceAndInOrder()
+	{
+		final ImmutableList<ImmutableList<InvoiceCandidateId>> workPackages = ImmutableList.of(
+				ImmutableList.of(icId(10), icId(11), icId(20)),
+				ImmutableList.of(icId(31), icId(30)),
+				ImmutableList.of(icId(40)),
+				ImmutableList.of(icId(52), icId(51), icId(50)));
+
+		final List<InvoiceCandidateId> updatedIds = new CopyOnWriteArrayList<>();
+		final Set<String> threadNames = ConcurrentHashMap.newKeySet();
+		final CountDownLatch twoPackagesRunning = new CountDownLatch(2);
+
+		InvoiceCandInvalidUpdater.updateInParallel(workPackages, 2, workPackage -> {
+			threadNames.add(Thread.currentThread().getName());
+			awaitOtherWorker(twoPackagesRunning);
+
+			// the candidates of one package are updated one after the other, in the given order
+			for (final InvoiceCandidateId id : workPackage)
+			{
+				updatedIds.add(id);
+			}
+		});
+
+		assertThat(threadNames).hasSize(2);
+		assertThat(updatedIds).containsExactlyInAnyOrder(
+				icId(10), icId(11), icId(20), icId(31), icId(30), icId(40), icId(52), icId(51), icId(50));
+		for (final ImmutableList<InvoiceCandidateId> workPackage : workPackages)
+		{
+			assertThat(updatedIds).containsSubsequence(workPackage);
+		}
+	}
+
+	@Test
+	public void updateInParallel_failingPackageDoesNotStopTheOthers()
+	{
+		final ImmutableList<ImmutableList<InvoiceCandidateId>> workPackages = ImmutableList.of(
+				ImmutableList.of(icId(10)),
+				ImmutableList.of(icId(20)),
+				ImmutableList.of(icId(30)),
+				ImmutableList.of(icId(40)));
+
+		final List<InvoiceCandidateId> updatedIds = new CopyOnWriteArrayList<>();
+		final AtomicInteger updateCalls = new AtomicInteger();
+		final AdempiereException failure = new AdempiereException("failing chunk");
+
+		assertThatThrownBy(() -> InvoiceCandInvalidUpdater.updateInParallel(workPackages, 2, workPackage -> {
+			updateCalls.incrementAndGet();
+			if (workPackage.contains(icId(20)))
+			{
+				throw failure;
+			}
+			updatedIds.addAll(workPackage);
+		}))
+				.isSameAs(failure);
+
+		assertThat(updateCalls).hasValue(4);
+		assertThat(updatedIds).containsExactlyInAnyOrder(icId(10), icId(30), icId(40));
+	}
+
+	@Test
+	public void stats_pendingCountAndThroughput()
+	{
+		final InvoiceCandInvalidUpdaterStats stats = new InvoiceCandInvalidUpdaterStats();
+		assertThat(stats.getPendingCount()).isEqualTo(InvoiceCandInvalidUpdaterStats.COUNT_Unknown);
+		assertThat(stats.getLagMillis()).isZero();
+
+		final InvoiceCandInvalidUpdaterStats.RunningUpdate update1 = stats.startUpdate(3);
+		final InvoiceCandInvalidUpdaterStats.RunningUpdate update2 = stats.startUpdate(InvoiceCandInvalidUpdaterStats.COUNT_Unknown);
+		update1.onCandidateUpdated(false);
+		update1.onCandidateUpdated(true);
+		update2.onCandidateUpdated(false);
+
+		assertThat(stats.getPendingCount()).isEqualTo(1);
+		assertThat(stats.getUpdatedCount()).isEqualTo(2);
+		assertThat(stats.getErrorsCount()).isEqualTo(1);
+
+		update1.finish();
+		update2.finish();
+		assertThat(stats.getPendingCount()).isEqualTo(InvoiceCandInvalidUpdaterStats.COUNT_Unknown);
+		assertThat(stats.getLagMillis()).isZero();
+		assertThat(stats.getLastUpdateThroughputPerSecond()).isGreaterThan(0);
+	}
+
+	private static void awaitOtherWorker(final CountDownLatch latch)
+	{
+		latch.countDown();
+		try
+		{
+			assertThat(latch.await(10, TimeUnit.SECONDS)).isTrue();
+		}
+		catch (final InterruptedException e)
+		{
+			throw new AdempiereException(e);
+		}
+	}
+
+	private static InvoiceCandidateId icId(final int repoId)
+	{
+		return InvoiceCandidateId.ofRepoId(repoId);
+	}
+}
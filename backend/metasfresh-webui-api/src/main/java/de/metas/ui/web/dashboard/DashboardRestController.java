@@ -4,7 +4,6 @@ import java.util.Collection;
 import java.util.Comparator;
 import java.util.List;
 
-import org.elasticsearch.client.Client;
 import org.slf4j.Logger;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.web.bind.annotation.DeleteMapping;
@@ -75,7 +74,7 @@ public class DashboardRestController
 	@Autowired
 	private UserDashboardRepository userDashboardRepo;
 	@Autowired
-	private Client elasticsearchClient;
+	private KPIDataProvider kpiDataProvider;
 	@Autowired
 	private WebsocketSender websocketSender;
 
@@ -91,16 +90,22 @@ public class DashboardRestController
 
 	private UserDashboard getUserDashboardForReading()
 	{
+		final UserDashboard dashboard = userDashboardRepo.getUserDashboard(UserDashboardKey.of(userSession.getClientId()));
+		// TODO: assert readable by current user
+
 		if (!isElasticSearchEnabled())
 		{
-			return UserDashboard.EMPTY;
+			// without elasticsearch, only the SQL based KPIs can provide data
+			return dashboard.withItemsMatching(item -> isAvailableWithoutElasticsearch(item.getKPI()));
 		}
-
-		final UserDashboard dashboard = userDashboardRepo.getUserDashboard(UserDashboardKey.of(userSession.getClientId()));
-		// TODO: assert readable by current user
 		return dashboard;
 	}
 
+	private static boolean isAvailableWithoutElasticsearch(final KPI kpi)
+	{
+		return kpi.getDatasourceType() == KPIDatasourceType.SQL;
+	}
+
 	private boolean isElasticSearchEnabled()
 	{
 		return Services.get(IESSystem.class).isEnabled();
@@ -108,11 +113,6 @@ public class DashboardRestController
 
 	private UserDashboard getUserDashboardForWriting()
 	{
-		if (!isElasticSearchEnabled())
-		{
-			return UserDashboard.EMPTY;
-		}
-
 		final UserDashboard dashboard = userDashboardRepo.getUserDashboard(UserDashboardKey.of(userSession.getClientId()));
 		// TODO: assert writable by current user
 		return dashboard;
@@ -162,9 +162,11 @@ public class DashboardRestController
 		userSession.assertLoggedIn();
 
 		final Collection<KPI> kpis = userDashboardRepo.getKPIsAvailableToAdd();
+		final boolean elasticSearchEnabled = isElasticSearchEnabled();
 
 		final JSONOptions jsonOpts = newJSONOpts();
 		return kpis.stream()
+				.filter(kpi -> elasticSearchEnabled || isAvailableWithoutElasticsearch(kpi))
 				.map(kpi -> JsonKPI.of(kpi, jsonOpts))
 				.sorted(Comparator.comparing(JsonKPI::getCaption))
 				.skip(firstRow >= 0 ? firstRow : 0)
@@ -236,11 +238,8 @@ public class DashboardRestController
 		final TimeRange timeRange = dashboardItem.getTimeRangeDefaults().createTimeRange(fromMillis, toMillis);
 
 		final JSONOptions jsonOptions = JSONOptions.of(userSession);
-		return KPIDataLoader.newInstance(elasticsearchClient, kpi, jsonOptions)
-				.setTimeRange(timeRange)
-				.setFormatValues(prettyValues)
-				.retrieveData()
-				.setItemId(dashboardItem.getId());
+		return kpiDataProvider.getKPIData(kpi, timeRange, prettyValues, jsonOptions)
+				.withItemId(dashboardItem.getId());
 	}
 
 	@DeleteMapping("/kpis/{itemId}")
@@ -61,6 +61,7 @@ public class KPI
 
 	private final KPITimeRangeDefaults timeRangeDefaults;
 
+	private final KPIDatasourceType datasourceType;
 	private final String esSearchIndex;
 	private final String esSearchTypes;
 	private final IStringExpression esQuery;
@@ -76,10 +77,15 @@ public class KPI
 		Check.assumeNotNull(builder.description, "Parameter builder.description is not null");
 		Check.assumeNotNull(builder.chartType, "Parameter builder.chartType is not null");
 		Check.assumeNotEmpty(builder.fields, "builder.fields is not empty");
-		Check.assumeNotEmpty(builder.esSearchIndex, "builder.esSearchIndex is not empty");
-		Check.assumeNotEmpty(builder.esSearchTypes, "builder.esSearchTypes is not empty");
 		Check.assumeNotEmpty(builder.esQuery, "builder.esQuery is not empty");
 
+		datasourceType = KPIDatasourceType.ofQuery(builder.esQuery);
+		if (datasourceType == KPIDatasourceType.ELASTICSEARCH)
+		{
+			Check.assumeNotEmpty(builder.esSearchIndex, "builder.esSearchIndex is not empty");
+			Check.assumeNotEmpty(builder.esSearchTypes, "builder.esSearchTypes is not empty");
+		}
+
 		id = builder.id;
 
 		caption = builder.caption;
@@ -121,6 +127,7 @@ public class KPI
 				.omitNullValues()
 				.add("id", id)
 				.add("caption", caption.getDefaultValue())
+				.add("datasourceType", datasourceType)
 				.toString();
 	}
 
@@ -189,6 +196,14 @@ public class KPI
 		return pollIntervalSec;
 	}
 
+	public KPIDatasourceType getDatasourceType()
+	{
+		return datasourceType;
+	}
+
+	/**
+	 * @return the elasticsearch query or the SQL query, depending on {@link #getDatasourceType()}
+	 */
 	public IStringExpression getESQuery()
 	{
 		return esQuery;
@@ -1,13 +1,23 @@
 package de.metas.ui.web.dashboard;
 
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Timestamp;
 import java.time.Duration;
 import java.util.Arrays;
 import java.util.List;
 import java.util.function.BiFunction;
 
+import javax.annotation.Nullable;
+
 import org.adempiere.ad.expression.api.IExpressionEvaluator.OnVariableNotFound;
 import org.adempiere.ad.expression.api.IStringExpression;
+import org.adempiere.ad.trx.api.ITrx;
 import org.adempiere.exceptions.AdempiereException;
+import org.adempiere.exceptions.DBException;
+import org.compiere.util.DB;
 import org.compiere.util.Env;
 import org.compiere.util.Evaluatee;
 import org.compiere.util.Evaluatees;
@@ -54,8 +64,11 @@ import lombok.NonNull;
 
 public class KPIDataLoader
 {
+	/**
+	 * @param elasticsearchClient may be {@code null} if the given KPI is {@link KPIDatasourceType#SQL} based
+	 */
 	public static final KPIDataLoader newInstance(
-			@NonNull final Client elasticsearchClient,
+			@Nullable final Client elasticsearchClient,
 			@NonNull final KPI kpi,
 			@NonNull final JSONOptions jsonOptions)
 	{
@@ -64,6 +77,10 @@ public class KPIDataLoader
 
 	private static final Logger logger = LogManager.getLogger(KPIDataLoader.class);
 
+	/** Optional column of SQL based KPIs, which tells in which data set a row shall be put */
+	private static final String SQL_COLUMNNAME_DataSet = "DataSet";
+	private static final String SQL_DEFAULT_DataSet = "data";
+
 	private final Client elasticsearchClient;
 	private final KPI kpi;
 	private final JSONOptions jsonOptions;
@@ -74,10 +91,10 @@ public class KPIDataLoader
 	private boolean formatValues = false;
 
 	private BiFunction<KPIField, TimeRange, String> fieldNameExtractor = (field, timeRange) -> field.getFieldName();
-	private BiFunction<Bucket, TimeRange, Object> dataSetValueKeyExtractor = (bucket, timeRange) -> bucket.getKey();
+	private BiFunction<Object, TimeRange, Object> dataSetValueKeyExtractor = (key, timeRange) -> key;
 
 	private KPIDataLoader(
-			@NonNull final Client elasticsearchClient,
+			@Nullable final Client elasticsearchClient,
 			@NonNull final KPI kpi,
 			@NonNull final JSONOptions jsonOptions)
 	{
@@ -122,14 +139,14 @@ public class KPIDataLoader
 			final KPIField groupByField = kpi.getGroupByField();
 			if (groupByField.getValueType().isDate())
 			{
-				dataSetValueKeyExtractor = (bucket, timeRange) -> {
-					final long millis = convertToMillis(bucket.getKey());
+				dataSetValueKeyExtractor = (key, timeRange) -> {
+					final long millis = convertToMillis(key);
 					return formatValue(groupByField, timeRange.subtractOffset(millis));
 				};
 			}
 			else
 			{
-				dataSetValueKeyExtractor = (bucket, timeRange) -> formatValue(groupByField, bucket.getKey());
+				dataSetValueKeyExtractor = (key, timeRange) -> formatValue(groupByField, key);
 			}
 		}
 
@@ -153,11 +170,16 @@ public class KPIDataLoader
 	}
 
 	/**
-	 * Checks if KPI's elasticsearch Index and Type exists
+	 * Checks if KPI's elasticsearch Index and Type exists. Does nothing for SQL based KPIs.
 	 */
 	public KPIDataLoader assertESTypesExists()
 	{
-		final IndicesAdminClient admin = elasticsearchClient.admin()
+		if (kpi.getDatasourceType() != KPIDatasourceType.ELASTICSEARCH)
+		{
+			return this;
+		}
+
+		final IndicesAdminClient admin = getElasticsearchClient().admin()
 				.indices();
 
 		//
@@ -219,6 +241,31 @@ public class KPIDataLoader
 				// Fallback to user context
 				.andComposeWith(Evaluatees.ofCtx(Env.getCtx()));
 
+		switch (kpi.getDatasourceType())
+		{
+			case ELASTICSEARCH:
+				loadDataFromElasticsearch(data, timeRange, evalCtx);
+				break;
+			case SQL:
+				loadDataFromSQL(data, timeRange, evalCtx);
+				break;
+			default:
+				throw new AdempiereException("Datasource type not supported: " + kpi.getDatasourceType());
+		}
+	}
+
+	private Client getElasticsearchClient()
+	{
+		if (elasticsearchClient == null)
+		{
+			throw new AdempiereException("Elasticsearch is not available, but it's needed to load the data of " + kpi
+					+ "\nPlease check if `" + ESSystem.SYSCONFIG_PostKpiEvents + "` is enabled.");
+		}
+		return elasticsearchClient;
+	}
+
+	private void loadDataFromElasticsearch(final KPIDataResult.Builder data, final TimeRange timeRange, final Evaluatee evalCtx)
+	{
 		//
 		// Resolve esQuery's variables
 		final IStringExpression esQuery = kpi.getESQuery();
@@ -231,7 +278,7 @@ public class KPIDataLoader
 		{
 			logger.trace("Executing: \n{}", esQueryParsed);
 
-			response = elasticsearchClient.prepareSearch(kpi.getESSearchIndex())
+			response = getElasticsearchClient().prepareSearch(kpi.getESSearchIndex())
 					.setTypes(kpi.getESSearchTypes())
 					.setSource(esQueryParsed)
 					// .setExplain(true) // enable it only for debugging
@@ -266,7 +313,7 @@ public class KPIDataLoader
 
 					for (final Bucket bucket : multiBucketsAggregation.getBuckets())
 					{
-						final Object key = dataSetValueKeyExtractor.apply(bucket, timeRange);
+						final Object key = dataSetValueKeyExtractor.apply(bucket.getKey(), timeRange);
 
 						for (final KPIField field : kpi.getFields())
 						{
@@ -331,6 +378,87 @@ public class KPIDataLoader
 		}
 	}
 
+	/**
+	 * Runs the KPI's SQL query and puts each row into the result.
+	 * <ul>
+	 * <li>each field's value is taken from the column whose name is the field's {@link KPIField#getESPathAsString() ES path}</li>
+	 * <li>the group by field's column is used as key, like the bucket key of an elasticsearch aggregation</li>
+	 * <li>if there is a {@value #SQL_COLUMNNAME_DataSet} column, its value is used as data set name</li>
+	 * </ul>
+	 */
+	private void loadDataFromSQL(final KPIDataResult.Builder data, final TimeRange timeRange, final Evaluatee evalCtx)
+	{
+		final Evaluatee sqlEvalCtx = Evaluatees.mapBuilder()
+				.put("MainFromDate", DB.TO_DATE(new Timestamp(data.getRange().getFromMillis()), false))
+				.put("MainToDate", DB.TO_DATE(new Timestamp(data.getRange().getToMillis()), false))
+				.put("FromDate", DB.TO_DATE(new Timestamp(timeRange.getFromMillis()), false))
+				.put("ToDate", DB.TO_DATE(new Timestamp(timeRange.getToMillis()), false))
+				.build()
+				.andComposeWith(evalCtx);
+
+		final String sql = kpi.getESQuery().evaluate(sqlEvalCtx, OnVariableNotFound.Fail);
+		logger.trace("Executing: \n{}", sql);
+
+		final KPIField groupByField = kpi.getGroupByFieldOrNull();
+
+		PreparedStatement pstmt = null;
+		ResultSet rs = null;
+		try
+		{
+			pstmt = DB.prepareStatement(sql, ITrx.TRXNAME_None);
+			rs = pstmt.executeQuery();
+
+			final boolean hasDataSetColumn = hasColumn(rs.getMetaData(), SQL_COLUMNNAME_DataSet);
+			while (rs.next())
+			{
+				final String dataSetName = hasDataSetColumn ? rs.getString(SQL_COLUMNNAME_DataSet) : SQL_DEFAULT_DataSet;
+				final Object key = groupByField != null
+						? dataSetValueKeyExtractor.apply(rs.getObject(groupByField.getESPathAsString()), timeRange)
+						: "NO_KEY";
+
+				for (final KPIField field : kpi.getFields())
+				{
+					final Object value = rs.getObject(field.getESPathAsString());
+					final Object jsonValue = formatValue(field, value);
+					if (jsonValue == null)
+					{
+						continue;
+					}
+
+					final String fieldName = fieldNameExtractor.apply(field, timeRange);
+					data.putValue(dataSetName, key, fieldName, jsonValue);
+				}
+
+				if (groupByField != null)
+				{
+					data.putValueIfAbsent(dataSetName, key, groupByField.getFieldName(), key);
+				}
+			}
+		}
+		catch (final SQLException e)
+		{
+			throw new DBException(e, sql)
+					.appendParametersToMessage()
+					.setParameter("KPI", kpi);
+		}
+		finally
+		{
+			DB.close(rs, pstmt);
+		}
+	}
+
+	private static boolean hasColumn(final ResultSetMetaData metaData, final String columnName) throws SQLException
+	{
+		for (int i = 1; i <= metaData.getColumnCount(); i++)
+		{
+			if (columnName.equalsIgnoreCase(metaData.getColumnLabel(i)))
+			{
+				return true;
+			}
+		}
+		return false;
+	}
+
 	private Object formatValue(final KPIField field, final Object value)
 	{
 		if (isFormatValues())
@@ -357,6 +485,11 @@ public class KPIDataLoader
 		{
 			return ((Long)valueObj).longValue();
 		}
+		else if (valueObj instanceof java.util.Date)
+		{
+			// e.g. a Timestamp from SQL based KPIs
+			return ((java.util.Date)valueObj).getTime();
+		}
 		else if (valueObj instanceof Number)
 		{
 			return ((Number)valueObj).longValue();
@@ -0,0 +1,144 @@
+package de.metas.ui.web.dashboard;
+
+import java.util.Optional;
+
+import javax.annotation.Nullable;
+
+import org.adempiere.service.ClientId;
+import org.compiere.util.Env;
+import org.elasticsearch.client.Client;
+import org.springframework.stereotype.Service;
+
+import de.metas.cache.CCache;
+import de.metas.cache.CCache.CacheMapType;
+import de.metas.organization.OrgId;
+import de.metas.security.RoleId;
+import de.metas.ui.web.base.model.I_WEBUI_KPI;
+import de.metas.ui.web.base.model.I_WEBUI_KPI_Field;
+import de.metas.ui.web.window.datatypes.json.JSONOptions;
+import de.metas.user.UserId;
+import lombok.Builder;
+import lombok.NonNull;
+import lombok.Value;
+
+
+/*
+ * #%L
+ * metasfresh-webui-api
+ * %%
+ * Copyright (C) 2020 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+/**
+ * Loads the data of dashboard KPIs and caches it.
+ * <p>
+ * The results are cached per KPI, time range, client/org, user/role and JSON options, for the KPI's {@link KPI#getPollIntervalSec() poll interval}.
+ * That means that the time ranges of all requests which are within the same poll interval are considered to be the same,
+ * so a KPI's data is computed at most once per poll interval and user/role.
+ * The user and role are part of the key because the KPI's queries are evaluated against the user's context (see {@link KPIDataLoader}).
+ * KPIs without a poll interval are not cached.
+ * <p>
+ * The cache is reset via {@link de.metas.cache.CacheMgt} when a KPI or one of its fields is changed.
+ */
+@Service
+public class KPIDataProvider
+{
+	@Nullable
+	private final Client elasticsearchClient;
+
+	private final CCache<KPIDataCacheKey, KPIDataResult> cache = CCache.<KPIDataCacheKey, KPIDataResult> builder()
+			.cacheName(I_WEBUI_KPI.Table_Name + "#KPIDataResult")
+			.tableName(I_WEBUI_KPI.Table_Name)
+			.additionalTableNameToResetFor(I_WEBUI_KPI_Field.Table_Name)
+			.cacheMapType(CacheMapType.LRU)
+			.initialCapacity(500)
+			.expireMinutes(60)
+			.build();
+
+	/**
+	 * @param elasticsearchClient not needed for SQL based KPIs, so it's OK if it's missing
+	 */
+	public KPIDataProvider(@NonNull final Optional<Client> elasticsearchClient)
+	{
+		this.elasticsearchClient = elasticsearchClient.orElse(null);
+	}
+
+	public KPIDataResult getKPIData(
+			@NonNull final KPI kpi,
+			@NonNull final TimeRange timeRange,
+			final boolean formatValues,
+			@NonNull final JSONOptions jsonOptions)
+	{
+		final long pollIntervalMillis = kpi.getPollIntervalSec() * 1000L;
+		if (pollIntervalMillis <= 0)
+		{
+			return loadKPIData(kpi, timeRange, formatValues, jsonOptions);
+		}
+
+		final KPIDataCacheKey cacheKey = KPIDataCacheKey.builder()
+				.kpiId(kpi.getId())
+				.fromInterval(timeRange.getFromMillis() / pollIntervalMillis)
+				.toInterval(timeRange.getToMillis() / pollIntervalMillis)
+				.clientId(Env.getClientId())
+				.orgId(Env.getOrgId())
+				.userId(Env.getLoggedUserId())
+				.roleId(Env.getLoggedRoleId())
+				.formatValues(formatValues)
+				.jsonOptions(jsonOptions)
+				.build();
+
+		return cache.getOrLoad(cacheKey, () -> loadKPIData(kpi, timeRange, formatValues, jsonOptions));
+	}
+
+	private KPIDataResult loadKPIData(
+			@NonNull final KPI kpi,
+			@NonNull final TimeRange timeRange,
+			final boolean formatValues,
+			@NonNull final JSONOptions jsonOptions)
+	{
+		return KPIDataLoader.newInstance(elasticsearchClient, kpi, jsonOptions)
+				.setTimeRange(timeRange)
+				.setFormatValues(formatValues)
+				.retrieveData();
+	}
+
+	@Value
+	@Builder
+	private static class KPIDataCacheKey
+	{
+		int kpiId;
+
+		/** {@link TimeRange#getFromMillis()} divided by the KPI's poll interval */
+		long fromInterval;
+		/** {@link TimeRange#getToMillis()} divided by the KPI's poll interval */
+		long toInterval;
+
+		@NonNull
+		ClientId clientId;
+		@NonNull
+		OrgId orgId;
+		@NonNull
+		UserId userId;
+		@NonNull
+		RoleId roleId;
+
+		boolean formatValues;
+		@NonNull
+		JSONOptions jsonOptions;
+	}
+}
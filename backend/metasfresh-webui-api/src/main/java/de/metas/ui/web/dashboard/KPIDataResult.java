@@ -45,7 +45,7 @@ public class KPIDataResult
 
 	@JsonProperty("itemId")
 	@JsonInclude(JsonInclude.Include.NON_NULL)
-	private Integer itemId;
+	private final Integer itemId;
 
 	@JsonProperty("range")
 	@JsonInclude(JsonInclude.Include.NON_NULL)
@@ -57,20 +57,36 @@ public class KPIDataResult
 	private KPIDataResult(final Builder builder)
 	{
 		took = builder.took;
+		itemId = null;
 
 		range = builder.range;
 		datasets = ImmutableList.copyOf(builder.datasets.values());
 	}
 
+	private KPIDataResult(final KPIDataResult from, final int itemId)
+	{
+		took = from.took;
+		this.itemId = itemId;
+
+		range = from.range;
+		datasets = from.datasets;
+	}
+
 	public List<KPIDataSet> getData()
 	{
 		return datasets;
 	}
 
-	public KPIDataResult setItemId(final int itemId)
+	/**
+	 * @return a copy with the given {@code itemId}. This instance is not changed, because it might be cached and shared between dashboard items.
+	 */
+	public KPIDataResult withItemId(final int itemId)
 	{
-		this.itemId = itemId;
-		return this;
+		if (this.itemId != null && this.itemId == itemId)
+		{
+			return this;
+		}
+		return new KPIDataResult(this, itemId);
 	}
 
 	public static final class Builder
@@ -0,0 +1,49 @@
+package de.metas.ui.web.dashboard;
+
+import de.metas.util.Check;
+
+/*
+ * #%L
+ * metasfresh-webui-api
+ * %%
+ * Copyright (C) 2020 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+/**
+ * Where a {@link KPI}'s data is coming from.
+ */
+public enum KPIDatasourceType
+{
+	/** The KPI's query is an elasticsearch aggregation query (JSON) */
+	ELASTICSEARCH,
+
+	/** The KPI's query is an SQL select, which can run against the metasfresh database, e.g. on a rollup table. */
+	SQL;
+
+	/**
+	 * Elasticsearch queries are JSON objects, so everything which does not start with <code>{</code> is considered to be an SQL query.
+	 */
+	public static KPIDatasourceType ofQuery(final String query)
+	{
+		if (Check.isEmpty(query, true) || query.trim().startsWith("{"))
+		{
+			return ELASTICSEARCH;
+		}
+		return SQL;
+	}
+}
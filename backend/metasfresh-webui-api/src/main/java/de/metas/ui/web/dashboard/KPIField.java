@@ -156,6 +156,11 @@ public class KPIField
 						final BigDecimal bd = BigDecimal.valueOf(((Double)value).doubleValue());
 						return roundToPrecision(bd);
 					}
+					else if (value instanceof BigDecimal)
+					{
+						// e.g. from SQL based KPIs
+						return roundToPrecision((BigDecimal)value);
+					}
 					else if (value instanceof Number)
 					{
 						final BigDecimal bd = BigDecimal.valueOf(((Number)value).intValue());
@@ -5,6 +5,8 @@ import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
 
 import javax.annotation.concurrent.Immutable;
 
@@ -18,6 +20,7 @@ import de.metas.ui.web.exceptions.EntityNotFoundException;
 import de.metas.ui.web.websocket.WebsocketTopicName;
 import de.metas.ui.web.websocket.WebsocketTopicNames;
 import de.metas.util.Check;
+import lombok.NonNull;
 
 /*
  * #%L
@@ -145,6 +148,27 @@ public final class UserDashboard
 		return websocketEndpoint;
 	}
 
+	/**
+	 * @return a copy which contains only the items that match the given {@code filter}, or this instance if all items are matching
+	 */
+	public UserDashboard withItemsMatching(@NonNull final Predicate<UserDashboardItem> filter)
+	{
+		final boolean allItemsMatching = Stream.concat(_targetIndicatorItemsById.values().stream(), _kpiItemsById.values().stream())
+				.allMatch(filter);
+		if (allItemsMatching)
+		{
+			return this;
+		}
+
+		final Builder builder = builder()
+				.setId(id)
+				.setAdClientId(adClientId);
+		Stream.concat(_targetIndicatorItemsById.values().stream(), _kpiItemsById.values().stream())
+				.filter(filter)
+				.forEach(builder::addItem);
+		return builder.build();
+	}
+
 	//
 	//
 	//
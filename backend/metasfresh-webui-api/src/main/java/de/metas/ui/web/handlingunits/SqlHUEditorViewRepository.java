@@ -19,9 +19,11 @@ import javax.annotation.Nullable;
 import org.adempiere.ad.dao.IQueryBuilder;
 import org.adempiere.ad.service.IADReferenceDAO;
 import org.adempiere.ad.trx.api.ITrx;
+import org.adempiere.exceptions.AdempiereException;
 import org.adempiere.exceptions.DBException;
 import org.adempiere.model.InterfaceWrapperHelper;
 import org.adempiere.model.PlainContextAware;
+import org.adempiere.service.ISysConfigBL;
 import org.adempiere.warehouse.LocatorId;
 import org.adempiere.warehouse.WarehouseId;
 import org.adempiere.warehouse.api.IWarehouseDAO;
@@ -114,6 +116,9 @@ public class SqlHUEditorViewRepository implements HUEditorViewRepository
 	private static final AdMessageKey MSG_HU_RESERVED = AdMessageKey.of("de.metas.handlingunit.HU_Reserved");
 
 	private static final Logger logger = LogManager.getLogger(SqlHUEditorViewRepository.class);
+
+	private static final String SYSCONFIG_AddRowIdsToSelection_MaxRowIds = "webui.HUEditor.AddRowIdsToSelection.MaxRowIds";
+	private static final int DEFAULT_AddRowIdsToSelection_MaxRowIds = 1000;
 	private final IHandlingUnitsBL handlingUnitsBL = Services.get(IHandlingUnitsBL.class);
 	private final IHandlingUnitsDAO handlingUnitsDAO = Services.get(IHandlingUnitsDAO.class);
 	private final IProductBL productBL = Services.get(IProductBL.class);
@@ -661,6 +666,16 @@ public class SqlHUEditorViewRepository implements HUEditorViewRepository
 	@Override
 	public ViewRowIdsOrderedSelection addRowIdsToSelection(final ViewRowIdsOrderedSelection selection, final DocumentIdsSelection rowIdsToAdd)
 	{
+		// NOTE: the row IDs are added one by one, so we don't accept an unbounded number of them
+		final int maxRowIdsToAdd = Services.get(ISysConfigBL.class).getIntValue(SYSCONFIG_AddRowIdsToSelection_MaxRowIds, DEFAULT_AddRowIdsToSelection_MaxRowIds);
+		if (!rowIdsToAdd.isAll() && rowIdsToAdd.size() > maxRowIdsToAdd)
+		{
+			throw new AdempiereException("Cannot add more than " + maxRowIdsToAdd + " HUs to the view at once")
+					.appendParametersToMessage()
+					.setParameter("selection", selection)
+					.setParameter("rowIdsToAdd.size", rowIdsToAdd.size());
+		}
+
 		return viewSelectionFactory.addRowIdsToSelection(selection, rowIdsToAdd);
 	}
 
@@ -0,0 +1,257 @@
+package de.metas.ui.web.view;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+import org.compiere.util.DB;
+
+import de.metas.ui.web.base.model.I_T_WEBUI_ViewSelection;
+import de.metas.ui.web.window.datatypes.DocumentId;
+import de.metas.ui.web.window.datatypes.DocumentIdsSelection;
+import de.metas.util.Check;
+import lombok.NonNull;
+
+/*
+ * #%L
+ * metasfresh-webui-api
+ * %%
+ * Copyright (C) 2020 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+/**
+ * Immutable, ordered list of integer row IDs, kept in memory instead of {@link I_T_WEBUI_ViewSelection}.
+ * <p>
+ * To be used in SQL queries, it can be converted to a sub query which provides the same columns as {@link I_T_WEBUI_ViewSelection} (see {@link #toSqlSelectionSource(String, String)}).
+ */
+final class InMemoryViewRowIds
+{
+	public static InMemoryViewRowIds ofArray(@NonNull final int[] rowIds)
+	{
+		return rowIds.length > 0 ? new InMemoryViewRowIds(rowIds) : EMPTY;
+	}
+
+	public static final InMemoryViewRowIds EMPTY = new InMemoryViewRowIds(new int[0]);
+
+	private final int[] rowIds;
+
+	private InMemoryViewRowIds(@NonNull final int[] rowIds)
+	{
+		this.rowIds = rowIds;
+	}
+
+	@Override
+	public String toString()
+	{
+		return "InMemoryViewRowIds[size=" + rowIds.length + "]";
+	}
+
+	public int size()
+	{
+		return rowIds.length;
+	}
+
+	private int indexOf(final int rowId)
+	{
+		for (int i = 0; i < rowIds.length; i++)
+		{
+			if (rowIds[i] == rowId)
+			{
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	public boolean containsAny(@NonNull final DocumentIdsSelection rowIdsToCheck)
+	{
+		if (rowIdsToCheck.isEmpty() || rowIds.length == 0)
+		{
+			return false;
+		}
+		else if (rowIdsToCheck.isAll())
+		{
+			return true;
+		}
+
+		final Set<Integer> intRowIdsToCheck = toIntSet(rowIdsToCheck.toSet());
+		for (final int rowId : rowIds)
+		{
+			if (intRowIdsToCheck.contains(rowId))
+			{
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * @return row IDs with given <code>rowIdsToAdd</code> appended to the end, if they were not already present.
+	 */
+	public InMemoryViewRowIds addingRowIds(@NonNull final Collection<DocumentId> rowIdsToAdd)
+	{
+		final LinkedHashSet<Integer> newRowIds = new LinkedHashSet<>();
+		for (final DocumentId rowIdToAdd : rowIdsToAdd)
+		{
+			final int rowId = rowIdToAdd.toInt();
+			if (indexOf(rowId) < 0)
+			{
+				newRowIds.add(rowId);
+			}
+		}
+		if (newRowIds.isEmpty())
+		{
+			return this;
+		}
+
+		final int[] rowIdsNew = Arrays.copyOf(rowIds, rowIds.length + newRowIds.size());
+		int index = rowIds.length;
+		for (final int rowId : newRowIds)
+		{
+			rowIdsNew[index++] = rowId;
+		}
+		return ofArray(rowIdsNew);
+	}
+
+	public InMemoryViewRowIds removingRowIds(@NonNull final DocumentIdsSelection rowIdsToRemove)
+	{
+		if (rowIdsToRemove.isEmpty())
+		{
+			return this;
+		}
+		else if (rowIdsToRemove.isAll())
+		{
+			return EMPTY;
+		}
+
+		final Set<Integer> intRowIdsToRemove = toIntSet(rowIdsToRemove.toSet());
+		final int[] rowIdsNew = Arrays.stream(rowIds)
+				.filter(rowId -> !intRowIdsToRemove.contains(rowId))
+				.toArray();
+		return rowIdsNew.length != rowIds.length
+				? ofArray(rowIdsNew)
+				: this;
+	}
+
+	/**
+	 * @return only those of our row IDs which are also contained in <code>rowIdsToRetain</code>, preserving the order
+	 */
+	public InMemoryViewRowIds retainingRowIds(@NonNull final DocumentIdsSelection rowIdsToRetain)
+	{
+		if (rowIdsToRetain.isAll())
+		{
+			return this;
+		}
+		else if (rowIdsToRetain.isEmpty())
+		{
+			return EMPTY;
+		}
+
+		final Set<Integer> intRowIdsToRetain = toIntSet(rowIdsToRetain.toSet());
+		final int[] rowIdsNew = Arrays.stream(rowIds)
+				.filter(intRowIdsToRetain::contains)
+				.toArray();
+		return rowIdsNew.length != rowIds.length
+				? ofArray(rowIdsNew)
+				: this;
+	}
+
+	private static Set<Integer> toIntSet(final Collection<DocumentId> rowIds)
+	{
+		final HashSet<Integer> intRowIds = new HashSet<>(rowIds.size());
+		for (final DocumentId rowId : rowIds)
+		{
+			if (rowId.isInt())
+			{
+				intRowIds.add(rowId.toInt());
+			}
+		}
+		return intRowIds;
+	}
+
+	/**
+	 * @return sub query providing the {@link I_T_WEBUI_ViewSelection} rows for all our row IDs
+	 */
+	public String toSqlSelectionSource(
+			@NonNull final String selectionId,
+			@NonNull final String webuiSelectionColumnName)
+	{
+		return toSqlSelectionSource(selectionId, webuiSelectionColumnName, 0, rowIds.length);
+	}
+
+	/**
+	 * @return sub query providing the {@link I_T_WEBUI_ViewSelection} rows of the given page only, but having the same {@link I_T_WEBUI_ViewSelection#COLUMNNAME_Line} as if it were the whole selection
+	 */
+	public String toSqlSelectionSourceForPage(
+			@NonNull final String selectionId,
+			@NonNull final String webuiSelectionColumnName,
+			final int firstRowZeroBased,
+			final int pageLength)
+	{
+		Check.assume(firstRowZeroBased >= 0, "firstRow >= 0 but it was {}", firstRowZeroBased);
+		Check.assume(pageLength > 0, "pageLength > 0 but it was {}", pageLength);
+
+		final int fromIndex = Math.min(firstRowZeroBased, rowIds.length);
+		final int toIndex = (int)Math.min((long)firstRowZeroBased + pageLength, rowIds.length);
+		return toSqlSelectionSource(selectionId, webuiSelectionColumnName, fromIndex, toIndex);
+	}
+
+	/**
+	 * @return sub query providing the {@link I_T_WEBUI_ViewSelection} row for given row ID, or no rows if we don't contain it
+	 */
+	public String toSqlSelectionSourceForRowId(
+			@NonNull final String selectionId,
+			@NonNull final String webuiSelectionColumnName,
+			@NonNull final DocumentId rowId)
+	{
+		final int index = rowId.isInt() ? indexOf(rowId.toInt()) : -1;
+		return index >= 0
+				? toSqlSelectionSource(selectionId, webuiSelectionColumnName, index, index + 1)
+				: toSqlSelectionSource(selectionId, webuiSelectionColumnName, 0, 0);
+	}
+
+	/**
+	 * NOTE: the row IDs are embedded as array literal; that's safe because they are integers.
+	 */
+	private String toSqlSelectionSource(
+			final String selectionId,
+			final String webuiSelectionColumnName,
+			final int fromIndex,
+			final int toIndex)
+	{
+		final StringBuilder sqlRowIdsArray = new StringBuilder(Math.max(16, (toIndex - fromIndex) * 8));
+		sqlRowIdsArray.append("'{");
+		for (int i = fromIndex; i < toIndex; i++)
+		{
+			if (i > fromIndex)
+			{
+				sqlRowIdsArray.append(",");
+			}
+			sqlRowIdsArray.append(rowIds[i]);
+		}
+		sqlRowIdsArray.append("}'::numeric[]");
+
+		return "(SELECT "
+				+ DB.TO_STRING(selectionId) + "::varchar AS " + I_T_WEBUI_ViewSelection.COLUMNNAME_UUID
+				+ ", x." + I_T_WEBUI_ViewSelection.COLUMNNAME_Line + " + " + fromIndex + " AS " + I_T_WEBUI_ViewSelection.COLUMNNAME_Line
+				+ ", x." + webuiSelectionColumnName
+				+ " FROM unnest(" + sqlRowIdsArray + ") WITH ORDINALITY AS x(" + webuiSelectionColumnName + ", " + I_T_WEBUI_ViewSelection.COLUMNNAME_Line + "))";
+	}
+}
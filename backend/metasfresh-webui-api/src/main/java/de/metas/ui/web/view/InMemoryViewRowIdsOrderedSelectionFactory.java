@@ -0,0 +1,472 @@
+package de.metas.ui.web.view;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.annotation.Nullable;
+
+import org.adempiere.ad.trx.api.ITrx;
+import org.adempiere.exceptions.DBException;
+import org.adempiere.service.ISysConfigBL;
+import org.compiere.util.DB;
+import org.slf4j.Logger;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Stopwatch;
+
+import de.metas.logging.LogManager;
+import de.metas.ui.web.base.model.I_T_WEBUI_ViewSelection;
+import de.metas.ui.web.document.filter.DocumentFilterList;
+import de.metas.ui.web.document.filter.sql.SqlDocumentFilterConverterContext;
+import de.metas.ui.web.exceptions.EntityNotFoundException;
+import de.metas.ui.web.view.descriptor.SqlAndParams;
+import de.metas.ui.web.view.descriptor.SqlViewBinding;
+import de.metas.ui.web.view.descriptor.SqlViewKeyColumnNamesMap;
+import de.metas.ui.web.view.descriptor.SqlViewRowsWhereClause;
+import de.metas.ui.web.view.descriptor.SqlViewSelectionQueryBuilder;
+import de.metas.ui.web.window.datatypes.DocumentId;
+import de.metas.ui.web.window.datatypes.DocumentIdsSelection;
+import de.metas.ui.web.window.datatypes.WindowId;
+import de.metas.ui.web.window.model.DocumentQueryOrderByList;
+import de.metas.util.Services;
+import lombok.NonNull;
+
+/*
+ * #%L
+ * metasfresh-webui-api
+ * %%
+ * Copyright (C) 2020 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+/**
+ * Keeps the ordered row IDs of small selections in memory (see {@link InMemoryViewRowIds}) instead of inserting them into {@link I_T_WEBUI_ViewSelection}.
+ * <p>
+ * Selections having more rows than configured by sysconfig {@value #SYSCONFIG_MaxSize} are delegated to {@link SqlViewRowIdsOrderedSelectionFactory}.
+ * Because the row IDs are embedded into the SQL queries, that size is kept small.
+ * <p>
+ * Selection IDs which are neither in memory nor were delegated to the database (e.g. because the selection was created on another node, before a restart or was already deleted)
+ * are not silently treated as empty selections, but an {@link EntityNotFoundException} is thrown.
+ * Views which are not eligible (see {@link #isEligible(SqlViewBinding)}) are not using this factory at all.
+ * The SQL queries which would join {@link I_T_WEBUI_ViewSelection} are using the sub query provided by {@link #getSqlSelectionSourceOrNull(String)} and its siblings instead.
+ */
+final class InMemoryViewRowIdsOrderedSelectionFactory implements ViewRowIdsOrderedSelectionFactory
+{
+	/**
+	 * @return true if given view's selections can be kept in memory, i.e. if the view has a single integer key and no grouping
+	 */
+	public static boolean isEligible(@NonNull final SqlViewBinding viewBinding)
+	{
+		if (viewBinding.hasGroupingFields())
+		{
+			return false;
+		}
+
+		final SqlViewKeyColumnNamesMap keyColumnNamesMap = viewBinding.getSqlViewKeyColumnNamesMap();
+		return keyColumnNamesMap.isSingleKey()
+				&& I_T_WEBUI_ViewSelection.COLUMNNAME_IntKeys.contains(keyColumnNamesMap.getSingleWebuiSelectionColumnName());
+	}
+
+	public static InMemoryViewRowIdsOrderedSelectionFactory of(@NonNull final SqlViewBinding viewBinding)
+	{
+		return new InMemoryViewRowIdsOrderedSelectionFactory(viewBinding);
+	}
+
+	private static final Logger logger = LogManager.getLogger(InMemoryViewRowIdsOrderedSelectionFactory.class);
+
+	private static final String SYSCONFIG_MaxSize = "webui.view.InMemorySelection.MaxSize";
+	private static final int DEFAULT_MaxSize = 1000;
+
+	private final SqlViewBinding viewBinding;
+	private final String webuiSelectionColumnName;
+	private final SqlViewRowIdsOrderedSelectionFactory sqlFactory;
+
+	private final ConcurrentHashMap<String, InMemoryViewRowIds> rowIdsBySelectionId = new ConcurrentHashMap<>();
+	/** IDs of the selections which were created by {@link #sqlFactory} */
+	private final Set<String> sqlSelectionIds = ConcurrentHashMap.newKeySet();
+
+	private InMemoryViewRowIdsOrderedSelectionFactory(@NonNull final SqlViewBinding viewBinding)
+	{
+		if (!isEligible(viewBinding))
+		{
+			throw new IllegalArgumentException("View binding is not eligible for in-memory selections: " + viewBinding);
+		}
+
+		this.viewBinding = viewBinding;
+		this.webuiSelectionColumnName = viewBinding.getSqlViewKeyColumnNamesMap().getSingleWebuiSelectionColumnName();
+		this.sqlFactory = SqlViewRowIdsOrderedSelectionFactory.of(viewBinding);
+	}
+
+	@VisibleForTesting
+	void putInMemorySelection(@NonNull final String selectionId, @NonNull final InMemoryViewRowIds rowIds)
+	{
+		rowIdsBySelectionId.put(selectionId, rowIds);
+	}
+
+	private SqlViewSelectionQueryBuilder newSqlViewSelectionQueryBuilder()
+	{
+		return SqlViewSelectionQueryBuilder.newInstance(viewBinding);
+	}
+
+	private static int getMaxSize()
+	{
+		return Services.get(ISysConfigBL.class).getIntValue(SYSCONFIG_MaxSize, DEFAULT_MaxSize);
+	}
+
+	/**
+	 * @return in-memory row IDs, or null if the selection was created in database
+	 * @throws EntityNotFoundException if the selection is not known at all
+	 */
+	@Nullable
+	private InMemoryViewRowIds getRowIdsOrNull(@NonNull final String selectionId)
+	{
+		final InMemoryViewRowIds rowIds = rowIdsBySelectionId.get(selectionId);
+		if (rowIds == null && !sqlSelectionIds.contains(selectionId))
+		{
+			throw new EntityNotFoundException("No selection found for " + selectionId + ". It might have expired; please reopen the view.");
+		}
+		return rowIds;
+	}
+
+	/**
+	 * @return sub query to be used instead of {@link I_T_WEBUI_ViewSelection}, or null if the selection is not kept in memory
+	 */
+	@Nullable
+	public String getSqlSelectionSourceOrNull(@NonNull final String selectionId)
+	{
+		final InMemoryViewRowIds rowIds = getRowIdsOrNull(selectionId);
+		return rowIds != null
+				? rowIds.toSqlSelectionSource(selectionId, webuiSelectionColumnName)
+				: null;
+	}
+
+	/**
+	 * Same as {@link #getSqlSelectionSourceOrNull(String)} but providing only the rows of the given page.
+	 */
+	@Nullable
+	public String getSqlSelectionSourceForPageOrNull(
+			@NonNull final String selectionId,
+			final int firstRowZeroBased,
+			final int pageLength)
+	{
+		final InMemoryViewRowIds rowIds = getRowIdsOrNull(selectionId);
+		return rowIds != null
+				? rowIds.toSqlSelectionSourceForPage(selectionId, webuiSelectionColumnName, firstRowZeroBased, pageLength)
+				: null;
+	}
+
+	/**
+	 * Same as {@link #getSqlSelectionSourceOrNull(String)} but providing only the row with given ID.
+	 */
+	@Nullable
+	public String getSqlSelectionSourceForRowIdOrNull(
+			@NonNull final String selectionId,
+			@NonNull final DocumentId rowId)
+	{
+		final InMemoryViewRowIds rowIds = getRowIdsOrNull(selectionId);
+		return rowIds != null
+				? rowIds.toSqlSelectionSourceForRowId(selectionId, webuiSelectionColumnName, rowId)
+				: null;
+	}
+
+	@Override
+	public SqlViewRowsWhereClause getSqlWhereClause(
+			@NonNull final ViewId viewId,
+			@NonNull final DocumentIdsSelection rowIds)
+	{
+		final String selectionId = viewId.getViewId();
+		final InMemoryViewRowIds selectionRowIds = getRowIdsOrNull(selectionId);
+		if (selectionRowIds == null)
+		{
+			return sqlFactory.getSqlWhereClause(viewId, rowIds);
+		}
+
+		// NOTE: embed only the row IDs we were asked for, in case the caller is not interested in the whole selection
+		final String sqlSelectionSource = selectionRowIds.retainingRowIds(rowIds).toSqlSelectionSource(selectionId, webuiSelectionColumnName);
+		return newSqlViewSelectionQueryBuilder().buildSqlWhereClause(selectionId, sqlSelectionSource, rowIds);
+	}
+
+	@Override
+	public ViewRowIdsOrderedSelection createOrderedSelection(
+			final ViewEvaluationCtx viewEvalCtx,
+			final ViewId viewId,
+			final DocumentFilterList filters,
+			final DocumentQueryOrderByList orderBys,
+			final boolean applySecurityRestrictions,
+			final SqlDocumentFilterConverterContext context)
+	{
+		final int maxSize = getMaxSize();
+		if (maxSize <= 0)
+		{
+			return createOrderedSelectionInDatabase(viewEvalCtx, viewId, filters, orderBys, applySecurityRestrictions, context);
+		}
+
+		final int queryLimit = sqlFactory.extractQueryLimit(viewEvalCtx);
+		final boolean fitsInMemoryByQueryLimit = queryLimit > 0 && queryLimit <= maxSize;
+
+		//
+		// Decide up front if the selection is too big, by counting up to one row more than we can keep in memory.
+		// Unlike fetching the ordered row IDs, that count does not need to sort all rows, so large views don't pay for a second full query.
+		final Stopwatch stopwatch = Stopwatch.createStarted();
+		if (!fitsInMemoryByQueryLimit)
+		{
+			final SqlAndParams sqlCount = newSqlViewSelectionQueryBuilder()
+					.applySecurityRestrictions(applySecurityRestrictions)
+					.buildSqlCountRowsUpTo(viewEvalCtx, filters, maxSize + 1, context);
+			final int count = DB.getSQLValueEx(ITrx.TRXNAME_ThreadInherited, sqlCount.getSql(), sqlCount.getSqlParams());
+			if (count > maxSize)
+			{
+				logger.trace("Selection {} has more than {} rows. Creating it in database", viewId, maxSize);
+				return createOrderedSelectionInDatabase(viewEvalCtx, viewId, filters, orderBys, applySecurityRestrictions, context);
+			}
+		}
+
+		//
+		// Still fetch one row more than we can keep in memory, in case rows were added in the meantime
+		final int limit = fitsInMemoryByQueryLimit ? queryLimit : maxSize + 1;
+		final SqlAndParams sqlSelectRowIds = newSqlViewSelectionQueryBuilder()
+				.applySecurityRestrictions(applySecurityRestrictions)
+				.buildSqlSelectRowIds(viewEvalCtx, viewId, filters, orderBys, limit, context);
+
+		final int[] rowIds = retrieveRowIds(sqlSelectRowIds);
+		if (rowIds.length > maxSize)
+		{
+			logger.trace("Selection {} grew to more than {} rows. Creating it in database", viewId, maxSize);
+			return createOrderedSelectionInDatabase(viewEvalCtx, viewId, filters, orderBys, applySecurityRestrictions, context);
+		}
+
+		rowIdsBySelectionId.put(viewId.getViewId(), InMemoryViewRowIds.ofArray(rowIds));
+		logger.trace("Created in-memory selection {}, rowsCount={}, duration={}", viewId, rowIds.length, stopwatch);
+
+		return ViewRowIdsOrderedSelection.builder()
+				.viewId(viewId)
+				.size(rowIds.length)
+				.orderBys(orderBys)
+				.queryLimit(queryLimit)
+				.build();
+	}
+
+	private ViewRowIdsOrderedSelection createOrderedSelectionInDatabase(
+			final ViewEvaluationCtx viewEvalCtx,
+			final ViewId viewId,
+			final DocumentFilterList filters,
+			final DocumentQueryOrderByList orderBys,
+			final boolean applySecurityRestrictions,
+			final SqlDocumentFilterConverterContext context)
+	{
+		sqlSelectionIds.add(viewId.getViewId());
+		return sqlFactory.createOrderedSelection(viewEvalCtx, viewId, filters, orderBys, applySecurityRestrictions, context);
+	}
+
+	@Override
+	public ViewRowIdsOrderedSelection createOrderedSelectionFromSelection(
+			@NonNull final ViewEvaluationCtx viewEvalCtx,
+			@NonNull final ViewRowIdsOrderedSelection fromSelection,
+			@NonNull final DocumentFilterList filters,
+			@NonNull final DocumentQueryOrderByList orderBys,
+			@NonNull final SqlDocumentFilterConverterContext filterConverterCtx)
+	{
+		final String fromSelectionId = fromSelection.getSelectionId();
+		final String sqlFromSelectionSource = getSqlSelectionSourceOrNull(fromSelectionId);
+		if (sqlFromSelectionSource == null)
+		{
+			final ViewRowIdsOrderedSelection newSelection = sqlFactory.createOrderedSelectionFromSelection(viewEvalCtx, fromSelection, filters, orderBys, filterConverterCtx);
+			sqlSelectionIds.add(newSelection.getSelectionId());
+			return newSelection;
+		}
+
+		final WindowId windowId = fromSelection.getWindowId();
+		final ViewId newViewId = ViewId.random(windowId);
+
+		final SqlAndParams sqlSelectRowIds = newSqlViewSelectionQueryBuilder()
+				.buildSqlSelectRowIdsFromSelection(viewEvalCtx, newViewId, fromSelectionId, sqlFromSelectionSource, filters, orderBys, filterConverterCtx);
+		final int[] rowIds = retrieveRowIds(sqlSelectRowIds);
+		rowIdsBySelectionId.put(newViewId.getViewId(), InMemoryViewRowIds.ofArray(rowIds));
+
+		return ViewRowIdsOrderedSelection.builder()
+				.viewId(newViewId)
+				.size(rowIds.length)
+				.orderBys(orderBys)
+				.queryLimit(fromSelection.getQueryLimit())
+				.build();
+	}
+
+	private static int[] retrieveRowIds(@NonNull final SqlAndParams sqlAndParams)
+	{
+		PreparedStatement pstmt = null;
+		ResultSet rs = null;
+		try
+		{
+			pstmt = DB.prepareStatement(sqlAndParams.getSql(), ITrx.TRXNAME_ThreadInherited);
+			DB.setParameters(pstmt, sqlAndParams.getSqlParams());
+			rs = pstmt.executeQuery();
+
+			int[] rowIds = new int[64];
+			int size = 0;
+			while (rs.next())
+			{
+				if (size >= rowIds.length)
+				{
+					rowIds = Arrays.copyOf(rowIds, rowIds.length * 2);
+				}
+				rowIds[size++] = rs.getInt(1);
+			}
+
+			return Arrays.copyOf(rowIds, size);
+		}
+		catch (final SQLException ex)
+		{
+			throw new DBException(ex, sqlAndParams.getSql(), sqlAndParams.getSqlParams());
+		}
+		finally
+		{
+			DB.close(rs, pstmt);
+		}
+	}
+
+	@Override
+	public ViewRowIdsOrderedSelection addRowIdsToSelection(final ViewRowIdsOrderedSelection selection, final DocumentIdsSelection rowIds)
+	{
+		final String selectionId = selection.getSelectionId();
+		if (getRowIdsOrNull(selectionId) == null)
+		{
+			return sqlFactory.addRowIdsToSelection(selection, rowIds);
+		}
+
+		if (rowIds.isEmpty())
+		{
+			// nothing changed
+			return selection;
+		}
+		else if (rowIds.isAll())
+		{
+			throw new IllegalArgumentException("Cannot add ALL to selection");
+		}
+
+		//
+		// Keep the selection in memory only as long as it's not exceeding the max size, because all its row IDs are embedded into the SQL queries.
+		// Bigger selections are moved to database.
+		final int maxSize = getMaxSize();
+		final InMemoryViewRowIds selectionRowIds = rowIdsBySelectionId.computeIfPresent(selectionId, (k, previousRowIds) -> {
+			final InMemoryViewRowIds newRowIds = previousRowIds.addingRowIds(rowIds.toSet());
+			if (newRowIds.size() > maxSize)
+			{
+				moveToDatabase(selectionId, previousRowIds);
+				return null; // forget it
+			}
+			return newRowIds;
+		});
+		if (selectionRowIds == null)
+		{
+			return sqlSelectionIds.contains(selectionId)
+					? sqlFactory.addRowIdsToSelection(selection, rowIds)
+					: selection;
+		}
+
+		return selection.withSize(selectionRowIds.size());
+	}
+
+	/**
+	 * Inserts the given in-memory row IDs into {@link I_T_WEBUI_ViewSelection}, keeping their order. From now on, the selection is handled by {@link #sqlFactory}.
+	 */
+	private void moveToDatabase(@NonNull final String selectionId, @NonNull final InMemoryViewRowIds rowIds)
+	{
+		final String sqlSelectionSource = rowIds.toSqlSelectionSource(selectionId, webuiSelectionColumnName);
+		final String sql = "INSERT INTO " + I_T_WEBUI_ViewSelection.Table_Name + " ("
+				+ " " + I_T_WEBUI_ViewSelection.COLUMNNAME_UUID
+				+ ", " + I_T_WEBUI_ViewSelection.COLUMNNAME_Line
+				+ ", " + webuiSelectionColumnName
+				+ ")"
+				+ " SELECT sel." + I_T_WEBUI_ViewSelection.COLUMNNAME_UUID
+				+ ", sel." + I_T_WEBUI_ViewSelection.COLUMNNAME_Line
+				+ ", sel." + webuiSelectionColumnName
+				+ " FROM " + sqlSelectionSource + " sel";
+		DB.executeUpdateEx(sql, ITrx.TRXNAME_ThreadInherited);
+
+		sqlSelectionIds.add(selectionId);
+		logger.trace("Moved in-memory selection {} to database, rowsCount={}", selectionId, rowIds.size());
+	}
+
+	@Override
+	public ViewRowIdsOrderedSelection removeRowIdsFromSelection(final ViewRowIdsOrderedSelection selection, final DocumentIdsSelection rowIds)
+	{
+		final String selectionId = selection.getSelectionId();
+		if (getRowIdsOrNull(selectionId) == null)
+		{
+			return sqlFactory.removeRowIdsFromSelection(selection, rowIds);
+		}
+
+		if (rowIds.isEmpty())
+		{
+			// nothing changed
+			return selection;
+		}
+
+		final InMemoryViewRowIds selectionRowIds = rowIdsBySelectionId.computeIfPresent(selectionId, (k, previousRowIds) -> previousRowIds.removingRowIds(rowIds));
+		return selectionRowIds != null
+				? selection.withSize(selectionRowIds.size())
+				: selection;
+	}
+
+	@Override
+	public boolean containsAnyOfRowIds(final ViewRowIdsOrderedSelection selection, final DocumentIdsSelection rowIds)
+	{
+		final InMemoryViewRowIds selectionRowIds = getRowIdsOrNull(selection.getSelectionId());
+		return selectionRowIds != null
+				? selectionRowIds.containsAny(rowIds)
+				: sqlFactory.containsAnyOfRowIds(selection, rowIds);
+	}
+
+	@Override
+	public void deleteSelections(@NonNull final Set<String> selectionIds)
+	{
+		final Set<String> sqlSelectionIds = forgetInMemorySelections(selectionIds);
+		sqlFactory.deleteSelections(sqlSelectionIds);
+	}
+
+	@Override
+	public void scheduleDeleteSelections(@NonNull final Set<String> selectionIds)
+	{
+		final Set<String> sqlSelectionIds = forgetInMemorySelections(selectionIds);
+		if (!sqlSelectionIds.isEmpty())
+		{
+			sqlFactory.scheduleDeleteSelections(sqlSelectionIds);
+		}
+	}
+
+	/**
+	 * @return the selection IDs which were not in memory, i.e. which shall be deleted from database
+	 */
+	private Set<String> forgetInMemorySelections(final Set<String> selectionIds)
+	{
+		final HashSet<String> databaseSelectionIds = new HashSet<>(selectionIds.size());
+		for (final String selectionId : selectionIds)
+		{
+			if (rowIdsBySelectionId.remove(selectionId) == null)
+			{
+				databaseSelectionIds.add(selectionId);
+				sqlSelectionIds.remove(selectionId);
+			}
+		}
+		return databaseSelectionIds;
+	}
+}
@@ -10,6 +10,8 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
+import javax.annotation.Nullable;
+
 import org.adempiere.ad.dao.IQueryBL;
 import org.adempiere.ad.trx.api.ITrx;
 import org.adempiere.exceptions.AdempiereException;
@@ -87,6 +89,8 @@ class SqlViewDataRepository implements IViewDataRepository
 	private final ImmutableMap<String, DocumentFieldWidgetType> widgetTypesByFieldName;
 	private final SqlViewSelectData sqlViewSelect;
 	private final ViewRowIdsOrderedSelectionFactory viewRowIdsOrderedSelectionFactory;
+	@Nullable
+	private final InMemoryViewRowIdsOrderedSelectionFactory inMemoryRowIdsOrderedSelectionFactory;
 	private final DocumentFilterDescriptorsProvider viewFilterDescriptors;
 	private final DocumentQueryOrderByList defaultOrderBys;
 
@@ -104,7 +108,16 @@ class SqlViewDataRepository implements IViewDataRepository
 		widgetTypesByFieldName = sqlBindings.getWidgetTypesByFieldName();
 		sqlViewSelect = sqlBindings.getSqlViewSelect();
 		viewFilterDescriptors = sqlBindings.getViewFilterDescriptors();
-		viewRowIdsOrderedSelectionFactory = SqlViewRowIdsOrderedSelectionFactory.of(sqlBindings);
+		if (InMemoryViewRowIdsOrderedSelectionFactory.isEligible(sqlBindings))
+		{
+			inMemoryRowIdsOrderedSelectionFactory = InMemoryViewRowIdsOrderedSelectionFactory.of(sqlBindings);
+			viewRowIdsOrderedSelectionFactory = inMemoryRowIdsOrderedSelectionFactory;
+		}
+		else
+		{
+			inMemoryRowIdsOrderedSelectionFactory = null;
+			viewRowIdsOrderedSelectionFactory = SqlViewRowIdsOrderedSelectionFactory.of(sqlBindings);
+		}
 		defaultOrderBys = sqlBindings.getDefaultOrderBys();
 
 		this.hasIncludedRows = sqlBindings.hasGroupingFields();
@@ -211,6 +224,9 @@ class SqlViewDataRepository implements IViewDataRepository
 		final SqlAndParams sqlAndParams = sqlViewSelect.selectById()
 				.viewEvalCtx(viewEvalCtx)
 				.viewId(viewId)
+				.sqlSelectionSource(inMemoryRowIdsOrderedSelectionFactory != null
+						? inMemoryRowIdsOrderedSelectionFactory.getSqlSelectionSourceForRowIdOrNull(viewId.getViewId(), rowId)
+						: null)
 				.rowId(rowId)
 				.build();
 
@@ -470,6 +486,17 @@ class SqlViewDataRepository implements IViewDataRepository
 		return viewFilterDescriptors;
 	}
 
+	/**
+	 * @return the in-memory rows of given page, to be used instead of T_WEBUI_ViewSelection; or null if the selection is not kept in memory
+	 */
+	@Nullable
+	private String getSqlSelectionSourceForPageOrNull(final ViewId viewId, final int firstRow, final int pageLength)
+	{
+		return inMemoryRowIdsOrderedSelectionFactory != null
+				? inMemoryRowIdsOrderedSelectionFactory.getSqlSelectionSourceForPageOrNull(viewId.getViewId(), firstRow, pageLength)
+				: null;
+	}
+
 	@Override
 	public List<IViewRow> retrievePage(final ViewEvaluationCtx viewEvalCtx,
 			final ViewRowIdsOrderedSelection orderedSelection,
@@ -483,6 +510,7 @@ class SqlViewDataRepository implements IViewDataRepository
 		final SqlAndParams sqlAndParams = sqlViewSelect.selectByPage()
 				.viewEvalCtx(viewEvalCtx)
 				.viewId(viewId)
+				.sqlSelectionSource(getSqlSelectionSourceForPageOrNull(viewId, firstRow, pageLength))
 				.firstRowZeroBased(firstRow)
 				.pageLength(pageLength)
 				.build();
@@ -523,6 +551,7 @@ class SqlViewDataRepository implements IViewDataRepository
 		final SqlAndParams sqlAndParams = sqlViewSelect.selectRowIdsByPage()
 				.viewEvalCtx(viewEvalCtx)
 				.viewId(viewId)
+				.sqlSelectionSource(getSqlSelectionSourceForPageOrNull(viewId, firstRow, pageLength))
 				.firstRowZeroBased(firstRow)
 				.pageLength(pageLength)
 				.build();
@@ -707,7 +736,10 @@ class SqlViewDataRepository implements IViewDataRepository
 			final int limit)
 	{
 		final SqlViewRowFieldLoader fieldLoader = rowFieldLoaders.get(fieldName);
-		final SqlAndParams sql = sqlViewSelect.selectFieldValues(viewEvalCtx, selectionId, fieldName, limit);
+		final String sqlSelectionSource = inMemoryRowIdsOrderedSelectionFactory != null
+				? inMemoryRowIdsOrderedSelectionFactory.getSqlSelectionSourceOrNull(selectionId)
+				: null;
+		final SqlAndParams sql = sqlViewSelect.selectFieldValues(viewEvalCtx, selectionId, sqlSelectionSource, fieldName, limit);
 
 		final String adLanguage = viewEvalCtx.getAdLanguage();
 		return DB.retrieveRows(
@@ -12,6 +12,7 @@ import org.adempiere.ad.expression.api.IStringExpression;
 import org.adempiere.ad.expression.api.impl.CompositeStringExpression;
 import org.adempiere.exceptions.AdempiereException;
 
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Joiner;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
@@ -67,6 +68,14 @@ public class SqlViewSelectData
 	public static final String COLUMNNAME_Paging_Parent_Prefix = COLUMNNAME_Paging_Prefix + "parent_";
 	public static final String COLUMNNAME_IsRecordMissing = COLUMNNAME_Paging_Prefix + "IsRecordMissing";
 
+	/**
+	 * Placeholder for the table or sub query which is providing the {@link I_T_WEBUI_ViewSelection} rows.
+	 * It's part of the SQL templates and it's resolved by {@link #resolveSelectionSource(String, String)} after the template was evaluated.
+	 */
+	@VisibleForTesting
+	static final String SQL_SelectionSource_Placeholder = "{{SelectionSource}}";
+	private static final String SQL_FROM_ViewSelection = "FROM " + SQL_SelectionSource_Placeholder + " sel";
+
 	private final String sqlTableName;
 	private final SqlViewKeyColumnNamesMap keyColumnNamesMap;
 	private final ImmutableSet<String> displayFieldNames;
@@ -212,7 +221,7 @@ public class SqlViewSelectData
 				.append("\n , sel." + I_T_WEBUI_ViewSelection.COLUMNNAME_UUID + " AS " + COLUMNNAME_Paging_UUID)
 				.append("\n , ").append(keyColumnNamesMap.getWebuiSelectionColumnNamesCommaSeparated(columnName -> "sel." + columnName + " AS " + COLUMNNAME_Paging_Prefix + columnName))
 				.append("\n , " + keyColumnNamesMap.getSqlIsNullExpression(sqlTableName) + " AS " + COLUMNNAME_IsRecordMissing)
-				.append("\n   FROM " + I_T_WEBUI_ViewSelection.Table_Name + " sel")
+				.append("\n   " + SQL_FROM_ViewSelection)
 				.append("\n   LEFT OUTER JOIN " + sqlTableName + " ON (" + keyColumnNamesMap.getSqlJoinCondition(sqlTableName, "sel") + ")")
 				// Filter by UUID. Keep this closer to the source table, see https://github.com/metasfresh/metasfresh-webui-api/issues/437
 				.append("\n   WHERE sel." + I_T_WEBUI_ViewSelection.COLUMNNAME_UUID + "=?")
@@ -380,6 +389,7 @@ public class SqlViewSelectData
 	private SqlAndParams selectByIdPageBuilder(
 			@NonNull final ViewEvaluationCtx viewEvalCtx,
 			@NonNull final ViewId viewId,
+			@Nullable final String sqlSelectionSource,
 			final int firstRowZeroBased,
 			final int pageLength)
 	{
@@ -391,7 +401,7 @@ public class SqlViewSelectData
 		final int lastSeqNo = firstRowZeroBased + pageLength;
 
 		final IStringExpression sqlSelectByPage = getSqlSelectByPage();
-		final String sql = sqlSelectByPage.evaluate(viewEvalCtx.toEvaluatee(), OnVariableNotFound.Fail);
+		final String sql = resolveSelectionSource(sqlSelectByPage.evaluate(viewEvalCtx.toEvaluatee(), OnVariableNotFound.Fail), sqlSelectionSource);
 		return SqlAndParams.of(sql, viewSelectionId, firstSeqNo, lastSeqNo);
 	}
 
@@ -399,6 +409,7 @@ public class SqlViewSelectData
 	private SqlAndParams selectRowIdsByIdPageBuilder(
 			@NonNull final ViewEvaluationCtx viewEvalCtx,
 			@NonNull final ViewId viewId,
+			@Nullable final String sqlSelectionSource,
 			final int firstRowZeroBased,
 			final int pageLength)
 	{
@@ -410,7 +421,7 @@ public class SqlViewSelectData
 		final int lastSeqNo = firstRowZeroBased + pageLength;
 
 		final IStringExpression sqlSelectRowIdsByPage = getSqlSelectRowIdsByPage();
-		final String sql = sqlSelectRowIdsByPage.evaluate(viewEvalCtx.toEvaluatee(), OnVariableNotFound.Fail);
+		final String sql = resolveSelectionSource(sqlSelectRowIdsByPage.evaluate(viewEvalCtx.toEvaluatee(), OnVariableNotFound.Fail), sqlSelectionSource);
 		return SqlAndParams.of(sql, viewSelectionId, firstSeqNo, lastSeqNo);
 	}
 
@@ -418,9 +429,10 @@ public class SqlViewSelectData
 	private SqlAndParams selectByIdBuilder(
 			@NonNull final ViewEvaluationCtx viewEvalCtx,
 			@NonNull final ViewId viewId,
+			@Nullable final String sqlSelectionSource,
 			@NonNull final DocumentId rowId)
 	{
-		final String sql = getSqlSelectById().evaluate(viewEvalCtx.toEvaluatee(), OnVariableNotFound.Fail);
+		final String sql = resolveSelectionSource(getSqlSelectById().evaluate(viewEvalCtx.toEvaluatee(), OnVariableNotFound.Fail), sqlSelectionSource);
 
 		final ArrayList<Object> sqlParams = new ArrayList<>();
 		sqlParams.add(viewId.getViewId());
@@ -458,6 +470,16 @@ public class SqlViewSelectData
 			@NonNull final String selectionId,
 			@NonNull final String fieldName,
 			final int limit)
+	{
+		return selectFieldValues(viewEvalCtx, selectionId, null, fieldName, limit);
+	}
+
+	public SqlAndParams selectFieldValues(
+			@NonNull final ViewEvaluationCtx viewEvalCtx,
+			@NonNull final String selectionId,
+			@Nullable final String sqlSelectionSource,
+			@NonNull final String fieldName,
+			final int limit)
 	{
 		Check.assumeGreaterThanZero(limit, "limit");
 
@@ -496,7 +518,7 @@ public class SqlViewSelectData
 			sqlExpression
 					.append("\n, ").append(sqlDisplayValue.withJoinOnTableNameOrAlias(sqlTableName).toStringExpressionWithColumnNameAlias());
 		}
-		sqlExpression.append("\n FROM " + I_T_WEBUI_ViewSelection.Table_Name + " sel")
+		sqlExpression.append("\n " + SQL_FROM_ViewSelection)
 				.append("\n INNER JOIN " + sqlTableName + " ON (" + keyColumnNamesMap.getSqlJoinCondition(sqlTableName, "sel") + ")")
 				// Filter by UUID. Keep this closer to the source table, see https://github.com/metasfresh/metasfresh-webui-api/issues/437
 				.append("\n WHERE sel." + I_T_WEBUI_ViewSelection.COLUMNNAME_UUID + "=?")
@@ -504,9 +526,29 @@ public class SqlViewSelectData
 				.append("\n) t")
 				.append("\n LIMIT ?");
 
-		final String sql = sqlExpression.build()
-				.evaluate(viewEvalCtx.toEvaluatee(), OnVariableNotFound.Fail);
+		final String sql = resolveSelectionSource(
+				sqlExpression.build().evaluate(viewEvalCtx.toEvaluatee(), OnVariableNotFound.Fail),
+				sqlSelectionSource);
 
 		return SqlAndParams.of(sql, selectionId, limit);
 	}
+
+	/**
+	 * Resolves the {@link #SQL_SelectionSource_Placeholder} in given SQL to <code>sqlSelectionSource</code>, which shall provide the same columns as {@link I_T_WEBUI_ViewSelection}.
+	 * <p>
+	 * NOTE: not supported when grouping, because in that case the selection lines are also needed.
+	 *
+	 * @param sqlSelectionSource the table or sub query to be used instead of {@link I_T_WEBUI_ViewSelection}; if null, {@link I_T_WEBUI_ViewSelection} is used
+	 */
+	@VisibleForTesting
+	String resolveSelectionSource(@NonNull final String sql, @Nullable final String sqlSelectionSource)
+	{
+		if (sqlSelectionSource == null)
+		{
+			return sql.replace(SQL_SelectionSource_Placeholder, I_T_WEBUI_ViewSelection.Table_Name);
+		}
+
+		Check.assume(sqlSelectLines == null, "selection source cannot be replaced when grouping");
+		return sql.replace(SQL_SelectionSource_Placeholder, sqlSelectionSource);
+	}
 }
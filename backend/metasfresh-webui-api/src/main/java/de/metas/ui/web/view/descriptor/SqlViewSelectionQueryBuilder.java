@@ -42,6 +42,7 @@ import org.adempiere.exceptions.AdempiereException;
 import org.compiere.util.DB;
 import org.slf4j.Logger;
 
+import de.metas.common.util.CoalesceUtil;
 import de.metas.logging.LogManager;
 import de.metas.security.IUserRolePermissions;
 import de.metas.security.impl.AccessSqlStringExpression;
@@ -239,18 +240,110 @@ public final class SqlViewSelectionQueryBuilder
 			final int queryLimit,
 			final SqlDocumentFilterConverterContext filterConverterCtx)
 	{
-		final String sqlTableName = getTableName();
-		final String sqlTableAlias = getTableAlias();
 		final SqlViewKeyColumnNamesMap keyColumnNamesMap = getSqlViewKeyColumnNamesMap();
 
 		//
 		// INSERT INTO T_WEBUI_ViewSelection[Line] (...)
+		return SqlAndParams.builder()
+				.append("INSERT INTO " + I_T_WEBUI_ViewSelection.Table_Name + " ("
+						+ " " + I_T_WEBUI_ViewSelection.COLUMNNAME_UUID
+						+ ", " + I_T_WEBUI_ViewSelection.COLUMNNAME_Line // SeqNo
+						+ ", " + keyColumnNamesMap.getWebuiSelectionColumnNamesCommaSeparated() // keys: IntKey1... StringKey1...
+						+ ")")
+				.append(buildSqlSelectSelection_WithoutGrouping(viewEvalCtx, newViewId, filters, orderBys, queryLimit, filterConverterCtx))
+				.build();
+	}
+
+	/**
+	 * @return
+	 *
+	 *         <pre>
+	 * SELECT keys FROM ourTable WHERE ... ORDER BY (view's order by)
+	 *         </pre>
+	 *
+	 *         i.e. the ordered row IDs which {@link #buildSqlCreateSelectionFrom(ViewEvaluationCtx, ViewId, DocumentFilterList, DocumentQueryOrderByList, int, SqlDocumentFilterConverterContext)}
+	 *         would insert into {@link I_T_WEBUI_ViewSelection#Table_Name}.
+	 */
+	public SqlAndParams buildSqlSelectRowIds(
+			@NonNull final ViewEvaluationCtx viewEvalCtx,
+			@NonNull final ViewId newViewId,
+			final DocumentFilterList filters,
+			final DocumentQueryOrderByList orderBys,
+			final int queryLimit,
+			final SqlDocumentFilterConverterContext filterConverterCtx)
+	{
+		Check.assume(!hasGroupingFields(), "grouping fields are not supported");
+
+		return SqlAndParams.builder()
+				.append("SELECT ").append(getSqlViewKeyColumnNamesMap().getKeyColumnNamesCommaSeparated())
+				.append("\n FROM (").append(buildSqlSelectSelection_WithoutGrouping(viewEvalCtx, newViewId, filters, orderBys, queryLimit, filterConverterCtx)).append(") sel")
+				.append("\n ORDER BY sel." + I_T_WEBUI_ViewSelection.COLUMNNAME_Line)
+				.build();
+	}
+
+	/**
+	 * @return
+	 *
+	 *         <pre>
+	 * SELECT COUNT(1) FROM (SELECT 1 FROM ourTable WHERE ... LIMIT countLimit) t
+	 *         </pre>
+	 *
+	 *         i.e. how many rows {@link #buildSqlSelectRowIds(ViewEvaluationCtx, ViewId, DocumentFilterList, DocumentQueryOrderByList, int, SqlDocumentFilterConverterContext)} would return, but at most {@code countLimit}.
+	 *         Because the rows are neither ordered nor numbered, the database can stop as soon as the limit was reached.
+	 */
+	public SqlAndParams buildSqlCountRowsUpTo(
+			@NonNull final ViewEvaluationCtx viewEvalCtx,
+			final DocumentFilterList filters,
+			final int countLimit,
+			final SqlDocumentFilterConverterContext filterConverterCtx)
+	{
+		Check.assume(!hasGroupingFields(), "grouping fields are not supported");
+		Check.assume(countLimit > 0, "countLimit > 0");
+
+		final String sqlTableName = getTableName();
+		final String sqlTableAlias = getTableAlias();
+
+		final CompositeStringExpression.Builder sqlBuilder = IStringExpression.composer();
+		sqlBuilder.append("SELECT COUNT(1) FROM (");
+		sqlBuilder.append(
+				IStringExpression.composer()
+						.append("\n SELECT 1")
+						.append("\n FROM ").append(sqlTableName).append(" ").append(sqlTableAlias)
+						.append("\n WHERE 1=1 ")
+						.wrap(securityRestrictionsWrapper(sqlTableAlias)) // security
+		);
+
+		final ArrayList<Object> sqlParams = new ArrayList<>();
+		final SqlParamsCollector sqlWhereClauseParams = SqlParamsCollector.newInstance();
+		final IStringExpression sqlWhereClause = buildSqlWhereClause(sqlWhereClauseParams, filters, SqlOptions.usingTableAlias(sqlTableAlias), filterConverterCtx);
+		if (sqlWhereClause != null && !sqlWhereClause.isNullExpression())
+		{
+			sqlBuilder.append("\n AND (\n").append(sqlWhereClause).append("\n)");
+			sqlParams.addAll(sqlWhereClauseParams.toList());
+		}
+
+		sqlBuilder.append("\n LIMIT ?");
+		sqlParams.add(countLimit);
+
+		sqlBuilder.append("\n) t");
+
+		final String sql = sqlBuilder.build().evaluate(viewEvalCtx.toEvaluatee(), OnVariableNotFound.Fail);
+		return SqlAndParams.of(sql, sqlParams);
+	}
+
+	private SqlAndParams buildSqlSelectSelection_WithoutGrouping(
+			@NonNull final ViewEvaluationCtx viewEvalCtx,
+			@NonNull final ViewId newViewId,
+			final DocumentFilterList filters,
+			final DocumentQueryOrderByList orderBys,
+			final int queryLimit,
+			final SqlDocumentFilterConverterContext filterConverterCtx)
+	{
+		final String sqlTableName = getTableName();
+		final String sqlTableAlias = getTableAlias();
+		final SqlViewKeyColumnNamesMap keyColumnNamesMap = getSqlViewKeyColumnNamesMap();
+
 		final CompositeStringExpression.Builder sqlBuilder = IStringExpression.composer();
-		sqlBuilder.append("INSERT INTO " + I_T_WEBUI_ViewSelection.Table_Name + " ("
-				+ " " + I_T_WEBUI_ViewSelection.COLUMNNAME_UUID
-				+ ", " + I_T_WEBUI_ViewSelection.COLUMNNAME_Line // SeqNo
-				+ ", " + keyColumnNamesMap.getWebuiSelectionColumnNamesCommaSeparated() // keys: IntKey1... StringKey1...
-				+ ")");
 
 		//
 		// SELECT ... FROM ... WHERE 1=1
@@ -269,8 +362,8 @@ public final class SqlViewSelectionQueryBuilder
 			sqlBuilder.append(
 					IStringExpression.composer()
 							.append("\n SELECT ")
-							.append("\n  ?") // UUID
-							.append("\n, ").append(sqlSeqNo) // Line/SeqNo
+							.append("\n  ? AS " + I_T_WEBUI_ViewSelection.COLUMNNAME_UUID) // UUID
+							.append("\n, ").append(sqlSeqNo).append(" AS " + I_T_WEBUI_ViewSelection.COLUMNNAME_Line) // Line/SeqNo
 							.append("\n, ").append(keyColumnNamesMap.getKeyColumnNamesCommaSeparated(sqlTableAlias)) // keys
 							//
 							.append("\n FROM ").append(sqlTableName).append(" ").append(sqlTableAlias)
@@ -515,6 +608,51 @@ public final class SqlViewSelectionQueryBuilder
 			@NonNull final DocumentFilterList filters,
 			@NonNull final DocumentQueryOrderByList orderBys,
 			@NonNull final SqlDocumentFilterConverterContext filterConverterCtx)
+	{
+		final SqlViewKeyColumnNamesMap keyColumnNamesMap = getSqlViewKeyColumnNamesMap();
+
+		return SqlAndParams.builder()
+				.append("INSERT INTO " + I_T_WEBUI_ViewSelection.Table_Name + " ("
+						+ " " + I_T_WEBUI_ViewSelection.COLUMNNAME_UUID
+						+ ", " + I_T_WEBUI_ViewSelection.COLUMNNAME_Line
+						+ ", " + keyColumnNamesMap.getWebuiSelectionColumnNamesCommaSeparated()
+						+ ")")
+				.append(buildSqlSelectSelectionFromSelection(viewEvalCtx, newViewId, fromSelectionId, I_T_WEBUI_ViewSelection.Table_Name, filters, orderBys, filterConverterCtx))
+				.build();
+	}
+
+	/**
+	 * Same as {@link #buildSqlCreateSelectionFromSelection(ViewEvaluationCtx, ViewId, String, DocumentFilterList, DocumentQueryOrderByList, SqlDocumentFilterConverterContext)},
+	 * but instead of inserting the new selection it just selects the ordered row IDs.
+	 *
+	 * @param sqlFromSelectionSource the table or sub query providing the <code>fromSelectionId</code> rows (having the same columns as {@link I_T_WEBUI_ViewSelection})
+	 */
+	public SqlAndParams buildSqlSelectRowIdsFromSelection(
+			@NonNull final ViewEvaluationCtx viewEvalCtx,
+			@NonNull final ViewId newViewId,
+			@NonNull final String fromSelectionId,
+			@NonNull final String sqlFromSelectionSource,
+			@NonNull final DocumentFilterList filters,
+			@NonNull final DocumentQueryOrderByList orderBys,
+			@NonNull final SqlDocumentFilterConverterContext filterConverterCtx)
+	{
+		Check.assume(!hasGroupingFields(), "grouping fields are not supported");
+
+		return SqlAndParams.builder()
+				.append("SELECT ").append(getSqlViewKeyColumnNamesMap().getKeyColumnNamesCommaSeparated())
+				.append("\n FROM (").append(buildSqlSelectSelectionFromSelection(viewEvalCtx, newViewId, fromSelectionId, sqlFromSelectionSource, filters, orderBys, filterConverterCtx)).append(") sel")
+				.append("\n ORDER BY sel." + I_T_WEBUI_ViewSelection.COLUMNNAME_Line)
+				.build();
+	}
+
+	private SqlAndParams buildSqlSelectSelectionFromSelection(
+			@NonNull final ViewEvaluationCtx viewEvalCtx,
+			@NonNull final ViewId newViewId,
+			@NonNull final String fromSelectionId,
+			@NonNull final String sqlFromSelectionSource,
+			@NonNull final DocumentFilterList filters,
+			@NonNull final DocumentQueryOrderByList orderBys,
+			@NonNull final SqlDocumentFilterConverterContext filterConverterCtx)
 	{
 		final String sqlTableAlias = getTableAlias();
 		final SqlViewKeyColumnNamesMap keyColumnNamesMap = getSqlViewKeyColumnNamesMap();
@@ -601,16 +739,11 @@ public final class SqlViewSelectionQueryBuilder
 
 		//
 		return SqlAndParams.builder()
-				.append("INSERT INTO " + I_T_WEBUI_ViewSelection.Table_Name + " ("
-						+ " " + I_T_WEBUI_ViewSelection.COLUMNNAME_UUID
-						+ ", " + I_T_WEBUI_ViewSelection.COLUMNNAME_Line
-						+ ", " + keyColumnNamesMap.getWebuiSelectionColumnNamesCommaSeparated()
-						+ ")")
 				.append("\n SELECT ")
-				.append("\n  ?", newViewId.getViewId()) // newUUID
-				.append("\n, ").append("row_number() OVER (").append(sqlOrderBys != null ? "ORDER BY " + sqlOrderBys : "").append(")") // Line
+				.append("\n  ? AS " + I_T_WEBUI_ViewSelection.COLUMNNAME_UUID, newViewId.getViewId()) // newUUID
+				.append("\n, ").append("row_number() OVER (").append(sqlOrderBys != null ? "ORDER BY " + sqlOrderBys : "").append(") AS " + I_T_WEBUI_ViewSelection.COLUMNNAME_Line) // Line
 				.append("\n, ").append(keyColumnNamesMap.getKeyColumnNamesCommaSeparated()) // keys
-				.append("\n FROM ").append(I_T_WEBUI_ViewSelection.Table_Name).append(" sel")
+				.append("\n FROM ").append(sqlFromSelectionSource).append(" sel")
 				.append("\n INNER JOIN ").append(sqlSourceTable).append(" ").append(sqlTableAlias).append(" ON (").append(sqlJoinCondition).append(")")
 				.append("\n WHERE sel.").append(I_T_WEBUI_ViewSelection.COLUMNNAME_UUID).append("=?", fromSelectionId) // fromUUID
 				.build();
@@ -661,11 +794,22 @@ public final class SqlViewSelectionQueryBuilder
 	public SqlViewRowsWhereClause buildSqlWhereClause(
 			@NonNull final String selectionId,
 			@NonNull final DocumentIdsSelection rowIds)
+	{
+		return buildSqlWhereClause(selectionId, I_T_WEBUI_ViewSelection.Table_Name, rowIds);
+	}
+
+	/**
+	 * @param sqlSelectionSource the table or sub query providing the <code>selectionId</code> rows (having the same columns as {@link I_T_WEBUI_ViewSelection})
+	 */
+	public SqlViewRowsWhereClause buildSqlWhereClause(
+			@NonNull final String selectionId,
+			@NonNull final String sqlSelectionSource,
+			@NonNull final DocumentIdsSelection rowIds)
 	{
 		final String sqlTableName = getTableName();
 		final SqlViewKeyColumnNamesMap keyColumnNamesMap = getSqlViewKeyColumnNamesMap();
 		final SqlViewRowIdsConverter rowIdsConverter = getRowIdsConverter();
-		return buildSqlWhereClause(sqlTableName, keyColumnNamesMap, selectionId, rowIds, rowIdsConverter);
+		return buildSqlWhereClause(sqlTableName, keyColumnNamesMap, selectionId, sqlSelectionSource, rowIds, rowIdsConverter);
 	}
 
 	@Builder(builderMethodName = "prepareSqlWhereClause", builderClassName = "SqlWhereClauseBuilder")
@@ -673,6 +817,7 @@ public final class SqlViewSelectionQueryBuilder
 			@NonNull final String sqlTableAlias,
 			@NonNull final SqlViewKeyColumnNamesMap keyColumnNamesMap,
 			@NonNull final String selectionId,
+			@Nullable final String sqlSelectionSource,
 			@NonNull final DocumentIdsSelection rowIds,
 			@NonNull final SqlViewRowIdsConverter rowIdsConverter)
 	{
@@ -684,7 +829,7 @@ public final class SqlViewSelectionQueryBuilder
 		}
 
 		final SqlAndParams rowsPresentInViewSelection = SqlAndParams.of(
-				"exists (select 1 from " + I_T_WEBUI_ViewSelection.Table_Name + " sel "
+				"exists (select 1 from " + CoalesceUtil.coalesce(sqlSelectionSource, I_T_WEBUI_ViewSelection.Table_Name) + " sel "
 						+ " where "
 						+ " " + I_T_WEBUI_ViewSelection.COLUMNNAME_UUID + "=" + DB.TO_STRING(selectionId)
 						+ " and " + keyColumnNamesMap.getSqlJoinCondition(sqlTableAlias, "sel")
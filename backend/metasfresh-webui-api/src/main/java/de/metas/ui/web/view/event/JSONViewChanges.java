@@ -5,11 +5,15 @@ import com.fasterxml.jackson.annotation.JsonAutoDetect.Visibility;
 import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.google.common.base.MoreObjects;
+import com.google.common.collect.ImmutableSet;
 import de.metas.ui.web.window.datatypes.DocumentIdsSelection;
 import de.metas.ui.web.window.datatypes.WindowId;
 import lombok.NonNull;
+import org.adempiere.exceptions.AdempiereException;
 
+import javax.annotation.Nullable;
 import java.io.Serializable;
+import java.util.Objects;
 import java.util.Set;
 
 /*
@@ -87,6 +91,20 @@ public final class JSONViewChanges implements Serializable
 		headerPropertiesChanged = changes.isHeaderPropertiesChanged() ? true : null;
 	}
 
+	private JSONViewChanges(
+			@NonNull final String viewId,
+			@NonNull final WindowId windowId,
+			@Nullable final Boolean fullyChanged,
+			@Nullable final Set<String> changedIds,
+			@Nullable final Boolean headerPropertiesChanged)
+	{
+		this.viewId = viewId;
+		this.windowId = windowId;
+		this.fullyChanged = fullyChanged;
+		this.changedIds = changedIds;
+		this.headerPropertiesChanged = headerPropertiesChanged;
+	}
+
 	@Override
 	public String toString()
 	{
@@ -114,4 +132,55 @@ public final class JSONViewChanges implements Serializable
 	{
 		return fullyChanged;
 	}
+
+	public Set<String> getChangedIds()
+	{
+		return changedIds != null ? changedIds : ImmutableSet.of();
+	}
+
+	public boolean isMergeableWith(@NonNull final JSONViewChanges other)
+	{
+		return Objects.equals(viewId, other.viewId)
+				&& Objects.equals(windowId, other.windowId);
+	}
+
+	/**
+	 * @return changes which are notifying the frontend about everything that this and the given changes are notifying about.
+	 *         If any of them is fully changed, the result is fully changed and does not carry any row IDs.
+	 */
+	public JSONViewChanges mergeWith(@NonNull final JSONViewChanges other)
+	{
+		if (!isMergeableWith(other))
+		{
+			throw new AdempiereException("Cannot merge view changes of different views")
+					.appendParametersToMessage()
+					.setParameter("changes", this)
+					.setParameter("otherChanges", other);
+		}
+
+		final Boolean fullyChangedMerged;
+		final Set<String> changedIdsMerged;
+		if (Boolean.TRUE.equals(fullyChanged) || Boolean.TRUE.equals(other.fullyChanged))
+		{
+			fullyChangedMerged = Boolean.TRUE;
+			changedIdsMerged = null;
+		}
+		else
+		{
+			changedIdsMerged = ImmutableSet.<String> builder()
+					.addAll(getChangedIds())
+					.addAll(other.getChangedIds())
+					.build();
+			fullyChangedMerged = !changedIdsMerged.isEmpty() ? Boolean.FALSE : null;
+		}
+
+		final Boolean headerPropertiesChangedMerged = Boolean.TRUE.equals(headerPropertiesChanged) || Boolean.TRUE.equals(other.headerPropertiesChanged) ? true : null;
+
+		return new JSONViewChanges(
+				viewId,
+				windowId,
+				fullyChangedMerged,
+				changedIdsMerged != null && !changedIdsMerged.isEmpty() ? changedIdsMerged : null,
+				headerPropertiesChangedMerged);
+	}
 }
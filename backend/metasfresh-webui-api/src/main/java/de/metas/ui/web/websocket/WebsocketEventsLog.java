@@ -1,17 +1,26 @@
 package de.metas.ui.web.websocket;
 
+import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 
+import org.adempiere.exceptions.AdempiereException;
 import org.slf4j.Logger;
 
 import com.google.common.base.Preconditions;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.google.common.collect.ImmutableList;
 
 import de.metas.logging.LogManager;
+import de.metas.util.time.SystemTime;
+import lombok.NonNull;
 
 /*
  * #%L
@@ -42,6 +51,47 @@ final class WebsocketEventsLog
 	private final AtomicInteger logEventsMaxSize = new AtomicInteger(500);
 	private final List<WebsocketEventLogRecord> loggedEvents = new LinkedList<>();
 
+	/** Send statistics per topic. Topics which were not used for a while are evicted, because each view has its own topic. */
+	private final Cache<WebsocketTopicName, TopicCounters> countersByTopic = CacheBuilder.newBuilder()
+			.maximumSize(2000)
+			.expireAfterAccess(1, TimeUnit.HOURS)
+			.build();
+
+	/**
+	 * Counts one message which was actually sent to given topic.
+	 *
+	 * @param coalescedEventsCount how many enqueued events were merged into this message (0 if it was not merged with other events)
+	 */
+	public void countSent(@NonNull final WebsocketTopicName destination, final int coalescedEventsCount)
+	{
+		getCounters(destination).countSent(coalescedEventsCount, SystemTime.millis());
+	}
+
+	private TopicCounters getCounters(@NonNull final WebsocketTopicName destination)
+	{
+		try
+		{
+			return countersByTopic.get(destination, TopicCounters::new);
+		}
+		catch (final ExecutionException ex)
+		{
+			// shall not happen
+			throw AdempiereException.wrapIfNeeded(ex);
+		}
+	}
+
+	public List<WebsocketTopicStatistics> getTopicStatistics(final String destinationFilter)
+	{
+		final long nowMillis = SystemTime.millis();
+		return countersByTopic.asMap()
+				.entrySet()
+				.stream()
+				.map(entry -> entry.getValue().toStatistics(entry.getKey(), nowMillis))
+				.filter(stats -> stats.isDestinationMatching(destinationFilter))
+				.sorted(Comparator.comparing(WebsocketTopicStatistics::getSentPerSecond).reversed())
+				.collect(ImmutableList.toImmutableList());
+	}
+
 	public void logEvent(final WebsocketTopicName destination, final Object event)
 	{
 		if (!logEventsEnabled.get())
@@ -90,4 +140,56 @@ final class WebsocketEventsLog
 				.filter(websocketEvent -> websocketEvent.isDestinationMatching(destinationFilter))
 				.collect(ImmutableList.toImmutableList());
 	}
+
+	/**
+	 * Counts the messages sent in the last {@value #RATE_WINDOW_SECONDS} seconds, using one bucket per second.
+	 */
+	private static final class TopicCounters
+	{
+		private static final int RATE_WINDOW_SECONDS = 10;
+
+		private long sentCount = 0;
+		private long coalescedEventsCount = 0;
+		private long lastSentMillis = 0;
+
+		private final long[] bucketSeconds = new long[RATE_WINDOW_SECONDS];
+		private final int[] bucketCounts = new int[RATE_WINDOW_SECONDS];
+
+		public synchronized void countSent(final int coalescedEventsCount, final long nowMillis)
+		{
+			sentCount++;
+			this.coalescedEventsCount += coalescedEventsCount;
+			lastSentMillis = nowMillis;
+
+			final long second = nowMillis / 1000;
+			final int index = (int)(second % RATE_WINDOW_SECONDS);
+			if (bucketSeconds[index] != second)
+			{
+				bucketSeconds[index] = second;
+				bucketCounts[index] = 0;
+			}
+			bucketCounts[index]++;
+		}
+
+		public synchronized WebsocketTopicStatistics toStatistics(final WebsocketTopicName destination, final long nowMillis)
+		{
+			final long nowSecond = nowMillis / 1000;
+			int sentInWindow = 0;
+			for (int i = 0; i < RATE_WINDOW_SECONDS; i++)
+			{
+				if (nowSecond - bucketSeconds[i] < RATE_WINDOW_SECONDS)
+				{
+					sentInWindow += bucketCounts[i];
+				}
+			}
+
+			return WebsocketTopicStatistics.builder()
+					.destination(destination)
+					.sentCount(sentCount)
+					.coalescedEventsCount(coalescedEventsCount)
+					.sentPerSecond((double)sentInWindow / RATE_WINDOW_SECONDS)
+					.lastSent(Instant.ofEpochMilli(lastSentMillis).toString())
+					.build();
+		}
+	}
 }
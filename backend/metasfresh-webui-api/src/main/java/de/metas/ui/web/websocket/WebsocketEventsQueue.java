@@ -0,0 +1,320 @@
+package de.metas.ui.web.websocket;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+
+import javax.annotation.Nullable;
+
+import org.slf4j.Logger;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+
+import de.metas.logging.LogManager;
+import de.metas.ui.web.view.event.JSONViewChanges;
+import de.metas.util.Check;
+import lombok.Builder;
+import lombok.NonNull;
+import lombok.Value;
+
+
+/*
+ * #%L
+ * metasfresh-webui-api
+ * %%
+ * Copyright (C) 2020 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+/**
+ * Collects the events to be sent to websocket and sends them either immediately (autoflush) or when {@link #sendEventsAndClear()} is called (e.g. on transaction commit).
+ * <p>
+ * If a debounce delay is set, {@link JSONViewChanges} which are enqueued for the same topic and view are merged into one message.
+ * An autoflush queue then sends those view changes at most once per debounce delay, instead of sending each of them immediately.
+ * A transaction's queue can hand over its view changes to such a (shared) autoflush queue when the transaction is committed,
+ * so that view changes are also coalesced across transactions.
+ */
+final class WebsocketEventsQueue
+{
+	private static final Logger logger = LogManager.getLogger(WebsocketEventsQueue.class);
+
+	/** internal name, used for logging */
+	private final String name;
+	private final SimpMessagingTemplate websocketMessagingTemplate;
+	private final WebsocketEventsLog eventsLog;
+	private final boolean autoflush;
+	private final Duration debounceDelay;
+	private final DebounceScheduler debounceScheduler;
+	/** If set, the coalesced view changes are not sent by this queue but handed over to this one. */
+	private final WebsocketEventsQueue viewChangesQueue;
+
+	/** Enqueued events, in the order in which they were (first) enqueued. Coalesced view changes are keyed by {@link ViewChangesKey}. */
+	private final LinkedHashMap<Object, WebsocketEvent> events = new LinkedHashMap<>();
+	private long nextEventSeqNo = 1;
+	private boolean flushScheduled = false;
+
+	@Builder
+	private WebsocketEventsQueue(
+			@NonNull final String name,
+			@NonNull final SimpMessagingTemplate websocketMessagingTemplate,
+			@NonNull final WebsocketEventsLog eventsLog,
+			final boolean autoflush,
+			@Nullable final Duration debounceDelay,
+			@Nullable final DebounceScheduler debounceScheduler,
+			@Nullable final WebsocketEventsQueue viewChangesQueue)
+	{
+		this.name = name;
+		this.websocketMessagingTemplate = websocketMessagingTemplate;
+		this.eventsLog = eventsLog;
+		this.autoflush = autoflush;
+		this.debounceDelay = debounceDelay != null && !debounceDelay.isNegative() ? debounceDelay : Duration.ZERO;
+		this.debounceScheduler = debounceScheduler;
+		this.viewChangesQueue = viewChangesQueue;
+
+		if (autoflush && isCoalescing())
+		{
+			Check.assumeNotNull(debounceScheduler, "debounceScheduler shall be set when debouncing an autoflush queue");
+		}
+		if (viewChangesQueue != null)
+		{
+			Check.assume(!autoflush, "An autoflush queue shall not hand over its view changes to another queue");
+			Check.assume(viewChangesQueue.autoflush && viewChangesQueue.isCoalescing(), "viewChangesQueue shall be a debounced autoflush queue: {}", viewChangesQueue);
+		}
+	}
+
+	/**
+	 * Schedules the sending of an autoflush queue's coalesced view changes.
+	 */
+	@FunctionalInterface
+	interface DebounceScheduler
+	{
+		void schedule(Runnable task, Duration delay);
+	}
+
+	private boolean isCoalescing()
+	{
+		return !debounceDelay.isZero();
+	}
+
+	public void enqueueObject(final WebsocketTopicName destination, final Object payload)
+	{
+		if (isCoalescing() && payload instanceof JSONViewChanges)
+		{
+			enqueueViewChanges(destination, (JSONViewChanges)payload, 0);
+			return;
+		}
+
+		final boolean converted = false;
+		if (autoflush)
+		{
+			sendEvent(destination, payload, converted, 0);
+		}
+		else
+		{
+			enqueue(WebsocketEvent.builder()
+					.destination(destination)
+					.payload(payload)
+					.converted(converted)
+					.build());
+		}
+	}
+
+	public void enqueueMessage(final WebsocketTopicName destination, final Message<?> message)
+	{
+		final boolean converted = true;
+		if (autoflush)
+		{
+			sendEvent(destination, message, converted, 0);
+		}
+		else
+		{
+			enqueue(WebsocketEvent.builder()
+					.destination(destination)
+					.payload(message)
+					.converted(converted)
+					.build());
+		}
+	}
+
+	private synchronized void enqueue(@NonNull final WebsocketEvent event)
+	{
+		events.put(nextEventSeqNo++, event);
+		logger.debug("[name={}] Enqueued event={}", name, event);
+	}
+
+	/**
+	 * @param coalescedEventsCount how many events were already coalesced into the given view changes
+	 */
+	private synchronized void enqueueViewChanges(
+			@NonNull final WebsocketTopicName destination,
+			@NonNull final JSONViewChanges viewChanges,
+			final int coalescedEventsCount)
+	{
+		final ViewChangesKey key = new ViewChangesKey(destination, viewChanges.getViewId());
+		final WebsocketEvent existingEvent = events.get(key);
+		if (existingEvent == null)
+		{
+			events.put(key, WebsocketEvent.builder()
+					.destination(destination)
+					.payload(viewChanges)
+					.converted(false)
+					.coalescedEventsCount(coalescedEventsCount)
+					.build());
+			logger.debug("[name={}] Enqueued view changes={}", name, viewChanges);
+		}
+		else
+		{
+			final JSONViewChanges existingViewChanges = (JSONViewChanges)existingEvent.getPayload();
+			if (!existingViewChanges.isMergeableWith(viewChanges))
+			{
+				// same viewId but different windowId; shall not happen, but don't lose the event
+				enqueue(WebsocketEvent.builder()
+						.destination(destination)
+						.payload(viewChanges)
+						.converted(false)
+						.coalescedEventsCount(coalescedEventsCount)
+						.build());
+				return;
+			}
+
+			// NOTE: replacing the value of an existing key does not change its position in the LinkedHashMap
+			events.put(key, existingEvent.toBuilder()
+					.payload(existingViewChanges.mergeWith(viewChanges))
+					.coalescedEventsCount(existingEvent.getCoalescedEventsCount() + coalescedEventsCount + 1)
+					.build());
+			logger.debug("[name={}] Merged view changes={} into {}", name, viewChanges, existingViewChanges);
+		}
+
+		if (autoflush)
+		{
+			scheduleFlushIfNeeded();
+		}
+	}
+
+	private void scheduleFlushIfNeeded()
+	{
+		if (flushScheduled)
+		{
+			return;
+		}
+
+		try
+		{
+			debounceScheduler.schedule(this::sendEventsAndClearNoFail, debounceDelay);
+			flushScheduled = true;
+		}
+		catch (final RejectedExecutionException ex)
+		{
+			// e.g. because we are shutting down
+			logger.warn("[name={}] Failed scheduling the sending of the queued events. They will be sent the next time a flush is scheduled.", name, ex);
+		}
+	}
+
+	public void sendEventsAndClear()
+	{
+		logger.debug("[name={}] Sending all queued events", name);
+
+		for (final WebsocketEvent event : getEventsAndClear())
+		{
+			if (viewChangesQueue != null && isCoalescedViewChanges(event))
+			{
+				viewChangesQueue.enqueueViewChanges(event.getDestination(), (JSONViewChanges)event.getPayload(), event.getCoalescedEventsCount());
+			}
+			else
+			{
+				sendEvent(event);
+			}
+		}
+	}
+
+	private boolean isCoalescedViewChanges(@NonNull final WebsocketEvent event)
+	{
+		return isCoalescing() && !event.isConverted() && event.getPayload() instanceof JSONViewChanges;
+	}
+
+	private void sendEventsAndClearNoFail()
+	{
+		for (final WebsocketEvent event : getEventsAndClear())
+		{
+			try
+			{
+				sendEvent(event);
+			}
+			catch (final Exception ex)
+			{
+				logger.warn("[name={}] Failed sending {}. Skipped.", name, event, ex);
+			}
+		}
+	}
+
+	private synchronized List<WebsocketEvent> getEventsAndClear()
+	{
+		final List<WebsocketEvent> eventsToSend = new ArrayList<>(events.values());
+		events.clear();
+		flushScheduled = false;
+		return eventsToSend;
+	}
+
+	private void sendEvent(final WebsocketEvent event)
+	{
+		sendEvent(event.getDestination(), event.getPayload(), event.isConverted(), event.getCoalescedEventsCount());
+	}
+
+	private void sendEvent(
+			@NonNull final WebsocketTopicName destination,
+			@Nullable final Object payload,
+			final boolean converted,
+			final int coalescedEventsCount)
+	{
+		logger.debug("[name={}] Sending to destination={}: payload={}", name, destination, payload);
+
+		if (converted)
+		{
+			final Message<?> message = (Message<?>)payload;
+			websocketMessagingTemplate.send(destination.getAsString(), message);
+		}
+		else
+		{
+			websocketMessagingTemplate.convertAndSend(destination.getAsString(), payload);
+			eventsLog.logEvent(destination, payload);
+		}
+
+		eventsLog.countSent(destination, coalescedEventsCount);
+	}
+
+	@Value
+	@Builder(toBuilder = true)
+	private static class WebsocketEvent
+	{
+		@NonNull
+		WebsocketTopicName destination;
+		Object payload;
+		boolean converted;
+		int coalescedEventsCount;
+	}
+
+	@Value
+	private static class ViewChangesKey
+	{
+		@NonNull
+		WebsocketTopicName destination;
+		@NonNull
+		String viewId;
+	}
+}
@@ -1,15 +1,19 @@
 package de.metas.ui.web.websocket;
 
-import java.util.ArrayList;
+import java.time.Duration;
 import java.util.Collection;
 import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
-import javax.annotation.Nullable;
+import javax.annotation.PreDestroy;
 
 import org.adempiere.ad.trx.api.ITrx;
 import org.adempiere.ad.trx.api.ITrxListenerManager.TrxEventTiming;
 import org.adempiere.ad.trx.api.ITrxManager;
 import org.adempiere.ad.trx.api.OnTrxMissingPolicy;
+import org.adempiere.util.concurrent.CustomizableThreadFactory;
 import org.slf4j.Logger;
 import org.springframework.beans.factory.InitializingBean;
 import org.springframework.beans.factory.annotation.Value;
@@ -59,21 +63,66 @@ public class WebsocketSender implements InitializingBean
 
 	private final SimpMessagingTemplate websocketMessagingTemplate;
 	private final WebsocketEventsLog eventsLog = new WebsocketEventsLog();
-	private final WebsocketEventsQueue autoflushQueue;
+	private WebsocketEventsQueue autoflushQueue;
 
 	@Value("${metasfresh.webui.websocket.logEventsEnabled:false}")
 	private boolean logEventsEnabledDefault;
 
+	/**
+	 * If greater than zero, view changes for the same view are merged into one message
+	 * and sent at most once per this many milliseconds.
+	 * This also applies to the view changes of different transactions, because they are handed over to the autoflush queue on commit.
+	 */
+	@Value("${metasfresh.webui.websocket.viewChangesDebounceMillis:0}")
+	private int viewChangesDebounceMillis;
+
+	private Duration viewChangesDebounceDelay = Duration.ZERO;
+	private ScheduledExecutorService debounceExecutor;
+
 	public WebsocketSender(final SimpMessagingTemplate websocketMessagingTemplate)
 	{
 		this.websocketMessagingTemplate = websocketMessagingTemplate;
-		autoflushQueue = new WebsocketEventsQueue("AUTOFLUSH", websocketMessagingTemplate, eventsLog, /* autoflush */true);
 	}
 
 	@Override
 	public void afterPropertiesSet() throws Exception
 	{
 		eventsLog.setLogEventsEnabled(logEventsEnabledDefault);
+
+		if (viewChangesDebounceMillis > 0)
+		{
+			viewChangesDebounceDelay = Duration.ofMillis(viewChangesDebounceMillis);
+			debounceExecutor = Executors.newSingleThreadScheduledExecutor(
+					CustomizableThreadFactory.builder()
+							.setDaemon(true)
+							.setThreadNamePrefix(WebsocketSender.class.getSimpleName() + "-debounce")
+							.build());
+			logger.info("Coalescing view changes; sending them at most once per {}", viewChangesDebounceDelay);
+		}
+
+		autoflushQueue = WebsocketEventsQueue.builder()
+				.name("AUTOFLUSH")
+				.websocketMessagingTemplate(websocketMessagingTemplate)
+				.eventsLog(eventsLog)
+				.autoflush(true)
+				.debounceDelay(viewChangesDebounceDelay)
+				.debounceScheduler(debounceExecutor != null ? this::scheduleDebounced : null)
+				.build();
+	}
+
+	private void scheduleDebounced(@NonNull final Runnable task, @NonNull final Duration delay)
+	{
+		debounceExecutor.schedule(task, delay.toMillis(), TimeUnit.MILLISECONDS);
+	}
+
+	@PreDestroy
+	public void shutdown()
+	{
+		if (debounceExecutor != null)
+		{
+			debounceExecutor.shutdownNow();
+			logger.info("Shut down the view changes debounce executor");
+		}
 	}
 
 	public void convertAndSend(final Collection<? extends WebsocketEndpointAware> events)
@@ -116,9 +165,14 @@ public class WebsocketSender implements InitializingBean
 
 	private WebsocketEventsQueue createAndBindTrxQueue(@NonNull final ITrx trx)
 	{
-		final String name = trx.getTrxName();
-		final boolean autoflush = false;
-		final WebsocketEventsQueue queue = new WebsocketEventsQueue(name, websocketMessagingTemplate, eventsLog, autoflush);
+		final WebsocketEventsQueue queue = WebsocketEventsQueue.builder()
+				.name(trx.getTrxName())
+				.websocketMessagingTemplate(websocketMessagingTemplate)
+				.eventsLog(eventsLog)
+				.autoflush(false)
+				.debounceDelay(viewChangesDebounceDelay)
+				.viewChangesQueue(debounceExecutor != null ? autoflushQueue : null)
+				.build();
 
 		// Bind
 		trx.getTrxListenerManager()
@@ -143,111 +197,8 @@ public class WebsocketSender implements InitializingBean
 		return eventsLog.getLoggedEvents(destinationFilter);
 	}
 
-	@lombok.Value
-	@lombok.Builder
-	private static final class WebsocketEvent
-	{
-		private final WebsocketTopicName destination;
-		private final Object payload;
-		private final boolean converted;
-	}
-
-	private static class WebsocketEventsQueue
+	public List<WebsocketTopicStatistics> getTopicStatistics(final String destinationFilter)
 	{
-		/** internal name, used for logging */
-		private final String name;
-		private final SimpMessagingTemplate websocketMessagingTemplate;
-		private final WebsocketEventsLog eventsLog;
-		private final boolean autoflush;
-		private final List<WebsocketEvent> events = new ArrayList<>();
-
-		public WebsocketEventsQueue(
-				@NonNull final String name,
-				@NonNull final SimpMessagingTemplate websocketMessagingTemplate,
-				@NonNull final WebsocketEventsLog eventsLog,
-				final boolean autoflush)
-		{
-			this.name = name;
-			this.websocketMessagingTemplate = websocketMessagingTemplate;
-			this.eventsLog = eventsLog;
-			this.autoflush = autoflush;
-		}
-
-		public void enqueueObject(final WebsocketTopicName destination, final Object payload)
-		{
-			final boolean converted = false;
-			if (autoflush)
-			{
-				sendEvent(destination, payload, converted);
-			}
-			else
-			{
-				enqueue(WebsocketEvent.builder()
-						.destination(destination)
-						.payload(payload)
-						.converted(converted)
-						.build());
-			}
-		}
-
-		public void enqueueMessage(final WebsocketTopicName destination, final Message<?> message)
-		{
-			final boolean converted = true;
-			if (autoflush)
-			{
-				sendEvent(destination, message, converted);
-			}
-			else
-			{
-				enqueue(WebsocketEvent.builder()
-						.destination(destination)
-						.payload(message)
-						.converted(converted)
-						.build());
-			}
-		}
-
-		private void enqueue(@NonNull final WebsocketEvent event)
-		{
-			events.add(event);
-			logger.debug("[name={}] Enqueued event={}", name, event);
-		}
-
-		public void sendEventsAndClear()
-		{
-			logger.debug("Sending all queued events");
-
-			final List<WebsocketEvent> eventsToSend = new ArrayList<>(events);
-			events.clear();
-
-			eventsToSend.forEach(this::sendEvent);
-		}
-
-		private void sendEvent(final WebsocketEvent event)
-		{
-			final WebsocketTopicName destination = event.getDestination();
-			final Object payload = event.getPayload();
-			final boolean converted = event.isConverted();
-			sendEvent(destination, payload, converted);
-		}
-
-		private void sendEvent(
-				@NonNull final WebsocketTopicName destination, 
-				@Nullable final Object payload, 
-				final boolean converted)
-		{
-			logger.debug("[name={}] Sending to destination={}: payload={}", name, destination, payload);
-
-			if (converted)
-			{
-				final Message<?> message = (Message<?>)payload;
-				websocketMessagingTemplate.send(destination.getAsString(), message);
-			}
-			else
-			{
-				websocketMessagingTemplate.convertAndSend(destination.getAsString(), payload);
-				eventsLog.logEvent(destination, payload);
-			}
-		}
+		return eventsLog.getTopicStatistics(destinationFilter);
 	}
 }
@@ -0,0 +1,62 @@
+package de.metas.ui.web.websocket;
+
+import com.fasterxml.jackson.annotation.JsonAutoDetect;
+import com.fasterxml.jackson.annotation.JsonAutoDetect.Visibility;
+
+import lombok.Builder;
+import lombok.NonNull;
+import lombok.Value;
+
+
+/*
+ * #%L
+ * metasfresh-webui-api
+ * %%
+ * Copyright (C) 2020 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+@JsonAutoDetect(fieldVisibility = Visibility.ANY, getterVisibility = Visibility.NONE, isGetterVisibility = Visibility.NONE, setterVisibility = Visibility.NONE)
+@Value
+@Builder
+public class WebsocketTopicStatistics
+{
+	@NonNull
+	WebsocketTopicName destination;
+
+	/** messages actually sent to this topic */
+	long sentCount;
+
+	/** enqueued events which were merged into other messages instead of being sent on their own */
+	long coalescedEventsCount;
+
+	/** messages per second, over the last few seconds */
+	double sentPerSecond;
+
+	@NonNull
+	String lastSent;
+
+	boolean isDestinationMatching(final String destinationFilter)
+	{
+		if (destinationFilter == null || destinationFilter.isEmpty())
+		{
+			return true;
+		}
+
+		return destination.getAsString().toLowerCase().contains(destinationFilter.toLowerCase().trim());
+	}
+}
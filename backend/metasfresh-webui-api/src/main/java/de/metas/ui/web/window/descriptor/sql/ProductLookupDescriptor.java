@@ -25,6 +25,7 @@ import org.adempiere.mm.attributes.api.ImmutableAttributeSet;
 import org.adempiere.mm.attributes.api.impl.AttributeSetDescriptionBuilderCommand;
 import org.adempiere.model.I_M_FreightCost;
 import org.adempiere.service.ISysConfigBL;
+import org.compiere.model.I_C_BPartner_Product;
 import org.compiere.model.I_C_UOM;
 import org.compiere.model.I_M_ProductPrice;
 import org.compiere.model.MLookupFactory;
@@ -34,9 +35,12 @@ import org.compiere.util.CtxNames;
 import org.compiere.util.DB;
 import org.compiere.util.DisplayType;
 import org.compiere.util.Env;
+import org.compiere.util.Evaluatee;
 
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Joiner;
+import com.google.common.base.Splitter;
+import com.google.common.base.Strings;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableListMultimap;
 import com.google.common.collect.ImmutableMap;
@@ -68,6 +72,8 @@ import de.metas.ui.web.window.datatypes.LookupValuesList;
 import de.metas.ui.web.window.datatypes.WindowId;
 import de.metas.ui.web.window.descriptor.DocumentLayoutElementFieldDescriptor.LookupSource;
 import de.metas.ui.web.window.descriptor.LookupDescriptor;
+import de.metas.ui.web.window.model.lookup.IndexableLookupDataSourceFetcher;
+import de.metas.ui.web.window.model.lookup.IndexableLookupValue;
 import de.metas.ui.web.window.model.lookup.LookupDataSourceContext;
 import de.metas.ui.web.window.model.lookup.LookupDataSourceFetcher;
 import de.metas.util.Check;
@@ -107,11 +113,15 @@ import lombok.Value;
  * Product lookup.
  *
  * It is searching by product's Value, Name, UPC and bpartner's ProductNo.
+ * <p>
+ * The products can also be searched in memory, see {@link IndexableLookupDataSourceFetcher}.
+ * The index is partitioned by bpartner, org and the price list versions which are selected by the pricing date.
+ * The available stock is not indexed but added to the found products, see {@link #postProcessIndexedValues(LookupValuesList, Evaluatee, String)}.
  *
  * @author metas-dev <dev@metasfresh.com>
  * @task https://github.com/metasfresh/metasfresh/issues/2484
  */
-public class ProductLookupDescriptor implements LookupDescriptor, LookupDataSourceFetcher
+public class ProductLookupDescriptor implements LookupDescriptor, IndexableLookupDataSourceFetcher
 {
 	private static final String SYSCONFIG_ATP_QUERY_ENABLED = //
 			"de.metas.ui.web.window.descriptor.sql.ProductLookupDescriptor.ATP.QueryEnabled";
@@ -134,6 +144,10 @@ public class ProductLookupDescriptor implements LookupDescriptor, LookupDataSour
 	private static final CtxName param_M_PriceList_ID = CtxNames.ofNameAndDefaultValue("M_PriceList_ID", "-1");
 	private static final CtxName param_AD_Org_ID = CtxNames.ofNameAndDefaultValue(WindowConstants.FIELDNAME_AD_Org_ID, "-1");
 
+	/** Comma separated price list version IDs of an index partition; empty if the products are not filtered by price list */
+	private static final CtxName param_PriceListVersionIds = CtxNames.parse("ProductLookup_PriceListVersionIds");
+	private static final CtxName param_FullTextSearch = CtxNames.parse("ProductLookup_FullTextSearch");
+
 	private final Set<CtxName> ctxNamesNeededForQuery;
 
 	private final AvailableToPromiseAdapter availableToPromiseAdapter;
@@ -240,22 +254,7 @@ public class ProductLookupDescriptor implements LookupDescriptor, LookupDataSour
 			}
 
 			final LookupValuesList unexplodedLookupValues = LookupValuesList.fromCollection(valuesById.values());
-
-			final ZonedDateTime stockdateOrNull = getEffectiveStockDateOrNull(evalCtx);
-			if (stockdateOrNull == null || availableToPromiseAdapter == null)
-			{
-				return unexplodedLookupValues;
-			}
-
-			final BPartnerId bpartnerId = BPartnerId.ofRepoIdOrNull(param_C_BPartner_ID.getValueAsInteger(evalCtx));
-
-			final String adLanguage = evalCtx.getAD_Language();
-
-			return explodeRecordsWithStockQuantities(
-					unexplodedLookupValues,
-					bpartnerId,
-					stockdateOrNull,
-					adLanguage);
+			return explodeRecordsWithStockQuantitiesIfNeeded(unexplodedLookupValues, evalCtx);
 		}
 		catch (final SQLException ex)
 		{
@@ -267,6 +266,98 @@ public class ProductLookupDescriptor implements LookupDescriptor, LookupDataSour
 		}
 	}
 
+	private LookupValuesList explodeRecordsWithStockQuantitiesIfNeeded(
+			@NonNull final LookupValuesList unexplodedLookupValues,
+			@NonNull final LookupDataSourceContext evalCtx)
+	{
+		final ZonedDateTime stockdateOrNull = getEffectiveStockDateOrNull(evalCtx);
+		if (stockdateOrNull == null || availableToPromiseAdapter == null)
+		{
+			return unexplodedLookupValues;
+		}
+
+		final BPartnerId bpartnerId = BPartnerId.ofRepoIdOrNull(param_C_BPartner_ID.getValueAsInteger(evalCtx));
+
+		final String adLanguage = evalCtx.getAD_Language();
+
+		return explodeRecordsWithStockQuantities(
+				unexplodedLookupValues,
+				bpartnerId,
+				stockdateOrNull,
+				adLanguage);
+	}
+
+	/**
+	 * The pricing date is not part of the partition, only the price list versions it selects.
+	 * So all documents with the same bpartner, org and price list versions are sharing one index.
+	 */
+	@Override
+	public LookupDataSourceContext newContextForIndexPartition(@NonNull final Evaluatee ctx, final int maxValues)
+	{
+		final LookupDataSourceContext evalCtx = newContextForFetchingList()
+				.setParentEvaluatee(ctx)
+				.build();
+
+		final List<PriceListVersionId> priceListVersionIds = getPriceListVersionIdsUpToBase(evalCtx);
+
+		return LookupDataSourceContext.builder(CONTEXT_LookupTableName)
+				.setParentEvaluatee(evalCtx)
+				.requiresAD_Language()
+				.requiresParameter(param_C_BPartner_ID)
+				.requiresParameter(param_AD_Org_ID)
+				.putRequiredValue(param_PriceListVersionIds, Joiner.on(",").join(priceListVersionIds.stream().map(PriceListVersionId::getRepoId).iterator()))
+				.putRequiredValue(param_FullTextSearch, isFullTextSearchEnabled())
+				.requiresFilterAndLimit()
+				.putFilter(LookupDataSourceContext.FILTER_Any, 0, maxValues)
+				.build();
+	}
+
+	@Override
+	public List<IndexableLookupValue> retrieveValuesToIndex(@NonNull final LookupDataSourceContext partitionCtx)
+	{
+		final SqlParamsCollector sqlParams = SqlParamsCollector.newInstance();
+		final String sql = buildSqlForIndexing(sqlParams, partitionCtx, null);
+
+		final boolean fullTextSearch = isFullTextSearch(partitionCtx);
+		return DB.retrieveRowsOutOfTrx(sql, sqlParams.toList(), rs -> loadIndexableLookupValue(rs, fullTextSearch));
+	}
+
+	@Override
+	public List<IndexableLookupValue> retrieveValuesToIndexByIds(@NonNull final LookupDataSourceContext partitionCtx, @NonNull final Set<Integer> ids)
+	{
+		if (ids.isEmpty())
+		{
+			return ImmutableList.of();
+		}
+
+		final SqlParamsCollector sqlParams = SqlParamsCollector.newInstance();
+		final String sql = buildSqlForIndexing(sqlParams, partitionCtx, ids);
+
+		final boolean fullTextSearch = isFullTextSearch(partitionCtx);
+		return DB.retrieveRowsOutOfTrx(sql, sqlParams.toList(), rs -> loadIndexableLookupValue(rs, fullTextSearch));
+	}
+
+	/**
+	 * Applies the minimum search string length and adds the available stock, like {@link #retrieveEntities(LookupDataSourceContext)} does.
+	 */
+	@Override
+	public LookupValuesList postProcessIndexedValues(@NonNull final LookupValuesList values, @NonNull final Evaluatee ctx, @Nullable final String filter)
+	{
+		if (!isStartSearchForString(filter))
+		{
+			return LookupValuesList.EMPTY;
+		}
+		if (param_AvailableStockDate == null || availableToPromiseAdapter == null)
+		{
+			return values;
+		}
+
+		final LookupDataSourceContext evalCtx = newContextForFetchingList()
+				.setParentEvaluatee(ctx)
+				.build();
+		return explodeRecordsWithStockQuantitiesIfNeeded(values, evalCtx);
+	}
+
 	private boolean isStartSearchForString(final String filter)
 	{
 		final int searchMinLength = getSearchStringMinLength();
@@ -307,15 +398,64 @@ public class ProductLookupDescriptor implements LookupDescriptor, LookupDataSour
 		appendFilterBySearchString(sqlWhereClause, sqlWhereClauseParams, evalCtx.getFilter(), isFullTextSearchEnabled());
 		appendFilterById(sqlWhereClause, sqlWhereClauseParams, evalCtx);
 		appendFilterByBPartner(sqlWhereClause, sqlWhereClauseParams, evalCtx);
-		appendFilterByPriceList(sqlWhereClause, sqlWhereClauseParams, evalCtx);
+		appendFilterByPriceListVersions(sqlWhereClause, sqlWhereClauseParams, getPriceListVersionIdsUpToBase(evalCtx));
 		appendFilterByNotFreightCostProduct(sqlWhereClause, sqlWhereClauseParams, evalCtx);
 		appendFilterByOrg(sqlWhereClause, sqlWhereClauseParams, evalCtx);
 		appendFilterBOMProducts(sqlWhereClause, sqlWhereClauseParams, evalCtx);
 
+		final StringBuilder sql = buildSqlSelectOrderBy(sqlParams, sqlWhereClause, sqlWhereClauseParams, evalCtx.getAD_Language());
+
+		// SQL: LIMIT and OFFSET
+		sql.append("\n LIMIT ").append(sqlParams.placeholder(evalCtx.getLimit(100)));
+		sql.append("\n OFFSET ").append(sqlParams.placeholder(evalCtx.getOffset(0)));
+
+		return sql.toString();
+	}
+
+	/**
+	 * Like {@link #buildSql(SqlParamsCollector, LookupDataSourceContext)}, but without the search string filter and with the partition's price list versions.
+	 *
+	 * @param productIds if not <code>null</code>, only those products are selected and the partition's limit is not applied
+	 */
+	private String buildSqlForIndexing(
+			@NonNull final SqlParamsCollector sqlParams,
+			@NonNull final LookupDataSourceContext partitionCtx,
+			@Nullable final Set<Integer> productIds)
+	{
+		final StringBuilder sqlWhereClause = new StringBuilder();
+		final SqlParamsCollector sqlWhereClauseParams = SqlParamsCollector.newInstance();
+		appendFilterByIsActive(sqlWhereClause, sqlWhereClauseParams);
+		if (productIds != null)
+		{
+			sqlWhereClause.append("\n AND p.").append(I_M_Product_Lookup_V.COLUMNNAME_M_Product_ID)
+					.append(" IN ").append(DB.buildSqlList(productIds, sqlWhereClauseParams::collectAll));
+		}
+		appendFilterByBPartner(sqlWhereClause, sqlWhereClauseParams, partitionCtx);
+		appendFilterByPriceListVersions(sqlWhereClause, sqlWhereClauseParams, extractPriceListVersionIds(partitionCtx));
+		appendFilterByNotFreightCostProduct(sqlWhereClause, sqlWhereClauseParams, partitionCtx);
+		appendFilterByOrg(sqlWhereClause, sqlWhereClauseParams, partitionCtx);
+		appendFilterBOMProducts(sqlWhereClause, sqlWhereClauseParams, partitionCtx);
+
+		final StringBuilder sql = buildSqlSelectOrderBy(sqlParams, sqlWhereClause, sqlWhereClauseParams, partitionCtx.getAD_Language());
+
+		if (productIds == null)
+		{
+			sql.append("\n LIMIT ").append(sqlParams.placeholder(partitionCtx.getLimit(100)));
+		}
+
+		return sql.toString();
+	}
+
+	private static StringBuilder buildSqlSelectOrderBy(
+			@NonNull final SqlParamsCollector sqlParams,
+			@NonNull final StringBuilder sqlWhereClause,
+			@NonNull final SqlParamsCollector sqlWhereClauseParams,
+			@NonNull final String adLanguage)
+	{
 		//
 		// SQL: SELECT ... FROM
 		final String sqlDisplayName = MLookupFactory.getLookup_TableDirEmbed(
-				LanguageInfo.ofSpecificLanguage(evalCtx.getAD_Language()),
+				LanguageInfo.ofSpecificLanguage(adLanguage),
 				org.compiere.model.I_M_Product.COLUMNNAME_M_Product_ID, // columnName
 				null, // baseTable
 				"p." + I_M_Product_Lookup_V.COLUMNNAME_M_Product_ID);
@@ -345,11 +485,7 @@ public class ProductLookupDescriptor implements LookupDescriptor, LookupDataSour
 				.append("p." + COLUMNNAME_ProductDisplayName)
 				.append(", p." + I_M_Product_Lookup_V.COLUMNNAME_C_BPartner_ID + " DESC NULLS LAST");
 
-		// SQL: LIMIT and OFFSET
-		sql.append("\n LIMIT ").append(sqlParams.placeholder(evalCtx.getLimit(100)));
-		sql.append("\n OFFSET ").append(sqlParams.placeholder(evalCtx.getOffset(0)));
-
-		return sql.toString();
+		return sql;
 	}
 
 	private static StringBuilder appendFilterByIsActive(final StringBuilder sqlWhereClause, final SqlParamsCollector sqlWhereClauseParams)
@@ -414,20 +550,16 @@ public class ProductLookupDescriptor implements LookupDescriptor, LookupDataSour
 		}
 	}
 
-	private void appendFilterByPriceList(
+	private static void appendFilterByPriceListVersions(
 			@NonNull final StringBuilder sqlWhereClause,
 			@NonNull final SqlParamsCollector sqlWhereClauseParams,
-			@NonNull final LookupDataSourceContext evalCtx)
+			@NonNull final List<PriceListVersionId> allPriceListVersionIds)
 	{
-		final PriceListVersionId priceListVersionId = getPriceListVersionId(evalCtx);
-		if (priceListVersionId == null)
+		if (allPriceListVersionIds.isEmpty())
 		{
 			return;
 		}
 
-		final IPriceListDAO priceListsRepo = Services.get(IPriceListDAO.class);
-		final List<PriceListVersionId> allPriceListVersionIds = priceListsRepo.getPriceListVersionIdsUpToBase(priceListVersionId, getEffectivePricingDate(evalCtx));
-
 		sqlWhereClause.append("\n AND EXISTS (")
 				.append("SELECT 1 FROM " + I_M_ProductPrice.Table_Name + " pp WHERE pp.M_Product_ID=p." + I_M_Product_Lookup_V.COLUMNNAME_M_Product_ID)
 				.append(" AND pp.").append(I_M_ProductPrice.COLUMNNAME_M_PriceList_Version_ID).append(" IN ").append(DB.buildSqlList(allPriceListVersionIds, sqlWhereClauseParams::collectAll))
@@ -498,6 +630,59 @@ public class ProductLookupDescriptor implements LookupDescriptor, LookupDataSour
 				.build();
 	}
 
+	/**
+	 * @return the lookup value, searchable by the same columns which are searched by {@link #appendFilterBySearchString(StringBuilder, SqlParamsCollector, String, boolean)}
+	 */
+	private static IndexableLookupValue loadIndexableLookupValue(final ResultSet rs, final boolean fullTextSearch) throws SQLException
+	{
+		final LookupValue value = loadLookupValue(rs);
+		if (fullTextSearch)
+		{
+			return IndexableLookupValue.ofSearchTexts(
+					value,
+					rs.getString(COLUMNNAME_ProductDisplayName),
+					rs.getString(I_M_Product_Lookup_V.COLUMNNAME_UPC),
+					rs.getString(I_M_Product_Lookup_V.COLUMNNAME_BPartnerProductNo),
+					rs.getString(I_M_Product_Lookup_V.COLUMNNAME_BPartnerProductName));
+		}
+		else
+		{
+			return IndexableLookupValue.ofSearchTexts(
+					value,
+					rs.getString(I_M_Product_Lookup_V.COLUMNNAME_Value),
+					rs.getString(I_M_Product_Lookup_V.COLUMNNAME_Name));
+		}
+	}
+
+	private List<PriceListVersionId> getPriceListVersionIdsUpToBase(@NonNull final LookupDataSourceContext evalCtx)
+	{
+		final PriceListVersionId priceListVersionId = getPriceListVersionId(evalCtx);
+		if (priceListVersionId == null)
+		{
+			return ImmutableList.of();
+		}
+
+		final IPriceListDAO priceListsRepo = Services.get(IPriceListDAO.class);
+		return priceListsRepo.getPriceListVersionIdsUpToBase(priceListVersionId, getEffectivePricingDate(evalCtx));
+	}
+
+	private static List<PriceListVersionId> extractPriceListVersionIds(@NonNull final LookupDataSourceContext partitionCtx)
+	{
+		final String priceListVersionIds = partitionCtx.get_ValueAsString(param_PriceListVersionIds.getName());
+		return Splitter.on(",")
+				.omitEmptyStrings()
+				.trimResults()
+				.splitToList(Strings.nullToEmpty(priceListVersionIds))
+				.stream()
+				.map(repoIdStr -> PriceListVersionId.ofRepoId(Integer.parseInt(repoIdStr)))
+				.collect(ImmutableList.toImmutableList());
+	}
+
+	private static boolean isFullTextSearch(@NonNull final LookupDataSourceContext partitionCtx)
+	{
+		return StringUtils.toBoolean(partitionCtx.get_ValueAsString(param_FullTextSearch.getName()));
+	}
+
 	private final PriceListVersionId getPriceListVersionId(final LookupDataSourceContext evalCtx)
 	{
 		final PriceListId priceListId = PriceListId.ofRepoIdOrNull(param_M_PriceList_ID.getValueAsInteger(evalCtx));
@@ -540,6 +725,16 @@ public class ProductLookupDescriptor implements LookupDescriptor, LookupDataSour
 		return LookupTableName;
 	}
 
+	@Override
+	public Set<String> getDependsOnTableNames()
+	{
+		return ImmutableSet.of(
+				I_M_Product.Table_Name,
+				I_C_BPartner_Product.Table_Name,
+				I_M_ProductPrice.Table_Name,
+				I_M_FreightCost.Table_Name);
+	}
+
 	@Override
 	public LookupDataSourceFetcher getLookupDataSourceFetcher()
 	{
@@ -41,6 +41,8 @@ public class SqlForFetchingLookups
 {
 	public static final CtxName PARAM_Offset = CtxNames.ofNameAndDefaultValue("Offset", "0");
 	public static final CtxName PARAM_Limit = CtxNames.ofNameAndDefaultValue("Limit", "1000");
+	/** Comma separated IDs of the records to fetch; only used by the SQLs which are fetching records by ID, see {@link LookupDataSourceContext#withKeyIdsToFilter(java.util.Collection)} */
+	public static final CtxName PARAM_KeyIds = CtxNames.parse("KeyIds");
 
 	private final IStringExpression sql;
 
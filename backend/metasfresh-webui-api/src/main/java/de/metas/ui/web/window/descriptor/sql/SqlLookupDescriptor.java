@@ -144,6 +144,7 @@ public final class SqlLookupDescriptor implements ISqlLookupDescriptor
 	private final Optional<String> tableName;
 	private final Optional<WindowId> zoomIntoWindowId;
 	private final SqlForFetchingLookups sqlForFetchingExpression;
+	private final SqlForFetchingLookups sqlForFetchingByIdsExpression;
 	private final SqlForFetchingLookupById sqlForFetchingLookupByIdExpression;
 	private final int entityTypeIndex;
 	private final INamePairPredicate postQueryPredicate;
@@ -163,6 +164,7 @@ public final class SqlLookupDescriptor implements ISqlLookupDescriptor
 		tableName = Optional.of(builder.sqlTableName);
 		zoomIntoWindowId = builder.getZoomIntoWindowId();
 		sqlForFetchingExpression = builder.sqlForFetchingExpression;
+		sqlForFetchingByIdsExpression = builder.sqlForFetchingByIdsExpression;
 		sqlForFetchingLookupByIdExpression = builder.sqlForFetchingLookupByIdExpression;
 		entityTypeIndex = builder.entityTypeIndex;
 
@@ -272,6 +274,14 @@ public final class SqlLookupDescriptor implements ISqlLookupDescriptor
 		return sqlForFetchingExpression;
 	}
 
+	/**
+	 * @return same as {@link #getSqlForFetchingExpression()}, but restricted to the records from {@link SqlForFetchingLookups#PARAM_KeyIds} instead of paged
+	 */
+	public SqlForFetchingLookups getSqlForFetchingByIdsExpression()
+	{
+		return sqlForFetchingByIdsExpression;
+	}
+
 	@Override
 	public SqlForFetchingLookupById getSqlForFetchingLookupByIdExpression()
 	{
@@ -348,6 +358,7 @@ public final class SqlLookupDescriptor implements ISqlLookupDescriptor
 		private IValidationRule validationRuleEffective = NullValidationRule.instance;
 		private String sqlTableName;
 		private SqlForFetchingLookups sqlForFetchingExpression;
+		private SqlForFetchingLookups sqlForFetchingByIdsExpression;
 		private SqlForFetchingLookupById sqlForFetchingLookupByIdExpression;
 		private int entityTypeIndex = -1;
 
@@ -477,6 +488,7 @@ public final class SqlLookupDescriptor implements ISqlLookupDescriptor
 				sqlTableName = lookupInfo.getTableName();
 				zoomIntoAdWindowId = lookupInfo.getZoomAD_Window_ID_Override();
 				sqlForFetchingExpression = buildSqlForFetching(lookupInfo, sqlWhereFinal, lookup_SqlOrderBy);
+				sqlForFetchingByIdsExpression = buildSqlForFetchingByIds(lookupInfo, sqlWhereFinal);
 				sqlForFetchingLookupByIdExpression = buildSqlForFetchingById(lookupInfo);
 
 				if (lookupInfo.isQueryHasEntityType())
@@ -544,6 +556,16 @@ public final class SqlLookupDescriptor implements ISqlLookupDescriptor
 							.caching())
 					.build();
 
+			final SqlForFetchingLookups sqlForFetchingByIds = SqlForFetchingLookups.builder()
+					.sql(IStringExpression.composer()
+							.append(sqlSelectFrom) // SELECT ... FROM ...
+							.append("\n WHERE \n").append(sqlWhereFinal) // WHERE
+							.append("\n AND ").append(keyColumnNameFQ).append(" IN (").append(SqlForFetchingLookups.PARAM_KeyIds).append(")") // by IDs
+							.wrap(AccessSqlStringExpression.wrapper(tableName, IUserRolePermissions.SQL_FULLYQUALIFIED, getRequiredAccess(tableName))) // security
+							.build()
+							.caching())
+					.build();
+
 			final SqlForFetchingLookupById sqlForFetchingLookupById = SqlForFetchingLookupById.builder()
 					.sql(IStringExpression.composer()
 							.append("SELECT ").append("ARRAY[").append(displayColumnSql).append(", NULL]")
@@ -558,6 +580,7 @@ public final class SqlLookupDescriptor implements ISqlLookupDescriptor
 			{
 				sqlTableName = tableName;
 				sqlForFetchingExpression = sqlForFetching;
+				sqlForFetchingByIdsExpression = sqlForFetchingByIds;
 				sqlForFetchingLookupByIdExpression = sqlForFetchingLookupById;
 			}
 		}
@@ -635,6 +658,20 @@ public final class SqlLookupDescriptor implements ISqlLookupDescriptor
 					.build();
 		}
 
+		private SqlForFetchingLookups buildSqlForFetchingByIds(final MLookupInfo lookupInfo, final IStringExpression sqlWhere)
+		{
+			final String tableName = lookupInfo.getTableName();
+			return SqlForFetchingLookups.builder()
+					.sql(IStringExpression.composer()
+							.append(lookupInfo.getSelectSqlPart()) // SELECT .. FROM ...
+							.append("\n WHERE \n").append(sqlWhere) // WHERE
+							.append("\n AND ").append(lookupInfo.getKeyColumnFQ()).append(" IN (").append(SqlForFetchingLookups.PARAM_KeyIds).append(")") // by IDs
+							.wrapIfTrue(!lookupInfo.isSecurityDisabled(), AccessSqlStringExpression.wrapper(tableName, IUserRolePermissions.SQL_FULLYQUALIFIED, getRequiredAccess(tableName))) // security
+							.build()
+							.caching())
+					.build();
+		}
+
 		private SqlForFetchingLookupById buildSqlForFetchingById(final MLookupInfo lookupInfo)
 		{
 			final IStringExpression displayColumnSQL = TranslatableParameterizedStringExpression.of(lookupInfo.getDisplayColumnSql());
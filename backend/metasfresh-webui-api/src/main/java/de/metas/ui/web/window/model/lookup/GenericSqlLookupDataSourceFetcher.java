@@ -50,8 +50,9 @@ import org.slf4j.Logger;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
-public class GenericSqlLookupDataSourceFetcher implements LookupDataSourceFetcher
+public class GenericSqlLookupDataSourceFetcher implements IndexableLookupDataSourceFetcher
 {
 	@NonNull
 	private final TooltipType tooltipType;
@@ -69,6 +70,7 @@ public class GenericSqlLookupDataSourceFetcher implements LookupDataSourceFetche
 	private final int entityTypeIndex;
 
 	private final SqlForFetchingLookups sqlForFetchingExpression;
+	private final SqlForFetchingLookups sqlForFetchingByIdsExpression;
 	private final SqlForFetchingLookupById sqlForFetchingLookupByIdExpression;
 	private final INamePairPredicate postQueryPredicate;
 
@@ -85,6 +87,7 @@ public class GenericSqlLookupDataSourceFetcher implements LookupDataSourceFetche
 		numericKey = sqlLookupDescriptor.isNumericKey();
 		entityTypeIndex = sqlLookupDescriptor.getEntityTypeIndex();
 		sqlForFetchingExpression = sqlLookupDescriptor.getSqlForFetchingExpression();
+		sqlForFetchingByIdsExpression = sqlLookupDescriptor.getSqlForFetchingByIdsExpression();
 		sqlForFetchingLookupByIdExpression = sqlLookupDescriptor.getSqlForFetchingLookupByIdExpression();
 		postQueryPredicate = sqlLookupDescriptor.getPostQueryPredicate();
 
@@ -171,7 +174,29 @@ public class GenericSqlLookupDataSourceFetcher implements LookupDataSourceFetche
 	@Override
 	public LookupValuesList retrieveEntities(final LookupDataSourceContext evalCtx)
 	{
-		final String sqlForFetching = sqlForFetchingExpression.evaluate(evalCtx);
+		return retrieveEntities(sqlForFetchingExpression, evalCtx);
+	}
+
+	@Override
+	public List<IndexableLookupValue> retrieveValuesToIndexByIds(@NonNull final LookupDataSourceContext partitionCtx, @NonNull final Set<Integer> ids)
+	{
+		if (ids.isEmpty())
+		{
+			return ImmutableList.of();
+		}
+
+		final LookupDataSourceContext evalCtx = partitionCtx.withKeyIdsToFilter(ids);
+		final String adLanguage = evalCtx.getAD_Language();
+		return retrieveEntities(sqlForFetchingByIdsExpression, evalCtx)
+				.getValues()
+				.stream()
+				.map(value -> IndexableLookupValue.of(value, adLanguage))
+				.collect(ImmutableList.toImmutableList());
+	}
+
+	private LookupValuesList retrieveEntities(final SqlForFetchingLookups sqlExpression, final LookupDataSourceContext evalCtx)
+	{
+		final String sqlForFetching = sqlExpression.evaluate(evalCtx);
 		final String adLanguage = isTranslatable ? evalCtx.getAD_Language() : null;
 
 		try (final SQLNamePairIterator data = new SQLNamePairIterator(sqlForFetching, numericKey, entityTypeIndex))
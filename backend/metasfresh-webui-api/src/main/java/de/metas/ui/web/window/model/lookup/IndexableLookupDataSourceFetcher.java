@@ -0,0 +1,85 @@
+package de.metas.ui.web.window.model.lookup;
+
+import java.util.List;
+import java.util.Set;
+
+import javax.annotation.Nullable;
+
+import org.compiere.util.Evaluatee;
+
+import com.google.common.collect.ImmutableList;
+
+import de.metas.ui.web.window.datatypes.LookupValuesList;
+import lombok.NonNull;
+
+/*
+ * #%L
+ * metasfresh-webui-api
+ * %%
+ * Copyright (C) 2020 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+/**
+ * {@link LookupDataSourceFetcher} whose values can be answered from an in-memory index, see {@link IndexedLookupDataSource}.
+ * <p>
+ * The values are indexed per partition. A partition is identified by the context returned by {@link #newContextForIndexPartition(Evaluatee, int)}.
+ */
+public interface IndexableLookupDataSourceFetcher extends LookupDataSourceFetcher
+{
+	/**
+	 * @return the context of the partition to which the given lookup context belongs, i.e. everything which decides which values are matching, except the filter
+	 */
+	default LookupDataSourceContext newContextForIndexPartition(@NonNull final Evaluatee ctx, final int maxValues)
+	{
+		return newContextForFetchingList()
+				.setParentEvaluatee(ctx)
+				.putFilter(LookupDataSourceContext.FILTER_Any, LookupDataSource.FIRST_ROW, maxValues)
+				.build();
+	}
+
+	/**
+	 * @return all values of the partition, ordered like {@link #retrieveEntities(LookupDataSourceContext)} orders them; at most the number of values given to {@link #newContextForIndexPartition(Evaluatee, int)}
+	 */
+	default List<IndexableLookupValue> retrieveValuesToIndex(@NonNull final LookupDataSourceContext partitionCtx)
+	{
+		final String adLanguage = partitionCtx.getAD_Language();
+		return retrieveEntities(partitionCtx)
+				.getValues()
+				.stream()
+				.map(value -> IndexableLookupValue.of(value, adLanguage))
+				.collect(ImmutableList.toImmutableList());
+	}
+
+	/**
+	 * Used to update an index when only a few records were changed.
+	 *
+	 * @return the current values of the given records, as far as they still belong to the partition; e.g. deleted or deactivated records are not returned
+	 */
+	List<IndexableLookupValue> retrieveValuesToIndexByIds(@NonNull LookupDataSourceContext partitionCtx, @NonNull Set<Integer> ids);
+
+	/**
+	 * Called with the values which were found in the index, before they are returned, e.g. to add information which is not indexed because it's changing too often.
+	 *
+	 * @param ctx the context of the lookup request
+	 * @param filter the filter of the lookup request
+	 */
+	default LookupValuesList postProcessIndexedValues(@NonNull final LookupValuesList values, @NonNull final Evaluatee ctx, @Nullable final String filter)
+	{
+		return values;
+	}
+}
@@ -0,0 +1,71 @@
+package de.metas.ui.web.window.model.lookup;
+
+import java.util.Objects;
+
+import javax.annotation.Nullable;
+
+import com.google.common.collect.ImmutableList;
+
+import de.metas.ui.web.window.datatypes.LookupValue;
+import lombok.NonNull;
+import lombok.Value;
+
+/*
+ * #%L
+ * metasfresh-webui-api
+ * %%
+ * Copyright (C) 2020 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+/**
+ * A {@link LookupValue} together with the texts by which it can be found in a {@link LookupValuesIndex}.
+ */
+@Value
+public class IndexableLookupValue
+{
+	/**
+	 * @return value which can be found by its display name in the given language
+	 */
+	public static IndexableLookupValue of(@NonNull final LookupValue value, @Nullable final String adLanguage)
+	{
+		final String displayName = adLanguage != null ? value.getDisplayName(adLanguage) : value.getDisplayName();
+		return new IndexableLookupValue(value, ImmutableList.of(Objects.toString(displayName, "")));
+	}
+
+	/**
+	 * @param searchTexts the texts by which the value can be found; <code>null</code>s are skipped
+	 */
+	public static IndexableLookupValue ofSearchTexts(@NonNull final LookupValue value, @NonNull final String... searchTexts)
+	{
+		final ImmutableList.Builder<String> searchTextsList = ImmutableList.builder();
+		for (final String searchText : searchTexts)
+		{
+			if (searchText != null)
+			{
+				searchTextsList.add(searchText);
+			}
+		}
+		return new IndexableLookupValue(value, searchTextsList.build());
+	}
+
+	@NonNull
+	LookupValue value;
+
+	@NonNull
+	ImmutableList<String> searchTexts;
+}
@@ -0,0 +1,462 @@
+package de.metas.ui.web.window.model.lookup;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.Nullable;
+
+import org.adempiere.exceptions.AdempiereException;
+import org.adempiere.util.concurrent.CustomizableThreadFactory;
+import org.compiere.util.Evaluatee;
+import org.slf4j.Logger;
+
+import com.google.common.base.MoreObjects;
+import com.google.common.base.Stopwatch;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+
+import de.metas.cache.CCache;
+import de.metas.cache.CCache.CCacheStats;
+import de.metas.cache.CCache.CacheMapType;
+import de.metas.logging.LogManager;
+import de.metas.ui.web.window.datatypes.LookupValue;
+import de.metas.ui.web.window.datatypes.LookupValuesList;
+import de.metas.ui.web.window.datatypes.WindowId;
+import de.metas.util.Check;
+import lombok.Builder;
+import lombok.NonNull;
+import lombok.Value;
+
+
+/*
+ * #%L
+ * metasfresh-webui-api
+ * %%
+ * Copyright (C) 2020 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+/**
+ * Lookup data source for high volume lookups which answers the type-ahead requests from an in-memory {@link LookupValuesIndex} instead of the database.
+ * <p>
+ * There is one index per partition, see {@link IndexableLookupDataSourceFetcher#newContextForIndexPartition(Evaluatee, int)}.
+ * The index is loaded in background; until it's ready, or if the partition has too many values, the requests are served from database as usual.
+ * <p>
+ * An index is only used while it's up to date:
+ * <ul>
+ * <li>when some records of the lookup's table were changed, the index is updated with those records (see {@link #cacheInvalidateRecords(String, Set)}) on its next request</li>
+ * <li>when the tables the lookup depends on were changed, or when the changes can't be applied record by record anymore, the index is stale.
+ * The requests are served from database until its replacement was built in background.</li>
+ * </ul>
+ * <p>
+ * The indexes are kept in a {@link CacheMapType#TinyLFU} cache which is bounded by the indexes' estimated memory footprint.
+ * All data sources with the same {@code memoryBudgetLabel} (by default all of them) share that memory budget.
+ * Partitions whose index does not fit into that cache are served from database until the next invalidation.
+ */
+final class IndexedLookupDataSource implements LookupDataSource
+{
+	private static final Logger logger = LogManager.getLogger(IndexedLookupDataSource.class);
+
+	/** Cache label, and therefore memory budget, which is shared by the indexes of all indexed lookups */
+	private static final String DEFAULT_MEMORY_BUDGET_LABEL = "IndexedLookup";
+
+	/** If more records were changed since an index was built, it's rebuilt instead of updated */
+	private static final int MAX_CHANGED_IDS_TO_UPDATE = 1000;
+	/** How many changes are remembered in order to update the indexes */
+	private static final int MAX_CHANGES_TO_UPDATE = 100;
+
+	private static final Executor DEFAULT_INDEX_BUILDER_EXECUTOR = Executors.newSingleThreadExecutor(
+			CustomizableThreadFactory.builder()
+					.setDaemon(true)
+					.setThreadNamePrefix(IndexedLookupDataSource.class.getSimpleName())
+					.build());
+
+	private final IndexableLookupDataSourceFetcher fetcher;
+	private final String lookupTableName;
+	private final LookupDataSource sqlLookupDataSource;
+	private final int maxIndexedValues;
+	private final long maxIndexesBytes;
+	private final Executor indexBuilderExecutor;
+
+	/** Incremented on each change; indexes which were built for a lower generation are not used until they are updated or rebuilt */
+	private final AtomicLong generation = new AtomicLong(0);
+	/** The generation of the last change which can't be applied record by record */
+	private final AtomicLong staleGeneration = new AtomicLong(0);
+	/** IDs of the records which were changed, by the generation of the change; guarded by itself */
+	private final TreeMap<Long, ImmutableSet<Integer>> changedIdsByGeneration = new TreeMap<>();
+
+	private final transient CCache<LookupDataSourceContext, PartitionIndex> indexesByPartition;
+	private final Object indexesByPartitionLock = new Object();
+	private final ConcurrentHashMap<LookupDataSourceContext, CompletableFuture<Void>> indexesInProgress = new ConcurrentHashMap<>();
+	/** Partitions whose index was not admitted to {@link #indexesByPartition}, mapped to the {@link #staleGeneration} for which it was built. */
+	private final ConcurrentHashMap<LookupDataSourceContext, Long> notAdmittedPartitions = new ConcurrentHashMap<>();
+
+	@Builder
+	private IndexedLookupDataSource(
+			@NonNull final IndexableLookupDataSourceFetcher fetcher,
+			final int maxIndexedValues,
+			final long maxIndexesBytes,
+			@Nullable final String memoryBudgetLabel,
+			@Nullable final Executor indexBuilderExecutor)
+	{
+		Check.assume(maxIndexedValues > 0, "maxIndexedValues > 0");
+		Check.assume(maxIndexesBytes > 0, "maxIndexesBytes > 0");
+
+		this.fetcher = fetcher;
+		this.lookupTableName = fetcher.getLookupTableName()
+				.orElseThrow(() -> new AdempiereException("Lookups without table name can't be indexed")
+						.appendParametersToMessage()
+						.setParameter("fetcher", fetcher));
+		this.sqlLookupDataSource = fetcher.isCached()
+				? LookupDataSourceAdapter.of(fetcher)
+				: LookupDataSourceAdapter.of(CachedLookupDataSourceFetcherAdapter.of(fetcher));
+		this.maxIndexedValues = maxIndexedValues;
+		this.maxIndexesBytes = maxIndexesBytes;
+		this.indexBuilderExecutor = indexBuilderExecutor != null ? indexBuilderExecutor : DEFAULT_INDEX_BUILDER_EXECUTOR;
+
+		// NOTE: the cache's label is not the lookupTableName, because we don't want the indexes to be dropped when a record of that table is changed.
+		// Instead, they are updated or marked as stale by cacheInvalidateRecords() and cacheInvalidate().
+		// Also, the label decides which caches are sharing the memory budget.
+		final String memoryBudgetLabelEffective = memoryBudgetLabel != null ? memoryBudgetLabel : DEFAULT_MEMORY_BUDGET_LABEL;
+		indexesByPartition = CCache.<LookupDataSourceContext, PartitionIndex> builder()
+				.cacheName(memoryBudgetLabelEffective + "#" + lookupTableName + "#IndexByPartition")
+				.tableName(memoryBudgetLabelEffective)
+				.cacheMapType(CacheMapType.TinyLFU)
+				.maximumWeightInBytes(maxIndexesBytes)
+				.weigher((partitionCtx, partitionIndex) -> partitionIndex.getEstimatedBytes())
+				.expireMinutes(60 * 2)
+				.build();
+	}
+
+	@Override
+	public String toString()
+	{
+		return MoreObjects.toStringHelper(this)
+				.add("fetcher", fetcher)
+				.add("maxIndexedValues", maxIndexedValues)
+				.add("maxIndexesBytes", maxIndexesBytes)
+				.toString();
+	}
+
+	@Override
+	public LookupValuesList findEntities(final Evaluatee ctx, final int pageLength)
+	{
+		return findEntities(ctx, null, FIRST_ROW, pageLength);
+	}
+
+	@Override
+	public LookupValuesList findEntities(final Evaluatee ctx, final String filter, final int firstRow, final int pageLength)
+	{
+		final LookupValuesIndex index = LookupValuesIndex.isSupportedFilter(filter) ? getUpToDateIndex(ctx).orElse(null) : null;
+		if (index == null)
+		{
+			return sqlLookupDataSource.findEntities(ctx, filter, firstRow, pageLength);
+		}
+
+		return fetcher.postProcessIndexedValues(index.find(filter, firstRow, pageLength), ctx, filter);
+	}
+
+	/**
+	 * @return the partition's index, if it is or could be brought up to date; else, (re)building it is started in background
+	 */
+	private Optional<LookupValuesIndex> getUpToDateIndex(final Evaluatee ctx)
+	{
+		final LookupDataSourceContext partitionCtx = fetcher.newContextForIndexPartition(ctx, maxIndexedValues + 1);
+
+		final PartitionIndex partitionIndex = indexesByPartition.get(partitionCtx);
+		if (partitionIndex == null)
+		{
+			if (!isNotAdmitted(partitionCtx))
+			{
+				startBuildingIndex(partitionCtx);
+			}
+			return Optional.empty();
+		}
+
+		final PartitionIndex upToDatePartitionIndex = updateIfNeeded(partitionCtx, partitionIndex);
+		if (upToDatePartitionIndex == null)
+		{
+			startBuildingIndex(partitionCtx);
+			return Optional.empty();
+		}
+
+		if (upToDatePartitionIndex != partitionIndex)
+		{
+			putIfNotOutdated(partitionCtx, upToDatePartitionIndex);
+		}
+		return upToDatePartitionIndex.getIndex();
+	}
+
+	private boolean isNotAdmitted(final LookupDataSourceContext partitionCtx)
+	{
+		final Long notAdmittedStaleGeneration = notAdmittedPartitions.get(partitionCtx);
+		return notAdmittedStaleGeneration != null && notAdmittedStaleGeneration >= staleGeneration.get();
+	}
+
+	/**
+	 * @return the given index if it's up to date, the given index with the records which were changed meanwhile, or <code>null</code> if it has to be rebuilt
+	 */
+	@Nullable
+	private PartitionIndex updateIfNeeded(final LookupDataSourceContext partitionCtx, final PartitionIndex partitionIndex)
+	{
+		final long currentGeneration = generation.get();
+		if (partitionIndex.getGeneration() >= currentGeneration)
+		{
+			return partitionIndex;
+		}
+
+		final ImmutableSet<Integer> changedIds = getIdsChangedSince(partitionIndex.getGeneration(), currentGeneration);
+		if (changedIds == null)
+		{
+			return null;
+		}
+
+		final LookupValuesIndex index = partitionIndex.getIndex().orElse(null);
+		if (index == null)
+		{
+			// the partition has too many values => there is nothing to update
+			return partitionIndex.withGeneration(currentGeneration);
+		}
+
+		try
+		{
+			final List<IndexableLookupValue> currentValues = fetcher.retrieveValuesToIndexByIds(partitionCtx, changedIds);
+			return PartitionIndex.builder()
+					.index(index.withChangedValues(changedIds, currentValues))
+					.generation(currentGeneration)
+					.build();
+		}
+		catch (final Exception ex)
+		{
+			logger.warn("Failed updating the index for {} with the records {}. Rebuilding it.", fetcher, changedIds, ex);
+			return null;
+		}
+	}
+
+	/**
+	 * @return IDs of the records which were changed after the given generation, or <code>null</code> if there were changes which can't be applied record by record
+	 */
+	@Nullable
+	private ImmutableSet<Integer> getIdsChangedSince(final long sinceGeneration, final long toGeneration)
+	{
+		if (sinceGeneration < staleGeneration.get())
+		{
+			return null;
+		}
+
+		final Set<Integer> changedIds = new HashSet<>();
+		synchronized (changedIdsByGeneration)
+		{
+			for (long changeGeneration = sinceGeneration + 1; changeGeneration <= toGeneration; changeGeneration++)
+			{
+				final ImmutableSet<Integer> changeIds = changedIdsByGeneration.get(changeGeneration);
+				if (changeIds == null)
+				{
+					return null;
+				}
+
+				changedIds.addAll(changeIds);
+				if (changedIds.size() > MAX_CHANGED_IDS_TO_UPDATE)
+				{
+					return null;
+				}
+			}
+		}
+		return ImmutableSet.copyOf(changedIds);
+	}
+
+	private void startBuildingIndex(final LookupDataSourceContext partitionCtx)
+	{
+		final CompletableFuture<Void> future = indexesInProgress.compute(
+				partitionCtx,
+				(ctx, inProgress) -> inProgress != null && !inProgress.isDone()
+						? inProgress
+						: CompletableFuture.runAsync(() -> buildAndCacheIndex(ctx), indexBuilderExecutor));
+
+		future.whenComplete((result, ex) -> indexesInProgress.remove(partitionCtx, future));
+	}
+
+	private void buildAndCacheIndex(final LookupDataSourceContext partitionCtx)
+	{
+		final long staleGenerationAtStart = staleGeneration.get();
+		final long generationAtStart = generation.get();
+		final PartitionIndex partitionIndex = PartitionIndex.builder()
+				.index(buildIndex(partitionCtx).orElse(null))
+				.generation(generationAtStart)
+				.build();
+
+		// NOTE: the records which were changed while we were building the index are applied right away;
+		// if that's not possible, the index is stale right away and will be built again on next request
+		final PartitionIndex upToDatePartitionIndex = updateIfNeeded(partitionCtx, partitionIndex);
+
+		// NOTE: if there is a previous index, it's replaced; else the new index is added only if the cache's admission policy allows it
+		putIfNotOutdated(partitionCtx, upToDatePartitionIndex != null ? upToDatePartitionIndex : partitionIndex);
+		if (indexesByPartition.containsKey(partitionCtx))
+		{
+			notAdmittedPartitions.remove(partitionCtx);
+		}
+		else
+		{
+			logger.debug("Index {} for {} was not admitted to the indexes cache. Using SQL instead.", partitionIndex, fetcher);
+			notAdmittedPartitions.put(partitionCtx, staleGenerationAtStart);
+		}
+	}
+
+	/**
+	 * Adds the given index, unless a more recent one was added meanwhile.
+	 */
+	private void putIfNotOutdated(final LookupDataSourceContext partitionCtx, final PartitionIndex partitionIndex)
+	{
+		synchronized (indexesByPartitionLock)
+		{
+			final PartitionIndex existingPartitionIndex = indexesByPartition.get(partitionCtx);
+			if (existingPartitionIndex != null && existingPartitionIndex.getGeneration() > partitionIndex.getGeneration())
+			{
+				return;
+			}
+
+			indexesByPartition.put(partitionCtx, partitionIndex);
+		}
+	}
+
+	private Optional<LookupValuesIndex> buildIndex(final LookupDataSourceContext partitionCtx)
+	{
+		try
+		{
+			final Stopwatch stopwatch = Stopwatch.createStarted();
+
+			final List<IndexableLookupValue> values = fetcher.retrieveValuesToIndex(partitionCtx);
+			if (values.size() > maxIndexedValues)
+			{
+				logger.info("Not indexing {} because it has more than {} values. Using SQL instead.", fetcher, maxIndexedValues);
+				return Optional.empty();
+			}
+
+			final LookupValuesIndex index = LookupValuesIndex.of(values);
+			logger.debug("Built {} for {} in {}", index, fetcher, stopwatch.stop());
+			return Optional.of(index);
+		}
+		catch (final Exception ex)
+		{
+			logger.warn("Failed building the index for {}. Using SQL instead.", fetcher, ex);
+			return Optional.empty();
+		}
+	}
+
+	@Override
+	public LookupValue findById(final Object id)
+	{
+		return sqlLookupDataSource.findById(id);
+	}
+
+	@Override
+	public DocumentZoomIntoInfo getDocumentZoomInto(final int id)
+	{
+		return sqlLookupDataSource.getDocumentZoomInto(id);
+	}
+
+	@Override
+	public Optional<WindowId> getZoomIntoWindowId()
+	{
+		return fetcher.getZoomIntoWindowId();
+	}
+
+	@Override
+	public List<CCacheStats> getCacheStats()
+	{
+		return ImmutableList.<CCacheStats> builder()
+				.add(indexesByPartition.stats())
+				.addAll(sqlLookupDataSource.getCacheStats())
+				.build();
+	}
+
+	/**
+	 * Marks all indexes as stale. They are not used anymore, but rebuilt on next request.
+	 */
+	@Override
+	public void cacheInvalidate()
+	{
+		synchronized (changedIdsByGeneration)
+		{
+			staleGeneration.set(generation.incrementAndGet());
+			changedIdsByGeneration.clear();
+		}
+		sqlLookupDataSource.cacheInvalidate();
+	}
+
+	/**
+	 * Remembers the changed records of the lookup's table, so that each index is updated with them on its next request.
+	 * Changes of other tables mark all indexes as stale, like {@link #cacheInvalidate()} does.
+	 */
+	@Override
+	public void cacheInvalidateRecords(@NonNull final String tableName, @NonNull final Set<Integer> recordIds)
+	{
+		if (!lookupTableName.equals(tableName) || recordIds.isEmpty() || recordIds.size() > MAX_CHANGED_IDS_TO_UPDATE)
+		{
+			cacheInvalidate();
+			return;
+		}
+
+		synchronized (changedIdsByGeneration)
+		{
+			changedIdsByGeneration.put(generation.incrementAndGet(), ImmutableSet.copyOf(recordIds));
+			while (changedIdsByGeneration.size() > MAX_CHANGES_TO_UPDATE)
+			{
+				changedIdsByGeneration.pollFirstEntry();
+			}
+		}
+		sqlLookupDataSource.cacheInvalidate();
+	}
+
+	/**
+	 * The index of one partition. Immutable, because the cache is weighing it when it's added.
+	 */
+	@Value
+	@Builder(toBuilder = true)
+	private static class PartitionIndex
+	{
+		/** null if the partition has too many values or if building the index failed */
+		@Nullable
+		LookupValuesIndex index;
+
+		long generation;
+
+		public Optional<LookupValuesIndex> getIndex()
+		{
+			return Optional.ofNullable(index);
+		}
+
+		public PartitionIndex withGeneration(final long generation)
+		{
+			return toBuilder().generation(generation).build();
+		}
+
+		public int getEstimatedBytes()
+		{
+			final long indexBytes = index != null ? index.getEstimatedBytes() : 0;
+			return (int)Math.min(Integer.MAX_VALUE, 64 + indexBytes);
+		}
+	}
+}
@@ -1,11 +1,15 @@
 package de.metas.ui.web.window.model.lookup;
 
+import com.google.common.collect.HashMultimap;
 import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.ImmutableSetMultimap;
+import com.google.common.collect.SetMultimap;
 import de.metas.cache.CacheMgt;
 import de.metas.cache.ICacheResetListener;
 import de.metas.cache.model.CacheInvalidateMultiRequest;
 import de.metas.cache.model.CacheInvalidateRequest;
 import de.metas.util.Services;
+import lombok.NonNull;
 import org.adempiere.ad.trx.api.ITrx;
 import org.adempiere.ad.trx.api.ITrxListenerManager.TrxEventTiming;
 import org.adempiere.ad.trx.api.ITrxManager;
@@ -14,9 +18,7 @@ import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
 import org.springframework.stereotype.Component;
 
 import javax.annotation.PostConstruct;
-import java.util.Collection;
 import java.util.HashSet;
-import java.util.Objects;
 import java.util.Set;
 import java.util.concurrent.Executor;
 import java.util.concurrent.Executors;
@@ -45,6 +47,7 @@ import java.util.concurrent.Executors;
 
 /**
  * This component listens to all cache invalidation events (see {@link CacheMgt}) and invalidates the lookup descriptors which depend on a given table(s).
+ * If only some records of a table were changed, the lookups are told which ones, see {@link LookupDataSource#cacheInvalidateRecords(String, Set)}.
  *
  * @author metas-dev <dev@metasfresh.com>
  *
@@ -52,7 +55,7 @@ import java.util.concurrent.Executors;
 @Component
 public class LookupCacheInvalidationDispatcher implements ICacheResetListener
 {
-	private static final String TRXPROP_TableNamesToInvalidate = LookupCacheInvalidationDispatcher.class + ".TableNamesToInvalidate";
+	private static final String TRXPROP_ChangedRecordsToInvalidate = LookupCacheInvalidationDispatcher.class + ".ChangedRecordsToInvalidate";
 
 	private final Executor async;
 
@@ -78,69 +81,125 @@ public class LookupCacheInvalidationDispatcher implements ICacheResetListener
 		final ITrx currentTrx = trxManager.getThreadInheritedTrx(OnTrxMissingPolicy.ReturnTrxNone);
 		if (trxManager.isNull(currentTrx))
 		{
-			async.execute(() -> resetNow(extractTableNames(multiRequest)));
+			final ChangedRecordsCollector collector = new ChangedRecordsCollector();
+			collector.addRequests(multiRequest);
+			async.execute(() -> resetNow(collector));
 		}
 		else
 		{
-			final TableNamesToResetCollector collector = currentTrx.getProperty(TRXPROP_TableNamesToInvalidate, trx -> {
-				final TableNamesToResetCollector c = new TableNamesToResetCollector();
+			final ChangedRecordsCollector collector = currentTrx.getProperty(TRXPROP_ChangedRecordsToInvalidate, trx -> {
+				final ChangedRecordsCollector c = new ChangedRecordsCollector();
 				trx.getTrxListenerManager()
 						.newEventListener(TrxEventTiming.AFTER_COMMIT)
 						.registerHandlingMethod(innerTrx -> {
-							final Set<String> tableNames = c.toSet();
-							if (tableNames.isEmpty())
+							if (c.isEmpty())
 							{
 								return;
 							}
-							async.execute(() -> resetNow(tableNames));
+							async.execute(() -> resetNow(c));
 						});
 				return c;
 			});
 
-			collector.addTableNames(extractTableNames(multiRequest));
+			collector.addRequests(multiRequest);
 		}
 
 		return 1; // not relevant
 	}
 
-	private Set<String> extractTableNames(final CacheInvalidateMultiRequest multiRequest)
+	private void resetNow(final ChangedRecordsCollector collector)
 	{
-		if (multiRequest.isResetAll())
+		final Set<String> tableNames = collector.getTableNamesWithAllRecordsChanged();
+		final SetMultimap<String, Integer> recordIdsByTableName = collector.getChangedRecordIdsByTableName();
+		if (tableNames.isEmpty() && recordIdsByTableName.isEmpty())
 		{
-			// not relevant for our lookups
-			return ImmutableSet.of();
+			return;
 		}
 
-		return multiRequest.getRequests()
-				.stream()
-				.filter(request -> !request.isAll()) // not relevant for our lookups
-				.map(CacheInvalidateRequest::getTableNameEffective)
-				.filter(Objects::nonNull)
-				.collect(ImmutableSet.toImmutableSet());
+		final LookupDataSourceFactory lookupDataSourceFactory = LookupDataSourceFactory.instance;
+		lookupDataSourceFactory.cacheInvalidateOnRecordsChanged(tableNames);
+		recordIdsByTableName.asMap().forEach((tableName, recordIds) -> lookupDataSourceFactory.cacheInvalidateOnRecordsChanged(tableName, ImmutableSet.copyOf(recordIds)));
 	}
 
-	private void resetNow(final Set<String> tableNames)
+	/**
+	 * Collects the changed records per table, so that the lookups can update their caches record by record.
+	 * Tables of which all records or too many records were changed are collected by table name only.
+	 */
+	private static final class ChangedRecordsCollector
 	{
-		if (tableNames.isEmpty())
+		private static final int MAX_RECORD_IDS_PER_TABLE = 1000;
+
+		private final Set<String> tableNamesWithAllRecordsChanged = new HashSet<>();
+		private final SetMultimap<String, Integer> recordIdsByTableName = HashMultimap.create();
+
+		public synchronized boolean isEmpty()
 		{
-			return;
+			return tableNamesWithAllRecordsChanged.isEmpty() && recordIdsByTableName.isEmpty();
 		}
 
-		LookupDataSourceFactory.instance.cacheInvalidateOnRecordsChanged(tableNames);
-	}
+		public synchronized Set<String> getTableNamesWithAllRecordsChanged()
+		{
+			return ImmutableSet.copyOf(tableNamesWithAllRecordsChanged);
+		}
 
-	private static final class TableNamesToResetCollector
-	{
-		private final Set<String> tableNames = new HashSet<>();
+		public synchronized SetMultimap<String, Integer> getChangedRecordIdsByTableName()
+		{
+			return ImmutableSetMultimap.copyOf(recordIdsByTableName);
+		}
+
+		public synchronized void addRequests(@NonNull final CacheInvalidateMultiRequest multiRequest)
+		{
+			if (multiRequest.isResetAll())
+			{
+				// not relevant for our lookups
+				return;
+			}
+
+			for (final CacheInvalidateRequest request : multiRequest.getRequests())
+			{
+				if (request.isAll())
+				{
+					continue; // not relevant for our lookups
+				}
+
+				final String tableName = request.getTableNameEffective();
+				if (tableName == null)
+				{
+					continue;
+				}
+
+				if (request.isAllRecords())
+				{
+					addTableNameWithAllRecordsChanged(tableName);
+				}
+				else
+				{
+					addRecordId(tableName, request.getRecordIdEffective());
+				}
+			}
+		}
 
-		public Set<String> toSet()
+		private void addTableNameWithAllRecordsChanged(final String tableName)
 		{
-			return ImmutableSet.copyOf(tableNames);
+			tableNamesWithAllRecordsChanged.add(tableName);
+			recordIdsByTableName.removeAll(tableName);
 		}
 
-		public void addTableNames(final Collection<String> tableNamesToAdd)
+		private void addRecordId(final String tableName, final int recordId)
 		{
-			tableNames.addAll(tableNamesToAdd);
+			if (tableNamesWithAllRecordsChanged.contains(tableName))
+			{
+				return;
+			}
+
+			final Set<Integer> recordIds = recordIdsByTableName.get(tableName);
+			if (recordIds.size() >= MAX_RECORD_IDS_PER_TABLE)
+			{
+				addTableNameWithAllRecordsChanged(tableName);
+				return;
+			}
+
+			recordIds.add(recordId);
 		}
 	}
 }
@@ -12,6 +12,7 @@ import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
 
 /*
  * #%L
@@ -90,4 +91,13 @@ public interface LookupDataSource extends LookupValueByIdSupplier
 	Optional<WindowId> getZoomIntoWindowId();
 
 	void cacheInvalidate();
+
+	/**
+	 * Called when only the given records of the given table were changed.
+	 * Data sources which are able to update their cache record by record shall override it; by default, the whole cache is invalidated.
+	 */
+	default void cacheInvalidateRecords(@NonNull final String tableName, @NonNull final Set<Integer> recordIds)
+	{
+		cacheInvalidate();
+	}
 }
@@ -26,6 +26,7 @@ import org.compiere.util.NamePair;
 import org.compiere.util.TimeUtil;
 import org.slf4j.Logger;
 
+import com.google.common.base.Joiner;
 import com.google.common.collect.ImmutableMap;
 
 import de.metas.logging.LogManager;
@@ -330,6 +331,16 @@ public final class LookupDataSourceContext implements Evaluatee2, IValidationCon
 		return idToFilter != null ? idToFilter.toString() : null;
 	}
 
+	/**
+	 * @return copy of this context which is restricted to the records with the given IDs, see {@link SqlForFetchingLookups#PARAM_KeyIds}
+	 */
+	public LookupDataSourceContext withKeyIdsToFilter(@NonNull final Collection<Integer> keyIds)
+	{
+		final Map<String, Object> values = new LinkedHashMap<>(parameterValues);
+		values.put(SqlForFetchingLookups.PARAM_KeyIds.getName(), Joiner.on(",").join(keyIds));
+		return new LookupDataSourceContext(lookupTableName, values, idToFilter, postQueryPredicate);
+	}
+
 	public ViewId getViewId()
 	{
 		final ViewId viewId = get_ValueAsObject(PARAM_ViewId.getName());
@@ -502,6 +513,15 @@ public final class LookupDataSourceContext implements Evaluatee2, IValidationCon
 			return this;
 		}
 
+		/**
+		 * Puts a value which is not taken from the parent evaluatee and which shall be present in the context that will be build
+		 */
+		public Builder putRequiredValue(@NonNull final CtxName name, @NonNull final Object value)
+		{
+			requiresParameter(name);
+			return putValue(name, value);
+		}
+
 		public Builder putFilter(final String filter, final int offset, final int limit)
 		{
 			putValue(PARAM_Filter, filter);
@@ -1,5 +1,6 @@
 package de.metas.ui.web.window.model.lookup;
 
+import com.google.common.base.Splitter;
 import de.metas.cache.CCache;
 import de.metas.cache.CCache.CCacheStats;
 import de.metas.logging.LogManager;
@@ -10,6 +11,7 @@ import de.metas.util.Services;
 import lombok.NonNull;
 import lombok.ToString;
 import org.adempiere.ad.table.api.IADTableDAO;
+import org.adempiere.service.ISysConfigBL;
 import org.compiere.model.I_AD_Column;
 import org.compiere.model.I_M_AttributeSetInstance;
 import org.slf4j.Logger;
@@ -51,6 +53,13 @@ public final class LookupDataSourceFactory
 
 	private static final Logger logger = LogManager.getLogger(LookupDataSourceFactory.class);
 
+	/** Comma separated names of the tables whose high volume lookups shall be answered from an in-memory index. Empty means no index. */
+	private static final String SYSCONFIG_IndexedLookupTableNames = "de.metas.ui.web.window.model.lookup.LookupDataSourceFactory.IndexedLookup.TableNames";
+	/** Partitions with more values than this are not indexed but are queried from database */
+	private static final String SYSCONFIG_IndexedLookupMaxValues = "de.metas.ui.web.window.model.lookup.LookupDataSourceFactory.IndexedLookup.MaxValues";
+	/** Memory budget (in MB) which is shared by the indexes of all indexed lookups; the indexes of the least frequently used partitions are not kept if they don't fit */
+	private static final String SYSCONFIG_IndexedLookupMaxMemoryMB = "de.metas.ui.web.window.model.lookup.LookupDataSourceFactory.IndexedLookup.MaxMemoryMB";
+
 	private final CCache<LookupDescriptor, LookupDataSource> lookupDataSourcesCache = new CCache<>("LookupDataSourcesCache", 300);
 	private final ConcurrentHashMap<String, CacheInvalidationGroup> cacheInvalidationGroupsByTableName = new ConcurrentHashMap<>();
 
@@ -122,7 +131,16 @@ public final class LookupDataSourceFactory
 		final LookupDataSourceFetcher fetcher = lookupDescriptor.getLookupDataSourceFetcher();
 
 		final LookupDataSource lookupDataSource;
-		if (fetcher.isCached())
+		if (isIndexedLookup(lookupDescriptor, fetcher))
+		{
+			final ISysConfigBL sysConfigBL = Services.get(ISysConfigBL.class);
+			lookupDataSource = IndexedLookupDataSource.builder()
+					.fetcher((IndexableLookupDataSourceFetcher)fetcher)
+					.maxIndexedValues(sysConfigBL.getIntValue(SYSCONFIG_IndexedLookupMaxValues, 500000))
+					.maxIndexesBytes(sysConfigBL.getIntValue(SYSCONFIG_IndexedLookupMaxMemoryMB, 256) * 1024L * 1024L)
+					.build();
+		}
+		else if (fetcher.isCached())
 		{
 			lookupDataSource = LookupDataSourceAdapter.of(fetcher);
 		}
@@ -147,6 +165,34 @@ public final class LookupDataSourceFactory
 		return lookupDataSource;
 	}
 
+	/**
+	 * Only lookups with numeric keys which are not fully cached anyway are indexed,
+	 * and only if their fetcher is matching the same way as the index does, see {@link IndexableLookupDataSourceFetcher}.
+	 */
+	private static boolean isIndexedLookup(@NonNull final LookupDescriptor lookupDescriptor, @NonNull final LookupDataSourceFetcher fetcher)
+	{
+		if (!(fetcher instanceof IndexableLookupDataSourceFetcher)
+				|| !fetcher.isNumericKey()
+				|| (!lookupDescriptor.isHighVolume() && !lookupDescriptor.hasParameters()))
+		{
+			return false;
+		}
+
+		final String tableName = fetcher.getLookupTableName().orElse(null);
+		if (tableName == null)
+		{
+			return false;
+		}
+
+		final String indexedTableNames = Services.get(ISysConfigBL.class).getValue(SYSCONFIG_IndexedLookupTableNames, "");
+		return Splitter.on(',')
+				.trimResults()
+				.omitEmptyStrings()
+				.splitToList(indexedTableNames)
+				.stream()
+				.anyMatch(tableName::equalsIgnoreCase);
+	}
+
 	private CacheInvalidationGroup getCacheInvalidationGroupByTableName(final String tableName)
 	{
 		return cacheInvalidationGroupsByTableName.computeIfAbsent(tableName, CacheInvalidationGroup::new);
@@ -160,6 +206,17 @@ public final class LookupDataSourceFactory
 				.forEach(CacheInvalidationGroup::cacheInvalidate);
 	}
 
+	public void cacheInvalidateOnRecordsChanged(@NonNull final String tableName, @NonNull final Set<Integer> recordIds)
+	{
+		final CacheInvalidationGroup cacheInvalidationGroup = cacheInvalidationGroupsByTableName.get(tableName);
+		if (cacheInvalidationGroup == null)
+		{
+			return;
+		}
+
+		cacheInvalidationGroup.cacheInvalidateRecords(recordIds);
+	}
+
 	public List<CCacheStats> getCacheStats()
 	{
 		return lookupDataSourcesCache
@@ -227,5 +284,21 @@ public final class LookupDataSourceFactory
 				}
 			}
 		}
+
+		public void cacheInvalidateRecords(final Set<Integer> recordIds)
+		{
+			for (final LookupDataSource lookupDataSource : purgeAndGet())
+			{
+				try
+				{
+					lookupDataSource.cacheInvalidateRecords(tableName, recordIds);
+					logger.debug("Cache invalidated {} on {} records {} changed", lookupDataSource, tableName, recordIds);
+				}
+				catch (final Exception ex)
+				{
+					logger.warn("Failed invalidating {}. Skipped", lookupDataSource, ex);
+				}
+			}
+		}
 	}
 }
@@ -0,0 +1,528 @@
+package de.metas.ui.web.window.model.lookup;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.Nullable;
+
+import org.adempiere.util.lang.MutableInt;
+
+import com.google.common.base.MoreObjects;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+
+import de.metas.ui.web.window.datatypes.LookupValue;
+import de.metas.ui.web.window.datatypes.LookupValuesList;
+import lombok.NonNull;
+
+
+/*
+ * #%L
+ * metasfresh-webui-api
+ * %%
+ * Copyright (C) 2020 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+/**
+ * In-memory trigram index over the search texts (usually the display names) of lookup values.
+ * <p>
+ * Matches the same way as the SQL lookups do (i.e. <code>unaccent(DisplayName) ILIKE unaccent('%filter%')</code>),
+ * so that it can answer type-ahead requests instead of the database.
+ * Filters shorter than 3 characters are answered by scanning all values.
+ * <p>
+ * The values are kept in the order in which they were loaded, so the results are ordered like the SQL ones.
+ * If a value was loaded more than once (e.g. once per business partner), only its first occurrence is returned.
+ * <p>
+ * The index is immutable. Changed records are applied via {@link #withChangedValues(Set, List)}, which shares the trigrams with the original index
+ * and keeps the changed values apart, ordered by display name, until there are so many of them that the index is rebuilt.
+ */
+final class LookupValuesIndex
+{
+	public static LookupValuesIndex of(@NonNull final LookupValuesList values, @Nullable final String adLanguage)
+	{
+		return of(values.getValues()
+				.stream()
+				.map(value -> IndexableLookupValue.of(value, adLanguage))
+				.collect(ImmutableList.toImmutableList()));
+	}
+
+	public static LookupValuesIndex of(@NonNull final List<IndexableLookupValue> values)
+	{
+		return new LookupValuesIndex(values);
+	}
+
+	private static final int NGRAM_LENGTH = 3;
+	private static final int[] NO_POSITIONS = new int[] {};
+
+	/** Separates the normalized search texts of one value; it can't be part of a filter, so a filter never matches across two search texts */
+	private static final char SEARCH_TEXTS_SEPARATOR = '\u0000';
+
+	/** The index is rebuilt when more than {@link #MAX_CHANGES} values and more than {@link #MAX_CHANGES_PERCENT} percent of its values were changed */
+	private static final int MAX_CHANGES = 1000;
+	private static final int MAX_CHANGES_PERCENT = 5;
+
+	/** Rough estimations of the shallow object sizes, in bytes; only used to estimate the index size. */
+	private static final int OBJECT_HEADER_BYTES = 16;
+	private static final int REFERENCE_BYTES = 8;
+	private static final int LOOKUP_VALUE_BYTES = 128;
+	private static final int MAP_ENTRY_BYTES = 48;
+
+	private final ImmutableList<LookupValue> values;
+	private final String[] normalizedSearchTexts;
+	private final Map<String, int[]> positionsByTrigram;
+	private final boolean hasDuplicateIds;
+	private final long baseEstimatedBytes;
+
+	/** IDs of the changed records; their values from {@link #values} are not returned anymore */
+	private final ImmutableSet<Object> changedIds;
+	/** Current values of the changed records, ordered by display name */
+	private final ImmutableList<IndexableLookupValue> changedValues;
+	private final String[] changedNormalizedSearchTexts;
+	private final String[] changedSortKeys;
+
+	private final long estimatedBytes;
+
+	private LookupValuesIndex(@NonNull final List<IndexableLookupValue> valuesToIndex)
+	{
+		final int size = valuesToIndex.size();
+		final ImmutableList.Builder<LookupValue> values = ImmutableList.builderWithExpectedSize(size);
+		normalizedSearchTexts = new String[size];
+		final Set<Object> ids = new HashSet<>(size);
+
+		final Map<String, PositionsBuilder> positionsBuilders = new HashMap<>();
+		for (int position = 0; position < size; position++)
+		{
+			final IndexableLookupValue valueToIndex = valuesToIndex.get(position);
+			values.add(valueToIndex.getValue());
+			ids.add(valueToIndex.getValue().getId());
+
+			final String searchTextsNorm = normalizeSearchTexts(valueToIndex);
+			normalizedSearchTexts[position] = searchTextsNorm;
+
+			for (final String trigram : extractTrigrams(searchTextsNorm))
+			{
+				positionsBuilders.computeIfAbsent(trigram, k -> new PositionsBuilder()).add(position);
+			}
+		}
+		this.values = values.build();
+		hasDuplicateIds = ids.size() < size;
+
+		positionsByTrigram = new HashMap<>(positionsBuilders.size());
+		positionsBuilders.forEach((trigram, positionsBuilder) -> positionsByTrigram.put(trigram, positionsBuilder.toArray()));
+
+		baseEstimatedBytes = estimateBaseBytes();
+
+		changedIds = ImmutableSet.of();
+		changedValues = ImmutableList.of();
+		changedNormalizedSearchTexts = new String[] {};
+		changedSortKeys = new String[] {};
+		estimatedBytes = baseEstimatedBytes;
+	}
+
+	private LookupValuesIndex(
+			@NonNull final LookupValuesIndex base,
+			@NonNull final ImmutableSet<Object> changedIds,
+			@NonNull final ImmutableList<IndexableLookupValue> changedValues)
+	{
+		values = base.values;
+		normalizedSearchTexts = base.normalizedSearchTexts;
+		positionsByTrigram = base.positionsByTrigram;
+		hasDuplicateIds = base.hasDuplicateIds;
+		baseEstimatedBytes = base.baseEstimatedBytes;
+
+		this.changedIds = changedIds;
+		this.changedValues = changedValues;
+		changedNormalizedSearchTexts = changedValues.stream().map(LookupValuesIndex::normalizeSearchTexts).toArray(String[]::new);
+		changedSortKeys = changedValues.stream().map(LookupValuesIndex::extractSortKey).toArray(String[]::new);
+
+		long changesBytes = 0;
+		for (int i = 0; i < changedValues.size(); i++)
+		{
+			changesBytes += 3 * REFERENCE_BYTES + LOOKUP_VALUE_BYTES
+					+ 2 * estimateStringBytes(changedNormalizedSearchTexts[i].length())
+					+ estimateStringBytes(changedSortKeys[i].length());
+		}
+		changesBytes += (long)changedIds.size() * (MAP_ENTRY_BYTES + OBJECT_HEADER_BYTES);
+		estimatedBytes = baseEstimatedBytes + changesBytes;
+	}
+
+	private long estimateBaseBytes()
+	{
+		long bytes = 0;
+		for (final String searchTextsNorm : normalizedSearchTexts)
+		{
+			// the value itself (incl. its display name) and the normalized search texts
+			bytes += 2 * REFERENCE_BYTES + LOOKUP_VALUE_BYTES + 2 * estimateStringBytes(searchTextsNorm.length());
+		}
+		for (final int[] positions : positionsByTrigram.values())
+		{
+			bytes += MAP_ENTRY_BYTES + estimateStringBytes(NGRAM_LENGTH) + OBJECT_HEADER_BYTES + 4L * positions.length;
+		}
+		return bytes;
+	}
+
+	private static long estimateStringBytes(final int length)
+	{
+		return OBJECT_HEADER_BYTES + 24 + 2L * length;
+	}
+
+	@Override
+	public String toString()
+	{
+		return MoreObjects.toStringHelper(this)
+				.add("size", values.size())
+				.add("trigrams", positionsByTrigram.size())
+				.add("changes", changedIds.size())
+				.add("estimatedBytes", estimatedBytes)
+				.toString();
+	}
+
+	/**
+	 * @return rough estimation of this index's memory footprint
+	 */
+	public long getEstimatedBytes()
+	{
+		return estimatedBytes;
+	}
+
+	/**
+	 * @return false if the given filter contains SQL wildcards, which are not supported by this index
+	 */
+	public static boolean isSupportedFilter(@Nullable final String filter)
+	{
+		return filter == null
+				|| (filter.indexOf('%') < 0 && filter.indexOf('_') < 0);
+	}
+
+	/**
+	 * @param ids the IDs of the changed records
+	 * @param currentValues the current values of those records which still belong to the index; the others are removed
+	 * @return index with the given records changed
+	 */
+	public LookupValuesIndex withChangedValues(@NonNull final Set<Integer> ids, @NonNull final List<IndexableLookupValue> currentValues)
+	{
+		if (ids.isEmpty())
+		{
+			return this;
+		}
+
+		final ImmutableSet<Object> changedIdsNew = ImmutableSet.<Object> builder()
+				.addAll(changedIds)
+				.addAll(ids)
+				.build();
+
+		final ArrayList<IndexableLookupValue> changedValuesNew = new ArrayList<>(changedValues.size() + currentValues.size());
+		changedValues.stream()
+				.filter(changedValue -> !ids.contains(changedValue.getValue().getId()))
+				.forEach(changedValuesNew::add);
+		changedValuesNew.addAll(currentValues);
+		changedValuesNew.sort(Comparator.comparing(LookupValuesIndex::extractSortKey)); // stable, keeps the order of the values with the same display name
+
+		final LookupValuesIndex index = new LookupValuesIndex(this, changedIdsNew, ImmutableList.copyOf(changedValuesNew));
+		return index.isTooManyChanges() ? index.rebuild() : index;
+	}
+
+	private boolean isTooManyChanges()
+	{
+		final int changesCount = changedIds.size();
+		return changesCount > MAX_CHANGES
+				&& changesCount * 100L > (long)values.size() * MAX_CHANGES_PERCENT;
+	}
+
+	/**
+	 * @return index which contains all current values, without a separate list of changed values
+	 */
+	private LookupValuesIndex rebuild()
+	{
+		final List<IndexableLookupValue> allValues = new ArrayList<>(values.size() + changedValues.size());
+		forEachValue(null, null, (value, searchTextsNorm) -> {
+			allValues.add(IndexableLookupValue.ofSearchTexts(value, searchTextsNorm));
+			return true;
+		});
+		return of(allValues);
+	}
+
+	public LookupValuesList find(@Nullable final String filter, final int firstRow, final int pageLength)
+	{
+		final int offset = Math.max(firstRow, 0);
+		final int limit = pageLength <= 0 ? Integer.MAX_VALUE : pageLength;
+
+		final String filterNorm = normalize(filter != null ? filter.trim() : null);
+		if (filterNorm.isEmpty() && !hasDuplicateIds && changedIds.isEmpty())
+		{
+			return LookupValuesList.fromCollection(values.subList(Math.min(offset, values.size()), (int)Math.min((long)offset + limit, values.size())));
+		}
+
+		final int[] candidatePositions = filterNorm.isEmpty() ? null : getCandidatePositions(filterNorm);
+
+		final List<LookupValue> result = new ArrayList<>(Math.min(limit, 100));
+		final Set<Object> seenIds = new HashSet<>();
+		final MutableInt skipped = new MutableInt(0);
+		forEachValue(candidatePositions, filterNorm, (value, searchTextsNorm) -> {
+			if (!seenIds.add(value.getId()))
+			{
+				return true;
+			}
+
+			if (skipped.getValue() < offset)
+			{
+				skipped.incrementAndGet();
+				return true;
+			}
+
+			result.add(value);
+			return result.size() < limit;
+		});
+
+		return LookupValuesList.fromCollection(result);
+	}
+
+	@FunctionalInterface
+	private interface ValueConsumer
+	{
+		/** @return true to continue with the next value */
+		boolean accept(LookupValue value, String searchTextsNorm);
+	}
+
+	/**
+	 * Iterates the current values which are matching the given filter, ordered like they were loaded;
+	 * the changed values are merged in by display name.
+	 *
+	 * @param candidatePositions positions of the values to consider; <code>null</code> means all
+	 * @param filterNorm normalized filter; <code>null</code> means matching everything
+	 */
+	private void forEachValue(
+			@Nullable final int[] candidatePositions,
+			@Nullable final String filterNorm,
+			@NonNull final ValueConsumer consumer)
+	{
+		final int candidatesCount = candidatePositions != null ? candidatePositions.length : values.size();
+		int candidateIndex = nextMatchingCandidateIndex(candidatePositions, candidatesCount, 0, filterNorm);
+		int changedIndex = nextMatchingChangedIndex(0, filterNorm);
+		while (candidateIndex < candidatesCount || changedIndex < changedValues.size())
+		{
+			final boolean continueIterating;
+			if (candidateIndex >= candidatesCount
+					|| (changedIndex < changedValues.size() && isBefore(changedIndex, candidatePosition(candidatePositions, candidateIndex))))
+			{
+				continueIterating = consumer.accept(changedValues.get(changedIndex).getValue(), changedNormalizedSearchTexts[changedIndex]);
+				changedIndex = nextMatchingChangedIndex(changedIndex + 1, filterNorm);
+			}
+			else
+			{
+				final int position = candidatePosition(candidatePositions, candidateIndex);
+				continueIterating = consumer.accept(values.get(position), normalizedSearchTexts[position]);
+				candidateIndex = nextMatchingCandidateIndex(candidatePositions, candidatesCount, candidateIndex + 1, filterNorm);
+			}
+
+			if (!continueIterating)
+			{
+				return;
+			}
+		}
+	}
+
+	private static int candidatePosition(@Nullable final int[] candidatePositions, final int candidateIndex)
+	{
+		return candidatePositions != null ? candidatePositions[candidateIndex] : candidateIndex;
+	}
+
+	private int nextMatchingCandidateIndex(
+			@Nullable final int[] candidatePositions,
+			final int candidatesCount,
+			final int fromCandidateIndex,
+			@Nullable final String filterNorm)
+	{
+		for (int candidateIndex = fromCandidateIndex; candidateIndex < candidatesCount; candidateIndex++)
+		{
+			final int position = candidatePosition(candidatePositions, candidateIndex);
+			if (filterNorm != null && !normalizedSearchTexts[position].contains(filterNorm))
+			{
+				continue;
+			}
+			if (!changedIds.isEmpty() && changedIds.contains(values.get(position).getId()))
+			{
+				continue;
+			}
+			return candidateIndex;
+		}
+		return candidatesCount;
+	}
+
+	private int nextMatchingChangedIndex(final int fromChangedIndex, @Nullable final String filterNorm)
+	{
+		for (int changedIndex = fromChangedIndex; changedIndex < changedValues.size(); changedIndex++)
+		{
+			if (filterNorm == null || changedNormalizedSearchTexts[changedIndex].contains(filterNorm))
+			{
+				return changedIndex;
+			}
+		}
+		return changedValues.size();
+	}
+
+	private boolean isBefore(final int changedIndex, final int position)
+	{
+		final String positionSortKey = normalize(values.get(position).getDisplayName());
+		return changedSortKeys[changedIndex].compareTo(positionSortKey) < 0;
+	}
+
+	/**
+	 * @return ascending positions of the values which might contain the given filter; for short filters, all positions
+	 */
+	private int[] getCandidatePositions(final String filterNorm)
+	{
+		final Set<String> trigrams = extractTrigrams(filterNorm);
+		if (trigrams.isEmpty())
+		{
+			final int[] allPositions = new int[values.size()];
+			Arrays.setAll(allPositions, i -> i);
+			return allPositions;
+		}
+
+		final List<int[]> positionsList = new ArrayList<>(trigrams.size());
+		for (final String trigram : trigrams)
+		{
+			final int[] positions = positionsByTrigram.get(trigram);
+			if (positions == null)
+			{
+				return NO_POSITIONS;
+			}
+			positionsList.add(positions);
+		}
+
+		// intersect, starting with the most selective trigram
+		positionsList.sort(Comparator.comparing(positions -> positions.length));
+		int[] result = positionsList.get(0);
+		for (int i = 1; i < positionsList.size() && result.length > 0; i++)
+		{
+			result = intersect(result, positionsList.get(i));
+		}
+		return result;
+	}
+
+	private static int[] intersect(final int[] sortedPositions1, final int[] sortedPositions2)
+	{
+		final int[] result = new int[Math.min(sortedPositions1.length, sortedPositions2.length)];
+		int count = 0;
+		int i1 = 0;
+		int i2 = 0;
+		while (i1 < sortedPositions1.length && i2 < sortedPositions2.length)
+		{
+			final int position1 = sortedPositions1[i1];
+			final int position2 = sortedPositions2[i2];
+			if (position1 == position2)
+			{
+				result[count++] = position1;
+				i1++;
+				i2++;
+			}
+			else if (position1 < position2)
+			{
+				i1++;
+			}
+			else
+			{
+				i2++;
+			}
+		}
+
+		return count == result.length ? result : Arrays.copyOf(result, count);
+	}
+
+	private static Set<String> extractTrigrams(final String stringNorm)
+	{
+		final Set<String> trigrams = new LinkedHashSet<>();
+		for (int i = 0; i + NGRAM_LENGTH <= stringNorm.length(); i++)
+		{
+			trigrams.add(stringNorm.substring(i, i + NGRAM_LENGTH));
+		}
+		return trigrams;
+	}
+
+	private static String normalizeSearchTexts(@NonNull final IndexableLookupValue value)
+	{
+		final StringBuilder result = new StringBuilder();
+		for (final String searchText : value.getSearchTexts())
+		{
+			if (result.length() > 0)
+			{
+				result.append(SEARCH_TEXTS_SEPARATOR);
+			}
+			result.append(normalize(searchText));
+		}
+		return result.toString();
+	}
+
+	private static String extractSortKey(@NonNull final IndexableLookupValue value)
+	{
+		return normalize(value.getValue().getDisplayName());
+	}
+
+	/**
+	 * Lower case, without diacritics; similar to what <code>unaccent_string(..., 1)</code> and <code>ILIKE</code> are doing in database.
+	 */
+	static String normalize(@Nullable final String string)
+	{
+		if (string == null || string.isEmpty())
+		{
+			return "";
+		}
+
+		final String decomposed = Normalizer.normalize(string, Normalizer.Form.NFD);
+		final StringBuilder result = new StringBuilder(decomposed.length());
+		for (int i = 0; i < decomposed.length(); i++)
+		{
+			final char ch = decomposed.charAt(i);
+			if (Character.getType(ch) == Character.NON_SPACING_MARK)
+			{
+				continue;
+			}
+			result.append(Character.toLowerCase(ch));
+		}
+		return result.toString();
+	}
+
+	private static final class PositionsBuilder
+	{
+		private int[] positions = new int[4];
+		private int size = 0;
+
+		public void add(final int position)
+		{
+			if (size >= positions.length)
+			{
+				positions = Arrays.copyOf(positions, positions.length * 2);
+			}
+			positions[size++] = position;
+		}
+
+		public int[] toArray()
+		{
+			return Arrays.copyOf(positions, size);
+		}
+	}
+}
@@ -0,0 +1,45 @@
+package de.metas.ui.web.dashboard;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+
+
+/*
+ * #%L
+ * metasfresh-webui-api
+ * %%
+ * Copyright (C) 2020 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+public class KPIDatasourceTypeTest
+{
+	@Test
+	public void elasticsearchQuery()
+	{
+		assertThat(KPIDatasourceType.ofQuery("{ \"size\": 0, \"aggs\": {} }")).isEqualTo(KPIDatasourceType.ELASTICSEARCH);
+		assertThat(KPIDatasourceType.ofQuery("\n  {\"query\": {}}")).isEqualTo(KPIDatasourceType.ELASTICSEARCH);
+	}
+
+	@Test
+	public void sqlQuery()
+	{
+		assertThat(KPIDatasourceType.ofQuery("SELECT DateInvoiced, SUM(GrandTotal) AS GrandTotal FROM C_Invoice GROUP BY DateInvoiced")).isEqualTo(KPIDatasourceType.SQL);
+		assertThat(KPIDatasourceType.ofQuery("\n WITH x AS (SELECT 1) SELECT * FROM x")).isEqualTo(KPIDatasourceType.SQL);
+	}
+}
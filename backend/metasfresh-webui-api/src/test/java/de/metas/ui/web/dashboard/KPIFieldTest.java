@@ -2,6 +2,7 @@ package de.metas.ui.web.dashboard;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
+import java.math.BigDecimal;
 import java.time.ZoneId;
 
 import org.compiere.util.TimeUtil;
@@ -46,6 +47,20 @@ public class KPIFieldTest
 		assertConvertValueToJsonUserFriendly(kpiField, jsonOpts, date_2019_03_04.getTime(), "04.03.2019");
 	}
 
+	@Test
+	public void test_convertValueToJson_BigDecimal()
+	{
+		final KPIField kpiField = KPIField.builder()
+				.setFieldName("test")
+				.setValueType(KPIFieldValueType.Number)
+				.setNumberPrecision(2)
+				.setESPath("test")
+				.build();
+
+		final Object result = kpiField.convertValueToJson(new BigDecimal("1234.567"), newJSONOptions());
+		assertThat(result).isEqualTo(new BigDecimal("1234.57"));
+	}
+
 	private void assertConvertValueToJsonUserFriendly(
 			final KPIField kpiField,
 			final JSONOptions jsonOpts,
@@ -0,0 +1,141 @@
+package de.metas.ui.web.view;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import org.adempiere.service.ClientId;
+import org.adempiere.service.ISysConfigBL;
+import org.adempiere.test.AdempiereTestHelper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.google.common.collect.ImmutableList;
+
+import de.metas.organization.OrgId;
+import de.metas.ui.web.exceptions.EntityNotFoundException;
+import de.metas.ui.web.view.descriptor.SqlViewBinding;
+import de.metas.ui.web.view.descriptor.SqlViewRowFieldBinding;
+import de.metas.ui.web.window.datatypes.DocumentId;
+import de.metas.ui.web.window.datatypes.DocumentIdsSelection;
+import de.metas.ui.web.window.datatypes.WindowId;
+import de.metas.ui.web.window.descriptor.DocumentFieldWidgetType;
+import de.metas.ui.web.window.descriptor.sql.SqlSelectValue;
+import de.metas.util.Services;
+
+
+/*
+ * #%L
+ * metasfresh-webui-api
+ * %%
+ * Copyright (C) 2020 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+
+public class InMemoryViewRowIdsOrderedSelectionFactoryTest
+{
+	private InMemoryViewRowIdsOrderedSelectionFactory factory;
+
+	@BeforeEach
+	public void beforeEach()
+	{
+		AdempiereTestHelper.get().init();
+
+		final SqlViewBinding viewBinding = SqlViewBinding.builder()
+				.tableName("M_HU")
+				.field(SqlViewRowFieldBinding.builder()
+						.fieldName("M_HU_ID")
+						.widgetType(DocumentFieldWidgetType.Integer)
+						.sqlValueClass(Integer.class)
+						.fieldLoader((rs, adLanguage) -> rs.getInt("M_HU_ID"))
+						.keyColumn(true)
+						.sqlSelectValue(SqlSelectValue.builder()
+								.columnName("M_HU_ID")
+								.columnNameAlias("M_HU_ID")
+								.build())
+						.build())
+				.displayFieldNames("M_HU_ID")
+				.build();
+		assertThat(InMemoryViewRowIdsOrderedSelectionFactory.isEligible(viewBinding)).isTrue();
+
+		factory = InMemoryViewRowIdsOrderedSelectionFactory.of(viewBinding);
+	}
+
+	private ViewRowIdsOrderedSelection inMemorySelection(final int... rowIds)
+	{
+		final ViewId viewId = ViewId.random(WindowId.of(123));
+		factory.putInMemorySelection(viewId.getViewId(), InMemoryViewRowIds.ofArray(rowIds));
+		return ViewRowIdsOrderedSelection.builder()
+				.viewId(viewId)
+				.size(rowIds.length)
+				.build();
+	}
+
+	@Test
+	public void unknownSelection_fails()
+	{
+		assertThatThrownBy(() -> factory.getSqlSelectionSourceOrNull("unknownSelectionId"))
+				.isInstanceOf(EntityNotFoundException.class);
+	}
+
+	@Test
+	public void getSqlSelectionSourceForPage()
+	{
+		final ViewRowIdsOrderedSelection selection = inMemorySelection(10, 20, 30, 40);
+
+		final String sqlSelectionSource = factory.getSqlSelectionSourceForPageOrNull(selection.getSelectionId(), 1, 2);
+		assertThat(sqlSelectionSource)
+				.contains("'{20,30}'::numeric[]")
+				.contains("x.Line + 1 AS Line");
+	}
+
+	@Test
+	public void getSqlWhereClause_embedsOnlyRequestedRowIds()
+	{
+		final ViewRowIdsOrderedSelection selection = inMemorySelection(10, 20, 30, 40);
+
+		final String sqlWhereClause = factory.getSqlWhereClause(selection.getViewId(), DocumentIdsSelection.ofIntSet(ImmutableList.of(40, 10)))
+				.toSqlString();
+		assertThat(sqlWhereClause)
+				.contains("'{10,40}'::numeric[]")
+				.doesNotContain("T_WEBUI_ViewSelection");
+	}
+
+	@Test
+	public void addRowIdsToSelection_keepsInMemoryUpToMaxSize()
+	{
+		Services.get(ISysConfigBL.class).setValue("webui.view.InMemorySelection.MaxSize", 5, ClientId.SYSTEM, OrgId.ANY);
+		final ViewRowIdsOrderedSelection selection = inMemorySelection(10, 20, 30);
+
+		final ViewRowIdsOrderedSelection selectionNew = factory.addRowIdsToSelection(selection, DocumentIdsSelection.of(ImmutableList.of(DocumentId.of(50), DocumentId.of(40))));
+
+		assertThat(selectionNew.getSize()).isEqualTo(5);
+		assertThat(factory.getSqlSelectionSourceOrNull(selection.getSelectionId())).contains("'{10,20,30,50,40}'::numeric[]");
+	}
+
+	@Test
+	public void removeRowIdsFromSelection()
+	{
+		final ViewRowIdsOrderedSelection selection = inMemorySelection(10, 20, 30);
+
+		final ViewRowIdsOrderedSelection selectionNew = factory.removeRowIdsFromSelection(selection, DocumentIdsSelection.fromNullable(DocumentId.of(20)));
+
+		assertThat(selectionNew.getSize()).isEqualTo(2);
+		assertThat(factory.containsAnyOfRowIds(selectionNew, DocumentIdsSelection.fromNullable(DocumentId.of(20)))).isFalse();
+		assertThat(factory.containsAnyOfRowIds(selectionNew, DocumentIdsSelection.fromNullable(DocumentId.of(30)))).isTrue();
+	}
+}
@@ -0,0 +1,109 @@
+package de.metas.ui.web.view;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+
+import com.google.common.collect.ImmutableList;
+
+import de.metas.ui.web.window.datatypes.DocumentId;
+import de.metas.ui.web.window.datatypes.DocumentIdsSelection;
+
+/*
+ * #%L
+ * metasfresh-webui-api
+ * %%
+ * Copyright (C) 2020 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+public class InMemoryViewRowIdsTest
+{
+	private static InMemoryViewRowIds rowIds(final int... rowIds)
+	{
+		return InMemoryViewRowIds.ofArray(rowIds);
+	}
+
+	@Test
+	public void addingRowIds_appendsOnlyMissingRowIds()
+	{
+		final InMemoryViewRowIds rowIds = rowIds(3, 1, 2)
+				.addingRowIds(ImmutableList.of(DocumentId.of(2), DocumentId.of(5), DocumentId.of(4), DocumentId.of(5)));
+
+		assertThat(rowIds.size()).isEqualTo(5);
+		assertThat(rowIds.toSqlSelectionSource("uuid", "IntKey1")).contains("'{3,1,2,5,4}'::numeric[]");
+	}
+
+	@Test
+	public void addingRowIds_nothingNew()
+	{
+		final InMemoryViewRowIds rowIds = rowIds(3, 1, 2);
+		assertThat(rowIds.addingRowIds(ImmutableList.of(DocumentId.of(1)))).isSameAs(rowIds);
+	}
+
+	@Test
+	public void removingRowIds()
+	{
+		final InMemoryViewRowIds rowIds = rowIds(3, 1, 2, 7);
+
+		assertThat(rowIds.removingRowIds(DocumentIdsSelection.ofIntSet(ImmutableList.of(1, 7, 100))).toSqlSelectionSource("uuid", "IntKey1"))
+				.contains("'{3,2}'::numeric[]");
+		assertThat(rowIds.removingRowIds(DocumentIdsSelection.ALL).size()).isZero();
+		assertThat(rowIds.removingRowIds(DocumentIdsSelection.EMPTY)).isSameAs(rowIds);
+	}
+
+	@Test
+	public void containsAny()
+	{
+		final InMemoryViewRowIds rowIds = rowIds(3, 1, 2);
+
+		assertThat(rowIds.containsAny(DocumentIdsSelection.ofIntSet(ImmutableList.of(5, 2)))).isTrue();
+		assertThat(rowIds.containsAny(DocumentIdsSelection.ofIntSet(ImmutableList.of(5, 6)))).isFalse();
+		assertThat(rowIds.containsAny(DocumentIdsSelection.ALL)).isTrue();
+		assertThat(rowIds.containsAny(DocumentIdsSelection.EMPTY)).isFalse();
+	}
+
+	@Test
+	public void toSqlSelectionSourceForPage_keepsTheLineNumbers()
+	{
+		final InMemoryViewRowIds rowIds = rowIds(10, 20, 30, 40, 50);
+
+		final String sql = rowIds.toSqlSelectionSourceForPage("uuid", "IntKey1", 2, 2);
+		assertThat(sql).contains("'{30,40}'::numeric[]");
+		assertThat(sql).contains("x.Line + 2 AS Line");
+	}
+
+	@Test
+	public void toSqlSelectionSourceForPage_afterLastRow()
+	{
+		final InMemoryViewRowIds rowIds = rowIds(10, 20);
+
+		assertThat(rowIds.toSqlSelectionSourceForPage("uuid", "IntKey1", 5, 10)).contains("'{}'::numeric[]");
+	}
+
+	@Test
+	public void toSqlSelectionSourceForRowId()
+	{
+		final InMemoryViewRowIds rowIds = rowIds(10, 20, 30);
+
+		assertThat(rowIds.toSqlSelectionSourceForRowId("uuid", "IntKey1", DocumentId.of(20)))
+				.contains("'{20}'::numeric[]")
+				.contains("x.Line + 1 AS Line");
+		assertThat(rowIds.toSqlSelectionSourceForRowId("uuid", "IntKey1", DocumentId.of(99)))
+				.contains("'{}'::numeric[]");
+	}
+}
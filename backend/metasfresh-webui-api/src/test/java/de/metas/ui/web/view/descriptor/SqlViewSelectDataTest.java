@@ -0,0 +1,160 @@
+package de.metas.ui.web.view.descriptor;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Optional;
+
+import org.adempiere.service.ClientId;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.google.common.collect.ImmutableList;
+
+import de.metas.security.RoleId;
+import de.metas.security.UserRolePermissionsKey;
+import de.metas.ui.web.view.ViewEvaluationCtx;
+import de.metas.ui.web.view.ViewId;
+import de.metas.ui.web.window.datatypes.DocumentId;
+import de.metas.ui.web.window.datatypes.WindowId;
+import de.metas.ui.web.window.descriptor.DocumentFieldWidgetType;
+import de.metas.ui.web.window.descriptor.sql.SqlSelectValue;
+import de.metas.user.UserId;
+
+
+/*
+ * #%L
+ * metasfresh-webui-api
+ * %%
+ * Copyright (C) 2020 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+
+public class SqlViewSelectDataTest
+{
+	private static final String SQL_SELECTION_SOURCE = "(SELECT 'uuid'::varchar AS UUID, 1 AS Line, 10 AS IntKey1)";
+
+	private ViewEvaluationCtx viewEvalCtx;
+	private ViewId viewId;
+	private SqlViewSelectData sqlViewSelect;
+
+	@BeforeEach
+	public void beforeEach()
+	{
+		viewEvalCtx = ViewEvaluationCtx._builder()
+				.loggedUserId(Optional.of(UserId.METASFRESH))
+				.adLanguage("en_US")
+				.timeZone(ZoneId.of("UTC"))
+				.permissionsKey(UserRolePermissionsKey.of(RoleId.SYSTEM, UserId.METASFRESH, ClientId.SYSTEM, LocalDate.parse("2020-01-01")))
+				.build();
+		viewId = ViewId.random(WindowId.of(123));
+
+		final SqlViewRowFieldBinding keyField = SqlViewRowFieldBinding.builder()
+				.fieldName("M_HU_ID")
+				.widgetType(DocumentFieldWidgetType.Integer)
+				.sqlValueClass(Integer.class)
+				.fieldLoader((rs, adLanguage) -> rs.getInt("M_HU_ID"))
+				.keyColumn(true)
+				.sqlSelectValue(SqlSelectValue.builder()
+						.tableNameOrAlias("M_HU")
+						.columnName("M_HU_ID")
+						.columnNameAlias("M_HU_ID")
+						.build())
+				.build();
+
+		sqlViewSelect = SqlViewSelectData.builder()
+				.sqlTableName("M_HU")
+				.sqlTableAlias("master")
+				.keyColumnNamesMap(SqlViewKeyColumnNamesMap.ofKeyField(keyField))
+				.displayFieldNames(ImmutableList.of("M_HU_ID"))
+				.allFields(ImmutableList.of(keyField))
+				.build();
+	}
+
+	@Test
+	public void selectByPage_usingViewSelectionTable()
+	{
+		final SqlAndParams sql = sqlViewSelect.selectByPage()
+				.viewEvalCtx(viewEvalCtx)
+				.viewId(viewId)
+				.firstRowZeroBased(0)
+				.pageLength(10)
+				.build();
+
+		assertThat(sql.getSql())
+				.contains("FROM T_WEBUI_ViewSelection sel")
+				.doesNotContain(SqlViewSelectData.SQL_SelectionSource_Placeholder);
+		assertThat(sql.getSqlParams()).containsExactly(viewId.getViewId(), 1, 10);
+	}
+
+	@Test
+	public void selectByPage_usingSelectionSource()
+	{
+		final SqlAndParams sql = sqlViewSelect.selectByPage()
+				.viewEvalCtx(viewEvalCtx)
+				.viewId(viewId)
+				.sqlSelectionSource(SQL_SELECTION_SOURCE)
+				.firstRowZeroBased(0)
+				.pageLength(10)
+				.build();
+
+		assertThat(sql.getSql())
+				.contains("FROM " + SQL_SELECTION_SOURCE + " sel")
+				.doesNotContain("T_WEBUI_ViewSelection")
+				.doesNotContain(SqlViewSelectData.SQL_SelectionSource_Placeholder);
+	}
+
+	@Test
+	public void selectById_usingSelectionSource()
+	{
+		final SqlAndParams sql = sqlViewSelect.selectById()
+				.viewEvalCtx(viewEvalCtx)
+				.viewId(viewId)
+				.sqlSelectionSource(SQL_SELECTION_SOURCE)
+				.rowId(DocumentId.of(10))
+				.build();
+
+		assertThat(sql.getSql())
+				.contains("FROM " + SQL_SELECTION_SOURCE + " sel")
+				.doesNotContain("T_WEBUI_ViewSelection");
+		assertThat(sql.getSqlParams()).containsExactly(viewId.getViewId(), 10);
+	}
+
+	@Test
+	public void selectFieldValues_usingSelectionSource()
+	{
+		final SqlAndParams sql = sqlViewSelect.selectFieldValues(viewEvalCtx, viewId.getViewId(), SQL_SELECTION_SOURCE, "M_HU_ID", 100);
+
+		assertThat(sql.getSql())
+				.contains("FROM " + SQL_SELECTION_SOURCE + " sel")
+				.doesNotContain("T_WEBUI_ViewSelection");
+	}
+
+	/**
+	 * The selection source is resolved only where the placeholder is, so SQL which is just mentioning the selection table is not touched.
+	 */
+	@Test
+	public void resolveSelectionSource_onlyReplacesThePlaceholder()
+	{
+		final String sql = "SELECT * FROM " + SqlViewSelectData.SQL_SelectionSource_Placeholder + " sel WHERE NOT EXISTS (SELECT 1 FROM T_WEBUI_ViewSelection sel WHERE 1=0)";
+
+		assertThat(sqlViewSelect.resolveSelectionSource(sql, SQL_SELECTION_SOURCE))
+				.isEqualTo("SELECT * FROM " + SQL_SELECTION_SOURCE + " sel WHERE NOT EXISTS (SELECT 1 FROM T_WEBUI_ViewSelection sel WHERE 1=0)");
+	}
+}
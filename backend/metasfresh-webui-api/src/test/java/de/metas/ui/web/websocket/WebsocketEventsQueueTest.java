@@ -0,0 +1,262 @@
+package de.metas.ui.web.websocket;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+
+import com.google.common.collect.ImmutableList;
+
+import de.metas.ui.web.view.ViewId;
+import de.metas.ui.web.view.event.JSONViewChanges;
+import de.metas.ui.web.view.event.ViewChanges;
+import de.metas.ui.web.window.datatypes.DocumentIdsSelection;
+import de.metas.ui.web.window.datatypes.WindowId;
+
+
+/*
+ * #%L
+ * metasfresh-webui-api
+ * %%
+ * Copyright (C) 2020 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+public class WebsocketEventsQueueTest
+{
+	private final List<Message<?>> sentMessages = new CopyOnWriteArrayList<>();
+	private SimpMessagingTemplate websocketMessagingTemplate;
+	private WebsocketEventsLog eventsLog;
+
+	/** The tasks which were scheduled by the queue under test; we run them ourselves, so the tests don't depend on timing. */
+	private final List<Runnable> scheduledTasks = new ArrayList<>();
+	private final List<Duration> scheduledDelays = new ArrayList<>();
+
+	@BeforeEach
+	public void beforeEach()
+	{
+		websocketMessagingTemplate = new SimpMessagingTemplate(new MessageChannel()
+		{
+			@Override
+			public boolean send(final Message<?> message)
+			{
+				return sentMessages.add(message);
+			}
+
+			@Override
+			public boolean send(final Message<?> message, final long timeout)
+			{
+				return send(message);
+			}
+		});
+		eventsLog = new WebsocketEventsLog();
+		scheduledTasks.clear();
+		scheduledDelays.clear();
+	}
+
+	private void schedule(final Runnable task, final Duration delay)
+	{
+		scheduledTasks.add(task);
+		scheduledDelays.add(delay);
+	}
+
+	private void runScheduledTasks()
+	{
+		final List<Runnable> tasks = new ArrayList<>(scheduledTasks);
+		scheduledTasks.clear();
+		tasks.forEach(Runnable::run);
+	}
+
+	private WebsocketEventsQueue newDebouncedAutoflushQueue()
+	{
+		return WebsocketEventsQueue.builder()
+				.name("AUTOFLUSH")
+				.websocketMessagingTemplate(websocketMessagingTemplate)
+				.eventsLog(eventsLog)
+				.autoflush(true)
+				.debounceDelay(Duration.ofMillis(50))
+				.debounceScheduler(this::schedule)
+				.build();
+	}
+
+	private static JSONViewChanges viewChanges(final ViewId viewId, final DocumentIdsSelection changedRowIds)
+	{
+		final ViewChanges viewChanges = new ViewChanges(viewId);
+		viewChanges.addChangedRowIds(changedRowIds);
+		return JSONViewChanges.of(viewChanges);
+	}
+
+	private static WebsocketTopicName topicOf(final ViewId viewId)
+	{
+		return WebsocketTopicNames.buildViewNotificationsTopicName(viewId.getViewId());
+	}
+
+	private JSONViewChanges getSentViewChanges(final int index)
+	{
+		return (JSONViewChanges)sentMessages.get(index).getPayload();
+	}
+
+	@Test
+	public void noDebounce_sendsEachEvent()
+	{
+		final WebsocketEventsQueue queue = WebsocketEventsQueue.builder()
+				.name("test")
+				.websocketMessagingTemplate(websocketMessagingTemplate)
+				.eventsLog(eventsLog)
+				.autoflush(false)
+				.build();
+
+		final ViewId viewId = ViewId.random(WindowId.of(123));
+		queue.enqueueObject(topicOf(viewId), viewChanges(viewId, DocumentIdsSelection.ofIntSet(ImmutableList.of(1))));
+		queue.enqueueObject(topicOf(viewId), viewChanges(viewId, DocumentIdsSelection.ofIntSet(ImmutableList.of(2))));
+		assertThat(sentMessages).isEmpty();
+
+		queue.sendEventsAndClear();
+		assertThat(sentMessages).hasSize(2);
+	}
+
+	@Test
+	public void debounce_mergesRowIdsPerView()
+	{
+		final WebsocketEventsQueue queue = WebsocketEventsQueue.builder()
+				.name("test")
+				.websocketMessagingTemplate(websocketMessagingTemplate)
+				.eventsLog(eventsLog)
+				.autoflush(false)
+				.debounceDelay(Duration.ofMillis(100))
+				.build();
+
+		final ViewId viewId1 = ViewId.random(WindowId.of(123));
+		final ViewId viewId2 = ViewId.random(WindowId.of(123));
+		queue.enqueueObject(topicOf(viewId1), viewChanges(viewId1, DocumentIdsSelection.ofIntSet(ImmutableList.of(1, 2))));
+		queue.enqueueObject(topicOf(viewId2), viewChanges(viewId2, DocumentIdsSelection.ofIntSet(ImmutableList.of(10))));
+		queue.enqueueObject(topicOf(viewId1), viewChanges(viewId1, DocumentIdsSelection.ofIntSet(ImmutableList.of(2, 3))));
+
+		queue.sendEventsAndClear();
+
+		assertThat(sentMessages).hasSize(2);
+		assertThat(getSentViewChanges(0).getViewId()).isEqualTo(viewId1.getViewId());
+		assertThat(getSentViewChanges(0).getFullyChanged()).isFalse();
+		assertThat(getSentViewChanges(0).getChangedIds()).containsExactlyInAnyOrder("1", "2", "3");
+		assertThat(getSentViewChanges(1).getViewId()).isEqualTo(viewId2.getViewId());
+		assertThat(getSentViewChanges(1).getChangedIds()).containsExactly("10");
+
+		final List<WebsocketTopicStatistics> stats = eventsLog.getTopicStatistics(viewId1.getViewId());
+		assertThat(stats).hasSize(1);
+		assertThat(stats.get(0).getSentCount()).isEqualTo(1);
+		assertThat(stats.get(0).getCoalescedEventsCount()).isEqualTo(1);
+	}
+
+	@Test
+	public void debounce_fullyChangedWins()
+	{
+		final WebsocketEventsQueue queue = WebsocketEventsQueue.builder()
+				.name("test")
+				.websocketMessagingTemplate(websocketMessagingTemplate)
+				.eventsLog(eventsLog)
+				.autoflush(false)
+				.debounceDelay(Duration.ofMillis(100))
+				.build();
+
+		final ViewId viewId = ViewId.random(WindowId.of(123));
+		queue.enqueueObject(topicOf(viewId), viewChanges(viewId, DocumentIdsSelection.ofIntSet(ImmutableList.of(1))));
+		queue.enqueueObject(topicOf(viewId), viewChanges(viewId, DocumentIdsSelection.ALL));
+		queue.enqueueObject(topicOf(viewId), viewChanges(viewId, DocumentIdsSelection.ofIntSet(ImmutableList.of(2))));
+
+		queue.sendEventsAndClear();
+
+		assertThat(sentMessages).hasSize(1);
+		assertThat(getSentViewChanges(0).getFullyChanged()).isTrue();
+		assertThat(getSentViewChanges(0).getChangedIds()).isEmpty();
+	}
+
+	@Test
+	public void autoflush_debounce_sendsAfterDelay()
+	{
+		final WebsocketEventsQueue queue = newDebouncedAutoflushQueue();
+
+		final ViewId viewId = ViewId.random(WindowId.of(123));
+		queue.enqueueObject(topicOf(viewId), viewChanges(viewId, DocumentIdsSelection.ofIntSet(ImmutableList.of(1))));
+		queue.enqueueObject(topicOf(viewId), viewChanges(viewId, DocumentIdsSelection.ofIntSet(ImmutableList.of(2))));
+		assertThat(sentMessages).isEmpty();
+		assertThat(scheduledTasks).hasSize(1);
+		assertThat(scheduledDelays).containsExactly(Duration.ofMillis(50));
+
+		runScheduledTasks();
+
+		assertThat(sentMessages).hasSize(1);
+		assertThat(getSentViewChanges(0).getChangedIds()).containsExactlyInAnyOrder("1", "2");
+
+		// the next view changes schedule a new flush
+		queue.enqueueObject(topicOf(viewId), viewChanges(viewId, DocumentIdsSelection.ofIntSet(ImmutableList.of(3))));
+		assertThat(scheduledTasks).hasSize(1);
+	}
+
+	@Test
+	public void debounce_coalescesAcrossTransactions()
+	{
+		final WebsocketEventsQueue autoflushQueue = newDebouncedAutoflushQueue();
+		final WebsocketEventsQueue trxQueue1 = newTrxQueue("trx1", autoflushQueue);
+		final WebsocketEventsQueue trxQueue2 = newTrxQueue("trx2", autoflushQueue);
+
+		final ViewId viewId = ViewId.random(WindowId.of(123));
+		trxQueue1.enqueueObject(topicOf(viewId), viewChanges(viewId, DocumentIdsSelection.ofIntSet(ImmutableList.of(1))));
+		trxQueue1.enqueueObject(topicOf(viewId), viewChanges(viewId, DocumentIdsSelection.ofIntSet(ImmutableList.of(2))));
+		trxQueue2.enqueueObject(topicOf(viewId), viewChanges(viewId, DocumentIdsSelection.ofIntSet(ImmutableList.of(3))));
+
+		final WebsocketTopicName otherTopic = WebsocketTopicName.ofString("/otherTopic");
+		trxQueue1.enqueueObject(otherTopic, "otherEvent");
+
+		// commit both transactions
+		trxQueue1.sendEventsAndClear();
+		trxQueue2.sendEventsAndClear();
+
+		// only the event that is not a view change was sent right away
+		assertThat(sentMessages).hasSize(1);
+		assertThat(scheduledTasks).hasSize(1);
+
+		runScheduledTasks();
+
+		assertThat(sentMessages).hasSize(2);
+		assertThat(getSentViewChanges(1).getChangedIds()).containsExactlyInAnyOrder("1", "2", "3");
+
+		final List<WebsocketTopicStatistics> stats = eventsLog.getTopicStatistics(viewId.getViewId());
+		assertThat(stats).hasSize(1);
+		assertThat(stats.get(0).getSentCount()).isEqualTo(1);
+		assertThat(stats.get(0).getCoalescedEventsCount()).isEqualTo(2);
+	}
+
+	private WebsocketEventsQueue newTrxQueue(final String trxName, final WebsocketEventsQueue viewChangesQueue)
+	{
+		return WebsocketEventsQueue.builder()
+				.name(trxName)
+				.websocketMessagingTemplate(websocketMessagingTemplate)
+				.eventsLog(eventsLog)
+				.autoflush(false)
+				.debounceDelay(Duration.ofMillis(50))
+				.viewChangesQueue(viewChangesQueue)
+				.build();
+	}
+}
@@ -0,0 +1,419 @@
+package de.metas.ui.web.window.model.lookup;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import javax.annotation.Nullable;
+
+import org.adempiere.test.AdempiereTestHelper;
+import org.compiere.util.CtxName;
+import org.compiere.util.CtxNames;
+import org.compiere.util.Evaluatee;
+import org.compiere.util.Evaluatees;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInfo;
+
+import com.google.common.collect.ImmutableSet;
+
+import de.metas.ui.web.window.datatypes.LookupValue;
+import de.metas.ui.web.window.datatypes.LookupValue.IntegerLookupValue;
+import de.metas.ui.web.window.datatypes.LookupValuesList;
+import de.metas.ui.web.window.datatypes.WindowId;
+import lombok.NonNull;
+
+
+/*
+ * #%L
+ * metasfresh-webui-api
+ * %%
+ * Copyright (C) 2020 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+public class IndexedLookupDataSourceTest
+{
+	/** E.g. one partition per role and org */
+	private static final int PARTITIONS_COUNT = 200;
+	private static final int VALUES_PER_PARTITION = 2000;
+
+	private MockedFetcher fetcher;
+	private final List<Runnable> indexBuilderTasks = new ArrayList<>();
+	/** The memory budgets are global, so each test is using its own */
+	private String memoryBudgetLabel;
+
+	@BeforeEach
+	public void init(final TestInfo testInfo)
+	{
+		AdempiereTestHelper.get().init();
+		fetcher = new MockedFetcher(MockedFetcher.TABLE_NAME);
+		indexBuilderTasks.clear();
+		memoryBudgetLabel = IndexedLookupDataSourceTest.class.getSimpleName() + "#" + testInfo.getDisplayName();
+	}
+
+	private IndexedLookupDataSource newDataSource(final long maxIndexesBytes)
+	{
+		return newDataSource(fetcher, maxIndexesBytes);
+	}
+
+	private IndexedLookupDataSource newDataSource(final MockedFetcher fetcher, final long maxIndexesBytes)
+	{
+		return IndexedLookupDataSource.builder()
+				.fetcher(fetcher)
+				.maxIndexedValues(VALUES_PER_PARTITION)
+				.maxIndexesBytes(maxIndexesBytes)
+				.memoryBudgetLabel(memoryBudgetLabel)
+				.indexBuilderExecutor(indexBuilderTasks::add)
+				.build();
+	}
+
+	private void runIndexBuilderTasks()
+	{
+		final List<Runnable> tasks = new ArrayList<>(indexBuilderTasks);
+		indexBuilderTasks.clear();
+		tasks.forEach(Runnable::run);
+	}
+
+	private static Evaluatee partitionCtx(final int partitionNo)
+	{
+		return Evaluatees.mapBuilder()
+				.put(MockedFetcher.PARAM_PartitionNo.getName(), partitionNo)
+				.build();
+	}
+
+	private static List<String> displayNames(final LookupValuesList values)
+	{
+		return values.getValues()
+				.stream()
+				.map(LookupValue::getDisplayName)
+				.collect(Collectors.toList());
+	}
+
+	@Test
+	public void allPartitionsIndexed()
+	{
+		final IndexedLookupDataSource dataSource = newDataSource(256L * 1024 * 1024);
+
+		// the indexes are not ready yet, so the first requests are served via SQL
+		IntStream.range(0, PARTITIONS_COUNT).forEach(partitionNo -> dataSource.findEntities(partitionCtx(partitionNo), "1234", 0, 10));
+		assertThat(fetcher.getFilteredQueriesCount()).isEqualTo(PARTITIONS_COUNT);
+		assertThat(indexBuilderTasks).hasSize(PARTITIONS_COUNT);
+
+		runIndexBuilderTasks();
+		assertThat(fetcher.getAllValuesQueriesCount()).isEqualTo(PARTITIONS_COUNT);
+
+		for (int partitionNo = 0; partitionNo < PARTITIONS_COUNT; partitionNo++)
+		{
+			final LookupValuesList result = dataSource.findEntities(partitionCtx(partitionNo), "value 1234", 0, 10);
+			assertThat(displayNames(result)).containsExactly(MockedFetcher.displayName(partitionNo, 1234, 1));
+		}
+		assertThat(fetcher.getFilteredQueriesCount()).isEqualTo(PARTITIONS_COUNT);
+		assertThat(indexBuilderTasks).isEmpty();
+	}
+
+	@Test
+	public void indexesAreBoundedByMemory()
+	{
+		final long indexBytes = LookupValuesIndex.of(fetcher.retrieveAllValues(0), null).getEstimatedBytes();
+		final long maxIndexesBytes = indexBytes * 20;
+		final IndexedLookupDataSource dataSource = newDataSource(maxIndexesBytes);
+
+		IntStream.range(0, PARTITIONS_COUNT).forEach(partitionNo -> dataSource.findEntities(partitionCtx(partitionNo), "1234", 0, 10));
+		runIndexBuilderTasks();
+		assertThat(dataSource.getCacheStats().get(0).getEstimatedBytes()).isLessThanOrEqualTo(maxIndexesBytes);
+
+		// the partitions whose index was not kept are still served, but via SQL and without rebuilding their index on each request
+		final int filteredQueriesCountBefore = fetcher.getFilteredQueriesCount();
+		for (int partitionNo = 0; partitionNo < PARTITIONS_COUNT; partitionNo++)
+		{
+			final LookupValuesList result = dataSource.findEntities(partitionCtx(partitionNo), "value 1234", 0, 10);
+			assertThat(displayNames(result)).containsExactly(MockedFetcher.displayName(partitionNo, 1234, 1));
+		}
+		assertThat(fetcher.getFilteredQueriesCount() - filteredQueriesCountBefore).isBetween(PARTITIONS_COUNT - 20, PARTITIONS_COUNT - 1);
+		assertThat(indexBuilderTasks).isEmpty();
+		assertThat(fetcher.getAllValuesQueriesCount()).isEqualTo(PARTITIONS_COUNT);
+	}
+
+	@Test
+	public void memoryBudgetIsSharedByAllDataSources()
+	{
+		final long indexBytes = LookupValuesIndex.of(fetcher.retrieveAllValues(0), null).getEstimatedBytes();
+		final long maxIndexesBytes = indexBytes * 20;
+		final IndexedLookupDataSource dataSource1 = newDataSource(new MockedFetcher("MockedTable1"), maxIndexesBytes);
+		final IndexedLookupDataSource dataSource2 = newDataSource(new MockedFetcher("MockedTable2"), maxIndexesBytes);
+
+		IntStream.range(0, 15).forEach(partitionNo -> dataSource1.findEntities(partitionCtx(partitionNo), "1234", 0, 10));
+		IntStream.range(0, 15).forEach(partitionNo -> dataSource2.findEntities(partitionCtx(partitionNo), "1234", 0, 10));
+		runIndexBuilderTasks();
+
+		final long estimatedBytes1 = dataSource1.getCacheStats().get(0).getEstimatedBytes();
+		final long estimatedBytes2 = dataSource2.getCacheStats().get(0).getEstimatedBytes();
+		assertThat(estimatedBytes1).isGreaterThan(0);
+		assertThat(estimatedBytes1 + estimatedBytes2).isLessThanOrEqualTo(maxIndexesBytes);
+	}
+
+	@Test
+	public void cacheInvalidate_staleIndexIsBypassedUntilRebuilt()
+	{
+		final IndexedLookupDataSource dataSource = newDataSource(256L * 1024 * 1024);
+		dataSource.findEntities(partitionCtx(1), "value 1234", 0, 10);
+		runIndexBuilderTasks();
+
+		fetcher.setVersion(2);
+		dataSource.cacheInvalidate();
+
+		// answered via SQL, so the changes are visible right away; rebuilding the index was started
+		final int filteredQueriesCountBefore = fetcher.getFilteredQueriesCount();
+		assertThat(displayNames(dataSource.findEntities(partitionCtx(1), "value 1234", 0, 10)))
+				.containsExactly(MockedFetcher.displayName(1, 1234, 2));
+		assertThat(fetcher.getFilteredQueriesCount()).isEqualTo(filteredQueriesCountBefore + 1);
+		assertThat(indexBuilderTasks).hasSize(1);
+
+		runIndexBuilderTasks();
+
+		assertThat(displayNames(dataSource.findEntities(partitionCtx(1), "value 1235", 0, 10)))
+				.containsExactly(MockedFetcher.displayName(1, 1235, 2));
+		assertThat(fetcher.getFilteredQueriesCount()).isEqualTo(filteredQueriesCountBefore + 1);
+		assertThat(indexBuilderTasks).isEmpty();
+	}
+
+	@Test
+	public void cacheInvalidateRecords_changesAreAppliedToIndex()
+	{
+		final IndexedLookupDataSource dataSource = newDataSource(256L * 1024 * 1024);
+		dataSource.findEntities(partitionCtx(1), "value 1234", 0, 10);
+		runIndexBuilderTasks();
+		final int allValuesQueriesCountBefore = fetcher.getAllValuesQueriesCount();
+		final int filteredQueriesCountBefore = fetcher.getFilteredQueriesCount();
+
+		final int renamedId = MockedFetcher.valueId(1, 1234);
+		final int deletedId = MockedFetcher.valueId(1, 1235);
+		final int addedId = MockedFetcher.valueId(1, VALUES_PER_PARTITION + 1);
+		fetcher.changeDisplayName(renamedId, "Renamed value");
+		fetcher.delete(deletedId);
+		fetcher.changeDisplayName(addedId, "Added value 1234");
+		dataSource.cacheInvalidateRecords(MockedFetcher.TABLE_NAME, ImmutableSet.of(renamedId, deletedId, addedId));
+
+		assertThat(displayNames(dataSource.findEntities(partitionCtx(1), "value 1234", 0, 10))).containsExactly("Added value 1234");
+		assertThat(displayNames(dataSource.findEntities(partitionCtx(1), "renamed", 0, 10))).containsExactly("Renamed value");
+		assertThat(displayNames(dataSource.findEntities(partitionCtx(1), "value 1235", 0, 10))).isEmpty();
+
+		// only the changed records were loaded
+		assertThat(fetcher.getByIdsQueriesCount()).isEqualTo(1);
+		assertThat(fetcher.getAllValuesQueriesCount()).isEqualTo(allValuesQueriesCountBefore);
+		assertThat(fetcher.getFilteredQueriesCount()).isEqualTo(filteredQueriesCountBefore);
+		assertThat(indexBuilderTasks).isEmpty();
+	}
+
+	@Test
+	public void cacheInvalidateRecords_otherTable_staleIndexIsBypassedUntilRebuilt()
+	{
+		final IndexedLookupDataSource dataSource = newDataSource(256L * 1024 * 1024);
+		dataSource.findEntities(partitionCtx(1), "value 1234", 0, 10);
+		runIndexBuilderTasks();
+
+		fetcher.setVersion(2);
+		dataSource.cacheInvalidateRecords("OtherTable", ImmutableSet.of(1));
+
+		assertThat(displayNames(dataSource.findEntities(partitionCtx(1), "value 1234", 0, 10)))
+				.containsExactly(MockedFetcher.displayName(1, 1234, 2));
+		assertThat(fetcher.getByIdsQueriesCount()).isZero();
+		assertThat(indexBuilderTasks).hasSize(1);
+	}
+
+	private static class MockedFetcher implements IndexableLookupDataSourceFetcher
+	{
+		private static final String TABLE_NAME = "MockedTable";
+		private static final CtxName PARAM_PartitionNo = CtxNames.parse("PartitionNo");
+		private static final int MAX_VALUES_PER_PARTITION = 1000000;
+
+		private final String tableName;
+		private int version = 1;
+		/** Display names of the changed values by their ID; null if the value was deleted */
+		private final Map<Integer, String> changedDisplayNames = new HashMap<>();
+		private int allValuesQueriesCount = 0;
+		private int filteredQueriesCount = 0;
+		private int byIdsQueriesCount = 0;
+
+		public MockedFetcher(final String tableName)
+		{
+			this.tableName = tableName;
+		}
+
+		public static String displayName(final int partitionNo, final int valueNo, final int version)
+		{
+			return "Partition " + partitionNo + " value " + valueNo + " version " + version;
+		}
+
+		public static int valueId(final int partitionNo, final int valueNo)
+		{
+			return partitionNo * MAX_VALUES_PER_PARTITION + valueNo;
+		}
+
+		public void setVersion(final int version)
+		{
+			this.version = version;
+		}
+
+		public void changeDisplayName(final int valueId, final String displayName)
+		{
+			changedDisplayNames.put(valueId, displayName);
+		}
+
+		public void delete(final int valueId)
+		{
+			changedDisplayNames.put(valueId, null);
+		}
+
+		public int getAllValuesQueriesCount()
+		{
+			return allValuesQueriesCount;
+		}
+
+		public int getFilteredQueriesCount()
+		{
+			return filteredQueriesCount;
+		}
+
+		public int getByIdsQueriesCount()
+		{
+			return byIdsQueriesCount;
+		}
+
+		public LookupValuesList retrieveAllValues(final int partitionNo)
+		{
+			final List<LookupValue> values = new ArrayList<>();
+			for (int valueNo = 1; valueNo <= VALUES_PER_PARTITION; valueNo++)
+			{
+				final int valueId = valueId(partitionNo, valueNo);
+				final String displayName = changedDisplayNames.containsKey(valueId)
+						? changedDisplayNames.get(valueId)
+						: displayName(partitionNo, valueNo, version);
+				if (displayName != null)
+				{
+					values.add(IntegerLookupValue.of(valueId, displayName));
+				}
+			}
+
+			// the added values
+			changedDisplayNames.forEach((valueId, displayName) -> {
+				if (displayName != null && valueId > valueId(partitionNo, VALUES_PER_PARTITION) && valueId < valueId(partitionNo + 1, 0))
+				{
+					values.add(IntegerLookupValue.of(valueId, displayName));
+				}
+			});
+
+			return LookupValuesList.fromCollection(values);
+		}
+
+		@Override
+		public List<IndexableLookupValue> retrieveValuesToIndexByIds(@NonNull final LookupDataSourceContext partitionCtx, @NonNull final Set<Integer> ids)
+		{
+			byIdsQueriesCount++;
+			return retrieveAllValues(partitionCtx.get_ValueAsInt(PARAM_PartitionNo.getName(), -1))
+					.getValues()
+					.stream()
+					.filter(value -> ids.contains(value.getIdAsInt()))
+					.map(value -> IndexableLookupValue.of(value, null))
+					.collect(Collectors.toList());
+		}
+
+		@Override
+		public LookupValuesList retrieveEntities(final LookupDataSourceContext evalCtx)
+		{
+			final LookupValuesList allValues = retrieveAllValues(evalCtx.get_ValueAsInt(PARAM_PartitionNo.getName(), -1));
+			if (evalCtx.isAnyFilter())
+			{
+				allValuesQueriesCount++;
+				return allValues;
+			}
+
+			filteredQueriesCount++;
+			return LookupValuesList.fromCollection(allValues.getValues()
+					.stream()
+					.filter(evalCtx.getFilterPredicate())
+					.skip(evalCtx.getOffset(0))
+					.limit(evalCtx.getLimit(Integer.MAX_VALUE))
+					.collect(Collectors.toList()));
+		}
+
+		@Override
+		public LookupDataSourceContext.Builder newContextForFetchingList()
+		{
+			return LookupDataSourceContext.builder(tableName)
+					.requiresParameter(PARAM_PartitionNo)
+					.requiresFilterAndLimit()
+					.requiresAD_Language();
+		}
+
+		@Override
+		public boolean isNumericKey()
+		{
+			return true;
+		}
+
+		@Override
+		public LookupDataSourceContext.Builder newContextForFetchingById(final Object id)
+		{
+			return LookupDataSourceContext.builder(tableName).putFilterById(id);
+		}
+
+		@Nullable
+		@Override
+		public LookupValue retrieveLookupValueById(@NonNull final LookupDataSourceContext evalCtx)
+		{
+			return null;
+		}
+
+		@Override
+		public boolean isCached()
+		{
+			return false;
+		}
+
+		@Override
+		public String getCachePrefix()
+		{
+			return tableName;
+		}
+
+		@Override
+		public Optional<String> getLookupTableName()
+		{
+			return Optional.of(tableName);
+		}
+
+		@Override
+		public Optional<WindowId> getZoomIntoWindowId()
+		{
+			return Optional.empty();
+		}
+
+		@Override
+		public void cacheInvalidate()
+		{
+		}
+	}
+}
@@ -0,0 +1,145 @@
+package de.metas.ui.web.window.model.lookup;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.adempiere.test.AdempiereTestHelper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+
+import de.metas.ui.web.window.datatypes.LookupValue.IntegerLookupValue;
+import de.metas.ui.web.window.datatypes.LookupValuesList;
+
+
+/*
+ * #%L
+ * metasfresh-webui-api
+ * %%
+ * Copyright (C) 2020 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+public class LookupValuesIndexTest
+{
+	private LookupValuesIndex index;
+
+	@BeforeEach
+	public void init()
+	{
+		AdempiereTestHelper.get().init();
+
+		final LookupValuesList values = LookupValuesList.fromCollection(ImmutableList.of(
+				IntegerLookupValue.of(1, "Apfel rot"),
+				IntegerLookupValue.of(2, "Apfelsaft"),
+				IntegerLookupValue.of(3, "Birne"),
+				IntegerLookupValue.of(4, "Café Crème"),
+				IntegerLookupValue.of(5, "Kaffeebohnen"),
+				IntegerLookupValue.of(6, "Grüner Apfel")));
+		index = LookupValuesIndex.of(values, null);
+	}
+
+	@Test
+	public void emptyFilter_returnsAllInOrder()
+	{
+		assertThat(index.find(null, 0, 100).getKeysAsInt()).containsExactly(1, 2, 3, 4, 5, 6);
+		assertThat(index.find("  ", 2, 2).getKeysAsInt()).containsExactly(3, 4);
+	}
+
+	@Test
+	public void containsIgnoringCase()
+	{
+		assertThat(index.find("APFEL", 0, 100).getKeysAsInt()).containsExactly(1, 2, 6);
+		assertThat(index.find("pfels", 0, 100).getKeysAsInt()).containsExactly(2);
+		assertThat(index.find("banane", 0, 100).getKeysAsInt()).isEmpty();
+	}
+
+	@Test
+	public void shortFilter()
+	{
+		assertThat(index.find("ne", 0, 100).getKeysAsInt()).containsExactly(3, 5, 6);
+	}
+
+	@Test
+	public void ignoringDiacritics()
+	{
+		assertThat(index.find("cafe creme", 0, 100).getKeysAsInt()).containsExactly(4);
+		assertThat(index.find("grun", 0, 100).getKeysAsInt()).containsExactly(6);
+	}
+
+	@Test
+	public void offsetAndLimit()
+	{
+		assertThat(index.find("apfel", 1, 1).getKeysAsInt()).containsExactly(2);
+		assertThat(index.find("apfel", 3, 10).getKeysAsInt()).isEmpty();
+	}
+
+	@Test
+	public void sqlWildcardsAreNotSupported()
+	{
+		assertThat(LookupValuesIndex.isSupportedFilter("Apfel")).isTrue();
+		assertThat(LookupValuesIndex.isSupportedFilter("Ap%el")).isFalse();
+		assertThat(LookupValuesIndex.isSupportedFilter("Ap_el")).isFalse();
+	}
+
+	@Test
+	public void withChangedValues()
+	{
+		final LookupValuesIndex changedIndex = index.withChangedValues(
+				ImmutableSet.of(2, 3, 7),
+				ImmutableList.of(
+						IndexableLookupValue.of(IntegerLookupValue.of(2, "Apfelmus"), null),
+						IndexableLookupValue.of(IntegerLookupValue.of(7, "Bratapfel"), null)));
+
+		// 2 was renamed, 3 was deleted, 7 was added
+		assertThat(changedIndex.find("apfel", 0, 100).getKeysAsInt()).containsExactly(1, 2, 7, 6);
+		assertThat(changedIndex.find("saft", 0, 100).getKeysAsInt()).isEmpty();
+		assertThat(changedIndex.find(null, 0, 100).getKeysAsInt()).containsExactly(1, 2, 7, 4, 5, 6);
+		assertThat(changedIndex.find("apfel", 1, 2).getKeysAsInt()).containsExactly(2, 7);
+
+		// the original index is not changed
+		assertThat(index.find("apfel", 0, 100).getKeysAsInt()).containsExactly(1, 2, 6);
+	}
+
+	@Test
+	public void multipleSearchTexts()
+	{
+		final LookupValuesIndex index = LookupValuesIndex.of(ImmutableList.of(
+				IndexableLookupValue.ofSearchTexts(IntegerLookupValue.of(1, "Apfel"), "Apfel", "4001234", null),
+				IndexableLookupValue.ofSearchTexts(IntegerLookupValue.of(2, "Birne"), "Birne", "4005678")));
+
+		assertThat(index.find("4001", 0, 100).getKeysAsInt()).containsExactly(1);
+		assertThat(index.find("400", 0, 100).getKeysAsInt()).containsExactly(1, 2);
+
+		// a filter does not match across two search texts
+		assertThat(index.find("apfel4001", 0, 100).getKeysAsInt()).isEmpty();
+	}
+
+	@Test
+	public void duplicateIds_firstMatchIsReturned()
+	{
+		final LookupValuesIndex index = LookupValuesIndex.of(ImmutableList.of(
+				IndexableLookupValue.ofSearchTexts(IntegerLookupValue.of(1, "Apfel_A-1"), "Apfel", "A-1"),
+				IndexableLookupValue.ofSearchTexts(IntegerLookupValue.of(1, "Apfel_B-1"), "Apfel", "B-1"),
+				IndexableLookupValue.ofSearchTexts(IntegerLookupValue.of(2, "Birne"), "Birne")));
+
+		assertThat(index.find("apfel", 0, 100).getValues()).extracting("displayName").containsExactly("Apfel_A-1");
+		assertThat(index.find("b-1", 0, 100).getValues()).extracting("displayName").containsExactly("Apfel_B-1");
+		assertThat(index.find(null, 0, 100).getKeysAsInt()).containsExactly(1, 2);
+	}
+}